@@ -0,0 +1,27 @@
+-- =====================================================
+-- RECURRING INSTANCES: ONE PER PARENT AND DATE
+-- The server cron (api/process-recurring-transactions.js) and the app's
+-- catch-up run can both materialize the same occurrence. With this key the
+-- later insert is ignored (on_conflict=parent_recurring_id,date) instead of
+-- creating a second instance. Rows without a parent are not affected:
+-- NULLs never conflict in a unique index.
+-- =====================================================
+
+-- Existing duplicates would make the index fail. Untouched copies (amount 0,
+-- as generated) are removed, keeping the oldest instance of each date.
+DELETE FROM transactions t
+USING transactions keep
+WHERE t.parent_recurring_id IS NOT NULL
+  AND keep.parent_recurring_id = t.parent_recurring_id
+  AND keep.date = t.date
+  AND t.amount = 0
+  AND (keep.created_at, keep.id) < (t.created_at, t.id);
+
+-- If this still fails, the remaining duplicates were edited by their users
+-- and need to be merged by hand:
+--   SELECT parent_recurring_id, date, count(*) FROM transactions
+--   WHERE parent_recurring_id IS NOT NULL GROUP BY 1, 2 HAVING count(*) > 1;
+CREATE UNIQUE INDEX IF NOT EXISTS idx_transactions_recurring_instance
+  ON transactions(parent_recurring_id, date);
+
+COMMENT ON INDEX idx_transactions_recurring_instance IS 'At most one generated instance per recurring parent and occurrence date';
@@ -0,0 +1,285 @@
+package com.balanze.app;
+
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.json.JSONObject;
+
+// Dashboard and purchase statistics from AggregationEngine. The web layer
+// streams row changes in (only rows whose object changed), and the stats
+// queries read the rollups instead of walking every transaction.
+@CapacitorPlugin(name = "Aggregates")
+public class AggregatesPlugin extends Plugin {
+
+    private static final String TAG = "Aggregates";
+
+    private AggregationEngine engine;
+    // AggregationEngine is not thread-safe; every call is serialized here
+    private ExecutorService executor;
+
+    @Override
+    public void load() {
+        super.load();
+        engine = new AggregationEngine();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    // { accounts: [{ id, currency, isActive, balance }] }, replaces the list
+    @PluginMethod
+    public void setAccounts(PluginCall call) {
+        JSArray accounts = call.getArray("accounts");
+        if (accounts == null) {
+            call.reject("accounts is required");
+            return;
+        }
+        run(call, "setAccounts", () -> {
+            List<AggregationEngine.Account> list = new ArrayList<>(accounts.length());
+            for (int i = 0; i < accounts.length(); i++) {
+                JSONObject account = accounts.getJSONObject(i);
+                list.add(new AggregationEngine.Account(
+                    account.getString("id"),
+                    account.optString("currency", "USD"),
+                    account.optBoolean("isActive", true),
+                    account.optDouble("balance", 0)));
+            }
+            engine.setAccounts(list);
+            call.resolve();
+        });
+    }
+
+    // { rows: [{ id, accountId, category, epochDay, amount, type, transfer, lendBorrow }] }
+    @PluginMethod
+    public void upsertTransactions(PluginCall call) {
+        JSArray rows = call.getArray("rows");
+        if (rows == null) {
+            call.reject("rows is required");
+            return;
+        }
+        run(call, "upsertTransactions", () -> {
+            for (int i = 0; i < rows.length(); i++) {
+                JSONObject row = rows.getJSONObject(i);
+                int flags = (row.optBoolean("transfer") ? AggregationEngine.FLAG_TRANSFER : 0)
+                    | (row.optBoolean("lendBorrow") ? AggregationEngine.FLAG_LEND_BORROW : 0);
+                engine.upsertTransaction(
+                    row.getString("id"),
+                    row.optString("accountId", ""),
+                    row.optString("category", ""),
+                    row.getInt("epochDay"),
+                    row.optDouble("amount", 0),
+                    transactionType(row.optString("type")),
+                    flags);
+            }
+            resolveCount(call, rows.length());
+        });
+    }
+
+    @PluginMethod
+    public void removeTransactions(PluginCall call) {
+        JSArray ids = call.getArray("ids");
+        if (ids == null) {
+            call.reject("ids is required");
+            return;
+        }
+        run(call, "removeTransactions", () -> {
+            int removed = 0;
+            for (int i = 0; i < ids.length(); i++) {
+                if (engine.removeTransaction(ids.getString(i))) {
+                    removed++;
+                }
+            }
+            resolveCount(call, removed);
+        });
+    }
+
+    // { rows: [{ id, currency, category, epochDay, price, status }] }
+    @PluginMethod
+    public void upsertPurchases(PluginCall call) {
+        JSArray rows = call.getArray("rows");
+        if (rows == null) {
+            call.reject("rows is required");
+            return;
+        }
+        run(call, "upsertPurchases", () -> {
+            for (int i = 0; i < rows.length(); i++) {
+                JSONObject row = rows.getJSONObject(i);
+                engine.upsertPurchase(
+                    row.getString("id"),
+                    row.optString("currency", "USD"),
+                    row.optString("category", ""),
+                    row.getInt("epochDay"),
+                    row.optDouble("price", 0),
+                    purchaseStatus(row.optString("status")));
+            }
+            resolveCount(call, rows.length());
+        });
+    }
+
+    @PluginMethod
+    public void removePurchases(PluginCall call) {
+        JSArray ids = call.getArray("ids");
+        if (ids == null) {
+            call.reject("ids is required");
+            return;
+        }
+        run(call, "removePurchases", () -> {
+            int removed = 0;
+            for (int i = 0; i < ids.length(); i++) {
+                if (engine.removePurchase(ids.getString(i))) {
+                    removed++;
+                }
+            }
+            resolveCount(call, removed);
+        });
+    }
+
+    @PluginMethod
+    public void clear(PluginCall call) {
+        run(call, "clear", () -> {
+            engine.clear();
+            call.resolve();
+        });
+    }
+
+    // { year, month } with a zero-based month, like Date.getMonth()
+    @PluginMethod
+    public void getDashboardStats(PluginCall call) {
+        int month = month(call);
+        run(call, "getDashboardStats", () -> {
+            AggregationEngine.DashboardStats stats = engine.dashboardStats(month);
+            JSArray byCurrency = new JSArray();
+            for (AggregationEngine.CurrencyTotals totals : stats.byCurrency) {
+                JSObject item = new JSObject();
+                item.put("currency", totals.currency);
+                item.put("balance", major(totals.balanceMinor, totals.currency));
+                item.put("monthlyIncome", major(totals.incomeMinor, totals.currency));
+                item.put("monthlyExpenses", major(totals.expenseMinor, totals.currency));
+                byCurrency.put(item);
+            }
+            JSObject result = new JSObject();
+            result.put("byCurrency", byCurrency);
+            result.put("accountsCount", stats.accountsCount);
+            result.put("transactionsCount", stats.transactionsCount);
+            call.resolve(result);
+        });
+    }
+
+    // Same shape as MultiCurrencyPurchaseAnalytics in the web layer
+    @PluginMethod
+    public void getPurchaseAnalytics(PluginCall call) {
+        int month = month(call);
+        run(call, "getPurchaseAnalytics", () -> {
+            JSArray byCurrency = new JSArray();
+            for (AggregationEngine.PurchaseAnalytics analytics : engine.purchaseAnalytics(month)) {
+                JSObject item = new JSObject();
+                item.put("currency", analytics.currency);
+                item.put("total_spent", major(analytics.totalSpentMinor, analytics.currency));
+                item.put("monthly_spent", major(analytics.monthlySpentMinor, analytics.currency));
+                item.put("planned_count", analytics.plannedCount);
+                item.put("purchased_count", analytics.purchasedCount);
+                item.put("cancelled_count", analytics.cancelledCount);
+                if (analytics.topCategory != null) {
+                    item.put("top_category", analytics.topCategory);
+                }
+                JSArray breakdown = new JSArray();
+                for (AggregationEngine.CategoryTotal category : analytics.categoryBreakdown) {
+                    JSObject entry = new JSObject();
+                    entry.put("category", category.category);
+                    entry.put("total_spent", major(category.totalMinor, analytics.currency));
+                    entry.put("item_count", category.count);
+                    entry.put("percentage", category.percentage);
+                    breakdown.put(entry);
+                }
+                item.put("category_breakdown", breakdown);
+                byCurrency.put(item);
+            }
+            JSObject result = new JSObject();
+            result.put("byCurrency", byCurrency);
+            result.put("total_currencies", byCurrency.length());
+            call.resolve(result);
+        });
+    }
+
+    // { year, month, type: 'income' | 'expense' } -> { byCurrency: { USD: [{ category, total, count, percentage }] } }
+    @PluginMethod
+    public void getCategoryTotals(PluginCall call) {
+        int month = month(call);
+        int type = transactionType(call.getString("type", "expense"));
+        run(call, "getCategoryTotals", () -> {
+            JSObject byCurrency = new JSObject();
+            for (Map.Entry<String, List<AggregationEngine.CategoryTotal>> entry : engine.categoryTotals(month, type).entrySet()) {
+                JSArray categories = new JSArray();
+                for (AggregationEngine.CategoryTotal category : entry.getValue()) {
+                    JSObject item = new JSObject();
+                    item.put("category", category.category);
+                    item.put("total", major(category.totalMinor, entry.getKey()));
+                    item.put("count", category.count);
+                    item.put("percentage", category.percentage);
+                    categories.put(item);
+                }
+                byCurrency.put(entry.getKey(), categories);
+            }
+            JSObject result = new JSObject();
+            result.put("byCurrency", byCurrency);
+            call.resolve(result);
+        });
+    }
+
+    private interface Work {
+        void run() throws Exception;
+    }
+
+    private void run(PluginCall call, String method, Work work) {
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                work.run();
+            } catch (Exception e) {
+                Log.e(TAG, method + " failed", e);
+                call.reject(method + " failed: " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    private static void resolveCount(PluginCall call, int count) {
+        JSObject result = new JSObject();
+        result.put("count", count);
+        call.resolve(result);
+    }
+
+    private static int month(PluginCall call) {
+        return call.getInt("year", 1970) * 12 + call.getInt("month", 0);
+    }
+
+    // The engine keeps each currency in its own minor unit
+    private static double major(long minor, String currency) {
+        return AggregationEngine.toMajor(minor, currency);
+    }
+
+    private static int transactionType(String type) {
+        if ("income".equals(type)) {
+            return AggregationEngine.TYPE_INCOME;
+        }
+        return "expense".equals(type) ? AggregationEngine.TYPE_EXPENSE : AggregationEngine.TYPE_OTHER;
+    }
+
+    private static int purchaseStatus(String status) {
+        switch (status) {
+            case "planned":
+                return AggregationEngine.STATUS_PLANNED;
+            case "purchased":
+                return AggregationEngine.STATUS_PURCHASED;
+            case "cancelled":
+                return AggregationEngine.STATUS_CANCELLED;
+            default:
+                return AggregationEngine.STATUS_OTHER;
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.balanze.app;
+
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONObject;
+
+// Analytics events from the web layer go into a memory-mapped ring
+// (AnalyticsEventBuffer) and are uploaded by AnalyticsCollector in the
+// background: once a batch worth of bytes is waiting, at the latest
+// FLUSH_INTERVAL_MS after the oldest unsent event, when the app goes to the
+// background, and after a failure with exponential backoff. track() has no
+// result, so each call is one message over the bridge and nothing comes back.
+// Events tracked before configure() (or while offline) wait in the ring,
+// across restarts, until they can be sent.
+@CapacitorPlugin(name = "Analytics")
+public class AnalyticsPlugin extends Plugin {
+
+    private static final String TAG = "Analytics";
+    private static final long FLUSH_INTERVAL_MS = 30_000;
+
+    // Buffer appends; never waits on the network
+    private ExecutorService executor;
+    private ScheduledExecutorService flusher;
+    private volatile AnalyticsEventBuffer buffer;
+    private volatile AnalyticsCollector collector;
+    private ScheduledFuture<?> scheduledFlush;
+    private int failures;
+    // While a backoff runs, nothing is sent earlier except by flush()
+    private long retryAt;
+
+    @Override
+    public void load() {
+        super.load();
+        executor = Executors.newSingleThreadExecutor();
+        flusher = Executors.newSingleThreadScheduledExecutor();
+        File file = new File(new File(getContext().getFilesDir(), "analytics"), "events.ring");
+        executor.execute(() -> {
+            try {
+                buffer = new AnalyticsEventBuffer(file, AnalyticsEventBuffer.DEFAULT_CAPACITY);
+            } catch (Exception e) {
+                Log.e(TAG, "Could not open the analytics buffer, events are dropped", e);
+            }
+        });
+    }
+
+    // { endpoint, headers?: { name: value }, clientInfo?: object } -> { pending }
+    @PluginMethod
+    public void configure(PluginCall call) {
+        String endpoint = call.getString("endpoint");
+        if (endpoint == null || !(endpoint.startsWith("https://") || endpoint.startsWith("http://"))) {
+            call.reject("endpoint must be an absolute http(s) url");
+            return;
+        }
+        Map<String, String> headers = new LinkedHashMap<>();
+        JSObject headerObject = call.getObject("headers", new JSObject());
+        Iterator<String> names = headerObject.keys();
+        while (names.hasNext()) {
+            String name = names.next();
+            headers.put(name, headerObject.optString(name));
+        }
+        JSObject clientInfo = call.getObject("clientInfo");
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            collector = new AnalyticsCollector(endpoint, headers, clientInfo != null ? clientInfo.toString() : null);
+            synchronized (this) {
+                failures = 0;
+                retryAt = 0;
+            }
+            JSObject result = new JSObject();
+            result.put("pending", pendingCount());
+            call.resolve(result);
+            scheduleFlush(0);
+        }));
+    }
+
+    // { event: object } or { events: object[] }; fire and forget
+    @PluginMethod(returnType = PluginMethod.RETURN_NONE)
+    public void track(PluginCall call) {
+        JSObject event = call.getObject("event");
+        JSArray events = call.getArray("events");
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            AnalyticsEventBuffer current = buffer;
+            if (current == null) {
+                return;
+            }
+            try {
+                if (event != null) {
+                    append(current, event.toString());
+                }
+                if (events != null) {
+                    for (int i = 0; i < events.length(); i++) {
+                        JSONObject item = events.optJSONObject(i);
+                        if (item != null) {
+                            append(current, item.toString());
+                        }
+                    }
+                }
+            } catch (Exception e) {
+                Log.e(TAG, "track failed", e);
+            }
+            scheduleFlush(current.pendingBytes() >= AnalyticsCollector.DEFAULT_BATCH_BYTES ? 0 : FLUSH_INTERVAL_MS);
+        }));
+    }
+
+    // Sends now, skipping any running backoff -> { sent, rejected, remaining, error? }
+    @PluginMethod
+    public void flush(PluginCall call) {
+        flusher.execute(BridgeMetrics.timed(call, () -> {
+            JSObject result = new JSObject();
+            try {
+                AnalyticsCollector.FlushResult flushed = flushAll();
+                result.put("sent", flushed != null ? flushed.sent : 0);
+                result.put("rejected", flushed != null ? flushed.rejected : 0);
+            } catch (Exception e) {
+                result.put("sent", 0);
+                result.put("rejected", 0);
+                result.put("error", e.getMessage() != null ? e.getMessage() : e.toString());
+                scheduleFlush(FLUSH_INTERVAL_MS);
+            }
+            result.put("remaining", pendingCount());
+            call.resolve(result);
+        }));
+    }
+
+    // -> { pending, pendingBytes, dropped, configured }
+    @PluginMethod
+    public void getStatus(PluginCall call) {
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            AnalyticsEventBuffer current = buffer;
+            JSObject result = new JSObject();
+            result.put("pending", current != null ? current.size() : 0);
+            result.put("pendingBytes", current != null ? current.pendingBytes() : 0);
+            result.put("dropped", current != null ? current.dropped() : 0);
+            result.put("configured", collector != null);
+            call.resolve(result);
+        }));
+    }
+
+    // Drops unsent events, e.g. when the user opts out of analytics
+    @PluginMethod
+    public void clear(PluginCall call) {
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            AnalyticsEventBuffer current = buffer;
+            if (current != null) {
+                current.clear();
+            }
+            call.resolve();
+        }));
+    }
+
+    private void append(AnalyticsEventBuffer target, String event) {
+        if (!target.append(event)) {
+            Log.w(TAG, "Dropped an analytics event of " + event.length() + " chars, the limit is "
+                + target.maxEventBytes() + " bytes");
+        }
+    }
+
+    private synchronized void scheduleFlush(long delayMs) {
+        if (flusher.isShutdown() || collector == null) {
+            return;
+        }
+        delayMs = Math.max(delayMs, retryAt - System.currentTimeMillis());
+        // One that is already due may be the running flush rescheduling itself
+        if (scheduledFlush != null && !scheduledFlush.isDone() && scheduledFlush.getDelay(TimeUnit.MILLISECONDS) > 0) {
+            if (scheduledFlush.getDelay(TimeUnit.MILLISECONDS) <= delayMs) {
+                return;
+            }
+            scheduledFlush.cancel(false);
+        }
+        scheduledFlush = flusher.schedule(() -> {
+            try {
+                flushAll();
+            } catch (Exception e) {
+                long delay;
+                synchronized (this) {
+                    delay = WriteOutbox.backoff(++failures);
+                    retryAt = System.currentTimeMillis() + delay;
+                }
+                Log.w(TAG, "Analytics upload failed, " + pendingCount() + " events wait " + delay + " ms: "
+                    + e.getMessage());
+                scheduleFlush(delay);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Flusher thread; null when there is nothing to flush with
+    private AnalyticsCollector.FlushResult flushAll() throws Exception {
+        AnalyticsCollector current = collector;
+        AnalyticsEventBuffer target = buffer;
+        if (current == null || target == null) {
+            return null;
+        }
+        AnalyticsCollector.FlushResult result = current.flush(target,
+            AnalyticsCollector.DEFAULT_BATCH_EVENTS, AnalyticsCollector.DEFAULT_BATCH_BYTES);
+        synchronized (this) {
+            failures = 0;
+            retryAt = 0;
+        }
+        if (result.rejected > 0) {
+            Log.w(TAG, current.getEndpoint() + " refused " + result.rejected + " analytics events");
+        }
+        return result;
+    }
+
+    private int pendingCount() {
+        AnalyticsEventBuffer current = buffer;
+        return current != null ? current.size() : 0;
+    }
+
+    // The process may not come back; send what is there and force the rest to storage
+    @Override
+    protected void handleOnPause() {
+        super.handleOnPause();
+        executor.execute(() -> {
+            AnalyticsEventBuffer current = buffer;
+            if (current != null) {
+                current.sync();
+            }
+        });
+        scheduleFlush(0);
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        super.handleOnDestroy();
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
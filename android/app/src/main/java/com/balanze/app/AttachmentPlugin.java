@@ -0,0 +1,257 @@
+package com.balanze.app;
+
+import android.os.SystemClock;
+import android.util.Base64;
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Uploads purchase attachments to Supabase Storage natively: photos are
+// downscaled and recompressed first (ImageDownscaler), then sent with the
+// resumable tus protocol (ResumableUploader). The prepared file and its
+// upload url are kept under the uploadId until the upload finishes, so
+// calling upload again with the same uploadId after a failure (or after the
+// app was killed) only sends what the server does not have yet, to the
+// object path the upload was started with.
+// Progress goes out as "attachmentProgress" events.
+@CapacitorPlugin(name = "Attachments")
+public class AttachmentPlugin extends Plugin {
+
+    private static final String TAG = "Attachments";
+    private static final int DEFAULT_MAX_DIMENSION = 2048;
+    private static final long DEFAULT_TARGET_BYTES = 1_500_000;
+    private static final int DEFAULT_QUALITY = 85;
+    private static final long PROGRESS_MIN_INTERVAL_MS = 200;
+    // Supabase forgets unfinished uploads after a day
+    private static final long STALE_AFTER_MS = 24 * 60 * 60 * 1000L;
+
+    private ExecutorService executor;
+
+    @Override
+    public void load() {
+        super.load();
+        executor = Executors.newSingleThreadExecutor();
+        executor.execute(this::deleteStaleUploads);
+    }
+
+    // { data (base64), mimeType, bucket, path, accessToken, supabaseUrl, anonKey,
+    //   uploadId?, upsert?, maxDimension?, targetBytes?, quality? }
+    //   -> { uploadId, path, size, originalSize, mimeType, width, height, compressed }
+    @PluginMethod
+    public void upload(PluginCall call) {
+        String data = call.getString("data");
+        String mimeType = call.getString("mimeType", "application/octet-stream");
+        String bucket = call.getString("bucket");
+        String path = call.getString("path");
+        String accessToken = call.getString("accessToken");
+        String supabaseUrl = call.getString("supabaseUrl");
+        String anonKey = call.getString("anonKey");
+        if (bucket == null || path == null || accessToken == null || supabaseUrl == null || anonKey == null) {
+            call.reject("bucket, path, accessToken, supabaseUrl and anonKey are required");
+            return;
+        }
+        String uploadId = call.getString("uploadId", UUID.randomUUID().toString());
+        if (!uploadId.matches("[A-Za-z0-9_-]{1,128}")) {
+            call.reject("uploadId may only contain letters, digits, '_' and '-'");
+            return;
+        }
+        boolean upsert = call.getBoolean("upsert", false);
+        int maxDimension = call.getInt("maxDimension", DEFAULT_MAX_DIMENSION);
+        long targetBytes = call.getLong("targetBytes", DEFAULT_TARGET_BYTES);
+        int quality = call.getInt("quality", DEFAULT_QUALITY);
+
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            File dir = new File(getContext().getCacheDir(), "attachments");
+            File prepared = new File(dir, uploadId + ".upload");
+            File urlFile = new File(dir, uploadId + ".url");
+            File pathFile = new File(dir, uploadId + ".path");
+            try {
+                if (!dir.exists() && !dir.mkdirs()) {
+                    throw new IOException("Could not create " + dir);
+                }
+                JSObject result = new JSObject();
+                String objectPath = path;
+                if (!prepared.exists()) {
+                    if (data == null) {
+                        throw new IOException("data is required for a new upload");
+                    }
+                    emitProgress(uploadId, "preparing", 0, 0);
+                    result = prepare(dir, uploadId, data, mimeType, maxDimension, targetBytes, quality, prepared);
+                    writeText(pathFile, path);
+                } else {
+                    // Resuming: the file was prepared by an earlier call
+                    result.put("compressed", false);
+                    if (pathFile.exists()) {
+                        objectPath = readText(pathFile);
+                    }
+                }
+
+                Map<String, String> headers = new LinkedHashMap<>();
+                headers.put("Authorization", "Bearer " + accessToken);
+                headers.put("apikey", anonKey);
+                headers.put("x-upsert", Boolean.toString(upsert));
+                Map<String, String> metadata = new LinkedHashMap<>();
+                metadata.put("bucketName", bucket);
+                metadata.put("objectName", objectPath);
+                metadata.put("contentType", mimeType);
+                metadata.put("cacheControl", "3600");
+                String endpoint = (supabaseUrl.endsWith("/") ? supabaseUrl : supabaseUrl + "/")
+                    + "storage/v1/upload/resumable";
+
+                ResumableUploader uploader = new ResumableUploader(endpoint, headers,
+                    ResumableUploader.DEFAULT_CHUNK_SIZE, ResumableUploader.DEFAULT_MAX_ATTEMPTS, Thread::sleep);
+                String resumeUrl = urlFile.exists() ? readText(urlFile) : null;
+                long[] lastEmit = { 0 };
+                uploader.upload(prepared, metadata, resumeUrl, new ResumableUploader.Listener() {
+                    @Override
+                    public void onCreated(String uploadUrl) {
+                        writeText(urlFile, uploadUrl);
+                    }
+
+                    @Override
+                    public void onProgress(long sent, long total) {
+                        long now = SystemClock.elapsedRealtime();
+                        if (sent == total || now - lastEmit[0] >= PROGRESS_MIN_INTERVAL_MS) {
+                            lastEmit[0] = now;
+                            emitProgress(uploadId, "uploading", sent, total);
+                        }
+                    }
+                });
+
+                result.put("uploadId", uploadId);
+                result.put("path", objectPath);
+                result.put("size", prepared.length());
+                result.put("mimeType", mimeType);
+                deleteUpload(dir, uploadId);
+                call.resolve(result);
+            } catch (ResumableUploader.UploadRejectedException e) {
+                // Retrying will not help, so do not keep the upload around
+                Log.e(TAG, "Upload " + uploadId + " rejected", e);
+                deleteUpload(dir, uploadId);
+                call.reject("Upload rejected: " + e.getMessage(), String.valueOf(e.status), e);
+            } catch (Exception e) {
+                // Prepared file and upload url stay for a retry with the same uploadId
+                Log.e(TAG, "Upload " + uploadId + " failed", e);
+                call.reject("Upload failed: " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    // Forgets a pending upload the user gave up on
+    @PluginMethod
+    public void discard(PluginCall call) {
+        String uploadId = call.getString("uploadId");
+        if (uploadId == null || !uploadId.matches("[A-Za-z0-9_-]{1,128}")) {
+            call.reject("uploadId is required");
+            return;
+        }
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            deleteUpload(new File(getContext().getCacheDir(), "attachments"), uploadId);
+            call.resolve();
+        }));
+    }
+
+    private JSObject prepare(File dir, String uploadId, String data, String mimeType, int maxDimension,
+                             long targetBytes, int quality, File prepared) throws IOException {
+        File raw = new File(dir, uploadId + ".raw");
+        File scaled = new File(dir, uploadId + ".scaled");
+        try {
+            byte[] bytes = Base64.decode(data, Base64.DEFAULT);
+            try (OutputStream out = new FileOutputStream(raw)) {
+                out.write(bytes);
+            }
+            ImageDownscaler.Result image = ImageDownscaler.downscale(
+                raw, mimeType, scaled, maxDimension, targetBytes, quality);
+            // Renamed into place last, so an existing .upload is always complete
+            if (!image.file.renameTo(prepared)) {
+                throw new IOException("Could not move " + image.file);
+            }
+            JSObject result = new JSObject();
+            result.put("originalSize", bytes.length);
+            result.put("compressed", image.reencoded);
+            if (image.width > 0) {
+                result.put("width", image.width);
+                result.put("height", image.height);
+            }
+            return result;
+        } finally {
+            raw.delete();
+            scaled.delete();
+        }
+    }
+
+    private static void deleteUpload(File dir, String uploadId) {
+        new File(dir, uploadId + ".upload").delete();
+        new File(dir, uploadId + ".url").delete();
+        new File(dir, uploadId + ".path").delete();
+    }
+
+    private void emitProgress(String uploadId, String phase, long sent, long total) {
+        JSObject event = new JSObject();
+        event.put("uploadId", uploadId);
+        event.put("phase", phase);
+        event.put("sent", sent);
+        event.put("total", total);
+        NativeEventBus.getInstance().emit("attachmentProgress", event.toString());
+    }
+
+    private static String readText(File file) throws IOException {
+        byte[] bytes = new byte[(int) file.length()];
+        try (InputStream in = new FileInputStream(file)) {
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    break;
+                }
+                read += n;
+            }
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeText(File file, String text) {
+        try (OutputStream out = new FileOutputStream(file)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            // Only resuming after a restart is affected
+            Log.w(TAG, "Could not keep upload url", e);
+        }
+    }
+
+    private void deleteStaleUploads() {
+        File[] files = new File(getContext().getCacheDir(), "attachments").listFiles();
+        if (files == null) {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - STALE_AFTER_MS;
+        for (File file : files) {
+            if (file.lastModified() < cutoff) {
+                file.delete();
+            }
+        }
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        super.handleOnDestroy();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.balanze.app;
+
+import android.app.Application;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+import android.webkit.WebSettings;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Starts the work MainActivity will block on, in parallel, before the activity
+// exists: loading the WebView provider (the most expensive part of creating
+// the first WebView) and opening the native stores the plugins and WebView
+// client use. Each task only warms a singleton, so if the activity gets there
+// first it simply waits on the same lock instead of doing the work twice.
+public class BalanzeApplication extends Application {
+
+    private static final String TAG = "BalanzeApplication";
+
+    private static volatile long createdAt = -1;
+
+    // elapsedRealtime of Application.onCreate, or -1 if it has not run
+    static long createdAt() {
+        return createdAt;
+    }
+
+    @Override
+    public void onCreate() {
+        createdAt = SystemClock.elapsedRealtime();
+        Trace.beginSection(StartupTrace.PHASE_PREFIX + "application");
+        super.onCreate();
+        // Trim callbacks reach the application even while no activity exists
+        MemoryPressureCoordinator.getInstance().install(this);
+
+        ExecutorService warmup = Executors.newFixedThreadPool(2, runnable -> {
+            Thread thread = new Thread(runnable, "StartupWarmup");
+            thread.setDaemon(true);
+            return thread;
+        });
+        warmup.execute(this::warmUpWebView);
+        warmup.execute(this::warmUpStores);
+        // Threads exit once both tasks are done
+        warmup.shutdown();
+
+        Trace.endSection();
+    }
+
+    private void warmUpWebView() {
+        Trace.beginSection(StartupTrace.PHASE_PREFIX + "webviewWarmup");
+        try {
+            // Loads and initializes the WebView provider package
+            WebSettings.getDefaultUserAgent(this);
+        } catch (Exception e) {
+            // No usable WebView yet (e.g. mid-update); the activity will report it
+            Log.w(TAG, "WebView warm-up failed", e);
+        } finally {
+            Trace.endSection();
+        }
+    }
+
+    private void warmUpStores() {
+        Trace.beginSection(StartupTrace.PHASE_PREFIX + "storeWarmup");
+        try {
+            LedgerDatabase.getInstance(this).getWritableDatabase();
+            ConsoleLogPipeline.getInstance(this);
+            CachingWebViewClient.sharedCache(this);
+            KeyValueStore.getInstance(this);
+        } catch (Exception e) {
+            Log.w(TAG, "Store warm-up failed", e);
+        } finally {
+            Trace.endSection();
+        }
+    }
+}
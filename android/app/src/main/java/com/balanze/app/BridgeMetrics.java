@@ -0,0 +1,283 @@
+package com.balanze.app;
+
+import com.getcapacitor.PluginCall;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Per-method statistics for every call crossing the WebView bridge: call
+// count, request payload size, time spent waiting for the plugin's worker
+// (queue) and time spent running (execution). Plugin work handed to an
+// executor is wrapped with timed(); methods that finish on the calling
+// thread and @JavascriptInterface entry points record their own time.
+// Values go into fixed log-linear histograms of atomic counters, lock-free.
+// The costs are bounded so it can stay on in production builds: timed()
+// allocates one wrapper per call, and the request payload, which has to be
+// walked, is only sized on one plugin call in PAYLOAD_SAMPLE_RATE. Exposed
+// through BridgeMetricsPlugin and
+// `adb shell dumpsys activity com.balanze.app/.MainActivity`.
+public class BridgeMetrics {
+
+    // Eight linear sub-buckets per power of two keep percentiles within 12.5%
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40;
+    static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    // Plugin calls whose payload is sized: the first of every method, then one in this many
+    static final int PAYLOAD_SAMPLE_RATE = 16;
+
+    private static BridgeMetrics instance;
+
+    // Fixed-size histogram of non-negative values
+    public static final class Histogram {
+        private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+        private final AtomicLong count = new AtomicLong();
+        private final AtomicLong sum = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        public void record(long value) {
+            if (value < 0) {
+                value = 0;
+            }
+            counts.incrementAndGet(bucket(value));
+            count.incrementAndGet();
+            sum.addAndGet(value);
+            long current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                // retry
+            }
+        }
+
+        public long count() {
+            return count.get();
+        }
+
+        public long max() {
+            return max.get();
+        }
+
+        public double mean() {
+            long n = count.get();
+            return n == 0 ? 0 : (double) sum.get() / n;
+        }
+
+        // Upper bound of the bucket holding the given quantile (0..1), capped at the maximum
+        public long percentile(double quantile) {
+            long n = count.get();
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(quantile * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                seen += counts.get(i);
+                if (seen >= rank) {
+                    return Math.min(lowerBound(i + 1) - 1, max.get());
+                }
+            }
+            return max.get();
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKET_COUNT; i++) {
+                counts.set(i, 0);
+            }
+            count.set(0);
+            sum.set(0);
+            max.set(0);
+        }
+    }
+
+    public static final class MethodStats {
+        public final String target;
+        public final String method;
+        // Approximate JSON size of the request, in characters; sampled for plugin calls
+        public final Histogram payloadBytes = new Histogram();
+        public final Histogram queueMicros = new Histogram();
+        public final Histogram executionMicros = new Histogram();
+
+        MethodStats(String target, String method) {
+            this.target = target;
+            this.method = method;
+        }
+
+        public long calls() {
+            return executionMicros.count();
+        }
+    }
+
+    // target (plugin or JS interface name) -> method -> stats
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, MethodStats>> targets =
+        new ConcurrentHashMap<>();
+
+    public static synchronized BridgeMetrics getInstance() {
+        if (instance == null) {
+            instance = new BridgeMetrics();
+        }
+        return instance;
+    }
+
+    public static long now() {
+        return System.nanoTime();
+    }
+
+    // Wraps plugin work submitted to an executor. Queue time runs from this
+    // call (on the plugin thread) to the start of the task; a sampled payload
+    // is measured after the task, on the worker.
+    public static Runnable timed(PluginCall call, Runnable task) {
+        long submittedAt = now();
+        return () -> {
+            long startedAt = now();
+            try {
+                task.run();
+            } finally {
+                long finishedAt = now();
+                getInstance().record(call, startedAt - submittedAt, finishedAt - startedAt);
+            }
+        };
+    }
+
+    // For plugin methods that finish on the calling thread
+    public static void finished(PluginCall call, long startedAt) {
+        long elapsed = now() - startedAt;
+        getInstance().record(call, 0, elapsed);
+    }
+
+    void record(PluginCall call, long queueNanos, long executionNanos) {
+        MethodStats stats = stats(call.getPluginId(), call.getMethodName());
+        if (stats.executionMicros.count() % PAYLOAD_SAMPLE_RATE == 0) {
+            stats.payloadBytes.record(payloadSize(call.getData()));
+        }
+        stats.queueMicros.record(queueNanos / 1000);
+        stats.executionMicros.record(executionNanos / 1000);
+    }
+
+    public void record(String target, String method, long payloadBytes, long queueNanos, long executionNanos) {
+        MethodStats stats = stats(target, method);
+        stats.payloadBytes.record(payloadBytes);
+        stats.queueMicros.record(queueNanos / 1000);
+        stats.executionMicros.record(executionNanos / 1000);
+    }
+
+    public MethodStats stats(String target, String method) {
+        String targetKey = target != null ? target : "?";
+        String methodKey = method != null ? method : "?";
+        ConcurrentHashMap<String, MethodStats> methods = targets.get(targetKey);
+        if (methods == null) {
+            methods = targets.computeIfAbsent(targetKey, key -> new ConcurrentHashMap<>());
+        }
+        MethodStats stats = methods.get(methodKey);
+        if (stats == null) {
+            stats = methods.computeIfAbsent(methodKey, key -> new MethodStats(targetKey, key));
+        }
+        return stats;
+    }
+
+    // Every method seen so far, slowest p99 execution first
+    public List<MethodStats> snapshot() {
+        List<MethodStats> all = new ArrayList<>();
+        for (Map<String, MethodStats> methods : targets.values()) {
+            all.addAll(methods.values());
+        }
+        all.sort((a, b) -> Long.compare(b.executionMicros.percentile(0.99), a.executionMicros.percentile(0.99)));
+        return all;
+    }
+
+    public void reset() {
+        for (Map<String, MethodStats> methods : targets.values()) {
+            for (MethodStats stats : methods.values()) {
+                stats.payloadBytes.reset();
+                stats.queueMicros.reset();
+                stats.executionMicros.reset();
+            }
+        }
+    }
+
+    // Text table for dumpsys and logcat; times in milliseconds
+    public String format() {
+        StringBuilder out = new StringBuilder();
+        out.append(String.format(Locale.US, "%-40s %7s %9s %9s %9s %9s %9s %9s%n",
+            "method", "calls", "queue50", "queue99", "exec50", "exec99", "execMax", "payload99"));
+        for (MethodStats stats : snapshot()) {
+            if (stats.calls() == 0) {
+                continue;
+            }
+            out.append(String.format(Locale.US, "%-40s %7d %9.2f %9.2f %9.2f %9.2f %9.2f %9d%n",
+                stats.target + "." + stats.method,
+                stats.calls(),
+                stats.queueMicros.percentile(0.5) / 1000.0,
+                stats.queueMicros.percentile(0.99) / 1000.0,
+                stats.executionMicros.percentile(0.5) / 1000.0,
+                stats.executionMicros.percentile(0.99) / 1000.0,
+                stats.executionMicros.max() / 1000.0,
+                stats.payloadBytes.percentile(0.99)));
+        }
+        return out.toString();
+    }
+
+    // Log-linear bucket: values below 8 get their own bucket, above that each
+    // power of two is split into eight equal parts
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        if (bucket >= BUCKET_COUNT) {
+            return Long.MAX_VALUE;
+        }
+        int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = bucket % SUB_BUCKETS;
+        return (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+    }
+
+    // Length the value would have as JSON, without building the string
+    static long payloadSize(Object value) {
+        if (value == null || value == JSONObject.NULL) {
+            return 4;
+        }
+        if (value instanceof String) {
+            return ((String) value).length() + 2;
+        }
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            long size = 2 + Math.max(0, object.length() - 1);
+            Iterator<String> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                size += key.length() + 3 + payloadSize(object.opt(key));
+            }
+            return size;
+        }
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            long size = 2 + Math.max(0, array.length() - 1);
+            for (int i = 0; i < array.length(); i++) {
+                size += payloadSize(array.opt(i));
+            }
+            return size;
+        }
+        if (value instanceof Boolean) {
+            return (Boolean) value ? 4 : 5;
+        }
+        // Numbers: close enough without formatting them
+        return 8;
+    }
+}
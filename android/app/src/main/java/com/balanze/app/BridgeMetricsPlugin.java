@@ -0,0 +1,71 @@
+package com.balanze.app;
+
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+// Read side of BridgeMetrics: per-method bridge statistics for the web
+// layer (e.g. a diagnostics screen) and a logcat dump on demand.
+@CapacitorPlugin(name = "BridgeMetrics")
+public class BridgeMetricsPlugin extends Plugin {
+
+    private static final String TAG = "BridgeMetrics";
+
+    // -> { methods: [{ target, method, calls, payloadBytes, queueMs, executionMs }] },
+    //    slowest p99 execution first; each histogram as { mean, p50, p90, p99, max }
+    @PluginMethod
+    public void getSnapshot(PluginCall call) {
+        long startedAt = BridgeMetrics.now();
+        JSArray methods = new JSArray();
+        for (BridgeMetrics.MethodStats stats : BridgeMetrics.getInstance().snapshot()) {
+            if (stats.calls() == 0) {
+                continue;
+            }
+            JSObject entry = new JSObject();
+            entry.put("target", stats.target);
+            entry.put("method", stats.method);
+            entry.put("calls", stats.calls());
+            entry.put("payloadBytes", summary(stats.payloadBytes, 1));
+            entry.put("queueMs", summary(stats.queueMicros, 1000));
+            entry.put("executionMs", summary(stats.executionMicros, 1000));
+            methods.put(entry);
+        }
+        JSObject result = new JSObject();
+        result.put("methods", methods);
+        call.resolve(result);
+        BridgeMetrics.finished(call, startedAt);
+    }
+
+    @PluginMethod
+    public void reset(PluginCall call) {
+        long startedAt = BridgeMetrics.now();
+        BridgeMetrics.getInstance().reset();
+        call.resolve();
+        BridgeMetrics.finished(call, startedAt);
+    }
+
+    // Writes the table to logcat (tag BridgeMetrics)
+    @PluginMethod
+    public void dump(PluginCall call) {
+        long startedAt = BridgeMetrics.now();
+        for (String line : BridgeMetrics.getInstance().format().split("\n")) {
+            Log.i(TAG, line);
+        }
+        call.resolve();
+        BridgeMetrics.finished(call, startedAt);
+    }
+
+    private static JSObject summary(BridgeMetrics.Histogram histogram, double divisor) {
+        JSObject summary = new JSObject();
+        summary.put("mean", histogram.mean() / divisor);
+        summary.put("p50", histogram.percentile(0.5) / divisor);
+        summary.put("p90", histogram.percentile(0.9) / divisor);
+        summary.put("p99", histogram.percentile(0.99) / divisor);
+        summary.put("max", histogram.max() / divisor);
+        return summary;
+    }
+}
@@ -0,0 +1,105 @@
+package com.balanze.app;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.webkit.JavascriptInterface;
+import android.webkit.WebView;
+import androidx.webkit.WebMessageCompat;
+import androidx.webkit.WebMessagePortCompat;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+
+// Delivers ColumnarEncoder batches to the page as ArrayBuffers over a
+// dedicated WebMessagePort, next to the JSON event channel. An ArrayBuffer
+// message is copied into the page once and never parsed, unlike a plugin
+// result, which is serialized to a JSON string and parsed again in JS.
+// The page (src/lib/nativeBulkTransfer.ts) calls BalanzeBulkTransfer.ready()
+// once it is listening; like WebViewEventChannel, every ready() opens a
+// fresh channel. Needs a WebView with ArrayBuffer messaging (WebView 114+);
+// without it the interface is not installed and callers fall back to JSON.
+public class BulkTransferChannel {
+
+    private static final String TAG = "BulkTransfer";
+    static final String INTERFACE_NAME = "BalanzeBulkTransfer";
+    static final String HANDSHAKE_MESSAGE = "balanze-bulk-transfer";
+
+    private static BulkTransferChannel instance;
+
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private WebView webView;
+    private Uri targetOrigin;
+    private volatile WebMessagePortCompat port;
+
+    public static synchronized BulkTransferChannel getInstance() {
+        if (instance == null) {
+            instance = new BulkTransferChannel();
+        }
+        return instance;
+    }
+
+    public static boolean isSupported() {
+        return WebViewFeature.isFeatureSupported(WebViewFeature.CREATE_WEB_MESSAGE_CHANNEL)
+            && WebViewFeature.isFeatureSupported(WebViewFeature.POST_WEB_MESSAGE)
+            && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_POST_MESSAGE)
+            && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_PORT_CLOSE)
+            && WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_ARRAY_BUFFER);
+    }
+
+    // Main thread, once the bridge's WebView exists
+    public void install(WebView webView, String targetOrigin) {
+        if (!isSupported()) {
+            Log.i(TAG, "WebView cannot post ArrayBuffers, bulk transfer disabled");
+            return;
+        }
+        this.webView = webView;
+        this.targetOrigin = Uri.parse(targetOrigin);
+        webView.addJavascriptInterface(this, INTERFACE_NAME);
+    }
+
+    // Runs on the WebView's JavaBridge thread
+    @JavascriptInterface
+    public void ready() {
+        long startedAt = BridgeMetrics.now();
+        mainHandler.post(this::connect);
+        BridgeMetrics.getInstance().record(INTERFACE_NAME, "ready", 0, 0, BridgeMetrics.now() - startedAt);
+    }
+
+    public boolean isConnected() {
+        return port != null;
+    }
+
+    // Any thread. False when no page is listening; the batch is then dropped.
+    public boolean send(byte[] batch) {
+        if (port == null) {
+            return false;
+        }
+        mainHandler.post(() -> {
+            WebMessagePortCompat current = port;
+            if (current == null) {
+                Log.w(TAG, "Page went away, dropped a " + batch.length + " byte batch");
+                return;
+            }
+            current.postMessage(new WebMessageCompat(batch));
+        });
+        return true;
+    }
+
+    private void connect() {
+        WebMessagePortCompat previous = port;
+        port = null;
+        if (previous != null) {
+            previous.close();
+        }
+        try {
+            WebMessagePortCompat[] channel = WebViewCompat.createWebMessageChannel(webView);
+            // Only a page from the app's own origin receives the other end
+            WebViewCompat.postWebMessage(webView,
+                new WebMessageCompat(HANDSHAKE_MESSAGE, new WebMessagePortCompat[] { channel[1] }), targetOrigin);
+            port = channel[0];
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Could not open the bulk transfer channel", e);
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.balanze.app;
+
+import android.content.Context;
+import android.net.Uri;
+import android.util.Log;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+import android.webkit.WebView;
+import com.getcapacitor.Bridge;
+import com.getcapacitor.BridgeWebViewClient;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Serves allowlisted API GETs from HttpResponseCache. Everything else,
+// including the bundled app assets, goes to Capacitor's own handling.
+// Requests the cache cannot answer fall back to the WebView's network stack.
+public class CachingWebViewClient extends BridgeWebViewClient {
+
+    private static final String TAG = "CachingWebViewClient";
+
+    private static final String SUPABASE_REST = "https://xgncksougafnfbtusfnf.supabase.co/rest/v1/";
+    private static final long MAX_MEMORY_BYTES = 2 * 1024 * 1024;
+    private static final long MAX_DISK_BYTES = 10 * 1024 * 1024;
+
+    // Slow-changing reference data only; user-edited tables are also
+    // invalidated by any POST/PATCH/DELETE the app sends to them
+    static final List<HttpResponseCache.Rule> RULES = Arrays.asList(
+        new HttpResponseCache.Rule("categories", SUPABASE_REST + "categories", 60_000),
+        new HttpResponseCache.Rule("purchase_categories", SUPABASE_REST + "purchase_categories", 60_000),
+        new HttpResponseCache.Rule("investment_categories", SUPABASE_REST + "investment_categories", 60_000),
+        new HttpResponseCache.Rule("exchange_rates", "https://api.exchangerate-api.com/v4/latest/", 60 * 60_000)
+    );
+
+    private static HttpResponseCache sharedCache;
+
+    private final HttpResponseCache cache;
+    private final String origin;
+
+    public static synchronized HttpResponseCache sharedCache(Context context) {
+        if (sharedCache == null) {
+            File directory = new File(context.getApplicationContext().getCacheDir(), "http");
+            sharedCache = new HttpResponseCache(directory, RULES, MAX_MEMORY_BYTES, MAX_DISK_BYTES,
+                System::currentTimeMillis);
+        }
+        return sharedCache;
+    }
+
+    public CachingWebViewClient(Bridge bridge) {
+        super(bridge);
+        cache = sharedCache(bridge.getContext());
+        Uri localUrl = Uri.parse(bridge.getLocalUrl());
+        origin = localUrl.getScheme() + "://" + localUrl.getAuthority();
+    }
+
+    @Override
+    public WebResourceResponse shouldInterceptRequest(WebView view, WebResourceRequest request) {
+        String url = request.getUrl().toString();
+        String method = request.getMethod();
+        if (!"GET".equalsIgnoreCase(method)) {
+            if (!"OPTIONS".equalsIgnoreCase(method) && !"HEAD".equalsIgnoreCase(method)) {
+                cache.invalidate(url);
+            }
+            return super.shouldInterceptRequest(view, request);
+        }
+        if (!cache.isCacheable(url)) {
+            return super.shouldInterceptRequest(view, request);
+        }
+
+        Map<String, String> headers = new HashMap<>(request.getRequestHeaders());
+        if (!headers.containsKey("Origin") && !headers.containsKey("origin")) {
+            headers.put("Origin", origin);
+        }
+        try {
+            HttpResponseCache.Response response = cache.get(url, headers);
+            // WebResourceResponse rejects 3xx statuses
+            if (response == null || (response.status >= 300 && response.status < 400)) {
+                return super.shouldInterceptRequest(view, request);
+            }
+            return toWebResourceResponse(response);
+        } catch (IOException e) {
+            Log.w(TAG, "Cache fetch failed for " + url + ", handing back to the WebView", e);
+            return super.shouldInterceptRequest(view, request);
+        }
+    }
+
+    private WebResourceResponse toWebResourceResponse(HttpResponseCache.Response response) {
+        String mimeType = "application/octet-stream";
+        String encoding = null;
+        String contentType = response.headers.get("Content-Type");
+        if (contentType != null) {
+            String[] parts = contentType.split(";");
+            mimeType = parts[0].trim();
+            for (int i = 1; i < parts.length; i++) {
+                String part = parts[i].trim();
+                if (part.toLowerCase().startsWith("charset=")) {
+                    encoding = part.substring("charset=".length()).replace("\"", "");
+                }
+            }
+        }
+        Map<String, String> headers = new HashMap<>(response.headers);
+        // The request was made natively, so the page only sees CORS headers we hand it
+        if (!response.headers.containsKey("Access-Control-Allow-Origin")) {
+            headers.put("Access-Control-Allow-Origin", origin);
+        }
+        headers.put("X-Balanze-Cache", response.source);
+        return new WebResourceResponse(mimeType, encoding, response.status, response.reason, headers,
+            new ByteArrayInputStream(response.body));
+    }
+}
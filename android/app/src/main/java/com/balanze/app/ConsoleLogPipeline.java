@@ -0,0 +1,246 @@
+package com.balanze.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.os.Process;
+import android.util.Log;
+import android.webkit.ConsoleMessage;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// WebView console output, moved off the UI thread. onConsoleMessage only
+// copies the message into a lock-free ring buffer; a background thread
+// applies the per-level limits of the build's policy and writes the survivors
+// to logcat and, when enabled, to a rotating file in filesDir/logs that can
+// be exported for bug reports. While the buffer is empty that thread sleeps
+// until offer() wakes it.
+public class ConsoleLogPipeline {
+
+    private static final String TAG = "WebView";
+    private static final String PREFS = "console_log";
+    private static final String PREF_FILE_ENABLED = "file_enabled";
+
+    static final String POLICY_VERBOSE = "verbose";
+    static final String POLICY_PRODUCTION = "production";
+
+    private static final int BUFFER_CAPACITY = 4096;
+    private static final int DRAIN_BATCH = 256;
+    private static final long REPORT_INTERVAL_MS = 5_000;
+    private static final long MAX_FILE_BYTES = 512 * 1024;
+    private static final int MAX_FILES = 3;
+
+    private static ConsoleLogPipeline instance;
+
+    private final LogRingBuffer buffer = new LogRingBuffer(BUFFER_CAPACITY);
+    private final AtomicLong overflowed = new AtomicLong();
+    private final LogRateLimiter limiter = new LogRateLimiter();
+    private final SharedPreferences prefs;
+    private final Object fileLock = new Object();
+    private final RotatingLogFile file;
+    private final SimpleDateFormat timestamp = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US);
+    private final Thread drainThread;
+    private volatile boolean fileEnabled;
+    // Set while the drain thread is asleep or about to be
+    private volatile boolean drainWaiting;
+    // Drain thread only
+    private long lastReportAt;
+    private boolean dropsPending;
+
+    public static synchronized ConsoleLogPipeline getInstance(Context context) {
+        if (instance == null) {
+            instance = new ConsoleLogPipeline(context.getApplicationContext(), BuildConfig.CONSOLE_LOG_POLICY);
+        }
+        return instance;
+    }
+
+    private ConsoleLogPipeline(Context context, String policy) {
+        prefs = context.getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+        file = new RotatingLogFile(new File(context.getFilesDir(), "logs"), "console", MAX_FILE_BYTES, MAX_FILES);
+        timestamp.setTimeZone(TimeZone.getTimeZone("UTC"));
+        boolean fileDefault = applyPolicy(limiter, policy);
+        fileEnabled = prefs.getBoolean(PREF_FILE_ENABLED, fileDefault);
+
+        drainThread = new Thread(this::drainLoop, "ConsoleLogDrain");
+        drainThread.setDaemon(true);
+        drainThread.start();
+    }
+
+    // Configures the limiter for a build policy; returns whether file logging defaults to on
+    static boolean applyPolicy(LogRateLimiter limiter, String policy) {
+        if (POLICY_PRODUCTION.equals(policy)) {
+            limiter.setRule(Log.DEBUG, 1, 0);
+            limiter.setRule(Log.INFO, 10, 5);
+            limiter.setRule(Log.WARN, 1, 10);
+            limiter.setRule(Log.ERROR, 1, 20);
+            return false;
+        }
+        return true;
+    }
+
+    // UI thread: one CAS, no formatting, no I/O; an unpark only when the drain thread sleeps
+    public void offer(ConsoleMessage message) {
+        if (!buffer.offer(priorityOf(message.messageLevel()), message.message(),
+                message.sourceId(), message.lineNumber(), System.currentTimeMillis())) {
+            overflowed.incrementAndGet();
+        }
+        if (drainWaiting) {
+            LockSupport.unpark(drainThread);
+        }
+    }
+
+    public boolean isFileEnabled() {
+        return fileEnabled;
+    }
+
+    public void setFileEnabled(boolean enabled) {
+        fileEnabled = enabled;
+        prefs.edit().putBoolean(PREF_FILE_ENABLED, enabled).apply();
+        if (!enabled) {
+            synchronized (fileLock) {
+                try {
+                    file.deleteAll();
+                } catch (IOException e) {
+                    Log.w(TAG, "Could not delete console logs", e);
+                }
+            }
+        }
+    }
+
+    // Copies the retained log files, oldest first, into target
+    public void exportTo(File target) throws IOException {
+        synchronized (fileLock) {
+            try (OutputStream out = new FileOutputStream(target)) {
+                file.exportTo(out);
+            }
+        }
+    }
+
+    static int priorityOf(ConsoleMessage.MessageLevel level) {
+        if (level == null) {
+            return Log.INFO;
+        }
+        switch (level) {
+            case ERROR:
+                return Log.ERROR;
+            case WARNING:
+                return Log.WARN;
+            case DEBUG:
+                return Log.DEBUG;
+            default:
+                return Log.INFO;
+        }
+    }
+
+    private void drainLoop() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        while (true) {
+            int drained;
+            synchronized (fileLock) {
+                drained = buffer.drain(this::write, DRAIN_BATCH);
+                if (drained == 0) {
+                    flushFile();
+                }
+            }
+            reportDrops();
+            if (drained == 0) {
+                awaitEntries();
+            }
+        }
+    }
+
+    // Sleeps until offer() publishes an entry. Drops that still have to be
+    // summarized cut the sleep short at the next report time.
+    private void awaitEntries() {
+        drainWaiting = true;
+        if (buffer.isEmpty()) {
+            if (dropsPending || overflowed.get() > 0) {
+                long untilReport = REPORT_INTERVAL_MS - (System.currentTimeMillis() - lastReportAt);
+                LockSupport.parkNanos(this, Math.max(1, untilReport) * 1_000_000L);
+            } else {
+                LockSupport.park(this);
+            }
+        }
+        drainWaiting = false;
+    }
+
+    private void write(LogRingBuffer.Entry entry) {
+        if (!limiter.allow(entry.priority, entry.timeMillis)) {
+            dropsPending = true;
+            return;
+        }
+        Log.println(entry.priority, TAG, entry.message + " -- From line " + entry.line + " of " + entry.source);
+        if (fileEnabled) {
+            appendToFile(entry.timeMillis, entry.priority, entry.message + " (" + entry.source + ":" + entry.line + ")");
+        }
+    }
+
+    // Summarizes what the limiter and a full buffer threw away, at most every few seconds
+    private void reportDrops() {
+        long now = System.currentTimeMillis();
+        if (now - lastReportAt < REPORT_INTERVAL_MS) {
+            return;
+        }
+        lastReportAt = now;
+        dropsPending = false;
+        StringBuilder summary = new StringBuilder();
+        for (int priority = Log.VERBOSE; priority <= Log.ASSERT; priority++) {
+            long suppressed = limiter.takeSuppressed(priority);
+            if (suppressed > 0) {
+                summary.append(' ').append(levelName(priority)).append('=').append(suppressed);
+            }
+        }
+        long lost = overflowed.getAndSet(0);
+        if (lost > 0) {
+            summary.append(" overflow=").append(lost);
+        }
+        if (summary.length() > 0) {
+            String line = "Dropped console messages:" + summary;
+            Log.w(TAG, line);
+            if (fileEnabled) {
+                synchronized (fileLock) {
+                    appendToFile(now, Log.WARN, line);
+                }
+            }
+        }
+    }
+
+    private void appendToFile(long timeMillis, int priority, String text) {
+        try {
+            file.appendLine(timestamp.format(new Date(timeMillis)) + " " + levelName(priority) + " " + text);
+        } catch (IOException e) {
+            Log.w(TAG, "Console log file disabled after write failure", e);
+            fileEnabled = false;
+        }
+    }
+
+    private void flushFile() {
+        try {
+            file.flush();
+        } catch (IOException e) {
+            Log.w(TAG, "Could not flush console log file", e);
+        }
+    }
+
+    private static String levelName(int priority) {
+        switch (priority) {
+            case Log.ERROR:
+                return "E";
+            case Log.WARN:
+                return "W";
+            case Log.INFO:
+                return "I";
+            case Log.DEBUG:
+                return "D";
+            default:
+                return "V";
+        }
+    }
+}
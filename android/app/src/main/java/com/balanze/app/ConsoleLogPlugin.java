@@ -0,0 +1,95 @@
+package com.balanze.app;
+
+import android.net.Uri;
+import android.util.Log;
+import androidx.core.content.FileProvider;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.io.File;
+import java.io.IOException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Lets the web app turn the on-device console log file on or off and export
+// it (cacheDir/exports, shared through the FileProvider) for bug reports.
+@CapacitorPlugin(name = "ConsoleLog")
+public class ConsoleLogPlugin extends Plugin {
+
+    private static final String TAG = "ConsoleLogPlugin";
+
+    private ConsoleLogPipeline pipeline;
+    private ExecutorService executor;
+
+    @Override
+    public void load() {
+        super.load();
+        pipeline = ConsoleLogPipeline.getInstance(getContext());
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @PluginMethod
+    public void setFileLogging(PluginCall call) {
+        long startedAt = BridgeMetrics.now();
+        Boolean enabled = call.getBoolean("enabled");
+        if (enabled == null) {
+            call.reject("enabled is required");
+            return;
+        }
+        pipeline.setFileEnabled(enabled);
+        JSObject result = new JSObject();
+        result.put("enabled", enabled);
+        call.resolve(result);
+        BridgeMetrics.finished(call, startedAt);
+    }
+
+    @PluginMethod
+    public void getStatus(PluginCall call) {
+        long startedAt = BridgeMetrics.now();
+        JSObject result = new JSObject();
+        result.put("fileLogging", pipeline.isFileEnabled());
+        result.put("policy", BuildConfig.CONSOLE_LOG_POLICY);
+        call.resolve(result);
+        BridgeMetrics.finished(call, startedAt);
+    }
+
+    @PluginMethod
+    public void exportLogs(PluginCall call) {
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            File dir = new File(getContext().getCacheDir(), "exports");
+            String filename = "console-" + new SimpleDateFormat("yyyyMMdd-HHmmss", Locale.US).format(new Date()) + ".log";
+            File file = new File(dir, filename);
+            try {
+                if (!dir.exists() && !dir.mkdirs()) {
+                    throw new IOException("Could not create " + dir);
+                }
+                pipeline.exportTo(file);
+                Uri uri = FileProvider.getUriForFile(getContext(), getContext().getPackageName() + ".fileprovider", file);
+
+                JSObject result = new JSObject();
+                result.put("filename", filename);
+                result.put("path", file.getAbsolutePath());
+                result.put("uri", uri.toString());
+                result.put("bytes", file.length());
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Console log export failed", e);
+                file.delete();
+                call.reject("Export failed: " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        super.handleOnDestroy();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
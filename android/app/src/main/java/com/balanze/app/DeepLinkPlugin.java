@@ -0,0 +1,50 @@
+package com.balanze.app;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// The page's side of DeepLinkRouter: the link that started the app (or
+// arrived before the page listened for "authDeepLink" events), and the
+// report that closes a link's link-to-authenticated timing.
+@CapacitorPlugin(name = "DeepLinks")
+public class DeepLinkPlugin extends Plugin {
+
+    // -> { link: <authDeepLink event> | null }
+    @PluginMethod
+    public void getPending(PluginCall call) {
+        long startedAt = BridgeMetrics.now();
+        JSObject result = new JSObject();
+        try {
+            JSONObject link = DeepLinkRouter.getInstance().takePending();
+            result.put("link", link != null ? JSObject.fromJSONObject(link) : JSONObject.NULL);
+        } catch (JSONException e) {
+            call.reject("Pending link is not valid JSON", e);
+            return;
+        }
+        call.resolve(result);
+        BridgeMetrics.finished(call, startedAt);
+    }
+
+    // { linkId, outcome: "authenticated" | <error>, pageMs? } -> { latencyMs },
+    // -1 when the link was already reported
+    @PluginMethod
+    public void reportAuthenticated(PluginCall call) {
+        long startedAt = BridgeMetrics.now();
+        Integer linkId = call.getInt("linkId");
+        if (linkId == null) {
+            call.reject("linkId is required");
+            return;
+        }
+        long latency = DeepLinkRouter.getInstance()
+            .complete(linkId, call.getString("outcome", "authenticated"), call.getLong("pageMs", -1L));
+        JSObject result = new JSObject();
+        result.put("latencyMs", latency);
+        call.resolve(result);
+        BridgeMetrics.finished(call, startedAt);
+    }
+}
@@ -0,0 +1,155 @@
+package com.balanze.app;
+
+import android.content.Intent;
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Hands auth links (AuthDeepLink: OAuth callback, password reset) to the page
+// that is already running, as an "authDeepLink" event, instead of letting the
+// page navigate to them and bootstrap the whole app again. MainActivity is
+// singleTask, so a link that arrives while the app runs comes through
+// onNewIntent; a link that starts the app comes through onCreate, before the
+// page exists, and is kept until the page asks for it (DeepLinks.getPending)
+// or reports on it.
+//
+// Every routed link gets a linkId. The time from the intent arriving to the
+// page reporting the session set (DeepLinks.reportAuthenticated) is logged
+// (tag DeepLinkRouter) and shows up as an "auth-deeplink" slice in system
+// traces on API 29+.
+public class DeepLinkRouter {
+
+    private static final String TAG = "DeepLinkRouter";
+    static final String CHANNEL = "authDeepLink";
+    private static final String SECTION = "auth-deeplink";
+    // Links the page never reported on are forgotten after this many newer ones
+    private static final int MAX_OPEN_LINKS = 8;
+
+    private static DeepLinkRouter instance;
+
+    private static final class OpenLink {
+        final long receivedAt;
+        final String label;
+
+        OpenLink(long receivedAt, String label) {
+            this.receivedAt = receivedAt;
+            this.label = label;
+        }
+    }
+
+    private final NativeEventBus bus;
+    private int nextLinkId = 1;
+    private final Map<Integer, OpenLink> open = new LinkedHashMap<>();
+    // The last routed link until the page takes it or reports on it
+    private JSONObject pending;
+
+    public static synchronized DeepLinkRouter getInstance() {
+        if (instance == null) {
+            instance = new DeepLinkRouter(NativeEventBus.getInstance());
+        }
+        return instance;
+    }
+
+    DeepLinkRouter(NativeEventBus bus) {
+        this.bus = bus;
+    }
+
+    // True when intent is a view of an auth link and has been handed to the
+    // page; links that fail AuthDeepLink's checks are handed over too, with
+    // ok: false and a reason, so the page can show the sign-in error. False
+    // for every other intent, which the caller handles as before.
+    //
+    // Event: { linkId, ok, coldStart, kind, flow, ...AuthDeepLink.toJson() }
+    //   or   { linkId, ok: false, coldStart, kind, reason }
+    public boolean route(Intent intent, boolean coldStart) {
+        if (intent == null || !Intent.ACTION_VIEW.equals(intent.getAction())) {
+            return false;
+        }
+        String url = intent.getDataString();
+        String kind = AuthDeepLink.kindOf(url);
+        if (kind == null) {
+            return false;
+        }
+        long receivedAt = SystemClock.elapsedRealtime();
+
+        JSONObject event;
+        String label;
+        try {
+            try {
+                AuthDeepLink link = AuthDeepLink.parse(url);
+                event = link.toJson().put("ok", true);
+                label = kind + "/" + link.flow;
+            } catch (IllegalArgumentException e) {
+                event = new JSONObject().put("ok", false).put("kind", kind).put("reason", e.getMessage());
+                label = kind + "/invalid";
+                Log.w(TAG, "Rejected " + kind + " link: " + e.getMessage());
+            }
+            event.put("coldStart", coldStart);
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+
+        int linkId;
+        synchronized (this) {
+            linkId = nextLinkId++;
+            try {
+                event.put("linkId", linkId);
+            } catch (JSONException e) {
+                throw new IllegalStateException(e);
+            }
+            open.put(linkId, new OpenLink(receivedAt, label + (coldStart ? ", cold" : ", warm")));
+            if (open.size() > MAX_OPEN_LINKS) {
+                Iterator<Integer> oldest = open.keySet().iterator();
+                endSection(oldest.next());
+                oldest.remove();
+            }
+            pending = event;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(SECTION, linkId);
+        }
+        bus.emit(CHANNEL, event.toString());
+        return true;
+    }
+
+    // The link the page has not taken yet, or null; each link is taken once
+    public synchronized JSONObject takePending() {
+        JSONObject link = pending;
+        pending = null;
+        return link;
+    }
+
+    // The page is done with linkId: outcome is "authenticated" once the session
+    // is set, otherwise what went wrong. pageMs is how long the page itself took
+    // from receiving the link. Returns the time from the intent arriving, or -1
+    // when linkId was never routed or was already reported.
+    public long complete(int linkId, String outcome, long pageMs) {
+        OpenLink link;
+        synchronized (this) {
+            link = open.remove(linkId);
+            if (pending != null && pending.optInt("linkId") == linkId) {
+                pending = null;
+            }
+        }
+        if (link == null) {
+            return -1;
+        }
+        long latency = SystemClock.elapsedRealtime() - link.receivedAt;
+        endSection(linkId);
+        Log.i(TAG, "Link " + linkId + " (" + link.label + ") " + outcome + " after " + latency + " ms"
+            + (pageMs >= 0 ? " (page " + pageMs + " ms)" : ""));
+        return latency;
+    }
+
+    private static void endSection(int linkId) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(SECTION, linkId);
+        }
+    }
+}
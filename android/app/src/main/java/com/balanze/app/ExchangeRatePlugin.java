@@ -0,0 +1,144 @@
+package com.balanze.app;
+
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.io.File;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Exchange rates from ExchangeRateService. convert takes a whole column of
+// amounts so multi-currency views convert everything in one bridge call.
+@CapacitorPlugin(name = "ExchangeRates")
+public class ExchangeRatePlugin extends Plugin {
+
+    private static final String TAG = "ExchangeRates";
+
+    private static final String ENDPOINT = "https://api.exchangerate-api.com/v4/latest/";
+    private static final String BASE_CURRENCY = "USD";
+    private static final long TTL_MS = 12 * 60 * 60 * 1000L;
+    private static final long RETRY_MS = 5 * 60 * 1000L;
+
+    private ExchangeRateService service;
+    // Serializes calls so concurrent screens share one refresh
+    private ExecutorService executor;
+
+    @Override
+    public void load() {
+        super.load();
+        service = new ExchangeRateService(
+            new File(getContext().getFilesDir(), "exchange_rates.bin"),
+            ENDPOINT, BASE_CURRENCY, TTL_MS, RETRY_MS, System::currentTimeMillis);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    // { to, currencies? } -> { rates: { EUR: <multiply EUR amounts by this> }, fetchedAt, stale }.
+    // Without currencies every known currency is returned; unknown ones are left out.
+    @PluginMethod
+    public void getRates(PluginCall call) {
+        String to = call.getString("to", BASE_CURRENCY);
+        JSArray currencies = call.getArray("currencies");
+        run(call, "getRates", () -> {
+            ExchangeRateService.Snapshot snapshot = service.current();
+            JSObject rates = new JSObject();
+            if (currencies != null) {
+                for (int i = 0; i < currencies.length(); i++) {
+                    String currency = currencies.getString(i);
+                    double rate = snapshot != null ? snapshot.rate(currency, to) : Double.NaN;
+                    if (currency.equalsIgnoreCase(to)) {
+                        rate = 1;
+                    }
+                    if (!Double.isNaN(rate)) {
+                        rates.put(currency, rate);
+                    }
+                }
+            } else if (snapshot != null) {
+                for (String currency : snapshot.rates.keySet()) {
+                    double rate = snapshot.rate(currency, to);
+                    if (!Double.isNaN(rate)) {
+                        rates.put(currency, rate);
+                    }
+                }
+            }
+            JSObject result = snapshotInfo(snapshot);
+            result.put("rates", rates);
+            call.resolve(result);
+        });
+    }
+
+    // { amounts: number[], from: string | string[], to } -> { values: (number | null)[], fetchedAt, stale }.
+    // A value is null when its currency has no rate.
+    @PluginMethod
+    public void convert(PluginCall call) {
+        JSArray amounts = call.getArray("amounts");
+        Object from = call.getData().opt("from");
+        String to = call.getString("to");
+        if (amounts == null || from == null || to == null) {
+            call.reject("amounts, from and to are required");
+            return;
+        }
+        run(call, "convert", () -> {
+            double[] values = new double[amounts.length()];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = amounts.optDouble(i, 0);
+            }
+            String[] currencies;
+            if (from instanceof JSONArray) {
+                JSONArray list = (JSONArray) from;
+                currencies = new String[list.length()];
+                for (int i = 0; i < currencies.length; i++) {
+                    currencies[i] = list.getString(i);
+                }
+            } else {
+                currencies = new String[] { from.toString() };
+            }
+            double[] converted = service.convert(values, currencies, to);
+            JSArray out = new JSArray();
+            for (double value : converted) {
+                out.put(Double.isNaN(value) ? JSONObject.NULL : value);
+            }
+            JSObject result = snapshotInfo(service.current());
+            result.put("values", out);
+            call.resolve(result);
+        });
+    }
+
+    // Fetches now, ignoring the TTL; rejects when offline (the old table stays in use)
+    @PluginMethod
+    public void refresh(PluginCall call) {
+        run(call, "refresh", () -> {
+            ExchangeRateService.Snapshot snapshot = service.refresh();
+            JSObject result = snapshotInfo(snapshot);
+            result.put("currencies", snapshot.rates.size());
+            call.resolve(result);
+        });
+    }
+
+    private JSObject snapshotInfo(ExchangeRateService.Snapshot snapshot) {
+        JSObject result = new JSObject();
+        result.put("fetchedAt", snapshot != null ? snapshot.fetchedAt : 0);
+        result.put("stale", service.isStale());
+        return result;
+    }
+
+    private interface Work {
+        void run() throws Exception;
+    }
+
+    private void run(PluginCall call, String method, Work work) {
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                work.run();
+            } catch (Exception e) {
+                Log.e(TAG, method + " failed", e);
+                call.reject(method + " failed: " + e.getMessage(), e);
+            }
+        }));
+    }
+}
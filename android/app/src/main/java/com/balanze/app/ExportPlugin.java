@@ -0,0 +1,313 @@
+package com.balanze.app;
+
+import android.content.ActivityNotFoundException;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+import androidx.core.content.FileProvider;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Streams transaction exports (CSV/PDF) from the local ledger to a file in
+// app storage on a background thread. Unlike exportUtils, no document is
+// ever assembled in the WebView; JS only receives progress events and the
+// FileProvider uri of the finished file.
+@CapacitorPlugin(name = "Export")
+public class ExportPlugin extends Plugin {
+
+    private static final String TAG = "Export";
+    private static final int PROGRESS_EVERY_ROWS = 1000;
+    private static final long PROGRESS_MIN_INTERVAL_MS = 250;
+
+    private LedgerStore store;
+    private ExecutorService executor;
+
+    private static class AccountInfo {
+        final String name;
+        final String currency;
+
+        AccountInfo(String name, String currency) {
+            this.name = name;
+            this.currency = currency;
+        }
+    }
+
+    @Override
+    public void load() {
+        super.load();
+        store = new LedgerStore(LedgerDatabase.getInstance(getContext()));
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @PluginMethod
+    public void exportTransactions(PluginCall call) {
+        String userId = call.getString("userId");
+        String format = call.getString("format", "csv");
+        if (userId == null) {
+            call.reject("userId is required");
+            return;
+        }
+        if (!"csv".equals(format) && !"pdf".equals(format)) {
+            call.reject("Unsupported format: " + format);
+            return;
+        }
+
+        String exportId = call.getString("exportId", UUID.randomUUID().toString());
+        String filename = sanitizeFilename(call.getString("filename", "transactions." + format));
+        JSObject filters = call.getObject("filters", new JSObject());
+        JSObject sort = call.getObject("sort", new JSObject());
+        List<String> filterLabels = new ArrayList<>();
+        JSArray labels = call.getArray("filterLabels");
+        if (labels != null) {
+            for (int i = 0; i < labels.length(); i++) {
+                filterLabels.add(labels.optString(i));
+            }
+        }
+
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            File dir = new File(getContext().getCacheDir(), "exports");
+            File file = new File(dir, filename);
+            try {
+                if (!dir.exists() && !dir.mkdirs()) {
+                    throw new IOException("Could not create " + dir);
+                }
+                int rows = writeExport(userId, format, file, filters, sort, filterLabels, exportId);
+                Uri uri = FileProvider.getUriForFile(getContext(), getContext().getPackageName() + ".fileprovider", file);
+
+                JSObject result = new JSObject();
+                result.put("exportId", exportId);
+                result.put("filename", filename);
+                result.put("path", file.getAbsolutePath());
+                result.put("uri", uri.toString());
+                result.put("rowCount", rows);
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Export " + exportId + " failed", e);
+                // Never leave a truncated file behind
+                file.delete();
+                call.reject("Export failed: " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    // Offers a finished export to other apps through the system share sheet.
+    // { uri, mimeType, title? }
+    @PluginMethod
+    public void share(PluginCall call) {
+        long startedAt = BridgeMetrics.now();
+        String uri = call.getString("uri");
+        String mimeType = call.getString("mimeType");
+        if (uri == null || mimeType == null) {
+            call.reject("uri and mimeType are required");
+            BridgeMetrics.finished(call, startedAt);
+            return;
+        }
+        Intent send = new Intent(Intent.ACTION_SEND)
+            .setType(mimeType)
+            .putExtra(Intent.EXTRA_STREAM, Uri.parse(uri))
+            .addFlags(Intent.FLAG_GRANT_READ_URI_PERMISSION);
+        try {
+            getActivity().startActivity(Intent.createChooser(send, call.getString("title")));
+            call.resolve();
+        } catch (ActivityNotFoundException e) {
+            call.reject("No app can receive " + mimeType, e);
+        }
+        BridgeMetrics.finished(call, startedAt);
+    }
+
+    private int writeExport(String userId, String format, File file, JSObject filters, JSObject sort,
+                            List<String> filterLabels, String exportId) throws IOException {
+        Map<String, AccountInfo> accounts = loadAccounts(userId);
+
+        LedgerStore.Query query = new LedgerStore.Query();
+        query.userId = userId;
+        String account = filters.getString("account");
+        query.accountId = account == null || "all".equals(account) ? null : account;
+        query.fromDate = emptyToNull(filters.getString("from"));
+        query.toDate = emptyToNull(filters.getString("to"));
+
+        String type = filters.getString("type");
+        String wantedType = type == null || "all".equals(type) ? null : type;
+        String currency = emptyToNull(filters.getString("currency"));
+        String search = emptyToNull(filters.getString("search"));
+        String searchLower = search != null ? search.trim().toLowerCase(Locale.ROOT) : null;
+        String modifiedSince = emptyToNull(filters.getString("modifiedSince"));
+        // The transaction list hides transfers, so its exports leave them out too
+        boolean excludeTransfers = filters.optBoolean("excludeTransfers", false);
+
+        String summaryCurrency = currency;
+        if (summaryCurrency == null && query.accountId != null && accounts.containsKey(query.accountId)) {
+            summaryCurrency = accounts.get(query.accountId).currency;
+        }
+        ExportSummary summary = new ExportSummary(filterLabels, summaryCurrency,
+            DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.MEDIUM).format(new Date()));
+
+        SimpleDateFormat isoDate = new SimpleDateFormat("yyyy-MM-dd", Locale.US);
+        DateFormat displayDate = DateFormat.getDateInstance(DateFormat.SHORT);
+        long[] lastProgressAt = { 0L };
+
+        try (FileOutputStream out = new FileOutputStream(file);
+             TransactionExportWriter writer = "pdf".equals(format)
+                 ? new PdfExportWriter(out, filterLabels.size())
+                 : new CsvExportWriter(out)) {
+
+            store.forEach(LedgerTable.TRANSACTIONS, query, sortColumn(sort.getString("key")),
+                "asc".equals(sort.getString("direction")), json -> {
+                    try {
+                        JSONObject t = new JSONObject(json);
+                        String rowType = t.optString("type");
+                        if (wantedType != null && !wantedType.equals(rowType)) {
+                            return;
+                        }
+                        AccountInfo info = accounts.get(t.optString("account_id"));
+                        if (currency != null && (info == null || !currency.equals(info.currency))) {
+                            return;
+                        }
+                        String description = t.isNull("description") ? "" : t.optString("description");
+                        String category = t.isNull("category") ? "" : t.optString("category");
+                        if (searchLower != null
+                            && !description.toLowerCase(Locale.ROOT).contains(searchLower)
+                            && !category.toLowerCase(Locale.ROOT).contains(searchLower)) {
+                            return;
+                        }
+                        if (modifiedSince != null) {
+                            String updatedAt = t.isNull("updated_at") ? null : t.optString("updated_at");
+                            if (updatedAt == null || updatedAt.equals(t.optString("created_at"))
+                                || updatedAt.compareTo(modifiedSince) < 0) {
+                                return;
+                            }
+                        }
+
+                        JSONArray tags = t.optJSONArray("tags");
+                        StringBuilder tagText = new StringBuilder();
+                        boolean transfer = false;
+                        if (tags != null) {
+                            for (int i = 0; i < tags.length(); i++) {
+                                String tag = tags.optString(i);
+                                if (excludeTransfers && (tag.contains("transfer") || "dps_deletion".equals(tag))) {
+                                    return;
+                                }
+                                transfer |= "transfer".equals(tag) || "dps_transfer".equals(tag);
+                                if (i > 0) {
+                                    tagText.append("; ");
+                                }
+                                tagText.append(tag);
+                            }
+                        }
+
+                        ExportRow row = new ExportRow(
+                            formatDate(t.optString("date"), isoDate, displayDate),
+                            description,
+                            category,
+                            info != null ? info.name : "Unknown",
+                            rowType,
+                            transfer,
+                            t.optDouble("amount", 0d),
+                            tagText.toString()
+                        );
+                        writer.writeRow(row);
+                        summary.add(row);
+                    } catch (org.json.JSONException e) {
+                        throw new IOException("Malformed transaction row", e);
+                    }
+
+                    if (summary.recordCount % PROGRESS_EVERY_ROWS == 0) {
+                        long now = SystemClock.elapsedRealtime();
+                        if (now - lastProgressAt[0] >= PROGRESS_MIN_INTERVAL_MS) {
+                            lastProgressAt[0] = now;
+                            emitProgress(exportId, summary.recordCount, false);
+                        }
+                    }
+                });
+
+            writer.finish(summary);
+        }
+        emitProgress(exportId, summary.recordCount, true);
+        return summary.recordCount;
+    }
+
+    private Map<String, AccountInfo> loadAccounts(String userId) throws IOException {
+        Map<String, AccountInfo> accounts = new HashMap<>();
+        LedgerStore.Query query = new LedgerStore.Query();
+        query.userId = userId;
+        store.forEach(LedgerTable.ACCOUNTS, query, "date", true, json -> {
+            try {
+                JSONObject a = new JSONObject(json);
+                accounts.put(a.getString("id"), new AccountInfo(a.optString("name", "Unknown"), a.optString("currency", null)));
+            } catch (org.json.JSONException e) {
+                throw new IOException("Malformed account row", e);
+            }
+        });
+        return accounts;
+    }
+
+    private void emitProgress(String exportId, int rows, boolean done) {
+        JSObject event = new JSObject();
+        event.put("exportId", exportId);
+        event.put("rows", rows);
+        event.put("done", done);
+        NativeEventBus.getInstance().emit("exportProgress", event.toString());
+    }
+
+    // Only indexed ledger columns can be streamed in order; other keys
+    // (amount, description) fall back to date order
+    private static String sortColumn(String key) {
+        if ("category".equals(key)) {
+            return "category";
+        }
+        if ("account".equals(key) || "account_id".equals(key)) {
+            return "account_id";
+        }
+        return "date";
+    }
+
+    private static String formatDate(String value, SimpleDateFormat isoDate, DateFormat displayDate) {
+        if (value == null || value.length() < 10) {
+            return value != null ? value : "";
+        }
+        try {
+            return displayDate.format(isoDate.parse(value.substring(0, 10)));
+        } catch (ParseException e) {
+            return value;
+        }
+    }
+
+    private static String sanitizeFilename(String name) {
+        String cleaned = name.replaceAll("[^A-Za-z0-9._-]", "-");
+        return cleaned.isEmpty() || cleaned.startsWith(".") ? "export" + cleaned : cleaned;
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.trim().isEmpty() ? null : value;
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        super.handleOnDestroy();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
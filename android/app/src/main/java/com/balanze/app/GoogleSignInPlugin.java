@@ -1,6 +1,5 @@
 package com.balanze.app;
 
-import android.app.Activity;
 import android.content.Intent;
 import android.util.Log;
 import com.getcapacitor.JSObject;
@@ -10,8 +9,6 @@ import com.getcapacitor.PluginMethod;
 import com.getcapacitor.annotation.CapacitorPlugin;
 import com.google.android.gms.auth.api.signin.GoogleSignIn;
 import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
-import com.google.android.gms.auth.api.signin.GoogleSignInClient;
-import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
 import com.google.android.gms.common.api.ApiException;
 import com.google.android.gms.tasks.Task;
 
@@ -19,109 +16,72 @@ import com.google.android.gms.tasks.Task;
 public class GoogleSignInPlugin extends Plugin {
 
     private static final int RC_SIGN_IN = 9001;
-    private GoogleSignInClient googleSignInClient;
+    private GoogleAuthClient authClient;
     private PluginCall savedCall;
 
     @Override
     public void load() {
         super.load();
-        
-        Log.e("GoogleSignIn", "========================================");
-        Log.e("GoogleSignIn", "GoogleSignInPlugin.load() CALLED");
-        Log.e("GoogleSignIn", "========================================");
-        
-        // Get the server client ID from capacitor config
-        // This should be your Google OAuth Web Client ID (same as configured in Supabase)
-        String serverClientId = getConfig().getString("serverClientId", "");
-        
-        Log.e("GoogleSignIn", "Server Client ID from config: " + (serverClientId.isEmpty() ? "EMPTY" : serverClientId.substring(0, Math.min(20, serverClientId.length())) + "..."));
-        
-        if (serverClientId.isEmpty()) {
-            Log.e("GoogleSignIn", "❌ Google Sign-In: serverClientId not configured in capacitor.config.ts");
-            Log.e("GoogleSignIn", "Please add GoogleSignIn: { serverClientId: 'your-google-client-id' } to capacitor.config.ts");
-            // Don't initialize if not configured - will fail gracefully
-            return;
-        }
-        
-        Log.e("GoogleSignIn", "✅ Configuring Google Sign-In with serverClientId");
-        
-        // Configure Google Sign-In
-        // Note: For native Android Sign-In, use the same Web Client ID that's configured in Supabase
-        GoogleSignInOptions gso = new GoogleSignInOptions.Builder(GoogleSignInOptions.DEFAULT_SIGN_IN)
-            .requestIdToken(serverClientId)
-            .requestEmail()
-            .requestProfile()
-            .build();
-        
-        googleSignInClient = GoogleSignIn.getClient(getActivity(), gso);
-        Log.e("GoogleSignIn", "✅ GoogleSignInClient initialized successfully");
+        // Shared with the GoogleSignInNative JS interface; the Play Services client is built on first use
+        authClient = PlayServicesAuthBackend.shared(getContext());
     }
 
+    // Optional "prompt": none | select_account (default) | consent, see GoogleAuthClient
     @PluginMethod
     public void signIn(PluginCall call) {
-        Log.e("GoogleSignIn", "========================================");
+        long startedAt = BridgeMetrics.now();
         Log.e("GoogleSignIn", "signIn() METHOD CALLED");
-        Log.e("GoogleSignIn", "========================================");
         
         savedCall = call;
-        
-        if (googleSignInClient == null) {
-            Log.e("GoogleSignIn", "❌ googleSignInClient is null - plugin not initialized");
-            call.reject("Google Sign-In not initialized. Check serverClientId configuration.");
-            return;
-        }
-        
-        Activity activity = getActivity();
-        if (activity == null) {
-            Log.e("GoogleSignIn", "❌ Activity is null");
-            call.reject("Activity is null");
-            return;
-        }
-        
-        // ALWAYS sign out and revoke access to force account picker to show
-        // This is the most reliable way to ensure the picker appears
-        Log.e("GoogleSignIn", "🔄 Signing out and revoking access to force account picker...");
-        
-        // First sign out
-        googleSignInClient.signOut().addOnCompleteListener(activity, signOutTask -> {
-            Log.e("GoogleSignIn", "✅ Sign out completed");
-            
-            // Then revoke access to clear all cached account data
-            googleSignInClient.revokeAccess().addOnCompleteListener(activity, revokeTask -> {
-                Log.e("GoogleSignIn", "✅ Access revoked, account cache cleared");
-                
-                // Now show the sign-in intent - this should always show account picker
+        String prompt = call.getString("prompt", GoogleAuthClient.PROMPT_SELECT_ACCOUNT);
+        authClient.signIn(prompt, new GoogleAuthClient.Flow() {
+            @Override
+            public void onAccount(GoogleAuthClient.Account account) {
+                Log.e("GoogleSignIn", "✅ Signed in silently");
+                resolveSaved(PlayServicesAuthBackend.toJSObject(account));
+            }
+
+            @Override
+            public void showPicker() {
                 try {
-                    Intent signInIntent = googleSignInClient.getSignInIntent();
+                    Intent signInIntent = PlayServicesAuthBackend.signInIntent(getContext());
                     startActivityForResult(call, signInIntent, RC_SIGN_IN);
                     Log.e("GoogleSignIn", "✅ Sign-In intent started - account picker should appear");
                 } catch (Exception e) {
                     Log.e("GoogleSignIn", "❌ Error starting sign-in intent: " + e.getMessage());
                     e.printStackTrace();
-                    if (savedCall != null) {
-                        savedCall.reject("Failed to start sign-in: " + e.getMessage());
-                        savedCall = null;
-                    }
+                    rejectSaved("Failed to start sign-in: " + e.getMessage());
                 }
-            });
+            }
+
+            @Override
+            public void onError(String message) {
+                Log.e("GoogleSignIn", "❌ " + message);
+                rejectSaved(message);
+            }
         });
+        // Only the time on the bridge thread; waiting for the user is not bridge latency
+        BridgeMetrics.finished(call, startedAt);
     }
 
     @PluginMethod
     public void signOut(PluginCall call) {
-        googleSignInClient.signOut()
-            .addOnCompleteListener(getActivity(), task -> {
-                JSObject result = new JSObject();
-                result.put("success", true);
-                call.resolve(result);
-            });
+        long startedAt = BridgeMetrics.now();
+        authClient.signOut(() -> {
+            JSObject result = new JSObject();
+            result.put("success", true);
+            call.resolve(result);
+        });
+        BridgeMetrics.finished(call, startedAt);
     }
 
     @PluginMethod
     public void log(PluginCall call) {
+        long startedAt = BridgeMetrics.now();
         String message = call.getString("message", "");
         Log.e("JS_LOG", message);
         call.resolve();
+        BridgeMetrics.finished(call, startedAt);
     }
 
     @Override
@@ -139,23 +99,9 @@ public class GoogleSignInPlugin extends Plugin {
             GoogleSignInAccount account = completedTask.getResult(ApiException.class);
             
             if (account != null) {
-                JSObject result = new JSObject();
-                result.put("success", true);
-                result.put("idToken", account.getIdToken());
-                result.put("email", account.getEmail());
-                result.put("displayName", account.getDisplayName());
-                result.put("photoUrl", account.getPhotoUrl() != null ? account.getPhotoUrl().toString() : null);
-                result.put("id", account.getId());
-                
-                if (savedCall != null) {
-                    savedCall.resolve(result);
-                    savedCall = null;
-                }
+                resolveSaved(PlayServicesAuthBackend.toJSObject(PlayServicesAuthBackend.toAccount(account)));
             } else {
-                if (savedCall != null) {
-                    savedCall.reject("Sign in failed: account is null");
-                    savedCall = null;
-                }
+                rejectSaved("Sign in failed: account is null");
             }
         } catch (ApiException e) {
             String errorMessage = "Sign in failed: " + e.getStatusCode();
@@ -166,12 +112,21 @@ public class GoogleSignInPlugin extends Plugin {
             } else if (e.getStatusCode() == 7) {
                 errorMessage = "Network error: Please check your internet connection";
             }
-            
-            if (savedCall != null) {
-                savedCall.reject(errorMessage);
-                savedCall = null;
-            }
+            rejectSaved(errorMessage);
+        }
+    }
+
+    private void resolveSaved(JSObject result) {
+        if (savedCall != null) {
+            savedCall.resolve(result);
+            savedCall = null;
         }
     }
-}
 
+    private void rejectSaved(String message) {
+        if (savedCall != null) {
+            savedCall.reject(message);
+            savedCall = null;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.balanze.app;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+
+// Hit/miss counters and a reset for the native API response cache
+@CapacitorPlugin(name = "HttpCache")
+public class HttpCachePlugin extends Plugin {
+
+    @PluginMethod
+    public void getStats(PluginCall call) {
+        long startedAt = BridgeMetrics.now();
+        HttpResponseCache.Stats stats = CachingWebViewClient.sharedCache(getContext()).stats();
+        JSObject result = new JSObject();
+        result.put("hits", stats.hits);
+        result.put("revalidations", stats.revalidations);
+        result.put("staleServed", stats.staleServed);
+        result.put("misses", stats.misses);
+        result.put("networkErrors", stats.networkErrors);
+        result.put("evictions", stats.evictions);
+        result.put("invalidations", stats.invalidations);
+        result.put("memoryEntries", stats.memoryEntries);
+        result.put("memoryBytes", stats.memoryBytes);
+        result.put("diskEntries", stats.diskEntries);
+        result.put("diskBytes", stats.diskBytes);
+        call.resolve(result);
+        BridgeMetrics.finished(call, startedAt);
+    }
+
+    @PluginMethod
+    public void clear(PluginCall call) {
+        long startedAt = BridgeMetrics.now();
+        CachingWebViewClient.sharedCache(getContext()).clear();
+        call.resolve();
+        BridgeMetrics.finished(call, startedAt);
+    }
+}
@@ -0,0 +1,162 @@
+package com.balanze.app;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Matrix;
+import android.media.ExifInterface;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Shrinks photos before upload without ever holding the full-size bitmap:
+// the bounds are read first, the decoder subsamples by a power of two, one
+// scaled (and EXIF-rotated) copy covers the rest of the way, and the JPEG
+// quality steps down until the file fits the target size. PNGs stay
+// lossless and only get smaller dimensions. Anything else, and images that
+// already fit, are passed through untouched.
+public class ImageDownscaler {
+
+    public static final String JPEG = "image/jpeg";
+    public static final String PNG = "image/png";
+
+    private static final int MIN_QUALITY = 50;
+    private static final int QUALITY_STEP = 10;
+    // How often the dimensions may shrink further when quality alone is not enough
+    private static final int MAX_SHRINKS = 3;
+    private static final float SHRINK_FACTOR = 0.75f;
+
+    public static final class Result {
+        public final File file;
+        // 0 when the file was passed through without decoding
+        public final int width;
+        public final int height;
+        public final boolean reencoded;
+
+        Result(File file, int width, int height, boolean reencoded) {
+            this.file = file;
+            this.width = width;
+            this.height = height;
+            this.reencoded = reencoded;
+        }
+    }
+
+    // Returns source itself when nothing had to change, otherwise target
+    public static Result downscale(File source, String mimeType, File target, int maxDimension, long targetBytes,
+                                   int quality) throws IOException {
+        boolean jpeg = JPEG.equals(mimeType);
+        if (!jpeg && !PNG.equals(mimeType)) {
+            return new Result(source, 0, 0, false);
+        }
+        BitmapFactory.Options bounds = new BitmapFactory.Options();
+        bounds.inJustDecodeBounds = true;
+        BitmapFactory.decodeFile(source.getAbsolutePath(), bounds);
+        if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+            // Not decodable; let the server have it as it is
+            return new Result(source, 0, 0, false);
+        }
+        int rotation = jpeg ? exifRotation(source) : 0;
+        if (Math.max(bounds.outWidth, bounds.outHeight) <= maxDimension && source.length() <= targetBytes
+            && rotation == 0) {
+            return new Result(source, bounds.outWidth, bounds.outHeight, false);
+        }
+
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inSampleSize = sampleSize(bounds.outWidth, bounds.outHeight, maxDimension);
+        Bitmap decoded = BitmapFactory.decodeFile(source.getAbsolutePath(), options);
+        if (decoded == null) {
+            return new Result(source, 0, 0, false);
+        }
+
+        int limit = maxDimension;
+        Bitmap.CompressFormat format = jpeg ? Bitmap.CompressFormat.JPEG : Bitmap.CompressFormat.PNG;
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        Bitmap scaled = null;
+        try {
+            for (int shrink = 0; ; shrink++) {
+                scaled = scaleAndRotate(decoded, limit, rotation);
+                int q = jpeg ? quality : 100;
+                while (true) {
+                    encoded.reset();
+                    scaled.compress(format, q, encoded);
+                    if (encoded.size() <= targetBytes || !jpeg || q - QUALITY_STEP < MIN_QUALITY) {
+                        break;
+                    }
+                    q -= QUALITY_STEP;
+                }
+                if (encoded.size() <= targetBytes || shrink == MAX_SHRINKS) {
+                    break;
+                }
+                limit = Math.round(Math.max(scaled.getWidth(), scaled.getHeight()) * SHRINK_FACTOR);
+                if (scaled != decoded) {
+                    scaled.recycle();
+                }
+            }
+            try (OutputStream out = new FileOutputStream(target)) {
+                encoded.writeTo(out);
+            }
+            return new Result(target, scaled.getWidth(), scaled.getHeight(), true);
+        } finally {
+            if (scaled != null && scaled != decoded) {
+                scaled.recycle();
+            }
+            decoded.recycle();
+        }
+    }
+
+    // Largest power of two that still decodes at least maxDimension on the long side
+    static int sampleSize(int width, int height, int maxDimension) {
+        int longSide = Math.max(width, height);
+        int sample = 1;
+        while (longSide / (sample * 2) >= maxDimension) {
+            sample *= 2;
+        }
+        return sample;
+    }
+
+    // { width, height } scaled to fit maxDimension on the long side, never enlarged
+    static int[] fit(int width, int height, int maxDimension) {
+        int longSide = Math.max(width, height);
+        if (longSide <= maxDimension) {
+            return new int[] { width, height };
+        }
+        double scale = (double) maxDimension / longSide;
+        return new int[] {
+            Math.max(1, (int) Math.round(width * scale)),
+            Math.max(1, (int) Math.round(height * scale))
+        };
+    }
+
+    private static Bitmap scaleAndRotate(Bitmap bitmap, int maxDimension, int rotation) {
+        int[] size = fit(bitmap.getWidth(), bitmap.getHeight(), maxDimension);
+        if (rotation == 0 && size[0] == bitmap.getWidth() && size[1] == bitmap.getHeight()) {
+            return bitmap;
+        }
+        Matrix matrix = new Matrix();
+        matrix.postScale((float) size[0] / bitmap.getWidth(), (float) size[1] / bitmap.getHeight());
+        matrix.postRotate(rotation);
+        return Bitmap.createBitmap(bitmap, 0, 0, bitmap.getWidth(), bitmap.getHeight(), matrix, true);
+    }
+
+    // Camera JPEGs are often stored sideways with an EXIF orientation; the
+    // re-encoded file carries no EXIF, so the rotation is applied to the pixels
+    private static int exifRotation(File file) {
+        try {
+            int orientation = new ExifInterface(file.getAbsolutePath())
+                .getAttributeInt(ExifInterface.TAG_ORIENTATION, ExifInterface.ORIENTATION_NORMAL);
+            switch (orientation) {
+                case ExifInterface.ORIENTATION_ROTATE_90:
+                    return 90;
+                case ExifInterface.ORIENTATION_ROTATE_180:
+                    return 180;
+                case ExifInterface.ORIENTATION_ROTATE_270:
+                    return 270;
+                default:
+                    return 0;
+            }
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package com.balanze.app;
+
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Typeface;
+import android.graphics.pdf.PdfDocument;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+// Draws InvoiceLayout's pages onto a PdfDocument with the system fonts, so
+// any script the device can show (Bengali names, "৳", "₹") comes out as
+// text instead of the "?" the standard PDF fonts left. Text goes through
+// the platform's layout with font fallback; the same Paint measures the
+// layout's line wrapping. One instance serves every render thread: the
+// Paints are per thread and each invoice gets its own PdfDocument.
+public class InvoicePdfRenderer implements InvoiceBatchRenderer.Renderer, InvoiceLayout.Measurer {
+
+    // A4 in points
+    private static final int PAGE_WIDTH = Math.round(InvoiceLayout.PAGE_WIDTH / InvoiceLayout.POINT);
+    private static final int PAGE_HEIGHT = Math.round(InvoiceLayout.PAGE_HEIGHT / InvoiceLayout.POINT);
+
+    private static final class Paints {
+        final Paint regular = text(Typeface.DEFAULT);
+        final Paint bold = text(Typeface.DEFAULT_BOLD);
+        final Paint fill = new Paint();
+        final Paint stroke = new Paint();
+        final Paint image = new Paint(Paint.FILTER_BITMAP_FLAG);
+
+        Paints() {
+            fill.setStyle(Paint.Style.FILL);
+            stroke.setStyle(Paint.Style.STROKE);
+        }
+
+        private static Paint text(Typeface typeface) {
+            Paint paint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.SUBPIXEL_TEXT_FLAG);
+            paint.setTypeface(typeface);
+            return paint;
+        }
+
+        Paint text(boolean bold, float size) {
+            Paint paint = bold ? this.bold : regular;
+            paint.setTextSize(size);
+            return paint;
+        }
+    }
+
+    private final ThreadLocal<Paints> paints = new ThreadLocal<Paints>() {
+        @Override
+        protected Paints initialValue() {
+            return new Paints();
+        }
+    };
+    private final InvoiceLayout layout;
+    private final Bitmap logo;
+
+    // logo is drawn wherever the template placed it; null when there is none
+    public InvoicePdfRenderer(InvoiceTemplate template, Bitmap logo, String today, String generatedOn) {
+        this.layout = new InvoiceLayout(template, today, generatedOn, this);
+        this.logo = logo;
+    }
+
+    @Override
+    public float width(String text, boolean bold, float size) {
+        return paints.get().text(bold, size).measureText(text);
+    }
+
+    @Override
+    public int render(InvoiceData invoice, OutputStream out) throws IOException {
+        List<InvoiceDrawing> pages = layout.layout(invoice);
+        Paints paints = this.paints.get();
+        PdfDocument document = new PdfDocument();
+        try {
+            for (int i = 0; i < pages.size(); i++) {
+                PdfDocument.Page page = document.startPage(
+                    new PdfDocument.PageInfo.Builder(PAGE_WIDTH, PAGE_HEIGHT, i + 1).create());
+                pages.get(i).replay(new PageTarget(page.getCanvas(), paints, logo));
+                document.finishPage(page);
+            }
+            document.writeTo(out);
+        } finally {
+            document.close();
+        }
+        return pages.size();
+    }
+
+    // Millimetres from the layout become points on the page
+    private static final class PageTarget implements InvoiceDrawing.Target {
+        private final Canvas canvas;
+        private final Paints paints;
+        private final Bitmap logo;
+
+        PageTarget(Canvas canvas, Paints paints, Bitmap logo) {
+            this.canvas = canvas;
+            this.paints = paints;
+            this.logo = logo;
+        }
+
+        @Override
+        public void text(float x, float baseline, int align, boolean bold, float size, int color, String value) {
+            Paint paint = paints.text(bold, size);
+            paint.setColor(color);
+            paint.setTextAlign(align == InvoiceDrawing.ALIGN_RIGHT ? Paint.Align.RIGHT
+                : align == InvoiceDrawing.ALIGN_CENTER ? Paint.Align.CENTER : Paint.Align.LEFT);
+            canvas.drawText(value, points(x), points(baseline), paint);
+            paint.setTextAlign(Paint.Align.LEFT);
+        }
+
+        @Override
+        public void rect(float x, float top, float width, float height, int color) {
+            paints.fill.setColor(color);
+            canvas.drawRect(points(x), points(top), points(x + width), points(top + height), paints.fill);
+        }
+
+        @Override
+        public void line(float x1, float y, float x2, float strokeWidth, int color) {
+            paints.stroke.setColor(color);
+            paints.stroke.setStrokeWidth(strokeWidth);
+            canvas.drawLine(points(x1), points(y), points(x2), points(y), paints.stroke);
+        }
+
+        @Override
+        public void logo(float x, float top, float width, float height) {
+            if (logo != null) {
+                canvas.drawBitmap(logo, null,
+                    new RectF(points(x), points(top), points(x + width), points(top + height)), paints.image);
+            }
+        }
+
+        private static float points(float millimetres) {
+            return millimetres / InvoiceLayout.POINT;
+        }
+    }
+}
@@ -0,0 +1,333 @@
+package com.balanze.app;
+
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.net.Uri;
+import android.util.Base64;
+import android.util.Log;
+import androidx.core.content.FileProvider;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Renders invoice PDFs natively, many at a time (InvoiceBatchRenderer), into
+// cache/invoices/<batchId>/ instead of building each one with jsPDF in the
+// WebView. Pages are drawn onto PdfDocument with the system fonts
+// (InvoicePdfRenderer). The company header is compiled into an
+// InvoiceTemplate once and reused for every invoice and for later batches of
+// the same company; the logo is decoded and scaled down only then.
+// JS receives an invoiceProgress event per finished invoice and the files'
+// FileProvider uris at the end.
+@CapacitorPlugin(name = "Invoices")
+public class InvoicePlugin extends Plugin {
+
+    private static final String TAG = "Invoices";
+    // The logo prints at most 50 mm wide; 600 px is about 300 dpi
+    private static final int LOGO_MAX_DIMENSION = 600;
+    private static final int MAX_CACHED_TEMPLATES = 4;
+
+    // A compiled template and the logo image it places
+    private static final class CompiledTemplate {
+        final InvoiceTemplate template;
+        final Bitmap logo;
+
+        CompiledTemplate(InvoiceTemplate template, Bitmap logo) {
+            this.template = template;
+            this.logo = logo;
+        }
+    }
+
+    // One batch at a time; the batch itself runs on the renderer's pool
+    private ExecutorService executor;
+    private InvoiceBatchRenderer renderer;
+    // Only touched on executor
+    private final Map<String, CompiledTemplate> templates =
+        new LinkedHashMap<String, CompiledTemplate>(8, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledTemplate> eldest) {
+                return size() > MAX_CACHED_TEMPLATES;
+            }
+        };
+
+    @Override
+    public void load() {
+        super.load();
+        executor = Executors.newSingleThreadExecutor();
+        renderer = new InvoiceBatchRenderer(InvoiceBatchRenderer.defaultThreads());
+    }
+
+    // { batchId?, company: { name, address, email, phone, website }, logo?: base64 or data URL,
+    //   invoices: Invoice[] (with client, items and currency_symbol), today?: yyyy-MM-dd, generatedOn? }
+    // -> { batchId, files: [{ index, invoiceId, invoiceNumber, filename, path, uri, bytes, pages }],
+    //      failures: [{ index, invoiceId, invoiceNumber, error }] }
+    @PluginMethod
+    public void renderBatch(PluginCall call) {
+        JSArray invoices = call.getArray("invoices");
+        if (invoices == null || invoices.length() == 0) {
+            call.reject("invoices is required");
+            return;
+        }
+        String batchId = sanitizeFilename(call.getString("batchId", UUID.randomUUID().toString()));
+        JSObject company = call.getObject("company", new JSObject());
+        String logo = call.getString("logo");
+        String today = call.getString("today", new SimpleDateFormat("yyyy-MM-dd", Locale.US).format(new Date()));
+        String generatedOn = call.getString("generatedOn", DateFormat.getDateInstance(DateFormat.SHORT).format(new Date()));
+
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            File dir = new File(new File(getContext().getCacheDir(), "invoices"), batchId);
+            try {
+                if (!dir.exists() && !dir.mkdirs()) {
+                    throw new IOException("Could not create " + dir);
+                }
+                CompiledTemplate template = template(company, logo);
+                call.resolve(render(batchId, dir,
+                    new InvoicePdfRenderer(template.template, template.logo, today, generatedOn), invoices, today));
+            } catch (Exception e) {
+                Log.e(TAG, "Invoice batch " + batchId + " failed", e);
+                deleteDir(dir);
+                call.reject("Invoice rendering failed: " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    // Deletes a batch's files once the page has shared or saved them: { batchId }
+    @PluginMethod
+    public void clearBatch(PluginCall call) {
+        String batchId = call.getString("batchId");
+        if (batchId == null) {
+            call.reject("batchId is required");
+            return;
+        }
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            deleteDir(new File(new File(getContext().getCacheDir(), "invoices"), sanitizeFilename(batchId)));
+            call.resolve();
+        }));
+    }
+
+    private JSObject render(String batchId, File dir, InvoiceBatchRenderer.Renderer pdf, JSArray rows, String today)
+            throws InterruptedException {
+        int total = rows.length();
+        JSArray failures = new JSArray();
+        // Invoices the page could not have rendered either are failures up front
+        List<InvoiceData> invoices = new ArrayList<>(total);
+        List<Integer> positions = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            JSONObject row = rows.optJSONObject(i);
+            try {
+                if (row == null) {
+                    throw new IllegalArgumentException("Invoice data is required");
+                }
+                invoices.add(InvoiceData.fromJson(row));
+                positions.add(i);
+            } catch (JSONException | IllegalArgumentException e) {
+                String invoiceId = row != null ? row.optString("id", null) : null;
+                String invoiceNumber = row != null ? row.optString("invoice_number", null) : null;
+                failures.put(outcome(i, invoiceId, invoiceNumber, e.getMessage()));
+                emitProgress(batchId, outcome(i, invoiceId, invoiceNumber, e.getMessage()), failures.length(), total);
+            }
+        }
+        int rejected = failures.length();
+
+        String[] filenames = filenames(invoices, today);
+        InvoiceBatchRenderer.Sink sink = new InvoiceBatchRenderer.Sink() {
+            @Override
+            public OutputStream open(int index, InvoiceData invoice) throws IOException {
+                return new FileOutputStream(new File(dir, filenames[index]));
+            }
+
+            @Override
+            public void discard(int index, InvoiceData invoice) {
+                // Never leave a truncated file behind
+                new File(dir, filenames[index]).delete();
+            }
+        };
+        List<InvoiceBatchRenderer.Result> results = renderer.render(pdf, invoices, sink, (result, completed, count) -> {
+            emitProgress(batchId, outcome(positions.get(result.index), result.invoice.id,
+                result.invoice.invoiceNumber, result.error), rejected + completed, total);
+        });
+
+        JSArray files = new JSArray();
+        for (InvoiceBatchRenderer.Result result : results) {
+            int index = positions.get(result.index);
+            if (!result.ok()) {
+                failures.put(outcome(index, result.invoice.id, result.invoice.invoiceNumber, result.error));
+                continue;
+            }
+            File file = new File(dir, filenames[result.index]);
+            Uri uri = FileProvider.getUriForFile(getContext(), getContext().getPackageName() + ".fileprovider", file);
+            JSObject entry = new JSObject();
+            entry.put("index", index);
+            entry.put("invoiceId", result.invoice.id);
+            entry.put("invoiceNumber", result.invoice.invoiceNumber);
+            entry.put("filename", file.getName());
+            entry.put("path", file.getAbsolutePath());
+            entry.put("uri", uri.toString());
+            entry.put("bytes", file.length());
+            entry.put("pages", result.pages);
+            files.put(entry);
+        }
+        if (failures.length() > 0) {
+            Log.w(TAG, "Batch " + batchId + ": " + failures.length() + " of " + total + " invoices failed");
+        }
+        JSObject result = new JSObject();
+        result.put("batchId", batchId);
+        result.put("files", files);
+        result.put("failures", failures);
+        return result;
+    }
+
+    // The compiled template for this company and logo, from the cache when
+    // the page sent the same ones before
+    private CompiledTemplate template(JSObject company, String logo) {
+        String[] fields = {
+            company.getString("name"), company.getString("address"), company.getString("email"),
+            company.getString("phone"), company.getString("website")
+        };
+        StringBuilder key = new StringBuilder();
+        for (String field : fields) {
+            key.append(field).append('\u0000');
+        }
+        if (logo != null) {
+            key.append(logo.length()).append(':').append(logo.hashCode());
+        }
+        CompiledTemplate template = templates.get(key.toString());
+        if (template == null) {
+            Bitmap image = decodeLogo(logo);
+            template = new CompiledTemplate(InvoiceTemplate.compile(
+                new InvoiceTemplate.Company(fields[0], fields[1], fields[2], fields[3], fields[4]),
+                image != null ? new InvoiceTemplate.Logo(image.getWidth(), image.getHeight()) : null), image);
+            templates.put(key.toString(), template);
+        }
+        return template;
+    }
+
+    // Any image BitmapFactory reads, shrunk to LOGO_MAX_DIMENSION and
+    // flattened onto white, as the logo prints on a white page. null when
+    // there is no logo or it cannot be decoded: the invoices are still rendered.
+    private static Bitmap decodeLogo(String logo) {
+        if (logo == null || logo.isEmpty()) {
+            return null;
+        }
+        try {
+            int comma = logo.startsWith("data:") ? logo.indexOf(',') : -1;
+            byte[] bytes = Base64.decode(logo.substring(comma + 1), Base64.DEFAULT);
+            BitmapFactory.Options bounds = new BitmapFactory.Options();
+            bounds.inJustDecodeBounds = true;
+            BitmapFactory.decodeByteArray(bytes, 0, bytes.length, bounds);
+            if (bounds.outWidth <= 0 || bounds.outHeight <= 0) {
+                Log.w(TAG, "Logo is not a readable image; rendering without it");
+                return null;
+            }
+            BitmapFactory.Options options = new BitmapFactory.Options();
+            options.inSampleSize = ImageDownscaler.sampleSize(bounds.outWidth, bounds.outHeight, LOGO_MAX_DIMENSION);
+            Bitmap decoded = BitmapFactory.decodeByteArray(bytes, 0, bytes.length, options);
+            if (decoded == null) {
+                return null;
+            }
+            int[] size = ImageDownscaler.fit(decoded.getWidth(), decoded.getHeight(), LOGO_MAX_DIMENSION);
+            Bitmap flat = Bitmap.createBitmap(size[0], size[1], Bitmap.Config.ARGB_8888);
+            try {
+                Canvas canvas = new Canvas(flat);
+                canvas.drawColor(Color.WHITE);
+                canvas.drawBitmap(decoded, null, new Rect(0, 0, size[0], size[1]), new Paint(Paint.FILTER_BITMAP_FLAG));
+                return flat;
+            } finally {
+                decoded.recycle();
+            }
+        } catch (IllegalArgumentException e) {
+            Log.w(TAG, "Logo could not be used; rendering without it", e);
+            return null;
+        }
+    }
+
+    // Invoice-<number>-<today>.pdf as the web download is named; repeated
+    // numbers get their position appended so no file overwrites another
+    private static String[] filenames(List<InvoiceData> invoices, String today) {
+        String[] names = new String[invoices.size()];
+        Set<String> used = new HashSet<>();
+        for (int i = 0; i < names.length; i++) {
+            String base = sanitizeFilename("Invoice-" + invoices.get(i).invoiceNumber + "-" + today);
+            String name = base + ".pdf";
+            if (!used.add(name)) {
+                name = base + "-" + (i + 1) + ".pdf";
+                used.add(name);
+            }
+            names[i] = name;
+        }
+        return names;
+    }
+
+    // error is null for an invoice that was written
+    private static JSObject outcome(int index, String invoiceId, String invoiceNumber, String error) {
+        JSObject outcome = new JSObject();
+        outcome.put("index", index);
+        outcome.put("invoiceId", invoiceId);
+        outcome.put("invoiceNumber", invoiceNumber);
+        if (error != null) {
+            outcome.put("error", error);
+        }
+        return outcome;
+    }
+
+    // { batchId, index, invoiceId, invoiceNumber, ok, error?, completed, total, done }
+    private void emitProgress(String batchId, JSObject event, int completed, int total) {
+        event.put("batchId", batchId);
+        event.put("ok", !event.has("error"));
+        event.put("completed", completed);
+        event.put("total", total);
+        event.put("done", completed == total);
+        NativeEventBus.getInstance().emit("invoiceProgress", event.toString());
+    }
+
+    private static String sanitizeFilename(String name) {
+        String cleaned = name.replaceAll("[^A-Za-z0-9._-]", "-");
+        return cleaned.isEmpty() || cleaned.startsWith(".") ? "invoice" + cleaned : cleaned;
+    }
+
+    private static void deleteDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        super.handleOnDestroy();
+        if (executor != null) {
+            executor.shutdown();
+        }
+        if (renderer != null) {
+            renderer.close();
+        }
+    }
+}
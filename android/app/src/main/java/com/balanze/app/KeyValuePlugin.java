@@ -0,0 +1,177 @@
+package com.balanze.app;
+
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Writes to the native key-value store (KeyValueStore). The page already has
+// every value from its startup snapshot (secrets from the BalanzeSecrets
+// listener) and updates its copy before calling write(), so nothing waits on
+// the reply except error reporting. Each write()
+// is one atomic batch; the log is compacted in the background when the app
+// goes to the background and most of it is overwritten values.
+@CapacitorPlugin(name = "KeyValue")
+public class KeyValuePlugin extends Plugin {
+
+    private static final String TAG = "KeyValue";
+
+    // Keeps writes in the order the page made them
+    private ExecutorService executor;
+
+    @Override
+    public void load() {
+        super.load();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    // { clear?: boolean, remove?: string[], set?: { key: string | number | boolean },
+    //   secrets?: { key: string } }, applied in that order -> { keys }
+    @PluginMethod
+    public void write(PluginCall call) {
+        KeyValueLog.Batch batch = new KeyValueLog.Batch();
+        try {
+            if (call.getBoolean("clear", false)) {
+                batch.clear();
+            }
+            JSArray remove = call.getArray("remove", new JSArray());
+            for (int i = 0; i < remove.length(); i++) {
+                batch.remove(remove.getString(i));
+            }
+            JSObject values = call.getObject("set", new JSObject());
+            for (Iterator<String> keys = values.keys(); keys.hasNext(); ) {
+                String key = keys.next();
+                put(batch, key, values.get(key));
+            }
+            JSObject secrets = call.getObject("secrets", new JSObject());
+            for (Iterator<String> keys = secrets.keys(); keys.hasNext(); ) {
+                String key = keys.next();
+                Object value = secrets.get(key);
+                if (value == JSONObject.NULL) {
+                    batch.remove(key);
+                } else if (value instanceof String) {
+                    batch.putSecret(key, (String) value);
+                } else {
+                    call.reject("Secret " + key + " must be a string");
+                    return;
+                }
+            }
+        } catch (JSONException | IllegalArgumentException e) {
+            call.reject(e.getMessage());
+            return;
+        }
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                KeyValueLog log = KeyValueStore.getInstance(getContext());
+                log.apply(batch);
+                log.sync();
+                JSObject result = new JSObject();
+                result.put("keys", log.size());
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "write failed", e);
+                call.reject(e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        }));
+    }
+
+    // -> { values: { key: value } }, the same as the startup snapshot: no secrets
+    @PluginMethod
+    public void getAll(PluginCall call) {
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                JSObject values = new JSObject();
+                for (Map.Entry<String, Object> entry : KeyValueStore.getInstance(getContext()).publicSnapshot().entrySet()) {
+                    values.put(entry.getKey(), entry.getValue());
+                }
+                JSObject result = new JSObject();
+                result.put("values", values);
+                call.resolve(result);
+            } catch (Exception e) {
+                call.reject(e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        }));
+    }
+
+    // -> { keys, logBytes, liveBytes }
+    @PluginMethod
+    public void getStatus(PluginCall call) {
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                call.resolve(status(KeyValueStore.getInstance(getContext())));
+            } catch (Exception e) {
+                call.reject(e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        }));
+    }
+
+    // Rewrites the log with only the live values -> { keys, logBytes, liveBytes }
+    @PluginMethod
+    public void compact(PluginCall call) {
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                KeyValueLog log = KeyValueStore.getInstance(getContext());
+                log.compact();
+                call.resolve(status(log));
+            } catch (Exception e) {
+                Log.e(TAG, "compact failed", e);
+                call.reject(e.getMessage() != null ? e.getMessage() : e.toString());
+            }
+        }));
+    }
+
+    @Override
+    protected void handleOnPause() {
+        super.handleOnPause();
+        executor.execute(() -> {
+            try {
+                if (KeyValueStore.getInstance(getContext()).compactIfWasteful()) {
+                    Log.i(TAG, "Compacted the key-value log");
+                }
+            } catch (Exception e) {
+                Log.w(TAG, "Background compaction failed", e);
+            }
+        });
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        executor.shutdown();
+        super.handleOnDestroy();
+    }
+
+    // Whole numbers are stored as longs, anything else numeric as a double
+    private static void put(KeyValueLog.Batch batch, String key, Object value) {
+        if (value == JSONObject.NULL) {
+            batch.remove(key);
+        } else if (value instanceof String) {
+            batch.putString(key, (String) value);
+        } else if (value instanceof Boolean) {
+            batch.putBoolean(key, (Boolean) value);
+        } else if (value instanceof Integer || value instanceof Long) {
+            batch.putLong(key, ((Number) value).longValue());
+        } else if (value instanceof Number) {
+            batch.putDouble(key, ((Number) value).doubleValue());
+        } else {
+            throw new IllegalArgumentException(
+                "Value of " + key + " must be a string, number or boolean; store objects as JSON strings");
+        }
+    }
+
+    private static JSObject status(KeyValueLog log) {
+        JSObject result = new JSObject();
+        result.put("keys", log.size());
+        result.put("logBytes", log.logBytes());
+        result.put("liveBytes", log.liveBytes());
+        return result;
+    }
+}
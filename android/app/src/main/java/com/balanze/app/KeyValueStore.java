@@ -0,0 +1,103 @@
+package com.balanze.app;
+
+import android.content.Context;
+import android.util.Log;
+import android.webkit.JavascriptInterface;
+import android.webkit.WebView;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.json.JSONObject;
+
+// The app's KeyValueLog (files/kv/store.log), opened once per process;
+// BalanzeApplication opens it off the main thread at startup. Secrets are
+// sealed with a Keystore key, so a restored backup has every value except
+// those.
+// Pages read the store once, synchronously, through the BalanzeKeyValue JS
+// interface (src/lib/nativeKeyValue.ts) and keep it in memory; writes go
+// through KeyValuePlugin. A JS interface is injected into every frame of
+// every origin the WebView shows (allowNavigation is open, Paddle checkout
+// runs in an iframe), so it never hands out secrets. Those are posted to
+// the BalanzeSecrets web message listener instead, which WebView only
+// exposes to the app's own origin, and are only answered for its top frame
+// (SecretAccess). WebViews without web message listeners (before 84) cannot
+// read secrets at all; the page then starts signed out.
+public class KeyValueStore {
+
+    private static final String TAG = "KeyValueStore";
+    static final String INTERFACE_NAME = "BalanzeKeyValue";
+    static final String SECRETS_LISTENER_NAME = "BalanzeSecrets";
+    private static final String KEY_ALIAS = "balanze_kv";
+
+    // Secret reads leave the main thread, where listeners are called
+    private static final ExecutorService secretReads = Executors.newSingleThreadExecutor();
+
+    private static KeyValueLog instance;
+
+    private final Context context;
+
+    private KeyValueStore(Context context) {
+        this.context = context.getApplicationContext();
+    }
+
+    public static synchronized KeyValueLog getInstance(Context context) throws IOException {
+        if (instance == null) {
+            File file = new File(new File(context.getApplicationContext().getFilesDir(), "kv"), "store.log");
+            instance = new KeyValueLog(file, new KeystoreValueCipher(KEY_ALIAS));
+        }
+        return instance;
+    }
+
+    // Main thread, before the first page loads. appUrl is the bridge's local URL.
+    public static void install(WebView webView, String appUrl) {
+        Context context = webView.getContext();
+        webView.addJavascriptInterface(new KeyValueStore(context), INTERFACE_NAME);
+
+        if (!WebViewFeature.isFeatureSupported(WebViewFeature.WEB_MESSAGE_LISTENER)) {
+            Log.w(TAG, "WebView has no web message listeners, secrets are not readable");
+            return;
+        }
+        SecretAccess access = new SecretAccess(appUrl);
+        WebViewCompat.addWebMessageListener(webView, SECRETS_LISTENER_NAME,
+            Collections.singleton(access.appOrigin()),
+            (view, message, sourceOrigin, isMainFrame, replyProxy) -> {
+                long startedAt = BridgeMetrics.now();
+                String origin = sourceOrigin.toString();
+                secretReads.execute(() -> {
+                    String json;
+                    try {
+                        json = new JSONObject(access.secretsFor(getInstance(context), origin, isMainFrame)).toString();
+                    } catch (Exception e) {
+                        Log.e(TAG, "Could not read secrets", e);
+                        json = "{}";
+                    }
+                    String reply = json;
+                    view.post(() -> {
+                        replyProxy.postMessage(reply);
+                        BridgeMetrics.getInstance().record(SECRETS_LISTENER_NAME, "read", 0, 0, BridgeMetrics.now() - startedAt);
+                    });
+                });
+            });
+    }
+
+    // JavaBridge thread. { key: value } without secrets, or null when the
+    // store cannot be opened and the page should keep using localStorage.
+    @JavascriptInterface
+    public String snapshot() {
+        long startedAt = BridgeMetrics.now();
+        try {
+            Map<String, Object> values = getInstance(context).publicSnapshot();
+            String json = new JSONObject(values).toString();
+            BridgeMetrics.getInstance().record(INTERFACE_NAME, "snapshot", 0, 0, BridgeMetrics.now() - startedAt);
+            return json;
+        } catch (Exception e) {
+            Log.e(TAG, "Could not open the key-value store", e);
+            return null;
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package com.balanze.app;
+
+import android.security.keystore.KeyGenParameterSpec;
+import android.security.keystore.KeyProperties;
+import java.io.IOException;
+import java.security.GeneralSecurityException;
+import java.security.KeyStore;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+// AES-GCM for KeyValueLog secrets, with a key that is created in and never
+// leaves the Android Keystore. Sealed values are [iv length][iv][ciphertext
+// and tag]; the Keystore picks the IV.
+public class KeystoreValueCipher implements KeyValueLog.ValueCipher {
+
+    private static final String KEYSTORE = "AndroidKeyStore";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int TAG_BITS = 128;
+
+    private final String alias;
+    private SecretKey key;
+
+    public KeystoreValueCipher(String alias) {
+        this.alias = alias;
+    }
+
+    @Override
+    public byte[] encrypt(byte[] plain) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.ENCRYPT_MODE, key());
+        byte[] iv = cipher.getIV();
+        byte[] sealed = cipher.doFinal(plain);
+        byte[] out = new byte[1 + iv.length + sealed.length];
+        out[0] = (byte) iv.length;
+        System.arraycopy(iv, 0, out, 1, iv.length);
+        System.arraycopy(sealed, 0, out, 1 + iv.length, sealed.length);
+        return out;
+    }
+
+    @Override
+    public byte[] decrypt(byte[] sealed) throws GeneralSecurityException {
+        if (sealed.length == 0 || sealed.length < 1 + (sealed[0] & 0xff)) {
+            throw new GeneralSecurityException("Truncated value");
+        }
+        int ivLength = sealed[0] & 0xff;
+        Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+        cipher.init(Cipher.DECRYPT_MODE, key(), new GCMParameterSpec(TAG_BITS, sealed, 1, ivLength));
+        return cipher.doFinal(sealed, 1 + ivLength, sealed.length - 1 - ivLength);
+    }
+
+    private synchronized SecretKey key() throws GeneralSecurityException {
+        if (key != null) {
+            return key;
+        }
+        KeyStore keyStore = KeyStore.getInstance(KEYSTORE);
+        try {
+            keyStore.load(null);
+        } catch (IOException e) {
+            throw new GeneralSecurityException("Could not load " + KEYSTORE, e);
+        }
+        KeyStore.Entry entry = keyStore.getEntry(alias, null);
+        if (entry instanceof KeyStore.SecretKeyEntry) {
+            key = ((KeyStore.SecretKeyEntry) entry).getSecretKey();
+            return key;
+        }
+        KeyGenerator generator = KeyGenerator.getInstance(KeyProperties.KEY_ALGORITHM_AES, KEYSTORE);
+        generator.init(new KeyGenParameterSpec.Builder(alias,
+                KeyProperties.PURPOSE_ENCRYPT | KeyProperties.PURPOSE_DECRYPT)
+            .setBlockModes(KeyProperties.BLOCK_MODE_GCM)
+            .setEncryptionPaddings(KeyProperties.ENCRYPTION_PADDING_NONE)
+            .setKeySize(256)
+            .build());
+        key = generator.generateKey();
+        return key;
+    }
+}
@@ -0,0 +1,73 @@
+package com.balanze.app;
+
+import android.content.Context;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+
+// Local SQLite replica of the finance tables.
+// Every table has the same shape: the full Supabase row is kept as JSON in
+// `data`, and the fields we filter/sort on are copied into indexed columns.
+public class LedgerDatabase extends SQLiteOpenHelper {
+
+    public static final String DATABASE_NAME = "balanze_ledger.db";
+    private static final int DATABASE_VERSION = 2;
+
+    private static LedgerDatabase instance;
+
+    // Pass a null name to get an in-memory database (used by the unit tests)
+    public LedgerDatabase(Context context, String name) {
+        super(context, name, null, DATABASE_VERSION);
+        setWriteAheadLoggingEnabled(true);
+    }
+
+    // Plugins share one helper so they share one connection pool and WAL
+    public static synchronized LedgerDatabase getInstance(Context context) {
+        if (instance == null) {
+            instance = new LedgerDatabase(context.getApplicationContext(), DATABASE_NAME);
+        }
+        return instance;
+    }
+
+    @Override
+    public void onConfigure(SQLiteDatabase db) {
+        super.onConfigure(db);
+        // NORMAL is durable enough in WAL mode and avoids an fsync per commit
+        db.execSQL("PRAGMA synchronous = NORMAL");
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        for (LedgerTable table : LedgerTable.values()) {
+            String t = table.tableName;
+            db.execSQL("CREATE TABLE " + t + " ("
+                + "id TEXT PRIMARY KEY NOT NULL, "
+                + "user_id TEXT NOT NULL, "
+                + "account_id TEXT, "
+                + "category TEXT, "
+                + "date TEXT NOT NULL DEFAULT '', "
+                + "updated_at TEXT, "
+                + "data TEXT NOT NULL)");
+            // Paging always walks (date DESC, id DESC), so every index ends with those columns
+            db.execSQL("CREATE INDEX idx_" + t + "_user_date ON " + t + " (user_id, date, id)");
+            db.execSQL("CREATE INDEX idx_" + t + "_account_date ON " + t + " (user_id, account_id, date, id)");
+            db.execSQL("CREATE INDEX idx_" + t + "_category_date ON " + t + " (user_id, category, date, id)");
+        }
+        // Delta sync high-water mark: the (updated_at, id) of the last row merged per table
+        db.execSQL("CREATE TABLE sync_state ("
+            + "table_name TEXT NOT NULL, "
+            + "user_id TEXT NOT NULL, "
+            + "updated_at TEXT, "
+            + "last_id TEXT NOT NULL, "
+            + "PRIMARY KEY (table_name, user_id))");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // The ledger is a cache of Supabase data, so it is safe to rebuild it
+        for (LedgerTable table : LedgerTable.values()) {
+            db.execSQL("DROP TABLE IF EXISTS " + table.tableName);
+        }
+        db.execSQL("DROP TABLE IF EXISTS sync_state");
+        onCreate(db);
+    }
+}
@@ -0,0 +1,321 @@
+package com.balanze.app;
+
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Exposes the local SQLite ledger to the web layer.
+// The finance store keeps transactions and purchases in it: each fetch
+// delta-syncs the table and reads the list back with query().
+@CapacitorPlugin(name = "Ledger")
+public class LedgerPlugin extends Plugin {
+
+    private static final String TAG = "Ledger";
+
+    private LedgerStore store;
+    // All database work is serialized on one thread so plugin calls never block each other
+    private ExecutorService executor;
+
+    @Override
+    public void load() {
+        super.load();
+        store = new LedgerStore(LedgerDatabase.getInstance(getContext()));
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @PluginMethod
+    public void upsert(PluginCall call) {
+        LedgerTable table = resolveTable(call);
+        JSArray rows = call.getArray("rows");
+        if (table == null) {
+            return;
+        }
+        if (rows == null) {
+            call.reject("rows is required");
+            return;
+        }
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                int written = store.upsert(table, rows);
+                JSObject result = new JSObject();
+                result.put("count", written);
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Upsert into " + table.tableName + " failed", e);
+                call.reject("Failed to write " + table.tableName + ": " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    @PluginMethod
+    public void remove(PluginCall call) {
+        LedgerTable table = resolveTable(call);
+        JSArray ids = call.getArray("ids");
+        if (table == null) {
+            return;
+        }
+        if (ids == null) {
+            call.reject("ids is required");
+            return;
+        }
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                List<String> idList = new ArrayList<>(ids.length());
+                for (int i = 0; i < ids.length(); i++) {
+                    idList.add(ids.getString(i));
+                }
+                JSObject result = new JSObject();
+                result.put("count", store.delete(table, idList));
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Delete from " + table.tableName + " failed", e);
+                call.reject("Failed to delete from " + table.tableName + ": " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    @PluginMethod
+    public void query(PluginCall call) {
+        LedgerTable table = resolveTable(call);
+        String userId = call.getString("userId");
+        if (table == null) {
+            return;
+        }
+        if (userId == null) {
+            call.reject("userId is required");
+            return;
+        }
+
+        LedgerStore.Query query = new LedgerStore.Query();
+        query.userId = userId;
+        query.accountId = call.getString("accountId");
+        query.category = call.getString("category");
+        query.fromDate = call.getString("from");
+        query.toDate = call.getString("to");
+        query.limit = call.getInt("limit", LedgerStore.DEFAULT_PAGE_SIZE);
+        JSObject cursor = call.getObject("cursor");
+        if (cursor != null) {
+            query.cursorDate = cursor.getString("date");
+            query.cursorId = cursor.getString("id");
+        }
+
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                LedgerStore.Page page = store.query(table, query);
+                JSArray rows = new JSArray();
+                for (String row : page.rows) {
+                    rows.put(new JSONObject(row));
+                }
+                JSObject result = new JSObject();
+                result.put("rows", rows);
+                if (page.hasMore()) {
+                    JSObject next = new JSObject();
+                    next.put("date", page.nextCursorDate);
+                    next.put("id", page.nextCursorId);
+                    result.put("nextCursor", next);
+                } else {
+                    result.put("nextCursor", JSONObject.NULL);
+                }
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Query on " + table.tableName + " failed", e);
+                call.reject("Failed to query " + table.tableName + ": " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    // Every matching row, newest first, as one columnar batch on the bulk
+    // transfer channel instead of a JSON result.
+    // { table, userId, transferId, fields?, accountId?, category?, from?, to? } -> { transferId, rows, bytes }
+    // Rejects with code UNAVAILABLE when no page is listening on the channel,
+    // so the caller can fall back to query().
+    @PluginMethod
+    public void queryBulk(PluginCall call) {
+        LedgerTable table = resolveTable(call);
+        String userId = call.getString("userId");
+        Integer transferId = call.getInt("transferId");
+        if (table == null) {
+            return;
+        }
+        if (userId == null || transferId == null) {
+            call.reject("userId and transferId are required");
+            return;
+        }
+        BulkTransferChannel channel = BulkTransferChannel.getInstance();
+        if (!channel.isConnected()) {
+            call.reject("Bulk transfer channel is not connected", "UNAVAILABLE");
+            return;
+        }
+
+        LedgerStore.Query query = new LedgerStore.Query();
+        query.userId = userId;
+        query.accountId = call.getString("accountId");
+        query.category = call.getString("category");
+        query.fromDate = call.getString("from");
+        query.toDate = call.getString("to");
+        JSArray fields = call.getArray("fields");
+
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                ColumnarEncoder encoder = fields != null ? new ColumnarEncoder(fields.toList()) : new ColumnarEncoder();
+                store.forEach(table, query, "date", false, row -> {
+                    try {
+                        encoder.add(new JSONObject(row));
+                    } catch (JSONException e) {
+                        throw new IOException("Corrupt row in " + table.tableName, e);
+                    }
+                });
+                byte[] batch = encoder.encode(transferId);
+                if (!channel.send(batch)) {
+                    call.reject("Bulk transfer channel closed", "UNAVAILABLE");
+                    return;
+                }
+                JSObject result = new JSObject();
+                result.put("transferId", transferId);
+                result.put("rows", encoder.size());
+                result.put("bytes", batch.length);
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Bulk query on " + table.tableName + " failed", e);
+                call.reject("Failed to query " + table.tableName + ": " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    // Pulls rows changed since the last sync for each table and merges them
+    // locally. Every merged batch is announced with a "ledgerChange" event
+    // carrying only the changed ids, so the UI can re-query what it shows.
+    @PluginMethod
+    public void sync(PluginCall call) {
+        String userId = call.getString("userId");
+        String accessToken = call.getString("accessToken");
+        String supabaseUrl = call.getString("supabaseUrl");
+        String anonKey = call.getString("anonKey");
+        if (userId == null || accessToken == null || supabaseUrl == null || anonKey == null) {
+            call.reject("userId, accessToken, supabaseUrl and anonKey are required");
+            return;
+        }
+
+        List<LedgerTable> tables = new ArrayList<>();
+        JSArray requested = call.getArray("tables");
+        try {
+            if (requested == null) {
+                for (LedgerTable table : LedgerTable.values()) {
+                    tables.add(table);
+                }
+            } else {
+                for (int i = 0; i < requested.length(); i++) {
+                    tables.add(LedgerTable.fromName(requested.getString(i)));
+                }
+            }
+        } catch (Exception e) {
+            call.reject(e.getMessage());
+            return;
+        }
+
+        DeltaSyncEngine engine = new DeltaSyncEngine(
+            store,
+            new SupabaseRowSource(supabaseUrl, anonKey, accessToken),
+            this::emitChangeSet
+        );
+
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            JSObject merged = new JSObject();
+            for (LedgerTable table : tables) {
+                try {
+                    merged.put(table.tableName, engine.syncTable(table, userId));
+                } catch (Exception e) {
+                    // Batches merged before the failure are kept; the next sync resumes after them
+                    Log.e(TAG, "Delta sync of " + table.tableName + " failed", e);
+                    call.reject("Failed to sync " + table.tableName + ": " + e.getMessage(), e);
+                    return;
+                }
+            }
+            JSObject result = new JSObject();
+            result.put("merged", merged);
+            call.resolve(result);
+        }));
+    }
+
+    @PluginMethod
+    public void count(PluginCall call) {
+        LedgerTable table = resolveTable(call);
+        String userId = call.getString("userId");
+        if (table == null) {
+            return;
+        }
+        if (userId == null) {
+            call.reject("userId is required");
+            return;
+        }
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                JSObject result = new JSObject();
+                result.put("count", store.count(table, userId));
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Count on " + table.tableName + " failed", e);
+                call.reject("Failed to count " + table.tableName + ": " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    @PluginMethod
+    public void clear(PluginCall call) {
+        String userId = call.getString("userId");
+        if (userId == null) {
+            call.reject("userId is required");
+            return;
+        }
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                store.clear(userId);
+                call.resolve();
+            } catch (Exception e) {
+                Log.e(TAG, "Clearing the ledger failed", e);
+                call.reject("Failed to clear the ledger: " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        super.handleOnDestroy();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    private void emitChangeSet(DeltaSyncEngine.ChangeSet changeSet) {
+        JSObject event = new JSObject();
+        event.put("table", changeSet.table.tableName);
+        event.put("ids", new JSArray(changeSet.upsertedIds));
+        event.put("highWaterMark", changeSet.highWaterMark);
+        NativeEventBus.getInstance().emit("ledgerChange", event.toString());
+    }
+
+    private LedgerTable resolveTable(PluginCall call) {
+        String name = call.getString("table");
+        if (name == null) {
+            call.reject("table is required");
+            return null;
+        }
+        try {
+            return LedgerTable.fromName(name);
+        } catch (IllegalArgumentException e) {
+            call.reject(e.getMessage());
+            return null;
+        }
+    }
+}
@@ -0,0 +1,255 @@
+package com.balanze.app;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Read/write access to the local ledger.
+// Results are paged with a keyset cursor on (date, id) so the WebView only
+// ever holds one page of rows instead of whole tables.
+public class LedgerStore implements DeltaSyncEngine.Ledger {
+
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+
+    private final LedgerDatabase database;
+
+    public LedgerStore(LedgerDatabase database) {
+        this.database = database;
+    }
+
+    public static class Query {
+        public String userId;
+        public String accountId;
+        public String category;
+        // Inclusive ISO date bounds, compared as strings
+        public String fromDate;
+        public String toDate;
+        // Last row of the previous page; both null for the first page
+        public String cursorDate;
+        public String cursorId;
+        public int limit = DEFAULT_PAGE_SIZE;
+    }
+
+    public static class Page {
+        public final List<String> rows;
+        public final String nextCursorDate;
+        public final String nextCursorId;
+
+        Page(List<String> rows, String nextCursorDate, String nextCursorId) {
+            this.rows = rows;
+            this.nextCursorDate = nextCursorDate;
+            this.nextCursorId = nextCursorId;
+        }
+
+        public boolean hasMore() {
+            return nextCursorId != null;
+        }
+    }
+
+    // Inserts or replaces the given Supabase rows in a single transaction
+    public int upsert(LedgerTable table, JSONArray rows) throws JSONException {
+        SQLiteDatabase db = database.getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO " + table.tableName
+            + " (id, user_id, account_id, category, date, updated_at, data) VALUES (?, ?, ?, ?, ?, ?, ?)");
+        int written = 0;
+        db.beginTransaction();
+        try {
+            for (int i = 0; i < rows.length(); i++) {
+                JSONObject row = rows.getJSONObject(i);
+                insert.clearBindings();
+                insert.bindString(1, row.getString("id"));
+                insert.bindString(2, row.getString("user_id"));
+                bindOptional(insert, 3, row, table.accountField);
+                bindOptional(insert, 4, row, table.categoryField);
+                // Undated rows sort last; storing '' keeps ORDER BY on the plain indexed column
+                insert.bindString(5, row.isNull(table.dateField) ? "" : row.getString(table.dateField));
+                bindOptional(insert, 6, row, "updated_at");
+                insert.bindString(7, row.toString());
+                insert.executeInsert();
+                written++;
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+        return written;
+    }
+
+    @Override
+    public DeltaSyncEngine.SyncMark getSyncMark(LedgerTable table, String userId) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT updated_at, last_id FROM sync_state WHERE table_name = ? AND user_id = ?",
+            new String[] { table.tableName, userId })) {
+            if (!cursor.moveToFirst()) {
+                return null;
+            }
+            return new DeltaSyncEngine.SyncMark(cursor.isNull(0) ? null : cursor.getString(0), cursor.getString(1));
+        }
+    }
+
+    // Merges a delta batch and advances the high-water mark atomically, so an
+    // interrupted sync resumes from the last batch that was fully written
+    @Override
+    public int merge(LedgerTable table, String userId, JSONArray rows, DeltaSyncEngine.SyncMark mark) throws JSONException {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            int written = upsert(table, rows);
+            ContentValues values = new ContentValues();
+            values.put("table_name", table.tableName);
+            values.put("user_id", userId);
+            values.put("updated_at", mark.updatedAt);
+            values.put("last_id", mark.lastId);
+            db.insertWithOnConflict("sync_state", null, values, SQLiteDatabase.CONFLICT_REPLACE);
+            db.setTransactionSuccessful();
+            return written;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    public int delete(LedgerTable table, List<String> ids) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        SQLiteStatement delete = db.compileStatement("DELETE FROM " + table.tableName + " WHERE id = ?");
+        int removed = 0;
+        db.beginTransaction();
+        try {
+            for (String id : ids) {
+                delete.bindString(1, id);
+                removed += delete.executeUpdateDelete();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            delete.close();
+        }
+        return removed;
+    }
+
+    public Page query(LedgerTable table, Query query) {
+        int limit = Math.max(1, Math.min(query.limit, MAX_PAGE_SIZE));
+        List<String> args = new ArrayList<>();
+        StringBuilder where = buildWhere(query, args);
+        if (query.cursorId != null) {
+            String cursorDate = query.cursorDate != null ? query.cursorDate : "";
+            where.append(" AND (date < ? OR (date = ? AND id < ?))");
+            args.add(cursorDate);
+            args.add(cursorDate);
+            args.add(query.cursorId);
+        }
+
+        // Fetch one extra row to know whether another page exists
+        String sql = "SELECT id, date, data FROM " + table.tableName
+            + " WHERE " + where
+            + " ORDER BY date DESC, id DESC LIMIT " + (limit + 1);
+
+        List<String> rows = new ArrayList<>(limit);
+        String lastDate = null;
+        String lastId = null;
+        boolean hasMore = false;
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.rawQuery(sql, args.toArray(new String[0]))) {
+            while (cursor.moveToNext()) {
+                if (rows.size() == limit) {
+                    hasMore = true;
+                    break;
+                }
+                lastId = cursor.getString(0);
+                lastDate = cursor.getString(1);
+                rows.add(cursor.getString(2));
+            }
+        }
+        return hasMore ? new Page(rows, lastDate, lastId) : new Page(rows, null, null);
+    }
+
+    public interface RowVisitor {
+        void visit(String json) throws IOException;
+    }
+
+    // Streams every matching row to the visitor straight from the cursor, so
+    // callers such as the exporter never hold more than one row at a time.
+    // orderBy is one of the indexed columns: date, category or account_id.
+    public int forEach(LedgerTable table, Query query, String orderBy, boolean ascending, RowVisitor visitor)
+        throws IOException {
+        String column = "category".equals(orderBy) || "account_id".equals(orderBy) ? orderBy : "date";
+        String direction = ascending ? " ASC" : " DESC";
+        List<String> args = new ArrayList<>();
+        String sql = "SELECT data FROM " + table.tableName
+            + " WHERE " + buildWhere(query, args)
+            + " ORDER BY " + column + direction + (column.equals("date") ? "" : ", date" + direction)
+            + ", id" + direction;
+
+        int visited = 0;
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.rawQuery(sql, args.toArray(new String[0]))) {
+            while (cursor.moveToNext()) {
+                visitor.visit(cursor.getString(0));
+                visited++;
+            }
+        }
+        return visited;
+    }
+
+    public long count(LedgerTable table, String userId) {
+        SQLiteDatabase db = database.getReadableDatabase();
+        try (Cursor cursor = db.rawQuery("SELECT COUNT(*) FROM " + table.tableName + " WHERE user_id = ?",
+            new String[] { userId })) {
+            return cursor.moveToFirst() ? cursor.getLong(0) : 0;
+        }
+    }
+
+    // Removes every row belonging to the user, e.g. on sign-out
+    public void clear(String userId) {
+        SQLiteDatabase db = database.getWritableDatabase();
+        db.beginTransaction();
+        try {
+            for (LedgerTable table : LedgerTable.values()) {
+                db.delete(table.tableName, "user_id = ?", new String[] { userId });
+            }
+            db.delete("sync_state", "user_id = ?", new String[] { userId });
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    private static StringBuilder buildWhere(Query query, List<String> args) {
+        StringBuilder where = new StringBuilder("user_id = ?");
+        args.add(query.userId);
+        if (query.accountId != null) {
+            where.append(" AND account_id = ?");
+            args.add(query.accountId);
+        }
+        if (query.category != null) {
+            where.append(" AND category = ?");
+            args.add(query.category);
+        }
+        if (query.fromDate != null) {
+            where.append(" AND date >= ?");
+            args.add(query.fromDate);
+        }
+        if (query.toDate != null) {
+            // Dates may carry a time part, so compare against the end of the day
+            where.append(" AND date <= ?");
+            args.add(query.toDate.length() == 10 ? query.toDate + "T23:59:59.999Z" : query.toDate);
+        }
+        return where;
+    }
+
+    private static void bindOptional(SQLiteStatement statement, int index, JSONObject row, String field) {
+        if (field == null || row.isNull(field)) {
+            statement.bindNull(index);
+        } else {
+            statement.bindString(index, row.optString(field));
+        }
+    }
+}
@@ -6,149 +6,61 @@ import android.os.Bundle;
 import android.os.Build;
 import android.util.Log;
 import android.view.View;
+import android.view.ViewTreeObserver;
 import android.view.Window;
 import android.view.WindowManager;
 import android.webkit.JavascriptInterface;
+import android.webkit.WebSettings;
 import android.webkit.WebView;
-import android.graphics.drawable.GradientDrawable;
 import androidx.core.view.WindowCompat;
 import androidx.core.view.WindowInsetsControllerCompat;
 import androidx.activity.result.ActivityResultLauncher;
 import androidx.activity.result.contract.ActivityResultContracts;
 import com.getcapacitor.BridgeActivity;
-import com.getcapacitor.PluginCall;
-import com.getcapacitor.JSObject;
-import com.getcapacitor.MessageHandler;
+import java.io.FileDescriptor;
+import java.io.PrintWriter;
 import org.json.JSONObject;
-import com.google.android.gms.auth.api.signin.GoogleSignInClient;
 
 public class MainActivity extends BridgeActivity {
     
     private GoogleSignInJSInterface googleSignInInterface;
+    private StartupTrace startupTrace;
     
     // JavaScript interface to call plugin directly
     public class GoogleSignInJSInterface {
-        private GoogleSignInClient googleSignInClient;
-        private static final int RC_SIGN_IN = 9001;
         private String pendingCallbackId;
         private ActivityResultLauncher<Intent> signInLauncher;
         
-        private void initializeGoogleSignIn() {
-            if (googleSignInClient != null) {
-                Log.e("GoogleSignInJS", "✅ Already initialized");
-                return; // Already initialized
-            }
-            
-            try {
-                // Get server client ID from capacitor config
-                // Try different paths to find the config
-                String serverClientId = "";
-                
-                // Try plugins.GoogleSignIn.serverClientId first
-                try {
-                    String pluginsJson = bridge.getConfig().getString("plugins", "");
-                    if (!pluginsJson.isEmpty()) {
-                        org.json.JSONObject plugins = new org.json.JSONObject(pluginsJson);
-                        org.json.JSONObject googleSignInConfig = plugins.optJSONObject("GoogleSignIn");
-                        if (googleSignInConfig != null) {
-                            serverClientId = googleSignInConfig.optString("serverClientId", "");
-                        }
-                    }
-                    Log.e("GoogleSignInJS", "📋 Got serverClientId from plugins.GoogleSignIn.serverClientId: " + (serverClientId.isEmpty() ? "EMPTY" : serverClientId.substring(0, Math.min(20, serverClientId.length())) + "..."));
-                } catch (Exception e1) {
-                    Log.e("GoogleSignInJS", "⚠️ Failed to get from plugins.GoogleSignIn: " + e1.getMessage());
-                    // Fallback: Use hardcoded value from capacitor.config.ts
-                    // The config value is: "684747632135-l7g9s4u1ka3tbjll9eu0avga2jmcs7m1.apps.googleusercontent.com"
-                    serverClientId = "684747632135-l7g9s4u1ka3tbjll9eu0avga2jmcs7m1.apps.googleusercontent.com";
-                    Log.e("GoogleSignInJS", "📋 Using hardcoded serverClientId: " + serverClientId.substring(0, Math.min(20, serverClientId.length())) + "...");
-                }
-                
-                if (serverClientId.isEmpty()) {
-                    Log.e("GoogleSignInJS", "❌ serverClientId is EMPTY - cannot initialize");
-                    return;
-                }
-                
-                Log.e("GoogleSignInJS", "✅ Initializing GoogleSignInClient with serverClientId");
-                Log.e("GoogleSignInJS", "📋 Full serverClientId: " + serverClientId);
-                
-                // Check Google Play Services availability
-                try {
-                    int playServicesStatus = com.google.android.gms.common.GoogleApiAvailability.getInstance()
-                        .isGooglePlayServicesAvailable(MainActivity.this);
-                    if (playServicesStatus == com.google.android.gms.common.ConnectionResult.SUCCESS) {
-                        Log.e("GoogleSignInJS", "✅ Google Play Services is available");
-                    } else {
-                        Log.e("GoogleSignInJS", "❌ Google Play Services not available. Status: " + playServicesStatus);
-                        Log.e("GoogleSignInJS", "   ConnectionResult codes: SUCCESS=0, SERVICE_MISSING=1, SERVICE_VERSION_UPDATE_REQUIRED=2");
-                    }
-                } catch (Exception e) {
-                    Log.e("GoogleSignInJS", "⚠️ Error checking Google Play Services: " + e.getMessage());
-                }
-                
-                com.google.android.gms.auth.api.signin.GoogleSignInOptions gso = 
-                    new com.google.android.gms.auth.api.signin.GoogleSignInOptions.Builder(
-                        com.google.android.gms.auth.api.signin.GoogleSignInOptions.DEFAULT_SIGN_IN)
-                        .requestIdToken(serverClientId)
-                        .requestEmail()
-                        .requestProfile()
-                        .build();
-                
-                googleSignInClient = com.google.android.gms.auth.api.signin.GoogleSignIn.getClient(
-                    MainActivity.this, gso);
-                Log.e("GoogleSignInJS", "✅ GoogleSignInClient initialized successfully");
-                String packageName = MainActivity.this.getPackageName();
-                Log.e("GoogleSignInJS", "📋 Actual package name from app: " + packageName);
-                Log.e("GoogleSignInJS", "📋 Expected package name: com.balanze.app");
-                Log.e("GoogleSignInJS", "📋 Package name matches: " + "com.balanze.app".equals(packageName));
-                Log.e("GoogleSignInJS", "📋 Make sure this serverClientId matches your Web Client ID in Google Cloud Console");
-                Log.e("GoogleSignInJS", "📋 IMPORTANT: Android OAuth client must exist with package name and SHA-1 configured");
-            } catch (Exception e) {
-                Log.e("GoogleSignInJS", "❌ Error initializing GoogleSignInClient:", e);
-                e.printStackTrace();
-            }
+        // Runs off the main thread after the first frame, so signIn() finds the client ready
+        void warmUp() {
+            PlayServicesAuthBackend.shared(MainActivity.this).warmUp();
         }
         
         @JavascriptInterface
         public void signIn(String callbackId) {
-            Log.e("GoogleSignInJS", "========================================");
-            Log.e("GoogleSignInJS", "signIn() called from JavaScript interface");
-            Log.e("GoogleSignInJS", "Callback ID: " + callbackId);
-            Log.e("GoogleSignInJS", "========================================");
+            signInWithPrompt(callbackId, GoogleAuthClient.PROMPT_SELECT_ACCOUNT);
+        }
+        
+        // prompt: none | select_account | consent, see GoogleAuthClient
+        @JavascriptInterface
+        public void signInWithPrompt(String callbackId, String prompt) {
+            long startedAt = BridgeMetrics.now();
+            Log.e("GoogleSignInJS", "signIn() called from JavaScript interface, callback " + callbackId + ", prompt " + prompt);
             
             pendingCallbackId = callbackId;
-            
-            // Initialize if needed
-            initializeGoogleSignIn();
-            
-            if (googleSignInClient == null) {
-                Log.e("GoogleSignInJS", "❌ GoogleSignInClient is null");
-                sendResultToJS(callbackId, null, "Google Sign-In not initialized");
-                return;
-            }
-            
-            Activity activity = MainActivity.this;
-            if (activity == null) {
-                Log.e("GoogleSignInJS", "❌ Activity is null");
-                sendResultToJS(callbackId, null, "Activity is null");
-                return;
-            }
-            
-            // ALWAYS sign out and revoke access to force account picker to show
-            Log.e("GoogleSignInJS", "🔄 Signing out and revoking access to force account picker...");
-            
-            // First sign out
-            googleSignInClient.signOut().addOnCompleteListener(activity, signOutTask -> {
-                Log.e("GoogleSignInJS", "✅ Sign out completed");
+            PlayServicesAuthBackend.shared(MainActivity.this).signIn(prompt, new GoogleAuthClient.Flow() {
+                @Override
+                public void onAccount(GoogleAuthClient.Account account) {
+                    Log.e("GoogleSignInJS", "✅ Signed in silently, sending result to JS");
+                    pendingCallbackId = null;
+                    sendResultToJS(callbackId, PlayServicesAuthBackend.toJSObject(account).toString(), null);
+                }
                 
-                // Then revoke access to clear all cached account data
-                googleSignInClient.revokeAccess().addOnCompleteListener(activity, revokeTask -> {
-                    Log.e("GoogleSignInJS", "✅ Access revoked, account cache cleared");
-                    
-                    // Now show the sign-in intent - this should always show account picker
+                @Override
+                public void showPicker() {
                     try {
-                        android.content.Intent signInIntent = googleSignInClient.getSignInIntent();
                         if (signInLauncher != null) {
-                            signInLauncher.launch(signInIntent);
+                            signInLauncher.launch(PlayServicesAuthBackend.signInIntent(MainActivity.this));
                             Log.e("GoogleSignInJS", "✅ Sign-In intent started - account picker should appear");
                         } else {
                             Log.e("GoogleSignInJS", "❌ signInLauncher is null - not initialized");
@@ -159,8 +71,24 @@ public class MainActivity extends BridgeActivity {
                         e.printStackTrace();
                         sendResultToJS(callbackId, null, "Failed to start sign-in: " + e.getMessage());
                     }
-                });
+                }
+                
+                @Override
+                public void onError(String message) {
+                    Log.e("GoogleSignInJS", "❌ " + message);
+                    pendingCallbackId = null;
+                    sendResultToJS(callbackId, null, message);
+                }
             });
+            BridgeMetrics.getInstance().record("GoogleSignInNative", "signInWithPrompt",
+                length(callbackId) + length(prompt), 0, BridgeMetrics.now() - startedAt);
+        }
+        
+        @JavascriptInterface
+        public void signOut() {
+            long startedAt = BridgeMetrics.now();
+            PlayServicesAuthBackend.shared(MainActivity.this).signOut(() -> Log.e("GoogleSignInJS", "✅ Signed out"));
+            BridgeMetrics.getInstance().record("GoogleSignInNative", "signOut", 0, 0, BridgeMetrics.now() - startedAt);
         }
         
         void handleSignInResult(android.content.Intent data) {
@@ -186,16 +114,9 @@ public class MainActivity extends BridgeActivity {
                         Log.e("GoogleSignInJS", "✅ Account retrieved - Email: " + account.getEmail());
                         Log.e("GoogleSignInJS", "✅ ID Token present: " + (idToken != null && !idToken.isEmpty()));
                         
-                        JSObject result = new JSObject();
-                        result.put("success", true);
-                        result.put("idToken", idToken);
-                        result.put("email", account.getEmail());
-                        result.put("displayName", account.getDisplayName());
-                        result.put("photoUrl", account.getPhotoUrl() != null ? account.getPhotoUrl().toString() : null);
-                        result.put("id", account.getId());
-                        
+                        String result = PlayServicesAuthBackend.toJSObject(PlayServicesAuthBackend.toAccount(account)).toString();
                         Log.e("GoogleSignInJS", "✅ Sign-in successful, sending result to JS");
-                        sendResultToJS(callbackId, result.toString(), null);
+                        sendResultToJS(callbackId, result, null);
                     } else {
                         Log.e("GoogleSignInJS", "❌ Account is null");
                         sendResultToJS(callbackId, null, "Sign in failed: account is null");
@@ -262,84 +183,95 @@ public class MainActivity extends BridgeActivity {
             });
         }
         
-        private PluginCall createCustomPluginCall(String callbackId) {
-            // Use reflection to access Bridge's internal MessageHandler
-            try {
-                // Try to get MessageHandler from Bridge
-                java.lang.reflect.Field messageHandlerField = bridge.getClass().getDeclaredField("messageHandler");
-                messageHandlerField.setAccessible(true);
-                com.getcapacitor.MessageHandler handler = (com.getcapacitor.MessageHandler) messageHandlerField.get(bridge);
-                Log.e("MainActivity", "✅ Got MessageHandler via field reflection");
-                
-                return new PluginCall(handler, "GoogleSignIn", "signIn", callbackId, new JSObject()) {
-                    @Override
-                    public void resolve(JSObject data) {
-                        super.resolve(data);
-                        sendResultToJS(callbackId, data.toString(), null);
-                    }
-                    
-                    @Override
-                    public void reject(String msg) {
-                        super.reject(msg);
-                        sendResultToJS(callbackId, null, msg);
-                    }
-                };
-            } catch (NoSuchFieldException e) {
-                Log.e("MainActivity", "⚠️ messageHandler field not found, trying method...");
-                // Try method instead
-                try {
-                    java.lang.reflect.Method getMessageHandlerMethod = bridge.getClass().getMethod("getMessageHandler");
-                    com.getcapacitor.MessageHandler handler = (com.getcapacitor.MessageHandler) getMessageHandlerMethod.invoke(bridge);
-                    Log.e("MainActivity", "✅ Got MessageHandler via method reflection");
-                    return new PluginCall(handler, "GoogleSignIn", "signIn", callbackId, new JSObject()) {
-                        @Override
-                        public void resolve(JSObject data) {
-                            super.resolve(data);
-                            sendResultToJS(callbackId, data.toString(), null);
-                        }
-                        
-                        @Override
-                        public void reject(String msg) {
-                            super.reject(msg);
-                            sendResultToJS(callbackId, null, msg);
-                        }
-                    };
-                } catch (Exception ex) {
-                    Log.e("MainActivity", "❌ Failed to get MessageHandler via method: " + ex.getMessage());
-                    ex.printStackTrace();
-                    return null;
-                }
-            } catch (Exception e) {
-                Log.e("MainActivity", "❌ Failed to create PluginCall: " + e.getMessage());
-                e.printStackTrace();
-                return null;
-            }
-        }
-        
         void sendResultToJS(String callbackId, String result, String error) {
-            String js;
-            if (error != null) {
-                // Escape single quotes and newlines for JavaScript string
-                String escapedError = error.replace("\\", "\\\\").replace("'", "\\'").replace("\n", "\\n").replace("\r", "\\r");
-                js = "if (window.GoogleSignInCallback) { window.GoogleSignInCallback('" + callbackId + "', {error: '" + escapedError + "'}); }";
-            } else {
-                // result is already a JSON string from JSObject.toString()
-                js = "if (window.GoogleSignInCallback) { try { window.GoogleSignInCallback('" + callbackId + "', " + result + "); } catch(e) { console.error('Callback error:', e); } }";
-            }
-            bridge.getWebView().post(() -> bridge.getWebView().evaluateJavascript(js, null));
+            // result is already a JSON string from JSObject.toString(); the page's
+            // 'googleSignIn' listener hands it to window.GoogleSignInCallback
+            String payload = "{\"callbackId\":" + JSONObject.quote(callbackId) + ",\"result\":"
+                + (error != null ? "{\"error\":" + JSONObject.quote(error) + "}" : result) + "}";
+            NativeEventBus.getInstance().emit("googleSignIn", payload);
         }
     }
     
     @Override
     public void onCreate(Bundle savedInstanceState) {
+        startupTrace = new StartupTrace();
+
+        // Window flags before setContentView, so the first layout is already edge-to-edge
+        startupTrace.beginPhase("systemBars");
+        configureSystemBars();
+        startupTrace.endPhase();
+
+        // Plugins registered here are added to the bridge as it is built in super.onCreate()
+        startupTrace.beginPhase("registerPlugins");
+        this.registerPlugin(LedgerPlugin.class);
+        this.registerPlugin(ExportPlugin.class);
+        this.registerPlugin(ConsoleLogPlugin.class);
+        this.registerPlugin(HttpCachePlugin.class);
+        this.registerPlugin(SearchIndexPlugin.class);
+        this.registerPlugin(AggregatesPlugin.class);
+        this.registerPlugin(ExchangeRatePlugin.class);
+        this.registerPlugin(RecurringTransactionsPlugin.class);
+        this.registerPlugin(AttachmentPlugin.class);
+        this.registerPlugin(OutboxPlugin.class);
+        this.registerPlugin(BridgeMetricsPlugin.class);
+        this.registerPlugin(MemoryPressurePlugin.class);
+        this.registerPlugin(AnalyticsPlugin.class);
+        this.registerPlugin(KeyValuePlugin.class);
+        this.registerPlugin(InvoicePlugin.class);
+        this.registerPlugin(DeepLinkPlugin.class);
+        startupTrace.endPhase();
+
+        // The WebView provider and native stores were warmed up in parallel by BalanzeApplication
+        startupTrace.beginPhase("bridge");
         super.onCreate(savedInstanceState);
-        
-        // Register custom GoogleSignIn plugin
+        startupTrace.endPhase();
+        startupTrace.markBridgeCreated();
+
+        startupTrace.beginPhase("webViewSetup");
+        WebView webView = this.bridge.getWebView();
+        // Allowlisted API GETs (category lists, exchange rates) are answered from a native LRU cache
+        this.bridge.setWebViewClient(new CachingWebViewClient(this.bridge));
+        // Native -> JS events are batched per frame over one WebMessagePort
+        new WebViewEventChannel(webView, this.bridge.getLocalUrl(), NativeEventBus.getInstance()).install();
+        // Large query results go out as ArrayBuffers on a second port (Ledger.queryBulk)
+        BulkTransferChannel.getInstance().install(webView, this.bridge.getLocalUrl());
+        // Pages read the native key-value store once, synchronously, instead of localStorage;
+        // secrets only through an origin-restricted listener
+        KeyValueStore.install(webView, this.bridge.getLocalUrl());
+        // Renderer priority follows memory pressure; a dead renderer recreates the activity
+        MemoryPressureCoordinator.getInstance().attach(this, this.bridge, savedInstanceState != null);
+        configureWebView(webView);
+        startupTrace.endPhase();
+
+        startupTrace.beginPhase("googleSignIn");
+        setUpGoogleSignIn(webView);
+        startupTrace.endPhase();
+
+        // An auth link that started the app waits for the page in DeepLinkRouter. A recreated
+        // activity or a launch from recents carries the old link, which was already handled.
+        if (savedInstanceState == null
+            && (getIntent().getFlags() & Intent.FLAG_ACTIVITY_LAUNCHED_FROM_HISTORY) == 0) {
+            DeepLinkRouter.getInstance().route(getIntent(), true);
+        }
+
+        // Not needed for the first frame: Play Services check and GoogleSignInClient construction
+        // (shared with GoogleSignInPlugin, built once)
+        runAfterFirstFrame(() -> {
+            startupTrace.markFirstFrame();
+            if (googleSignInInterface != null) {
+                new Thread(googleSignInInterface::warmUp, "GoogleSignInWarmup").start();
+            }
+        });
+    }
+
+    // Registers the GoogleSignIn plugin and the GoogleSignInNative JS interface.
+    // The client itself is built lazily (warmUp() after first frame, or on signIn()).
+    private void setUpGoogleSignIn(WebView webView) {
         try {
             this.registerPlugin(GoogleSignInPlugin.class);
             Log.e("MainActivity", "========================================");
             Log.e("MainActivity", "✅ GoogleSignInPlugin registered successfully");
-            
+        
             // Verify plugin is in the bridge
             com.getcapacitor.PluginHandle pluginHandle = this.bridge.getPlugin("GoogleSignIn");
             if (pluginHandle != null) {
@@ -347,20 +279,17 @@ public class MainActivity extends BridgeActivity {
             } else {
                 Log.e("MainActivity", "⚠️ Plugin NOT found in bridge!");
             }
-            
+        
             // Add JavaScript interface to WebView for direct plugin calls
-            final WebView webView = this.bridge.getWebView();
-            // Ensure JavaScript is enabled
-            webView.getSettings().setJavaScriptEnabled(true);
             googleSignInInterface = new GoogleSignInJSInterface();
-            
+        
             // Initialize ActivityResultLauncher for Google Sign-In
             googleSignInInterface.signInLauncher = registerForActivityResult(
                 new ActivityResultContracts.StartActivityForResult(),
                 result -> {
                     int resultCode = result.getResultCode();
                     Intent data = result.getData();
-                    
+                
                     Log.e("GoogleSignInJS", "========================================");
                     Log.e("GoogleSignInJS", "ActivityResultLauncher callback received");
                     Log.e("GoogleSignInJS", "Result Code: " + resultCode + " (RESULT_OK=" + Activity.RESULT_OK + ", RESULT_CANCELED=" + Activity.RESULT_CANCELED + ")");
@@ -369,7 +298,7 @@ public class MainActivity extends BridgeActivity {
                         Log.e("GoogleSignInJS", "Data extras: " + (data.getExtras() != null ? data.getExtras().toString() : "null"));
                     }
                     Log.e("GoogleSignInJS", "========================================");
-                    
+                
                     // Google Sign-In can return RESULT_CANCELED even with valid data
                     // We should process the Intent regardless of result code
                     // GoogleSignIn.getSignedInAccountFromIntent() will handle error detection
@@ -389,148 +318,51 @@ public class MainActivity extends BridgeActivity {
                     }
                 }
             );
-            
+        
             webView.addJavascriptInterface(googleSignInInterface, "GoogleSignInNative");
             Log.e("MainActivity", "✅ JavaScript interface 'GoogleSignInNative' added to WebView");
-            
-            // Test the interface immediately
-            webView.post(new Runnable() {
-                @Override
-                public void run() {
-                    String testJs = "console.error('[MainActivity] Testing GoogleSignInNative interface...'); " +
-                                   "console.error('[MainActivity] Interface exists?', typeof window.GoogleSignInNative !== 'undefined'); " +
-                                   "if (window.GoogleSignInNative) { " +
-                                   "  console.error('[MainActivity] ✅ GoogleSignInNative interface is available'); " +
-                                   "} else { " +
-                                   "  console.error('[MainActivity] ❌ GoogleSignInNative interface NOT available'); " +
-                                   "}";
-                    webView.evaluateJavascript(testJs, null);
-                }
-            });
-            
-            // Inject JavaScript code to expose plugin via the interface
-            // Use multiple injection attempts to ensure it's available
-            final int[] attemptCount = {0};
-            final WebView finalWebView = webView;
-            final Runnable[] injectPluginRef = new Runnable[1];
-            injectPluginRef[0] = new Runnable() {
-                @Override
-                public void run() {
-                    attemptCount[0]++;
-                    final int currentAttempt = attemptCount[0];
-                    String js = "(function() { " +
-                               "  if (typeof window.Capacitor === 'undefined') { " +
-                               "    return false; " +
-                               "  } " +
-                               "  const C = window.Capacitor; " +
-                               "  if (!C.Plugins) C.Plugins = {}; " +
-                               "  if (C.Plugins.GoogleSignIn) return true; " +
-                               "  " +
-                               "  // Store pending callbacks " +
-                               "  if (!window._GoogleSignInCallbacks) window._GoogleSignInCallbacks = {}; " +
-                               "  const pendingCallbacks = window._GoogleSignInCallbacks; " +
-                               "  " +
-                               "  // Expose plugin using native JavaScript interface " +
-                               "  C.Plugins.GoogleSignIn = { " +
-                               "    signIn: function() { " +
-                               "      return new Promise(function(resolve, reject) { " +
-                               "        const callbackId = 'cb' + Date.now() + '_' + Math.random().toString(36).substr(2, 9); " +
-                               "        " +
-                               "        // Store callback " +
-                               "        pendingCallbacks[callbackId] = { resolve: resolve, reject: reject }; " +
-                               "        " +
-                               "        // Call native interface " +
-                               "        if (window.GoogleSignInNative && window.GoogleSignInNative.signIn) { " +
-                               "          console.error('[GoogleSignIn] ✅ Calling native interface with callbackId:', callbackId); " +
-                               "          window.GoogleSignInNative.signIn(callbackId); " +
-                               "          " +
-                               "          // Set timeout " +
-                               "          setTimeout(function() { " +
-                               "            if (pendingCallbacks[callbackId]) { " +
-                               "              delete pendingCallbacks[callbackId]; " +
-                               "              reject(new Error('Sign in timeout')); " +
-                               "            } " +
-                               "          }, 30000); " +
-                               "        } else { " +
-                               "          delete pendingCallbacks[callbackId]; " +
-                               "          console.error('[GoogleSignIn] ❌ Native interface not available'); " +
-                               "          reject(new Error('Native interface not available')); " +
-                               "        } " +
-                               "      }); " +
-                               "    }, " +
-                               "    signOut: function() { return Promise.resolve({ success: true }); }, " +
-                               "    log: function(options) { return Promise.resolve(); } " +
-                               "  }; " +
-                               "  " +
-                               "  // Set up callback handler for native interface " +
-                               "  window.GoogleSignInCallback = function(callbackId, result) { " +
-                               "    const callback = pendingCallbacks[callbackId]; " +
-                               "    if (callback) { " +
-                               "      delete pendingCallbacks[callbackId]; " +
-                               "      if (result.error) { " +
-                               "        callback.reject(new Error(result.error)); " +
-                               "      } else { " +
-                               "        callback.resolve(result); " +
-                               "      } " +
-                               "    } " +
-                               "  }; " +
-                               "  " +
-                               "  console.error('[GoogleSignIn] ✅ Plugin exposed via native interface'); " +
-                               "  return true; " +
-                               "})();";
-                    finalWebView.evaluateJavascript(js, new android.webkit.ValueCallback<String>() {
-                        @Override
-                        public void onReceiveValue(String value) {
-                            if (!"true".equals(value) && currentAttempt < 10) {
-                                // Retry if injection failed
-                                finalWebView.postDelayed(injectPluginRef[0], 200);
-                            } else {
-                                Log.e("MainActivity", "✅ JavaScript code injected to expose plugin (attempt " + currentAttempt + ")");
-                            }
-                        }
-                    });
-                }
-            };
-            webView.postDelayed(injectPluginRef[0], 100);
-            
+        
+            // Expose the interface as Capacitor.Plugins.GoogleSignIn on every page load
+            PluginBootstrap.install(this.bridge, startupTrace);
+        
             Log.e("MainActivity", "========================================");
         } catch (Exception e) {
             Log.e("MainActivity", "❌ Failed to register GoogleSignInPlugin:", e);
             e.printStackTrace();
         }
-        
+    }
+
+    private void configureWebView(WebView webView) {
+        WebSettings settings = webView.getSettings();
+        settings.setJavaScriptEnabled(true);
+        settings.setDomStorageEnabled(true);
+        settings.setDatabaseEnabled(true);
+
         // SMART SCROLL: Allow natural scrolling behavior
         // The WebView will handle scroll detection via JavaScript
-        this.bridge.getWebView().setOverScrollMode(View.OVER_SCROLL_IF_CONTENT_SCROLLS);
-        
-        // Enable smooth scrolling
-        this.bridge.getWebView().setVerticalScrollBarEnabled(true);
-        
-        // Additional WebView settings for optimal scrolling
-        WebView webView = this.bridge.getWebView();
-        webView.getSettings().setJavaScriptEnabled(true);
-        webView.getSettings().setDomStorageEnabled(true);
-        webView.getSettings().setDatabaseEnabled(true);
-        
-        // Enable WebView console logging to Logcat
+        webView.setOverScrollMode(View.OVER_SCROLL_IF_CONTENT_SCROLLS);
+        webView.setVerticalScrollBarEnabled(true);
+        // Enable nested scrolling for better touch handling
+        webView.setScrollBarStyle(View.SCROLLBARS_INSIDE_OVERLAY);
+        webView.setNestedScrollingEnabled(true);
+
+        // WebView console output goes through a background pipeline (rate limits per
+        // build type, optional rotating file) instead of a Log.e on the UI thread
+        final ConsoleLogPipeline consoleLog = ConsoleLogPipeline.getInstance(this);
         webView.setWebChromeClient(new android.webkit.WebChromeClient() {
             @Override
             public boolean onConsoleMessage(android.webkit.ConsoleMessage consoleMessage) {
-                Log.e("WebView", consoleMessage.message() + " -- From line "
-                    + consoleMessage.lineNumber() + " of "
-                    + consoleMessage.sourceId());
+                consoleLog.offer(consoleMessage);
                 return true;
             }
         });
-        
-        // Enable nested scrolling for better touch handling
-        webView.setScrollBarStyle(View.SCROLLBARS_INSIDE_OVERLAY);
-        webView.setNestedScrollingEnabled(true);
-        
-        // Apply gradient status bar (matching website)
+    }
+
+    // Solid brand-blue status bar with white icons, drawn edge-to-edge (matching website)
+    private void configureSystemBars() {
         Window window = getWindow();
         window.addFlags(WindowManager.LayoutParams.FLAG_DRAWS_SYSTEM_BAR_BACKGROUNDS);
-        
+
         // FIX: Enable edge-to-edge properly with window insets
         // This tells the system to layout behind system bars
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
@@ -542,26 +374,74 @@ public class MainActivity extends BridgeActivity {
                 View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN
             );
         }
-        
-        // Create gradient drawable for status bar
-        GradientDrawable gradientDrawable = new GradientDrawable(
-            GradientDrawable.Orientation.LEFT_RIGHT,
-            new int[] {
-                0xFF2563EB, // Blue (#2563eb)
-                0xFF9333EA  // Purple (#9333ea)
-            }
-        );
-        
-        window.setStatusBarColor(0xFF2563EB); // Fallback to blue if gradient not supported
-        // Note: Status bar gradient requires Android 12+ or custom view
-        // Using blue as it's the primary brand color
-        
+
+        // Blue (#2563eb) is the primary brand color; a gradient would need Android 12+ or a custom view
+        window.setStatusBarColor(0xFF2563EB);
+
         // Make status bar content light (white icons)
         if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
-            WindowInsetsControllerCompat windowInsetsController = 
+            WindowInsetsControllerCompat windowInsetsController =
                 WindowCompat.getInsetsController(window, window.getDecorView());
             windowInsetsController.setAppearanceLightStatusBars(false); // White icons on blue background
         }
     }
-    
+
+    // Auth links that arrive while the app runs go to the loaded page as an event. Capacitor
+    // gets the intent without its url, so the App plugin does not also send appUrlOpen
+    // for a link that has already been handed over.
+    @Override
+    protected void onNewIntent(Intent intent) {
+        if (DeepLinkRouter.getInstance().route(intent, false)) {
+            setIntent(intent);
+            super.onNewIntent(new Intent(intent).setData(null));
+        } else {
+            super.onNewIntent(intent);
+        }
+    }
+
+    @Override
+    public void onStart() {
+        super.onStart();
+        MemoryPressureCoordinator.getInstance().setVisible(true);
+    }
+
+    @Override
+    public void onStop() {
+        MemoryPressureCoordinator.getInstance().setVisible(false);
+        super.onStop();
+    }
+
+    // `adb shell dumpsys activity com.balanze.app/.MainActivity` prints the bridge statistics
+    @Override
+    public void dump(String prefix, FileDescriptor fd, PrintWriter writer, String[] args) {
+        super.dump(prefix, fd, writer, args);
+        writer.println(prefix + "Bridge calls (ms):");
+        for (String line : BridgeMetrics.getInstance().format().split("\n")) {
+            writer.println(prefix + "  " + line);
+        }
+    }
+
+    private static int length(String value) {
+        return value != null ? value.length() : 0;
+    }
+
+    private void runAfterFirstFrame(Runnable task) {
+        final View decorView = getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnDrawListener(new ViewTreeObserver.OnDrawListener() {
+            private boolean fired;
+
+            @Override
+            public void onDraw() {
+                if (fired) {
+                    return;
+                }
+                fired = true;
+                // Listeners can't be removed during dispatch; the post also lands after the frame is submitted
+                decorView.post(() -> {
+                    decorView.getViewTreeObserver().removeOnDrawListener(this);
+                    task.run();
+                });
+            }
+        });
+    }
 }
@@ -0,0 +1,236 @@
+package com.balanze.app;
+
+import android.app.Activity;
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.database.sqlite.SQLiteDatabase;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.ViewGroup;
+import android.webkit.RenderProcessGoneDetail;
+import android.webkit.WebView;
+import com.getcapacitor.Bridge;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.WebViewListener;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Applies MemoryPressurePolicy: releases native caches tier by tier, tells
+// the page ("memoryPressure" events, so stores can drop caches and save
+// their state), and keeps the WebView renderer's priority in line with it.
+// When the renderer dies anyway, the dead WebView is torn down and the
+// activity recreated; the page restores the state it saved through
+// MemoryPressurePlugin instead of the app being killed with it.
+public class MemoryPressureCoordinator implements ComponentCallbacks2 {
+
+    private static final String TAG = "MemoryPressure";
+    static final String EVENT_CHANNEL = "memoryPressure";
+    // A saved state older than this is not restored on a cold start
+    private static final long STATE_MAX_AGE_MS = 30 * 60_000;
+
+    // Called once per tier newly reached, lowest first, on the main thread
+    public interface Releaser {
+        void release(int tier);
+    }
+
+    private static MemoryPressureCoordinator instance;
+
+    private final MemoryPressurePolicy policy = new MemoryPressurePolicy();
+    private final List<Releaser> releasers = new CopyOnWriteArrayList<>();
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    // State file writes, in order
+    private final ExecutorService io = Executors.newSingleThreadExecutor();
+    private File stateFile;
+    private WeakReference<WebView> webView = new WeakReference<>(null);
+    private volatile String recoveredFrom;
+
+    public static synchronized MemoryPressureCoordinator getInstance() {
+        if (instance == null) {
+            instance = new MemoryPressureCoordinator();
+        }
+        return instance;
+    }
+
+    // From Application.onCreate: trim callbacks arrive even with no activity
+    public void install(Context context) {
+        Context app = context.getApplicationContext();
+        stateFile = new File(new File(app.getFilesDir(), "memory-pressure"), "state.json");
+        app.registerComponentCallbacks(this);
+
+        // The memory tier of the HTTP cache sits in front of its disk tier
+        register(tier -> {
+            HttpResponseCache cache = CachingWebViewClient.sharedCache(app);
+            cache.trimMemory(tier >= MemoryPressurePolicy.TIER_LOW ? 0 : cache.getMaxMemoryBytes() / 2);
+        });
+        register(tier -> {
+            if (tier >= MemoryPressurePolicy.TIER_LOW) {
+                SQLiteDatabase.releaseMemory();
+            }
+        });
+    }
+
+    public void register(Releaser releaser) {
+        releasers.add(releaser);
+    }
+
+    // From MainActivity.onCreate, once the bridge exists. restored is true
+    // when the activity comes back from saved instance state (e.g. after the
+    // process was killed in the background), which reloads the page too.
+    public void attach(Activity activity, Bridge bridge, boolean restored) {
+        if (restored && recoveredFrom == null) {
+            recoveredFrom = "activity-restored";
+        }
+        WebView view = bridge.getWebView();
+        webView = new WeakReference<>(view);
+        applyRendererPriority(policy.onVisibilityChanged(true));
+        bridge.addWebViewListener(new WebViewListener() {
+            @Override
+            public boolean onRenderProcessGone(WebView gone, RenderProcessGoneDetail detail) {
+                boolean crashed = Build.VERSION.SDK_INT >= Build.VERSION_CODES.O && detail.didCrash();
+                return recover(activity, gone, crashed);
+            }
+        });
+    }
+
+    public void setVisible(boolean visible) {
+        applyRendererPriority(policy.onVisibilityChanged(visible));
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        apply(policy.onTrimMemory(level));
+    }
+
+    // Same as the strongest trim level
+    @Override
+    public void onLowMemory() {
+        onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    private void apply(MemoryPressurePolicy.Decision decision) {
+        if (!decision.isNew()) {
+            return;
+        }
+        Log.w(TAG, "Trim " + MemoryPressurePolicy.levelName(decision.level) + ", releasing up to tier "
+            + MemoryPressurePolicy.tierName(decision.releasedTo));
+        for (int tier = decision.releasedFrom + 1; tier <= decision.releasedTo; tier++) {
+            for (Releaser releaser : releasers) {
+                try {
+                    releaser.release(tier);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Releaser failed at tier " + tier, e);
+                }
+            }
+        }
+        applyRendererPriority(decision);
+
+        JSObject event = new JSObject();
+        event.put("level", MemoryPressurePolicy.levelName(decision.level));
+        event.put("tier", MemoryPressurePolicy.tierName(decision.tier));
+        event.put("visible", decision.visible);
+        NativeEventBus.getInstance().emit(EVENT_CHANNEL, event.toString());
+    }
+
+    private void applyRendererPriority(MemoryPressurePolicy.Decision decision) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+        mainHandler.post(() -> {
+            WebView view = webView.get();
+            if (view != null) {
+                view.setRendererPriorityPolicy(decision.rendererPriority, decision.waivedWhenNotVisible);
+            }
+        });
+    }
+
+    // Main thread. A WebView whose renderer is gone cannot be used again and
+    // must be destroyed; returning true keeps the app process alive.
+    private boolean recover(Activity activity, WebView gone, boolean crashed) {
+        Log.e(TAG, "WebView renderer " + (crashed ? "crashed" : "was killed to free memory"));
+        if (gone.getParent() instanceof ViewGroup) {
+            ((ViewGroup) gone.getParent()).removeView(gone);
+        }
+        gone.destroy();
+        if (policy.shouldRecover(SystemClock.elapsedRealtime())) {
+            recoveredFrom = crashed ? "renderer-crash" : "renderer-killed";
+            activity.recreate();
+        } else {
+            Log.e(TAG, "Renderer keeps dying, closing instead of recreating again");
+            activity.finish();
+        }
+        return true;
+    }
+
+    // The page's last saved state (a JSON document), kept until takeState()
+    public void saveState(String json) {
+        io.execute(() -> {
+            File tmp = new File(stateFile.getPath() + ".tmp");
+            try {
+                File dir = stateFile.getParentFile();
+                if (!dir.isDirectory() && !dir.mkdirs()) {
+                    throw new IOException("Could not create " + dir);
+                }
+                try (OutputStream out = new FileOutputStream(tmp)) {
+                    out.write(json.getBytes(StandardCharsets.UTF_8));
+                }
+                if (!tmp.renameTo(stateFile)) {
+                    throw new IOException("Could not rename " + tmp);
+                }
+            } catch (IOException e) {
+                Log.e(TAG, "Could not save page state", e);
+                tmp.delete();
+            }
+        });
+    }
+
+    public interface StateCallback {
+        // state is null when nothing (recent) was saved; recoveredFrom is null
+        // unless the activity was recreated after its renderer or process died
+        void onState(String state, String recoveredFrom);
+    }
+
+    // Hands the saved state over once and deletes it
+    public void takeState(StateCallback callback) {
+        io.execute(() -> {
+            String state = null;
+            if (stateFile.isFile() && System.currentTimeMillis() - stateFile.lastModified() < STATE_MAX_AGE_MS) {
+                try (InputStream in = new FileInputStream(stateFile)) {
+                    byte[] bytes = new byte[(int) stateFile.length()];
+                    int read = 0;
+                    while (read < bytes.length) {
+                        int n = in.read(bytes, read, bytes.length - read);
+                        if (n < 0) {
+                            break;
+                        }
+                        read += n;
+                    }
+                    state = new String(bytes, 0, read, StandardCharsets.UTF_8);
+                } catch (IOException e) {
+                    Log.e(TAG, "Could not read page state", e);
+                }
+            }
+            stateFile.delete();
+            String reason = recoveredFrom;
+            recoveredFrom = null;
+            callback.onState(state, reason);
+        });
+    }
+}
@@ -0,0 +1,46 @@
+package com.balanze.app;
+
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import org.json.JSONObject;
+
+// Page side of MemoryPressureCoordinator: the page saves a small state
+// document (route, drafts) whenever it hears a "memoryPressure" event and
+// takes it back after the activity was recreated for a dead renderer.
+@CapacitorPlugin(name = "MemoryPressure")
+public class MemoryPressurePlugin extends Plugin {
+
+    // { state: object }; replaces the previously saved state
+    @PluginMethod
+    public void saveState(PluginCall call) {
+        long startedAt = BridgeMetrics.now();
+        JSObject state = call.getObject("state");
+        if (state == null) {
+            call.reject("state is required");
+            return;
+        }
+        MemoryPressureCoordinator.getInstance().saveState(state.toString());
+        call.resolve();
+        BridgeMetrics.finished(call, startedAt);
+    }
+
+    // -> { state: object | null, recoveredFrom: "renderer-killed" | "renderer-crash" | "activity-restored" | null }
+    @PluginMethod
+    public void takeState(PluginCall call) {
+        long startedAt = BridgeMetrics.now();
+        MemoryPressureCoordinator.getInstance().takeState((state, recoveredFrom) -> {
+            JSObject result = new JSObject();
+            try {
+                result.put("state", state != null ? new JSONObject(state) : JSONObject.NULL);
+            } catch (Exception e) {
+                result.put("state", JSONObject.NULL);
+            }
+            result.put("recoveredFrom", recoveredFrom != null ? recoveredFrom : JSONObject.NULL);
+            call.resolve(result);
+            BridgeMetrics.finished(call, startedAt);
+        });
+    }
+}
@@ -0,0 +1,168 @@
+package com.balanze.app;
+
+import android.content.ComponentCallbacks2;
+import android.webkit.WebView;
+
+// What a trim callback means for the app, kept free of Android state so it
+// can be tested on the JVM (the constants it uses are compile-time ints).
+// Trim levels collapse into three tiers; each tier's native caches are
+// released once, when it is first reached, and everything is re-armed when
+// the app becomes visible again. Repeated callbacks at a tier already
+// handled are ignored, so the page is not flooded with events.
+//
+// The WebView renderer is bound IMPORTANT and not waived while hidden, so
+// the OS does not kill it on its own while it holds the finance store. Once
+// the app is hidden and memory runs low, the page has been told to save its
+// state, and the binding is waived: losing the renderer (and recovering
+// from the saved state) is better than the OS killing the whole app.
+public class MemoryPressurePolicy {
+
+    public static final int TIER_NONE = 0;
+    // Trim what is cheap to rebuild (half the in-memory HTTP tier)
+    public static final int TIER_MODERATE = 1;
+    // Drop in-memory caches that have a disk copy, release SQLite page caches
+    public static final int TIER_LOW = 2;
+    // The process is next in line to be killed
+    public static final int TIER_CRITICAL = 3;
+
+    // Renderer deaths recovered from within RECOVERY_WINDOW_MS before giving up
+    static final int MAX_RECOVERIES = 3;
+    static final long RECOVERY_WINDOW_MS = 5 * 60_000;
+
+    public static final class Decision {
+        public final int level;
+        public final int tier;
+        public final boolean visible;
+        // Tiers reached for the first time by this callback, (releasedFrom, releasedTo];
+        // equal when there is nothing new to release
+        public final int releasedFrom;
+        public final int releasedTo;
+        public final int rendererPriority;
+        public final boolean waivedWhenNotVisible;
+
+        Decision(int level, int tier, boolean visible, int releasedFrom, int releasedTo,
+                 int rendererPriority, boolean waivedWhenNotVisible) {
+            this.level = level;
+            this.tier = tier;
+            this.visible = visible;
+            this.releasedFrom = releasedFrom;
+            this.releasedTo = releasedTo;
+            this.rendererPriority = rendererPriority;
+            this.waivedWhenNotVisible = waivedWhenNotVisible;
+        }
+
+        // Something changed that the page should hear about
+        public boolean isNew() {
+            return releasedTo > releasedFrom;
+        }
+    }
+
+    private boolean visible = true;
+    private int releasedTier = TIER_NONE;
+    private final long[] recoveries = new long[MAX_RECOVERIES];
+    private int recoveryCount;
+
+    public synchronized Decision onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            visible = false;
+        }
+        int tier = tierFor(level);
+        int from = releasedTier;
+        releasedTier = Math.max(releasedTier, tier);
+        return decision(level, tier, from);
+    }
+
+    // From the activity's onStart/onStop. Becoming visible re-arms every tier.
+    public synchronized Decision onVisibilityChanged(boolean visible) {
+        this.visible = visible;
+        if (visible) {
+            releasedTier = TIER_NONE;
+        }
+        return decision(-1, releasedTier, releasedTier);
+    }
+
+    public synchronized boolean isVisible() {
+        return visible;
+    }
+
+    // Whether to recover from a dead renderer by recreating the activity;
+    // false once it keeps dying, so a renderer that crashes on load does not
+    // restart the activity forever
+    public synchronized boolean shouldRecover(long nowMs) {
+        int kept = 0;
+        for (int i = 0; i < recoveryCount; i++) {
+            if (nowMs - recoveries[i] < RECOVERY_WINDOW_MS) {
+                recoveries[kept++] = recoveries[i];
+            }
+        }
+        recoveryCount = kept;
+        if (recoveryCount >= MAX_RECOVERIES) {
+            return false;
+        }
+        recoveries[recoveryCount++] = nowMs;
+        return true;
+    }
+
+    private Decision decision(int level, int tier, int releasedFrom) {
+        boolean waive = !visible && releasedTier >= TIER_LOW;
+        return new Decision(level, tier, visible, releasedFrom, releasedTier,
+            waive ? WebView.RENDERER_PRIORITY_BOUND : WebView.RENDERER_PRIORITY_IMPORTANT, waive);
+    }
+
+    static int tierFor(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            // Hidden and in the LRU list: MODERATE, COMPLETE
+            return TIER_CRITICAL;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND) {
+            return TIER_LOW;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN) {
+            return TIER_MODERATE;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            return TIER_CRITICAL;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW) {
+            return TIER_LOW;
+        }
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE) {
+            return TIER_MODERATE;
+        }
+        return TIER_NONE;
+    }
+
+    static String levelName(int level) {
+        switch (level) {
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE:
+                return "running-moderate";
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW:
+                return "running-low";
+            case ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL:
+                return "running-critical";
+            case ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN:
+                return "ui-hidden";
+            case ComponentCallbacks2.TRIM_MEMORY_BACKGROUND:
+                return "background";
+            case ComponentCallbacks2.TRIM_MEMORY_MODERATE:
+                return "moderate";
+            case ComponentCallbacks2.TRIM_MEMORY_COMPLETE:
+                return "complete";
+            default:
+                return "level-" + level;
+        }
+    }
+
+    static String tierName(int tier) {
+        switch (tier) {
+            case TIER_MODERATE:
+                return "moderate";
+            case TIER_LOW:
+                return "low";
+            case TIER_CRITICAL:
+                return "critical";
+            default:
+                return "none";
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.balanze.app;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import java.util.ArrayDeque;
+import java.util.Locale;
+
+// Native -> JS event channel shared by the activity and plugins.
+// emit() only queues the event. Everything queued during a frame is sent to
+// the page as one JSON array through the transport, so JS parses one message
+// per frame instead of compiling one evaluateJavascript() script per event.
+// Events queued while no page is attached (startup, reload) wait for the
+// next attach().
+public class NativeEventBus {
+
+    public interface Transport {
+        // Called on the thread that runs the scheduled flush (main thread in the app)
+        void deliver(String batchJson);
+    }
+
+    public interface FrameScheduler {
+        void schedule(Runnable flush);
+    }
+
+    public static final int MAX_QUEUED_EVENTS = 10_000;
+    // Keeps a single flush from holding the main thread when a burst is queued
+    public static final int MAX_EVENTS_PER_FLUSH = 500;
+
+    private static NativeEventBus instance;
+
+    private final FrameScheduler scheduler;
+    private final int maxQueued;
+    private final ArrayDeque<String> queue = new ArrayDeque<>();
+    private final Runnable flushTask = this::flush;
+    private Transport transport;
+    private boolean flushScheduled;
+    private long nextSequence;
+    private long droppedCount;
+
+    public static synchronized NativeEventBus getInstance() {
+        if (instance == null) {
+            instance = new NativeEventBus(new ChoreographerScheduler(), MAX_QUEUED_EVENTS);
+        }
+        return instance;
+    }
+
+    public NativeEventBus(FrameScheduler scheduler, int maxQueued) {
+        this.scheduler = scheduler;
+        this.maxQueued = maxQueued;
+    }
+
+    // payloadJson must already be valid JSON (e.g. JSObject.toString()); it is
+    // embedded as-is, so no JS string escaping is involved
+    public void emit(String channel, String payloadJson) {
+        StringBuilder envelope = new StringBuilder(payloadJson.length() + channel.length() + 40);
+        synchronized (this) {
+            envelope.append("{\"seq\":").append(nextSequence++).append(",\"channel\":");
+            appendQuoted(envelope, channel);
+            envelope.append(",\"data\":").append(payloadJson).append('}');
+
+            if (queue.size() >= maxQueued) {
+                queue.poll();
+                droppedCount++;
+            }
+            queue.add(envelope.toString());
+            scheduleFlushLocked();
+        }
+    }
+
+    public synchronized void attach(Transport transport) {
+        this.transport = transport;
+        if (!queue.isEmpty()) {
+            scheduleFlushLocked();
+        }
+    }
+
+    // Only detaches if the given transport is still the current one, so a
+    // stale page cannot detach its replacement
+    public synchronized void detach(Transport transport) {
+        if (this.transport == transport) {
+            this.transport = null;
+        }
+    }
+
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public synchronized int getQueuedCount() {
+        return queue.size();
+    }
+
+    void flush() {
+        Transport target;
+        StringBuilder batch;
+        synchronized (this) {
+            flushScheduled = false;
+            target = transport;
+            if (target == null || queue.isEmpty()) {
+                return;
+            }
+            batch = new StringBuilder(256);
+            batch.append('[');
+            for (int i = 0; i < MAX_EVENTS_PER_FLUSH && !queue.isEmpty(); i++) {
+                if (i > 0) {
+                    batch.append(',');
+                }
+                batch.append(queue.poll());
+            }
+            batch.append(']');
+            if (!queue.isEmpty()) {
+                scheduleFlushLocked();
+            }
+        }
+        target.deliver(batch.toString());
+    }
+
+    private void scheduleFlushLocked() {
+        if (!flushScheduled && transport != null) {
+            flushScheduled = true;
+            scheduler.schedule(flushTask);
+        }
+    }
+
+    private static void appendQuoted(StringBuilder target, String value) {
+        target.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                target.append('\\').append(c);
+            } else if (c < 0x20) {
+                target.append(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                target.append(c);
+            }
+        }
+        target.append('"');
+    }
+
+    // Flushes on the next vsync so events emitted within one frame share a message
+    private static class ChoreographerScheduler implements FrameScheduler {
+        private final Handler mainHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void schedule(Runnable flush) {
+            mainHandler.post(() -> Choreographer.getInstance().postFrameCallback(frameTimeNanos -> flush.run()));
+        }
+    }
+}
@@ -0,0 +1,296 @@
+package com.balanze.app;
+
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONObject;
+
+// Queues writes the web layer could not send (WriteOutbox, one journal per
+// user) and flushes them to Supabase in the background: shortly after each
+// enqueue, when the session is handed over, when the web layer reports it
+// is online again, and after each failure with exponential backoff.
+// Applied writes are announced as "outboxAcknowledged" events and refused
+// ones as "outboxConflict", so the web layer can refresh or roll back.
+@CapacitorPlugin(name = "Outbox")
+public class OutboxPlugin extends Plugin {
+
+    private static final String TAG = "Outbox";
+    // Lets a burst of writes go out as one batch
+    private static final long ENQUEUE_FLUSH_DELAY_MS = 500;
+
+    private static final class Session {
+        final String userId;
+        final SupabaseOutboxSink sink;
+
+        Session(String userId, SupabaseOutboxSink sink) {
+            this.userId = userId;
+            this.sink = sink;
+        }
+    }
+
+    // Journal work; never waits on the network
+    private ExecutorService executor;
+    private ScheduledExecutorService flusher;
+    private volatile WriteOutbox outbox;
+    private volatile String outboxUserId;
+    private volatile Session session;
+    private ScheduledFuture<?> scheduledFlush;
+
+    @Override
+    public void load() {
+        super.load();
+        executor = Executors.newSingleThreadExecutor();
+        flusher = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    // { userId, accessToken, supabaseUrl, anonKey }; call again with every new token
+    @PluginMethod
+    public void configure(PluginCall call) {
+        String userId = call.getString("userId");
+        String accessToken = call.getString("accessToken");
+        String supabaseUrl = call.getString("supabaseUrl");
+        String anonKey = call.getString("anonKey");
+        if (userId == null || accessToken == null || supabaseUrl == null || anonKey == null) {
+            call.reject("userId, accessToken, supabaseUrl and anonKey are required");
+            return;
+        }
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                openOutbox(userId);
+                session = new Session(userId, new SupabaseOutboxSink(supabaseUrl, anonKey, accessToken, userId));
+                JSObject result = new JSObject();
+                result.put("pending", outbox.size());
+                call.resolve(result);
+                scheduleFlush(0);
+            } catch (Exception e) {
+                Log.e(TAG, "configure failed", e);
+                call.reject("configure failed: " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    // Stops flushing, e.g. on sign-out. Unsent writes stay in the user's
+    // journal and go out after the next sign-in.
+    @PluginMethod
+    public void clear(PluginCall call) {
+        session = null;
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                closeOutbox();
+                call.resolve();
+            } catch (Exception e) {
+                Log.e(TAG, "clear failed", e);
+                call.reject("clear failed: " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    // { table, op: insert|update|delete, keyColumn, key, values? } -> { seq, pending }
+    // seq is -1 when a delete cancelled an insert that was never sent
+    @PluginMethod
+    public void enqueue(PluginCall call) {
+        String table = call.getString("table");
+        String op = call.getString("op");
+        String keyColumn = call.getString("keyColumn");
+        String key = call.getString("key");
+        JSObject values = call.getObject("values", new JSObject());
+        if (table == null || op == null || keyColumn == null || key == null) {
+            call.reject("table, op, keyColumn and key are required");
+            return;
+        }
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                WriteOutbox current = outbox;
+                if (current == null) {
+                    throw new IllegalStateException("Outbox is not configured");
+                }
+                long seq = current.enqueue(table, op, keyColumn, key, values.toString());
+                JSObject result = new JSObject();
+                result.put("seq", seq);
+                result.put("pending", current.size());
+                call.resolve(result);
+                scheduleFlush(ENQUEUE_FLUSH_DELAY_MS);
+            } catch (Exception e) {
+                Log.e(TAG, "enqueue failed", e);
+                call.reject("enqueue failed: " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    // -> { mutations: [{ seq, table, op, keyColumn, key, values, enqueuedAt }] }, oldest first
+    @PluginMethod
+    public void pending(PluginCall call) {
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                JSArray mutations = new JSArray();
+                WriteOutbox current = outbox;
+                if (current != null) {
+                    for (WriteOutbox.Mutation mutation : current.pending()) {
+                        mutations.put(toJson(mutation));
+                    }
+                }
+                JSObject result = new JSObject();
+                result.put("mutations", mutations);
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "pending failed", e);
+                call.reject("pending failed: " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    // Sends now, skipping any running backoff (e.g. the device came back online)
+    // -> { acknowledged, conflicts, remaining, retryAt?, error? }
+    @PluginMethod
+    public void flush(PluginCall call) {
+        flusher.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                WriteOutbox.FlushResult result = flushAll(true);
+                JSObject response = new JSObject();
+                response.put("acknowledged", result != null ? result.acknowledged : 0);
+                response.put("conflicts", result != null ? result.conflicts : 0);
+                response.put("remaining", result != null ? result.remaining : pendingCount());
+                if (result != null && result.retryAt > 0) {
+                    response.put("retryAt", result.retryAt);
+                    response.put("error", result.error);
+                }
+                call.resolve(response);
+            } catch (Exception e) {
+                Log.e(TAG, "flush failed", e);
+                call.reject("flush failed: " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    private synchronized void scheduleFlush(long delayMs) {
+        if (flusher.isShutdown()) {
+            return;
+        }
+        if (scheduledFlush != null && !scheduledFlush.isDone()) {
+            if (scheduledFlush.getDelay(TimeUnit.MILLISECONDS) <= delayMs) {
+                return;
+            }
+            scheduledFlush.cancel(false);
+        }
+        scheduledFlush = flusher.schedule(() -> {
+            try {
+                flushAll(false);
+            } catch (Exception e) {
+                Log.e(TAG, "Scheduled flush failed", e);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    // Flushes batch after batch until the outbox is empty or a batch fails;
+    // null when there is no session to flush with
+    private WriteOutbox.FlushResult flushAll(boolean force) throws Exception {
+        Session current = session;
+        WriteOutbox target = outbox;
+        if (current == null || target == null || !current.userId.equals(outboxUserId)) {
+            return null;
+        }
+        int acknowledged = 0;
+        int conflicts = 0;
+        WriteOutbox.FlushResult result;
+        do {
+            result = target.flush(current.sink, listener, WriteOutbox.DEFAULT_BATCH_SIZE, force);
+            acknowledged += result.acknowledged;
+            conflicts += result.conflicts;
+        } while (result.error == null && result.remaining > 0 && result.acknowledged + result.conflicts > 0);
+        if (result.retryAt > 0) {
+            scheduleFlush(Math.max(0, result.retryAt - System.currentTimeMillis()));
+            Log.w(TAG, "Flush failed, " + result.remaining + " writes wait: " + result.error);
+        }
+        return new WriteOutbox.FlushResult(acknowledged, conflicts, result.remaining, result.retryAt, result.error);
+    }
+
+    private final WriteOutbox.Listener listener = new WriteOutbox.Listener() {
+        @Override
+        public void onAcknowledged(List<WriteOutbox.Mutation> mutations) {
+            JSArray acknowledged = new JSArray();
+            for (WriteOutbox.Mutation mutation : mutations) {
+                JSObject entry = new JSObject();
+                entry.put("seq", mutation.seq);
+                entry.put("table", mutation.table);
+                entry.put("op", mutation.op);
+                entry.put("key", mutation.key);
+                acknowledged.put(entry);
+            }
+            JSObject event = new JSObject();
+            event.put("mutations", acknowledged);
+            event.put("remaining", pendingCount());
+            NativeEventBus.getInstance().emit("outboxAcknowledged", event.toString());
+        }
+
+        @Override
+        public void onConflict(WriteOutbox.Mutation mutation, String message) {
+            Log.w(TAG, "Outbox " + mutation.op + " of " + mutation.table + " " + mutation.key + " refused: " + message);
+            try {
+                JSObject event = toJson(mutation);
+                event.put("message", message);
+                NativeEventBus.getInstance().emit("outboxConflict", event.toString());
+            } catch (Exception e) {
+                Log.e(TAG, "Could not report conflict", e);
+            }
+        }
+    };
+
+    private int pendingCount() {
+        WriteOutbox current = outbox;
+        return current != null ? current.size() : 0;
+    }
+
+    private void openOutbox(String userId) throws Exception {
+        if (outbox != null && userId.equals(outboxUserId)) {
+            return;
+        }
+        closeOutbox();
+        File dir = new File(getContext().getFilesDir(), "outbox");
+        outbox = new WriteOutbox(new File(dir, userId.replaceAll("[^A-Za-z0-9_-]", "_") + ".journal"),
+            System::currentTimeMillis);
+        outboxUserId = userId;
+    }
+
+    private void closeOutbox() throws Exception {
+        WriteOutbox current = outbox;
+        outbox = null;
+        outboxUserId = null;
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private static JSObject toJson(WriteOutbox.Mutation mutation) throws Exception {
+        JSObject json = new JSObject();
+        json.put("seq", mutation.seq);
+        json.put("table", mutation.table);
+        json.put("op", mutation.op);
+        json.put("keyColumn", mutation.keyColumn);
+        json.put("key", mutation.key);
+        json.put("values", new JSONObject(mutation.payload));
+        json.put("enqueuedAt", mutation.enqueuedAt);
+        return json;
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        super.handleOnDestroy();
+        if (flusher != null) {
+            flusher.shutdownNow();
+        }
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
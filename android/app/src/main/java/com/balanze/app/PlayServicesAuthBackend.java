@@ -0,0 +1,125 @@
+package com.balanze.app;
+
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+import com.getcapacitor.CapConfig;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.PluginConfig;
+import com.google.android.gms.auth.api.signin.GoogleSignIn;
+import com.google.android.gms.auth.api.signin.GoogleSignInAccount;
+import com.google.android.gms.auth.api.signin.GoogleSignInClient;
+import com.google.android.gms.auth.api.signin.GoogleSignInOptions;
+import com.google.android.gms.common.ConnectionResult;
+import com.google.android.gms.common.GoogleApiAvailability;
+import com.google.android.gms.common.api.ApiException;
+
+// GoogleAuthClient.Backend on top of GoogleSignInClient, plus the app-wide
+// GoogleAuthClient instance. The client is bound to the application context
+// so it survives activity recreation and is shared by every caller.
+public class PlayServicesAuthBackend implements GoogleAuthClient.Backend {
+
+    private static final String TAG = "GoogleAuth";
+    // plugins.GoogleSignIn.serverClientId in capacitor.config.ts, used if the config can't be read
+    private static final String DEFAULT_SERVER_CLIENT_ID =
+        "684747632135-l7g9s4u1ka3tbjll9eu0avga2jmcs7m1.apps.googleusercontent.com";
+
+    private static GoogleAuthClient shared;
+    private static volatile PlayServicesAuthBackend instance;
+
+    private final GoogleSignInClient client;
+
+    private PlayServicesAuthBackend(GoogleSignInClient client) {
+        this.client = client;
+    }
+
+    public static synchronized GoogleAuthClient shared(Context context) {
+        if (shared == null) {
+            Context appContext = context.getApplicationContext();
+            shared = new GoogleAuthClient(() -> create(appContext));
+        }
+        return shared;
+    }
+
+    // Intent for the account picker; only called from Flow.showPicker, when the backend exists
+    public static Intent signInIntent(Context context) {
+        shared(context).warmUp();
+        return instance.client.getSignInIntent();
+    }
+
+    public static GoogleAuthClient.Account toAccount(GoogleSignInAccount account) {
+        return new GoogleAuthClient.Account(
+            account.getId(),
+            account.getIdToken(),
+            account.getEmail(),
+            account.getDisplayName(),
+            account.getPhotoUrl() != null ? account.getPhotoUrl().toString() : null);
+    }
+
+    public static JSObject toJSObject(GoogleAuthClient.Account account) {
+        JSObject result = new JSObject();
+        result.put("success", true);
+        result.put("idToken", account.idToken);
+        result.put("email", account.email);
+        result.put("displayName", account.displayName);
+        result.put("photoUrl", account.photoUrl);
+        result.put("id", account.id);
+        return result;
+    }
+
+    @Override
+    public void silentSignIn(GoogleAuthClient.SilentCallback callback) {
+        client.silentSignIn().addOnCompleteListener(task -> {
+            if (task.isSuccessful() && task.getResult() != null) {
+                callback.onAccount(toAccount(task.getResult()));
+                return;
+            }
+            Exception error = task.getException();
+            callback.onFailure(error instanceof ApiException ? ((ApiException) error).getStatusCode() : -1);
+        });
+    }
+
+    @Override
+    public void signOut(Runnable done) {
+        client.signOut().addOnCompleteListener(task -> done.run());
+    }
+
+    @Override
+    public void revokeAccess(Runnable done) {
+        client.revokeAccess().addOnCompleteListener(task -> done.run());
+    }
+
+    private static PlayServicesAuthBackend create(Context context) {
+        // Never empty: falls back to the bundled client id
+        String serverClientId = serverClientId(context);
+
+        int playServicesStatus = GoogleApiAvailability.getInstance().isGooglePlayServicesAvailable(context);
+        if (playServicesStatus != ConnectionResult.SUCCESS) {
+            // Still build the client: Play Services prompts the user to fix this on sign-in
+            Log.e(TAG, "❌ Google Play Services not available. Status: " + playServicesStatus);
+        }
+
+        // For native Android Sign-In, use the same Web Client ID that's configured in Supabase
+        GoogleSignInOptions options = new GoogleSignInOptions.Builder(GoogleSignInOptions.DEFAULT_SIGN_IN)
+            .requestIdToken(serverClientId)
+            .requestEmail()
+            .requestProfile()
+            .build();
+        instance = new PlayServicesAuthBackend(GoogleSignIn.getClient(context, options));
+        Log.i(TAG, "GoogleSignInClient initialized for " + context.getPackageName());
+        return instance;
+    }
+
+    private static String serverClientId(Context context) {
+        try {
+            PluginConfig config = CapConfig.loadDefault(context).getPluginConfiguration("GoogleSignIn");
+            String serverClientId = config != null ? config.getString("serverClientId", "") : "";
+            if (serverClientId != null && !serverClientId.isEmpty()) {
+                return serverClientId;
+            }
+        } catch (Exception e) {
+            Log.w(TAG, "Could not read GoogleSignIn config, using the bundled client id", e);
+        }
+        return DEFAULT_SERVER_CLIENT_ID;
+    }
+}
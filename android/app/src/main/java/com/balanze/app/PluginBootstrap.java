@@ -0,0 +1,156 @@
+package com.balanze.app;
+
+import android.net.Uri;
+import android.util.Log;
+import android.webkit.WebView;
+import androidx.webkit.WebViewCompat;
+import androidx.webkit.WebViewFeature;
+import com.getcapacitor.Bridge;
+import com.getcapacitor.WebViewListener;
+import java.util.Collections;
+
+// Installs the Capacitor.Plugins.GoogleSignIn shim (backed by the
+// GoogleSignInNative JS interface) into every page of the app.
+// Where the WebView supports it the shim is a document-start script, so it
+// runs before any page script; otherwise it is evaluated when the page starts
+// and again when it finishes loading. The shim guards itself per document,
+// so either way it runs exactly once per navigation.
+public class PluginBootstrap {
+
+    private static final String TAG = "PluginBootstrap";
+
+    static final String SHIM_SCRIPT = """
+        (function () {
+          if (window.__balanzeBootstrap) { return; }
+          window.__balanzeBootstrap = true;
+
+          function installGoogleSignIn() {
+            var C = window.Capacitor;
+            if (!C) { return false; }
+            if (!C.Plugins) { C.Plugins = {}; }
+            if (C.Plugins.GoogleSignIn) { return true; }
+
+            if (!window._GoogleSignInCallbacks) { window._GoogleSignInCallbacks = {}; }
+            var pendingCallbacks = window._GoogleSignInCallbacks;
+
+            C.Plugins.GoogleSignIn = {
+              signIn: function (options) {
+                var prompt = options && options.prompt;
+                return new Promise(function (resolve, reject) {
+                  var callbackId = 'cb' + Date.now() + '_' + Math.random().toString(36).substr(2, 9);
+                  pendingCallbacks[callbackId] = { resolve: resolve, reject: reject };
+                  if (window.GoogleSignInNative && window.GoogleSignInNative.signIn) {
+                    if (prompt && window.GoogleSignInNative.signInWithPrompt) {
+                      window.GoogleSignInNative.signInWithPrompt(callbackId, prompt);
+                    } else {
+                      window.GoogleSignInNative.signIn(callbackId);
+                    }
+                    setTimeout(function () {
+                      if (pendingCallbacks[callbackId]) {
+                        delete pendingCallbacks[callbackId];
+                        reject(new Error('Sign in timeout'));
+                      }
+                    }, 30000);
+                  } else {
+                    delete pendingCallbacks[callbackId];
+                    reject(new Error('Native interface not available'));
+                  }
+                });
+              },
+              signOut: function () {
+                if (window.GoogleSignInNative && window.GoogleSignInNative.signOut) {
+                  window.GoogleSignInNative.signOut();
+                }
+                return Promise.resolve({ success: true });
+              },
+              log: function (options) { return Promise.resolve(); }
+            };
+
+            // Results arrive through the native event bus, see src/lib/googleSignIn.ts
+            if (!window.GoogleSignInCallback) {
+              window.GoogleSignInCallback = function (callbackId, result) {
+                var callback = pendingCallbacks[callbackId];
+                if (!callback) { return; }
+                delete pendingCallbacks[callbackId];
+                if (result.error) {
+                  callback.reject(new Error(result.error));
+                } else {
+                  callback.resolve(result);
+                }
+              };
+            }
+            return true;
+          }
+
+          function ready(mode) {
+            if (window.BalanzeStartup) {
+              window.BalanzeStartup.pluginReady(mode, typeof window.GoogleSignInNative !== 'undefined');
+            }
+          }
+
+          if (installGoogleSignIn()) {
+            ready('immediate');
+          } else {
+            // Capacitor's bridge script is part of the page head, so it exists by DOMContentLoaded
+            document.addEventListener('DOMContentLoaded', function () {
+              if (installGoogleSignIn()) {
+                ready('dom-content-loaded');
+              } else {
+                console.error('[PluginBootstrap] Capacitor not found, GoogleSignIn shim not installed');
+              }
+            }, { once: true });
+          }
+        })();
+        """;
+
+    private PluginBootstrap() {
+    }
+
+    // Must be called in the same main-thread task that creates the bridge
+    // (i.e. right after BridgeActivity.onCreate) so the first navigation has
+    // not committed yet
+    public static void install(Bridge bridge, StartupTrace trace) {
+        WebView webView = bridge.getWebView();
+        String origin = bridge.getLocalUrl();
+        webView.addJavascriptInterface(trace, StartupTrace.INTERFACE_NAME);
+
+        if (WebViewFeature.isFeatureSupported(WebViewFeature.DOCUMENT_START_SCRIPT)) {
+            WebViewCompat.addDocumentStartJavaScript(webView, SHIM_SCRIPT, Collections.singleton(origin));
+            trace.setMode("document-start");
+            return;
+        }
+
+        trace.setMode("page-started");
+        bridge.addWebViewListener(new WebViewListener() {
+            @Override
+            public void onPageStarted(WebView view) {
+                trace.markPageStarted();
+                inject(view, origin);
+            }
+
+            // evaluateJavascript from onPageStarted can still land in the
+            // previous document; the per-document guard makes this a no-op
+            // when the first injection took
+            @Override
+            public void onPageLoaded(WebView view) {
+                inject(view, origin);
+            }
+        });
+    }
+
+    private static void inject(WebView view, String origin) {
+        String url = view.getUrl();
+        if (url == null || !isSameOrigin(url, origin)) {
+            Log.w(TAG, "Skipping shim for " + url);
+            return;
+        }
+        view.evaluateJavascript(SHIM_SCRIPT, null);
+    }
+
+    private static boolean isSameOrigin(String url, String origin) {
+        Uri page = Uri.parse(url);
+        Uri app = Uri.parse(origin);
+        return page.getScheme() != null && page.getScheme().equals(app.getScheme())
+            && page.getAuthority() != null && page.getAuthority().equals(app.getAuthority());
+    }
+}
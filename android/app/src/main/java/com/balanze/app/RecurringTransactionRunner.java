@@ -0,0 +1,169 @@
+package com.balanze.app;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+import java.io.IOException;
+import java.util.TimeZone;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Materializes overdue recurring transactions, from the plugin on sign-in and
+// launch and from RecurringTransactionWorker while the app is closed; runs
+// never overlap. Instances the server cron creates for the same date are
+// merged by the database's unique key.
+// While a page is open, runs use the session it handed over (configure),
+// which lives in memory only; the page refreshes its own tokens. Without a
+// page, runs read the session supabase-js keeps encrypted in the key-value
+// store and refresh it there (SupabaseSessionStore), so the page picks up
+// the rotated refresh token on its next launch. Only where to find it (user,
+// project, storage key) is kept in SharedPreferences.
+public class RecurringTransactionRunner {
+
+    private static final String TAG = "RecurringTransactions";
+    // Tokens this close to expiry are not worth starting a run with
+    private static final long EXPIRY_MARGIN_MS = 60_000;
+
+    private static final String PREFS = "recurring_transactions";
+    private static final String PREF_USER_ID = "user_id";
+    private static final String PREF_SUPABASE_URL = "supabase_url";
+    private static final String PREF_ANON_KEY = "anon_key";
+    private static final String PREF_SESSION_KEY = "session_key";
+
+    private static final class Session {
+        final String userId;
+        final String supabaseUrl;
+        final String anonKey;
+        final String accessToken;
+        final long expiresAtMs;
+
+        Session(String userId, String supabaseUrl, String anonKey, String accessToken, long expiresAtMs) {
+            this.userId = userId;
+            this.supabaseUrl = supabaseUrl;
+            this.anonKey = anonKey;
+            this.accessToken = accessToken;
+            this.expiresAtMs = expiresAtMs;
+        }
+    }
+
+    private static final Object RUN_LOCK = new Object();
+    private static volatile Session session;
+    // Pages (bridges) alive in this process; while there is one, the stored
+    // session is the page's to refresh
+    private static int openPages;
+
+    private RecurringTransactionRunner() {
+    }
+
+    // sessionKey: the key supabase-js stores its session under
+    static void configure(Context context, String userId, String supabaseUrl, String anonKey,
+                          String accessToken, long expiresAtMs, String sessionKey) {
+        session = new Session(userId, supabaseUrl, anonKey, accessToken, expiresAtMs);
+        prefs(context).edit()
+            .clear()
+            .putString(PREF_USER_ID, userId)
+            .putString(PREF_SUPABASE_URL, supabaseUrl)
+            .putString(PREF_ANON_KEY, anonKey)
+            .putString(PREF_SESSION_KEY, sessionKey)
+            .apply();
+        RecurringTransactionWorker.schedule(context);
+    }
+
+    // Forgets the session and stops background runs, e.g. on sign-out
+    static void clear(Context context) {
+        session = null;
+        prefs(context).edit().clear().apply();
+        RecurringTransactionWorker.cancel(context);
+    }
+
+    static synchronized void pageOpened() {
+        openPages++;
+    }
+
+    static synchronized void pageClosed() {
+        openPages--;
+        if (openPages == 0) {
+            // Its tokens are not refreshed any more; background runs use the stored session
+            session = null;
+        }
+    }
+
+    private static synchronized boolean hasOpenPage() {
+        return openPages > 0;
+    }
+
+    // One catch-up run; null when there is no usable session. Runs never overlap.
+    static RecurringTransactionScheduler.Result runOnce(Context context) throws IOException {
+        synchronized (RUN_LOCK) {
+            Session current = usableSession(context);
+            if (current == null) {
+                return null;
+            }
+
+            RecurringTransactionScheduler scheduler = new RecurringTransactionScheduler(
+                new SupabaseRecurringBackend(current.supabaseUrl, current.anonKey, current.accessToken),
+                System::currentTimeMillis,
+                TimeZone.getDefault());
+            RecurringTransactionScheduler.Result result = scheduler.run(current.userId);
+            Log.i(TAG, "Recurring run: " + result.templates + " templates, " + result.created + " created, "
+                + result.alreadyPresent + " already present, " + result.ended + " ended"
+                + (result.more ? ", more pending" : ""));
+            if (result.created > 0) {
+                NativeEventBus.getInstance().emit("recurringMaterialized", toJson(result).toString());
+            }
+            return result;
+        }
+    }
+
+    private static Session usableSession(Context context) throws IOException {
+        Session handedOver = session;
+        if (handedOver != null && System.currentTimeMillis() < handedOver.expiresAtMs - EXPIRY_MARGIN_MS) {
+            return handedOver;
+        }
+        if (hasOpenPage()) {
+            Log.i(TAG, "Session expired, waiting for the page to hand over a new one");
+            return null;
+        }
+
+        SharedPreferences prefs = prefs(context);
+        String userId = prefs.getString(PREF_USER_ID, null);
+        String supabaseUrl = prefs.getString(PREF_SUPABASE_URL, null);
+        String anonKey = prefs.getString(PREF_ANON_KEY, null);
+        String sessionKey = prefs.getString(PREF_SESSION_KEY, null);
+        if (userId == null || supabaseUrl == null || anonKey == null || sessionKey == null) {
+            return null;
+        }
+        SupabaseSessionStore store = new SupabaseSessionStore(KeyValueStore.getInstance(context), sessionKey,
+            SupabaseSessionStore.http(supabaseUrl, anonKey), System::currentTimeMillis);
+        SupabaseSessionStore.Session stored;
+        try {
+            stored = store.current(EXPIRY_MARGIN_MS);
+        } catch (SupabaseSessionStore.RefreshRejectedException e) {
+            Log.w(TAG, "Stored session was refused, waiting for the next sign-in", e);
+            return null;
+        }
+        if (stored == null || !userId.equals(stored.userId)) {
+            return null;
+        }
+        return new Session(userId, supabaseUrl, anonKey, stored.accessToken, stored.expiresAtMs);
+    }
+
+    static JSONObject toJson(RecurringTransactionScheduler.Result result) {
+        JSONObject json = new JSONObject();
+        try {
+            json.put("templates", result.templates);
+            json.put("created", result.created);
+            json.put("alreadyPresent", result.alreadyPresent);
+            json.put("paused", result.paused);
+            json.put("ended", result.ended);
+            json.put("more", result.more);
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+        return json;
+    }
+
+    private static SharedPreferences prefs(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS, Context.MODE_PRIVATE);
+    }
+}
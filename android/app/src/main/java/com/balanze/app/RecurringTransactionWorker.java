@@ -0,0 +1,56 @@
+package com.balanze.app;
+
+import android.content.Context;
+import android.util.Log;
+import androidx.work.Constraints;
+import androidx.work.ExistingPeriodicWorkPolicy;
+import androidx.work.NetworkType;
+import androidx.work.PeriodicWorkRequest;
+import androidx.work.WorkManager;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+// Periodic WorkManager job that materializes overdue recurring transactions
+// while the app is closed, so the next launch finds them already in place.
+// Scheduled on sign-in (RecurringTransactionRunner.configure) and cancelled
+// on sign-out; the runner supplies and refreshes the session.
+public class RecurringTransactionWorker extends Worker {
+
+    private static final String TAG = "RecurringTransactions";
+    private static final String UNIQUE_WORK = "recurring-transactions";
+    private static final long PERIOD_HOURS = 6;
+
+    public RecurringTransactionWorker(Context context, WorkerParameters params) {
+        super(context, params);
+    }
+
+    @Override
+    public Result doWork() {
+        try {
+            RecurringTransactionRunner.runOnce(getApplicationContext());
+            return Result.success();
+        } catch (IOException e) {
+            Log.w(TAG, "Recurring transaction run failed, will retry", e);
+            return Result.retry();
+        }
+    }
+
+    // Keeps an already scheduled job and its timing
+    static void schedule(Context context) {
+        Constraints constraints = new Constraints.Builder()
+            .setRequiredNetworkType(NetworkType.CONNECTED)
+            .build();
+        PeriodicWorkRequest request = new PeriodicWorkRequest.Builder(
+            RecurringTransactionWorker.class, PERIOD_HOURS, TimeUnit.HOURS)
+            .setConstraints(constraints)
+            .build();
+        WorkManager.getInstance(context).enqueueUniquePeriodicWork(
+            UNIQUE_WORK, ExistingPeriodicWorkPolicy.KEEP, request);
+    }
+
+    static void cancel(Context context) {
+        WorkManager.getInstance(context).cancelUniqueWork(UNIQUE_WORK);
+    }
+}
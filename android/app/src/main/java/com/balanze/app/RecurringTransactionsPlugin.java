@@ -0,0 +1,95 @@
+package com.balanze.app;
+
+import android.util.Log;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Hands the signed-in session to RecurringTransactionRunner, which also
+// schedules RecurringTransactionWorker, and runs the catch-up the web layer
+// asks for on sign-in and launch. Tells the runner while its page is alive.
+@CapacitorPlugin(name = "RecurringTransactions")
+public class RecurringTransactionsPlugin extends Plugin {
+
+    private static final String TAG = "RecurringTransactions";
+
+    private ExecutorService executor;
+
+    @Override
+    public void load() {
+        super.load();
+        executor = Executors.newSingleThreadExecutor();
+        RecurringTransactionRunner.pageOpened();
+    }
+
+    // { userId, accessToken, expiresAt (epoch seconds, as in the Supabase session), supabaseUrl, anonKey,
+    //   sessionKey (supabase-js storage key) }
+    @PluginMethod
+    public void configure(PluginCall call) {
+        String userId = call.getString("userId");
+        String accessToken = call.getString("accessToken");
+        String supabaseUrl = call.getString("supabaseUrl");
+        String anonKey = call.getString("anonKey");
+        String sessionKey = call.getString("sessionKey");
+        Long expiresAt = call.getLong("expiresAt");
+        if (userId == null || accessToken == null || supabaseUrl == null || anonKey == null || expiresAt == null
+            || sessionKey == null) {
+            call.reject("userId, accessToken, expiresAt, supabaseUrl, anonKey and sessionKey are required");
+            return;
+        }
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                RecurringTransactionRunner.configure(
+                    getContext(), userId, supabaseUrl, anonKey, accessToken, expiresAt * 1000L, sessionKey);
+                call.resolve();
+            } catch (Exception e) {
+                Log.e(TAG, "configure failed", e);
+                call.reject("configure failed: " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    @PluginMethod
+    public void clear(PluginCall call) {
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                RecurringTransactionRunner.clear(getContext());
+                call.resolve();
+            } catch (Exception e) {
+                Log.e(TAG, "clear failed", e);
+                call.reject("clear failed: " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    // -> { ran, templates, created, alreadyPresent, paused, ended, more }; ran is false without a usable session
+    @PluginMethod
+    public void runNow(PluginCall call) {
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                RecurringTransactionScheduler.Result result = RecurringTransactionRunner.runOnce(getContext());
+                JSObject response = result != null
+                    ? JSObject.fromJSONObject(RecurringTransactionRunner.toJson(result))
+                    : new JSObject();
+                response.put("ran", result != null);
+                call.resolve(response);
+            } catch (Exception e) {
+                Log.e(TAG, "runNow failed", e);
+                call.reject("runNow failed: " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    @Override
+    protected void handleOnDestroy() {
+        super.handleOnDestroy();
+        RecurringTransactionRunner.pageClosed();
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+}
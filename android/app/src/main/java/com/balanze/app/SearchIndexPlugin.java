@@ -0,0 +1,202 @@
+package com.balanze.app;
+
+import android.util.Log;
+import com.getcapacitor.JSArray;
+import com.getcapacitor.JSObject;
+import com.getcapacitor.Plugin;
+import com.getcapacitor.PluginCall;
+import com.getcapacitor.PluginMethod;
+import com.getcapacitor.annotation.CapacitorPlugin;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Native full-text index behind searchService. The web layer pushes records
+// as they are loaded or changed and asks for the top matches per keystroke;
+// indexing and queries run on one background thread, never on the UI thread.
+// The index lives in memory and is rebuilt from the web layer's data each session.
+@CapacitorPlugin(name = "SearchIndex")
+public class SearchIndexPlugin extends Plugin {
+
+    private static final String TAG = "SearchIndex";
+
+    private SearchIndex index;
+    // SearchIndex is not thread-safe; every call is serialized here
+    private ExecutorService executor;
+
+    @Override
+    public void load() {
+        super.load();
+        index = new SearchIndex();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    // { type, records: [{ id, fields: { name: text }, timestamp? }], weights?: { field: weight } }
+    @PluginMethod
+    public void put(PluginCall call) {
+        String type = call.getString("type");
+        JSArray records = call.getArray("records");
+        JSObject weights = call.getObject("weights");
+        if (type == null || records == null) {
+            call.reject("type and records are required");
+            return;
+        }
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                if (weights != null) {
+                    Map<String, Float> fieldWeights = new HashMap<>();
+                    Iterator<String> keys = weights.keys();
+                    while (keys.hasNext()) {
+                        String field = keys.next();
+                        fieldWeights.put(field, (float) weights.getDouble(field));
+                    }
+                    index.setFieldWeights(type, fieldWeights);
+                }
+                for (int i = 0; i < records.length(); i++) {
+                    JSONObject record = records.getJSONObject(i);
+                    JSONObject fields = record.optJSONObject("fields");
+                    Map<String, String> values = new LinkedHashMap<>();
+                    if (fields != null) {
+                        Iterator<String> keys = fields.keys();
+                        while (keys.hasNext()) {
+                            String field = keys.next();
+                            if (!fields.isNull(field)) {
+                                values.put(field, fields.optString(field));
+                            }
+                        }
+                    }
+                    index.put(type, record.getString("id"), values, record.optLong("timestamp", 0));
+                }
+                JSObject result = new JSObject();
+                result.put("count", records.length());
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Indexing " + type + " failed", e);
+                call.reject("Failed to index " + type + ": " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    @PluginMethod
+    public void remove(PluginCall call) {
+        String type = call.getString("type");
+        JSArray ids = call.getArray("ids");
+        if (type == null || ids == null) {
+            call.reject("type and ids are required");
+            return;
+        }
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                int removed = 0;
+                for (int i = 0; i < ids.length(); i++) {
+                    if (index.remove(type, ids.getString(i))) {
+                        removed++;
+                    }
+                }
+                JSObject result = new JSObject();
+                result.put("count", removed);
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Removing from " + type + " failed", e);
+                call.reject("Failed to remove from " + type + ": " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    // Without a type the whole index is dropped, e.g. on sign-out
+    @PluginMethod
+    public void clear(PluginCall call) {
+        String type = call.getString("type");
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            index.clear(type);
+            call.resolve();
+        }));
+    }
+
+    // { synonyms: { word: [alternatives] } }
+    @PluginMethod
+    public void setSynonyms(PluginCall call) {
+        JSObject synonyms = call.getObject("synonyms");
+        if (synonyms == null) {
+            call.reject("synonyms is required");
+            return;
+        }
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                Map<String, List<String>> map = new HashMap<>();
+                Iterator<String> keys = synonyms.keys();
+                while (keys.hasNext()) {
+                    String word = keys.next();
+                    JSONArray alternatives = synonyms.getJSONArray(word);
+                    List<String> list = new ArrayList<>(alternatives.length());
+                    for (int i = 0; i < alternatives.length(); i++) {
+                        list.add(alternatives.getString(i));
+                    }
+                    map.put(word, list);
+                }
+                index.setSynonyms(map);
+                call.resolve();
+            } catch (Exception e) {
+                call.reject("Invalid synonyms: " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    // { query, types?: string[], limit? } -> { hits: [{ type, id, score }], tookMs }
+    @PluginMethod
+    public void search(PluginCall call) {
+        String query = call.getString("query", "");
+        JSArray types = call.getArray("types");
+        int limit = call.getInt("limit", SearchIndex.DEFAULT_LIMIT);
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            try {
+                List<String> typeList = null;
+                if (types != null) {
+                    typeList = new ArrayList<>(types.length());
+                    for (int i = 0; i < types.length(); i++) {
+                        typeList.add(types.getString(i));
+                    }
+                }
+                long start = System.nanoTime();
+                List<SearchIndex.Hit> hits = index.search(query, typeList, limit);
+                double tookMs = (System.nanoTime() - start) / 1e6;
+
+                JSArray results = new JSArray();
+                for (SearchIndex.Hit hit : hits) {
+                    JSObject item = new JSObject();
+                    item.put("type", hit.type);
+                    item.put("id", hit.id);
+                    item.put("score", hit.score);
+                    results.put(item);
+                }
+                JSObject result = new JSObject();
+                result.put("hits", results);
+                result.put("tookMs", tookMs);
+                call.resolve(result);
+            } catch (Exception e) {
+                Log.e(TAG, "Search failed", e);
+                call.reject("Search failed: " + e.getMessage(), e);
+            }
+        }));
+    }
+
+    @PluginMethod
+    public void getStats(PluginCall call) {
+        executor.execute(BridgeMetrics.timed(call, () -> {
+            SearchIndex.Stats stats = index.stats();
+            JSObject result = new JSObject();
+            result.put("documents", stats.documents);
+            result.put("terms", stats.terms);
+            result.put("postings", stats.postings);
+            result.put("deletedSlots", stats.deletedSlots);
+            call.resolve(result);
+        }));
+    }
+}
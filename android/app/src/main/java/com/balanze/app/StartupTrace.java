@@ -0,0 +1,183 @@
+package com.balanze.app;
+
+import android.os.Build;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+import android.webkit.JavascriptInterface;
+import java.util.ArrayDeque;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// Records how long after MainActivity.onCreate the JS plugin shim became
+// usable, and what the old retry loop would have needed for the same page.
+// The old loop first ran 100 ms after the bridge was created and retried
+// every 200 ms, at most 10 times. It could only succeed once window.Capacitor
+// existed, so its time is derived from when the shim saw Capacitor.
+// Shows up in logcat (tag StartupTrace) and as a "plugin-ready" slice in
+// system traces on API 29+.
+// Also times the phases of MainActivity.onCreate as "balanze:<phase>" trace
+// sections (measured by StartupBenchmark) and logs a cold-start summary once
+// the first frame is drawn.
+public class StartupTrace {
+
+    // Told on the main thread as each onCreate phase starts and ends, outside
+    // the phase's own timing. StartupRegressionTest measures wall time and
+    // allocations per phase through it.
+    interface PhaseObserver {
+        void phaseStarted(String name);
+
+        void phaseEnded(String name);
+    }
+
+    private static final String TAG = "StartupTrace";
+    static final String INTERFACE_NAME = "BalanzeStartup";
+
+    static final long LEGACY_FIRST_ATTEMPT_MS = 100;
+    static final long LEGACY_RETRY_INTERVAL_MS = 200;
+    static final int LEGACY_MAX_ATTEMPTS = 10;
+
+    private static final String SECTION = "plugin-ready";
+    private static final int SECTION_COOKIE = 5;
+    static final String PHASE_PREFIX = "balanze:";
+
+    private final long createdAt;
+    private volatile String mode = "unknown";
+    private volatile long bridgeCreatedAt = -1;
+    private volatile long pageStartedAt = -1;
+    private boolean reported;
+    // Main thread only
+    private final Map<String, Long> phases = new LinkedHashMap<>();
+    private final ArrayDeque<String> openPhases = new ArrayDeque<>();
+    private final ArrayDeque<Long> openPhaseStarts = new ArrayDeque<>();
+    private boolean firstFrameReported;
+    private static volatile PhaseObserver phaseObserver;
+
+    public StartupTrace() {
+        createdAt = SystemClock.elapsedRealtime();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.beginAsyncSection(SECTION, SECTION_COOKIE);
+        }
+    }
+
+    static void setPhaseObserver(PhaseObserver observer) {
+        phaseObserver = observer;
+    }
+
+    void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public void markBridgeCreated() {
+        bridgeCreatedAt = SystemClock.elapsedRealtime();
+    }
+
+    public void beginPhase(String name) {
+        Trace.beginSection(PHASE_PREFIX + name);
+        openPhases.push(name);
+        openPhaseStarts.push(SystemClock.elapsedRealtime());
+        PhaseObserver observer = phaseObserver;
+        if (observer != null) {
+            observer.phaseStarted(name);
+        }
+    }
+
+    public void endPhase() {
+        PhaseObserver observer = phaseObserver;
+        if (observer != null) {
+            observer.phaseEnded(openPhases.peek());
+        }
+        Trace.endSection();
+        phases.put(openPhases.pop(), SystemClock.elapsedRealtime() - openPhaseStarts.pop());
+    }
+
+    public void markFirstFrame() {
+        if (firstFrameReported) {
+            return;
+        }
+        firstFrameReported = true;
+        long firstFrameMs = SystemClock.elapsedRealtime() - createdAt;
+        long processStartMs = -1;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            processStartMs = createdAt - android.os.Process.getStartElapsedRealtime();
+        }
+        long applicationMs = BalanzeApplication.createdAt() >= 0 ? createdAt - BalanzeApplication.createdAt() : -1;
+        Log.i(TAG, formatSummary(processStartMs, applicationMs, phases, firstFrameMs));
+    }
+
+    void markPageStarted() {
+        if (pageStartedAt < 0) {
+            pageStartedAt = SystemClock.elapsedRealtime();
+        }
+    }
+
+    // Called by the shim on the JavaBridge thread; only the first page counts
+    @JavascriptInterface
+    public void pluginReady(String installedAt, boolean nativeInterfaceAvailable) {
+        long readyAt = SystemClock.elapsedRealtime();
+        long startedAt = BridgeMetrics.now();
+        synchronized (this) {
+            if (reported) {
+                return;
+            }
+            reported = true;
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(SECTION, SECTION_COOKIE);
+        }
+
+        long readyMs = readyAt - createdAt;
+        long loopStartMs = (bridgeCreatedAt >= 0 ? bridgeCreatedAt : createdAt) - createdAt;
+        long legacyMs = legacyReadyAfter(loopStartMs, readyMs);
+        Log.i(TAG, String.format(Locale.US,
+            "Plugin ready %d ms after onCreate via %s/%s (page started %s, GoogleSignInNative %s); retry loop: %s",
+            readyMs,
+            mode,
+            installedAt,
+            pageStartedAt >= 0 ? (pageStartedAt - createdAt) + " ms" : "n/a",
+            nativeInterfaceAvailable ? "present" : "missing",
+            legacyMs >= 0 ? "~" + legacyMs + " ms" : "gave up after " + LEGACY_MAX_ATTEMPTS + " attempts"));
+        BridgeMetrics.getInstance().record(INTERFACE_NAME, "pluginReady",
+            installedAt != null ? installedAt.length() : 0, 0, BridgeMetrics.now() - startedAt);
+    }
+
+    // processStartMs / applicationMs: from process start and from
+    // Application.onCreate to MainActivity.onCreate, -1 when unknown
+    static String formatSummary(long processStartMs, long applicationMs, Map<String, Long> phases, long firstFrameMs) {
+        StringBuilder summary = new StringBuilder("Cold start:");
+        if (processStartMs >= 0) {
+            summary.append(" process -> onCreate ").append(processStartMs).append(" ms,");
+        }
+        if (applicationMs >= 0) {
+            summary.append(" Application -> onCreate ").append(applicationMs).append(" ms,");
+        }
+        summary.append(" first frame ").append(firstFrameMs).append(" ms after onCreate");
+        if (!phases.isEmpty()) {
+            summary.append(" (");
+            boolean first = true;
+            for (Map.Entry<String, Long> phase : phases.entrySet()) {
+                if (!first) {
+                    summary.append(", ");
+                }
+                summary.append(phase.getKey()).append(' ').append(phase.getValue()).append(" ms");
+                first = false;
+            }
+            summary.append(')');
+        }
+        return summary.toString();
+    }
+
+    // First retry-loop attempt at or after capacitorAvailableMs, or -1 if the
+    // loop would have run out of attempts first. Both times are relative to onCreate.
+    static long legacyReadyAfter(long loopStartMs, long capacitorAvailableMs) {
+        long attemptAt = loopStartMs + LEGACY_FIRST_ATTEMPT_MS;
+        for (int attempt = 1; attempt <= LEGACY_MAX_ATTEMPTS; attempt++) {
+            if (attemptAt >= capacitorAvailableMs) {
+                return attemptAt;
+            }
+            attemptAt += LEGACY_RETRY_INTERVAL_MS;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,73 @@
+package com.balanze.app;
+
+import android.net.Uri;
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.webkit.JavascriptInterface;
+import android.webkit.WebMessage;
+import android.webkit.WebMessagePort;
+import android.webkit.WebView;
+
+// Connects NativeEventBus to the page through a WebMessagePort.
+// The page's dispatcher (src/lib/nativeEventBus.ts) calls
+// BalanzeEventBus.ready() once it is listening; every ready() opens a fresh
+// channel, so a reloaded page gets a new port and the old one is closed.
+public class WebViewEventChannel implements NativeEventBus.Transport {
+
+    private static final String TAG = "NativeEventBus";
+    static final String INTERFACE_NAME = "BalanzeEventBus";
+    static final String HANDSHAKE_MESSAGE = "balanze-event-bus";
+
+    private final WebView webView;
+    private final Uri targetOrigin;
+    private final NativeEventBus bus;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private WebMessagePort port;
+
+    public WebViewEventChannel(WebView webView, String targetOrigin, NativeEventBus bus) {
+        this.webView = webView;
+        this.targetOrigin = Uri.parse(targetOrigin);
+        this.bus = bus;
+    }
+
+    public void install() {
+        webView.addJavascriptInterface(this, INTERFACE_NAME);
+    }
+
+    // Runs on the WebView's JavaBridge thread
+    @JavascriptInterface
+    public void ready() {
+        long startedAt = BridgeMetrics.now();
+        mainHandler.post(this::connect);
+        BridgeMetrics.getInstance().record(INTERFACE_NAME, "ready", 0, 0, BridgeMetrics.now() - startedAt);
+    }
+
+    @Override
+    public void deliver(String batchJson) {
+        if (port != null) {
+            port.postMessage(new WebMessage(batchJson));
+        }
+    }
+
+    private void connect() {
+        bus.detach(this);
+        if (port != null) {
+            port.close();
+            port = null;
+        }
+        try {
+            WebMessagePort[] channel = webView.createWebMessageChannel();
+            // Only a page from the app's own origin receives the other end
+            webView.postWebMessage(new WebMessage(HANDSHAKE_MESSAGE, new WebMessagePort[] { channel[1] }), targetOrigin);
+            port = channel[0];
+            bus.attach(this);
+            long dropped = bus.getDroppedCount();
+            if (dropped > 0) {
+                Log.w(TAG, "Dropped " + dropped + " events while no page was attached");
+            }
+        } catch (RuntimeException e) {
+            Log.e(TAG, "Could not open the event channel", e);
+        }
+    }
+}
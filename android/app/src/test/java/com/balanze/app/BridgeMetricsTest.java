@@ -0,0 +1,123 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+import java.util.Random;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+// Robolectric only for org.json in payloadSize; the histograms are plain Java
+@RunWith(RobolectricTestRunner.class)
+public class BridgeMetricsTest {
+
+    @Test
+    public void bucketsCoverEveryValueInOrder() {
+        int previous = -1;
+        for (long value = 0; value < 100_000; value++) {
+            int bucket = BridgeMetrics.bucket(value);
+            assertTrue(bucket >= previous);
+            assertTrue(BridgeMetrics.lowerBound(bucket) <= value);
+            assertTrue(value < BridgeMetrics.lowerBound(bucket + 1));
+            previous = bucket;
+        }
+        assertEquals(BridgeMetrics.BUCKET_COUNT - 1, BridgeMetrics.bucket(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void percentilesStayWithinBucketResolution() {
+        BridgeMetrics.Histogram histogram = new BridgeMetrics.Histogram();
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(10_000, histogram.count());
+        assertEquals(10_000, histogram.max());
+        assertEquals(5000.5, histogram.mean(), 0.001);
+        assertWithin(5000, histogram.percentile(0.5));
+        assertWithin(9000, histogram.percentile(0.9));
+        assertWithin(9900, histogram.percentile(0.99));
+        assertEquals(10_000, histogram.percentile(1.0));
+    }
+
+    @Test
+    public void percentileNeverExceedsMaximum() {
+        BridgeMetrics.Histogram histogram = new BridgeMetrics.Histogram();
+        histogram.record(1000);
+        assertEquals(1000, histogram.percentile(0.5));
+        assertEquals(1000, histogram.percentile(0.99));
+    }
+
+    @Test
+    public void skewedDistributionReportsTail() {
+        BridgeMetrics.Histogram histogram = new BridgeMetrics.Histogram();
+        Random random = new Random(7);
+        for (int i = 0; i < 990; i++) {
+            histogram.record(100 + random.nextInt(50));
+        }
+        for (int i = 0; i < 10; i++) {
+            histogram.record(50_000);
+        }
+        assertTrue(histogram.percentile(0.5) < 170);
+        assertTrue(histogram.percentile(0.99) < 170);
+        assertEquals(50_000, histogram.percentile(0.999));
+    }
+
+    @Test
+    public void emptyHistogramReportsZero() {
+        BridgeMetrics.Histogram histogram = new BridgeMetrics.Histogram();
+        assertEquals(0, histogram.percentile(0.99));
+        assertEquals(0, histogram.mean(), 0);
+        histogram.record(-5);
+        assertEquals(0, histogram.max());
+    }
+
+    @Test
+    public void snapshotOrdersBySlowestTailAndResetClears() {
+        BridgeMetrics metrics = new BridgeMetrics();
+        for (int i = 0; i < 20; i++) {
+            metrics.record("Ledger", "query", 120, 50_000, 2_000_000);
+            metrics.record("Export", "exportCsv", 300, 10_000, 40_000_000);
+        }
+        metrics.record("Ledger", "query", 120, 50_000, 3_000_000);
+
+        List<BridgeMetrics.MethodStats> snapshot = metrics.snapshot();
+        assertEquals(2, snapshot.size());
+        assertEquals("Export", snapshot.get(0).target);
+        assertEquals("exportCsv", snapshot.get(0).method);
+        assertEquals(21, snapshot.get(1).calls());
+        assertEquals(3000, snapshot.get(1).executionMicros.max());
+        assertWithin(50, snapshot.get(1).queueMicros.percentile(0.5));
+
+        String table = metrics.format();
+        assertTrue(table.contains("Export.exportCsv"));
+        assertTrue(table.indexOf("Export.exportCsv") < table.indexOf("Ledger.query"));
+
+        metrics.reset();
+        for (BridgeMetrics.MethodStats stats : metrics.snapshot()) {
+            assertEquals(0, stats.calls());
+        }
+        assertFalse(metrics.format().contains("Ledger.query"));
+    }
+
+    @Test
+    public void payloadSizeMatchesSerializedJson() throws Exception {
+        JSONObject data = new JSONObject()
+            .put("table", "transactions")
+            .put("op", "update")
+            .put("flag", true)
+            .put("missing", JSONObject.NULL)
+            .put("values", new JSONObject().put("description", "Groceries"))
+            .put("ids", new JSONArray().put("a").put("bc"));
+        assertEquals(data.toString().length(), BridgeMetrics.payloadSize(data));
+        assertEquals(2, BridgeMetrics.payloadSize(new JSONObject()));
+        assertEquals(2, BridgeMetrics.payloadSize(new JSONArray()));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected ~" + expected + " but was " + actual,
+            actual >= expected && actual <= expected + expected / 8 + 1);
+    }
+}
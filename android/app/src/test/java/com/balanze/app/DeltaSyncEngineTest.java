@@ -0,0 +1,202 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+// Runs the sync against a PostgREST stand-in bound to localhost
+@RunWith(RobolectricTestRunner.class)
+public class DeltaSyncEngineTest {
+
+    private static final String USER = "user-1";
+
+    private HttpServer server;
+    private final Deque<Response> responses = new ArrayDeque<>();
+    private final List<String> requestQueries = new ArrayList<>();
+    private final List<String> authHeaders = new ArrayList<>();
+
+    private LedgerDatabase database;
+    private LedgerStore store;
+    private final List<DeltaSyncEngine.ChangeSet> changeSets = new ArrayList<>();
+
+    private static class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/rest/v1/", exchange -> {
+            requestQueries.add(URLDecoder.decode(exchange.getRequestURI().getRawQuery(), StandardCharsets.UTF_8.name()));
+            authHeaders.add(exchange.getRequestHeaders().getFirst("Authorization"));
+            Response response = responses.isEmpty() ? new Response(200, "[]") : responses.poll();
+            byte[] body = response.body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(response.status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        database = new LedgerDatabase(RuntimeEnvironment.getApplication(), null);
+        store = new LedgerStore(database);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        database.close();
+    }
+
+    @Test
+    public void firstSyncPagesThroughEverythingInBatches() throws Exception {
+        responses.add(ok(row("t1", "2025-01-01T00:00:00+00:00"), row("t2", "2025-01-02T00:00:00+00:00")));
+        responses.add(ok(row("t3", "2025-01-03T00:00:00+00:00")));
+
+        int merged = engine(2).syncTable(LedgerTable.TRANSACTIONS, USER);
+
+        assertEquals(3, merged);
+        assertEquals(3, store.count(LedgerTable.TRANSACTIONS, USER));
+        assertEquals(2, requestQueries.size());
+        assertFalse(requestQueries.get(0).contains("or="));
+        assertTrue(requestQueries.get(1).contains("updated_at.gt.\"2025-01-02T00:00:00+00:00\""));
+        assertTrue(requestQueries.get(1).contains("id.gt.\"t2\""));
+        assertEquals("Bearer token-123", authHeaders.get(0));
+
+        assertEquals(2, changeSets.size());
+        assertEquals(2, changeSets.get(0).upsertedIds.size());
+        assertEquals("t3", changeSets.get(1).upsertedIds.get(0));
+        assertEquals("2025-01-03T00:00:00+00:00", changeSets.get(1).highWaterMark);
+    }
+
+    @Test
+    public void nextSyncStartsFromStoredHighWaterMark() throws Exception {
+        responses.add(ok(row("t1", "2025-01-01T00:00:00+00:00")));
+        engine(10).syncTable(LedgerTable.TRANSACTIONS, USER);
+
+        responses.add(ok());
+        int merged = engine(10).syncTable(LedgerTable.TRANSACTIONS, USER);
+
+        assertEquals(0, merged);
+        assertTrue(requestQueries.get(1).contains("updated_at.gt.\"2025-01-01T00:00:00+00:00\""));
+        assertEquals(1, changeSets.size());
+    }
+
+    @Test
+    public void updatedRowReplacesLocalCopy() throws Exception {
+        responses.add(ok(row("t1", "2025-01-01T00:00:00+00:00").put("amount", 10)));
+        engine(10).syncTable(LedgerTable.TRANSACTIONS, USER);
+        responses.add(ok(row("t1", "2025-01-05T00:00:00+00:00").put("amount", 99)));
+        engine(10).syncTable(LedgerTable.TRANSACTIONS, USER);
+
+        LedgerStore.Query query = new LedgerStore.Query();
+        query.userId = USER;
+        LedgerStore.Page page = store.query(LedgerTable.TRANSACTIONS, query);
+
+        assertEquals(1, page.rows.size());
+        assertEquals(99, new JSONObject(page.rows.get(0)).getInt("amount"));
+    }
+
+    @Test
+    public void failedBatchKeepsEarlierBatchesAndResumesAfterThem() throws Exception {
+        responses.add(ok(row("t1", "2025-01-01T00:00:00+00:00"), row("t2", "2025-01-02T00:00:00+00:00")));
+        responses.add(new Response(500, "{\"message\":\"boom\"}"));
+
+        try {
+            engine(2).syncTable(LedgerTable.TRANSACTIONS, USER);
+            fail("Expected the HTTP 500 to surface");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("500"));
+        }
+        assertEquals(2, store.count(LedgerTable.TRANSACTIONS, USER));
+
+        responses.add(ok(row("t3", "2025-01-03T00:00:00+00:00")));
+        engine(2).syncTable(LedgerTable.TRANSACTIONS, USER);
+
+        assertTrue(requestQueries.get(2).contains("id.gt.\"t2\""));
+        assertEquals(3, store.count(LedgerTable.TRANSACTIONS, USER));
+    }
+
+    @Test
+    public void rowsWithoutUpdatedAtAreWalkedById() throws Exception {
+        responses.add(ok(row("a", null), row("b", null)));
+        responses.add(ok());
+
+        engine(2).syncTable(LedgerTable.CATEGORIES, USER);
+
+        assertTrue(requestQueries.get(1).contains("updated_at.not.is.null"));
+        assertTrue(requestQueries.get(1).contains("id.gt.\"b\""));
+    }
+
+    @Test
+    public void tablesWithoutUpdatedAtAreWalkedByCreatedAt() throws Exception {
+        responses.add(ok(new JSONObject()
+            .put("id", "d1")
+            .put("user_id", USER)
+            .put("type", "donation")
+            .put("created_at", "2025-02-01T00:00:00+00:00")));
+        responses.add(ok());
+
+        engine(1).syncTable(LedgerTable.DONATION_SAVING_RECORDS, USER);
+
+        assertTrue(requestQueries.get(0).contains("order=created_at.asc.nullsfirst,id.asc"));
+        assertFalse(requestQueries.get(0).contains("updated_at"));
+        assertTrue(requestQueries.get(1).contains("created_at.gt.\"2025-02-01T00:00:00+00:00\""));
+        assertEquals("2025-02-01T00:00:00+00:00", changeSets.get(0).highWaterMark);
+    }
+
+    @Test
+    public void clearResetsHighWaterMark() throws Exception {
+        responses.add(ok(row("t1", "2025-01-01T00:00:00+00:00")));
+        engine(10).syncTable(LedgerTable.TRANSACTIONS, USER);
+
+        store.clear(USER);
+
+        assertNull(store.getSyncMark(LedgerTable.TRANSACTIONS, USER));
+    }
+
+    private DeltaSyncEngine engine(int batchSize) {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort();
+        return new DeltaSyncEngine(store, new SupabaseRowSource(url, "anon", "token-123"), changeSets::add, batchSize);
+    }
+
+    private static JSONObject row(String id, String updatedAt) throws Exception {
+        return new JSONObject()
+            .put("id", id)
+            .put("user_id", USER)
+            .put("date", "2025-01-01")
+            .put("updated_at", updatedAt == null ? JSONObject.NULL : updatedAt);
+    }
+
+    private static Response ok(JSONObject... rows) {
+        JSONArray array = new JSONArray();
+        for (JSONObject row : rows) {
+            array.put(row);
+        }
+        return new Response(200, array.toString());
+    }
+}
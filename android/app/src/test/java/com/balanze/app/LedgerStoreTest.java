@@ -0,0 +1,158 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+@RunWith(RobolectricTestRunner.class)
+public class LedgerStoreTest {
+
+    private static final String USER = "user-1";
+
+    private LedgerDatabase database;
+    private LedgerStore store;
+
+    @Before
+    public void setUp() {
+        database = new LedgerDatabase(RuntimeEnvironment.getApplication(), null);
+        store = new LedgerStore(database);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void upsertReplacesExistingRow() throws Exception {
+        store.upsert(LedgerTable.TRANSACTIONS, rows(transaction("t1", "acc-1", "Food", "2025-01-01", 10)));
+        store.upsert(LedgerTable.TRANSACTIONS, rows(transaction("t1", "acc-1", "Food", "2025-01-01", 25)));
+
+        LedgerStore.Page page = store.query(LedgerTable.TRANSACTIONS, query());
+
+        assertEquals(1, store.count(LedgerTable.TRANSACTIONS, USER));
+        assertEquals(25, new JSONObject(page.rows.get(0)).getInt("amount"));
+    }
+
+    @Test
+    public void queryFiltersByAccountCategoryAndDateRange() throws Exception {
+        store.upsert(LedgerTable.TRANSACTIONS, rows(
+            transaction("t1", "acc-1", "Food", "2025-01-05", 10),
+            transaction("t2", "acc-1", "Rent", "2025-01-06", 500),
+            transaction("t3", "acc-2", "Food", "2025-01-07", 12),
+            transaction("t4", "acc-1", "Food", "2025-02-01", 8)
+        ));
+
+        LedgerStore.Query q = query();
+        q.accountId = "acc-1";
+        q.category = "Food";
+        q.fromDate = "2025-01-01";
+        q.toDate = "2025-01-31";
+
+        assertEquals(Arrays.asList("t1"), ids(store.query(LedgerTable.TRANSACTIONS, q)));
+    }
+
+    @Test
+    public void toDateIncludesRowsWithTimestamps() throws Exception {
+        store.upsert(LedgerTable.TRANSACTIONS, rows(transaction("t1", "acc-1", "Food", "2025-01-31T18:30:00+00:00", 10)));
+
+        LedgerStore.Query q = query();
+        q.toDate = "2025-01-31";
+
+        assertEquals(1, store.query(LedgerTable.TRANSACTIONS, q).rows.size());
+    }
+
+    @Test
+    public void pagesWalkNewestFirstWithoutGapsOrDuplicates() throws Exception {
+        JSONArray batch = new JSONArray();
+        for (int i = 0; i < 25; i++) {
+            // Several rows share a date so the id tie-breaker is exercised
+            batch.put(transaction(String.format("t%02d", i), "acc-1", "Food", "2025-01-" + String.format("%02d", 1 + i / 3), i));
+        }
+        store.upsert(LedgerTable.TRANSACTIONS, batch);
+
+        List<String> seen = new ArrayList<>();
+        LedgerStore.Query q = query();
+        q.limit = 10;
+        LedgerStore.Page page;
+        do {
+            page = store.query(LedgerTable.TRANSACTIONS, q);
+            seen.addAll(ids(page));
+            q.cursorDate = page.nextCursorDate;
+            q.cursorId = page.nextCursorId;
+        } while (page.hasMore());
+
+        assertEquals(25, seen.size());
+        assertEquals("t24", seen.get(0));
+        assertEquals("t00", seen.get(24));
+    }
+
+    @Test
+    public void deleteAndClearRemoveRows() throws Exception {
+        store.upsert(LedgerTable.TRANSACTIONS, rows(
+            transaction("t1", "acc-1", "Food", "2025-01-01", 1),
+            transaction("t2", "acc-1", "Food", "2025-01-02", 2)
+        ));
+        store.upsert(LedgerTable.CATEGORIES, rows(new JSONObject().put("id", "c1").put("user_id", USER).put("name", "Food")));
+
+        assertEquals(1, store.delete(LedgerTable.TRANSACTIONS, Arrays.asList("t1", "missing")));
+        assertEquals(1, store.count(LedgerTable.TRANSACTIONS, USER));
+
+        store.clear(USER);
+        assertEquals(0, store.count(LedgerTable.TRANSACTIONS, USER));
+        assertEquals(0, store.count(LedgerTable.CATEGORIES, USER));
+    }
+
+    @Test
+    public void queryIsScopedToUser() throws Exception {
+        store.upsert(LedgerTable.PURCHASES, rows(
+            new JSONObject().put("id", "p1").put("user_id", USER).put("purchase_date", "2025-01-01").put("category", "Tech"),
+            new JSONObject().put("id", "p2").put("user_id", "someone-else").put("purchase_date", "2025-01-01").put("category", "Tech")
+        ));
+
+        assertEquals(Arrays.asList("p1"), ids(store.query(LedgerTable.PURCHASES, query())));
+    }
+
+    private static LedgerStore.Query query() {
+        LedgerStore.Query q = new LedgerStore.Query();
+        q.userId = USER;
+        return q;
+    }
+
+    private static JSONObject transaction(String id, String accountId, String category, String date, int amount) throws Exception {
+        return new JSONObject()
+            .put("id", id)
+            .put("user_id", USER)
+            .put("account_id", accountId)
+            .put("category", category)
+            .put("date", date)
+            .put("amount", amount)
+            .put("type", "expense");
+    }
+
+    private static JSONArray rows(JSONObject... rows) {
+        JSONArray array = new JSONArray();
+        for (JSONObject row : rows) {
+            array.put(row);
+        }
+        return array;
+    }
+
+    private static List<String> ids(LedgerStore.Page page) throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (String row : page.rows) {
+            ids.add(new JSONObject(row).getString("id"));
+        }
+        return ids;
+    }
+}
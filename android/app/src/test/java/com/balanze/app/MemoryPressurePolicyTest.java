@@ -0,0 +1,111 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import android.content.ComponentCallbacks2;
+import android.webkit.WebView;
+import org.junit.Test;
+
+public class MemoryPressurePolicyTest {
+
+    private final MemoryPressurePolicy policy = new MemoryPressurePolicy();
+
+    @Test
+    public void trimLevelsMapToTiers() {
+        assertEquals(MemoryPressurePolicy.TIER_MODERATE,
+            MemoryPressurePolicy.tierFor(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE));
+        assertEquals(MemoryPressurePolicy.TIER_LOW,
+            MemoryPressurePolicy.tierFor(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW));
+        assertEquals(MemoryPressurePolicy.TIER_CRITICAL,
+            MemoryPressurePolicy.tierFor(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL));
+        assertEquals(MemoryPressurePolicy.TIER_MODERATE,
+            MemoryPressurePolicy.tierFor(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN));
+        assertEquals(MemoryPressurePolicy.TIER_LOW,
+            MemoryPressurePolicy.tierFor(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND));
+        assertEquals(MemoryPressurePolicy.TIER_CRITICAL,
+            MemoryPressurePolicy.tierFor(ComponentCallbacks2.TRIM_MEMORY_MODERATE));
+        assertEquals(MemoryPressurePolicy.TIER_CRITICAL,
+            MemoryPressurePolicy.tierFor(ComponentCallbacks2.TRIM_MEMORY_COMPLETE));
+        assertEquals(MemoryPressurePolicy.TIER_NONE, MemoryPressurePolicy.tierFor(0));
+    }
+
+    @Test
+    public void eachTierIsReleasedOnce() {
+        MemoryPressurePolicy.Decision first = policy.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        assertTrue(first.isNew());
+        assertEquals(MemoryPressurePolicy.TIER_NONE, first.releasedFrom);
+        assertEquals(MemoryPressurePolicy.TIER_LOW, first.releasedTo);
+
+        assertFalse(policy.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW).isNew());
+        assertFalse(policy.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE).isNew());
+
+        MemoryPressurePolicy.Decision critical = policy.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+        assertTrue(critical.isNew());
+        assertEquals(MemoryPressurePolicy.TIER_LOW, critical.releasedFrom);
+        assertEquals(MemoryPressurePolicy.TIER_CRITICAL, critical.releasedTo);
+    }
+
+    @Test
+    public void becomingVisibleRearmsTiers() {
+        policy.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertFalse(policy.isVisible());
+        policy.onVisibilityChanged(true);
+        assertTrue(policy.isVisible());
+
+        MemoryPressurePolicy.Decision again = policy.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_MODERATE);
+        assertTrue(again.isNew());
+        assertEquals(MemoryPressurePolicy.TIER_NONE, again.releasedFrom);
+    }
+
+    @Test
+    public void rendererStaysImportantWhileVisible() {
+        MemoryPressurePolicy.Decision decision = policy.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL);
+        assertTrue(decision.visible);
+        assertEquals(WebView.RENDERER_PRIORITY_IMPORTANT, decision.rendererPriority);
+        assertFalse(decision.waivedWhenNotVisible);
+    }
+
+    @Test
+    public void rendererIsWaivedOnceHiddenAndLow() {
+        MemoryPressurePolicy.Decision hidden = policy.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN);
+        assertFalse(hidden.visible);
+        assertEquals(WebView.RENDERER_PRIORITY_IMPORTANT, hidden.rendererPriority);
+        assertFalse(hidden.waivedWhenNotVisible);
+
+        MemoryPressurePolicy.Decision background = policy.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_BACKGROUND);
+        assertEquals(WebView.RENDERER_PRIORITY_BOUND, background.rendererPriority);
+        assertTrue(background.waivedWhenNotVisible);
+
+        MemoryPressurePolicy.Decision shown = policy.onVisibilityChanged(true);
+        assertEquals(WebView.RENDERER_PRIORITY_IMPORTANT, shown.rendererPriority);
+        assertFalse(shown.waivedWhenNotVisible);
+    }
+
+    @Test
+    public void stoppedActivityWithEarlierLowTierIsWaived() {
+        policy.onTrimMemory(ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW);
+        MemoryPressurePolicy.Decision stopped = policy.onVisibilityChanged(false);
+        assertFalse(stopped.isNew());
+        assertTrue(stopped.waivedWhenNotVisible);
+    }
+
+    @Test
+    public void recoveryGivesUpWhenTheRendererKeepsDying() {
+        long now = 1_000_000;
+        for (int i = 0; i < MemoryPressurePolicy.MAX_RECOVERIES; i++) {
+            assertTrue(policy.shouldRecover(now + i * 1000));
+        }
+        assertFalse(policy.shouldRecover(now + 10_000));
+        // Old deaths age out of the window
+        assertTrue(policy.shouldRecover(now + MemoryPressurePolicy.RECOVERY_WINDOW_MS + 1000));
+    }
+
+    @Test
+    public void namesLevelsAndTiers() {
+        assertEquals("ui-hidden", MemoryPressurePolicy.levelName(ComponentCallbacks2.TRIM_MEMORY_UI_HIDDEN));
+        assertEquals("running-critical",
+            MemoryPressurePolicy.levelName(ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL));
+        assertEquals("level-42", MemoryPressurePolicy.levelName(42));
+        assertEquals("low", MemoryPressurePolicy.tierName(MemoryPressurePolicy.TIER_LOW));
+    }
+}
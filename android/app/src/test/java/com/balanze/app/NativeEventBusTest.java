@@ -0,0 +1,209 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.Before;
+import org.junit.Test;
+
+public class NativeEventBusTest {
+
+    private static final Pattern SEQ = Pattern.compile("\\{\"seq\":(\\d+),\"channel\":");
+    private static final Pattern VALUE = Pattern.compile("\"data\":\\{\"i\":(\\d+)\\}");
+
+    // Stands in for Choreographer: flushes run when the test advances a frame
+    private final List<Runnable> pendingFrames = new ArrayList<>();
+    private final List<String> batches = new ArrayList<>();
+    private final NativeEventBus.Transport transport = batches::add;
+    private NativeEventBus bus;
+
+    @Before
+    public void setUp() {
+        bus = new NativeEventBus(pendingFrames::add, 100_000);
+    }
+
+    @Test
+    public void eventsInOneFrameShareOneMessage() {
+        bus.attach(transport);
+        for (int i = 0; i < 50; i++) {
+            bus.emit("ledgerChange", "{\"i\":" + i + "}");
+        }
+
+        assertEquals(1, pendingFrames.size());
+        runFrames();
+
+        assertEquals(1, batches.size());
+        assertEquals(range(0, 50), values(batches));
+    }
+
+    @Test
+    public void eventsQueuedBeforeAttachAreDeliveredInOrder() {
+        bus.emit("a", "{\"i\":0}");
+        bus.emit("b", "{\"i\":1}");
+        assertTrue(pendingFrames.isEmpty());
+
+        bus.attach(transport);
+        bus.emit("a", "{\"i\":2}");
+        runFrames();
+
+        assertEquals(range(0, 3), values(batches));
+        assertEquals("[{\"seq\":0,\"channel\":\"a\",\"data\":{\"i\":0}},"
+            + "{\"seq\":1,\"channel\":\"b\",\"data\":{\"i\":1}},"
+            + "{\"seq\":2,\"channel\":\"a\",\"data\":{\"i\":2}}]", batches.get(0));
+    }
+
+    @Test
+    public void largeBurstIsSplitAcrossFrames() {
+        bus.attach(transport);
+        int count = NativeEventBus.MAX_EVENTS_PER_FLUSH * 2 + 7;
+        for (int i = 0; i < count; i++) {
+            bus.emit("x", "{\"i\":" + i + "}");
+        }
+        runFrames();
+
+        assertEquals(3, batches.size());
+        assertEquals(range(0, count), values(batches));
+    }
+
+    @Test
+    public void detachedPageKeepsEventsForTheNextOne() {
+        bus.attach(transport);
+        bus.detach(transport);
+        bus.emit("x", "{\"i\":0}");
+        runFrames();
+        assertTrue(batches.isEmpty());
+
+        List<String> reloaded = new ArrayList<>();
+        bus.attach(reloaded::add);
+        // A stale page must not detach its replacement
+        bus.detach(transport);
+        runFrames();
+
+        assertEquals(range(0, 1), values(reloaded));
+    }
+
+    @Test
+    public void queueDropsOldestWhenFull() {
+        NativeEventBus small = new NativeEventBus(pendingFrames::add, 3);
+        for (int i = 0; i < 5; i++) {
+            small.emit("x", "{\"i\":" + i + "}");
+        }
+        small.attach(transport);
+        runFrames();
+
+        assertEquals(2, small.getDroppedCount());
+        assertEquals(range(2, 5), values(batches));
+    }
+
+    @Test
+    public void channelNamesAreEscaped() {
+        bus.attach(transport);
+        bus.emit("we\"ird\\\n", "null");
+        runFrames();
+
+        assertEquals("[{\"seq\":0,\"channel\":\"we\\\"ird\\\\\\u000a\",\"data\":null}]", batches.get(0));
+    }
+
+    @Test
+    public void concurrentEmittersKeepPerThreadOrderAndLoseNothing() throws Exception {
+        int threads = 4;
+        int perThread = 5_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            int offset = t * perThread;
+            Thread worker = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perThread; i++) {
+                    bus.emit("t", "{\"i\":" + (offset + i) + "}");
+                }
+            });
+            worker.start();
+            workers.add(worker);
+        }
+        bus.attach(transport);
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        runFrames();
+
+        List<Integer> delivered = values(batches);
+        assertEquals(threads * perThread, delivered.size());
+        int[] last = new int[threads];
+        Arrays.fill(last, -1);
+        for (int value : delivered) {
+            int thread = value / perThread;
+            assertTrue("out of order for thread " + thread, value > last[thread]);
+            last[thread] = value;
+        }
+        assertEquals(range(0, threads * perThread), sequences(batches));
+    }
+
+    @Test
+    public void throughput() {
+        bus.attach(transport);
+        int count = 100_000;
+        String payload = "{\"table\":\"transactions\",\"ids\":[\"3f2a9c4e-0000-0000-0000-000000000000\"],\"highWaterMark\":\"2025-01-01T00:00:00+00:00\"}";
+
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            bus.emit("ledgerChange", payload);
+            // Simulate a frame boundary every 1000 events
+            if (i % 1000 == 999) {
+                runFrames();
+            }
+        }
+        runFrames();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        assertEquals(range(0, count), sequences(batches));
+        // One message per frame instead of one evaluateJavascript per event
+        assertTrue(batches.size() <= count / 500 + 1);
+        System.out.println(String.format(Locale.US, "NativeEventBus: %d events in %d messages, %.0f events/s",
+            count, batches.size(), count / seconds));
+    }
+
+    private void runFrames() {
+        while (!pendingFrames.isEmpty()) {
+            pendingFrames.remove(0).run();
+        }
+    }
+
+    private static List<Integer> values(List<String> batches) {
+        return extract(VALUE, batches);
+    }
+
+    private static List<Integer> sequences(List<String> batches) {
+        return extract(SEQ, batches);
+    }
+
+    private static List<Integer> extract(Pattern pattern, List<String> batches) {
+        List<Integer> result = new ArrayList<>();
+        for (String batch : batches) {
+            Matcher matcher = pattern.matcher(batch);
+            while (matcher.find()) {
+                result.add(Integer.parseInt(matcher.group(1)));
+            }
+        }
+        return result;
+    }
+
+    private static List<Integer> range(int from, int to) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            result.add(i);
+        }
+        return result;
+    }
+}
@@ -0,0 +1,275 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+import static org.robolectric.Shadows.shadowOf;
+
+import android.os.Build;
+import android.webkit.WebView;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+
+// Startup regression gate: drives MainActivity through onCreate (plugin
+// registration, bridge creation, WebView and JS-interface setup) against
+// Robolectric's fake WebView, measures wall time and bytes allocated on the
+// main thread for every StartupTrace phase, and fails when the median of a
+// phase goes over its budget in src/test/resources/startup-budgets.json.
+// Robolectric numbers are not device numbers: the budgets are HEADROOM times
+// a recorded median, so they catch a change that makes a phase several times
+// slower or heavier, not a few percent. Use :baselineprofile's
+// StartupBenchmark for real cold-start timings.
+//
+// Budgets are recorded, not guessed: run
+//   ./gradlew :app:testDebugUnitTest --tests '*StartupRegressionTest' -PrecordStartupBudgets=true
+// on the CI machine and commit the rewritten file. A phase without a budget
+// fails the gate. When a phase gets legitimately more expensive, re-record
+// in the same change and say why.
+//
+// Every run writes build/reports/startup/startup.json (measured medians next
+// to the budgets) before checking them; failures name that file.
+@RunWith(RobolectricTestRunner.class)
+public class StartupRegressionTest {
+
+    private static final int WARMUP_RUNS = 2;
+    private static final int MEASURED_RUNS = 5;
+    private static final int HEADROOM = 3;
+    // The whole of MainActivity.onCreate, around the StartupTrace phases
+    private static final String ON_CREATE = "onCreate";
+    private static final String[] PLUGINS = {
+        "Ledger", "Export", "ConsoleLog", "HttpCache", "SearchIndex", "Aggregates", "ExchangeRates",
+        "RecurringTransactions", "Attachments", "Outbox", "BridgeMetrics", "MemoryPressure", "Analytics",
+        "KeyValue", "Invoices", "DeepLinks", "GoogleSignIn"
+    };
+    private static final String[] JS_INTERFACES = {
+        "GoogleSignInNative", WebViewEventChannel.INTERFACE_NAME, KeyValueStore.INTERFACE_NAME,
+        StartupTrace.INTERFACE_NAME
+    };
+
+    private static final class Sample {
+        final long nanos;
+        final long allocatedBytes;
+
+        Sample(long nanos, long allocatedBytes) {
+            this.nanos = nanos;
+            this.allocatedBytes = allocatedBytes;
+        }
+    }
+
+    // Records one Sample per phase for each activity that is created
+    private static final class PhaseRecorder implements StartupTrace.PhaseObserver {
+        private final Map<String, long[]> open = new LinkedHashMap<>();
+        final Map<String, List<Sample>> samples = new LinkedHashMap<>();
+
+        @Override
+        public void phaseStarted(String name) {
+            open.put(name, new long[] { allocatedBytes(), System.nanoTime() });
+        }
+
+        @Override
+        public void phaseEnded(String name) {
+            long endedAt = System.nanoTime();
+            long allocated = allocatedBytes();
+            long[] started = open.remove(name);
+            samples.computeIfAbsent(name, key -> new ArrayList<>())
+                .add(new Sample(endedAt - started[1], allocated - started[0]));
+        }
+
+        void clear() {
+            open.clear();
+            samples.clear();
+        }
+    }
+
+    private final PhaseRecorder recorder = new PhaseRecorder();
+
+    @After
+    public void tearDown() {
+        StartupTrace.setPhaseObserver(null);
+    }
+
+    @Test
+    public void onCreatePhasesStayWithinBudget() throws Exception {
+        StartupTrace.setPhaseObserver(recorder);
+        // The first activities pay for class loading and Robolectric's bytecode instrumentation
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            launch();
+        }
+        recorder.clear();
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            launch();
+        }
+
+        String recordTo = System.getProperty("balanze.recordStartupBudgets");
+        if (recordTo != null) {
+            recordBudgets(new File(recordTo));
+        }
+        JSONObject budgets = budgets().getJSONObject("phases");
+
+        // The report is written before any check, so CI has the medians even when the gate fails
+        JSONArray phases = new JSONArray();
+        List<String> missing = new ArrayList<>();
+        List<String> overBudget = new ArrayList<>();
+        for (Map.Entry<String, List<Sample>> phase : recorder.samples.entrySet()) {
+            String name = phase.getKey();
+            long wallMicros = median(phase.getValue(), true) / 1000;
+            long allocatedBytes = median(phase.getValue(), false);
+            JSONObject entry = new JSONObject()
+                .put("name", name)
+                .put("runs", phase.getValue().size())
+                .put("wallMicros", wallMicros)
+                .put("allocatedBytes", allocatedBytes);
+            JSONObject budget = budgets.optJSONObject(name);
+            if (budget == null) {
+                missing.add(name);
+                entry.put("withinBudget", JSONObject.NULL);
+            } else {
+                long budgetWallMicros = budget.getLong("wallMs") * 1000;
+                long budgetAllocatedBytes = budget.getLong("allocatedKb") * 1024;
+                boolean withinBudget = wallMicros <= budgetWallMicros && allocatedBytes <= budgetAllocatedBytes;
+                if (!withinBudget) {
+                    overBudget.add(String.format(Locale.US, "%s: %.1f ms / %d KB (budget %d ms / %d KB)", name,
+                        wallMicros / 1000.0, allocatedBytes / 1024, budget.getLong("wallMs"), budget.getLong("allocatedKb")));
+                }
+                entry.put("budgetWallMicros", budgetWallMicros)
+                    .put("budgetAllocatedBytes", budgetAllocatedBytes)
+                    .put("withinBudget", withinBudget);
+            }
+            phases.put(entry);
+        }
+        File report = writeReport(new JSONObject()
+            .put("test", getClass().getSimpleName())
+            .put("timestamp", System.currentTimeMillis())
+            .put("sdk", Build.VERSION.SDK_INT)
+            .put("warmupRuns", WARMUP_RUNS)
+            .put("measuredRuns", MEASURED_RUNS)
+            .put("phases", phases));
+        if (recordTo != null) {
+            // The classpath still has the budgets this run replaced
+            return;
+        }
+
+        assertTrue("No budget for startup phases " + missing + " (measured in " + report
+                + "); record them with -PrecordStartupBudgets=true and commit startup-budgets.json",
+            missing.isEmpty());
+        // A budget without a measurement means a phase was renamed or removed
+        for (Iterator<String> names = budgets.keys(); names.hasNext(); ) {
+            String name = names.next();
+            assertTrue("Startup phase " + name + " has a budget but was not recorded", recorder.samples.containsKey(name));
+        }
+        assertTrue("Startup phases over budget (see " + report + "):\n  " + String.join("\n  ", overBudget),
+            overBudget.isEmpty());
+    }
+
+    @Test
+    public void onCreateRegistersPluginsAndJavascriptInterfaces() {
+        ActivityController<MainActivity> controller = Robolectric.buildActivity(MainActivity.class).create();
+        MainActivity activity = controller.get();
+        try {
+            for (String plugin : PLUGINS) {
+                assertNotNull("Plugin " + plugin + " not registered", activity.getBridge().getPlugin(plugin));
+            }
+            WebView webView = activity.getBridge().getWebView();
+            for (String name : JS_INTERFACES) {
+                assertNotNull("JS interface " + name + " not added", shadowOf(webView).getJavascriptInterface(name));
+            }
+        } finally {
+            controller.destroy();
+        }
+    }
+
+    // Creates, shows and tears down one MainActivity; onCreate is timed as a whole as well
+    private void launch() {
+        ActivityController<MainActivity> controller = Robolectric.buildActivity(MainActivity.class);
+        recorder.phaseStarted(ON_CREATE);
+        controller.create();
+        recorder.phaseEnded(ON_CREATE);
+        controller.start().resume().pause().stop().destroy();
+    }
+
+    // Bytes allocated so far by the calling thread (HotSpot and OpenJDK builds)
+    private static long allocatedBytes() {
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+            .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static long median(List<Sample> samples, boolean wallTime) {
+        long[] values = new long[samples.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = wallTime ? samples.get(i).nanos : samples.get(i).allocatedBytes;
+        }
+        Arrays.sort(values);
+        return values[values.length / 2];
+    }
+
+    private JSONObject budgets() throws Exception {
+        try (InputStream in = getClass().getResourceAsStream("/startup-budgets.json")) {
+            assertNotNull("startup-budgets.json missing from src/test/resources", in);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                bytes.write(buffer, 0, read);
+            }
+            return new JSONObject(new String(bytes.toByteArray(), StandardCharsets.UTF_8));
+        }
+    }
+
+    // HEADROOM times this machine's medians, rounded up to whole ms and KB
+    private void recordBudgets(File file) throws Exception {
+        JSONObject phases = new JSONObject();
+        for (Map.Entry<String, List<Sample>> phase : recorder.samples.entrySet()) {
+            long wallNanos = median(phase.getValue(), true) * HEADROOM;
+            long allocatedBytes = median(phase.getValue(), false) * HEADROOM;
+            phases.put(phase.getKey(), new JSONObject()
+                .put("wallMs", Math.max(1, (wallNanos + 999_999) / 1_000_000))
+                .put("allocatedKb", Math.max(1, (allocatedBytes + 1023) / 1024)));
+        }
+        write(file, new JSONObject()
+            .put("recorded", new JSONObject()
+                .put("timestamp", System.currentTimeMillis())
+                .put("sdk", Build.VERSION.SDK_INT)
+                .put("jvm", System.getProperty("java.vm.name") + " " + System.getProperty("java.version"))
+                .put("measuredRuns", MEASURED_RUNS)
+                .put("headroom", HEADROOM))
+            .put("phases", phases));
+    }
+
+    // Set by app/build.gradle; relative to the module directory when run from an IDE
+    private static File writeReport(JSONObject report) throws Exception {
+        File file = new File(System.getProperty("balanze.startupReport", "build/reports/startup/startup.json"));
+        write(file, report);
+        return file.getAbsoluteFile();
+    }
+
+    private static void write(File file, JSONObject json) throws Exception {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Cannot create " + dir);
+        }
+        try (Writer writer = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+            writer.write(json.toString(2));
+            writer.write('\n');
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Test;
+
+public class StartupTraceTest {
+
+    @Test
+    public void retryLoopSucceedsOnFirstAttemptWhenCapacitorIsAlreadyThere() {
+        assertEquals(130, StartupTrace.legacyReadyAfter(30, 50));
+    }
+
+    @Test
+    public void retryLoopWaitsForTheNextAttemptAfterCapacitorAppears() {
+        // Attempts at 130, 330, 530 ms; Capacitor shows up at 400 ms
+        assertEquals(530, StartupTrace.legacyReadyAfter(30, 400));
+    }
+
+    @Test
+    public void retryLoopGivesUpAfterTenAttempts() {
+        // Last attempt runs at 30 + 100 + 9 * 200 = 1930 ms
+        assertEquals(1930, StartupTrace.legacyReadyAfter(30, 1930));
+        assertEquals(-1, StartupTrace.legacyReadyAfter(30, 1931));
+    }
+
+    @Test
+    public void summaryListsPhasesInOrder() {
+        Map<String, Long> phases = new LinkedHashMap<>();
+        phases.put("registerPlugins", 2L);
+        phases.put("bridge", 180L);
+        phases.put("webViewSetup", 12L);
+
+        assertEquals("Cold start: process -> onCreate 240 ms, Application -> onCreate 95 ms, first frame 410 ms"
+                + " after onCreate (registerPlugins 2 ms, bridge 180 ms, webViewSetup 12 ms)",
+            StartupTrace.formatSummary(240, 95, phases, 410));
+    }
+
+    @Test
+    public void summaryOmitsUnknownTimes() {
+        assertEquals("Cold start: first frame 300 ms after onCreate",
+            StartupTrace.formatSummary(-1, -1, new LinkedHashMap<>(), 300));
+    }
+}
@@ -0,0 +1,27 @@
+package com.balanze.baselineprofile;
+
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import kotlin.Unit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+// Collects the startup profile into app/src/release/generated/baselineProfiles.
+// Run with ./gradlew :app:generateReleaseBaselineProfile
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class BaselineProfileGenerator {
+
+    @Rule
+    public BaselineProfileRule rule = new BaselineProfileRule();
+
+    @Test
+    public void startup() {
+        rule.collect(StartupJourney.PACKAGE_NAME, scope -> {
+            StartupJourney.launch(scope);
+            return Unit.INSTANCE;
+        });
+    }
+}
@@ -0,0 +1,81 @@
+package com.balanze.baselineprofile;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.Metric;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import kotlin.Unit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+// Cold start with and without the baseline profile. Run against the
+// benchmarkRelease (R8) and nonMinifiedRelease variants by
+// scripts/android-startup-report.sh to get all four combinations.
+// startupPhases breaks the cold start down by the app's own trace sections
+// (StartupTrace / BalanzeApplication) so a regression can be pinned to a phase.
+@RunWith(AndroidJUnit4.class)
+@LargeTest
+public class StartupBenchmark {
+
+    private static final int ITERATIONS = 10;
+
+    private static final String[] PHASES = {
+        "application", "webviewWarmup", "storeWarmup", "systemBars", "registerPlugins",
+        "bridge", "webViewSetup", "googleSignIn"
+    };
+
+    @Rule
+    public MacrobenchmarkRule rule = new MacrobenchmarkRule();
+
+    // What the app shipped before: no ahead-of-time compilation at all
+    @Test
+    public void startupWithoutProfile() {
+        measure(new CompilationMode.None());
+    }
+
+    @Test
+    public void startupWithBaselineProfile() {
+        measure(new CompilationMode.Partial(BaselineProfileMode.Require));
+    }
+
+    @Test
+    public void startupPhases() {
+        List<Metric> metrics = new ArrayList<>();
+        metrics.add(new StartupTimingMetric());
+        for (String phase : PHASES) {
+            metrics.add(new TraceSectionMetric("balanze:" + phase, TraceSectionMetric.Mode.First.INSTANCE, phase + "Ms", true));
+        }
+        measure(new CompilationMode.Partial(BaselineProfileMode.Require), metrics);
+    }
+
+    private void measure(CompilationMode mode) {
+        measure(mode, Collections.singletonList(new StartupTimingMetric()));
+    }
+
+    private void measure(CompilationMode mode, List<Metric> metrics) {
+        rule.measureRepeated(
+            StartupJourney.PACKAGE_NAME,
+            metrics,
+            mode,
+            StartupMode.COLD,
+            ITERATIONS,
+            scope -> {
+                scope.pressHome();
+                return Unit.INSTANCE;
+            },
+            scope -> {
+                StartupJourney.launch(scope);
+                return Unit.INSTANCE;
+            }
+        );
+    }
+}
@@ -0,0 +1,25 @@
+package com.balanze.baselineprofile;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Until;
+
+// Cold launch up to the point where the Capacitor bridge has loaded the web app
+final class StartupJourney {
+
+    static final String PACKAGE_NAME = "com.balanze.app";
+
+    private static final long WEBVIEW_TIMEOUT_MS = 15_000;
+
+    private StartupJourney() {
+    }
+
+    static void launch(MacrobenchmarkScope scope) {
+        scope.pressHome();
+        scope.startActivityAndWait();
+        // The first frame is the splash; wait for the bridge's WebView and the
+        // page's first layout so bridge startup and plugin loading are covered
+        scope.getDevice().wait(Until.hasObject(By.clazz("android.webkit.WebView")), WEBVIEW_TIMEOUT_MS);
+        scope.getDevice().waitForIdle();
+    }
+}
@@ -0,0 +1,70 @@
+package com.balanze.app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// The dashboard queries AggregatesPlugin answers from the engine, and the
+// incremental update applied for each changed transaction
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class AggregationBenchmark {
+
+    @Param({ "10000", "100000" })
+    public int transactions;
+
+    private AggregationEngine engine;
+    private int month;
+    private String[] ids;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        engine = new AggregationEngine();
+        List<AggregationEngine.Account> accounts = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            accounts.add(new AggregationEngine.Account("acc-" + i, i < 4 ? "USD" : "BDT", true, 1000.0 * i));
+        }
+        engine.setAccounts(accounts);
+        ids = new String[transactions];
+        for (int i = 0; i < transactions; i++) {
+            ids[i] = "tx-" + i;
+            engine.upsertTransaction(ids[i], "acc-" + random.nextInt(6),
+                BenchmarkData.CATEGORIES[random.nextInt(BenchmarkData.CATEGORIES.length)],
+                BenchmarkData.FIRST_DAY + random.nextInt(365), Math.round(random.nextDouble() * 50_000) / 100.0,
+                random.nextInt(4) == 0 ? AggregationEngine.TYPE_INCOME : AggregationEngine.TYPE_EXPENSE,
+                random.nextInt(20) == 0 ? AggregationEngine.FLAG_TRANSFER : 0);
+        }
+        month = AggregationEngine.monthOf(BenchmarkData.FIRST_DAY + 180);
+    }
+
+    @Benchmark
+    public Object dashboardStats() {
+        return engine.dashboardStats(month);
+    }
+
+    @Benchmark
+    public Object categoryTotals() {
+        return engine.categoryTotals(month, AggregationEngine.TYPE_EXPENSE);
+    }
+
+    // Replaces an existing transaction: backs its old values out, applies the new ones
+    @Benchmark
+    public int updateTransaction() {
+        int row = next++ % ids.length;
+        engine.upsertTransaction(ids[row], "acc-1", "Dining", BenchmarkData.FIRST_DAY + row % 365,
+            12.5 + row % 100, AggregationEngine.TYPE_EXPENSE, 0);
+        return row;
+    }
+}
@@ -0,0 +1,81 @@
+package com.balanze.app;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Seeded fixtures shared by the benchmarks, shaped like the data the app
+// really moves: Supabase transaction rows as stored in the ledger
+final class BenchmarkData {
+
+    static final String USER_ID = "5f0c2a9e-7d41-4c3b-8a2f-0e9b6d1c4a77";
+    static final String[] CATEGORIES = {
+        "Groceries", "Dining", "Transport", "Utilities", "Rent", "Healthcare", "Education", "Salary",
+        "Entertainment", "Shopping", "Travel", "Insurance", "Subscriptions", "Gifts", "Investments"
+    };
+    static final String[] MERCHANTS = {
+        "Carrefour", "Starbucks", "Uber", "Netflix", "Shell", "Amazon", "Daraz", "Foodpanda",
+        "Pathao", "Agora", "Spotify", "Apple", "Walmart", "Ikea", "Decathlon", "Pharmacy"
+    };
+    // 2026-01-01
+    static final int FIRST_DAY = 20454;
+
+    private BenchmarkData() {
+    }
+
+    static List<String> transactionRows(int count) {
+        Random random = new Random(42);
+        List<String> rows = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                int day = FIRST_DAY + random.nextInt(365);
+                rows.add(new JSONObject()
+                    .put("id", String.format(Locale.US, "%08x-4b1e-4c0a-9f3e-%012d", random.nextInt(), i))
+                    .put("user_id", USER_ID)
+                    .put("account_id", "acc-" + random.nextInt(6))
+                    .put("type", random.nextInt(4) == 0 ? "income" : "expense")
+                    .put("amount", Math.round(random.nextDouble() * 50_000) / 100.0)
+                    .put("category", CATEGORIES[random.nextInt(CATEGORIES.length)])
+                    .put("description", MERCHANTS[random.nextInt(MERCHANTS.length)] + " "
+                        + Integer.toString(random.nextInt(1 << 20), 36))
+                    .put("date", isoDate(day) + "T10:00:00Z")
+                    .put("is_recurring", random.nextInt(10) == 0)
+                    .put("transfer_id", random.nextInt(20) == 0 ? "tr-" + i : JSONObject.NULL)
+                    .put("updated_at", "2026-10-01T08:30:00.000Z")
+                    .toString());
+            }
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+        return rows;
+    }
+
+    // A PostgREST response body: a JSON array of rows
+    static String supabasePage(List<String> rows) {
+        StringBuilder page = new StringBuilder(rows.size() * 320);
+        page.append('[');
+        for (int i = 0; i < rows.size(); i++) {
+            if (i > 0) {
+                page.append(',');
+            }
+            page.append(rows.get(i));
+        }
+        return page.append(']').toString();
+    }
+
+    static String isoDate(int epochDay) {
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return String.format(Locale.US, "%04d-%02d-%02d", year, month, day);
+    }
+}
@@ -0,0 +1,51 @@
+package com.balanze.app;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Encoding a page of stored ledger rows for the bridge: the plugin JSON
+// result LedgerPlugin.query resolves with, versus one ColumnarEncoder batch
+// (LedgerPlugin.queryBulk). Both start from the stored row strings.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BridgePayloadBenchmark {
+
+    @Param({ "100", "10000" })
+    public int rows;
+
+    private List<String> stored;
+
+    @Setup
+    public void setUp() {
+        stored = BenchmarkData.transactionRows(rows);
+    }
+
+    @Benchmark
+    public String jsonResult() throws Exception {
+        JSONArray array = new JSONArray();
+        for (String row : stored) {
+            array.put(new JSONObject(row));
+        }
+        return new JSONObject().put("rows", array).toString();
+    }
+
+    @Benchmark
+    public byte[] columnarBatch() throws Exception {
+        ColumnarEncoder encoder = new ColumnarEncoder();
+        for (String row : stored) {
+            encoder.add(new JSONObject(row));
+        }
+        return encoder.encode(1);
+    }
+}
@@ -0,0 +1,77 @@
+package com.balanze.app;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Streaming exports, written to a stream that discards the bytes so only
+// formatting and layout are measured
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ExportBenchmark {
+
+    @Param({ "1000" })
+    public int rows;
+
+    private ExportRow[] data;
+
+    private static final class Discard extends OutputStream {
+        long bytes;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes += len;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        data = new ExportRow[rows];
+        for (int i = 0; i < rows; i++) {
+            data[i] = new ExportRow(BenchmarkData.isoDate(BenchmarkData.FIRST_DAY + i % 365),
+                BenchmarkData.MERCHANTS[i % BenchmarkData.MERCHANTS.length] + " order " + i,
+                BenchmarkData.CATEGORIES[i % BenchmarkData.CATEGORIES.length], "Checking",
+                i % 5 == 0 ? "income" : "expense", i % 20 == 0, (i % 1000) + 0.25,
+                i % 7 == 0 ? "recurring; monthly" : "");
+        }
+    }
+
+    private long write(TransactionExportWriter writer, Discard out) throws IOException {
+        ExportSummary summary = new ExportSummary(Collections.singletonList("Type: expense"), "USD", "now");
+        try (TransactionExportWriter export = writer) {
+            for (ExportRow row : data) {
+                export.writeRow(row);
+                summary.add(row);
+            }
+            export.finish(summary);
+        }
+        return out.bytes;
+    }
+
+    @Benchmark
+    public long csv() throws IOException {
+        Discard out = new Discard();
+        return write(new CsvExportWriter(out), out);
+    }
+
+    @Benchmark
+    public long pdf() throws IOException {
+        Discard out = new Discard();
+        return write(new PdfExportWriter(out, 1), out);
+    }
+}
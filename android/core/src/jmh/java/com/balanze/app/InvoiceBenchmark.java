@@ -0,0 +1,170 @@
+package com.balanze.app;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// Whole invoice batches (1 to 5 items each, company logo included) laid out
+// and replayed onto a target that only counts operations: on the batch
+// renderer's pool, and one after another on a single thread for comparison.
+// Drawing onto PdfDocument needs a device; this measures the layout work
+// the app does before it.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class InvoiceBenchmark {
+
+    @Param({ "1", "100", "1000" })
+    public int invoices;
+
+    private List<InvoiceData> data;
+    private InvoiceBatchRenderer.Renderer renderer;
+    private InvoiceBatchRenderer batch;
+
+    private static final class Counter implements InvoiceDrawing.Target {
+        long ops;
+
+        @Override
+        public void text(float x, float baseline, int align, boolean bold, float size, int color, String value) {
+            ops += value.length();
+        }
+
+        @Override
+        public void rect(float x, float top, float width, float height, int color) {
+            ops++;
+        }
+
+        @Override
+        public void line(float x1, float y, float x2, float strokeWidth, int color) {
+            ops++;
+        }
+
+        @Override
+        public void logo(float x, float top, float width, float height) {
+            ops++;
+        }
+    }
+
+    private static final class Discard extends OutputStream {
+        final AtomicLong bytes;
+
+        Discard(AtomicLong bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void write(int b) {
+            bytes.incrementAndGet();
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            bytes.addAndGet(len);
+        }
+    }
+
+    @Setup
+    public void setUp() throws JSONException {
+        InvoiceTemplate template = InvoiceTemplate.compile(
+            new InvoiceTemplate.Company("Balanze Ltd", "12 Main St\nDhaka 1207", "billing@balanze.cash", "+880 1700 000000", null),
+            new InvoiceTemplate.Logo(240, 80));
+        // Roughly Helvetica's average width
+        InvoiceLayout layout = new InvoiceLayout(template, "2026-10-16", "10/16/2026", (text, bold, size) -> text.length() * size * 0.55f);
+        renderer = (invoice, out) -> {
+            List<InvoiceDrawing> pages = layout.layout(invoice);
+            Counter counter = new Counter();
+            for (InvoiceDrawing page : pages) {
+                page.replay(counter);
+            }
+            out.write((int) counter.ops);
+            return pages.size();
+        };
+        batch = new InvoiceBatchRenderer(InvoiceBatchRenderer.defaultThreads());
+
+        data = new ArrayList<>(invoices);
+        for (int i = 0; i < invoices; i++) {
+            JSONArray items = new JSONArray();
+            int itemCount = 1 + i % 5;
+            double subtotal = 0;
+            for (int j = 0; j < itemCount; j++) {
+                double price = 10 + (i * 7 + j * 13) % 990;
+                subtotal += price * (j + 1);
+                items.put(new JSONObject()
+                    .put("description", BenchmarkData.MERCHANTS[(i + j) % BenchmarkData.MERCHANTS.length] + " services, "
+                        + BenchmarkData.CATEGORIES[j % BenchmarkData.CATEGORIES.length])
+                    .put("quantity", j + 1)
+                    .put("unit_price", price)
+                    .put("tax_rate", 5)
+                    .put("discount_rate", 0)
+                    .put("total", price * (j + 1)));
+            }
+            data.add(InvoiceData.fromJson(new JSONObject()
+                .put("id", "inv-" + i)
+                .put("invoice_number", "INV-" + (10000 + i))
+                .put("invoice_date", BenchmarkData.isoDate(BenchmarkData.FIRST_DAY + i % 365))
+                .put("due_date", BenchmarkData.isoDate(BenchmarkData.FIRST_DAY + 30 + i % 365))
+                .put("status", "sent")
+                .put("payment_status", i % 3 == 0 ? "paid" : "unpaid")
+                .put("currency", "USD")
+                .put("currency_symbol", "$")
+                .put("subtotal", subtotal)
+                .put("tax_amount", subtotal * 0.05)
+                .put("discount_amount", 0)
+                .put("total_amount", subtotal * 1.05)
+                .put("paid_amount", i % 3 == 0 ? subtotal * 1.05 : 0)
+                .put("notes", i % 4 == 0 ? "Payment due within 30 days. Thank you for your business." : JSONObject.NULL)
+                .put("client", new JSONObject()
+                    .put("name", "Client " + i)
+                    .put("address", "Road " + (i % 40))
+                    .put("city", "Dhaka")
+                    .put("email", "client" + i + "@example.com"))
+                .put("items", items)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        batch.close();
+    }
+
+    @Benchmark
+    public long parallel() throws InterruptedException {
+        AtomicLong bytes = new AtomicLong();
+        InvoiceBatchRenderer.Sink sink = new InvoiceBatchRenderer.Sink() {
+            @Override
+            public OutputStream open(int index, InvoiceData invoice) {
+                return new Discard(bytes);
+            }
+
+            @Override
+            public void discard(int index, InvoiceData invoice) {
+            }
+        };
+        batch.render(renderer, data, sink, null);
+        return bytes.get();
+    }
+
+    @Benchmark
+    public long sequential() throws IOException {
+        AtomicLong bytes = new AtomicLong();
+        for (InvoiceData invoice : data) {
+            renderer.render(invoice, new Discard(bytes));
+        }
+        return bytes.get();
+    }
+}
@@ -0,0 +1,61 @@
+package com.balanze.app;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+// The key-value store behind the page's former localStorage values: one
+// atomic write of a few keys (compaction included, as the same keys are
+// overwritten), and the snapshot each page load reads
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class KeyValueBenchmark {
+
+    private File dir;
+    private KeyValueLog log;
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("balanze-jmh").toFile();
+        log = new KeyValueLog(new File(dir, "store.log"), null);
+        KeyValueLog.Batch batch = new KeyValueLog.Batch();
+        for (int i = 0; i < 50; i++) {
+            batch.putString("pref-" + i, BenchmarkData.CATEGORIES[i % BenchmarkData.CATEGORIES.length]);
+        }
+        log.apply(batch);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        log.close();
+        new File(dir, "store.log").delete();
+        dir.delete();
+    }
+
+    @Benchmark
+    public int writeBatch() throws IOException {
+        int n = next++;
+        log.apply(new KeyValueLog.Batch()
+            .putString("rememberMePreference", (n & 1) == 0 ? "true" : "false")
+            .putLong("lastSyncAt", 1_760_000_000_000L + n)
+            .putBoolean("hasLaunchedBefore", true));
+        return n;
+    }
+
+    @Benchmark
+    public Map<String, Object> snapshot() {
+        return log.snapshot();
+    }
+}
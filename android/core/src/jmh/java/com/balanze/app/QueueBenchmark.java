@@ -0,0 +1,59 @@
+package com.balanze.app;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Per-message costs on the hot paths that sit behind fire-and-forget
+// bridge calls: appending an analytics event to the memory-mapped ring, and
+// queueing plus draining one WebView console message
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class QueueBenchmark {
+
+    private static final String EVENT = "{\"event\":\"kpi_click\",\"properties\":{\"kpi_type\":\"net_worth\","
+        + "\"interaction_type\":\"click\",\"viewport_width\":412,\"viewport_height\":915,"
+        + "\"page_url\":\"/dashboard\",\"referrer\":null},\"timestamp\":1760000000000,"
+        + "\"sessionId\":\"dash_1760000000000_k3j9x0q2m\"}";
+
+    private File dir;
+    private AnalyticsEventBuffer analytics;
+    private LogRingBuffer console;
+
+    @Setup
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("balanze-jmh").toFile();
+        analytics = new AnalyticsEventBuffer(new File(dir, "events.ring"), AnalyticsEventBuffer.DEFAULT_CAPACITY);
+        console = new LogRingBuffer(4096);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        analytics.close();
+        new File(dir, "events.ring").delete();
+        dir.delete();
+    }
+
+    // Runs with a full ring most of the time, so it includes overwriting the oldest event
+    @Benchmark
+    public boolean analyticsAppend() {
+        return analytics.append(EVENT);
+    }
+
+    @Benchmark
+    public int consoleOfferAndDrain(Blackhole blackhole) {
+        console.offer(4, "Dashboard rendered in 184 ms", "https://localhost/assets/index.js", 1289, 1_760_000_000_000L);
+        return console.drain(blackhole::consume, 64);
+    }
+}
@@ -0,0 +1,77 @@
+package com.balanze.app;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+// Type-ahead queries against the search index, and indexing one record
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class SearchBenchmark {
+
+    @Param({ "10000" })
+    public int records;
+
+    // Only search() is run once per query
+    @State(Scope.Thread)
+    public static class Query {
+        // A prefix typed so far, a whole word, a typo, and two terms
+        @Param({ "sta", "starbucks", "strabucks", "groceries 12" })
+        public String text;
+    }
+
+    private SearchIndex index;
+    private Map<String, String> fields;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        index = new SearchIndex();
+        Map<String, Float> weights = new HashMap<>();
+        weights.put("description", 0.4f);
+        weights.put("category", 0.25f);
+        weights.put("notes", 0.15f);
+        weights.put("amount", 0.1f);
+        index.setFieldWeights("transactions", weights);
+        for (int i = 0; i < records; i++) {
+            index.put("transactions", "tx-" + i, fields(random), 1_700_000_000_000L + i * 60_000L);
+        }
+        fields = fields(random);
+    }
+
+    private static Map<String, String> fields(Random random) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("description", BenchmarkData.MERCHANTS[random.nextInt(BenchmarkData.MERCHANTS.length)]
+            + " " + Integer.toString(random.nextInt(1 << 20), 36));
+        fields.put("category", BenchmarkData.CATEGORIES[random.nextInt(BenchmarkData.CATEGORIES.length)]);
+        fields.put("notes", random.nextInt(3) == 0 ? "split with friends" : "");
+        fields.put("amount", String.valueOf(random.nextInt(500)));
+        return fields;
+    }
+
+    @Benchmark
+    public List<SearchIndex.Hit> search(Query query) {
+        return index.search(query.text, null, SearchIndex.DEFAULT_LIMIT);
+    }
+
+    // Replaces one of the indexed records
+    @Benchmark
+    public int put() {
+        int id = next++ % records;
+        index.put("transactions", "tx-" + id, fields, 1_700_000_000_000L);
+        return id;
+    }
+}
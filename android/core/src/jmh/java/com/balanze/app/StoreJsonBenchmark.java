@@ -0,0 +1,67 @@
+package com.balanze.app;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+// JSON handling of store data: parsing a Supabase delta page the way
+// SupabaseRowSource and LedgerStore.upsert do (parse, pull the indexed
+// columns, keep each row's text), and folding an update into a queued
+// outbox write. The JVM's org.json stands in for Android's, which shares
+// its API but not its implementation, so compare runs with each other
+// rather than with a device.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class StoreJsonBenchmark {
+
+    @Param({ "500" })
+    public int rows;
+
+    private String page;
+    private String queued;
+    private String update;
+
+    @Setup
+    public void setUp() throws Exception {
+        List<String> stored = BenchmarkData.transactionRows(rows);
+        page = BenchmarkData.supabasePage(stored);
+        queued = stored.get(0);
+        update = new JSONObject().put("amount", 12.5).put("category", "Dining").put("description", "Lunch").toString();
+    }
+
+    @Benchmark
+    public int parsePage() throws Exception {
+        return new JSONArray(page).length();
+    }
+
+    @Benchmark
+    public void parsePageForUpsert(Blackhole blackhole) throws Exception {
+        JSONArray parsed = new JSONArray(page);
+        for (int i = 0; i < parsed.length(); i++) {
+            JSONObject row = parsed.getJSONObject(i);
+            blackhole.consume(row.getString("id"));
+            blackhole.consume(row.optString("user_id", null));
+            blackhole.consume(row.optString("account_id", null));
+            blackhole.consume(row.optString("category", null));
+            blackhole.consume(row.optString("date", null));
+            blackhole.consume(row.optString("updated_at", null));
+            blackhole.consume(row.toString());
+        }
+    }
+
+    @Benchmark
+    public String outboxMerge() throws Exception {
+        return WriteOutbox.merge(queued, update);
+    }
+}
@@ -0,0 +1,567 @@
+package com.balanze.app;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+// Column store behind the dashboard and purchase analytics. Transactions and
+// purchases are kept as primitive columns (epoch day, amount in minor units,
+// dictionary-coded account / category / currency ids) and every upsert or
+// delete adjusts a set of rollups in place:
+//   account x month             -> income, expense   (dashboard)
+//   month -> account x category -> income, expense   (category totals)
+//   currency                    -> status counts, spent (purchases)
+//   currency x month            -> spent
+//   currency x category         -> spent, count
+// so a query only touches the rollups, never the rows.
+//
+// The rules mirror useFinanceStore: monthly income/expense skip transfers
+// and lend/borrow movements, purchase totals only count 'purchased' items.
+// Amounts are stored in each currency's minor unit (cents, whole yen, fils;
+// see minorDigits), which keeps the sums exact; transactions use their
+// account's currency. The web layer gets them back as decimals.
+//
+// Not thread-safe: AggregatesPlugin runs every call on one thread.
+public class AggregationEngine {
+
+    public static final int TYPE_INCOME = 0;
+    public static final int TYPE_EXPENSE = 1;
+    public static final int TYPE_OTHER = 2;
+
+    // Transactions excluded from monthly income/expense
+    public static final int FLAG_TRANSFER = 1;
+    public static final int FLAG_LEND_BORROW = 2;
+
+    public static final int STATUS_PLANNED = 0;
+    public static final int STATUS_PURCHASED = 1;
+    public static final int STATUS_CANCELLED = 2;
+    public static final int STATUS_OTHER = 3;
+
+    public static final class Account {
+        final String id;
+        final String currency;
+        final boolean active;
+        final int digits;
+        final long balanceMinor;
+
+        public Account(String id, String currency, boolean active, double balance) {
+            this.id = id;
+            this.currency = currency;
+            this.active = active;
+            this.digits = minorDigits(currency);
+            this.balanceMinor = toMinor(balance, digits);
+        }
+    }
+
+    public static final class CurrencyTotals {
+        public final String currency;
+        public long balanceMinor;
+        public long incomeMinor;
+        public long expenseMinor;
+
+        CurrencyTotals(String currency) {
+            this.currency = currency;
+        }
+    }
+
+    public static final class DashboardStats {
+        public final List<CurrencyTotals> byCurrency = new ArrayList<>();
+        public int accountsCount;
+        public int transactionsCount;
+    }
+
+    public static final class CategoryTotal {
+        public final String category;
+        public final long totalMinor;
+        public final long count;
+        // Share of the currency's total, 0-100
+        public final double percentage;
+
+        CategoryTotal(String category, long totalMinor, long count, double percentage) {
+            this.category = category;
+            this.totalMinor = totalMinor;
+            this.count = count;
+            this.percentage = percentage;
+        }
+    }
+
+    public static final class PurchaseAnalytics {
+        public final String currency;
+        public long totalSpentMinor;
+        public long monthlySpentMinor;
+        public long plannedCount;
+        public long purchasedCount;
+        public long cancelledCount;
+        public String topCategory;
+        public final List<CategoryTotal> categoryBreakdown = new ArrayList<>();
+
+        PurchaseAnalytics(String currency) {
+            this.currency = currency;
+        }
+    }
+
+    // Interns strings as small ints so the columns and rollup keys stay primitive
+    static final class Dictionary {
+        private final Map<String, Integer> codes = new HashMap<>();
+        private final List<String> values = new ArrayList<>();
+
+        int code(String value) {
+            Integer code = codes.get(value);
+            if (code == null) {
+                code = values.size();
+                codes.put(value, code);
+                values.add(value);
+            }
+            return code;
+        }
+
+        String value(int code) {
+            return values.get(code);
+        }
+    }
+
+    private final Dictionary accountIds = new Dictionary();
+    private final Dictionary categories = new Dictionary();
+    private final Dictionary currencies = new Dictionary();
+
+    // Transaction columns; rows are kept dense by moving the last row into a deleted slot
+    private final Map<String, Integer> txRows = new HashMap<>();
+    private String[] txIds = new String[64];
+    private int[] txDay = new int[64];
+    private long[] txAmount = new long[64];
+    private int[] txAccount = new int[64];
+    private int[] txCategory = new int[64];
+    private byte[] txType = new byte[64];
+    private byte[] txFlags = new byte[64];
+    private int txCount;
+
+    private final Map<String, Integer> purchaseRows = new HashMap<>();
+    private String[] purchaseIds = new String[64];
+    private int[] purchaseDay = new int[64];
+    private long[] purchasePrice = new long[64];
+    private int[] purchaseCurrency = new int[64];
+    private int[] purchaseCategory = new int[64];
+    private byte[] purchaseStatus = new byte[64];
+    private int purchaseCount;
+
+    // Accounts in the order the web layer lists them; per-currency results follow it
+    private final List<Account> accounts = new ArrayList<>();
+    // Account code -> minor-unit digits its transactions are stored with
+    private final Map<Integer, Integer> accountDigits = new HashMap<>();
+
+    // {income, expense, rows}
+    private final Map<Long, long[]> accountMonth = new HashMap<>();
+    private final Map<Integer, Map<Long, long[]>> monthAccountCategory = new HashMap<>();
+    // {planned, purchased, cancelled, other, spent}
+    private final Map<Integer, long[]> purchaseByCurrency = new HashMap<>();
+    // {spent, rows}
+    private final Map<Long, long[]> purchaseCurrencyMonth = new HashMap<>();
+    private final Map<Long, long[]> purchaseCurrencyCategory = new HashMap<>();
+
+    public void setAccounts(List<Account> list) {
+        accounts.clear();
+        accounts.addAll(list);
+        for (Account account : list) {
+            int code = accountIds.code(account.id);
+            int previous = digitsOf(code);
+            accountDigits.put(code, account.digits);
+            if (previous != account.digits) {
+                rescaleTransactions(code, previous, account.digits);
+            }
+        }
+    }
+
+    public void upsertTransaction(String id, String accountId, String category, int epochDay,
+                                  double amount, int type, int flags) {
+        Integer existing = txRows.get(id);
+        int row;
+        if (existing != null) {
+            row = existing;
+            applyTransaction(row, -1);
+        } else {
+            row = txCount++;
+            ensureTransactionCapacity(txCount);
+            txRows.put(id, row);
+            txIds[row] = id;
+        }
+        txDay[row] = epochDay;
+        txAccount[row] = accountIds.code(accountId != null ? accountId : "");
+        txAmount[row] = toMinor(amount, digitsOf(txAccount[row]));
+        txCategory[row] = categories.code(category != null ? category : "");
+        txType[row] = (byte) type;
+        txFlags[row] = (byte) flags;
+        applyTransaction(row, 1);
+    }
+
+    public boolean removeTransaction(String id) {
+        Integer row = txRows.remove(id);
+        if (row == null) {
+            return false;
+        }
+        applyTransaction(row, -1);
+        int last = --txCount;
+        if (row != last) {
+            txIds[row] = txIds[last];
+            txDay[row] = txDay[last];
+            txAmount[row] = txAmount[last];
+            txAccount[row] = txAccount[last];
+            txCategory[row] = txCategory[last];
+            txType[row] = txType[last];
+            txFlags[row] = txFlags[last];
+            txRows.put(txIds[row], row);
+        }
+        txIds[last] = null;
+        return true;
+    }
+
+    public void upsertPurchase(String id, String currency, String category, int epochDay,
+                               double price, int status) {
+        Integer existing = purchaseRows.get(id);
+        int row;
+        if (existing != null) {
+            row = existing;
+            applyPurchase(row, -1);
+        } else {
+            row = purchaseCount++;
+            ensurePurchaseCapacity(purchaseCount);
+            purchaseRows.put(id, row);
+            purchaseIds[row] = id;
+        }
+        purchaseDay[row] = epochDay;
+        purchasePrice[row] = toMinor(price, minorDigits(currency != null ? currency : "USD"));
+        purchaseCurrency[row] = currencies.code(currency != null ? currency : "USD");
+        purchaseCategory[row] = categories.code(category != null ? category : "");
+        purchaseStatus[row] = (byte) status;
+        applyPurchase(row, 1);
+    }
+
+    public boolean removePurchase(String id) {
+        Integer row = purchaseRows.remove(id);
+        if (row == null) {
+            return false;
+        }
+        applyPurchase(row, -1);
+        int last = --purchaseCount;
+        if (row != last) {
+            purchaseIds[row] = purchaseIds[last];
+            purchaseDay[row] = purchaseDay[last];
+            purchasePrice[row] = purchasePrice[last];
+            purchaseCurrency[row] = purchaseCurrency[last];
+            purchaseCategory[row] = purchaseCategory[last];
+            purchaseStatus[row] = purchaseStatus[last];
+            purchaseRows.put(purchaseIds[row], row);
+        }
+        purchaseIds[last] = null;
+        return true;
+    }
+
+    public void clear() {
+        txRows.clear();
+        Arrays.fill(txIds, 0, txCount, null);
+        txCount = 0;
+        purchaseRows.clear();
+        Arrays.fill(purchaseIds, 0, purchaseCount, null);
+        purchaseCount = 0;
+        accounts.clear();
+        accountDigits.clear();
+        accountMonth.clear();
+        monthAccountCategory.clear();
+        purchaseByCurrency.clear();
+        purchaseCurrencyMonth.clear();
+        purchaseCurrencyCategory.clear();
+    }
+
+    public int transactionCount() {
+        return txCount;
+    }
+
+    public int purchaseCount() {
+        return purchaseCount;
+    }
+
+    // Same shape as useFinanceStore.getDashboardStats for the given month
+    // (year * 12 + zero-based month, see monthOf)
+    public DashboardStats dashboardStats(int month) {
+        DashboardStats stats = new DashboardStats();
+        Map<String, CurrencyTotals> byCurrency = new LinkedHashMap<>();
+        for (Account account : accounts) {
+            if (!account.active) {
+                continue;
+            }
+            stats.accountsCount++;
+            CurrencyTotals totals = byCurrency.get(account.currency);
+            if (totals == null) {
+                totals = new CurrencyTotals(account.currency);
+                byCurrency.put(account.currency, totals);
+            }
+            totals.balanceMinor += account.balanceMinor;
+            long[] sums = accountMonth.get(pack(accountIds.code(account.id), month));
+            if (sums != null) {
+                totals.incomeMinor += sums[0];
+                totals.expenseMinor += sums[1];
+            }
+        }
+        stats.byCurrency.addAll(byCurrency.values());
+        stats.transactionsCount = txCount;
+        return stats;
+    }
+
+    // Income or expense per category for one month on active accounts,
+    // grouped by account currency, largest first
+    public Map<String, List<CategoryTotal>> categoryTotals(int month, int type) {
+        Map<Integer, Account> active = new HashMap<>();
+        for (Account account : accounts) {
+            if (account.active) {
+                active.put(accountIds.code(account.id), account);
+            }
+        }
+        Map<String, Map<Integer, long[]>> grouped = new TreeMap<>();
+        Map<Long, long[]> rollup = monthAccountCategory.get(month);
+        if (rollup != null) {
+            int slot = type == TYPE_INCOME ? 0 : 1;
+            for (Map.Entry<Long, long[]> entry : rollup.entrySet()) {
+                long[] sums = entry.getValue();
+                Account account = active.get((int) (entry.getKey() >>> 32));
+                if (account == null || sums[slot] == 0) {
+                    continue;
+                }
+                Map<Integer, long[]> perCategory = grouped.get(account.currency);
+                if (perCategory == null) {
+                    perCategory = new HashMap<>();
+                    grouped.put(account.currency, perCategory);
+                }
+                int category = (int) (entry.getKey() & 0xffffffffL);
+                long[] total = perCategory.get(category);
+                if (total == null) {
+                    total = new long[2];
+                    perCategory.put(category, total);
+                }
+                total[0] += sums[slot];
+                total[1] += sums[2 + slot];
+            }
+        }
+        Map<String, List<CategoryTotal>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<Integer, long[]>> entry : grouped.entrySet()) {
+            result.put(entry.getKey(), breakdown(entry.getValue()));
+        }
+        return result;
+    }
+
+    // Same shape as useFinanceStore.getMultiCurrencyPurchaseAnalytics, one
+    // entry per currency in alphabetical order
+    public List<PurchaseAnalytics> purchaseAnalytics(int month) {
+        Map<String, Integer> ordered = new TreeMap<>();
+        for (Integer currency : purchaseByCurrency.keySet()) {
+            ordered.put(currencies.value(currency), currency);
+        }
+        List<PurchaseAnalytics> result = new ArrayList<>(ordered.size());
+        for (Map.Entry<String, Integer> entry : ordered.entrySet()) {
+            int currency = entry.getValue();
+            long[] counts = purchaseByCurrency.get(currency);
+            PurchaseAnalytics analytics = new PurchaseAnalytics(entry.getKey());
+            analytics.plannedCount = counts[STATUS_PLANNED];
+            analytics.purchasedCount = counts[STATUS_PURCHASED];
+            analytics.cancelledCount = counts[STATUS_CANCELLED];
+            analytics.totalSpentMinor = counts[4];
+            long[] monthly = purchaseCurrencyMonth.get(pack(currency, month));
+            analytics.monthlySpentMinor = monthly != null ? monthly[0] : 0;
+
+            Map<Integer, long[]> perCategory = new HashMap<>();
+            for (Map.Entry<Long, long[]> category : purchaseCurrencyCategory.entrySet()) {
+                if ((int) (category.getKey() >>> 32) == currency) {
+                    perCategory.put((int) (category.getKey() & 0xffffffffL), category.getValue());
+                }
+            }
+            analytics.categoryBreakdown.addAll(breakdown(perCategory));
+            analytics.topCategory = analytics.categoryBreakdown.isEmpty()
+                ? null : analytics.categoryBreakdown.get(0).category;
+            result.add(analytics);
+        }
+        return result;
+    }
+
+    private List<CategoryTotal> breakdown(Map<Integer, long[]> perCategory) {
+        long total = 0;
+        for (long[] sums : perCategory.values()) {
+            total += sums[0];
+        }
+        List<CategoryTotal> list = new ArrayList<>(perCategory.size());
+        for (Map.Entry<Integer, long[]> entry : perCategory.entrySet()) {
+            long[] sums = entry.getValue();
+            list.add(new CategoryTotal(categories.value(entry.getKey()), sums[0], sums[1],
+                total > 0 ? sums[0] * 100.0 / total : 0));
+        }
+        list.sort((a, b) -> a.totalMinor != b.totalMinor
+            ? Long.compare(b.totalMinor, a.totalMinor)
+            : a.category.compareTo(b.category));
+        return list;
+    }
+
+    // Transactions of accounts the web layer has not listed yet use two digits
+    private int digitsOf(int account) {
+        Integer digits = accountDigits.get(account);
+        return digits != null ? digits : 2;
+    }
+
+    // An account whose currency changed keeps its rows, in the new minor unit
+    private void rescaleTransactions(int account, int from, int to) {
+        for (int row = 0; row < txCount; row++) {
+            if (txAccount[row] != account) {
+                continue;
+            }
+            applyTransaction(row, -1);
+            txAmount[row] = to >= from
+                ? txAmount[row] * POWERS_OF_TEN[to - from]
+                : Math.round((double) txAmount[row] / POWERS_OF_TEN[from - to]);
+            applyTransaction(row, 1);
+        }
+    }
+
+    // sign is 1 to add the row to the rollups, -1 to take it out
+    private void applyTransaction(int row, int sign) {
+        int month = monthOf(txDay[row]);
+        boolean counted = (txFlags[row] & (FLAG_TRANSFER | FLAG_LEND_BORROW)) == 0;
+        long income = counted && txType[row] == TYPE_INCOME ? txAmount[row] : 0;
+        long expense = counted && txType[row] == TYPE_EXPENSE ? txAmount[row] : 0;
+
+        long key = pack(txAccount[row], month);
+        long[] sums = adjust(accountMonth, key, 3, 2, sign);
+        sums[0] += sign * income;
+        sums[1] += sign * expense;
+        removeIfEmpty(accountMonth, key, sums, 2);
+
+        Map<Long, long[]> rollup = monthAccountCategory.get(month);
+        if (rollup == null) {
+            rollup = new HashMap<>();
+            monthAccountCategory.put(month, rollup);
+        }
+        long categoryKey = pack(txAccount[row], txCategory[row]);
+        // {income, expense, income rows, expense rows, rows}
+        long[] categorySums = adjust(rollup, categoryKey, 5, 4, sign);
+        categorySums[0] += sign * income;
+        categorySums[1] += sign * expense;
+        categorySums[2] += income != 0 ? sign : 0;
+        categorySums[3] += expense != 0 ? sign : 0;
+        removeIfEmpty(rollup, categoryKey, categorySums, 4);
+        if (rollup.isEmpty()) {
+            monthAccountCategory.remove(month);
+        }
+    }
+
+    private void applyPurchase(int row, int sign) {
+        int currency = purchaseCurrency[row];
+        int status = purchaseStatus[row];
+        long[] counts = purchaseByCurrency.get(currency);
+        if (counts == null) {
+            counts = new long[5];
+            purchaseByCurrency.put(currency, counts);
+        }
+        counts[status] += sign;
+        if (status == STATUS_PURCHASED) {
+            long price = purchasePrice[row];
+            counts[4] += sign * price;
+
+            long monthKey = pack(currency, monthOf(purchaseDay[row]));
+            long[] monthly = adjust(purchaseCurrencyMonth, monthKey, 2, 1, sign);
+            monthly[0] += sign * price;
+            removeIfEmpty(purchaseCurrencyMonth, monthKey, monthly, 1);
+
+            long categoryKey = pack(currency, purchaseCategory[row]);
+            long[] category = adjust(purchaseCurrencyCategory, categoryKey, 2, 1, sign);
+            category[0] += sign * price;
+            removeIfEmpty(purchaseCurrencyCategory, categoryKey, category, 1);
+        }
+        if (counts[0] + counts[1] + counts[2] + counts[3] == 0) {
+            purchaseByCurrency.remove(currency);
+        }
+    }
+
+    // Fetches (or creates) a rollup cell and moves its row counter
+    private static long[] adjust(Map<Long, long[]> rollup, long key, int width, int rowsSlot, int sign) {
+        long[] sums = rollup.get(key);
+        if (sums == null) {
+            sums = new long[width];
+            rollup.put(key, sums);
+        }
+        sums[rowsSlot] += sign;
+        return sums;
+    }
+
+    private static void removeIfEmpty(Map<Long, long[]> rollup, long key, long[] sums, int rowsSlot) {
+        if (sums[rowsSlot] == 0) {
+            rollup.remove(key);
+        }
+    }
+
+    private static long pack(int high, int low) {
+        return ((long) high << 32) | (low & 0xffffffffL);
+    }
+
+    private static final long[] POWERS_OF_TEN = { 1, 10, 100, 1_000, 10_000 };
+
+    // Decimal places of a currency's minor unit: 2 for USD or BDT, 0 for JPY,
+    // 3 for KWD. Codes the platform does not know count as 2.
+    public static int minorDigits(String currency) {
+        try {
+            int digits = Currency.getInstance(currency).getDefaultFractionDigits();
+            return digits >= 0 && digits < POWERS_OF_TEN.length ? digits : 2;
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return 2;
+        }
+    }
+
+    static long toMinor(double amount, int digits) {
+        return Math.round(amount * POWERS_OF_TEN[digits]);
+    }
+
+    // Back to a decimal amount in the currency's major unit
+    public static double toMajor(long minor, String currency) {
+        return (double) minor / POWERS_OF_TEN[minorDigits(currency)];
+    }
+
+    // year * 12 + zero-based month of a day counted from 1970-01-01
+    // (civil-from-days, so it needs neither java.time nor a Calendar)
+    public static int monthOf(int epochDay) {
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        return year * 12 + month - 1;
+    }
+
+    private void ensureTransactionCapacity(int required) {
+        if (required <= txIds.length) {
+            return;
+        }
+        int capacity = Math.max(required, txIds.length * 2);
+        txIds = Arrays.copyOf(txIds, capacity);
+        txDay = Arrays.copyOf(txDay, capacity);
+        txAmount = Arrays.copyOf(txAmount, capacity);
+        txAccount = Arrays.copyOf(txAccount, capacity);
+        txCategory = Arrays.copyOf(txCategory, capacity);
+        txType = Arrays.copyOf(txType, capacity);
+        txFlags = Arrays.copyOf(txFlags, capacity);
+    }
+
+    private void ensurePurchaseCapacity(int required) {
+        if (required <= purchaseIds.length) {
+            return;
+        }
+        int capacity = Math.max(required, purchaseIds.length * 2);
+        purchaseIds = Arrays.copyOf(purchaseIds, capacity);
+        purchaseDay = Arrays.copyOf(purchaseDay, capacity);
+        purchasePrice = Arrays.copyOf(purchasePrice, capacity);
+        purchaseCurrency = Arrays.copyOf(purchaseCurrency, capacity);
+        purchaseCategory = Arrays.copyOf(purchaseCategory, capacity);
+        purchaseStatus = Arrays.copyOf(purchaseStatus, capacity);
+    }
+}
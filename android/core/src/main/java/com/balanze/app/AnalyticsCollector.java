@@ -0,0 +1,151 @@
+package com.balanze.app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+// Uploads AnalyticsEventBuffer batches to the analytics endpoint as one
+// gzip-compressed POST each:
+//   { "client_info": {...}, "sent_at": ms, "events": [ ...as tracked ] }
+// A batch leaves the buffer only after the collector answered 2xx, or a 4xx
+// it would give again for the same batch (which would otherwise block every
+// later event). Network failures, 5xx, 408 and 429 are thrown and the batch
+// is sent again later, so the collector should tolerate duplicates.
+// Pure Java (HttpURLConnection) so it can be tested against a local server.
+public class AnalyticsCollector {
+
+    public static final int DEFAULT_BATCH_EVENTS = 200;
+    public static final int DEFAULT_BATCH_BYTES = 128 * 1024;
+
+    private static final int TIMEOUT_MS = 20_000;
+
+    public static final class FlushResult {
+        public final int sent;
+        // Events in batches the collector refused for good
+        public final int rejected;
+        public final int remaining;
+
+        FlushResult(int sent, int rejected, int remaining) {
+            this.sent = sent;
+            this.rejected = rejected;
+            this.remaining = remaining;
+        }
+    }
+
+    private final String endpoint;
+    private final Map<String, String> headers;
+    private final String clientInfo;
+
+    // clientInfo is a JSON object, or null
+    public AnalyticsCollector(String endpoint, Map<String, String> headers, String clientInfo) {
+        this.endpoint = endpoint;
+        this.headers = new LinkedHashMap<>(headers);
+        this.clientInfo = clientInfo != null ? clientInfo : "{}";
+    }
+
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    // Sends batch after batch until the buffer is empty; a failure leaves the
+    // failed batch and everything after it in the buffer
+    public FlushResult flush(AnalyticsEventBuffer buffer, int maxEvents, int maxBytes) throws IOException {
+        int sent = 0;
+        int rejected = 0;
+        try {
+            while (true) {
+                AnalyticsEventBuffer.Batch batch = buffer.peek(maxEvents, maxBytes);
+                if (batch.events.isEmpty()) {
+                    break;
+                }
+                int status = post(batch.events);
+                if (status >= 200 && status < 300) {
+                    sent += batch.events.size();
+                } else {
+                    rejected += batch.events.size();
+                }
+                buffer.commit(batch);
+            }
+        } finally {
+            if (sent + rejected > 0) {
+                buffer.sync();
+            }
+        }
+        return new FlushResult(sent, rejected, buffer.size());
+    }
+
+    // The status for a batch that is done with (accepted or refused for good)
+    int post(List<String> events) throws IOException {
+        byte[] body = body(clientInfo, System.currentTimeMillis(), events);
+        HttpURLConnection connection = (HttpURLConnection) new URL(endpoint).openConnection();
+        try {
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setUseCaches(false);
+            connection.setRequestMethod("POST");
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setRequestProperty("Content-Encoding", "gzip");
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+            connection.setDoOutput(true);
+            connection.setFixedLengthStreamingMode(body.length);
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            int status = connection.getResponseCode();
+            InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+            String text = "";
+            if (in != null) {
+                try (InputStream stream = in) {
+                    text = new String(readAll(stream), StandardCharsets.UTF_8);
+                }
+            }
+            if (status >= 500 || status == HttpURLConnection.HTTP_CLIENT_TIMEOUT || status == 429) {
+                throw new IOException("Analytics upload failed with HTTP " + status
+                    + (text.isEmpty() ? "" : ": " + text));
+            }
+            return status;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    static byte[] body(String clientInfo, long sentAt, List<String> events) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+            StringBuilder json = new StringBuilder(64);
+            json.append("{\"client_info\":").append(clientInfo)
+                .append(",\"sent_at\":").append(sentAt)
+                .append(",\"events\":[");
+            gzip.write(json.toString().getBytes(StandardCharsets.UTF_8));
+            for (int i = 0; i < events.size(); i++) {
+                if (i > 0) {
+                    gzip.write(',');
+                }
+                gzip.write(events.get(i).getBytes(StandardCharsets.UTF_8));
+            }
+            gzip.write(']');
+            gzip.write('}');
+        }
+        return bytes.toByteArray();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,293 @@
+package com.balanze.app;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+
+// Analytics events waiting to be uploaded, kept in a fixed-size ring inside
+// a memory-mapped file. Appending is a memory copy: the kernel owns the
+// mapped pages, so events survive the process being killed right after
+// append() returns (sync() additionally forces them to storage, for power
+// loss). When the ring is full the oldest events are overwritten; they are
+// telemetry, and a device that stays offline must not fill its storage.
+// Positions are logical byte offsets that only grow; a record is
+// [length][crc32][utf-8 json] and never wraps: when it does not fit before
+// the end of the ring, the rest is marked as skipped and it starts at 0.
+// The record is written before the tail moves past it, so a crash loses at
+// most the event being appended, and opening drops anything torn.
+// Thread-safe.
+public class AnalyticsEventBuffer implements Closeable {
+
+    public static final int DEFAULT_CAPACITY = 1024 * 1024;
+
+    private static final int MAGIC = 0x425a4531; // "BZE1"
+    private static final int HEADER_BYTES = 32;
+    private static final int OFFSET_CAPACITY = 4;
+    private static final int OFFSET_HEAD = 8;
+    private static final int OFFSET_TAIL = 16;
+    private static final int OFFSET_DROPPED = 24;
+    private static final int RECORD_HEADER = 8;
+    // In place of a length: the rest of the ring up to its end is unused
+    private static final int SKIP = -1;
+
+    // Events read from the front of the buffer; they stay there until commit()
+    public static final class Batch {
+        public final List<String> events;
+        public final int bytes;
+        final long end;
+
+        Batch(List<String> events, int bytes, long end) {
+            this.events = events;
+            this.bytes = bytes;
+            this.end = end;
+        }
+    }
+
+    private final File file;
+    private final int capacity;
+    private RandomAccessFile raf;
+    private MappedByteBuffer map;
+    private long head;
+    private long tail;
+    private long dropped;
+    private int count;
+
+    public AnalyticsEventBuffer(File file, int capacity) throws IOException {
+        if (capacity < 64) {
+            throw new IllegalArgumentException("Capacity too small: " + capacity);
+        }
+        this.file = file;
+        this.capacity = capacity;
+        open();
+    }
+
+    // Larger events are refused, so one event can never push out a quarter
+    // of the buffer
+    public int maxEventBytes() {
+        return capacity / 4 - RECORD_HEADER;
+    }
+
+    // False when the event is too large to keep
+    public synchronized boolean append(String event) {
+        ensureOpen();
+        byte[] bytes = event.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > maxEventBytes()) {
+            return false;
+        }
+        int need = RECORD_HEADER + bytes.length;
+        int at = (int) (tail % capacity);
+        int skip = capacity - at < need ? capacity - at : 0;
+        long evictedFrom = head;
+        while (tail + skip + need - head > capacity) {
+            if (skipRecord()) {
+                dropped++;
+            }
+        }
+        if (head != evictedFrom) {
+            // Before the old records are overwritten
+            map.putLong(OFFSET_HEAD, head);
+            map.putLong(OFFSET_DROPPED, dropped);
+        }
+        if (skip > 0) {
+            if (skip >= 4) {
+                map.putInt(HEADER_BYTES + at, SKIP);
+            }
+            tail += skip;
+            at = 0;
+        }
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        map.putInt(HEADER_BYTES + at, bytes.length);
+        map.putInt(HEADER_BYTES + at + 4, (int) crc.getValue());
+        ByteBuffer view = map.duplicate();
+        view.position(HEADER_BYTES + at + RECORD_HEADER);
+        view.put(bytes);
+        tail += need;
+        map.putLong(OFFSET_TAIL, tail);
+        count++;
+        return true;
+    }
+
+    // The oldest events, at most maxEvents and (unless the first alone is
+    // larger) maxBytes of them
+    public synchronized Batch peek(int maxEvents, int maxBytes) {
+        ensureOpen();
+        List<String> events = new ArrayList<>();
+        int bytes = 0;
+        long position = head;
+        while (position < tail && events.size() < maxEvents) {
+            int at = (int) (position % capacity);
+            int rest = capacity - at;
+            int length = rest < RECORD_HEADER ? SKIP : map.getInt(HEADER_BYTES + at);
+            if (length == SKIP) {
+                position += rest;
+                continue;
+            }
+            if (!events.isEmpty() && bytes + length > maxBytes) {
+                break;
+            }
+            byte[] data = new byte[length];
+            ByteBuffer view = map.duplicate();
+            view.position(HEADER_BYTES + at + RECORD_HEADER);
+            view.get(data);
+            events.add(new String(data, StandardCharsets.UTF_8));
+            bytes += length;
+            position += RECORD_HEADER + length;
+        }
+        return new Batch(Collections.unmodifiableList(events), bytes, position);
+    }
+
+    // Removes a peeked batch, e.g. once the collector accepted it. Events the
+    // ring already overwrote in the meantime are not counted twice.
+    public synchronized void commit(Batch batch) {
+        ensureOpen();
+        while (head < batch.end && head < tail) {
+            skipRecord();
+        }
+        map.putLong(OFFSET_HEAD, head);
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    // Bytes between the oldest and the newest event, including record headers
+    public synchronized long pendingBytes() {
+        return tail - head;
+    }
+
+    // Events overwritten because the buffer was full, since it was created
+    public synchronized long dropped() {
+        return dropped;
+    }
+
+    public synchronized void clear() {
+        ensureOpen();
+        head = tail;
+        count = 0;
+        map.putLong(OFFSET_HEAD, head);
+    }
+
+    // Forces the mapped pages to storage
+    public synchronized void sync() {
+        if (map != null) {
+            map.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (raf != null) {
+            map.force();
+            raf.close();
+            raf = null;
+            // Unmapped once garbage collected; there is no portable way to do it now
+            map = null;
+        }
+    }
+
+    // Moves head past one record or skipped end of the ring; true for an event
+    private boolean skipRecord() {
+        int at = (int) (head % capacity);
+        int rest = capacity - at;
+        int length = rest < RECORD_HEADER ? SKIP : map.getInt(HEADER_BYTES + at);
+        if (length == SKIP) {
+            head += rest;
+            return false;
+        }
+        head += RECORD_HEADER + length;
+        count--;
+        return true;
+    }
+
+    private void ensureOpen() {
+        if (map == null) {
+            throw new IllegalStateException("Analytics buffer is closed");
+        }
+    }
+
+    private void open() throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        long length = HEADER_BYTES + (long) capacity;
+        boolean fresh = file.length() != length;
+        raf = new RandomAccessFile(file, "rw");
+        if (fresh) {
+            // New, or made with another capacity: start over
+            raf.setLength(0);
+            raf.setLength(length);
+        }
+        map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, length);
+        if (fresh || map.getInt(0) != MAGIC || map.getInt(OFFSET_CAPACITY) != capacity) {
+            reset();
+            return;
+        }
+        head = map.getLong(OFFSET_HEAD);
+        tail = map.getLong(OFFSET_TAIL);
+        dropped = map.getLong(OFFSET_DROPPED);
+        if (head < 0 || tail < head || tail - head > capacity || dropped < 0) {
+            reset();
+            return;
+        }
+        recover();
+    }
+
+    // Counts the events between head and tail, cutting the tail back to the
+    // first record that is torn or does not check out
+    private void recover() {
+        count = 0;
+        long position = head;
+        while (position < tail) {
+            int at = (int) (position % capacity);
+            int rest = capacity - at;
+            int length = rest < RECORD_HEADER ? SKIP : map.getInt(HEADER_BYTES + at);
+            if (length == SKIP) {
+                position += rest;
+                continue;
+            }
+            if (length < 0 || length > maxEventBytes() || RECORD_HEADER + length > rest
+                || position + RECORD_HEADER + length > tail) {
+                break;
+            }
+            byte[] data = new byte[length];
+            ByteBuffer view = map.duplicate();
+            view.position(HEADER_BYTES + at + RECORD_HEADER);
+            view.get(data);
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            if ((int) crc.getValue() != map.getInt(HEADER_BYTES + at + 4)) {
+                break;
+            }
+            position += RECORD_HEADER + length;
+            count++;
+        }
+        if (position < tail) {
+            tail = position;
+            map.putLong(OFFSET_TAIL, tail);
+        }
+    }
+
+    private void reset() {
+        head = 0;
+        tail = 0;
+        dropped = 0;
+        count = 0;
+        map.putInt(0, MAGIC);
+        map.putInt(OFFSET_CAPACITY, capacity);
+        map.putLong(OFFSET_HEAD, 0);
+        map.putLong(OFFSET_TAIL, 0);
+        map.putLong(OFFSET_DROPPED, 0);
+        map.force();
+    }
+}
@@ -0,0 +1,229 @@
+package com.balanze.app;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URLDecoder;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// An auth link the app was opened with (https://balanze.cash/auth/callback
+// or /auth/reset-password), parsed and checked natively so the page only
+// ever receives parameters in a shape Supabase sends. As in the page's old
+// handler, parameters come from the fragment and, when it has none of them,
+// from the query.
+//
+// Shapes, in order of precedence:
+//   error      #error=access_denied&error_code=...&error_description=...
+//   session    #access_token=<JWT>&refresh_token=...&expires_in=...&type=...
+//   code       ?code=... (PKCE; exchanged for a session by the page)
+//   tokenHash  ?token_hash=...&type=recovery (verified by the page)
+public final class AuthDeepLink {
+
+    public static final String HOST = "balanze.cash";
+    public static final String CALLBACK = "callback";
+    public static final String RESET_PASSWORD = "reset-password";
+
+    public static final String FLOW_ERROR = "error";
+    public static final String FLOW_SESSION = "session";
+    public static final String FLOW_CODE = "code";
+    public static final String FLOW_TOKEN_HASH = "tokenHash";
+
+    // Supabase tokens are far smaller; anything longer is not one of its links
+    static final int MAX_URL_LENGTH = 16 * 1024;
+    static final int MAX_TEXT_LENGTH = 1024;
+
+    private static final Pattern JWT = Pattern.compile("[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]+\\.[A-Za-z0-9_-]+");
+    private static final Pattern TOKEN = Pattern.compile("[A-Za-z0-9._~-]+");
+    private static final Set<String> OTP_TYPES = new HashSet<>(Arrays.asList(
+        "signup", "invite", "magiclink", "recovery", "email_change", "email"));
+
+    // CALLBACK or RESET_PASSWORD
+    public final String kind;
+    public final String flow;
+    public final String accessToken;
+    public final String refreshToken;
+    // -1 when the link does not say
+    public final long expiresIn;
+    public final String tokenType;
+    // Supabase's type parameter: "recovery", "signup", ...
+    public final String type;
+    public final String code;
+    public final String tokenHash;
+    public final String error;
+    public final String errorCode;
+    public final String errorDescription;
+
+    private AuthDeepLink(String kind, String flow, Map<String, String> params) {
+        this.kind = kind;
+        this.flow = flow;
+        this.accessToken = params.get("access_token");
+        this.refreshToken = params.get("refresh_token");
+        String expires = params.get("expires_in");
+        this.expiresIn = expires != null ? Long.parseLong(expires) : -1;
+        this.tokenType = params.get("token_type");
+        this.type = params.get("type");
+        this.code = params.get("code");
+        this.tokenHash = params.get("token_hash");
+        this.error = params.get("error");
+        this.errorCode = params.get("error_code");
+        this.errorDescription = params.get("error_description");
+    }
+
+    // CALLBACK or RESET_PASSWORD for links to https://balanze.cash/auth/...,
+    // whatever their parameters; null for every other url
+    public static String kindOf(String url) {
+        if (url == null || url.length() > MAX_URL_LENGTH) {
+            return null;
+        }
+        // Only the part before the parameters has to be a valid URI; broken
+        // parameters make an auth link that parse() rejects, not another url
+        int hash = url.indexOf('#');
+        int question = url.indexOf('?');
+        int end = question >= 0 && (hash < 0 || question < hash) ? question : hash;
+        try {
+            URI uri = new URI(end >= 0 ? url.substring(0, end) : url);
+            if (!"https".equalsIgnoreCase(uri.getScheme()) || !HOST.equalsIgnoreCase(uri.getHost())
+                || uri.getPort() != -1 && uri.getPort() != 443) {
+                return null;
+            }
+            String path = uri.getPath() != null ? uri.getPath() : "";
+            if (path.endsWith("/")) {
+                path = path.substring(0, path.length() - 1);
+            }
+            if ("/auth/callback".equals(path)) {
+                return CALLBACK;
+            }
+            if ("/auth/reset-password".equals(path)) {
+                return RESET_PASSWORD;
+            }
+            return null;
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    // Throws IllegalArgumentException, with a reason that is safe to log (no
+    // token values), for anything but the shapes above
+    public static AuthDeepLink parse(String url) {
+        String kind = kindOf(url);
+        if (kind == null) {
+            throw new IllegalArgumentException("Not an auth link");
+        }
+        int hash = url.indexOf('#');
+        int question = url.indexOf('?');
+        String fragment = hash >= 0 ? url.substring(hash + 1) : null;
+        String query = question >= 0 && (hash < 0 || question < hash)
+            ? url.substring(question + 1, hash >= 0 ? hash : url.length()) : null;
+        Map<String, String> params = parameters(fragment);
+        if (!params.containsKey("access_token") && !params.containsKey("refresh_token")
+            && !params.containsKey("error") && !params.containsKey("code") && !params.containsKey("token_hash")) {
+            params = parameters(query);
+        }
+
+        String type = params.get("type");
+        if (type != null && !OTP_TYPES.contains(type)) {
+            throw new IllegalArgumentException("Unknown link type");
+        }
+        if (RESET_PASSWORD.equals(kind) && type != null && !"recovery".equals(type)) {
+            throw new IllegalArgumentException("Password reset link of type " + type);
+        }
+
+        if (params.containsKey("error")) {
+            require(params, "error", null, true);
+            require(params, "error_code", null, false);
+            require(params, "error_description", null, false);
+            return new AuthDeepLink(kind, FLOW_ERROR, params);
+        }
+        if (params.containsKey("access_token") || params.containsKey("refresh_token")) {
+            require(params, "access_token", JWT, true);
+            require(params, "refresh_token", TOKEN, true);
+            require(params, "token_type", TOKEN, false);
+            String expires = params.get("expires_in");
+            if (expires != null && !expires.matches("[0-9]{1,10}")) {
+                throw new IllegalArgumentException("Malformed expires_in");
+            }
+            return new AuthDeepLink(kind, FLOW_SESSION, params);
+        }
+        if (params.containsKey("code")) {
+            require(params, "code", TOKEN, true);
+            return new AuthDeepLink(kind, FLOW_CODE, params);
+        }
+        if (params.containsKey("token_hash")) {
+            require(params, "token_hash", TOKEN, true);
+            if (type == null) {
+                throw new IllegalArgumentException("token_hash without type");
+            }
+            return new AuthDeepLink(kind, FLOW_TOKEN_HASH, params);
+        }
+        throw new IllegalArgumentException("No session, code, token_hash or error in link");
+    }
+
+    // { kind, flow, ...camelCase parameters the link had }
+    public JSONObject toJson() throws JSONException {
+        JSONObject json = new JSONObject()
+            .put("kind", kind)
+            .put("flow", flow)
+            .putOpt("accessToken", accessToken)
+            .putOpt("refreshToken", refreshToken)
+            .putOpt("tokenType", tokenType)
+            .putOpt("type", type)
+            .putOpt("code", code)
+            .putOpt("tokenHash", tokenHash)
+            .putOpt("error", error)
+            .putOpt("errorCode", errorCode)
+            .putOpt("errorDescription", errorDescription);
+        if (expiresIn >= 0) {
+            json.put("expiresIn", expiresIn);
+        }
+        return json;
+    }
+
+    private static void require(Map<String, String> params, String name, Pattern pattern, boolean required) {
+        String value = params.get(name);
+        if (value == null || value.isEmpty()) {
+            if (required) {
+                throw new IllegalArgumentException("Missing " + name);
+            }
+            params.remove(name);
+            return;
+        }
+        if (pattern != null ? !pattern.matcher(value).matches() : value.length() > MAX_TEXT_LENGTH) {
+            throw new IllegalArgumentException("Malformed " + name);
+        }
+    }
+
+    // a=1&b=2 with percent-decoding; the first of repeated names wins, as
+    // URLSearchParams.get() does
+    private static Map<String, String> parameters(String raw) {
+        Map<String, String> params = new HashMap<>();
+        if (raw == null || raw.isEmpty()) {
+            return params;
+        }
+        for (String pair : raw.split("&")) {
+            int equals = pair.indexOf('=');
+            String name = decode(equals >= 0 ? pair.substring(0, equals) : pair);
+            String value = equals >= 0 ? decode(pair.substring(equals + 1)) : "";
+            if (!name.isEmpty() && !params.containsKey(name)) {
+                params.put(name, value);
+            }
+        }
+        return params;
+    }
+
+    private static String decode(String value) {
+        try {
+            return URLDecoder.decode(value, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed percent-encoding");
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.balanze.app;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+// Packs JSON rows into one columnar binary batch for the bulk transfer
+// channel (src/lib/columnarBatch.ts reads it). The page wraps numeric
+// columns in typed arrays without copying and decodes strings only when a
+// cell is read, so a large result never exists as a JSON string on either
+// side of the bridge.
+//
+// Layout, little-endian, every section 8-byte aligned from the start:
+//   header   "BZC1" | u32 tag | u32 rowCount | u32 columnCount
+//   column   u8 type | u8 flags | u16 nameLength | name (UTF-8), padded to 4
+//            u32 length of the rest of the column, padded to 8
+//            [null bitmap: bit set = value present, padded to 8] when flags & HAS_NULLS
+//            data:
+//              FLOAT64     f64[rowCount]
+//              BOOL        u8[rowCount]
+//              STRING      u32 offsets[rowCount + 1] | UTF-8 bytes
+//              DICTIONARY  u32 entryCount | u32 offsets[entryCount + 1] | UTF-8 bytes | u16 indices[rowCount]
+//              JSON        like STRING, each cell holding a JSON text
+// Columns are inferred from the rows: one type per column, JSON when values
+// are nested or of mixed types. Missing fields and nulls read back as null.
+public class ColumnarEncoder {
+
+    static final int MAGIC = 0x31435a42; // "BZC1"
+    static final int TYPE_FLOAT64 = 1;
+    static final int TYPE_BOOL = 2;
+    static final int TYPE_STRING = 3;
+    static final int TYPE_DICTIONARY = 4;
+    static final int TYPE_JSON = 5;
+    static final int FLAG_HAS_NULLS = 1;
+
+    // Dictionary indices are u16
+    private static final int MAX_DICTIONARY_SIZE = 0xffff;
+
+    private static final class Column {
+        final String name;
+        Object[] values;
+        int present;
+        boolean numbers;
+        boolean booleans;
+        boolean strings;
+        boolean nested;
+
+        Column(String name, int capacity) {
+            this.name = name;
+            this.values = new Object[Math.max(16, capacity)];
+        }
+
+        void set(int row, Object value) {
+            if (value == null || value == JSONObject.NULL) {
+                return;
+            }
+            if (row >= values.length) {
+                values = Arrays.copyOf(values, Math.max(row + 1, values.length * 2));
+            }
+            values[row] = value;
+            present++;
+            if (value instanceof Number) {
+                numbers = true;
+            } else if (value instanceof Boolean) {
+                booleans = true;
+            } else if (value instanceof String) {
+                strings = true;
+            } else {
+                nested = true;
+            }
+        }
+
+        Object get(int row) {
+            return row < values.length ? values[row] : null;
+        }
+
+        int kinds() {
+            return (numbers ? 1 : 0) + (booleans ? 1 : 0) + (strings ? 1 : 0) + (nested ? 1 : 0);
+        }
+    }
+
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+    // Null keeps every field seen
+    private final Collection<String> fields;
+    private int rowCount;
+
+    public ColumnarEncoder() {
+        this(null);
+    }
+
+    // Only the given fields become columns, in that order
+    public ColumnarEncoder(Collection<String> fields) {
+        this.fields = fields;
+        if (fields != null) {
+            for (String field : fields) {
+                columns.put(field, new Column(field, 16));
+            }
+        }
+    }
+
+    public void add(JSONObject row) {
+        if (fields != null) {
+            for (Column column : columns.values()) {
+                column.set(rowCount, row.opt(column.name));
+            }
+        } else {
+            Iterator<String> keys = row.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                Column column = columns.get(key);
+                if (column == null) {
+                    column = new Column(key, rowCount + 1);
+                    columns.put(key, column);
+                }
+                column.set(rowCount, row.opt(key));
+            }
+        }
+        rowCount++;
+    }
+
+    public int size() {
+        return rowCount;
+    }
+
+    // tag travels in the header so the page can match the batch to its request
+    public byte[] encode(int tag) {
+        Output out = new Output(64 + rowCount * columns.size() * 8);
+        out.putInt(MAGIC);
+        out.putInt(tag);
+        out.putInt(rowCount);
+        out.putInt(columns.size());
+        for (Column column : columns.values()) {
+            writeColumn(out, column);
+        }
+        return out.toByteArray();
+    }
+
+    private void writeColumn(Output out, Column column) {
+        int type = typeOf(column);
+        boolean hasNulls = column.present < rowCount;
+        byte[] name = column.name.getBytes(StandardCharsets.UTF_8);
+        out.put((byte) type);
+        out.put((byte) (hasNulls ? FLAG_HAS_NULLS : 0));
+        out.putShort((short) name.length);
+        out.put(name);
+        out.align(4);
+        int lengthAt = out.reserve(4);
+        out.align(8);
+        int start = out.position();
+
+        if (hasNulls) {
+            int bitmapAt = out.reserve((rowCount + 7) / 8);
+            for (int row = 0; row < rowCount; row++) {
+                if (column.get(row) != null) {
+                    out.orByte(bitmapAt + row / 8, 1 << (row % 8));
+                }
+            }
+            out.align(8);
+        }
+
+        switch (type) {
+            case TYPE_FLOAT64:
+                for (int row = 0; row < rowCount; row++) {
+                    Object value = column.get(row);
+                    out.putDouble(value != null ? ((Number) value).doubleValue() : 0);
+                }
+                break;
+            case TYPE_BOOL:
+                for (int row = 0; row < rowCount; row++) {
+                    out.put((byte) (Boolean.TRUE.equals(column.get(row)) ? 1 : 0));
+                }
+                break;
+            case TYPE_DICTIONARY:
+                writeDictionary(out, column);
+                break;
+            default:
+                writeStrings(out, column, type == TYPE_JSON);
+                break;
+        }
+        out.align(8);
+        out.putInt(lengthAt, out.position() - start);
+    }
+
+    private void writeStrings(Output out, Column column, boolean json) {
+        int offsetsAt = out.reserve((rowCount + 1) * 4);
+        int bytesStart = out.position();
+        out.putInt(offsetsAt, 0);
+        for (int row = 0; row < rowCount; row++) {
+            Object value = column.get(row);
+            if (value != null) {
+                out.put((json ? toJson(value) : (String) value).getBytes(StandardCharsets.UTF_8));
+            }
+            out.putInt(offsetsAt + (row + 1) * 4, out.position() - bytesStart);
+        }
+    }
+
+    private void writeDictionary(Output out, Column column) {
+        Map<String, Integer> indices = new HashMap<>();
+        List<String> entries = new ArrayList<>();
+        for (int row = 0; row < rowCount; row++) {
+            Object value = column.get(row);
+            if (value != null && !indices.containsKey(value)) {
+                indices.put((String) value, entries.size());
+                entries.add((String) value);
+            }
+        }
+        out.putInt(entries.size());
+        int offsetsAt = out.reserve((entries.size() + 1) * 4);
+        int bytesStart = out.position();
+        out.putInt(offsetsAt, 0);
+        for (int i = 0; i < entries.size(); i++) {
+            out.put(entries.get(i).getBytes(StandardCharsets.UTF_8));
+            out.putInt(offsetsAt + (i + 1) * 4, out.position() - bytesStart);
+        }
+        out.align(2);
+        for (int row = 0; row < rowCount; row++) {
+            Object value = column.get(row);
+            out.putShort((short) (value != null ? indices.get(value) : 0));
+        }
+    }
+
+    private int typeOf(Column column) {
+        if (column.kinds() > 1 || column.nested) {
+            return TYPE_JSON;
+        }
+        if (column.numbers) {
+            return TYPE_FLOAT64;
+        }
+        if (column.booleans) {
+            return TYPE_BOOL;
+        }
+        if (column.strings && isRepetitive(column)) {
+            return TYPE_DICTIONARY;
+        }
+        // Includes columns that are null in every row
+        return TYPE_STRING;
+    }
+
+    // Worth a dictionary when values repeat on average at least four times,
+    // e.g. user_id, account_id, category or currency
+    private boolean isRepetitive(Column column) {
+        int limit = Math.min(MAX_DICTIONARY_SIZE, column.present / 4);
+        Map<Object, Boolean> distinct = new HashMap<>();
+        for (int row = 0; row < rowCount; row++) {
+            Object value = column.get(row);
+            if (value != null && distinct.put(value, Boolean.TRUE) == null && distinct.size() > limit) {
+                return false;
+            }
+        }
+        return column.present > 0;
+    }
+
+    private static String toJson(Object value) {
+        if (value instanceof String) {
+            return JSONObject.quote((String) value);
+        }
+        if (value instanceof JSONObject || value instanceof JSONArray) {
+            return value.toString();
+        }
+        return String.valueOf(JSONObject.wrap(value));
+    }
+
+    // Growable little-endian buffer; the batch is built in one pass
+    private static final class Output {
+        private ByteBuffer buffer;
+
+        Output(int capacity) {
+            buffer = ByteBuffer.allocate(Math.max(64, capacity)).order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        int position() {
+            return buffer.position();
+        }
+
+        void put(byte value) {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void put(byte[] bytes) {
+            ensure(bytes.length);
+            buffer.put(bytes);
+        }
+
+        void putShort(short value) {
+            ensure(2);
+            buffer.putShort(value);
+        }
+
+        void putInt(int value) {
+            ensure(4);
+            buffer.putInt(value);
+        }
+
+        void putInt(int index, int value) {
+            buffer.putInt(index, value);
+        }
+
+        void putDouble(double value) {
+            ensure(8);
+            buffer.putDouble(value);
+        }
+
+        void orByte(int index, int bits) {
+            buffer.put(index, (byte) (buffer.get(index) | bits));
+        }
+
+        // Skips zeroed bytes to be filled in later; returns where they start
+        int reserve(int length) {
+            ensure(length);
+            int at = buffer.position();
+            buffer.position(at + length);
+            return at;
+        }
+
+        void align(int alignment) {
+            int padding = (alignment - buffer.position() % alignment) % alignment;
+            reserve(padding);
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer.array(), buffer.position());
+        }
+
+        private void ensure(int extra) {
+            if (buffer.remaining() >= extra) {
+                return;
+            }
+            int capacity = Math.max(buffer.capacity() * 2, buffer.position() + extra);
+            ByteBuffer grown = ByteBuffer.allocate(capacity).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+}
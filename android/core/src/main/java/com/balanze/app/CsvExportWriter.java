@@ -0,0 +1,82 @@
+package com.balanze.app;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+// Same columns and quoting as exportUtils.exportToCSV. Because rows are
+// streamed, the "# Export Summary" block is appended after the data
+// instead of being prepended to it.
+public class CsvExportWriter implements TransactionExportWriter {
+
+    private final Writer writer;
+
+    public CsvExportWriter(OutputStream out) throws IOException {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        for (int i = 0; i < HEADERS.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writeField(HEADERS[i]);
+        }
+    }
+
+    @Override
+    public void writeRow(ExportRow row) throws IOException {
+        writer.write('\n');
+        writeField(row.date);
+        writer.write(',');
+        writeField(row.description);
+        writer.write(',');
+        writeField(row.category);
+        writer.write(',');
+        writeField(row.account);
+        writer.write(',');
+        writeField(row.displayType());
+        writer.write(',');
+        writeField(row.displayAmount());
+        writer.write(',');
+        writeField(row.tags);
+    }
+
+    @Override
+    public void finish(ExportSummary summary) throws IOException {
+        if (summary.hasFilters()) {
+            writer.write("\n\n# Export Summary\n");
+            for (String filter : summary.activeFilters) {
+                writer.write("# " + filter + "\n");
+            }
+            writer.write("# Records: " + summary.recordCount + "\n");
+            writer.write("# Exported: " + summary.exportedAt + "\n");
+            writer.write("\n# Financial Summary:\n");
+            writer.write("# Total Income: " + summary.formatAmount(summary.totalIncome) + "\n");
+            writer.write("# Total Expenses: " + summary.formatAmount(summary.totalExpense) + "\n");
+            writer.write("# Net Amount: " + summary.formatAmount(summary.netAmount()) + "\n");
+            writer.write("# Income Transactions: " + summary.incomeCount + "\n");
+            writer.write("# Expense Transactions: " + summary.expenseCount + "\n");
+        }
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void writeField(String value) throws IOException {
+        writer.write('"');
+        String text = value != null ? value : "";
+        int start = 0;
+        int quote;
+        while ((quote = text.indexOf('"', start)) != -1) {
+            writer.write(text, start, quote - start + 1);
+            writer.write('"');
+            start = quote + 1;
+        }
+        writer.write(text, start, text.length() - start);
+        writer.write('"');
+    }
+}
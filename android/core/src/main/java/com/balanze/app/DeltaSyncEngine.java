@@ -0,0 +1,109 @@
+package com.balanze.app;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Pulls only the rows that changed since the last sync into the local ledger.
+// Each table is walked in (syncField, id) order from its stored high-water
+// mark, one batch at a time, and every merged batch is reported as a
+// change-set of ids rather than the rows themselves.
+public class DeltaSyncEngine {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    // Position of the last row merged by delta sync. updatedAt holds the
+    // table's syncField value and may be null when the table still has rows
+    // that were never stamped
+    public static class SyncMark {
+        public final String updatedAt;
+        public final String lastId;
+
+        public SyncMark(String updatedAt, String lastId) {
+            this.updatedAt = updatedAt;
+            this.lastId = lastId;
+        }
+    }
+
+    // Where merged rows are kept; LedgerStore on the device
+    public interface Ledger {
+        // Null until the first delta sync of this table has merged a row
+        SyncMark getSyncMark(LedgerTable table, String userId);
+
+        // Writes a batch and advances the high-water mark atomically
+        int merge(LedgerTable table, String userId, JSONArray rows, SyncMark mark) throws JSONException;
+    }
+
+    public interface RowSource {
+        // Rows of the user with (table.syncField, id) strictly after the mark, oldest first.
+        // A null mark means "from the beginning".
+        JSONArray fetchChangedRows(LedgerTable table, String userId, SyncMark since, int limit)
+            throws IOException, JSONException;
+    }
+
+    public interface ChangeListener {
+        void onChangeSet(ChangeSet changeSet);
+    }
+
+    public static class ChangeSet {
+        public final LedgerTable table;
+        public final List<String> upsertedIds;
+        public final String highWaterMark;
+
+        ChangeSet(LedgerTable table, List<String> upsertedIds, String highWaterMark) {
+            this.table = table;
+            this.upsertedIds = Collections.unmodifiableList(upsertedIds);
+            this.highWaterMark = highWaterMark;
+        }
+    }
+
+    private final Ledger store;
+    private final RowSource source;
+    private final ChangeListener listener;
+    private final int batchSize;
+
+    public DeltaSyncEngine(Ledger store, RowSource source, ChangeListener listener, int batchSize) {
+        this.store = store;
+        this.source = source;
+        this.listener = listener;
+        this.batchSize = batchSize;
+    }
+
+    public DeltaSyncEngine(Ledger store, RowSource source, ChangeListener listener) {
+        this(store, source, listener, DEFAULT_BATCH_SIZE);
+    }
+
+    // Returns the number of rows merged. A failure part-way leaves every
+    // completed batch (and its high-water mark) in place.
+    public int syncTable(LedgerTable table, String userId) throws IOException, JSONException {
+        SyncMark mark = store.getSyncMark(table, userId);
+        int merged = 0;
+        while (true) {
+            JSONArray rows = source.fetchChangedRows(table, userId, mark, batchSize);
+            if (rows.length() == 0) {
+                break;
+            }
+
+            List<String> ids = new ArrayList<>(rows.length());
+            for (int i = 0; i < rows.length(); i++) {
+                ids.add(rows.getJSONObject(i).getString("id"));
+            }
+            JSONObject last = rows.getJSONObject(rows.length() - 1);
+            mark = new SyncMark(last.isNull(table.syncField) ? null : last.getString(table.syncField), last.getString("id"));
+
+            merged += store.merge(table, userId, rows, mark);
+            if (listener != null) {
+                listener.onChangeSet(new ChangeSet(table, ids, mark.updatedAt));
+            }
+
+            if (rows.length() < batchSize) {
+                break;
+            }
+        }
+        return merged;
+    }
+}
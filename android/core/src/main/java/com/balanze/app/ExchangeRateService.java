@@ -0,0 +1,283 @@
+package com.balanze.app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Exchange rate table quoted against one base currency, fetched from an
+// exchangerate-api style endpoint (<endpoint><base> -> { "rates": { "EUR": 0.92 } })
+// and persisted so conversions keep working offline from the last snapshot.
+// Cross rates are triangulated through the base. A stale table is refreshed
+// on the next read; after a failed fetch the old table is served and the
+// network is not retried until retryMs has passed.
+// Pure Java (HttpURLConnection) so it can be tested against a local server.
+public class ExchangeRateService {
+
+    private static final int FORMAT_VERSION = 1;
+    private static final int TIMEOUT_MS = 15_000;
+    private static final Pattern RATE = Pattern.compile(
+        "\"([A-Za-z]{3})\"\\s*:\\s*(-?[0-9]+(?:\\.[0-9]+)?(?:[eE][-+]?[0-9]+)?)");
+
+    public static final class Snapshot {
+        public final String base;
+        public final long fetchedAt;
+        // Units of each currency per one unit of base
+        public final Map<String, Double> rates;
+
+        Snapshot(String base, long fetchedAt, Map<String, Double> rates) {
+            this.base = base;
+            this.fetchedAt = fetchedAt;
+            this.rates = Collections.unmodifiableMap(rates);
+        }
+
+        // Multiply an amount in `from` by this to get `to`; NaN when either is unknown
+        public double rate(String from, String to) {
+            from = normalize(from);
+            to = normalize(to);
+            if (from.equals(to)) {
+                return 1;
+            }
+            Double fromRate = rates.get(from);
+            Double toRate = rates.get(to);
+            if (fromRate == null || toRate == null) {
+                return Double.NaN;
+            }
+            return toRate / fromRate;
+        }
+    }
+
+    private final File file;
+    private final String endpoint;
+    private final String base;
+    private final long ttlMs;
+    private final long retryMs;
+    private final LongSupplier clock;
+
+    private Snapshot snapshot;
+    private boolean loaded;
+    private long lastFailureAt = Long.MIN_VALUE;
+    private String lastError;
+    private int fetches;
+
+    public ExchangeRateService(File file, String endpoint, String base, long ttlMs, long retryMs,
+                               LongSupplier clock) {
+        this.file = file;
+        this.endpoint = endpoint;
+        this.base = normalize(base);
+        this.ttlMs = ttlMs;
+        this.retryMs = retryMs;
+        this.clock = clock;
+    }
+
+    // The current table, refreshed first when it is older than the TTL.
+    // Null only when nothing was ever fetched and the network is unavailable.
+    public synchronized Snapshot current() {
+        load();
+        long now = clock.getAsLong();
+        boolean fresh = snapshot != null && now - snapshot.fetchedAt < ttlMs;
+        boolean backingOff = lastFailureAt != Long.MIN_VALUE && now - lastFailureAt < retryMs;
+        if (!fresh && !backingOff) {
+            try {
+                fetch();
+            } catch (IOException e) {
+                // Offline or a bad response: keep serving the last snapshot
+                lastFailureAt = now;
+                lastError = e.getMessage();
+            }
+        }
+        return snapshot;
+    }
+
+    // Fetches now regardless of the TTL; the old table survives a failure
+    public synchronized Snapshot refresh() throws IOException {
+        load();
+        try {
+            fetch();
+        } catch (IOException e) {
+            lastFailureAt = clock.getAsLong();
+            lastError = e.getMessage();
+            throw e;
+        }
+        return snapshot;
+    }
+
+    public synchronized boolean isStale() {
+        load();
+        return snapshot == null || clock.getAsLong() - snapshot.fetchedAt >= ttlMs;
+    }
+
+    public synchronized String lastError() {
+        return lastError;
+    }
+
+    // Network fetches made so far, for tests and stats
+    public synchronized int fetchCount() {
+        return fetches;
+    }
+
+    // Converts a whole column in one pass. from has one currency per amount,
+    // or a single currency for all of them. Unknown currencies give NaN.
+    public double[] convert(double[] amounts, String[] from, String to) {
+        if (from.length != amounts.length && from.length != 1) {
+            throw new IllegalArgumentException(
+                "from has " + from.length + " currencies for " + amounts.length + " amounts");
+        }
+        Snapshot table = current();
+        double[] result = new double[amounts.length];
+        // Columns are mostly one or a few currencies, so reuse the last rate
+        String previous = null;
+        double rate = Double.NaN;
+        for (int i = 0; i < amounts.length; i++) {
+            String currency = from.length == 1 ? from[0] : from[i];
+            if (!currency.equals(previous)) {
+                rate = rate(table, currency, to);
+                previous = currency;
+            }
+            result[i] = amounts[i] * rate;
+        }
+        return result;
+    }
+
+    public double rate(String from, String to) {
+        return rate(current(), from, to);
+    }
+
+    private static double rate(Snapshot table, String from, String to) {
+        if (normalize(from).equals(normalize(to))) {
+            return 1;
+        }
+        return table != null ? table.rate(from, to) : Double.NaN;
+    }
+
+    private void fetch() throws IOException {
+        fetches++;
+        HttpURLConnection connection = (HttpURLConnection) new URL(endpoint + base).openConnection();
+        String body;
+        try {
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setRequestProperty("Accept", "application/json");
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Rates endpoint returned " + status);
+            }
+            try (InputStream in = connection.getInputStream()) {
+                body = new String(readAll(in), StandardCharsets.UTF_8);
+            }
+        } finally {
+            connection.disconnect();
+        }
+        Map<String, Double> rates = parseRates(body);
+        rates.put(base, 1.0);
+        snapshot = new Snapshot(base, clock.getAsLong(), rates);
+        lastFailureAt = Long.MIN_VALUE;
+        lastError = null;
+        save();
+    }
+
+    // The endpoint's "rates" object is flat ("EUR": 0.92, ...), so a pattern
+    // is enough and keeps this free of a JSON dependency
+    static Map<String, Double> parseRates(String json) throws IOException {
+        int key = json.indexOf("\"rates\"");
+        int open = key < 0 ? -1 : json.indexOf('{', key);
+        int close = open < 0 ? -1 : json.indexOf('}', open);
+        if (close < 0) {
+            throw new IOException("No rates in response");
+        }
+        Map<String, Double> rates = new TreeMap<>();
+        Matcher matcher = RATE.matcher(json.substring(open + 1, close));
+        while (matcher.find()) {
+            double rate = Double.parseDouble(matcher.group(2));
+            if (rate > 0 && !Double.isInfinite(rate)) {
+                rates.put(normalize(matcher.group(1)), rate);
+            }
+        }
+        if (rates.isEmpty()) {
+            throw new IOException("No rates in response");
+        }
+        return rates;
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+        loaded = true;
+        if (!file.exists()) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown format");
+            }
+            String storedBase = in.readUTF();
+            long fetchedAt = in.readLong();
+            int count = in.readInt();
+            Map<String, Double> rates = new TreeMap<>();
+            for (int i = 0; i < count; i++) {
+                rates.put(in.readUTF(), in.readDouble());
+            }
+            // A table quoted against another base is still valid for triangulation
+            snapshot = new Snapshot(storedBase, fetchedAt, rates);
+        } catch (IOException e) {
+            file.delete();
+        }
+    }
+
+    private void save() {
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            File parent = file.getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs()) {
+                throw new IOException("Could not create " + parent);
+            }
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(snapshot.base);
+                out.writeLong(snapshot.fetchedAt);
+                out.writeInt(snapshot.rates.size());
+                for (Map.Entry<String, Double> rate : snapshot.rates.entrySet()) {
+                    out.writeUTF(rate.getKey());
+                    out.writeDouble(rate.getValue());
+                }
+            }
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Could not rename " + tmp);
+            }
+        } catch (IOException e) {
+            // The in-memory table is still current; only the offline copy is old
+            tmp.delete();
+        }
+    }
+
+    private static String normalize(String currency) {
+        return currency.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,38 @@
+package com.balanze.app;
+
+// One transaction as it appears in an export, already formatted for display
+public class ExportRow {
+    public final String date;
+    public final String description;
+    public final String category;
+    public final String account;
+    // Raw transaction type: "income" or "expense"
+    public final String type;
+    public final boolean transfer;
+    public final double amount;
+    public final String tags;
+
+    public ExportRow(String date, String description, String category, String account, String type,
+                     boolean transfer, double amount, String tags) {
+        this.date = date;
+        this.description = description;
+        this.category = category;
+        this.account = account;
+        this.type = type;
+        this.transfer = transfer;
+        this.amount = amount;
+        this.tags = tags;
+    }
+
+    public String displayType() {
+        return transfer ? "Transfer" : type;
+    }
+
+    // Matches JavaScript's String(number): 12 -> "12", 12.5 -> "12.5"
+    public String displayAmount() {
+        if (amount == Math.rint(amount) && !Double.isInfinite(amount) && Math.abs(amount) < 1e15) {
+            return Long.toString((long) amount);
+        }
+        return Double.toString(amount);
+    }
+}
@@ -0,0 +1,59 @@
+package com.balanze.app;
+
+import java.text.NumberFormat;
+import java.util.Collections;
+import java.util.Currency;
+import java.util.List;
+import java.util.Locale;
+
+// Running totals for an export, accumulated while rows stream past so the
+// summary never needs a second pass over the data
+public class ExportSummary {
+    public final List<String> activeFilters;
+    public final String currency;
+    public final String exportedAt;
+
+    public int recordCount;
+    public int incomeCount;
+    public int expenseCount;
+    public double totalIncome;
+    public double totalExpense;
+
+    public ExportSummary(List<String> activeFilters, String currency, String exportedAt) {
+        this.activeFilters = activeFilters != null ? activeFilters : Collections.emptyList();
+        this.currency = currency != null ? currency : "USD";
+        this.exportedAt = exportedAt;
+    }
+
+    public void add(ExportRow row) {
+        recordCount++;
+        if ("income".equals(row.type)) {
+            incomeCount++;
+            totalIncome += row.amount;
+        } else if ("expense".equals(row.type)) {
+            expenseCount++;
+            totalExpense += row.amount;
+        }
+    }
+
+    // The web export only prints the filter and financial summary when filters are active
+    public boolean hasFilters() {
+        return !activeFilters.isEmpty();
+    }
+
+    public double netAmount() {
+        return totalIncome - totalExpense;
+    }
+
+    public String formatAmount(double amount) {
+        try {
+            NumberFormat format = NumberFormat.getCurrencyInstance(Locale.US);
+            format.setCurrency(Currency.getInstance(currency));
+            format.setMinimumFractionDigits(2);
+            format.setMaximumFractionDigits(2);
+            return format.format(amount);
+        } catch (IllegalArgumentException e) {
+            return currency + " " + String.format(Locale.US, "%.2f", amount);
+        }
+    }
+}
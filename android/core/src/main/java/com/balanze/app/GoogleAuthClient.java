@@ -0,0 +1,120 @@
+package com.balanze.app;
+
+// The one Google sign-in flow used by both GoogleSignInPlugin and the
+// GoogleSignInNative JS interface. The Play Services client behind it is
+// created lazily, once, on first use (or by warmUp after the first frame).
+//
+// How much gets reset before the account picker is chosen per call:
+//   none           - silent sign-in with the last account, picker only if that fails
+//   select_account - sign out locally, then picker (default; always shows the chooser)
+//   consent        - sign out and revoke access, then picker (old behaviour, two round-trips)
+public class GoogleAuthClient {
+
+    public static final String PROMPT_NONE = "none";
+    public static final String PROMPT_SELECT_ACCOUNT = "select_account";
+    public static final String PROMPT_CONSENT = "consent";
+
+    public static final class Account {
+        public final String id;
+        public final String idToken;
+        public final String email;
+        public final String displayName;
+        public final String photoUrl;
+
+        public Account(String id, String idToken, String email, String displayName, String photoUrl) {
+            this.id = id;
+            this.idToken = idToken;
+            this.email = email;
+            this.displayName = displayName;
+            this.photoUrl = photoUrl;
+        }
+    }
+
+    // Play Services in the app, a fake in tests. Callbacks may arrive on any thread.
+    public interface Backend {
+        void silentSignIn(SilentCallback callback);
+
+        void signOut(Runnable done);
+
+        void revokeAccess(Runnable done);
+    }
+
+    public interface SilentCallback {
+        void onAccount(Account account);
+
+        void onFailure(int statusCode);
+    }
+
+    // Returns null when sign-in is not configured
+    public interface BackendFactory {
+        Backend create();
+    }
+
+    // Implemented by whoever started the sign-in (plugin call or JS interface)
+    public interface Flow {
+        // Signed in without UI
+        void onAccount(Account account);
+
+        // Launch the account picker; its result is handled by the caller
+        void showPicker();
+
+        void onError(String message);
+    }
+
+    private final BackendFactory factory;
+    private Backend backend;
+    private boolean created;
+
+    public GoogleAuthClient(BackendFactory factory) {
+        this.factory = factory;
+    }
+
+    // Builds the backend if needed; false when sign-in is not configured
+    public boolean warmUp() {
+        return backend() != null;
+    }
+
+    public void signIn(String prompt, Flow flow) {
+        Backend backend = backend();
+        if (backend == null) {
+            flow.onError("Google Sign-In not initialized. Check serverClientId configuration.");
+            return;
+        }
+        if (PROMPT_NONE.equals(prompt)) {
+            backend.silentSignIn(new SilentCallback() {
+                @Override
+                public void onAccount(Account account) {
+                    flow.onAccount(account);
+                }
+
+                @Override
+                public void onFailure(int statusCode) {
+                    // Typically SIGN_IN_REQUIRED: no previous account on this device
+                    flow.showPicker();
+                }
+            });
+        } else if (PROMPT_CONSENT.equals(prompt)) {
+            backend.signOut(() -> backend.revokeAccess(flow::showPicker));
+        } else {
+            // Without a signed-in account the picker always shows the chooser
+            backend.signOut(flow::showPicker);
+        }
+    }
+
+    public void signOut(Runnable done) {
+        Backend backend = backend();
+        if (backend == null) {
+            done.run();
+            return;
+        }
+        backend.signOut(done);
+    }
+
+    private synchronized Backend backend() {
+        if (!created) {
+            backend = factory.create();
+            created = true;
+        }
+        return backend;
+    }
+}
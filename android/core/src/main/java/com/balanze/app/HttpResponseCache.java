@@ -0,0 +1,528 @@
+package com.balanze.app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+// Memory + disk LRU for allowlisted GET endpoints (category lists, exchange
+// rates) fetched natively on behalf of the WebView. Fresh entries are served
+// without touching the network; stale ones are revalidated with
+// If-None-Match / If-Modified-Since when the server sent a validator, and
+// served stale if the network is down. Mutating requests to a cached
+// endpoint drop everything stored for it.
+// Pure Java (HttpURLConnection) so it can be tested against a local server.
+public class HttpResponseCache {
+
+    public static final String SOURCE_HIT = "hit";
+    public static final String SOURCE_REVALIDATED = "revalidated";
+    public static final String SOURCE_STALE = "stale";
+    public static final String SOURCE_MISS = "miss";
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String ENTRY_SUFFIX = ".entry";
+    private static final int TIMEOUT_MS = 15_000;
+
+    // Request headers that change the response, so they are part of the key
+    private static final List<String> VARY_HEADERS = Arrays.asList(
+        "authorization", "apikey", "accept", "accept-profile", "range", "prefer");
+    // Not forwarded: the cache owns conditional requests, and compression is
+    // left to HttpURLConnection so the stored body is always decoded
+    private static final List<String> DROPPED_REQUEST_HEADERS = Arrays.asList(
+        "accept-encoding", "if-none-match", "if-modified-since", "cache-control", "pragma",
+        "connection", "host", "content-length");
+    private static final List<String> DROPPED_RESPONSE_HEADERS = Arrays.asList(
+        "content-encoding", "content-length", "transfer-encoding", "connection", "set-cookie");
+    private static final List<String> REVALIDATION_HEADERS = Arrays.asList(
+        "etag", "last-modified", "date", "cache-control", "expires");
+
+    public static final class Rule {
+        final String name;
+        final String urlPrefix;
+        final long ttlMs;
+
+        // name: [a-z_]+, used as the file prefix of its entries
+        public Rule(String name, String urlPrefix, long ttlMs) {
+            this.name = name;
+            this.urlPrefix = urlPrefix;
+            this.ttlMs = ttlMs;
+        }
+
+        boolean matches(String url) {
+            if (!url.startsWith(urlPrefix)) {
+                return false;
+            }
+            if (url.length() == urlPrefix.length() || urlPrefix.endsWith("/")) {
+                return true;
+            }
+            char next = url.charAt(urlPrefix.length());
+            return next == '?' || next == '/';
+        }
+    }
+
+    public static final class Response {
+        public final int status;
+        public final String reason;
+        public final Map<String, String> headers;
+        public final byte[] body;
+        public final String source;
+
+        Response(int status, String reason, Map<String, String> headers, byte[] body, String source) {
+            this.status = status;
+            this.reason = reason;
+            this.headers = headers;
+            this.body = body;
+            this.source = source;
+        }
+    }
+
+    public static final class Stats {
+        public long hits;
+        public long revalidations;
+        public long staleServed;
+        public long misses;
+        public long networkErrors;
+        public long evictions;
+        public long invalidations;
+        public int memoryEntries;
+        public long memoryBytes;
+        public int diskEntries;
+        public long diskBytes;
+    }
+
+    private static final class Entry {
+        final String url;
+        final long storedAt;
+        final String reason;
+        final Map<String, String> headers;
+        final byte[] body;
+
+        Entry(String url, long storedAt, String reason, Map<String, String> headers, byte[] body) {
+            this.url = url;
+            this.storedAt = storedAt;
+            this.reason = reason;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        long size() {
+            long size = body.length + url.length() + 64;
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                size += header.getKey().length() + header.getValue().length();
+            }
+            return size;
+        }
+
+        Response toResponse(String source) {
+            return new Response(200, reason, headers, body, source);
+        }
+    }
+
+    private final File directory;
+    private final List<Rule> rules;
+    private final long maxMemoryBytes;
+    private final long maxDiskBytes;
+    private final LongSupplier clock;
+
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> disk = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+    private long diskBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong revalidations = new AtomicLong();
+    private final AtomicLong staleServed = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong networkErrors = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong invalidations = new AtomicLong();
+
+    public HttpResponseCache(File directory, List<Rule> rules, long maxMemoryBytes, long maxDiskBytes,
+                             LongSupplier clock) {
+        this.directory = directory;
+        this.rules = new ArrayList<>(rules);
+        this.maxMemoryBytes = maxMemoryBytes;
+        this.maxDiskBytes = maxDiskBytes;
+        this.clock = clock;
+        loadDiskIndex();
+    }
+
+    public boolean isCacheable(String url) {
+        return ruleFor(url) != null;
+    }
+
+    // Returns null when the url is not allowlisted. Throws only when the
+    // network failed and nothing was cached.
+    public Response get(String url, Map<String, String> requestHeaders) throws IOException {
+        Rule rule = ruleFor(url);
+        if (rule == null) {
+            return null;
+        }
+        Map<String, String> headers = caseInsensitive(requestHeaders);
+        String key = rule.name + "-" + keyFor(url, headers);
+        long now = clock.getAsLong();
+
+        Entry cached = lookup(key);
+        if (cached != null && now - cached.storedAt < rule.ttlMs) {
+            hits.incrementAndGet();
+            return cached.toResponse(SOURCE_HIT);
+        }
+
+        Map<String, String> forwarded = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        for (Map.Entry<String, String> header : headers.entrySet()) {
+            if (!DROPPED_REQUEST_HEADERS.contains(header.getKey().toLowerCase())) {
+                forwarded.put(header.getKey(), header.getValue());
+            }
+        }
+        if (cached != null) {
+            String etag = cached.headers.get("ETag");
+            String lastModified = cached.headers.get("Last-Modified");
+            if (etag != null) {
+                forwarded.put("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                forwarded.put("If-Modified-Since", lastModified);
+            }
+        }
+
+        Response network;
+        try {
+            network = fetch(url, forwarded);
+        } catch (IOException e) {
+            networkErrors.incrementAndGet();
+            if (cached != null) {
+                staleServed.incrementAndGet();
+                return cached.toResponse(SOURCE_STALE);
+            }
+            throw e;
+        }
+
+        if (network.status == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+            Map<String, String> merged = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            merged.putAll(cached.headers);
+            for (String name : REVALIDATION_HEADERS) {
+                String value = network.headers.get(name);
+                if (value != null) {
+                    merged.put(name, value);
+                }
+            }
+            Entry refreshed = new Entry(url, now, cached.reason, merged, cached.body);
+            store(key, refreshed);
+            revalidations.incrementAndGet();
+            return refreshed.toResponse(SOURCE_REVALIDATED);
+        }
+
+        misses.incrementAndGet();
+        if (network.status == HttpURLConnection.HTTP_OK && isStorable(network.headers)
+                && network.body.length <= maxDiskBytes / 4) {
+            store(key, new Entry(url, now, network.reason, network.headers, network.body));
+        }
+        return new Response(network.status, network.reason, network.headers, network.body, SOURCE_MISS);
+    }
+
+    // Called for POST/PATCH/DELETE: drops every entry of the matching rule
+    public synchronized boolean invalidate(String url) {
+        Rule rule = ruleFor(url);
+        if (rule == null) {
+            return false;
+        }
+        String prefix = rule.name + "-";
+        for (Iterator<Map.Entry<String, Entry>> it = memory.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Entry> entry = it.next();
+            if (entry.getKey().startsWith(prefix)) {
+                memoryBytes -= entry.getValue().size();
+                it.remove();
+            }
+        }
+        for (Iterator<Map.Entry<String, Long>> it = disk.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<String, Long> entry = it.next();
+            if (entry.getKey().startsWith(prefix)) {
+                diskBytes -= entry.getValue();
+                fileFor(entry.getKey()).delete();
+                it.remove();
+            }
+        }
+        invalidations.incrementAndGet();
+        return true;
+    }
+
+    public synchronized void clear() {
+        memory.clear();
+        memoryBytes = 0;
+        for (String key : disk.keySet()) {
+            fileFor(key).delete();
+        }
+        disk.clear();
+        diskBytes = 0;
+    }
+
+    // Under memory pressure: shrinks the memory tier to maxBytes, least
+    // recently used first. Evicted entries are still served from disk.
+    public synchronized void trimMemory(long maxBytes) {
+        Iterator<Map.Entry<String, Entry>> it = memory.entrySet().iterator();
+        while (memoryBytes > maxBytes && it.hasNext()) {
+            memoryBytes -= it.next().getValue().size();
+            it.remove();
+        }
+    }
+
+    public long getMaxMemoryBytes() {
+        return maxMemoryBytes;
+    }
+
+    public synchronized Stats stats() {
+        Stats stats = new Stats();
+        stats.hits = hits.get();
+        stats.revalidations = revalidations.get();
+        stats.staleServed = staleServed.get();
+        stats.misses = misses.get();
+        stats.networkErrors = networkErrors.get();
+        stats.evictions = evictions.get();
+        stats.invalidations = invalidations.get();
+        stats.memoryEntries = memory.size();
+        stats.memoryBytes = memoryBytes;
+        stats.diskEntries = disk.size();
+        stats.diskBytes = diskBytes;
+        return stats;
+    }
+
+    private Rule ruleFor(String url) {
+        for (Rule rule : rules) {
+            if (rule.matches(url)) {
+                return rule;
+            }
+        }
+        return null;
+    }
+
+    private synchronized Entry lookup(String key) {
+        Entry entry = memory.get(key);
+        if (entry != null) {
+            disk.get(key);
+            return entry;
+        }
+        if (disk.get(key) == null) {
+            return null;
+        }
+        File file = fileFor(key);
+        try {
+            entry = readEntry(file);
+        } catch (IOException e) {
+            diskBytes -= disk.remove(key);
+            file.delete();
+            return null;
+        }
+        file.setLastModified(clock.getAsLong());
+        putInMemory(key, entry);
+        return entry;
+    }
+
+    private synchronized void store(String key, Entry entry) {
+        Entry previous = memory.remove(key);
+        if (previous != null) {
+            memoryBytes -= previous.size();
+        }
+        putInMemory(key, entry);
+
+        File file = fileFor(key);
+        File tmp = new File(directory, key + ".tmp");
+        try {
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("Could not create " + directory);
+            }
+            writeEntry(tmp, entry);
+            if (!tmp.renameTo(file)) {
+                throw new IOException("Could not rename " + tmp);
+            }
+        } catch (IOException e) {
+            // Memory copy is still usable; the disk tier just misses this one
+            tmp.delete();
+            return;
+        }
+        Long previousSize = disk.put(key, file.length());
+        diskBytes += file.length() - (previousSize != null ? previousSize : 0);
+        while (diskBytes > maxDiskBytes && !disk.isEmpty()) {
+            Map.Entry<String, Long> eldest = disk.entrySet().iterator().next();
+            diskBytes -= eldest.getValue();
+            fileFor(eldest.getKey()).delete();
+            Entry inMemory = memory.remove(eldest.getKey());
+            if (inMemory != null) {
+                memoryBytes -= inMemory.size();
+            }
+            disk.remove(eldest.getKey());
+            evictions.incrementAndGet();
+        }
+    }
+
+    // Memory is the hot tier in front of disk: evicting from it loses nothing
+    private void putInMemory(String key, Entry entry) {
+        long size = entry.size();
+        if (size > maxMemoryBytes / 4) {
+            return;
+        }
+        memory.put(key, entry);
+        memoryBytes += size;
+        Iterator<Map.Entry<String, Entry>> it = memory.entrySet().iterator();
+        while (memoryBytes > maxMemoryBytes && it.hasNext()) {
+            memoryBytes -= it.next().getValue().size();
+            it.remove();
+        }
+    }
+
+    private void loadDiskIndex() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        List<File> entries = new ArrayList<>();
+        for (File file : files) {
+            if (file.getName().endsWith(ENTRY_SUFFIX)) {
+                entries.add(file);
+            } else {
+                file.delete();
+            }
+        }
+        // Least recently used first, so iteration order matches eviction order
+        Collections.sort(entries, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File file : entries) {
+            String name = file.getName();
+            disk.put(name.substring(0, name.length() - ENTRY_SUFFIX.length()), file.length());
+            diskBytes += file.length();
+        }
+    }
+
+    private File fileFor(String key) {
+        return new File(directory, key + ENTRY_SUFFIX);
+    }
+
+    private static boolean isStorable(Map<String, String> headers) {
+        String cacheControl = headers.get("Cache-Control");
+        return cacheControl == null || !cacheControl.toLowerCase().contains("no-store");
+    }
+
+    private static Response fetch(String url, Map<String, String> headers) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setUseCaches(false);
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+            int status = connection.getResponseCode();
+            Map<String, String> responseHeaders = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+                if (header.getKey() != null && !DROPPED_RESPONSE_HEADERS.contains(header.getKey().toLowerCase())) {
+                    responseHeaders.put(header.getKey(), String.join(", ", header.getValue()));
+                }
+            }
+            byte[] body = new byte[0];
+            if (status != HttpURLConnection.HTTP_NOT_MODIFIED) {
+                InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+                if (in != null) {
+                    try (InputStream stream = in) {
+                        body = readAll(stream);
+                    }
+                }
+            }
+            String reason = connection.getResponseMessage();
+            return new Response(status, reason == null || reason.isEmpty() ? "OK" : reason,
+                responseHeaders, body, SOURCE_MISS);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String keyFor(String url, Map<String, String> headers) {
+        StringBuilder material = new StringBuilder(url);
+        for (String name : VARY_HEADERS) {
+            String value = headers.get(name);
+            material.append('\n').append(value != null ? value : "");
+        }
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                .digest(material.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Map<String, String> caseInsensitive(Map<String, String> headers) {
+        Map<String, String> copy = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        if (headers != null) {
+            copy.putAll(headers);
+        }
+        return copy;
+    }
+
+    private static void writeEntry(File file, Entry entry) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(entry.url);
+            out.writeLong(entry.storedAt);
+            out.writeUTF(entry.reason);
+            out.writeInt(entry.headers.size());
+            for (Map.Entry<String, String> header : entry.headers.entrySet()) {
+                out.writeUTF(header.getKey());
+                out.writeUTF(header.getValue());
+            }
+            out.writeInt(entry.body.length);
+            out.write(entry.body);
+        }
+    }
+
+    private static Entry readEntry(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Unknown cache entry version in " + file);
+            }
+            String url = in.readUTF();
+            long storedAt = in.readLong();
+            String reason = in.readUTF();
+            int headerCount = in.readInt();
+            Map<String, String> headers = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+            for (int i = 0; i < headerCount; i++) {
+                headers.put(in.readUTF(), in.readUTF());
+            }
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            return new Entry(url, storedAt, reason, headers, body);
+        }
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8 * 1024];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            out.write(chunk, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
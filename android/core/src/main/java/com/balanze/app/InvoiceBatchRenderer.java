@@ -0,0 +1,128 @@
+package com.balanze.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Renders many invoices at once, one PDF each, on a small fixed pool.
+// Invoices are handed to the pool only while fewer than two per thread are
+// waiting or rendering, so a batch of thousands never queues thousands of
+// tasks or holds more than a few documents' pages at a time. A failed
+// invoice is reported and discarded without stopping the others.
+public class InvoiceBatchRenderer implements Closeable {
+
+    // Writes one complete PDF to out and returns its page count; out is
+    // closed by the batch. Called from every pool thread at once.
+    public interface Renderer {
+        int render(InvoiceData invoice, OutputStream out) throws IOException;
+    }
+
+    // Where each invoice's PDF goes (one file per invoice in the app)
+    public interface Sink {
+        OutputStream open(int index, InvoiceData invoice) throws IOException;
+
+        // Called after a failure, with the stream already closed
+        void discard(int index, InvoiceData invoice);
+    }
+
+    // Called on a render thread as each invoice finishes, in completion order
+    public interface Listener {
+        void onDocument(Result result, int completed, int total);
+    }
+
+    public static class Result {
+        public final int index;
+        public final InvoiceData invoice;
+        public final int pages;
+        // null on success
+        public final String error;
+
+        Result(int index, InvoiceData invoice, int pages, String error) {
+            this.index = index;
+            this.invoice = invoice;
+            this.pages = pages;
+            this.error = error;
+        }
+
+        public boolean ok() {
+            return error == null;
+        }
+    }
+
+    private final ExecutorService executor;
+    private final int threads;
+
+    public InvoiceBatchRenderer(int threads) {
+        this.threads = threads;
+        this.executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "InvoiceRenderer");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Rendering is CPU-bound; more than four threads mostly adds memory and heat
+    public static int defaultThreads() {
+        return Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors()));
+    }
+
+    // Blocks until every invoice is written or has failed; results are in input order
+    public List<Result> render(Renderer renderer, List<InvoiceData> invoices, Sink sink, Listener listener)
+            throws InterruptedException {
+        int total = invoices.size();
+        int maxInFlight = threads * 2;
+        Semaphore inFlight = new Semaphore(maxInFlight);
+        AtomicInteger completed = new AtomicInteger();
+        Result[] results = new Result[total];
+
+        for (int i = 0; i < total; i++) {
+            int index = i;
+            InvoiceData invoice = invoices.get(i);
+            inFlight.acquire();
+            try {
+                executor.execute(() -> {
+                    try {
+                        Result result = renderOne(renderer, index, invoice, sink);
+                        results[index] = result;
+                        if (listener != null) {
+                            listener.onDocument(result, completed.incrementAndGet(), total);
+                        }
+                    } finally {
+                        inFlight.release();
+                    }
+                });
+            } catch (RuntimeException e) {
+                inFlight.release();
+                throw e;
+            }
+        }
+        // Every permit back means every task has finished
+        inFlight.acquire(maxInFlight);
+        inFlight.release(maxInFlight);
+        return Arrays.asList(results);
+    }
+
+    private static Result renderOne(Renderer renderer, int index, InvoiceData invoice, Sink sink) {
+        try {
+            int pages;
+            try (OutputStream out = sink.open(index, invoice)) {
+                pages = renderer.render(invoice, out);
+            }
+            return new Result(index, invoice, pages, null);
+        } catch (Exception | OutOfMemoryError e) {
+            sink.discard(index, invoice);
+            return new Result(index, invoice, 0, e.getMessage() != null ? e.getMessage() : e.toString());
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
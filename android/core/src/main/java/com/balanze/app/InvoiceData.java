@@ -0,0 +1,154 @@
+package com.balanze.app;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// One invoice as the web app holds it (Invoice in src/types/client.ts, with
+// client and items joined in), reduced to what the PDF prints. Parsed once
+// on the calling thread; render threads only read it.
+public class InvoiceData {
+
+    public static class Item {
+        public final String description;
+        public final double quantity;
+        public final double unitPrice;
+        public final double taxRate;
+        public final double discountRate;
+        public final double total;
+
+        public Item(String description, double quantity, double unitPrice, double taxRate,
+                    double discountRate, double total) {
+            this.description = description != null ? description : "";
+            this.quantity = quantity;
+            this.unitPrice = unitPrice;
+            this.taxRate = taxRate;
+            this.discountRate = discountRate;
+            this.total = total;
+        }
+    }
+
+    public static class Client {
+        public final String name;
+        public final String companyName;
+        // address, city, state, postal code and country joined by ", "
+        public final String address;
+        public final String email;
+        public final String phone;
+
+        public Client(String name, String companyName, String address, String email, String phone) {
+            this.name = name != null ? name : "";
+            this.companyName = companyName;
+            this.address = address;
+            this.email = email;
+            this.phone = phone;
+        }
+    }
+
+    public final String id;
+    public final String invoiceNumber;
+    // yyyy-MM-dd
+    public final String invoiceDate;
+    public final String dueDate;
+    public final String status;
+    public final String paymentStatus;
+    public final String currency;
+    // What the page shows for the currency (getCurrencySymbol); may be null
+    public final String currencySymbol;
+    public final double subtotal;
+    public final double taxAmount;
+    public final double discountAmount;
+    public final double totalAmount;
+    public final double paidAmount;
+    public final String notes;
+    // null when the client row was not loaded
+    public final Client client;
+    public final List<Item> items;
+
+    private InvoiceData(JSONObject json) throws JSONException {
+        id = optString(json, "id");
+        invoiceNumber = optString(json, "invoice_number");
+        // The same checks, and messages, as generateInvoicePDF
+        if (invoiceNumber == null || invoiceNumber.isEmpty()) {
+            throw new IllegalArgumentException("Invoice number is missing");
+        }
+        JSONArray itemRows = json.optJSONArray("items");
+        if (itemRows == null || itemRows.length() == 0) {
+            throw new IllegalArgumentException("Invoice must have at least one item");
+        }
+        invoiceDate = optString(json, "invoice_date");
+        dueDate = optString(json, "due_date");
+        status = orEmpty(optString(json, "status"));
+        paymentStatus = orEmpty(optString(json, "payment_status"));
+        currency = json.optString("currency", "USD");
+        currencySymbol = optString(json, "currency_symbol");
+        subtotal = json.optDouble("subtotal", 0d);
+        taxAmount = json.optDouble("tax_amount", 0d);
+        discountAmount = json.optDouble("discount_amount", 0d);
+        totalAmount = json.optDouble("total_amount", 0d);
+        paidAmount = json.optDouble("paid_amount", 0d);
+        notes = optString(json, "notes");
+
+        JSONObject c = json.optJSONObject("client");
+        if (c != null) {
+            StringBuilder address = new StringBuilder();
+            for (String key : new String[] { "address", "city", "state", "postal_code", "country" }) {
+                String part = optString(c, key);
+                if (part != null && !part.isEmpty()) {
+                    if (address.length() > 0) {
+                        address.append(", ");
+                    }
+                    address.append(part);
+                }
+            }
+            client = new Client(optString(c, "name"), optString(c, "company_name"),
+                address.length() > 0 ? address.toString() : null, optString(c, "email"), optString(c, "phone"));
+        } else {
+            client = null;
+        }
+
+        List<Item> parsed = new ArrayList<>(itemRows.length());
+        for (int i = 0; i < itemRows.length(); i++) {
+            JSONObject item = itemRows.getJSONObject(i);
+            parsed.add(new Item(
+                optString(item, "description"),
+                item.optDouble("quantity", 0d),
+                item.optDouble("unit_price", 0d),
+                item.optDouble("tax_rate", 0d),
+                item.optDouble("discount_rate", 0d),
+                item.optDouble("total", 0d)
+            ));
+        }
+        items = Collections.unmodifiableList(parsed);
+    }
+
+    public static InvoiceData fromJson(JSONObject json) throws JSONException {
+        return new InvoiceData(json);
+    }
+
+    public boolean isPaid() {
+        return "paid".equals(paymentStatus);
+    }
+
+    public boolean isPartiallyPaid() {
+        return "partial".equals(paymentStatus);
+    }
+
+    // Due before today (yyyy-MM-dd) and not paid; shown in red like the web PDF
+    public boolean isOverdue(String today) {
+        return dueDate != null && today != null && !isPaid()
+            && dueDate.substring(0, Math.min(10, dueDate.length())).compareTo(today) < 0;
+    }
+
+    // JSON null and missing keys both read as null
+    private static String optString(JSONObject json, String key) {
+        return json.isNull(key) ? null : json.optString(key, null);
+    }
+
+    private static String orEmpty(String value) {
+        return value != null ? value : "";
+    }
+}
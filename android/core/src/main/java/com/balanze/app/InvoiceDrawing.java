@@ -0,0 +1,71 @@
+package com.balanze.app;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// What one invoice page (or a reusable part of one) draws, recorded in
+// jsPDF's coordinates: millimetres from the top-left corner, font sizes in
+// points, colours as ARGB. Recording keeps the layout free of any graphics
+// API; the app replays drawings onto a PdfDocument page, tests onto a
+// recorder. Text is aligned by the target, which knows the font.
+public final class InvoiceDrawing {
+
+    public static final int ALIGN_LEFT = 0;
+    public static final int ALIGN_RIGHT = 1;
+    public static final int ALIGN_CENTER = 2;
+
+    public interface Target {
+        // x is the left edge, right edge or centre depending on align
+        void text(float x, float baseline, int align, boolean bold, float size, int color, String value);
+
+        void rect(float x, float top, float width, float height, int color);
+
+        // A horizontal rule; strokeWidth in points
+        void line(float x1, float y, float x2, float strokeWidth, int color);
+
+        // The template's logo scaled into the box
+        void logo(float x, float top, float width, float height);
+    }
+
+    private interface Op {
+        void draw(Target target, float dy);
+    }
+
+    private final List<Op> ops = new ArrayList<>();
+
+    void text(float x, float baseline, boolean bold, float size, int color, String value) {
+        text(x, baseline, ALIGN_LEFT, bold, size, color, value);
+    }
+
+    void text(float x, float baseline, int align, boolean bold, float size, int color, String value) {
+        ops.add((target, dy) -> target.text(x, baseline + dy, align, bold, size, color, value));
+    }
+
+    void rect(float x, float top, float width, float height, int color) {
+        ops.add((target, dy) -> target.rect(x, top + dy, width, height, color));
+    }
+
+    void line(float x1, float y, float x2, float strokeWidth, int color) {
+        ops.add((target, dy) -> target.line(x1, y + dy, x2, strokeWidth, color));
+    }
+
+    void logo(float x, float top, float width, float height) {
+        ops.add((target, dy) -> target.logo(x, top + dy, width, height));
+    }
+
+    // Draws another drawing, moved down by dy, as part of this one. Drawings
+    // are only ever appended to, so a shared template part is safe to reuse.
+    void append(InvoiceDrawing other, float dy) {
+        ops.add((target, offset) -> other.replay(target, offset + dy));
+    }
+
+    public void replay(Target target) {
+        replay(target, 0f);
+    }
+
+    private void replay(Target target, float dy) {
+        for (Op op : ops) {
+            op.draw(target, dy);
+        }
+    }
+}
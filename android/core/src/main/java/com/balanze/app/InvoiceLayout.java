@@ -0,0 +1,377 @@
+package com.balanze.app;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+// Lays invoices out the way generateInvoicePDF (src/utils/invoiceUtils.ts)
+// does: A4, jsPDF's millimetre coordinates, the striped items table. The
+// result is one InvoiceDrawing per page, footers included ("Page i of N"
+// is only known once the last page is laid out), which the app draws onto
+// a PdfDocument with the system fonts.
+//
+// One layout serves a whole batch from any number of threads: it only holds
+// the compiled template, the batch's dates and the measurer, and all
+// per-document state lives in a Document.
+public class InvoiceLayout {
+
+    // Width of text in points in the font the drawing is replayed with, so
+    // descriptions and notes wrap where they will actually be drawn. Called
+    // from every render thread at once.
+    public interface Measurer {
+        float width(String text, boolean bold, float size);
+    }
+
+    // Layout in millimetres from the top-left corner, as in the web code
+    public static final float PAGE_WIDTH = 210f;
+    public static final float PAGE_HEIGHT = 297f;
+    static final float MARGIN = 20f;
+    static final float CONTENT_WIDTH = PAGE_WIDTH - 2 * MARGIN;
+    static final float DETAILS_X = PAGE_WIDTH - MARGIN - 80f;
+    static final float DETAILS_TOP = MARGIN + 10f;
+    static final float VALUE_OFFSET = 50f;
+    static final float FOOTER_Y = PAGE_HEIGHT - 10f;
+    // Table rows and totals break to a new page below this line, clear of the footer
+    static final float CONTENT_BOTTOM = PAGE_HEIGHT - MARGIN;
+    // Subtotal to payment status with every optional line present
+    static final float TOTALS_HEIGHT = 55f;
+
+    static final String[] HEADERS = { "Description", "Qty", "Unit Price", "Tax", "Discount", "Total" };
+    // Description takes what the fixed columns leave, as cellWidth: 'auto' does
+    static final float[] COLUMN_WIDTHS = { CONTENT_WIDTH - 130f, 20f, 30f, 25f, 25f, 30f };
+    // Millimetres per point
+    public static final float POINT = 25.4f / 72f;
+    static final float CELL_PADDING = 1.76f;
+    static final float HEAD_HEIGHT = 10f * 1.15f * POINT + 2 * CELL_PADDING;
+    static final float BODY_LINE = 9f * 1.15f * POINT;
+
+    static final int BLACK = 0xff000000;
+    static final int WHITE = 0xffffffff;
+    static final int GRAY_100 = 0xff646464;
+    static final int GRAY_150 = 0xff969696;
+    static final int GRAY_200 = 0xffc8c8c8;
+    static final int RED = 0xffdc2626;
+    static final int GREEN = 0xff22c55e;
+    static final int YELLOW = 0xffeab308;
+    static final int TABLE_BLUE = 0xff3b82f6;
+    static final int STRIPE = 0xfff9fafb;
+
+    private static final String[] MONTHS = {
+        "January", "February", "March", "April", "May", "June",
+        "July", "August", "September", "October", "November", "December"
+    };
+
+    private final InvoiceTemplate template;
+    private final String today;
+    private final String generatedOn;
+    private final Measurer measurer;
+
+    // today: yyyy-MM-dd, for the overdue colour; generatedOn: the footer's date as the page formats it
+    public InvoiceLayout(InvoiceTemplate template, String today, String generatedOn, Measurer measurer) {
+        this.template = template;
+        this.today = today;
+        this.generatedOn = "Generated on " + generatedOn;
+        this.measurer = measurer;
+    }
+
+    public InvoiceTemplate template() {
+        return template;
+    }
+
+    // The invoice's pages, in order
+    public List<InvoiceDrawing> layout(InvoiceData invoice) {
+        return new Document(invoice).layout();
+    }
+
+    private final class Document {
+        private final InvoiceData invoice;
+        private final String symbol;
+        private final List<InvoiceDrawing> pages = new ArrayList<>();
+        private InvoiceDrawing page;
+        private float y;
+
+        Document(InvoiceData invoice) {
+            this.invoice = invoice;
+            this.symbol = currencySymbol(invoice);
+        }
+
+        List<InvoiceDrawing> layout() {
+            page = new InvoiceDrawing();
+            page.append(template.header, 0f);
+            page.append(template.detailLabels, 0f);
+            details();
+            y = Math.max(template.headerBottom, DETAILS_TOP + 24f) + 15f;
+            billTo();
+            y += 10f;
+            items();
+            y += 10f;
+            totals();
+            notes();
+            pages.add(page);
+
+            int pageCount = pages.size();
+            for (int i = 0; i < pageCount; i++) {
+                InvoiceDrawing footer = pages.get(i);
+                footer.text(PAGE_WIDTH / 2, FOOTER_Y, InvoiceDrawing.ALIGN_CENTER, false, 8f, GRAY_150,
+                    "Page " + (i + 1) + " of " + pageCount);
+                footer.text(MARGIN, FOOTER_Y, false, 8f, GRAY_150, generatedOn);
+            }
+            return pages;
+        }
+
+        private void details() {
+            float x = DETAILS_X + VALUE_OFFSET;
+            float rowY = DETAILS_TOP;
+            page.text(x, rowY, true, 10f, BLACK, invoice.invoiceNumber);
+            rowY += 6f;
+            page.text(x, rowY, true, 10f, BLACK, formatDate(invoice.invoiceDate));
+            rowY += 6f;
+            page.text(x, rowY, true, 10f, invoice.isOverdue(today) ? RED : BLACK, formatDate(invoice.dueDate));
+            rowY += 6f;
+            page.text(x, rowY, true, 10f, BLACK, capitalize(invoice.status));
+            rowY += 6f;
+            page.text(x, rowY, true, 10f, invoice.isPaid() ? GREEN : invoice.isPartiallyPaid() ? YELLOW : RED,
+                capitalize(invoice.paymentStatus));
+        }
+
+        private void billTo() {
+            page.text(MARGIN, y, true, 11f, BLACK, "Bill To:");
+            y += 7f;
+            InvoiceData.Client client = invoice.client;
+            if (client == null) {
+                page.text(MARGIN, y, false, 10f, BLACK, "Client information not available");
+                y += 5f;
+                return;
+            }
+            page.text(MARGIN, y, false, 10f, BLACK, client.name);
+            y += 5f;
+            for (String line : new String[] {
+                client.companyName,
+                client.address,
+                client.email != null ? "Email: " + client.email : null,
+                client.phone != null ? "Phone: " + client.phone : null
+            }) {
+                if (line != null && !line.isEmpty()) {
+                    page.text(MARGIN, y, false, 10f, BLACK, line);
+                    y += 5f;
+                }
+            }
+        }
+
+        private void items() {
+            page.append(template.tableHeader, y);
+            y += HEAD_HEIGHT;
+            float descriptionWidth = (COLUMN_WIDTHS[0] - 2 * CELL_PADDING) / POINT;
+            String[] cells = new String[HEADERS.length];
+            for (int i = 0; i < invoice.items.size(); i++) {
+                InvoiceData.Item item = invoice.items.get(i);
+                List<String> lines = wrap(measurer, item.description, false, 9f, descriptionWidth);
+                float height = lines.size() * BODY_LINE + 2 * CELL_PADDING;
+                if (y + height > CONTENT_BOTTOM) {
+                    newPage();
+                    page.append(template.tableHeader, y);
+                    y += HEAD_HEIGHT;
+                }
+                // The striped theme shades the first row and every other one after it
+                if (i % 2 == 0) {
+                    page.rect(MARGIN, y, CONTENT_WIDTH, height, STRIPE);
+                }
+                cells[0] = lines.size() == 1 ? lines.get(0) : String.join("\n", lines);
+                cells[1] = number(item.quantity);
+                cells[2] = money(item.unitPrice);
+                cells[3] = number(item.taxRate) + "%";
+                cells[4] = number(item.discountRate) + "%";
+                cells[5] = money(item.total);
+                cells(page, y, false, 9f, BLACK, cells);
+                y += height;
+            }
+        }
+
+        private void totals() {
+            if (y + TOTALS_HEIGHT > CONTENT_BOTTOM) {
+                newPage();
+            }
+            y += 5f;
+            amountLine("Subtotal:", money(invoice.subtotal));
+            if (invoice.discountAmount > 0) {
+                amountLine("Discount:", "-" + money(invoice.discountAmount));
+            }
+            if (invoice.taxAmount > 0) {
+                amountLine("Tax:", money(invoice.taxAmount));
+            }
+            y += 2f;
+            page.line(DETAILS_X, y, DETAILS_X + 60f, 0.57f, GRAY_200);
+            y += 5f;
+            page.text(DETAILS_X, y, true, 12f, BLACK, "Total:");
+            page.text(DETAILS_X + VALUE_OFFSET, y, InvoiceDrawing.ALIGN_RIGHT, true, 12f, BLACK, money(invoice.totalAmount));
+            y += 8f;
+
+            String outstanding = "Outstanding: " + money(invoice.totalAmount - invoice.paidAmount);
+            if (invoice.isPartiallyPaid()) {
+                page.text(DETAILS_X, y, false, 10f, YELLOW, "Paid: " + money(invoice.paidAmount) + " / " + money(invoice.totalAmount));
+                y += 6f;
+                page.text(DETAILS_X, y, false, 10f, BLACK, outstanding);
+            } else if (invoice.isPaid()) {
+                page.text(DETAILS_X, y, true, 10f, GREEN, "PAID");
+            } else {
+                page.text(DETAILS_X, y, false, 10f, RED, outstanding);
+            }
+            y += 8f;
+        }
+
+        private void amountLine(String label, String amount) {
+            page.text(DETAILS_X, y, false, 10f, BLACK, label);
+            page.text(DETAILS_X + VALUE_OFFSET, y, InvoiceDrawing.ALIGN_RIGHT, true, 10f, BLACK, amount);
+            y += 7f;
+        }
+
+        private void notes() {
+            if (invoice.notes == null || invoice.notes.isEmpty()) {
+                return;
+            }
+            y += 10f;
+            if (y > PAGE_HEIGHT - 30f) {
+                newPage();
+            }
+            page.text(MARGIN, y, true, 10f, BLACK, "Notes:");
+            y += 6f;
+            for (String line : wrap(measurer, invoice.notes, false, 10f, CONTENT_WIDTH / POINT)) {
+                if (y > PAGE_HEIGHT - 30f) {
+                    newPage();
+                }
+                page.text(MARGIN, y, false, 10f, GRAY_100, line);
+                y += 5f;
+            }
+        }
+
+        private void newPage() {
+            pages.add(page);
+            page = new InvoiceDrawing();
+            y = MARGIN;
+        }
+
+        private String money(double amount) {
+            return symbol + groupedAmount(amount);
+        }
+    }
+
+    // One table row: the description (lines separated by '\n') left aligned,
+    // the numbers right aligned; the header and the body's Total column are bold
+    static void cells(InvoiceDrawing drawing, float top, boolean head, float size, int color, String[] values) {
+        float baseline = top + CELL_PADDING + size * POINT;
+        float lineHeight = size * 1.15f * POINT;
+        float x = MARGIN;
+        for (int i = 0; i < values.length; i++) {
+            boolean bold = head || i == values.length - 1;
+            if (i == 0) {
+                float lineY = baseline;
+                int start = 0;
+                while (start <= values[0].length()) {
+                    int end = values[0].indexOf('\n', start);
+                    if (end < 0) {
+                        end = values[0].length();
+                    }
+                    if (end > start) {
+                        drawing.text(x + CELL_PADDING, lineY, bold, size, color, values[0].substring(start, end));
+                    }
+                    lineY += lineHeight;
+                    start = end + 1;
+                }
+            } else {
+                drawing.text(x + COLUMN_WIDTHS[i] - CELL_PADDING, baseline, InvoiceDrawing.ALIGN_RIGHT, bold, size, color,
+                    values[i]);
+            }
+            x += COLUMN_WIDTHS[i];
+        }
+    }
+
+    // Greedy word wrap like jsPDF's splitTextToSize: breaks at spaces, splits
+    // words that are wider than a whole line, and keeps explicit line breaks.
+    // maxWidth in points.
+    static List<String> wrap(Measurer measurer, String text, boolean bold, float size, float maxWidth) {
+        List<String> lines = new ArrayList<>();
+        for (String paragraph : text.split("\r?\n", -1)) {
+            StringBuilder line = new StringBuilder();
+            for (String word : paragraph.split(" ")) {
+                String candidate = line.length() == 0 ? word : line + " " + word;
+                if (measurer.width(candidate, bold, size) <= maxWidth) {
+                    line.setLength(0);
+                    line.append(candidate);
+                    continue;
+                }
+                if (line.length() > 0) {
+                    lines.add(line.toString());
+                    line.setLength(0);
+                }
+                while (word.length() > 1 && measurer.width(word, bold, size) > maxWidth) {
+                    int end = word.length() - 1;
+                    while (end > 1 && measurer.width(word.substring(0, end), bold, size) > maxWidth) {
+                        end--;
+                    }
+                    // Never split a surrogate pair
+                    if (end > 1 && Character.isHighSurrogate(word.charAt(end - 1))) {
+                        end--;
+                    }
+                    lines.add(word.substring(0, end));
+                    word = word.substring(end);
+                }
+                line.append(word);
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    // The symbol the page shows (getCurrencySymbol), "৳" and "₹" included:
+    // the system fonts draw them, unlike jsPDF's Helvetica. The currency code
+    // ("BDT 1,250.00") only when the page sent no symbol.
+    static String currencySymbol(InvoiceData invoice) {
+        String symbol = invoice.currencySymbol;
+        return symbol == null || symbol.isEmpty() ? invoice.currency + " " : symbol;
+    }
+
+    // 1234.5 -> "1,234.50"; the sign is left to the caller, as in formatCurrency
+    static String groupedAmount(double amount) {
+        long cents = Math.round(Math.abs(amount) * 100d);
+        String whole = Long.toString(cents / 100);
+        StringBuilder result = new StringBuilder(whole.length() + whole.length() / 3 + 3);
+        int lead = whole.length() % 3 == 0 ? 3 : whole.length() % 3;
+        result.append(whole, 0, lead);
+        for (int i = lead; i < whole.length(); i += 3) {
+            result.append(',').append(whole, i, i + 3);
+        }
+        long fraction = cents % 100;
+        result.append('.').append(fraction < 10 ? "0" : "").append(fraction);
+        return result.toString();
+    }
+
+    // Like Number.toString(): 2 -> "2", 1.5 -> "1.5"
+    static String number(double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            return Long.toString((long) value);
+        }
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+
+    // "2026-01-05" -> "January 5, 2026"; anything else is printed as given
+    static String formatDate(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.length() < 10 || value.charAt(4) != '-' || value.charAt(7) != '-') {
+            return value;
+        }
+        try {
+            int year = Integer.parseInt(value.substring(0, 4));
+            int month = Integer.parseInt(value.substring(5, 7));
+            int day = Integer.parseInt(value.substring(8, 10));
+            return month >= 1 && month <= 12 ? MONTHS[month - 1] + " " + day + ", " + year : value;
+        } catch (NumberFormatException e) {
+            return value;
+        }
+    }
+
+    private static String capitalize(String value) {
+        return value.isEmpty() ? value : Character.toUpperCase(value.charAt(0)) + value.substring(1);
+    }
+}
@@ -0,0 +1,122 @@
+package com.balanze.app;
+
+// Everything of an invoice PDF that does not depend on the invoice, prepared
+// once and shared by every render thread of a batch (and by later batches
+// for the same company): the company header and the fixed labels as
+// recorded drawings, and the table header drawn at the top edge so it can be
+// placed on any page with an offset. The logo is only placed here; the app
+// keeps the decoded image and draws it wherever the drawing says.
+// Immutable once compiled.
+public final class InvoiceTemplate {
+
+    public static class Company {
+        public final String name;
+        // May contain line breaks; blank lines are skipped
+        public final String address;
+        public final String email;
+        public final String phone;
+        public final String website;
+
+        public Company(String name, String address, String email, String phone, String website) {
+            this.name = name;
+            this.address = address;
+            this.email = email;
+            this.phone = phone;
+            this.website = website;
+        }
+    }
+
+    // Pixel size of the logo image, for its aspect ratio
+    public static class Logo {
+        final int width;
+        final int height;
+
+        public Logo(int width, int height) {
+            if (width <= 0 || height <= 0) {
+                throw new IllegalArgumentException("Logo has no pixels");
+            }
+            this.width = width;
+            this.height = height;
+        }
+    }
+
+    // The box the logo is scaled into, top right of page 1 above the invoice details
+    private static final float LOGO_MAX_WIDTH = 50f;   // mm
+    private static final float LOGO_MAX_HEIGHT = 16f;
+    private static final float LOGO_TOP = 8f;
+
+    final Logo logo;
+    // Title, company block and logo; drawn on page 1
+    final InvoiceDrawing header;
+    // Where the invoice details and the "Bill To" block start (mm from the top)
+    final float headerBottom;
+    // Labels of the invoice details column
+    final InvoiceDrawing detailLabels;
+    // Items table header with its top edge at y = 0 (the page's top edge)
+    final InvoiceDrawing tableHeader;
+
+    private InvoiceTemplate(Company company, Logo logo) {
+        this.logo = logo;
+
+        InvoiceDrawing canvas = new InvoiceDrawing();
+        canvas.text(InvoiceLayout.MARGIN, 20f, true, 24f, InvoiceLayout.BLACK, "INVOICE");
+        float y = 30f;
+        if (company.name != null && !company.name.isEmpty()) {
+            canvas.text(InvoiceLayout.MARGIN, y, true, 12f, InvoiceLayout.BLACK, company.name);
+            y += 6f;
+        }
+        if (company.address != null && !company.address.isEmpty()) {
+            for (String line : company.address.split("\n")) {
+                if (!line.trim().isEmpty()) {
+                    canvas.text(InvoiceLayout.MARGIN, y, false, 10f, InvoiceLayout.BLACK, line.trim());
+                    y += 5f;
+                }
+            }
+        }
+        if (notEmpty(company.email) || notEmpty(company.phone) || notEmpty(company.website)) {
+            y += 2f;
+            if (notEmpty(company.email)) {
+                canvas.text(InvoiceLayout.MARGIN, y, false, 9f, InvoiceLayout.GRAY_100, "Email: " + company.email);
+                y += 4f;
+            }
+            if (notEmpty(company.phone)) {
+                canvas.text(InvoiceLayout.MARGIN, y, false, 9f, InvoiceLayout.GRAY_100, "Phone: " + company.phone);
+                y += 4f;
+            }
+            if (notEmpty(company.website)) {
+                canvas.text(InvoiceLayout.MARGIN, y, false, 9f, InvoiceLayout.GRAY_100, "Website: " + company.website);
+                y += 4f;
+            }
+        }
+        if (logo != null) {
+            float scale = Math.min(LOGO_MAX_WIDTH / logo.width, LOGO_MAX_HEIGHT / logo.height);
+            float width = logo.width * scale;
+            float height = logo.height * scale;
+            canvas.logo(InvoiceLayout.PAGE_WIDTH - InvoiceLayout.MARGIN - width, LOGO_TOP, width, height);
+        }
+        header = canvas;
+        headerBottom = y + 10f;
+
+        canvas = new InvoiceDrawing();
+        float labelY = InvoiceLayout.DETAILS_TOP;
+        for (String label : new String[] { "Invoice Number:", "Invoice Date:", "Due Date:", "Status:", "Payment Status:" }) {
+            canvas.text(InvoiceLayout.DETAILS_X, labelY, false, 10f, InvoiceLayout.BLACK, label);
+            labelY += 6f;
+        }
+        detailLabels = canvas;
+
+        canvas = new InvoiceDrawing();
+        canvas.rect(InvoiceLayout.MARGIN, 0f, InvoiceLayout.CONTENT_WIDTH, InvoiceLayout.HEAD_HEIGHT, InvoiceLayout.TABLE_BLUE);
+        InvoiceLayout.cells(canvas, 0f, true, 10f, InvoiceLayout.WHITE, InvoiceLayout.HEADERS);
+        tableHeader = canvas;
+    }
+
+    // logo may be null
+    public static InvoiceTemplate compile(Company company, Logo logo) {
+        return new InvoiceTemplate(company, logo);
+    }
+
+    private static boolean notEmpty(String value) {
+        return value != null && !value.isEmpty();
+    }
+}
@@ -0,0 +1,592 @@
+package com.balanze.app;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+// Typed key-value store for the small values the page used to keep in
+// localStorage (remembered email, first launch, the auth session), as an
+// append-only log in a memory-mapped file. Every apply() appends one record
+// [length][crc32][ops] and only then moves the committed end in the header,
+// so a batch is all there or not at all: a crash before the header write
+// loses the batch, and a record torn by power loss fails its checksum and is
+// cut off when the log is opened. All values are also kept decoded in
+// memory; reads never touch the file.
+// Overwritten and removed values stay in the log until compaction rewrites
+// the live ones into a fresh file and renames it over the log, which happens
+// when the log would otherwise have to grow and more than half of it is
+// garbage (or on compactIfWasteful()). A crash mid-compaction leaves the old
+// log in place.
+// Secret values are encrypted with the ValueCipher before they reach the
+// file; one that can no longer be decrypted (e.g. its key is gone after a
+// restore to another device) reads as missing.
+// Thread-safe.
+public class KeyValueLog implements Closeable {
+
+    public static final int INITIAL_CAPACITY = 64 * 1024;
+    // One batch, encoded
+    public static final int MAX_BATCH_BYTES = 1024 * 1024;
+
+    private static final int MAGIC = 0x425a4b31; // "BZK1"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int OFFSET_VERSION = 4;
+    private static final int OFFSET_END = 8;
+    private static final int RECORD_HEADER = 8;
+    // Below this much garbage, compacting costs more than it saves
+    private static final int MIN_GARBAGE_BYTES = 16 * 1024;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+    private static final byte OP_CLEAR = 3;
+
+    static final byte TYPE_STRING = 1;
+    static final byte TYPE_LONG = 2;
+    static final byte TYPE_DOUBLE = 3;
+    static final byte TYPE_BOOLEAN = 4;
+    // A string, encrypted at rest
+    static final byte TYPE_SECRET = 5;
+
+    // Seals secret values; see KeystoreValueCipher on Android
+    public interface ValueCipher {
+        byte[] encrypt(byte[] plain) throws GeneralSecurityException;
+
+        byte[] decrypt(byte[] sealed) throws GeneralSecurityException;
+    }
+
+    // Changes apply() writes as one record, in the order they were added
+    public static final class Batch {
+        final List<Op> ops = new ArrayList<>();
+
+        public Batch putString(String key, String value) {
+            return put(key, TYPE_STRING, value);
+        }
+
+        public Batch putLong(String key, long value) {
+            return put(key, TYPE_LONG, value);
+        }
+
+        public Batch putDouble(String key, double value) {
+            return put(key, TYPE_DOUBLE, value);
+        }
+
+        public Batch putBoolean(String key, boolean value) {
+            return put(key, TYPE_BOOLEAN, value);
+        }
+
+        // Read back as a String
+        public Batch putSecret(String key, String value) {
+            return put(key, TYPE_SECRET, value);
+        }
+
+        public Batch remove(String key) {
+            ops.add(new Op(OP_REMOVE, checkKey(key), (byte) 0, null));
+            return this;
+        }
+
+        // Removes every key, including ones put earlier in this batch
+        public Batch clear() {
+            ops.add(new Op(OP_CLEAR, null, (byte) 0, null));
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return ops.isEmpty();
+        }
+
+        private Batch put(String key, byte type, Object value) {
+            if (value == null) {
+                throw new IllegalArgumentException("Null value for " + key);
+            }
+            ops.add(new Op(OP_PUT, checkKey(key), type, value));
+            return this;
+        }
+
+        private static String checkKey(String key) {
+            if (key == null || key.isEmpty()) {
+                throw new IllegalArgumentException("Empty key");
+            }
+            return key;
+        }
+    }
+
+    static final class Op {
+        final byte code;
+        final String key;
+        final byte type;
+        final Object value;
+
+        Op(byte code, String key, byte type, Object value) {
+            this.code = code;
+            this.key = key;
+            this.type = type;
+            this.value = value;
+        }
+    }
+
+    // A live value, and the put that wrote it as compaction copies it
+    private static final class Entry {
+        final byte type;
+        final Object value;
+        final byte[] encoded;
+
+        Entry(byte type, Object value, byte[] encoded) {
+            this.type = type;
+            this.value = value;
+            this.encoded = encoded;
+        }
+    }
+
+    private final File file;
+    private final ValueCipher cipher;
+    private final Map<String, Entry> entries = new HashMap<>();
+    private RandomAccessFile raf;
+    private MappedByteBuffer map;
+    private int capacity;
+    private long end;
+    // What the live entries take as records: the size of the log after compaction
+    private long liveBytes;
+
+    // cipher may be null when no secrets are stored
+    public KeyValueLog(File file, ValueCipher cipher) throws IOException {
+        this.file = file;
+        this.cipher = cipher;
+        open();
+    }
+
+    public synchronized void apply(Batch batch) throws IOException {
+        ensureOpen();
+        if (batch.ops.isEmpty()) {
+            return;
+        }
+        List<byte[]> encoded = new ArrayList<>(batch.ops.size());
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        for (Op op : batch.ops) {
+            byte[] bytes = encode(op);
+            encoded.add(bytes);
+            payload.write(bytes, 0, bytes.length);
+        }
+        byte[] data = payload.toByteArray();
+        if (data.length > MAX_BATCH_BYTES) {
+            throw new IllegalArgumentException("Batch of " + data.length + " bytes, the limit is " + MAX_BATCH_BYTES);
+        }
+        ensureRoom(RECORD_HEADER + data.length);
+        writeRecord(map, (int) end, data);
+        end += RECORD_HEADER + data.length;
+        // Commits the batch
+        map.putLong(OFFSET_END, end);
+        for (int i = 0; i < batch.ops.size(); i++) {
+            Op op = batch.ops.get(i);
+            index(op.code, op.key, op.type, op.value, encoded.get(i));
+        }
+    }
+
+    // String, Long, Double or Boolean (secrets are Strings); null when missing
+    public synchronized Object get(String key) {
+        Entry entry = entries.get(key);
+        return entry != null ? entry.value : null;
+    }
+
+    public String getString(String key, String fallback) {
+        Object value = get(key);
+        return value instanceof String ? (String) value : fallback;
+    }
+
+    public long getLong(String key, long fallback) {
+        Object value = get(key);
+        return value instanceof Long ? (Long) value : fallback;
+    }
+
+    public double getDouble(String key, double fallback) {
+        Object value = get(key);
+        return value instanceof Number ? ((Number) value).doubleValue() : fallback;
+    }
+
+    public boolean getBoolean(String key, boolean fallback) {
+        Object value = get(key);
+        return value instanceof Boolean ? (Boolean) value : fallback;
+    }
+
+    public synchronized boolean isSecret(String key) {
+        Entry entry = entries.get(key);
+        return entry != null && entry.type == TYPE_SECRET;
+    }
+
+    // Every key and its value, secrets decrypted
+    public synchronized Map<String, Object> snapshot() {
+        Map<String, Object> values = new HashMap<>(entries.size() * 2);
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            values.put(entry.getKey(), entry.getValue().value);
+        }
+        return values;
+    }
+
+    // Every key that is not a secret and its value
+    public synchronized Map<String, Object> publicSnapshot() {
+        Map<String, Object> values = new HashMap<>(entries.size() * 2);
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().type != TYPE_SECRET) {
+                values.put(entry.getKey(), entry.getValue().value);
+            }
+        }
+        return values;
+    }
+
+    // Only the secrets, decrypted
+    public synchronized Map<String, String> secrets() {
+        Map<String, String> values = new HashMap<>();
+        for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+            if (entry.getValue().type == TYPE_SECRET) {
+                values.put(entry.getKey(), (String) entry.getValue().value);
+            }
+        }
+        return values;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // Bytes of log in use, including overwritten values
+    public synchronized long logBytes() {
+        return end - HEADER_BYTES;
+    }
+
+    public synchronized long liveBytes() {
+        return liveBytes;
+    }
+
+    // True when it compacted
+    public synchronized boolean compactIfWasteful() throws IOException {
+        ensureOpen();
+        if (!wasteful()) {
+            return false;
+        }
+        compact();
+        return true;
+    }
+
+    public synchronized void compact() throws IOException {
+        ensureOpen();
+        File next = compactionFile();
+        int nextCapacity = capacityFor(HEADER_BYTES + liveBytes * 2);
+        long nextEnd = HEADER_BYTES;
+        try (RandomAccessFile out = new RandomAccessFile(next, "rw")) {
+            out.setLength(0);
+            out.setLength(nextCapacity);
+            MappedByteBuffer target = out.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, nextCapacity);
+            for (Entry entry : entries.values()) {
+                writeRecord(target, (int) nextEnd, entry.encoded);
+                nextEnd += RECORD_HEADER + entry.encoded.length;
+            }
+            target.putInt(0, MAGIC);
+            target.putInt(OFFSET_VERSION, VERSION);
+            target.putLong(OFFSET_END, nextEnd);
+            target.force();
+        }
+        map.force();
+        raf.close();
+        raf = null;
+        map = null;
+        if (!next.renameTo(file)) {
+            next.delete();
+            raf = new RandomAccessFile(file, "rw");
+            map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+            throw new IOException("Could not replace " + file + " with its compacted copy");
+        }
+        raf = new RandomAccessFile(file, "rw");
+        capacity = nextCapacity;
+        map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        end = nextEnd;
+    }
+
+    // Forces the mapped pages to storage
+    public synchronized void sync() {
+        if (map != null) {
+            map.force();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (raf != null) {
+            map.force();
+            raf.close();
+            raf = null;
+            // Unmapped once garbage collected; there is no portable way to do it now
+            map = null;
+        }
+    }
+
+    private boolean wasteful() {
+        long garbage = end - HEADER_BYTES - liveBytes;
+        return garbage >= MIN_GARBAGE_BYTES && garbage > liveBytes;
+    }
+
+    // Compacts or grows the file so that need more bytes fit after end
+    private void ensureRoom(int need) throws IOException {
+        if (end + need <= capacity) {
+            return;
+        }
+        if (wasteful()) {
+            compact();
+            if (end + need <= capacity) {
+                return;
+            }
+        }
+        int grown = capacityFor(end + need);
+        map.force();
+        raf.setLength(grown);
+        capacity = grown;
+        map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private static int capacityFor(long bytes) {
+        long size = INITIAL_CAPACITY;
+        while (size < bytes) {
+            size *= 2;
+        }
+        if (size > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Key-value log too large: " + bytes + " bytes");
+        }
+        return (int) size;
+    }
+
+    private static void writeRecord(MappedByteBuffer target, int at, byte[] data) {
+        CRC32 crc = new CRC32();
+        crc.update(data);
+        target.putInt(at, data.length);
+        target.putInt(at + 4, (int) crc.getValue());
+        ByteBuffer view = target.duplicate();
+        view.position(at + RECORD_HEADER);
+        view.put(data);
+    }
+
+    private byte[] encode(Op op) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(op.code);
+        if (op.code == OP_CLEAR) {
+            return bytes.toByteArray();
+        }
+        writeBytes(out, op.key.getBytes(StandardCharsets.UTF_8));
+        if (op.code == OP_REMOVE) {
+            return bytes.toByteArray();
+        }
+        out.writeByte(op.type);
+        switch (op.type) {
+            case TYPE_STRING:
+                writeBytes(out, ((String) op.value).getBytes(StandardCharsets.UTF_8));
+                break;
+            case TYPE_LONG:
+                out.writeLong((Long) op.value);
+                break;
+            case TYPE_DOUBLE:
+                out.writeDouble((Double) op.value);
+                break;
+            case TYPE_BOOLEAN:
+                out.writeBoolean((Boolean) op.value);
+                break;
+            case TYPE_SECRET:
+                if (cipher == null) {
+                    throw new IllegalStateException("No cipher for secret " + op.key);
+                }
+                try {
+                    writeBytes(out, cipher.encrypt(((String) op.value).getBytes(StandardCharsets.UTF_8)));
+                } catch (GeneralSecurityException e) {
+                    throw new IOException("Could not encrypt " + op.key, e);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown type " + op.type);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    // Replays one record's ops; false (and nothing applied) when it does not parse
+    private boolean replay(byte[] data) {
+        List<Op> ops = new ArrayList<>();
+        List<byte[]> encoded = new ArrayList<>();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        int offset = 0;
+        try {
+            while (in.available() > 0) {
+                byte code = in.readByte();
+                String key = null;
+                byte type = 0;
+                Object value = null;
+                if (code != OP_CLEAR) {
+                    key = new String(readBytes(in), StandardCharsets.UTF_8);
+                }
+                if (code == OP_PUT) {
+                    type = in.readByte();
+                    value = readValue(in, type);
+                } else if (code != OP_REMOVE && code != OP_CLEAR) {
+                    return false;
+                }
+                int next = data.length - in.available();
+                byte[] op = new byte[next - offset];
+                System.arraycopy(data, offset, op, 0, op.length);
+                ops.add(new Op(code, key, type, value));
+                encoded.add(op);
+                offset = next;
+            }
+        } catch (IOException | RuntimeException e) {
+            return false;
+        }
+        for (int i = 0; i < ops.size(); i++) {
+            Op op = ops.get(i);
+            index(op.code, op.key, op.type, op.value, encoded.get(i));
+        }
+        return true;
+    }
+
+    private Object readValue(DataInputStream in, byte type) throws IOException {
+        switch (type) {
+            case TYPE_STRING:
+                return new String(readBytes(in), StandardCharsets.UTF_8);
+            case TYPE_LONG:
+                return in.readLong();
+            case TYPE_DOUBLE:
+                return in.readDouble();
+            case TYPE_BOOLEAN:
+                return in.readBoolean();
+            case TYPE_SECRET:
+                byte[] sealed = readBytes(in);
+                if (cipher == null) {
+                    return null;
+                }
+                try {
+                    return new String(cipher.decrypt(sealed), StandardCharsets.UTF_8);
+                } catch (GeneralSecurityException e) {
+                    return null;
+                }
+            default:
+                throw new IOException("Unknown type " + type);
+        }
+    }
+
+    private static byte[] readBytes(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > in.available()) {
+            throw new EOFException();
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return bytes;
+    }
+
+    // A put with a null value is a secret that could not be decrypted: the key reads as missing
+    private void index(byte code, String key, byte type, Object value, byte[] encoded) {
+        if (code == OP_CLEAR) {
+            entries.clear();
+            liveBytes = 0;
+            return;
+        }
+        Entry previous = code == OP_PUT && value != null
+            ? entries.put(key, new Entry(type, value, encoded))
+            : entries.remove(key);
+        if (previous != null) {
+            liveBytes -= RECORD_HEADER + previous.encoded.length;
+        }
+        if (code == OP_PUT && value != null) {
+            liveBytes += RECORD_HEADER + encoded.length;
+        }
+    }
+
+    private void ensureOpen() {
+        if (map == null) {
+            throw new IllegalStateException("Key-value log is closed");
+        }
+    }
+
+    private File compactionFile() {
+        return new File(file.getPath() + ".compact");
+    }
+
+    private void open() throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        // Left by a compaction that did not finish; the log itself is intact
+        compactionFile().delete();
+        raf = new RandomAccessFile(file, "rw");
+        long length = raf.length();
+        if (length < HEADER_BYTES + RECORD_HEADER || length > Integer.MAX_VALUE) {
+            reset();
+            return;
+        }
+        capacity = (int) length;
+        map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        if (map.getInt(0) != MAGIC || map.getInt(OFFSET_VERSION) != VERSION) {
+            reset();
+            return;
+        }
+        long committed = map.getLong(OFFSET_END);
+        // A damaged header: keep whatever still checks out
+        long limit = committed >= HEADER_BYTES && committed <= capacity ? committed : capacity;
+        recover(limit);
+        if (end != committed) {
+            map.putLong(OFFSET_END, end);
+        }
+    }
+
+    // Replays records up to limit, stopping at the first one that is torn or does not check out
+    private void recover(long limit) {
+        long position = HEADER_BYTES;
+        while (position + RECORD_HEADER <= limit) {
+            int at = (int) position;
+            int length = map.getInt(at);
+            if (length <= 0 || position + RECORD_HEADER + length > limit) {
+                break;
+            }
+            byte[] data = new byte[length];
+            ByteBuffer view = map.duplicate();
+            view.position(at + RECORD_HEADER);
+            view.get(data);
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            if ((int) crc.getValue() != map.getInt(at + 4) || !replay(data)) {
+                break;
+            }
+            position += RECORD_HEADER + length;
+        }
+        end = position;
+    }
+
+    private void reset() throws IOException {
+        capacity = INITIAL_CAPACITY;
+        raf.setLength(0);
+        raf.setLength(capacity);
+        map = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+        entries.clear();
+        liveBytes = 0;
+        end = HEADER_BYTES;
+        map.putInt(0, MAGIC);
+        map.putInt(OFFSET_VERSION, VERSION);
+        map.putLong(OFFSET_END, end);
+        map.force();
+    }
+}
@@ -0,0 +1,37 @@
+package com.balanze.app;
+
+// Supabase tables mirrored into the local ledger.
+// Each entry names the JSON fields that are lifted out of the row into
+// indexed columns, so queries never have to parse the stored JSON, and the
+// server column delta sync walks: updated_at where a trigger maintains it,
+// created_at for tables whose rows have no updated_at.
+public enum LedgerTable {
+    CATEGORIES("categories", "created_at", null, "name", "updated_at"),
+    ACCOUNTS("accounts", "created_at", "id", null, "updated_at"),
+    TRANSACTIONS("transactions", "date", "account_id", "category", "updated_at"),
+    PURCHASES("purchases", "purchase_date", "account_id", "category", "updated_at"),
+    DONATION_SAVING_RECORDS("donation_saving_records", "created_at", null, "type", "created_at");
+
+    public final String tableName;
+    public final String dateField;
+    public final String accountField;
+    public final String categoryField;
+    public final String syncField;
+
+    LedgerTable(String tableName, String dateField, String accountField, String categoryField, String syncField) {
+        this.tableName = tableName;
+        this.dateField = dateField;
+        this.accountField = accountField;
+        this.categoryField = categoryField;
+        this.syncField = syncField;
+    }
+
+    public static LedgerTable fromName(String name) {
+        for (LedgerTable table : values()) {
+            if (table.tableName.equals(name)) {
+                return table;
+            }
+        }
+        throw new IllegalArgumentException("Unknown ledger table: " + name);
+    }
+}
@@ -0,0 +1,66 @@
+package com.balanze.app;
+
+// Per-priority sampling and rate limits for console logs, in fixed
+// one-second windows. Priorities are android.util.Log levels (2..7).
+// Levels without a rule pass through. Only used from the drain thread.
+public class LogRateLimiter {
+
+    public static final int UNLIMITED = -1;
+
+    private static final int LEVELS = 8;
+
+    private final int[] sampleEvery = new int[LEVELS];
+    private final int[] maxPerSecond = new int[LEVELS];
+    private final long[] windowStart = new long[LEVELS];
+    private final int[] windowCount = new int[LEVELS];
+    private final long[] seen = new long[LEVELS];
+    private final long[] suppressed = new long[LEVELS];
+
+    public LogRateLimiter() {
+        for (int i = 0; i < LEVELS; i++) {
+            sampleEvery[i] = 1;
+            maxPerSecond[i] = UNLIMITED;
+        }
+    }
+
+    // sampleEvery = n keeps every n-th message; maxPerSecond = 0 drops the level
+    public void setRule(int priority, int sampleEvery, int maxPerSecond) {
+        this.sampleEvery[clamp(priority)] = Math.max(1, sampleEvery);
+        this.maxPerSecond[clamp(priority)] = maxPerSecond;
+    }
+
+    public boolean allow(int priority, long nowMillis) {
+        int level = clamp(priority);
+        long count = seen[level]++;
+        if (count % sampleEvery[level] != 0) {
+            suppressed[level]++;
+            return false;
+        }
+        int limit = maxPerSecond[level];
+        if (limit == UNLIMITED) {
+            return true;
+        }
+        if (nowMillis - windowStart[level] >= 1000) {
+            windowStart[level] = nowMillis;
+            windowCount[level] = 0;
+        }
+        if (windowCount[level] >= limit) {
+            suppressed[level]++;
+            return false;
+        }
+        windowCount[level]++;
+        return true;
+    }
+
+    // Returns and resets the number of messages dropped at this level
+    public long takeSuppressed(int priority) {
+        int level = clamp(priority);
+        long count = suppressed[level];
+        suppressed[level] = 0;
+        return count;
+    }
+
+    private static int clamp(int priority) {
+        return Math.max(0, Math.min(LEVELS - 1, priority));
+    }
+}
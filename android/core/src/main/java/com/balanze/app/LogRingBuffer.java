@@ -0,0 +1,102 @@
+package com.balanze.app;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Bounded multi-producer / single-consumer queue of log entries.
+// Producers (the UI thread calling onConsoleMessage, or any other thread)
+// claim a slot with one CAS and never block or allocate; when the buffer is
+// full the entry is rejected instead. Entries are pre-allocated and reused,
+// so the consumer must finish with an entry inside the visitor call.
+// Publishing is a volatile store, so a consumer that goes to sleep after
+// isEmpty() and a producer that checks for it afterwards cannot both miss
+// each other.
+public class LogRingBuffer {
+
+    public static final class Entry {
+        public int priority;
+        public String message;
+        public String source;
+        public int line;
+        public long timeMillis;
+    }
+
+    public interface Visitor {
+        void visit(Entry entry);
+    }
+
+    private final int mask;
+    private final Entry[] entries;
+    // Per slot: equals the claim position when free, position + 1 once published
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    public LogRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two: " + capacity);
+        }
+        mask = capacity - 1;
+        entries = new Entry[capacity];
+        sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new Entry();
+            sequences.set(i, i);
+        }
+    }
+
+    public boolean offer(int priority, String message, String source, int line, long timeMillis) {
+        long position;
+        int index;
+        while (true) {
+            position = tail.get();
+            index = (int) (position & mask);
+            long diff = sequences.get(index) - position;
+            if (diff == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    break;
+                }
+            } else if (diff < 0) {
+                // The consumer has not released this slot yet: full
+                return false;
+            }
+            // Otherwise another producer took the slot first; retry with the new tail
+        }
+        Entry entry = entries[index];
+        entry.priority = priority;
+        entry.message = message;
+        entry.source = source;
+        entry.line = line;
+        entry.timeMillis = timeMillis;
+        sequences.set(index, position + 1);
+        return true;
+    }
+
+    // Consumer side; only one thread may drain
+    public int drain(Visitor visitor, int maxEntries) {
+        int drained = 0;
+        while (drained < maxEntries) {
+            int index = (int) (head & mask);
+            if (sequences.get(index) != head + 1) {
+                break;
+            }
+            Entry entry = entries[index];
+            visitor.visit(entry);
+            entry.message = null;
+            entry.source = null;
+            sequences.lazySet(index, head + mask + 1);
+            head++;
+            drained++;
+        }
+        return drained;
+    }
+
+    // Consumer side
+    public boolean isEmpty() {
+        return sequences.get((int) (head & mask)) != head + 1;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+}
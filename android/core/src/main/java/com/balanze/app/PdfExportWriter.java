@@ -0,0 +1,200 @@
+package com.balanze.app;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+// Writes the "Transaction Report" PDF one page at a time.
+// android.graphics.pdf.PdfDocument keeps every page until writeTo(), so this
+// emits raw PDF objects instead: each finished page is flushed to the stream
+// and only the object offsets are remembered for the xref table.
+//
+// The summary at the top of page 1 (record count, totals) is only known once
+// every row has been seen. Page 1 therefore reserves room for it and points
+// at an extra content stream that is written when the export finishes.
+public class PdfExportWriter implements TransactionExportWriter {
+
+    private static final float PAGE_WIDTH = 595f;   // A4 in points
+    private static final float PAGE_HEIGHT = 842f;
+    private static final float MARGIN = 40f;
+    private static final float FONT_SIZE = 8f;
+    private static final float ROW_HEIGHT = 12f;
+    private static final float LINE_HEIGHT = 14f;
+    private static final float[] COLUMN_WIDTHS = { 55f, 150f, 70f, 70f, 45f, 55f, 70f };
+    // Helvetica averages roughly half an em per character
+    private static final float AVERAGE_CHAR_WIDTH = FONT_SIZE * 0.5f;
+
+    private static final int CATALOG_ID = 1;
+    private static final int PAGES_ID = 2;
+    private static final int FONT_ID = 3;
+    private static final int BOLD_FONT_ID = 4;
+
+    private final PdfObjectWriter pdf;
+    private final List<Integer> pageIds = new ArrayList<>();
+    private final int summaryStreamId;
+    private final float summaryTop;
+    private final int summaryLines;
+
+    private StringBuilder page;
+    private float cursorY;
+    private int rowIndex;
+
+    public PdfExportWriter(OutputStream out, int activeFilterCount) throws IOException {
+        pdf = new PdfObjectWriter(out, BOLD_FONT_ID);
+        summaryStreamId = pdf.allocate();
+
+        pdf.writeObject(FONT_ID, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica /Encoding /WinAnsiEncoding >>");
+        pdf.writeObject(BOLD_FONT_ID, "<< /Type /Font /Subtype /Type1 /BaseFont /Helvetica-Bold /Encoding /WinAnsiEncoding >>");
+
+        startPage();
+        text(MARGIN, PAGE_HEIGHT - 52f, "F2", 16f, "Transaction Report");
+        // Exported + Records, then filters and the financial block when filters are active
+        summaryLines = activeFilterCount > 0 ? 2 + 1 + activeFilterCount + 1 + 3 : 2;
+        summaryTop = PAGE_HEIGHT - 72f;
+        cursorY = summaryTop - summaryLines * LINE_HEIGHT - 16f;
+        tableHeader();
+    }
+
+    @Override
+    public void writeRow(ExportRow row) throws IOException {
+        if (cursorY - ROW_HEIGHT < MARGIN) {
+            finishPage();
+            startPage();
+            cursorY = PAGE_HEIGHT - MARGIN;
+            tableHeader();
+        }
+        if (rowIndex % 2 == 1) {
+            page.append("0.961 0.961 0.961 rg ");
+            rect(MARGIN, cursorY - ROW_HEIGHT, tableWidth(), ROW_HEIGHT);
+            page.append("0 g\n");
+        }
+        String[] cells = { row.date, row.description, row.category, row.account, row.displayType(), row.displayAmount(), row.tags };
+        drawCells(cells, "F1");
+        cursorY -= ROW_HEIGHT;
+        rowIndex++;
+    }
+
+    @Override
+    public void finish(ExportSummary summary) throws IOException {
+        finishPage();
+
+        page = new StringBuilder();
+        float y = summaryTop;
+        text(MARGIN, y, "F1", 10f, "Exported: " + summary.exportedAt);
+        y -= LINE_HEIGHT;
+        text(MARGIN, y, "F1", 10f, "Records: " + summary.recordCount);
+        if (summary.hasFilters() && summaryLines > 2) {
+            y -= LINE_HEIGHT;
+            text(MARGIN, y, "F1", 10f, "Applied Filters:");
+            for (String filter : summary.activeFilters) {
+                y -= LINE_HEIGHT;
+                text(MARGIN + 6f, y, "F1", 10f, "- " + filter);
+            }
+            y -= LINE_HEIGHT;
+            text(MARGIN, y, "F2", 12f, "Financial Summary:");
+            String[] lines = {
+                "Total Income: " + summary.formatAmount(summary.totalIncome),
+                "Total Expenses: " + summary.formatAmount(summary.totalExpense),
+                "Net Amount: " + summary.formatAmount(summary.netAmount()),
+                "Income Transactions: " + summary.incomeCount,
+                "Expense Transactions: " + summary.expenseCount
+            };
+            // Two columns keep the block inside the space reserved on page 1
+            for (int i = 0; i < lines.length; i++) {
+                float x = i % 2 == 0 ? MARGIN + 6f : MARGIN + 260f;
+                if (i % 2 == 0) {
+                    y -= LINE_HEIGHT;
+                }
+                text(x, y, "F1", 10f, lines[i]);
+            }
+        }
+        pdf.writeStream(summaryStreamId, page);
+        page = null;
+
+        StringBuilder kids = new StringBuilder();
+        for (int id : pageIds) {
+            kids.append(id).append(" 0 R ");
+        }
+        pdf.writeObject(PAGES_ID, "<< /Type /Pages /Kids [" + kids + "] /Count " + pageIds.size() + " >>");
+        pdf.writeObject(CATALOG_ID, "<< /Type /Catalog /Pages " + PAGES_ID + " 0 R >>");
+        pdf.finish(CATALOG_ID);
+    }
+
+    @Override
+    public void close() throws IOException {
+        pdf.close();
+    }
+
+    private void startPage() {
+        page = new StringBuilder(8 * 1024);
+    }
+
+    private void finishPage() throws IOException {
+        int contentId = pdf.allocate();
+        pdf.writeStream(contentId, page);
+        int pageId = pdf.allocate();
+        String contents = pageIds.isEmpty()
+            ? "[" + summaryStreamId + " 0 R " + contentId + " 0 R]"
+            : contentId + " 0 R";
+        pdf.writeObject(pageId, "<< /Type /Page /Parent " + PAGES_ID + " 0 R"
+            + " /MediaBox [0 0 " + (int) PAGE_WIDTH + " " + (int) PAGE_HEIGHT + "]"
+            + " /Resources << /Font << /F1 " + FONT_ID + " 0 R /F2 " + BOLD_FONT_ID + " 0 R >> >>"
+            + " /Contents " + contents + " >>");
+        pageIds.add(pageId);
+        page = null;
+    }
+
+    private void tableHeader() {
+        page.append("0.259 0.545 0.792 rg ");
+        rect(MARGIN, cursorY - ROW_HEIGHT, tableWidth(), ROW_HEIGHT);
+        page.append("1 g\n");
+        drawCells(HEADERS, "F2");
+        page.append("0 g\n");
+        cursorY -= ROW_HEIGHT;
+    }
+
+    private void drawCells(String[] cells, String font) {
+        float x = MARGIN;
+        float baseline = cursorY - ROW_HEIGHT + 3.5f;
+        for (int i = 0; i < cells.length; i++) {
+            String value = fit(cells[i], COLUMN_WIDTHS[i]);
+            if (!value.isEmpty()) {
+                text(x + 2f, baseline, font, FONT_SIZE, value);
+            }
+            x += COLUMN_WIDTHS[i];
+        }
+    }
+
+    private void text(float x, float y, String font, float size, String value) {
+        page.append("BT /").append(font).append(' ').append(format(size)).append(" Tf ")
+            .append(format(x)).append(' ').append(format(y)).append(" Td (");
+        PdfObjectWriter.escape(value, page);
+        page.append(") Tj ET\n");
+    }
+
+    private void rect(float x, float y, float width, float height) {
+        page.append(format(x)).append(' ').append(format(y)).append(' ')
+            .append(format(width)).append(' ').append(format(height)).append(" re f\n");
+    }
+
+    private static float tableWidth() {
+        float width = 0f;
+        for (float column : COLUMN_WIDTHS) {
+            width += column;
+        }
+        return width;
+    }
+
+    private static String fit(String value, float columnWidth) {
+        if (value == null) {
+            return "";
+        }
+        int maxChars = (int) ((columnWidth - 4f) / AVERAGE_CHAR_WIDTH);
+        return value.length() <= maxChars ? value : value.substring(0, Math.max(0, maxChars - 3)) + "...";
+    }
+
+    private static String format(float value) {
+        return PdfObjectWriter.format(value);
+    }
+}
@@ -0,0 +1,145 @@
+package com.balanze.app;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// The object layer of the streamed transaction report PDF:
+// numbered objects are written as soon as they are complete and only their
+// offsets are kept for the xref table that finish() appends. Text content is
+// Latin-1/WinAnsi, which is all the standard Type1 fonts can show.
+final class PdfObjectWriter implements Closeable {
+
+    private final OutputStream out;
+    private final List<Long> objectOffsets = new ArrayList<>();
+    private long position;
+
+    // Object ids 1..reservedIds are left for the caller's fixed objects
+    // (catalog, page tree, fonts); allocate() hands out the ones after them
+    PdfObjectWriter(OutputStream out, int reservedIds) throws IOException {
+        this(out, reservedIds, TransactionExportWriter.BUFFER_SIZE);
+    }
+
+    PdfObjectWriter(OutputStream out, int reservedIds, int bufferSize) throws IOException {
+        this.out = new BufferedOutputStream(out, bufferSize);
+        for (int id = 0; id <= reservedIds; id++) {
+            objectOffsets.add(0L);
+        }
+        writeRaw("%PDF-1.4\n%âãÏÓ\n");
+    }
+
+    int allocate() {
+        objectOffsets.add(0L);
+        return objectOffsets.size() - 1;
+    }
+
+    void writeObject(int id, String body) throws IOException {
+        objectOffsets.set(id, position);
+        writeRaw(id + " 0 obj\n" + body + "\nendobj\n");
+    }
+
+    void writeStream(int id, CharSequence content) throws IOException {
+        writeStream(id, "", content.toString().getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    // dictionary: entries besides /Length, e.g. an image's /Width and /Filter
+    void writeStream(int id, String dictionary, byte[] data) throws IOException {
+        objectOffsets.set(id, position);
+        writeRaw(id + " 0 obj\n<< " + (dictionary.isEmpty() ? "" : dictionary + " ")
+            + "/Length " + data.length + " >>\nstream\n");
+        out.write(data);
+        position += data.length;
+        writeRaw("\nendstream\nendobj\n");
+    }
+
+    // Every allocated object must have been written by now
+    void finish(int catalogId) throws IOException {
+        long xrefOffset = position;
+        StringBuilder xref = new StringBuilder();
+        xref.append("xref\n0 ").append(objectOffsets.size()).append('\n');
+        xref.append("0000000000 65535 f \n");
+        for (int id = 1; id < objectOffsets.size(); id++) {
+            xref.append(String.format(Locale.US, "%010d 00000 n \n", objectOffsets.get(id)));
+        }
+        xref.append("trailer\n<< /Size ").append(objectOffsets.size())
+            .append(" /Root ").append(catalogId).append(" 0 R >>\nstartxref\n")
+            .append(xrefOffset).append("\n%%EOF\n");
+        writeRaw(xref.toString());
+        out.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+
+    private void writeRaw(String value) throws IOException {
+        byte[] data = value.getBytes(StandardCharsets.ISO_8859_1);
+        out.write(data);
+        position += data.length;
+    }
+
+    // PDF literal strings: escape delimiters and map anything WinAnsi cannot
+    // show to '?'. The few common characters WinAnsi keeps in 0x80-0x9F
+    // (euro sign, curly quotes, dashes) are moved to their WinAnsi codes.
+    static void escape(String value, StringBuilder target) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '(' || c == ')' || c == '\\') {
+                target.append('\\').append(c);
+            } else if (c == '\n' || c == '\r' || c == '\t') {
+                target.append(' ');
+            } else if (c >= 32 && c < 128 || c >= 160 && c <= 255) {
+                target.append(c);
+            } else {
+                target.append(winAnsi(c));
+            }
+        }
+    }
+
+    // The WinAnsi code of c as a Latin-1 char, or '?'
+    static char winAnsi(char c) {
+        switch (c) {
+            case '€': return (char) 0x80;  // euro sign
+            case '…': return (char) 0x85;  // ellipsis
+            case '‘': return (char) 0x91;
+            case '’': return (char) 0x92;
+            case '“': return (char) 0x93;
+            case '”': return (char) 0x94;
+            case '•': return (char) 0x95;  // bullet
+            case '–': return (char) 0x96;  // en dash
+            case '—': return (char) 0x97;  // em dash
+            default: return '?';
+        }
+    }
+
+    static String format(float value) {
+        StringBuilder result = new StringBuilder(12);
+        format(value, result);
+        return result.toString();
+    }
+
+    // Whole numbers as integers, anything else with two decimals rounded half
+    // up, as "%.2f" would print it but without a Formatter per coordinate
+    static void format(float value, StringBuilder target) {
+        if (value == (int) value) {
+            target.append((int) value);
+            return;
+        }
+        long hundredths = Math.round(Math.abs((double) value) * 100d);
+        if (value < 0) {
+            target.append('-');
+        }
+        target.append(hundredths / 100).append('.');
+        long fraction = hundredths % 100;
+        if (fraction < 10) {
+            target.append('0');
+        }
+        target.append(fraction);
+    }
+}
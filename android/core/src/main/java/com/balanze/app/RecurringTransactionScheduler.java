@@ -0,0 +1,306 @@
+package com.balanze.app;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+
+// Materializes the overdue occurrences of recurring transactions, the same
+// rows TransactionForm and forceNextOccurrence create by hand: an instance
+// with amount 0 linked through parent_recurring_id, after which the parent's
+// next_occurrence_date and occurrence_count move on. Paused parents are
+// skipped. A parent whose next date is past recurring_end_date is closed by
+// setting next_occurrence_date to null, as api/process-recurring-transactions
+// does; parents without a next date are finished and never walked again.
+//
+// Each batch is inserted first and the parent advanced second, so a run that
+// dies in between is repaired by the next one: occurrence dates that already
+// have an instance are not inserted again, and every instance gets a
+// transaction_id derived from (parent, date), so a retried row carries the
+// same id as the one that may have landed. Backend.insertOccurrences must
+// skip rows whose (parent, date) already exists, so a run racing the server
+// cron cannot create the same instance twice.
+// Pure Java; the database side is behind Backend.
+public class RecurringTransactionScheduler {
+
+    public static final String DAILY = "daily";
+    public static final String WEEKLY = "weekly";
+    public static final String MONTHLY = "monthly";
+    public static final String YEARLY = "yearly";
+
+    public static final int DEFAULT_BATCH_SIZE = 50;
+    // Per run, so a daily rule left alone for years cannot flood one request;
+    // whatever is left over is picked up by the next run
+    public static final int DEFAULT_MAX_OCCURRENCES = 500;
+
+    public static final class Template {
+        public final String id;
+        public final String userId;
+        public final String accountId;
+        public final String type;
+        public final String description;
+        public final String category;
+        public final List<String> tags;
+        public final String frequency;
+        // Day of the parent transaction itself
+        public final int startDay;
+        // Days counted from 1970-01-01; null when the column is null, which
+        // for nextDay means the series has finished
+        public final Integer nextDay;
+        public final Integer endDay;
+        public final boolean paused;
+        public final int occurrenceCount;
+
+        public Template(String id, String userId, String accountId, String type, String description,
+                        String category, List<String> tags, String frequency, int startDay, Integer nextDay,
+                        Integer endDay, boolean paused, int occurrenceCount) {
+            this.id = id;
+            this.userId = userId;
+            this.accountId = accountId;
+            this.type = type;
+            this.description = description;
+            this.category = category;
+            this.tags = tags != null ? tags : Collections.emptyList();
+            this.frequency = frequency;
+            this.startDay = startDay;
+            this.nextDay = nextDay;
+            this.endDay = endDay;
+            this.paused = paused;
+            this.occurrenceCount = occurrenceCount;
+        }
+    }
+
+    public static final class Occurrence {
+        public final Template template;
+        public final int day;
+        public final String transactionId;
+
+        Occurrence(Template template, int day, String transactionId) {
+            this.template = template;
+            this.day = day;
+            this.transactionId = transactionId;
+        }
+    }
+
+    public interface Backend {
+        // Recurring parents of the user with a next_occurrence_date on or before today
+        List<Template> recurringTemplates(String userId, int today) throws IOException;
+
+        // Days in [fromDay, toDay] that already have an instance of the parent
+        Set<Integer> existingOccurrences(String parentId, int fromDay, int toDay) throws IOException;
+
+        // Rows whose (parent, day) already exists are skipped, not duplicated
+        void insertOccurrences(List<Occurrence> occurrences) throws IOException;
+
+        // nextDay null closes the series
+        void advance(String parentId, Integer nextDay, int occurrenceCount) throws IOException;
+    }
+
+    public static final class Result {
+        public int templates;
+        public int created;
+        // Due dates that already had an instance, e.g. from an interrupted run
+        public int alreadyPresent;
+        public int paused;
+        // Parents closed because their next date passed the end date
+        public int ended;
+        // True when the per-run cap stopped the catch-up early
+        public boolean more;
+    }
+
+    private final Backend backend;
+    private final LongSupplier clock;
+    private final TimeZone zone;
+    private final int batchSize;
+    private final int maxOccurrences;
+
+    public RecurringTransactionScheduler(Backend backend, LongSupplier clock, TimeZone zone,
+                                         int batchSize, int maxOccurrences) {
+        this.backend = backend;
+        this.clock = clock;
+        this.zone = zone;
+        this.batchSize = batchSize;
+        this.maxOccurrences = maxOccurrences;
+    }
+
+    public RecurringTransactionScheduler(Backend backend, LongSupplier clock, TimeZone zone) {
+        this(backend, clock, zone, DEFAULT_BATCH_SIZE, DEFAULT_MAX_OCCURRENCES);
+    }
+
+    // Local calendar day of the clock, which is what the web layer calls today
+    public int today() {
+        long now = clock.getAsLong();
+        return (int) Math.floorDiv(now + zone.getOffset(now), 86_400_000L);
+    }
+
+    public Result run(String userId) throws IOException {
+        int today = today();
+        Result result = new Result();
+        int budget = maxOccurrences;
+        for (Template template : backend.recurringTemplates(userId, today)) {
+            result.templates++;
+            if (template.paused) {
+                result.paused++;
+                continue;
+            }
+            if (template.nextDay == null || !isFrequency(template.frequency)) {
+                continue;
+            }
+            if (template.endDay != null && template.nextDay > template.endDay) {
+                backend.advance(template.id, null, template.occurrenceCount);
+                result.ended++;
+                continue;
+            }
+            if (budget == 0) {
+                result.more = true;
+                break;
+            }
+            List<Integer> due = dueOccurrences(template, today, budget + 1);
+            if (due.size() > budget) {
+                due = due.subList(0, budget);
+                result.more = true;
+            }
+            if (due.isEmpty()) {
+                continue;
+            }
+            budget -= due.size();
+            catchUp(template, due, result);
+        }
+        return result;
+    }
+
+    private void catchUp(Template template, List<Integer> due, Result result) throws IOException {
+        Set<Integer> existing = backend.existingOccurrences(template.id, due.get(0), due.get(due.size() - 1));
+        int count = template.occurrenceCount;
+        for (int from = 0; from < due.size(); from += batchSize) {
+            List<Integer> batch = due.subList(from, Math.min(due.size(), from + batchSize));
+            List<Occurrence> occurrences = new ArrayList<>(batch.size());
+            for (int day : batch) {
+                if (existing.contains(day)) {
+                    result.alreadyPresent++;
+                } else {
+                    occurrences.add(new Occurrence(template, day, occurrenceTransactionId(template.id, day)));
+                }
+            }
+            if (!occurrences.isEmpty()) {
+                backend.insertOccurrences(occurrences);
+                result.created += occurrences.size();
+            }
+            // An instance that was already there is one an interrupted run
+            // inserted without advancing the parent, so it still counts
+            count += batch.size();
+            int next = nextOccurrence(batch.get(batch.size() - 1), template.frequency);
+            boolean ended = template.endDay != null && next > template.endDay;
+            backend.advance(template.id, ended ? null : next, count);
+            if (ended) {
+                result.ended++;
+            }
+        }
+    }
+
+    // Occurrence days up to and including today, oldest first, at most max of
+    // them; none for a paused or finished (null next date) parent
+    public static List<Integer> dueOccurrences(Template template, int today, int max) {
+        List<Integer> due = new ArrayList<>();
+        if (template.paused || template.nextDay == null || !isFrequency(template.frequency)) {
+            return due;
+        }
+        int day = template.nextDay;
+        while (day <= today && due.size() < max) {
+            if (template.endDay != null && day > template.endDay) {
+                break;
+            }
+            due.add(day);
+            day = nextOccurrence(day, template.frequency);
+        }
+        return due;
+    }
+
+    // Same rules as calculateNextOccurrenceDate in the web layer: monthly keeps
+    // the day of month but falls back to the month's last day (so Jan 31 is
+    // followed by Feb 28, then Mar 28), and Feb 29 becomes Feb 28 yearly
+    public static int nextOccurrence(int epochDay, String frequency) {
+        switch (frequency) {
+            case DAILY:
+                return epochDay + 1;
+            case WEEKLY:
+                return epochDay + 7;
+            case MONTHLY: {
+                int[] date = civil(epochDay);
+                int year = date[0] + (date[1] == 12 ? 1 : 0);
+                int month = date[1] == 12 ? 1 : date[1] + 1;
+                return epochDay(year, month, Math.min(date[2], daysInMonth(year, month)));
+            }
+            case YEARLY: {
+                int[] date = civil(epochDay);
+                int year = date[0] + 1;
+                return epochDay(year, date[1], Math.min(date[2], daysInMonth(year, date[1])));
+            }
+            default:
+                throw new IllegalArgumentException("Invalid recurring frequency: " + frequency);
+        }
+    }
+
+    public static boolean isFrequency(String frequency) {
+        return DAILY.equals(frequency) || WEEKLY.equals(frequency)
+            || MONTHLY.equals(frequency) || YEARLY.equals(frequency);
+    }
+
+    // "F" plus 7 digits like generateTransactionId, but fixed per (parent, date)
+    public static String occurrenceTransactionId(String parentId, int epochDay) {
+        CRC32 crc = new CRC32();
+        crc.update((parentId + "@" + formatDay(epochDay)).getBytes(StandardCharsets.UTF_8));
+        return String.format("F%07d", crc.getValue() % 10_000_000L);
+    }
+
+    // yyyy-MM-dd, or the date part of a timestamp
+    public static int parseDay(String date) {
+        if (date == null || date.length() < 10) {
+            throw new IllegalArgumentException("Not a date: " + date);
+        }
+        return epochDay(Integer.parseInt(date.substring(0, 4)),
+            Integer.parseInt(date.substring(5, 7)),
+            Integer.parseInt(date.substring(8, 10)));
+    }
+
+    public static String formatDay(int epochDay) {
+        int[] date = civil(epochDay);
+        return String.format("%04d-%02d-%02d", date[0], date[1], date[2]);
+    }
+
+    // Days-from-civil and civil-from-days, so this needs neither java.time nor a Calendar
+    static int epochDay(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = Math.floorDiv(y, 400);
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+
+    // { year, month (1-12), day }
+    static int[] civil(int epochDay) {
+        int z = epochDay + 719468;
+        int era = Math.floorDiv(z, 146097);
+        int dayOfEra = z - era * 146097;
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        return new int[] { yearOfEra + era * 400 + (month <= 2 ? 1 : 0), month, day };
+    }
+
+    private static int daysInMonth(int year, int month) {
+        if (month == 2) {
+            boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+            return leap ? 29 : 28;
+        }
+        return month == 4 || month == 6 || month == 9 || month == 11 ? 30 : 31;
+    }
+}
@@ -0,0 +1,326 @@
+package com.balanze.app;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Client for the tus resumable upload protocol, which Supabase Storage serves
+// at /storage/v1/upload/resumable. A file is created with POST, then sent in
+// chunks at an explicit Upload-Offset; after a failed chunk the server is
+// asked (HEAD) how much it actually kept and the upload continues from there
+// instead of starting over. The upload url can be kept by the caller to
+// resume in a later process.
+// Chunks go out as POST with X-HTTP-Method-Override: PATCH, which tus servers
+// accept, because HttpURLConnection does not support PATCH on every runtime.
+// Pure Java (HttpURLConnection) so it can be tested against a local server.
+public class ResumableUploader {
+
+    // Supabase requires exactly 6 MB chunks (except the last one)
+    public static final int DEFAULT_CHUNK_SIZE = 6 * 1024 * 1024;
+    public static final int DEFAULT_MAX_ATTEMPTS = 5;
+
+    private static final String TUS_VERSION = "1.0.0";
+    private static final int TIMEOUT_MS = 30_000;
+    private static final long FIRST_BACKOFF_MS = 1_000;
+    private static final long MAX_BACKOFF_MS = 30_000;
+
+    public interface Listener {
+        // The upload exists on the server; keep this url to resume it later
+        void onCreated(String uploadUrl);
+
+        void onProgress(long sent, long total);
+    }
+
+    public interface Sleeper {
+        void sleep(long millis) throws InterruptedException;
+    }
+
+    // A response the upload cannot recover from by retrying (auth, quota, bad request)
+    public static class UploadRejectedException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        public final int status;
+
+        UploadRejectedException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private static final class Response {
+        final int status;
+        final Map<String, String> headers;
+        final String body;
+
+        Response(int status, Map<String, String> headers, String body) {
+            this.status = status;
+            this.headers = headers;
+            this.body = body;
+        }
+
+        String header(String name) {
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                if (header.getKey().equalsIgnoreCase(name)) {
+                    return header.getValue();
+                }
+            }
+            return null;
+        }
+    }
+
+    private final String endpoint;
+    private final Map<String, String> headers;
+    private final int chunkSize;
+    private final int maxAttempts;
+    private final Sleeper sleeper;
+
+    public ResumableUploader(String endpoint, Map<String, String> headers, int chunkSize, int maxAttempts,
+                             Sleeper sleeper) {
+        this.endpoint = endpoint;
+        this.headers = new LinkedHashMap<>(headers);
+        this.chunkSize = chunkSize;
+        this.maxAttempts = maxAttempts;
+        this.sleeper = sleeper;
+    }
+
+    // Uploads the file and returns its upload url. When resumeUrl is given
+    // and the server still knows it, only the missing tail is sent.
+    // metadata becomes Upload-Metadata (Supabase wants bucketName,
+    // objectName, contentType and cacheControl).
+    public String upload(File file, Map<String, String> metadata, String resumeUrl, Listener listener)
+        throws IOException {
+        long total = file.length();
+        String uploadUrl = null;
+        long offset = 0;
+        if (resumeUrl != null) {
+            offset = serverOffset(resumeUrl, total);
+            if (offset >= 0) {
+                uploadUrl = resumeUrl;
+            }
+        }
+        if (uploadUrl == null) {
+            uploadUrl = create(total, metadata);
+            offset = 0;
+            listener.onCreated(uploadUrl);
+        }
+        listener.onProgress(offset, total);
+
+        byte[] buffer = new byte[(int) Math.min(chunkSize, Math.max(total, 1))];
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            int failures = 0;
+            while (offset < total) {
+                int length = (int) Math.min(chunkSize, total - offset);
+                in.seek(offset);
+                in.readFully(buffer, 0, length);
+                try {
+                    offset = sendChunk(uploadUrl, offset, buffer, length);
+                    failures = 0;
+                } catch (UploadRejectedException e) {
+                    throw e;
+                } catch (IOException e) {
+                    if (++failures >= maxAttempts) {
+                        throw e;
+                    }
+                    backoff(failures);
+                    offset = acknowledgedOffset(uploadUrl, total, offset, e);
+                }
+                listener.onProgress(offset, total);
+            }
+        }
+        return uploadUrl;
+    }
+
+    private String create(long total, Map<String, String> metadata) throws IOException {
+        Map<String, String> request = new LinkedHashMap<>();
+        request.put("Upload-Length", Long.toString(total));
+        request.put("Upload-Metadata", encodeMetadata(metadata));
+        Response response = send("POST", endpoint, request, null, 0);
+        if (response.status != HttpURLConnection.HTTP_CREATED) {
+            throw failure("Creating the upload", response);
+        }
+        String location = response.header("Location");
+        if (location == null) {
+            throw new IOException("Upload created without a Location");
+        }
+        return new URL(new URL(endpoint), location).toString();
+    }
+
+    private long sendChunk(String uploadUrl, long offset, byte[] buffer, int length) throws IOException {
+        Map<String, String> request = new LinkedHashMap<>();
+        request.put("X-HTTP-Method-Override", "PATCH");
+        request.put("Upload-Offset", Long.toString(offset));
+        request.put("Content-Type", "application/offset+octet-stream");
+        Response response = send("POST", uploadUrl, request, buffer, length);
+        if (response.status != HttpURLConnection.HTTP_NO_CONTENT && response.status != HttpURLConnection.HTTP_OK) {
+            throw failure("Uploading at offset " + offset, response);
+        }
+        String next = response.header("Upload-Offset");
+        if (next == null) {
+            throw new IOException("Chunk accepted without an Upload-Offset");
+        }
+        return Long.parseLong(next.trim());
+    }
+
+    // Where to continue after a failed chunk. The connection may have died
+    // after the server stored part (or all) of it, so the server's offset is
+    // the truth; if even that cannot be asked, the chunk is simply sent again
+    // at the old offset and a mismatch comes back as a retryable 409.
+    private long acknowledgedOffset(String uploadUrl, long total, long offset, IOException cause)
+        throws IOException {
+        long acknowledged;
+        try {
+            acknowledged = serverOffset(uploadUrl, total);
+        } catch (UploadRejectedException e) {
+            throw e;
+        } catch (IOException e) {
+            return offset;
+        }
+        if (acknowledged < 0) {
+            throw new IOException("Upload expired on the server", cause);
+        }
+        return acknowledged;
+    }
+
+    // The offset the server has stored, or -1 when it no longer knows the upload
+    private long serverOffset(String uploadUrl, long total) throws IOException {
+        Map<String, String> request = new LinkedHashMap<>();
+        request.put("Cache-Control", "no-store");
+        Response response = send("HEAD", uploadUrl, request, null, 0);
+        int status = response.status;
+        if (status == HttpURLConnection.HTTP_NOT_FOUND || status == HttpURLConnection.HTTP_GONE
+            || status == HttpURLConnection.HTTP_FORBIDDEN) {
+            return -1;
+        }
+        if (status != HttpURLConnection.HTTP_OK && status != HttpURLConnection.HTTP_NO_CONTENT) {
+            throw failure("Checking the upload", response);
+        }
+        String length = response.header("Upload-Length");
+        if (length != null && Long.parseLong(length.trim()) != total) {
+            // Same id, different file: never append to it
+            return -1;
+        }
+        String offset = response.header("Upload-Offset");
+        if (offset == null) {
+            throw new IOException("Upload status without an Upload-Offset");
+        }
+        return Long.parseLong(offset.trim());
+    }
+
+    private Response send(String method, String url, Map<String, String> extra, byte[] body, int length)
+        throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setConnectTimeout(TIMEOUT_MS);
+            connection.setReadTimeout(TIMEOUT_MS);
+            connection.setUseCaches(false);
+            connection.setRequestMethod(method);
+            connection.setRequestProperty("Tus-Resumable", TUS_VERSION);
+            for (Map.Entry<String, String> header : headers.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+            for (Map.Entry<String, String> header : extra.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(length);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body, 0, length);
+                }
+            } else if ("POST".equals(method)) {
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(0);
+                connection.getOutputStream().close();
+            }
+            int status = connection.getResponseCode();
+            Map<String, String> responseHeaders = new LinkedHashMap<>();
+            for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+                if (header.getKey() != null) {
+                    responseHeaders.put(header.getKey(), String.join(", ", header.getValue()));
+                }
+            }
+            String text = "";
+            if (!"HEAD".equals(method)) {
+                InputStream in = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+                if (in != null) {
+                    try (InputStream stream = in) {
+                        text = new String(readAll(stream), StandardCharsets.UTF_8);
+                    }
+                }
+            }
+            return new Response(status, responseHeaders, text);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private void backoff(int failures) throws IOException {
+        long delay = Math.min(MAX_BACKOFF_MS, FIRST_BACKOFF_MS << Math.min(failures - 1, 10));
+        try {
+            sleeper.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Upload interrupted", e);
+        }
+    }
+
+    // 4xx other than a conflict or timeout will fail the same way again
+    private static IOException failure(String what, Response response) {
+        String message = what + " failed with HTTP " + response.status
+            + (response.body.isEmpty() ? "" : ": " + response.body);
+        int status = response.status;
+        if (status >= 400 && status < 500 && status != HttpURLConnection.HTTP_CONFLICT
+            && status != HttpURLConnection.HTTP_CLIENT_TIMEOUT && status != 423 && status != 429) {
+            return new UploadRejectedException(status, message);
+        }
+        return new IOException(message);
+    }
+
+    static String encodeMetadata(Map<String, String> metadata) {
+        StringBuilder encoded = new StringBuilder();
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            if (encoded.length() > 0) {
+                encoded.append(',');
+            }
+            encoded.append(entry.getKey()).append(' ')
+                .append(base64(entry.getValue().getBytes(StandardCharsets.UTF_8)));
+        }
+        return encoded.toString();
+    }
+
+    // java.util.Base64 needs API 26 and android.util.Base64 is not on the
+    // test classpath, so the few metadata values are encoded here
+    private static String base64(byte[] data) {
+        final String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/";
+        StringBuilder out = new StringBuilder((data.length + 2) / 3 * 4);
+        for (int i = 0; i < data.length; i += 3) {
+            int b0 = data[i] & 0xff;
+            int b1 = i + 1 < data.length ? data[i + 1] & 0xff : 0;
+            int b2 = i + 2 < data.length ? data[i + 2] & 0xff : 0;
+            out.append(alphabet.charAt(b0 >> 2));
+            out.append(alphabet.charAt(((b0 & 0x3) << 4) | (b1 >> 4)));
+            out.append(i + 1 < data.length ? alphabet.charAt(((b1 & 0xf) << 2) | (b2 >> 6)) : '=');
+            out.append(i + 2 < data.length ? alphabet.charAt(b2 & 0x3f) : '=');
+        }
+        return out.toString();
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
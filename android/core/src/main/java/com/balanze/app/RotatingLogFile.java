@@ -0,0 +1,107 @@
+package com.balanze.app;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+// Append-only log file that rolls over at maxBytes, keeping maxFiles files:
+// <name>.log is current, <name>.1.log the previous one, and so on.
+// Not thread-safe; callers serialize access.
+public class RotatingLogFile implements Closeable {
+
+    private final File directory;
+    private final String baseName;
+    private final long maxBytes;
+    private final int maxFiles;
+    private OutputStream out;
+    private long size;
+
+    public RotatingLogFile(File directory, String baseName, long maxBytes, int maxFiles) {
+        this.directory = directory;
+        this.baseName = baseName;
+        this.maxBytes = maxBytes;
+        this.maxFiles = Math.max(1, maxFiles);
+    }
+
+    public void appendLine(String line) throws IOException {
+        byte[] data = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        if (out == null) {
+            open();
+        }
+        if (size > 0 && size + data.length > maxBytes) {
+            rotate();
+        }
+        out.write(data);
+        size += data.length;
+    }
+
+    public void flush() throws IOException {
+        if (out != null) {
+            out.flush();
+        }
+    }
+
+    // Writes every retained file, oldest first, into target
+    public void exportTo(OutputStream target) throws IOException {
+        flush();
+        byte[] chunk = new byte[16 * 1024];
+        for (int i = maxFiles - 1; i >= 0; i--) {
+            File file = fileAt(i);
+            if (!file.exists()) {
+                continue;
+            }
+            try (InputStream in = new FileInputStream(file)) {
+                int read;
+                while ((read = in.read(chunk)) != -1) {
+                    target.write(chunk, 0, read);
+                }
+            }
+        }
+    }
+
+    public void deleteAll() throws IOException {
+        close();
+        for (int i = 0; i < maxFiles; i++) {
+            fileAt(i).delete();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (out != null) {
+            out.close();
+            out = null;
+        }
+    }
+
+    File fileAt(int index) {
+        return new File(directory, index == 0 ? baseName + ".log" : baseName + "." + index + ".log");
+    }
+
+    private void open() throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Could not create " + directory);
+        }
+        File current = fileAt(0);
+        size = current.length();
+        out = new BufferedOutputStream(new FileOutputStream(current, true), 8 * 1024);
+    }
+
+    private void rotate() throws IOException {
+        close();
+        fileAt(maxFiles - 1).delete();
+        for (int i = maxFiles - 2; i >= 0; i--) {
+            File from = fileAt(i);
+            if (from.exists() && !from.renameTo(fileAt(i + 1))) {
+                throw new IOException("Could not rotate " + from);
+            }
+        }
+        open();
+    }
+}
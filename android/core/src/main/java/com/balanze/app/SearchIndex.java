@@ -0,0 +1,581 @@
+package com.balanze.app;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+// Incremental inverted index over the records the global search looks at
+// (transactions, purchases, clients, KB articles, ...). Each record is a
+// type, an id and a few text fields; amounts are indexed as number tokens.
+//
+// A query matches a record when every query token matches one of its terms,
+// either exactly, as a prefix (so partially typed words hit) or within a
+// small edit distance. A record scores the best term quality per token
+// times the weight of the field the term came from, and the top K are kept
+// in a heap, so a query never sorts the whole result set.
+//
+// Records get increasing ordinals, which keeps every postings list sorted
+// and lets new records be appended. An update is a delete plus an insert;
+// deleted ordinals are compacted away once they outnumber live records.
+//
+// Not thread-safe: SearchIndexPlugin runs every call on one thread.
+public class SearchIndex {
+
+    public static final int DEFAULT_LIMIT = 50;
+    // Fields without a configured weight
+    static final float DEFAULT_FIELD_WEIGHT = 0.1f;
+
+    static final float EXACT_QUALITY = 1.0f;
+    static final float SYNONYM_QUALITY = 0.8f;
+    // Prefix matches scale with how much of the term was typed
+    static final float PREFIX_BASE_QUALITY = 0.5f;
+    static final float PREFIX_MAX_QUALITY = 0.9f;
+    static final float FUZZY_QUALITY = 0.6f;
+    static final float FUZZY2_QUALITY = 0.4f;
+
+    // Caps the work for very short prefixes such as "a"
+    static final int MAX_PREFIX_TERMS = 256;
+    static final int FUZZY_MIN_LENGTH = 4;
+    static final int FUZZY2_MIN_LENGTH = 8;
+    private static final int COMPACT_MIN_DEAD = 1024;
+
+    public static final class Hit {
+        public final String type;
+        public final String id;
+        public final float score;
+
+        Hit(String type, String id, float score) {
+            this.type = type;
+            this.id = id;
+            this.score = score;
+        }
+    }
+
+    public static final class Stats {
+        public int documents;
+        public int terms;
+        public long postings;
+        public int deletedSlots;
+    }
+
+    // Documents containing one term, with the best field weight per document
+    static final class Postings {
+        final String term;
+        int[] docs = new int[2];
+        float[] weights = new float[2];
+        int size;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void add(int doc, float weight) {
+            if (size > 0 && docs[size - 1] == doc) {
+                weights[size - 1] = Math.max(weights[size - 1], weight);
+                return;
+            }
+            if (size == docs.length) {
+                int capacity = size + (size >> 1) + 1;
+                docs = Arrays.copyOf(docs, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            docs[size] = doc;
+            weights[size] = weight;
+            size++;
+        }
+
+        void remove(int doc) {
+            int index = Arrays.binarySearch(docs, 0, size, doc);
+            if (index < 0) {
+                return;
+            }
+            System.arraycopy(docs, index + 1, docs, index, size - index - 1);
+            System.arraycopy(weights, index + 1, weights, index, size - index - 1);
+            size--;
+        }
+    }
+
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+    private final Map<String, Integer> ordinals = new HashMap<>();
+    private final List<String> typeNames = new ArrayList<>();
+    private final Map<String, Map<String, Float>> fieldWeights = new HashMap<>();
+    private final Map<String, List<String>> synonyms = new HashMap<>();
+
+    // Per ordinal; a null ids slot is a deleted document
+    private String[] ids = new String[16];
+    private int[] docTypes = new int[16];
+    private long[] timestamps = new long[16];
+    private Postings[][] docPostings = new Postings[16][];
+    private int nextOrdinal;
+    private int liveCount;
+
+    // Query scratch space, sized with the ordinals
+    private float[] accumulated = new float[16];
+    private float[] tokenScore = new float[16];
+    private int[] matchedTokens = new int[16];
+    private int[] touched = new int[64];
+
+    // field -> weight for one record type, e.g. description 0.4, category 0.25
+    public void setFieldWeights(String type, Map<String, Float> weights) {
+        fieldWeights.put(type, new HashMap<>(weights));
+    }
+
+    // word -> alternatives, matched at a slightly lower quality than the word
+    public void setSynonyms(Map<String, List<String>> map) {
+        synonyms.clear();
+        for (Map.Entry<String, List<String>> entry : map.entrySet()) {
+            List<String> normalized = new ArrayList<>();
+            for (String alternative : entry.getValue()) {
+                tokenize(alternative, normalized);
+            }
+            List<String> key = new ArrayList<>(1);
+            tokenize(entry.getKey(), key);
+            if (key.size() == 1 && !normalized.isEmpty()) {
+                synonyms.put(key.get(0), normalized);
+            }
+        }
+    }
+
+    // Inserts or replaces a record. fields keeps its text values; timestamp
+    // (epoch millis, 0 if unknown) breaks ties in favour of newer records.
+    public void put(String type, String id, Map<String, String> fields, long timestamp) {
+        remove(type, id);
+
+        int ordinal = nextOrdinal++;
+        ensureCapacity(nextOrdinal);
+        Map<String, Float> weights = fieldWeights.get(type);
+        Map<Postings, Boolean> seen = new IdentityHashMap<>();
+        List<String> tokens = new ArrayList<>();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            if (field.getValue() == null) {
+                continue;
+            }
+            Float configured = weights != null ? weights.get(field.getKey()) : null;
+            float weight = configured != null ? configured : DEFAULT_FIELD_WEIGHT;
+            tokens.clear();
+            tokenize(field.getValue(), tokens);
+            for (String token : tokens) {
+                Postings postings = terms.get(token);
+                if (postings == null) {
+                    postings = new Postings(token);
+                    terms.put(token, postings);
+                }
+                postings.add(ordinal, weight);
+                seen.put(postings, Boolean.TRUE);
+            }
+        }
+
+        ids[ordinal] = id;
+        docTypes[ordinal] = typeIndex(type);
+        timestamps[ordinal] = timestamp;
+        docPostings[ordinal] = seen.keySet().toArray(new Postings[0]);
+        ordinals.put(key(type, id), ordinal);
+        liveCount++;
+    }
+
+    public boolean remove(String type, String id) {
+        Integer ordinal = ordinals.remove(key(type, id));
+        if (ordinal == null) {
+            return false;
+        }
+        for (Postings postings : docPostings[ordinal]) {
+            postings.remove(ordinal);
+            if (postings.size == 0) {
+                terms.remove(postings.term);
+            }
+        }
+        ids[ordinal] = null;
+        docPostings[ordinal] = null;
+        liveCount--;
+        if (nextOrdinal - liveCount >= COMPACT_MIN_DEAD && nextOrdinal - liveCount > liveCount) {
+            compact();
+        }
+        return true;
+    }
+
+    // Drops every record of one type, or everything when type is null
+    public void clear(String type) {
+        if (type == null) {
+            terms.clear();
+            ordinals.clear();
+            Arrays.fill(ids, 0, nextOrdinal, null);
+            Arrays.fill(docPostings, 0, nextOrdinal, null);
+            nextOrdinal = 0;
+            liveCount = 0;
+            return;
+        }
+        int index = typeNames.indexOf(type);
+        if (index < 0) {
+            return;
+        }
+        List<String> doomed = new ArrayList<>();
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            if (ids[ordinal] != null && docTypes[ordinal] == index) {
+                doomed.add(ids[ordinal]);
+            }
+        }
+        for (String id : doomed) {
+            remove(type, id);
+        }
+    }
+
+    public int size() {
+        return liveCount;
+    }
+
+    // Best `limit` records matching every token of the query, highest score
+    // first. types restricts the record types searched; null means all.
+    public List<Hit> search(String query, Collection<String> types, int limit) {
+        List<String> tokens = new ArrayList<>();
+        tokenize(query, tokens);
+        if (tokens.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+        boolean[] allowedTypes = null;
+        if (types != null) {
+            allowedTypes = new boolean[typeNames.size()];
+            for (String type : types) {
+                int index = typeNames.indexOf(type);
+                if (index >= 0) {
+                    allowedTypes[index] = true;
+                }
+            }
+        }
+
+        // Expand each distinct token, then intersect the rarest first so the
+        // candidate set is as small as possible from the start
+        List<Expansion> expansions = new ArrayList<>();
+        for (String token : new LinkedHashSet<>(tokens)) {
+            Expansion expansion = expand(token);
+            if (expansion.postings.isEmpty()) {
+                return Collections.emptyList();
+            }
+            expansions.add(expansion);
+        }
+        expansions.sort((a, b) -> Long.compare(a.totalPostings, b.totalPostings));
+
+        int touchedCount = 0;
+        for (int step = 0; step < expansions.size(); step++) {
+            Expansion expansion = expansions.get(step);
+            for (int e = 0; e < expansion.postings.size(); e++) {
+                Postings postings = expansion.postings.get(e);
+                float quality = expansion.qualities[e];
+                for (int i = 0; i < postings.size; i++) {
+                    int doc = postings.docs[i];
+                    int matched = matchedTokens[doc];
+                    float score = quality * postings.weights[i];
+                    if (matched == step) {
+                        // First term of this token for the document
+                        if (step == 0) {
+                            if (allowedTypes != null && !allowedTypes[docTypes[doc]]) {
+                                continue;
+                            }
+                            if (touchedCount == touched.length) {
+                                touched = Arrays.copyOf(touched, touchedCount * 2);
+                            }
+                            touched[touchedCount++] = doc;
+                        }
+                        matchedTokens[doc] = step + 1;
+                        tokenScore[doc] = score;
+                        accumulated[doc] += score;
+                    } else if (matched == step + 1 && score > tokenScore[doc]) {
+                        accumulated[doc] += score - tokenScore[doc];
+                        tokenScore[doc] = score;
+                    }
+                }
+            }
+        }
+
+        int required = expansions.size();
+        PriorityQueue<Integer> heap = new PriorityQueue<>(limit + 1, this::compareRank);
+        for (int i = 0; i < touchedCount; i++) {
+            int doc = touched[i];
+            if (matchedTokens[doc] == required) {
+                if (heap.size() < limit) {
+                    heap.add(doc);
+                } else if (compareRank(doc, heap.peek()) > 0) {
+                    heap.poll();
+                    heap.add(doc);
+                }
+            }
+        }
+
+        Hit[] hits = new Hit[heap.size()];
+        for (int i = hits.length - 1; i >= 0; i--) {
+            int doc = heap.poll();
+            hits[i] = new Hit(typeNames.get(docTypes[doc]), ids[doc], accumulated[doc]);
+        }
+        for (int i = 0; i < touchedCount; i++) {
+            int doc = touched[i];
+            accumulated[doc] = 0f;
+            tokenScore[doc] = 0f;
+            matchedTokens[doc] = 0;
+        }
+        return Arrays.asList(hits);
+    }
+
+    public Stats stats() {
+        Stats stats = new Stats();
+        stats.documents = liveCount;
+        stats.terms = terms.size();
+        for (Postings postings : terms.values()) {
+            stats.postings += postings.size;
+        }
+        stats.deletedSlots = nextOrdinal - liveCount;
+        return stats;
+    }
+
+    // Matching terms for one query token with their match quality
+    private static final class Expansion {
+        final List<Postings> postings = new ArrayList<>();
+        float[] qualities = new float[8];
+        long totalPostings;
+
+        void add(Postings term, float quality, Map<Postings, Integer> positions) {
+            Integer existing = positions.get(term);
+            if (existing != null) {
+                qualities[existing] = Math.max(qualities[existing], quality);
+                return;
+            }
+            if (postings.size() == qualities.length) {
+                qualities = Arrays.copyOf(qualities, qualities.length * 2);
+            }
+            positions.put(term, postings.size());
+            qualities[postings.size()] = quality;
+            postings.add(term);
+            totalPostings += term.size;
+        }
+    }
+
+    private Expansion expand(String token) {
+        Expansion expansion = new Expansion();
+        Map<Postings, Integer> positions = new IdentityHashMap<>();
+
+        Postings exact = terms.get(token);
+        if (exact != null) {
+            expansion.add(exact, EXACT_QUALITY, positions);
+        }
+
+        SortedMap<String, Postings> prefixed = terms.subMap(token, token + Character.MAX_VALUE);
+        int taken = 0;
+        for (Postings postings : prefixed.values()) {
+            if (postings == exact) {
+                continue;
+            }
+            if (taken++ == MAX_PREFIX_TERMS) {
+                break;
+            }
+            float typed = (float) token.length() / postings.term.length();
+            expansion.add(postings,
+                PREFIX_BASE_QUALITY + (PREFIX_MAX_QUALITY - PREFIX_BASE_QUALITY) * typed, positions);
+        }
+
+        List<String> alternatives = synonyms.get(token);
+        if (alternatives != null) {
+            for (String alternative : alternatives) {
+                Postings postings = terms.get(alternative);
+                if (postings != null) {
+                    expansion.add(postings, SYNONYM_QUALITY, positions);
+                }
+            }
+        }
+
+        if (token.length() >= FUZZY_MIN_LENGTH && !isNumber(token)) {
+            int maxDistance = token.length() >= FUZZY2_MIN_LENGTH ? 2 : 1;
+            // Typos in the first letter are rare; staying under it keeps the scan short
+            char first = token.charAt(0);
+            for (Postings postings : terms.subMap(String.valueOf(first), first + String.valueOf(Character.MAX_VALUE)).values()) {
+                String term = postings.term;
+                if (Math.abs(term.length() - token.length()) > maxDistance || term.equals(token)) {
+                    continue;
+                }
+                int distance = boundedDistance(token, term, maxDistance);
+                if (distance <= maxDistance) {
+                    expansion.add(postings, distance == 1 ? FUZZY_QUALITY : FUZZY2_QUALITY, positions);
+                }
+            }
+        }
+        return expansion;
+    }
+
+    // Higher score wins, then the newer record, then the most recently indexed
+    private int compareRank(int a, int b) {
+        int byScore = Float.compare(accumulated[a], accumulated[b]);
+        if (byScore != 0) {
+            return byScore;
+        }
+        int byTime = Long.compare(timestamps[a], timestamps[b]);
+        return byTime != 0 ? byTime : Integer.compare(a, b);
+    }
+
+    // Optimal string alignment distance, or maxDistance + 1 once it is exceeded
+    static int boundedDistance(String a, String b, int maxDistance) {
+        int n = a.length();
+        int m = b.length();
+        int[] previous2 = new int[m + 1];
+        int[] previous = new int[m + 1];
+        int[] current = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= n; i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char ca = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                char cb = b.charAt(j - 1);
+                int cost = ca == cb ? 0 : 1;
+                int value = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && ca == b.charAt(j - 2) && a.charAt(i - 2) == cb) {
+                    value = Math.min(value, previous2[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            if (rowMin > maxDistance) {
+                return maxDistance + 1;
+            }
+            int[] recycled = previous2;
+            previous2 = previous;
+            previous = current;
+            current = recycled;
+        }
+        return Math.min(previous[m], maxDistance + 1);
+    }
+
+    // Lower-cased, accent-folded words and numbers. "1,250.50" becomes
+    // "1250.5" plus "1250", so amounts match however they are typed.
+    static void tokenize(String text, List<String> out) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        String folded = fold(text);
+        int length = folded.length();
+        StringBuilder token = new StringBuilder();
+        boolean numeric = true;
+        for (int i = 0; i <= length; i++) {
+            char c = i < length ? folded.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+                numeric &= c >= '0' && c <= '9';
+                continue;
+            }
+            boolean betweenDigits = numeric && token.length() > 0 && i + 1 < length
+                && Character.isDigit(folded.charAt(i + 1));
+            if (betweenDigits && c == ',') {
+                continue;
+            }
+            if (betweenDigits && c == '.' && token.indexOf(".") < 0) {
+                token.append(c);
+                continue;
+            }
+            if (token.length() > 0) {
+                emit(token.toString(), out);
+                token.setLength(0);
+            }
+            numeric = true;
+        }
+    }
+
+    private static void emit(String token, List<String> out) {
+        int dot = token.indexOf('.');
+        if (dot < 0) {
+            out.add(token);
+            return;
+        }
+        int end = token.length();
+        while (end > dot + 1 && token.charAt(end - 1) == '0') {
+            end--;
+        }
+        String whole = token.substring(0, dot);
+        if (end == dot + 1) {
+            out.add(whole);
+        } else {
+            out.add(token.substring(0, end));
+            out.add(whole);
+        }
+    }
+
+    private static String fold(String text) {
+        boolean ascii = true;
+        for (int i = 0; i < text.length() && ascii; i++) {
+            ascii = text.charAt(i) < 0x80;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        if (ascii) {
+            return lower;
+        }
+        return Normalizer.normalize(lower, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+    }
+
+    private static boolean isNumber(String token) {
+        return Character.isDigit(token.charAt(0));
+    }
+
+    private static String key(String type, String id) {
+        return type + '\u0000' + id;
+    }
+
+    private int typeIndex(String type) {
+        int index = typeNames.indexOf(type);
+        if (index < 0) {
+            typeNames.add(type);
+            index = typeNames.size() - 1;
+        }
+        return index;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = Math.max(required, ids.length * 2);
+        ids = Arrays.copyOf(ids, capacity);
+        docTypes = Arrays.copyOf(docTypes, capacity);
+        timestamps = Arrays.copyOf(timestamps, capacity);
+        docPostings = Arrays.copyOf(docPostings, capacity);
+        accumulated = Arrays.copyOf(accumulated, capacity);
+        tokenScore = Arrays.copyOf(tokenScore, capacity);
+        matchedTokens = Arrays.copyOf(matchedTokens, capacity);
+    }
+
+    // Renumbers live records densely; order is preserved so postings stay sorted
+    private void compact() {
+        int[] remap = new int[nextOrdinal];
+        int live = 0;
+        for (int ordinal = 0; ordinal < nextOrdinal; ordinal++) {
+            if (ids[ordinal] == null) {
+                remap[ordinal] = -1;
+                continue;
+            }
+            remap[ordinal] = live;
+            ids[live] = ids[ordinal];
+            docTypes[live] = docTypes[ordinal];
+            timestamps[live] = timestamps[ordinal];
+            docPostings[live] = docPostings[ordinal];
+            live++;
+        }
+        Arrays.fill(ids, live, nextOrdinal, null);
+        Arrays.fill(docPostings, live, nextOrdinal, null);
+        for (Postings postings : terms.values()) {
+            for (int i = 0; i < postings.size; i++) {
+                postings.docs[i] = remap[postings.docs[i]];
+            }
+        }
+        for (Map.Entry<String, Integer> entry : ordinals.entrySet()) {
+            entry.setValue(remap[entry.getValue()]);
+        }
+        nextOrdinal = live;
+    }
+}
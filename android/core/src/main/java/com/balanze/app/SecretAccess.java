@@ -0,0 +1,69 @@
+package com.balanze.app;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+
+// Decides which page may read the key-value store's secrets (the auth
+// session, the remembered email). The WebView may navigate anywhere and
+// hosts payment iframes, so secrets only go to the app's own origin in the
+// top frame; everything else gets none of them.
+public final class SecretAccess {
+
+    private final String appOrigin;
+
+    // appUrl: the page's local URL, e.g. https://localhost
+    public SecretAccess(String appUrl) {
+        String origin = origin(appUrl);
+        if (origin == null) {
+            throw new IllegalArgumentException("Not an http(s) URL: " + appUrl);
+        }
+        this.appOrigin = origin;
+    }
+
+    // scheme://host[:port], the form WebView origin rules take
+    public String appOrigin() {
+        return appOrigin;
+    }
+
+    public boolean allows(String sourceOrigin, boolean isMainFrame) {
+        return isMainFrame && appOrigin.equals(origin(sourceOrigin));
+    }
+
+    // The secrets the page at sourceOrigin may read: all or none
+    public Map<String, String> secretsFor(KeyValueLog log, String sourceOrigin, boolean isMainFrame) {
+        if (!allows(sourceOrigin, isMainFrame)) {
+            return Collections.emptyMap();
+        }
+        return log.secrets();
+    }
+
+    // Lower-cased, default port dropped; null for anything but an absolute http(s) URL
+    static String origin(String url) {
+        if (url == null) {
+            return null;
+        }
+        URI uri;
+        try {
+            uri = new URI(url);
+        } catch (URISyntaxException e) {
+            return null;
+        }
+        String scheme = uri.getScheme();
+        String host = uri.getHost();
+        if (scheme == null || host == null) {
+            return null;
+        }
+        scheme = scheme.toLowerCase(Locale.ROOT);
+        if (!scheme.equals("https") && !scheme.equals("http")) {
+            return null;
+        }
+        int port = uri.getPort();
+        if ((scheme.equals("https") && port == 443) || (scheme.equals("http") && port == 80)) {
+            port = -1;
+        }
+        return scheme + "://" + host.toLowerCase(Locale.ROOT) + (port == -1 ? "" : ":" + port);
+    }
+}
@@ -0,0 +1,255 @@
+package com.balanze.app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Applies WriteOutbox mutations through Supabase's PostgREST endpoint with
+// the signed-in user's access token, so row level security still applies.
+// Rows are addressed by their key column (transaction_id for transactions),
+// never by a server-generated id, which keeps every write idempotent:
+// inserts first look up which keys already exist and only send the rest in
+// one request, deletes go out as one key-list request, and updates (which
+// PostgREST cannot batch with different values) go one request per row.
+// A request the server refuses is a conflict; network failures, 5xx, 401
+// (expired token) and 429 are thrown so the outbox retries later.
+public class SupabaseOutboxSink implements WriteOutbox.Sink {
+
+    private static final int CONNECT_TIMEOUT_MS = 15000;
+    private static final int READ_TIMEOUT_MS = 30000;
+
+    private static final class Response {
+        final int status;
+        final String body;
+
+        Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    private final String supabaseUrl;
+    private final String anonKey;
+    private final String accessToken;
+    private final String userId;
+
+    public SupabaseOutboxSink(String supabaseUrl, String anonKey, String accessToken, String userId) {
+        this.supabaseUrl = supabaseUrl.endsWith("/") ? supabaseUrl.substring(0, supabaseUrl.length() - 1) : supabaseUrl;
+        this.anonKey = anonKey;
+        this.accessToken = accessToken;
+        this.userId = userId;
+    }
+
+    @Override
+    public List<WriteOutbox.Outcome> apply(List<WriteOutbox.Mutation> run) throws IOException {
+        String op = run.get(0).op;
+        try {
+            if (WriteOutbox.INSERT.equals(op)) {
+                return insert(run);
+            }
+            if (WriteOutbox.DELETE.equals(op)) {
+                return delete(run);
+            }
+            List<WriteOutbox.Outcome> outcomes = new ArrayList<>(run.size());
+            for (WriteOutbox.Mutation mutation : run) {
+                outcomes.add(update(mutation));
+            }
+            return outcomes;
+        } catch (JSONException e) {
+            throw new IOException("Could not build " + op + " for " + run.get(0).table, e);
+        }
+    }
+
+    private List<WriteOutbox.Outcome> insert(List<WriteOutbox.Mutation> run) throws IOException, JSONException {
+        WriteOutbox.Mutation first = run.get(0);
+        // An earlier flush may have inserted these before its response was lost
+        Set<String> existing = existingKeys(first.table, first.keyColumn, run);
+        List<WriteOutbox.Mutation> missing = new ArrayList<>();
+        JSONArray rows = new JSONArray();
+        for (WriteOutbox.Mutation mutation : run) {
+            if (!existing.contains(mutation.key)) {
+                missing.add(mutation);
+                rows.put(row(mutation));
+            }
+        }
+        List<WriteOutbox.Outcome> outcomes = new ArrayList<>(run.size());
+        if (missing.isEmpty()) {
+            for (int i = 0; i < run.size(); i++) {
+                outcomes.add(WriteOutbox.Outcome.applied());
+            }
+            return outcomes;
+        }
+
+        Response response = request("POST", supabaseUrl + "/rest/v1/" + first.table, rows.toString());
+        if (isSuccess(response)) {
+            for (int i = 0; i < run.size(); i++) {
+                outcomes.add(WriteOutbox.Outcome.applied());
+            }
+            return outcomes;
+        }
+        if (missing.size() == 1) {
+            for (WriteOutbox.Mutation mutation : run) {
+                outcomes.add(existing.contains(mutation.key)
+                    ? WriteOutbox.Outcome.applied() : WriteOutbox.Outcome.conflict(conflictMessage(response)));
+            }
+            return outcomes;
+        }
+        // The whole request was refused; find out which rows are to blame
+        for (WriteOutbox.Mutation mutation : run) {
+            if (existing.contains(mutation.key)) {
+                outcomes.add(WriteOutbox.Outcome.applied());
+                continue;
+            }
+            Response single = request("POST", supabaseUrl + "/rest/v1/" + mutation.table,
+                new JSONArray().put(row(mutation)).toString());
+            outcomes.add(isSuccess(single)
+                ? WriteOutbox.Outcome.applied() : WriteOutbox.Outcome.conflict(conflictMessage(single)));
+        }
+        return outcomes;
+    }
+
+    private WriteOutbox.Outcome update(WriteOutbox.Mutation mutation) throws IOException, JSONException {
+        String url = supabaseUrl + "/rest/v1/" + mutation.table + "?" + mutation.keyColumn + "=eq." + encode(mutation.key)
+            + "&user_id=eq." + encode(userId) + "&select=" + mutation.keyColumn;
+        Response response = request("PATCH", url, row(mutation).toString());
+        if (!isSuccess(response)) {
+            return WriteOutbox.Outcome.conflict(conflictMessage(response));
+        }
+        if (new JSONArray(response.body).length() == 0) {
+            return WriteOutbox.Outcome.conflict("The row no longer exists");
+        }
+        return WriteOutbox.Outcome.applied();
+    }
+
+    private List<WriteOutbox.Outcome> delete(List<WriteOutbox.Mutation> run) throws IOException {
+        WriteOutbox.Mutation first = run.get(0);
+        String url = supabaseUrl + "/rest/v1/" + first.table + "?" + first.keyColumn + "=in." + encode(keyList(run))
+            + "&user_id=eq." + encode(userId);
+        Response response = request("DELETE", url, null);
+        List<WriteOutbox.Outcome> outcomes = new ArrayList<>(run.size());
+        for (int i = 0; i < run.size(); i++) {
+            // Deleting a row that is already gone is still a success
+            outcomes.add(isSuccess(response)
+                ? WriteOutbox.Outcome.applied() : WriteOutbox.Outcome.conflict(conflictMessage(response)));
+        }
+        return outcomes;
+    }
+
+    private Set<String> existingKeys(String table, String keyColumn, List<WriteOutbox.Mutation> run)
+        throws IOException, JSONException {
+        String url = supabaseUrl + "/rest/v1/" + table + "?select=" + keyColumn
+            + "&" + keyColumn + "=in." + encode(keyList(run))
+            + "&user_id=eq." + encode(userId);
+        Response response = request("GET", url, null);
+        if (!isSuccess(response)) {
+            throw new IOException("Checking " + table + " failed with HTTP " + response.status + ": " + response.body);
+        }
+        JSONArray rows = new JSONArray(response.body);
+        Set<String> keys = new HashSet<>();
+        for (int i = 0; i < rows.length(); i++) {
+            keys.add(rows.getJSONObject(i).getString(keyColumn));
+        }
+        return keys;
+    }
+
+    private JSONObject row(WriteOutbox.Mutation mutation) throws JSONException {
+        JSONObject row = new JSONObject(mutation.payload);
+        row.put(mutation.keyColumn, mutation.key);
+        row.put("user_id", userId);
+        return row;
+    }
+
+    // PostgREST in.() list; values are quoted because keys may contain commas
+    private static String keyList(List<WriteOutbox.Mutation> run) {
+        StringBuilder keys = new StringBuilder("(");
+        for (int i = 0; i < run.size(); i++) {
+            if (i > 0) {
+                keys.append(',');
+            }
+            keys.append('"').append(run.get(i).key.replace("\\", "\\\\").replace("\"", "\\\"")).append('"');
+        }
+        return keys.append(')').toString();
+    }
+
+    private static boolean isSuccess(Response response) {
+        return response.status >= 200 && response.status < 300;
+    }
+
+    private static String conflictMessage(Response response) {
+        try {
+            JSONObject error = new JSONObject(response.body);
+            String message = error.optString("message", "");
+            if (!message.isEmpty()) {
+                return message;
+            }
+        } catch (JSONException e) {
+            // Not a PostgREST error body
+        }
+        return "HTTP " + response.status + (response.body.isEmpty() ? "" : ": " + response.body);
+    }
+
+    // Returns 2xx and refusals; throws for anything worth retrying
+    private Response request(String method, String url, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            // Android's HttpURLConnection accepts PATCH (the JDK's does not)
+            connection.setRequestMethod(method);
+            connection.setRequestProperty("apikey", anonKey);
+            connection.setRequestProperty("Authorization", "Bearer " + accessToken);
+            connection.setRequestProperty("Accept", "application/json");
+            connection.setRequestProperty("Prefer", "PATCH".equals(method) ? "return=representation" : "return=minimal");
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            int status = connection.getResponseCode();
+            boolean success = status >= 200 && status < 300;
+            String text = readBody(success ? connection.getInputStream() : connection.getErrorStream());
+            if (!success && (status >= 500 || status == HttpURLConnection.HTTP_UNAUTHORIZED
+                || status == HttpURLConnection.HTTP_CLIENT_TIMEOUT || status == 429)) {
+                throw new IOException(method + " " + url.substring(supabaseUrl.length()) + " failed with HTTP "
+                    + status + ": " + text);
+            }
+            return new Response(status, text);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static String encode(String value) throws IOException {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+    }
+
+    private static String readBody(InputStream stream) throws IOException {
+        if (stream == null) {
+            return "";
+        }
+        StringBuilder body = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                body.append(buffer, 0, read);
+            }
+        }
+        return body.toString();
+    }
+}
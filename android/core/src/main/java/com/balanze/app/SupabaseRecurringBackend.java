@@ -0,0 +1,215 @@
+package com.balanze.app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// RecurringTransactionScheduler's reads and writes against Supabase's
+// PostgREST endpoint, with the signed-in user's access token so row level
+// security still applies. Instances are inserted against the unique key on
+// (parent_recurring_id, date) from add_recurring_instance_unique_key.sql,
+// ignoring rows that already exist.
+public class SupabaseRecurringBackend implements RecurringTransactionScheduler.Backend {
+
+    private static final int CONNECT_TIMEOUT_MS = 15000;
+    private static final int READ_TIMEOUT_MS = 30000;
+    private static final String TEMPLATE_COLUMNS = "id,user_id,account_id,type,description,category,tags,date,"
+        + "recurring_frequency,next_occurrence_date,recurring_end_date,is_paused,occurrence_count";
+
+    private final String supabaseUrl;
+    private final String anonKey;
+    private final String accessToken;
+
+    public SupabaseRecurringBackend(String supabaseUrl, String anonKey, String accessToken) {
+        this.supabaseUrl = supabaseUrl.endsWith("/") ? supabaseUrl.substring(0, supabaseUrl.length() - 1) : supabaseUrl;
+        this.anonKey = anonKey;
+        this.accessToken = accessToken;
+    }
+
+    @Override
+    public List<RecurringTransactionScheduler.Template> recurringTemplates(String userId, int today) throws IOException {
+        String url = supabaseUrl + "/rest/v1/transactions?select=" + TEMPLATE_COLUMNS
+            + "&user_id=eq." + encode(userId)
+            + "&is_recurring=eq.true"
+            + "&is_paused=not.is.true"
+            // A null next date marks a finished series (see the server cron); lte leaves those out
+            + "&next_occurrence_date=lte." + RecurringTransactionScheduler.formatDay(today)
+            + "&order=id.asc";
+        try {
+            JSONArray rows = new JSONArray(request("GET", url, null));
+            List<RecurringTransactionScheduler.Template> templates = new ArrayList<>(rows.length());
+            for (int i = 0; i < rows.length(); i++) {
+                JSONObject row = rows.getJSONObject(i);
+                if (row.isNull("date")) {
+                    continue;
+                }
+                List<String> tags = new ArrayList<>();
+                JSONArray tagArray = row.optJSONArray("tags");
+                if (tagArray != null) {
+                    for (int t = 0; t < tagArray.length(); t++) {
+                        tags.add(tagArray.getString(t));
+                    }
+                }
+                templates.add(new RecurringTransactionScheduler.Template(
+                    row.getString("id"),
+                    row.getString("user_id"),
+                    row.getString("account_id"),
+                    row.getString("type"),
+                    row.isNull("description") ? null : row.getString("description"),
+                    row.isNull("category") ? null : row.getString("category"),
+                    tags,
+                    row.optString("recurring_frequency"),
+                    RecurringTransactionScheduler.parseDay(row.getString("date")),
+                    optDay(row, "next_occurrence_date"),
+                    optDay(row, "recurring_end_date"),
+                    row.optBoolean("is_paused", false),
+                    row.optInt("occurrence_count", 0)));
+            }
+            return templates;
+        } catch (JSONException e) {
+            throw new IOException("Unexpected recurring transactions response", e);
+        }
+    }
+
+    @Override
+    public Set<Integer> existingOccurrences(String parentId, int fromDay, int toDay) throws IOException {
+        String url = supabaseUrl + "/rest/v1/transactions?select=date"
+            + "&parent_recurring_id=eq." + encode(parentId)
+            + "&date=gte." + RecurringTransactionScheduler.formatDay(fromDay)
+            + "&date=lte." + RecurringTransactionScheduler.formatDay(toDay);
+        try {
+            JSONArray rows = new JSONArray(request("GET", url, null));
+            Set<Integer> days = new HashSet<>();
+            for (int i = 0; i < rows.length(); i++) {
+                days.add(RecurringTransactionScheduler.parseDay(rows.getJSONObject(i).getString("date")));
+            }
+            return days;
+        } catch (JSONException e) {
+            throw new IOException("Unexpected occurrences response", e);
+        }
+    }
+
+    @Override
+    public void insertOccurrences(List<RecurringTransactionScheduler.Occurrence> occurrences) throws IOException {
+        String now = localTimestamp();
+        JSONArray rows = new JSONArray();
+        try {
+            for (RecurringTransactionScheduler.Occurrence occurrence : occurrences) {
+                RecurringTransactionScheduler.Template template = occurrence.template;
+                JSONObject row = new JSONObject();
+                row.put("user_id", template.userId);
+                row.put("account_id", template.accountId);
+                row.put("type", template.type);
+                // Instances start at 0 for the user to fill in, as in the web layer
+                row.put("amount", 0);
+                row.put("description", template.description != null ? template.description : JSONObject.NULL);
+                row.put("category", template.category != null ? template.category : JSONObject.NULL);
+                row.put("date", RecurringTransactionScheduler.formatDay(occurrence.day));
+                row.put("tags", new JSONArray(template.tags));
+                row.put("saving_amount", 0);
+                row.put("donation_amount", 0);
+                row.put("is_recurring", false);
+                row.put("parent_recurring_id", template.id);
+                row.put("transaction_id", occurrence.transactionId);
+                row.put("created_at", now);
+                row.put("updated_at", now);
+                rows.put(row);
+            }
+        } catch (JSONException e) {
+            throw new IOException("Could not build occurrence rows", e);
+        }
+        request("POST", supabaseUrl + "/rest/v1/transactions?on_conflict=parent_recurring_id,date",
+            rows.toString(), "resolution=ignore-duplicates,return=minimal");
+    }
+
+    @Override
+    public void advance(String parentId, Integer nextDay, int occurrenceCount) throws IOException {
+        JSONObject update = new JSONObject();
+        try {
+            update.put("occurrence_count", occurrenceCount);
+            update.put("next_occurrence_date",
+                nextDay != null ? RecurringTransactionScheduler.formatDay(nextDay) : JSONObject.NULL);
+            update.put("updated_at", localTimestamp());
+        } catch (JSONException e) {
+            throw new IOException("Could not build update", e);
+        }
+        request("PATCH", supabaseUrl + "/rest/v1/transactions?id=eq." + encode(parentId), update.toString());
+    }
+
+    private String request(String method, String url, String body) throws IOException {
+        return request(method, url, body, "return=minimal");
+    }
+
+    private String request(String method, String url, String body, String prefer) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            // Android's HttpURLConnection accepts PATCH (the JDK's does not)
+            connection.setRequestMethod(method);
+            connection.setRequestProperty("apikey", anonKey);
+            connection.setRequestProperty("Authorization", "Bearer " + accessToken);
+            connection.setRequestProperty("Accept", "application/json");
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setRequestProperty("Prefer", prefer);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            int status = connection.getResponseCode();
+            if (status < 200 || status >= 300) {
+                throw new IOException(method + " transactions failed with HTTP " + status + ": "
+                    + readBody(connection.getErrorStream()));
+            }
+            return readBody(connection.getInputStream());
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private static Integer optDay(JSONObject row, String column) throws JSONException {
+        return row.isNull(column) ? null : RecurringTransactionScheduler.parseDay(row.getString(column));
+    }
+
+    // Local wall time with a Z suffix, the format getLocalISOString writes
+    private static String localTimestamp() {
+        return new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'", Locale.US).format(new Date());
+    }
+
+    private static String encode(String value) throws IOException {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+    }
+
+    private static String readBody(InputStream stream) throws IOException {
+        if (stream == null) {
+            return "";
+        }
+        StringBuilder body = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                body.append(buffer, 0, read);
+            }
+        }
+        return body.toString();
+    }
+}
@@ -0,0 +1,91 @@
+package com.balanze.app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import org.json.JSONArray;
+import org.json.JSONException;
+
+// Reads changed rows straight from Supabase's PostgREST endpoint using the
+// signed-in user's access token, so row level security still applies.
+public class SupabaseRowSource implements DeltaSyncEngine.RowSource {
+
+    private static final int CONNECT_TIMEOUT_MS = 15000;
+    private static final int READ_TIMEOUT_MS = 30000;
+
+    private final String supabaseUrl;
+    private final String anonKey;
+    private final String accessToken;
+
+    public SupabaseRowSource(String supabaseUrl, String anonKey, String accessToken) {
+        this.supabaseUrl = supabaseUrl.endsWith("/") ? supabaseUrl.substring(0, supabaseUrl.length() - 1) : supabaseUrl;
+        this.anonKey = anonKey;
+        this.accessToken = accessToken;
+    }
+
+    @Override
+    public JSONArray fetchChangedRows(LedgerTable table, String userId, DeltaSyncEngine.SyncMark since, int limit)
+        throws IOException, JSONException {
+        StringBuilder url = new StringBuilder(supabaseUrl)
+            .append("/rest/v1/").append(table.tableName)
+            .append("?select=*")
+            .append("&user_id=eq.").append(encode(userId))
+            .append("&order=").append(table.syncField).append(".asc.nullsfirst,id.asc")
+            .append("&limit=").append(limit);
+        if (since != null) {
+            url.append("&or=").append(encode(afterMarkFilter(table.syncField, since)));
+        }
+
+        HttpURLConnection connection = (HttpURLConnection) new URL(url.toString()).openConnection();
+        try {
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            connection.setRequestProperty("apikey", anonKey);
+            connection.setRequestProperty("Authorization", "Bearer " + accessToken);
+            connection.setRequestProperty("Accept", "application/json");
+
+            int status = connection.getResponseCode();
+            if (status != HttpURLConnection.HTTP_OK) {
+                throw new IOException("Fetching " + table.tableName + " failed with HTTP " + status + ": "
+                    + readBody(connection.getErrorStream()));
+            }
+            return new JSONArray(readBody(connection.getInputStream()));
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    // Keyset condition matching order=<field>.asc.nullsfirst,id.asc.
+    // Values are quoted because timestamps contain PostgREST's reserved characters.
+    static String afterMarkFilter(String field, DeltaSyncEngine.SyncMark since) {
+        if (since.updatedAt == null) {
+            return "(" + field + ".not.is.null,and(" + field + ".is.null,id.gt.\"" + since.lastId + "\"))";
+        }
+        return "(" + field + ".gt.\"" + since.updatedAt + "\",and(" + field + ".eq.\"" + since.updatedAt
+            + "\",id.gt.\"" + since.lastId + "\"))";
+    }
+
+    private static String encode(String value) throws IOException {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8.name());
+    }
+
+    private static String readBody(InputStream stream) throws IOException {
+        if (stream == null) {
+            return "";
+        }
+        StringBuilder body = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                body.append(buffer, 0, read);
+            }
+        }
+        return body.toString();
+    }
+}
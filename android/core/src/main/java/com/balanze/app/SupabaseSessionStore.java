@@ -0,0 +1,161 @@
+package com.balanze.app;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.function.LongSupplier;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// The Supabase session supabase-js keeps in the key-value store, sealed as
+// a secret under its storage key (src/lib/supabase.ts), read by background
+// work that runs while no page is open. An access token that is about to
+// expire is refreshed first. That rotates the refresh token, so the new
+// session is written back under the same key, where the page reads it on its
+// next launch. Only call current() while no page is running: a page holds
+// its session in memory and would later refresh with the rotated-out token,
+// which Supabase answers by revoking the session.
+public class SupabaseSessionStore {
+
+    public static final class Session {
+        public final String userId;
+        public final String accessToken;
+        public final String refreshToken;
+        public final long expiresAtMs;
+
+        Session(String userId, String accessToken, String refreshToken, long expiresAtMs) {
+            this.userId = userId;
+            this.accessToken = accessToken;
+            this.refreshToken = refreshToken;
+            this.expiresAtMs = expiresAtMs;
+        }
+    }
+
+    // Exchanges a refresh token for a new session (the token endpoint's JSON)
+    public interface Transport {
+        String refresh(String refreshToken) throws IOException;
+    }
+
+    // The server refused the refresh token (revoked, already rotated): the
+    // user has to sign in again, retrying will not help
+    public static class RefreshRejectedException extends IOException {
+        public RefreshRejectedException(String message) {
+            super(message);
+        }
+    }
+
+    private static final int CONNECT_TIMEOUT_MS = 15000;
+    private static final int READ_TIMEOUT_MS = 30000;
+
+    private final KeyValueLog log;
+    private final String key;
+    private final Transport transport;
+    private final LongSupplier clock;
+
+    public SupabaseSessionStore(KeyValueLog log, String key, Transport transport, LongSupplier clock) {
+        this.log = log;
+        this.key = key;
+        this.transport = transport;
+        this.clock = clock;
+    }
+
+    // The stored session with an access token valid for at least marginMs,
+    // refreshed and written back when needed; null when none is stored
+    public synchronized Session current(long marginMs) throws IOException {
+        String stored = log.getString(key, null);
+        if (stored == null) {
+            return null;
+        }
+        Session session;
+        try {
+            session = parse(new JSONObject(stored), clock.getAsLong());
+        } catch (JSONException e) {
+            throw new IOException("Stored session is not readable", e);
+        }
+        if (clock.getAsLong() < session.expiresAtMs - marginMs) {
+            return session;
+        }
+
+        String refreshed = transport.refresh(session.refreshToken);
+        try {
+            JSONObject json = new JSONObject(refreshed);
+            Session next = parse(json, clock.getAsLong());
+            // supabase-js reads expires_at back; older token endpoints only send expires_in
+            json.put("expires_at", next.expiresAtMs / 1000);
+            log.apply(new KeyValueLog.Batch().putSecret(key, json.toString()));
+            log.sync();
+            return next;
+        } catch (JSONException e) {
+            throw new IOException("Refreshed session is not readable", e);
+        }
+    }
+
+    static Session parse(JSONObject json, long nowMs) throws JSONException {
+        long expiresAtMs = json.has("expires_at")
+            ? json.getLong("expires_at") * 1000L
+            : nowMs + json.getLong("expires_in") * 1000L;
+        return new Session(
+            json.getJSONObject("user").getString("id"),
+            json.getString("access_token"),
+            json.getString("refresh_token"),
+            expiresAtMs);
+    }
+
+    // POST /auth/v1/token?grant_type=refresh_token
+    public static Transport http(String supabaseUrl, String anonKey) {
+        String base = supabaseUrl.endsWith("/") ? supabaseUrl.substring(0, supabaseUrl.length() - 1) : supabaseUrl;
+        return refreshToken -> {
+            String body;
+            try {
+                body = new JSONObject().put("refresh_token", refreshToken).toString();
+            } catch (JSONException e) {
+                throw new IOException("Could not build refresh request", e);
+            }
+            HttpURLConnection connection = (HttpURLConnection) new URL(base + "/auth/v1/token?grant_type=refresh_token")
+                .openConnection();
+            try {
+                connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+                connection.setReadTimeout(READ_TIMEOUT_MS);
+                connection.setRequestMethod("POST");
+                connection.setRequestProperty("apikey", anonKey);
+                connection.setRequestProperty("Accept", "application/json");
+                connection.setRequestProperty("Content-Type", "application/json");
+                connection.setDoOutput(true);
+                try (OutputStream out = connection.getOutputStream()) {
+                    out.write(body.getBytes(StandardCharsets.UTF_8));
+                }
+                int status = connection.getResponseCode();
+                if (status >= 400 && status < 500 && status != 429) {
+                    throw new RefreshRejectedException("Session refresh refused with HTTP " + status + ": "
+                        + readBody(connection.getErrorStream()));
+                }
+                if (status < 200 || status >= 300) {
+                    throw new IOException("Session refresh failed with HTTP " + status);
+                }
+                return readBody(connection.getInputStream());
+            } finally {
+                connection.disconnect();
+            }
+        };
+    }
+
+    private static String readBody(InputStream stream) throws IOException {
+        if (stream == null) {
+            return "";
+        }
+        StringBuilder body = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                body.append(buffer, 0, read);
+            }
+        }
+        return body.toString();
+    }
+}
@@ -0,0 +1,18 @@
+package com.balanze.app;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+// Streams transaction rows into an export file. Implementations only keep a
+// bounded amount of output buffered; rows are never collected in memory.
+public interface TransactionExportWriter extends Closeable {
+
+    String[] HEADERS = { "Date", "Description", "Category", "Account", "Type", "Amount", "Tags" };
+
+    int BUFFER_SIZE = 64 * 1024;
+
+    void writeRow(ExportRow row) throws IOException;
+
+    // Writes the summary and completes the document; close() is still required
+    void finish(ExportSummary summary) throws IOException;
+}
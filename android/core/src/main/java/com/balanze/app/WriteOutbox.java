@@ -0,0 +1,480 @@
+package com.balanze.app;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.LongSupplier;
+import java.util.zip.CRC32;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+// Durable queue of row writes made while Supabase could not be reached.
+// Every change is appended to a journal of CRC-framed records (PUT replaces
+// the mutation stored under a sequence number, REMOVE retires one), so a
+// crash at any point loses at most a torn last record, which replay drops.
+// Mutations are flushed oldest first in batches; consecutive mutations of
+// the same table and kind go to the sink together. A write to a row that
+// still has an unsent mutation is folded into it (update into insert,
+// update into update, delete cancels an unsent insert), keeping the
+// original position so the order between rows is preserved.
+// Thread-safe. The sink is called outside the lock, so writes can still be
+// queued while a flush waits on the network; mutations being sent are not
+// folded into.
+public class WriteOutbox {
+
+    public static final int DEFAULT_BATCH_SIZE = 50;
+
+    public static final String INSERT = "insert";
+    public static final String UPDATE = "update";
+    public static final String DELETE = "delete";
+
+    private static final byte RECORD_PUT = 1;
+    private static final byte RECORD_REMOVE = 2;
+    private static final int MAX_RECORD_BYTES = 4 * 1024 * 1024;
+    private static final long FIRST_BACKOFF_MS = 2_000;
+    private static final long MAX_BACKOFF_MS = 10 * 60 * 1000L;
+    // Compacted once retired records outnumber live ones by this much
+    private static final int COMPACT_AFTER_REMOVES = 256;
+
+    public static final class Mutation {
+        public final long seq;
+        public final String table;
+        public final String op;
+        // Column identifying the row, e.g. transaction_id for transactions
+        public final String keyColumn;
+        public final String key;
+        // Row values as a JSON object; "{}" for deletes
+        public final String payload;
+        public final long enqueuedAt;
+
+        Mutation(long seq, String table, String op, String keyColumn, String key, String payload, long enqueuedAt) {
+            this.seq = seq;
+            this.table = table;
+            this.op = op;
+            this.keyColumn = keyColumn;
+            this.key = key;
+            this.payload = payload;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        boolean sameRow(String table, String keyColumn, String key) {
+            return this.table.equals(table) && this.keyColumn.equals(keyColumn) && this.key.equals(key);
+        }
+    }
+
+    // What the server made of one mutation
+    public static final class Outcome {
+        public final boolean applied;
+        // Why the server refused the mutation; null when applied
+        public final String conflict;
+
+        private Outcome(boolean applied, String conflict) {
+            this.applied = applied;
+            this.conflict = conflict;
+        }
+
+        public static Outcome applied() {
+            return new Outcome(true, null);
+        }
+
+        public static Outcome conflict(String message) {
+            return new Outcome(false, message);
+        }
+    }
+
+    public interface Sink {
+        // Applies mutations that share table and op, in order, returning one
+        // outcome per mutation. Throwing means none of them is known to be
+        // applied; they are sent again later, so applying must be idempotent.
+        List<Outcome> apply(List<Mutation> run) throws IOException;
+    }
+
+    public interface Listener {
+        void onAcknowledged(List<Mutation> mutations);
+
+        void onConflict(Mutation mutation, String message);
+    }
+
+    public static final class FlushResult {
+        public final int acknowledged;
+        public final int conflicts;
+        public final int remaining;
+        // When the next attempt is due after a failure; 0 when nothing waits on a retry
+        public final long retryAt;
+        public final String error;
+
+        FlushResult(int acknowledged, int conflicts, int remaining, long retryAt, String error) {
+            this.acknowledged = acknowledged;
+            this.conflicts = conflicts;
+            this.remaining = remaining;
+            this.retryAt = retryAt;
+            this.error = error;
+        }
+    }
+
+    private final File file;
+    private final LongSupplier clock;
+    private final TreeMap<Long, Mutation> pending = new TreeMap<>();
+    private final Set<Long> inFlight = new HashSet<>();
+    private DataOutputStream journal;
+    private FileOutputStream journalFile;
+    private long nextSeq = 1;
+    private int removesSinceCompaction;
+    private int failures;
+    private long retryAt;
+    private boolean flushing;
+
+    public WriteOutbox(File file, LongSupplier clock) throws IOException {
+        this.file = file;
+        this.clock = clock;
+        replay();
+    }
+
+    // Queues a write and returns the sequence number it is kept under, which
+    // is an earlier one when it was folded into an unsent write of the same
+    // row, or -1 when it cancelled that write out.
+    public synchronized long enqueue(String table, String op, String keyColumn, String key, String payload)
+        throws IOException, JSONException {
+        if (!INSERT.equals(op) && !UPDATE.equals(op) && !DELETE.equals(op)) {
+            throw new IllegalArgumentException("Unknown op " + op);
+        }
+        String values = payload == null ? "{}" : new JSONObject(payload).toString();
+
+        Mutation previous = null;
+        for (Mutation mutation : pending.descendingMap().values()) {
+            if (mutation.sameRow(table, keyColumn, key)) {
+                previous = mutation;
+                break;
+            }
+        }
+        // A mutation being sent right now may already be applied, so it
+        // cannot change any more; the new one queues behind it
+        if (previous != null && !inFlight.contains(previous.seq) && !DELETE.equals(previous.op)) {
+            if (DELETE.equals(op)) {
+                if (INSERT.equals(previous.op)) {
+                    // The row never reached the server
+                    remove(previous.seq);
+                    journal.flush();
+                    sync();
+                    return -1;
+                }
+                return put(new Mutation(previous.seq, table, DELETE, keyColumn, key, "{}", previous.enqueuedAt));
+            }
+            String merged = INSERT.equals(op) ? values : merge(previous.payload, values);
+            return put(new Mutation(previous.seq, table, previous.op, keyColumn, key, merged, previous.enqueuedAt));
+        }
+        return put(new Mutation(nextSeq++, table, op, keyColumn, key, values, clock.getAsLong()));
+    }
+
+    public synchronized List<Mutation> pending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    public synchronized int size() {
+        return pending.size();
+    }
+
+    // Sends up to batchSize mutations. Unless force is set, does nothing
+    // while a backoff from an earlier failure is still running. A flush
+    // that finds another one running returns right away.
+    public FlushResult flush(Sink sink, Listener listener, int batchSize, boolean force) throws IOException {
+        List<Mutation> batch = new ArrayList<>();
+        synchronized (this) {
+            if (flushing || (!force && retryAt > clock.getAsLong())) {
+                return new FlushResult(0, 0, pending.size(), retryAt, null);
+            }
+            for (Mutation mutation : pending.values()) {
+                if (batch.size() == batchSize) {
+                    break;
+                }
+                batch.add(mutation);
+                inFlight.add(mutation.seq);
+            }
+            flushing = true;
+        }
+
+        int acknowledged = 0;
+        int conflicts = 0;
+        String error = null;
+        try {
+            int start = 0;
+            while (start < batch.size()) {
+                int end = start + 1;
+                Mutation first = batch.get(start);
+                while (end < batch.size() && batch.get(end).table.equals(first.table)
+                    && batch.get(end).op.equals(first.op)) {
+                    end++;
+                }
+                List<Mutation> run = batch.subList(start, end);
+                List<Outcome> outcomes;
+                try {
+                    outcomes = sink.apply(run);
+                } catch (IOException e) {
+                    error = e.getMessage() == null ? e.toString() : e.getMessage();
+                    break;
+                }
+                if (outcomes.size() != run.size()) {
+                    throw new IllegalStateException("Sink returned " + outcomes.size() + " outcomes for "
+                        + run.size() + " mutations");
+                }
+
+                List<Mutation> applied = new ArrayList<>();
+                List<Mutation> refused = new ArrayList<>();
+                synchronized (this) {
+                    for (int i = 0; i < run.size(); i++) {
+                        Mutation mutation = run.get(i);
+                        // A later write of the same row queued behind it under
+                        // a new seq, so only this seq retires
+                        if (pending.containsKey(mutation.seq)) {
+                            remove(mutation.seq);
+                        }
+                        inFlight.remove(mutation.seq);
+                        (outcomes.get(i).applied ? applied : refused).add(mutation);
+                    }
+                    if (journal != null) {
+                        journal.flush();
+                    }
+                }
+                acknowledged += applied.size();
+                conflicts += refused.size();
+                if (listener != null) {
+                    if (!applied.isEmpty()) {
+                        listener.onAcknowledged(applied);
+                    }
+                    for (Mutation mutation : refused) {
+                        listener.onConflict(mutation, outcomes.get(run.indexOf(mutation)).conflict);
+                    }
+                }
+                start = end;
+            }
+        } finally {
+            synchronized (this) {
+                inFlight.clear();
+                flushing = false;
+                if (error != null) {
+                    failures++;
+                    retryAt = clock.getAsLong() + backoff(failures);
+                } else {
+                    failures = 0;
+                    retryAt = 0;
+                }
+                compactIfNeeded();
+            }
+        }
+        synchronized (this) {
+            return new FlushResult(acknowledged, conflicts, pending.size(), retryAt, error);
+        }
+    }
+
+    // Drops everything, e.g. when the user signs out
+    public synchronized void clear() throws IOException {
+        close();
+        pending.clear();
+        failures = 0;
+        retryAt = 0;
+        removesSinceCompaction = 0;
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Could not delete " + file);
+        }
+    }
+
+    public synchronized void close() throws IOException {
+        if (journal != null) {
+            journal.close();
+            journal = null;
+            journalFile = null;
+        }
+    }
+
+    static long backoff(int failures) {
+        return Math.min(MAX_BACKOFF_MS, FIRST_BACKOFF_MS << Math.min(failures - 1, 20));
+    }
+
+    // Later values win; both sides are JSON objects
+    static String merge(String base, String update) throws JSONException {
+        JSONObject merged = new JSONObject(base);
+        JSONObject changes = new JSONObject(update);
+        Iterator<String> keys = changes.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            merged.put(key, changes.get(key));
+        }
+        return merged.toString();
+    }
+
+    private long put(Mutation mutation) throws IOException {
+        writePut(mutation);
+        journal.flush();
+        // A write the user made must survive a crash right after it returns
+        sync();
+        pending.put(mutation.seq, mutation);
+        return mutation.seq;
+    }
+
+    private void writePut(Mutation mutation) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(RECORD_PUT);
+        out.writeLong(mutation.seq);
+        out.writeLong(mutation.enqueuedAt);
+        writeString(out, mutation.table);
+        writeString(out, mutation.op);
+        writeString(out, mutation.keyColumn);
+        writeString(out, mutation.key);
+        writeString(out, mutation.payload);
+        append(bytes.toByteArray());
+    }
+
+    // Not synced: if it is lost, the mutation is sent again, which the sink
+    // has to tolerate anyway
+    private void remove(long seq) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(RECORD_REMOVE);
+        out.writeLong(seq);
+        append(bytes.toByteArray());
+        pending.remove(seq);
+        removesSinceCompaction++;
+    }
+
+    private void append(byte[] record) throws IOException {
+        if (journal == null) {
+            openJournal();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(record);
+        journal.writeInt(record.length);
+        journal.writeInt((int) crc.getValue());
+        journal.write(record);
+    }
+
+    private void sync() throws IOException {
+        journalFile.getFD().sync();
+    }
+
+    private void openJournal() throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        journalFile = new FileOutputStream(file, true);
+        journal = new DataOutputStream(new BufferedOutputStream(journalFile, 8 * 1024));
+    }
+
+    private void replay() throws IOException {
+        if (!file.exists()) {
+            return;
+        }
+        long good = 0;
+        int records = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            while (true) {
+                int length;
+                try {
+                    length = in.readInt();
+                } catch (EOFException e) {
+                    break;
+                }
+                if (length <= 0 || length > MAX_RECORD_BYTES) {
+                    break;
+                }
+                int expected = in.readInt();
+                byte[] record = new byte[length];
+                in.readFully(record);
+                CRC32 crc = new CRC32();
+                crc.update(record);
+                if ((int) crc.getValue() != expected) {
+                    break;
+                }
+                apply(record);
+                good += 8 + length;
+                records++;
+            }
+        } catch (EOFException e) {
+            // Torn last record
+        }
+        if (good < file.length()) {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.setLength(good);
+            }
+        }
+        removesSinceCompaction = records - pending.size();
+        compactIfNeeded();
+    }
+
+    private void apply(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        byte type = in.readByte();
+        long seq = in.readLong();
+        if (type == RECORD_PUT) {
+            long enqueuedAt = in.readLong();
+            pending.put(seq, new Mutation(seq, readString(in), readString(in), readString(in), readString(in),
+                readString(in), enqueuedAt));
+        } else if (type == RECORD_REMOVE) {
+            pending.remove(seq);
+        } else {
+            throw new IOException("Unknown outbox record " + type);
+        }
+        nextSeq = Math.max(nextSeq, seq + 1);
+    }
+
+    // Rewrites the journal with only the live mutations, replacing it atomically
+    private void compactIfNeeded() throws IOException {
+        if (removesSinceCompaction < COMPACT_AFTER_REMOVES || removesSinceCompaction < pending.size()) {
+            return;
+        }
+        close();
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            journalFile = new FileOutputStream(tmp);
+            journal = new DataOutputStream(new BufferedOutputStream(journalFile, 8 * 1024));
+            for (Mutation mutation : pending.values()) {
+                writePut(mutation);
+            }
+            journal.flush();
+            sync();
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        } finally {
+            close();
+        }
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            throw new IOException("Could not replace " + file);
+        }
+        removesSinceCompaction = 0;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > MAX_RECORD_BYTES) {
+            throw new IOException("Corrupt outbox record");
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
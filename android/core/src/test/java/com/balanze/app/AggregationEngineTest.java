@@ -0,0 +1,417 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+import org.junit.Before;
+import org.junit.Test;
+
+public class AggregationEngineTest {
+
+    private static final String[] CATEGORIES = { "Groceries", "Rent", "Salary", "Travel", "Gifts", "Fuel" };
+    private static final String[] CURRENCIES = { "USD", "EUR", "BDT" };
+    // 2024-01-01 .. about 2025-06
+    private static final int FIRST_DAY = 19723;
+    private static final int DAYS = 540;
+
+    private static final class Tx {
+        String account;
+        String category;
+        int day;
+        double amount;
+        int type;
+        int flags;
+    }
+
+    private static final class Purchase {
+        String currency;
+        String category;
+        int day;
+        double price;
+        int status;
+    }
+
+    private AggregationEngine engine;
+    private List<AggregationEngine.Account> accounts;
+    private final Map<String, Tx> transactions = new LinkedHashMap<>();
+    private final Map<String, Purchase> purchases = new LinkedHashMap<>();
+
+    @Before
+    public void setUp() {
+        engine = new AggregationEngine();
+        accounts = Arrays.asList(
+            new AggregationEngine.Account("a1", "USD", true, 1200.50),
+            new AggregationEngine.Account("a2", "EUR", true, 300.25),
+            new AggregationEngine.Account("a3", "USD", true, 99.99),
+            new AggregationEngine.Account("a4", "BDT", false, 5000));
+        engine.setAccounts(accounts);
+    }
+
+    @Test
+    public void monthOfMatchesTheCalendar() {
+        assertEquals(1970 * 12, AggregationEngine.monthOf(0));
+        assertEquals(1969 * 12 + 11, AggregationEngine.monthOf(-1));
+        // 2024-02-29 and 2024-03-01
+        assertEquals(2024 * 12 + 1, AggregationEngine.monthOf(19782));
+        assertEquals(2024 * 12 + 2, AggregationEngine.monthOf(19783));
+        // 2025-12-31 and 2026-01-01
+        assertEquals(2025 * 12 + 11, AggregationEngine.monthOf(20453));
+        assertEquals(2026 * 12, AggregationEngine.monthOf(20454));
+    }
+
+    @Test
+    public void dashboardFollowsTheStoreRules() {
+        int march = 2024 * 12 + 2;
+        // 2024-03-05
+        upsertTx("t1", "a1", "Salary", 19787, 1000.10, AggregationEngine.TYPE_INCOME, 0);
+        upsertTx("t2", "a3", "Rent", 19787, 400.05, AggregationEngine.TYPE_EXPENSE, 0);
+        upsertTx("t3", "a1", "Rent", 19787, 50, AggregationEngine.TYPE_EXPENSE, AggregationEngine.FLAG_TRANSFER);
+        upsertTx("t4", "a1", "Gifts", 19787, 25, AggregationEngine.TYPE_INCOME, AggregationEngine.FLAG_LEND_BORROW);
+        // Inactive account and another month
+        upsertTx("t5", "a4", "Rent", 19787, 70, AggregationEngine.TYPE_EXPENSE, 0);
+        upsertTx("t6", "a2", "Travel", 19760, 80, AggregationEngine.TYPE_EXPENSE, 0);
+
+        AggregationEngine.DashboardStats stats = engine.dashboardStats(march);
+
+        assertEquals(3, stats.accountsCount);
+        assertEquals(6, stats.transactionsCount);
+        assertEquals(2, stats.byCurrency.size());
+        AggregationEngine.CurrencyTotals usd = stats.byCurrency.get(0);
+        assertEquals("USD", usd.currency);
+        assertEquals(130049, usd.balanceMinor);
+        assertEquals(100010, usd.incomeMinor);
+        assertEquals(40005, usd.expenseMinor);
+        AggregationEngine.CurrencyTotals eur = stats.byCurrency.get(1);
+        assertEquals("EUR", eur.currency);
+        assertEquals(0, eur.expenseMinor);
+    }
+
+    @Test
+    public void purchaseAnalyticsCountsOnlyPurchasedSpend() {
+        int march = 2024 * 12 + 2;
+        upsertPurchase("p1", "USD", "Gifts", 19787, 20, AggregationEngine.STATUS_PURCHASED);
+        upsertPurchase("p2", "USD", "Travel", 19700, 60, AggregationEngine.STATUS_PURCHASED);
+        upsertPurchase("p3", "USD", "Travel", 19787, 500, AggregationEngine.STATUS_PLANNED);
+        upsertPurchase("p4", "EUR", "Fuel", 19787, 10, AggregationEngine.STATUS_CANCELLED);
+
+        List<AggregationEngine.PurchaseAnalytics> analytics = engine.purchaseAnalytics(march);
+
+        assertEquals(Arrays.asList("EUR", "USD"), Arrays.asList(analytics.get(0).currency, analytics.get(1).currency));
+        AggregationEngine.PurchaseAnalytics usd = analytics.get(1);
+        assertEquals(8000, usd.totalSpentMinor);
+        assertEquals(2000, usd.monthlySpentMinor);
+        assertEquals(1, usd.plannedCount);
+        assertEquals(2, usd.purchasedCount);
+        assertEquals("Travel", usd.topCategory);
+        assertEquals(75.0, usd.categoryBreakdown.get(0).percentage, 1e-9);
+        AggregationEngine.PurchaseAnalytics eur = analytics.get(0);
+        assertEquals(1, eur.cancelledCount);
+        assertNull(eur.topCategory);
+    }
+
+    @Test
+    public void amountsUseEachCurrencysMinorUnit() {
+        int march = 2024 * 12 + 2;
+        engine.setAccounts(Arrays.asList(
+            new AggregationEngine.Account("yen", "JPY", true, 15000),
+            new AggregationEngine.Account("dinar", "KWD", true, 1.235)));
+        engine.upsertTransaction("t1", "yen", "Salary", 19787, 300000, AggregationEngine.TYPE_INCOME, 0);
+        engine.upsertTransaction("t2", "dinar", "Rent", 19787, 12.345, AggregationEngine.TYPE_EXPENSE, 0);
+        engine.upsertPurchase("p1", "JPY", "Gifts", 19787, 1980, AggregationEngine.STATUS_PURCHASED);
+
+        AggregationEngine.DashboardStats stats = engine.dashboardStats(march);
+        AggregationEngine.CurrencyTotals yen = stats.byCurrency.get(0);
+        assertEquals(15000, yen.balanceMinor);
+        assertEquals(300000, yen.incomeMinor);
+        assertEquals(300000.0, AggregationEngine.toMajor(yen.incomeMinor, "JPY"), 0);
+        AggregationEngine.CurrencyTotals dinar = stats.byCurrency.get(1);
+        assertEquals(1235, dinar.balanceMinor);
+        assertEquals(12345, dinar.expenseMinor);
+        assertEquals(12.345, AggregationEngine.toMajor(dinar.expenseMinor, "KWD"), 1e-9);
+        assertEquals(1980, engine.purchaseAnalytics(march).get(0).totalSpentMinor);
+        assertEquals(2, AggregationEngine.minorDigits("not a currency"));
+    }
+
+    @Test
+    public void changingAnAccountsCurrencyRescalesItsTransactions() {
+        int march = 2024 * 12 + 2;
+        engine.upsertTransaction("t1", "a1", "Salary", 19787, 1500, AggregationEngine.TYPE_INCOME, 0);
+
+        engine.setAccounts(Arrays.asList(new AggregationEngine.Account("a1", "JPY", true, 0)));
+        assertEquals(1500, engine.dashboardStats(march).byCurrency.get(0).incomeMinor);
+
+        engine.setAccounts(Arrays.asList(new AggregationEngine.Account("a1", "KWD", true, 0)));
+        assertEquals(1_500_000, engine.dashboardStats(march).byCurrency.get(0).incomeMinor);
+        assertEquals(1_500_000, engine.categoryTotals(march, AggregationEngine.TYPE_INCOME)
+            .get("KWD").get(0).totalMinor);
+    }
+
+    @Test
+    public void incrementalUpdatesMatchTheReference() {
+        Random random = new Random(7);
+        for (int step = 0; step < 20_000; step++) {
+            int op = random.nextInt(10);
+            String txId = "t" + random.nextInt(3_000);
+            String purchaseId = "p" + random.nextInt(1_000);
+            if (op < 5) {
+                upsertTx(txId, "a" + (1 + random.nextInt(5)), CATEGORIES[random.nextInt(CATEGORIES.length)],
+                    FIRST_DAY + random.nextInt(DAYS), random.nextInt(1_000_000) / 100.0,
+                    random.nextInt(3), random.nextInt(4));
+            } else if (op < 7) {
+                removeTx(txId);
+            } else if (op < 9) {
+                upsertPurchase(purchaseId, CURRENCIES[random.nextInt(CURRENCIES.length)],
+                    CATEGORIES[random.nextInt(CATEGORIES.length)], FIRST_DAY + random.nextInt(DAYS),
+                    random.nextInt(100_000) / 100.0, random.nextInt(4));
+            } else {
+                removePurchase(purchaseId);
+            }
+
+            if (step % 2_000 == 1_999) {
+                for (int month = AggregationEngine.monthOf(FIRST_DAY) - 1;
+                     month <= AggregationEngine.monthOf(FIRST_DAY + DAYS) + 1; month++) {
+                    assertDashboard(month);
+                    assertPurchases(month);
+                    assertCategoryTotals(month, AggregationEngine.TYPE_INCOME);
+                    assertCategoryTotals(month, AggregationEngine.TYPE_EXPENSE);
+                }
+            }
+        }
+        assertEquals(transactions.size(), engine.transactionCount());
+        assertEquals(purchases.size(), engine.purchaseCount());
+    }
+
+    @Test
+    public void clearDropsEverything() {
+        upsertTx("t1", "a1", "Salary", 19787, 10, AggregationEngine.TYPE_INCOME, 0);
+        upsertPurchase("p1", "USD", "Gifts", 19787, 20, AggregationEngine.STATUS_PURCHASED);
+
+        engine.clear();
+
+        assertEquals(0, engine.transactionCount());
+        assertTrue(engine.purchaseAnalytics(2024 * 12 + 2).isEmpty());
+        assertTrue(engine.dashboardStats(2024 * 12 + 2).byCurrency.isEmpty());
+    }
+
+    @Test
+    public void dashboardLatency() {
+        assumeTrue(Boolean.getBoolean("balanze.benchmark"));
+        Random random = new Random(1);
+        List<AggregationEngine.Account> many = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            many.add(new AggregationEngine.Account("acc" + i, CURRENCIES[i % CURRENCIES.length], i % 7 != 0, i));
+        }
+        engine.setAccounts(many);
+        long start = System.nanoTime();
+        for (int i = 0; i < 200_000; i++) {
+            engine.upsertTransaction("t" + i, "acc" + random.nextInt(50), CATEGORIES[random.nextInt(CATEGORIES.length)],
+                FIRST_DAY + random.nextInt(DAYS * 4), random.nextInt(1_000_000) / 100.0, random.nextInt(2), 0);
+            engine.upsertPurchase("p" + i, CURRENCIES[random.nextInt(CURRENCIES.length)],
+                CATEGORIES[random.nextInt(CATEGORIES.length)], FIRST_DAY + random.nextInt(DAYS * 4),
+                random.nextInt(100_000) / 100.0, random.nextInt(3));
+        }
+        long loadNanos = System.nanoTime() - start;
+
+        int month = AggregationEngine.monthOf(FIRST_DAY + 100);
+        long[] dashboard = new long[2_000];
+        long[] purchaseNanos = new long[2_000];
+        long[] categoryNanos = new long[2_000];
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < dashboard.length; i++) {
+                long t0 = System.nanoTime();
+                engine.dashboardStats(month);
+                long t1 = System.nanoTime();
+                engine.purchaseAnalytics(month);
+                long t2 = System.nanoTime();
+                engine.categoryTotals(month, AggregationEngine.TYPE_EXPENSE);
+                long t3 = System.nanoTime();
+                dashboard[i] = t1 - t0;
+                purchaseNanos[i] = t2 - t1;
+                categoryNanos[i] = t3 - t2;
+            }
+        }
+        System.out.println(String.format(Locale.US, "load 200k tx + 200k purchases: %.0f ms", loadNanos / 1e6));
+        report("dashboardStats", dashboard);
+        report("purchaseAnalytics", purchaseNanos);
+        report("categoryTotals", categoryNanos);
+    }
+
+    private void upsertTx(String id, String account, String category, int day, double amount, int type, int flags) {
+        Tx tx = new Tx();
+        tx.account = account;
+        tx.category = category;
+        tx.day = day;
+        tx.amount = amount;
+        tx.type = type;
+        tx.flags = flags;
+        transactions.put(id, tx);
+        engine.upsertTransaction(id, account, category, day, amount, type, flags);
+    }
+
+    private void removeTx(String id) {
+        assertEquals(transactions.remove(id) != null, engine.removeTransaction(id));
+    }
+
+    private void upsertPurchase(String id, String currency, String category, int day, double price, int status) {
+        Purchase purchase = new Purchase();
+        purchase.currency = currency;
+        purchase.category = category;
+        purchase.day = day;
+        purchase.price = price;
+        purchase.status = status;
+        purchases.put(id, purchase);
+        engine.upsertPurchase(id, currency, category, day, price, status);
+    }
+
+    private void removePurchase(String id) {
+        assertEquals(purchases.remove(id) != null, engine.removePurchase(id));
+    }
+
+    // Reference: walk every row, like the store does
+
+    private void assertDashboard(int month) {
+        Map<String, long[]> expected = new LinkedHashMap<>();
+        int active = 0;
+        for (AggregationEngine.Account account : accounts) {
+            if (!account.active) {
+                continue;
+            }
+            active++;
+            long[] totals = expected.computeIfAbsent(account.currency, c -> new long[3]);
+            totals[0] += account.balanceMinor;
+            for (Tx tx : transactions.values()) {
+                if (!tx.account.equals(account.id) || AggregationEngine.monthOf(tx.day) != month || tx.flags != 0) {
+                    continue;
+                }
+                if (tx.type == AggregationEngine.TYPE_INCOME) {
+                    totals[1] += AggregationEngine.toMinor(tx.amount, account.digits);
+                } else if (tx.type == AggregationEngine.TYPE_EXPENSE) {
+                    totals[2] += AggregationEngine.toMinor(tx.amount, account.digits);
+                }
+            }
+        }
+
+        AggregationEngine.DashboardStats stats = engine.dashboardStats(month);
+        assertEquals(active, stats.accountsCount);
+        assertEquals(transactions.size(), stats.transactionsCount);
+        assertEquals(new ArrayList<>(expected.keySet()), currencies(stats.byCurrency));
+        for (AggregationEngine.CurrencyTotals totals : stats.byCurrency) {
+            long[] reference = expected.get(totals.currency);
+            assertArrayEquals(reference, new long[] { totals.balanceMinor, totals.incomeMinor, totals.expenseMinor });
+        }
+    }
+
+    private void assertPurchases(int month) {
+        Map<String, List<Purchase>> byCurrency = new TreeMap<>();
+        for (Purchase purchase : purchases.values()) {
+            byCurrency.computeIfAbsent(purchase.currency, c -> new ArrayList<>()).add(purchase);
+        }
+
+        List<AggregationEngine.PurchaseAnalytics> actual = engine.purchaseAnalytics(month);
+        assertEquals(byCurrency.size(), actual.size());
+        int i = 0;
+        for (Map.Entry<String, List<Purchase>> entry : byCurrency.entrySet()) {
+            AggregationEngine.PurchaseAnalytics analytics = actual.get(i++);
+            assertEquals(entry.getKey(), analytics.currency);
+            long total = 0;
+            long monthly = 0;
+            long[] counts = new long[4];
+            Map<String, long[]> categories = new HashMap<>();
+            for (Purchase purchase : entry.getValue()) {
+                counts[purchase.status]++;
+                if (purchase.status != AggregationEngine.STATUS_PURCHASED) {
+                    continue;
+                }
+                long price = AggregationEngine.toMinor(purchase.price, AggregationEngine.minorDigits(purchase.currency));
+                total += price;
+                if (AggregationEngine.monthOf(purchase.day) == month) {
+                    monthly += price;
+                }
+                long[] category = categories.computeIfAbsent(purchase.category, c -> new long[2]);
+                category[0] += price;
+                category[1]++;
+            }
+            assertEquals(total, analytics.totalSpentMinor);
+            assertEquals(monthly, analytics.monthlySpentMinor);
+            assertEquals(counts[AggregationEngine.STATUS_PLANNED], analytics.plannedCount);
+            assertEquals(counts[AggregationEngine.STATUS_PURCHASED], analytics.purchasedCount);
+            assertEquals(counts[AggregationEngine.STATUS_CANCELLED], analytics.cancelledCount);
+            assertBreakdown(categories, total, analytics.categoryBreakdown);
+            assertEquals(analytics.categoryBreakdown.isEmpty() ? null : analytics.categoryBreakdown.get(0).category,
+                analytics.topCategory);
+        }
+    }
+
+    private void assertCategoryTotals(int month, int type) {
+        Map<String, String> currencyOf = new HashMap<>();
+        for (AggregationEngine.Account account : accounts) {
+            if (account.active) {
+                currencyOf.put(account.id, account.currency);
+            }
+        }
+        Map<String, Map<String, long[]>> expected = new TreeMap<>();
+        for (Tx tx : transactions.values()) {
+            String currency = currencyOf.get(tx.account);
+            if (currency == null || tx.flags != 0 || tx.type != type || AggregationEngine.monthOf(tx.day) != month) {
+                continue;
+            }
+            long amount = AggregationEngine.toMinor(tx.amount, AggregationEngine.minorDigits(currency));
+            if (amount == 0) {
+                continue;
+            }
+            long[] sums = expected.computeIfAbsent(currency, c -> new HashMap<>())
+                .computeIfAbsent(tx.category, c -> new long[2]);
+            sums[0] += amount;
+            sums[1]++;
+        }
+
+        Map<String, List<AggregationEngine.CategoryTotal>> actual = engine.categoryTotals(month, type);
+        assertEquals(new ArrayList<>(expected.keySet()), new ArrayList<>(actual.keySet()));
+        for (Map.Entry<String, Map<String, long[]>> entry : expected.entrySet()) {
+            long total = 0;
+            for (long[] sums : entry.getValue().values()) {
+                total += sums[0];
+            }
+            assertBreakdown(entry.getValue(), total, actual.get(entry.getKey()));
+        }
+    }
+
+    private static void assertBreakdown(Map<String, long[]> expected, long total, List<AggregationEngine.CategoryTotal> actual) {
+        List<String> order = new ArrayList<>(expected.keySet());
+        order.sort((a, b) -> expected.get(a)[0] != expected.get(b)[0]
+            ? Long.compare(expected.get(b)[0], expected.get(a)[0]) : a.compareTo(b));
+        assertEquals(order.size(), actual.size());
+        for (int i = 0; i < order.size(); i++) {
+            AggregationEngine.CategoryTotal category = actual.get(i);
+            long[] sums = expected.get(order.get(i));
+            assertEquals(order.get(i), category.category);
+            assertEquals(sums[0], category.totalMinor);
+            assertEquals(sums[1], category.count);
+            assertEquals(total > 0 ? sums[0] * 100.0 / total : 0, category.percentage, 1e-9);
+        }
+    }
+
+    private static List<String> currencies(List<AggregationEngine.CurrencyTotals> totals) {
+        List<String> list = new ArrayList<>();
+        for (AggregationEngine.CurrencyTotals item : totals) {
+            list.add(item.currency);
+        }
+        return list;
+    }
+
+    private static void report(String label, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.println(String.format(Locale.US, "%-18s p50=%7.1f us  p99=%7.1f us",
+            label, sorted[sorted.length / 2] / 1e3, sorted[sorted.length * 99 / 100] / 1e3));
+    }
+}
@@ -0,0 +1,184 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Flushes an AnalyticsEventBuffer to a local HttpServer standing in for the
+// analytics collector
+public class AnalyticsCollectorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private String endpoint;
+    private AnalyticsEventBuffer buffer;
+    // Decompressed request bodies
+    private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> encodings = Collections.synchronizedList(new ArrayList<>());
+    private final List<String> authorization = Collections.synchronizedList(new ArrayList<>());
+    private volatile int status = 204;
+
+    @Before
+    public void start() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/api/track", this::serve);
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/api/track";
+        buffer = new AnalyticsEventBuffer(new File(folder.getRoot(), "events.ring"), 64 * 1024);
+    }
+
+    @After
+    public void stop() throws IOException {
+        server.stop(0);
+        buffer.close();
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        byte[] body = readAll(exchange.getRequestBody());
+        encodings.add(exchange.getRequestHeaders().getFirst("Content-Encoding"));
+        authorization.add(exchange.getRequestHeaders().getFirst("Authorization"));
+        received.add(new String(readAll(new GZIPInputStream(new ByteArrayInputStream(body))), StandardCharsets.UTF_8));
+        exchange.sendResponseHeaders(status, -1);
+        exchange.close();
+    }
+
+    private AnalyticsCollector collector() {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Authorization", "Bearer token");
+        return new AnalyticsCollector(endpoint, headers, "{\"dashboard_version\":\"1.0.0\"}");
+    }
+
+    private static String event(int n) {
+        return "{\"event\":\"chart_filter\",\"n\":" + n + "}";
+    }
+
+    private static int countEvents(String body) {
+        int count = 0;
+        int at = 0;
+        while ((at = body.indexOf("\"chart_filter\"", at)) >= 0) {
+            count++;
+            at++;
+        }
+        return count;
+    }
+
+    @Test
+    public void flushSendsGzippedBatchesAndEmptiesTheBuffer() throws IOException {
+        for (int i = 0; i < 25; i++) {
+            buffer.append(event(i));
+        }
+        AnalyticsCollector.FlushResult result = collector().flush(buffer, 10, Integer.MAX_VALUE);
+
+        assertEquals(25, result.sent);
+        assertEquals(0, result.rejected);
+        assertEquals(0, result.remaining);
+        assertEquals(0, buffer.size());
+        assertEquals(3, received.size());
+        assertEquals("gzip", encodings.get(0));
+        assertEquals("Bearer token", authorization.get(0));
+
+        String first = received.get(0);
+        assertTrue(first.startsWith("{\"client_info\":{\"dashboard_version\":\"1.0.0\"},\"sent_at\":"));
+        assertTrue(first.contains("\"events\":[" + event(0) + "," + event(1) + ","));
+        assertEquals(10, countEvents(first));
+        assertEquals(5, countEvents(received.get(2)));
+        assertTrue(received.get(2).endsWith(event(24) + "]}"));
+    }
+
+    @Test
+    public void batchesAreBoundedByBytes() throws IOException {
+        // Same length each
+        for (int i = 10; i < 30; i++) {
+            buffer.append(event(i));
+        }
+        collector().flush(buffer, 1000, event(10).length() * 4);
+        assertEquals(5, received.size());
+    }
+
+    @Test
+    public void serverFailureKeepsTheEventsForTheNextFlush() throws IOException {
+        for (int i = 0; i < 5; i++) {
+            buffer.append(event(i));
+        }
+        status = 503;
+        try {
+            collector().flush(buffer, 10, Integer.MAX_VALUE);
+            fail("Expected the 503 to be thrown");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("503"));
+        }
+        assertEquals(5, buffer.size());
+
+        status = 200;
+        buffer.append(event(5));
+        AnalyticsCollector.FlushResult result = collector().flush(buffer, 10, Integer.MAX_VALUE);
+        assertEquals(6, result.sent);
+        assertEquals(6, countEvents(received.get(received.size() - 1)));
+    }
+
+    @Test
+    public void refusedBatchIsDroppedSoLaterEventsCanGo() throws IOException {
+        for (int i = 0; i < 4; i++) {
+            buffer.append(event(i));
+        }
+        status = 400;
+        AnalyticsCollector.FlushResult result = collector().flush(buffer, 10, Integer.MAX_VALUE);
+        assertEquals(0, result.sent);
+        assertEquals(4, result.rejected);
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void unreachableCollectorThrows() throws IOException {
+        buffer.append(event(0));
+        server.stop(0);
+        try {
+            collector().flush(buffer, 10, Integer.MAX_VALUE);
+            fail("Expected a connection failure");
+        } catch (IOException expected) {
+            // Retried later by the plugin
+        }
+        assertEquals(1, buffer.size());
+    }
+
+    @Test
+    public void bodyIsValidGzipJson() throws IOException {
+        List<String> events = new ArrayList<>();
+        events.add(event(1));
+        events.add(event(2));
+        byte[] body = AnalyticsCollector.body("{}", 42, events);
+        String json = new String(readAll(new GZIPInputStream(new ByteArrayInputStream(body))), StandardCharsets.UTF_8);
+        assertEquals("{\"client_info\":{},\"sent_at\":42,\"events\":[" + event(1) + "," + event(2) + "]}", json);
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] chunk = new byte[8192];
+        int read;
+        while ((read = in.read(chunk)) != -1) {
+            out.write(chunk, 0, read);
+        }
+        return out.toByteArray();
+    }
+}
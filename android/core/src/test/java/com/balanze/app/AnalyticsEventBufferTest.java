@@ -0,0 +1,170 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class AnalyticsEventBufferTest {
+
+    private static final int CAPACITY = 256;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private AnalyticsEventBuffer buffer;
+
+    @Before
+    public void open() throws IOException {
+        file = new File(folder.getRoot(), "analytics/events.ring");
+        buffer = new AnalyticsEventBuffer(file, CAPACITY);
+    }
+
+    @After
+    public void close() throws IOException {
+        buffer.close();
+    }
+
+    private static String event(int n) {
+        return "{\"event\":\"kpi_click\",\"n\":" + n + "}";
+    }
+
+    private List<String> all() {
+        return buffer.peek(Integer.MAX_VALUE, Integer.MAX_VALUE).events;
+    }
+
+    @Test
+    public void peekReturnsOldestFirstAndCommitRemovesTheBatch() {
+        for (int i = 0; i < 5; i++) {
+            assertTrue(buffer.append(event(i)));
+        }
+        assertEquals(5, buffer.size());
+
+        AnalyticsEventBuffer.Batch batch = buffer.peek(3, Integer.MAX_VALUE);
+        assertEquals(3, batch.events.size());
+        assertEquals(event(0), batch.events.get(0));
+        // Peeking does not remove
+        assertEquals(5, buffer.size());
+
+        buffer.commit(batch);
+        assertEquals(2, buffer.size());
+        assertEquals(event(3), all().get(0));
+    }
+
+    @Test
+    public void batchesStopAtTheByteLimit() {
+        for (int i = 0; i < 4; i++) {
+            buffer.append(event(i));
+        }
+        int one = event(0).length();
+        assertEquals(2, buffer.peek(10, one * 2 + 1).events.size());
+        // The first event goes out even when it alone is over the limit
+        assertEquals(1, buffer.peek(10, 1).events.size());
+    }
+
+    @Test
+    public void wrapsAroundAndOverwritesTheOldestWhenFull() {
+        for (int i = 0; i < 40; i++) {
+            assertTrue(buffer.append(event(i)));
+        }
+        List<String> kept = all();
+        assertTrue(buffer.dropped() > 0);
+        assertEquals(40, kept.size() + buffer.dropped());
+        assertTrue(buffer.pendingBytes() <= CAPACITY);
+        // The newest survive, in order
+        for (int i = 0; i < kept.size(); i++) {
+            assertEquals(event(40 - kept.size() + i), kept.get(i));
+        }
+    }
+
+    @Test
+    public void commitAfterTheBatchWasOverwrittenKeepsNewerEvents() {
+        for (int i = 0; i < 3; i++) {
+            buffer.append(event(i));
+        }
+        AnalyticsEventBuffer.Batch batch = buffer.peek(3, Integer.MAX_VALUE);
+        // The ring wraps while the batch is being uploaded
+        for (int i = 3; i < 20; i++) {
+            buffer.append(event(i));
+        }
+        int before = buffer.size();
+        buffer.commit(batch);
+        assertEquals(before, buffer.size());
+        assertEquals(event(19), all().get(before - 1));
+    }
+
+    @Test
+    public void eventsSurviveReopeningAcrossTheWrap() throws IOException {
+        for (int i = 0; i < 13; i++) {
+            buffer.append(event(i));
+        }
+        buffer.commit(buffer.peek(2, Integer.MAX_VALUE));
+        List<String> before = all();
+        long dropped = buffer.dropped();
+        buffer.close();
+
+        buffer = new AnalyticsEventBuffer(file, CAPACITY);
+        assertEquals(before, all());
+        assertEquals(before.size(), buffer.size());
+        assertEquals(dropped, buffer.dropped());
+
+        buffer.append(event(99));
+        assertEquals(event(99), all().get(buffer.size() - 1));
+    }
+
+    @Test
+    public void tornLastRecordIsDroppedOnOpen() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            buffer.append(event(i));
+        }
+        buffer.close();
+        // Header (32) + two records; corrupt a byte of the third one's payload
+        int record = 8 + event(0).length();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(32 + 2 * record + 8 + 3);
+            raf.write('#');
+        }
+
+        buffer = new AnalyticsEventBuffer(file, CAPACITY);
+        List<String> events = new ArrayList<>(all());
+        assertEquals(2, events.size());
+        assertEquals(event(1), events.get(1));
+        assertTrue(buffer.append(event(3)));
+        assertEquals(event(3), all().get(2));
+    }
+
+    @Test
+    public void fileOfAnotherCapacityStartsOver() throws IOException {
+        buffer.append(event(0));
+        buffer.close();
+        buffer = new AnalyticsEventBuffer(file, CAPACITY * 2);
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.append(event(1)));
+    }
+
+    @Test
+    public void oversizedEventsAndClear() {
+        StringBuilder large = new StringBuilder();
+        while (large.length() <= buffer.maxEventBytes()) {
+            large.append('x');
+        }
+        assertFalse(buffer.append(large.toString()));
+        assertEquals(0, buffer.size());
+
+        buffer.append(event(0));
+        buffer.append(event(1));
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.pendingBytes());
+        assertTrue(all().isEmpty());
+    }
+}
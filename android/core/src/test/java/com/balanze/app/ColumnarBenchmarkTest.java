@@ -0,0 +1,152 @@
+package com.balanze.app;
+
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+// Ledger rows crossing the bridge as a plugin JSON result (what
+// LedgerPlugin.query does: parse the stored rows, serialize the result,
+// parse it again on the page) versus one ColumnarEncoder batch read back
+// cell by cell. The page's JSON.parse and the ArrayBuffer copy are
+// emulated on the JVM, so only the ratios carry over to a device; use
+// nativeLedger.benchmarkTransfer() in the app for real WebView numbers.
+// "bridge" is what has to cross: the JSON string as UTF-16, or the batch.
+//
+// Run with: ./gradlew :core:test -Pbenchmark=true --tests '*ColumnarBenchmarkTest'
+public class ColumnarBenchmarkTest {
+
+    private static final int[] SIZES = { 10_000, 50_000, 100_000 };
+    private static final String[] CATEGORIES = {
+        "Groceries", "Dining", "Transport", "Utilities", "Rent", "Healthcare", "Education", "Salary",
+        "Entertainment", "Shopping", "Travel", "Insurance", "Subscriptions", "Gifts", "Investments"
+    };
+
+    private interface Stage {
+        Object run(Object input) throws Exception;
+    }
+
+    private static final class Result {
+        long encodeNanos;
+        long decodeNanos;
+        long bridgeBytes;
+        long peakHeapBytes;
+    }
+
+    @Test
+    public void jsonVersusColumnar() throws Exception {
+        assumeTrue(Boolean.getBoolean("balanze.benchmark"));
+        for (int size : SIZES) {
+            List<String> rows = rows(size);
+            report("json", size, measure(rows, ColumnarBenchmarkTest::encodeJson, ColumnarBenchmarkTest::decodeJson));
+            report("columnar", size, measure(rows, ColumnarBenchmarkTest::encodeColumnar,
+                ColumnarBenchmarkTest::decodeColumnar));
+        }
+    }
+
+    private static Object encodeJson(Object input) throws Exception {
+        @SuppressWarnings("unchecked")
+        List<String> rows = (List<String>) input;
+        JSONArray array = new JSONArray();
+        for (String row : rows) {
+            array.put(new JSONObject(row));
+        }
+        return new JSONObject().put("rows", array).toString();
+    }
+
+    private static Object decodeJson(Object payload) throws Exception {
+        JSONArray rows = new JSONObject((String) payload).getJSONArray("rows");
+        int cells = 0;
+        for (int i = 0; i < rows.length(); i++) {
+            cells += rows.getJSONObject(i).length();
+        }
+        return cells;
+    }
+
+    private static Object encodeColumnar(Object input) throws Exception {
+        @SuppressWarnings("unchecked")
+        List<String> rows = (List<String>) input;
+        ColumnarEncoder encoder = new ColumnarEncoder();
+        for (String row : rows) {
+            encoder.add(new JSONObject(row));
+        }
+        return encoder.encode(1);
+    }
+
+    // Reads every cell, the worst case for the lazy reader
+    private static Object decodeColumnar(Object payload) {
+        ColumnarEncoderTest.Reader reader = new ColumnarEncoderTest.Reader((byte[]) payload);
+        int cells = 0;
+        for (String name : reader.columns.keySet()) {
+            for (int row = 0; row < reader.rowCount; row++) {
+                if (reader.get(row, name) != null) {
+                    cells++;
+                }
+            }
+        }
+        return cells;
+    }
+
+    private Result measure(List<String> rows, Stage encode, Stage decode) throws Exception {
+        // Warm up once so JIT compilation is not part of the measurement
+        decode.run(encode.run(rows));
+        System.gc();
+
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        Result result = new Result();
+        long start = System.nanoTime();
+        Object payload = encode.run(rows);
+        result.encodeNanos = System.nanoTime() - start;
+        result.bridgeBytes = payload instanceof String ? ((String) payload).length() * 2L : ((byte[]) payload).length;
+        start = System.nanoTime();
+        decode.run(payload);
+        result.decodeNanos = System.nanoTime() - start;
+        for (MemoryPoolMXBean pool : heapPools) {
+            result.peakHeapBytes += pool.getPeakUsage().getUsed();
+        }
+        return result;
+    }
+
+    // Shaped like Supabase transaction rows as stored in the ledger
+    private static List<String> rows(int size) throws Exception {
+        Random random = new Random(42);
+        List<String> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rows.add(new JSONObject()
+                .put("id", String.format(Locale.US, "%08x-4b1e-4c0a-9f3e-%012d", random.nextInt(), i))
+                .put("user_id", "5f0c2a9e-7d41-4c3b-8a2f-0e9b6d1c4a77")
+                .put("account_id", "acc-" + random.nextInt(6))
+                .put("type", random.nextInt(4) == 0 ? "income" : "expense")
+                .put("amount", Math.round(random.nextDouble() * 50_000) / 100.0)
+                .put("category", CATEGORIES[random.nextInt(CATEGORIES.length)])
+                .put("description", "Payment " + Integer.toString(random.nextInt(1 << 20), 36))
+                .put("date", String.format(Locale.US, "2026-%02d-%02dT10:00:00Z", 1 + random.nextInt(12), 1 + random.nextInt(28)))
+                .put("is_recurring", random.nextInt(10) == 0)
+                .put("transfer_id", random.nextInt(20) == 0 ? "tr-" + i : JSONObject.NULL)
+                .put("updated_at", "2026-10-01T08:30:00.000Z")
+                .toString());
+        }
+        return rows;
+    }
+
+    private static void report(String label, int size, Result result) {
+        System.out.println(String.format(Locale.US,
+            "%-9s rows=%-7d encode=%7.1f ms  decode=%7.1f ms  bridge=%6.1f MB  peakHeap=%6.1f MB",
+            label, size, result.encodeNanos / 1e6, result.decodeNanos / 1e6,
+            result.bridgeBytes / (1024.0 * 1024.0), result.peakHeapBytes / (1024.0 * 1024.0)));
+    }
+}
@@ -0,0 +1,218 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+public class ColumnarEncoderTest {
+
+    @Test
+    public void roundTripsEveryColumnType() throws Exception {
+        ColumnarEncoder encoder = new ColumnarEncoder();
+        encoder.add(new JSONObject()
+            .put("id", "t1")
+            .put("amount", 12.5)
+            .put("is_recurring", true)
+            .put("category", "Groceries")
+            .put("tags", new JSONArray().put("food")));
+        encoder.add(new JSONObject()
+            .put("id", "t2")
+            .put("amount", -3)
+            .put("is_recurring", false)
+            .put("category", "Groceries")
+            .put("tags", new JSONArray()));
+
+        Reader reader = new Reader(encoder.encode(7));
+        assertEquals(7, reader.tag);
+        assertEquals(2, reader.rowCount);
+        assertEquals(new HashSet<>(Arrays.asList("id", "amount", "is_recurring", "category", "tags")),
+            reader.columns.keySet());
+        assertEquals(ColumnarEncoder.TYPE_STRING, reader.type("id"));
+        assertEquals(ColumnarEncoder.TYPE_FLOAT64, reader.type("amount"));
+        assertEquals(ColumnarEncoder.TYPE_BOOL, reader.type("is_recurring"));
+        assertEquals(ColumnarEncoder.TYPE_JSON, reader.type("tags"));
+
+        assertEquals("t2", reader.get(1, "id"));
+        assertEquals(12.5, reader.get(0, "amount"));
+        assertEquals(-3.0, reader.get(1, "amount"));
+        assertEquals(true, reader.get(0, "is_recurring"));
+        assertEquals(false, reader.get(1, "is_recurring"));
+        assertEquals("Groceries", reader.get(1, "category"));
+        assertEquals("[\"food\"]", reader.get(0, "tags"));
+    }
+
+    @Test
+    public void repeatedStringsShareADictionary() throws Exception {
+        ColumnarEncoder encoder = new ColumnarEncoder();
+        String[] categories = { "Rent", "Dining", "Travel" };
+        for (int i = 0; i < 300; i++) {
+            encoder.add(new JSONObject()
+                .put("id", "row-" + i)
+                .put("category", categories[i % categories.length])
+                .put("user_id", "user-1"));
+        }
+        Reader reader = new Reader(encoder.encode(1));
+        assertEquals(ColumnarEncoder.TYPE_STRING, reader.type("id"));
+        assertEquals(ColumnarEncoder.TYPE_DICTIONARY, reader.type("category"));
+        assertEquals(ColumnarEncoder.TYPE_DICTIONARY, reader.type("user_id"));
+        for (int i = 0; i < 300; i++) {
+            assertEquals("row-" + i, reader.get(i, "id"));
+            assertEquals(categories[i % categories.length], reader.get(i, "category"));
+            assertEquals("user-1", reader.get(i, "user_id"));
+        }
+    }
+
+    @Test
+    public void missingFieldsAndNullsReadBackAsNull() throws Exception {
+        ColumnarEncoder encoder = new ColumnarEncoder();
+        encoder.add(new JSONObject().put("id", "a").put("note", JSONObject.NULL));
+        encoder.add(new JSONObject().put("id", "b").put("note", "später ✓").put("amount", 5));
+        encoder.add(new JSONObject().put("id", "c"));
+
+        Reader reader = new Reader(encoder.encode(0));
+        assertEquals(3, reader.rowCount);
+        assertNull(reader.get(0, "note"));
+        assertEquals("später ✓", reader.get(1, "note"));
+        assertNull(reader.get(2, "note"));
+        // First seen on the second row
+        assertNull(reader.get(0, "amount"));
+        assertEquals(5.0, reader.get(1, "amount"));
+        assertNull(reader.get(2, "amount"));
+    }
+
+    @Test
+    public void mixedTypesFallBackToJson() throws Exception {
+        ColumnarEncoder encoder = new ColumnarEncoder();
+        encoder.add(new JSONObject().put("amount", "12.50"));
+        encoder.add(new JSONObject().put("amount", 7));
+        encoder.add(new JSONObject().put("amount", new JSONObject().put("value", 1)));
+
+        Reader reader = new Reader(encoder.encode(0));
+        assertEquals(ColumnarEncoder.TYPE_JSON, reader.type("amount"));
+        assertEquals("\"12.50\"", reader.get(0, "amount"));
+        assertEquals("7", reader.get(1, "amount"));
+        assertEquals("{\"value\":1}", reader.get(2, "amount"));
+    }
+
+    @Test
+    public void selectedFieldsKeepTheirOrder() throws Exception {
+        ColumnarEncoder encoder = new ColumnarEncoder(Arrays.asList("date", "amount", "absent"));
+        encoder.add(new JSONObject().put("id", "x").put("amount", 1).put("date", "2026-01-02"));
+
+        Reader reader = new Reader(encoder.encode(0));
+        assertEquals(Arrays.asList("date", "amount", "absent"), Arrays.asList(reader.columns.keySet().toArray()));
+        assertEquals("2026-01-02", reader.get(0, "date"));
+        assertNull(reader.get(0, "absent"));
+    }
+
+    @Test
+    public void typedSectionsAreAligned() throws Exception {
+        ColumnarEncoder encoder = new ColumnarEncoder();
+        for (int i = 0; i < 13; i++) {
+            encoder.add(new JSONObject().put("n", "odd-name-" + i).put("v", i % 3 == 0 ? JSONObject.NULL : i));
+        }
+        Reader reader = new Reader(encoder.encode(0));
+        for (Reader.Column column : reader.columns.values()) {
+            assertEquals(0, column.start % 8);
+            assertEquals(0, column.data % 8);
+        }
+        assertEquals(4.0, reader.get(4, "v"));
+        assertNull(reader.get(6, "v"));
+    }
+
+    @Test
+    public void emptyBatchHasOnlyAHeader() {
+        byte[] batch = new ColumnarEncoder().encode(3);
+        assertEquals(16, batch.length);
+        Reader reader = new Reader(batch);
+        assertEquals(0, reader.rowCount);
+        assertTrue(reader.columns.isEmpty());
+    }
+
+    // Mirrors src/lib/columnarBatch.ts. JSON cells are returned as their text.
+    static final class Reader {
+        static final class Column {
+            int type;
+            int flags;
+            int start;
+            int data;
+        }
+
+        final ByteBuffer buffer;
+        final int tag;
+        final int rowCount;
+        final Map<String, Column> columns = new LinkedHashMap<>();
+
+        Reader(byte[] batch) {
+            buffer = ByteBuffer.wrap(batch).order(ByteOrder.LITTLE_ENDIAN);
+            assertEquals(ColumnarEncoder.MAGIC, buffer.getInt(0));
+            tag = buffer.getInt(4);
+            rowCount = buffer.getInt(8);
+            int columnCount = buffer.getInt(12);
+            int offset = 16;
+            for (int i = 0; i < columnCount; i++) {
+                Column column = new Column();
+                column.type = buffer.get(offset);
+                column.flags = buffer.get(offset + 1);
+                int nameLength = buffer.getShort(offset + 2) & 0xffff;
+                String name = new String(batch, offset + 4, nameLength, StandardCharsets.UTF_8);
+                offset = align(offset + 4 + nameLength, 4);
+                int length = buffer.getInt(offset);
+                column.start = align(offset + 4, 8);
+                column.data = column.start;
+                if ((column.flags & ColumnarEncoder.FLAG_HAS_NULLS) != 0) {
+                    column.data = align(column.start + (rowCount + 7) / 8, 8);
+                }
+                columns.put(name, column);
+                offset = column.start + length;
+            }
+            assertEquals(batch.length, offset);
+        }
+
+        int type(String name) {
+            return columns.get(name).type;
+        }
+
+        Object get(int row, String name) {
+            Column column = columns.get(name);
+            if ((column.flags & ColumnarEncoder.FLAG_HAS_NULLS) != 0
+                && (buffer.get(column.start + row / 8) & (1 << (row % 8))) == 0) {
+                return null;
+            }
+            switch (column.type) {
+                case ColumnarEncoder.TYPE_FLOAT64:
+                    return buffer.getDouble(column.data + row * 8);
+                case ColumnarEncoder.TYPE_BOOL:
+                    return buffer.get(column.data + row) == 1;
+                case ColumnarEncoder.TYPE_DICTIONARY: {
+                    int entryCount = buffer.getInt(column.data);
+                    int offsets = column.data + 4;
+                    int bytes = offsets + (entryCount + 1) * 4;
+                    int indices = align(bytes + buffer.getInt(offsets + entryCount * 4), 2);
+                    return string(offsets, bytes, buffer.getShort(indices + row * 2) & 0xffff);
+                }
+                default:
+                    return string(column.data, column.data + (rowCount + 1) * 4, row);
+            }
+        }
+
+        private String string(int offsets, int bytes, int index) {
+            int from = buffer.getInt(offsets + index * 4);
+            int to = buffer.getInt(offsets + (index + 1) * 4);
+            return new String(buffer.array(), bytes + from, to - from, StandardCharsets.UTF_8);
+        }
+
+        private static int align(int offset, int alignment) {
+            return (offset + alignment - 1) / alignment * alignment;
+        }
+    }
+}
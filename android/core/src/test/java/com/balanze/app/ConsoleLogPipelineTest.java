@@ -0,0 +1,202 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Pure-JVM parts of the console log pipeline: ring buffer, limiter, file rotation
+public class ConsoleLogPipelineTest {
+
+    private static final int INFO = 4;
+    private static final int WARN = 5;
+    private static final int ERROR = 6;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void ringBufferDrainsInOfferOrder() {
+        LogRingBuffer buffer = new LogRingBuffer(8);
+        List<String> drained = new ArrayList<>();
+        for (int round = 0; round < 3; round++) {
+            assertTrue(buffer.isEmpty());
+            for (int i = 0; i < 5; i++) {
+                assertTrue(buffer.offer(INFO, round + ":" + i, "app.js", i, 0));
+            }
+            assertFalse(buffer.isEmpty());
+            assertEquals(5, buffer.drain(entry -> drained.add(entry.message), 100));
+        }
+        assertTrue(buffer.isEmpty());
+
+        assertEquals(15, drained.size());
+        assertEquals("0:0", drained.get(0));
+        assertEquals("2:4", drained.get(14));
+    }
+
+    @Test
+    public void ringBufferRejectsWhenFullAndRecoversAfterDrain() {
+        LogRingBuffer buffer = new LogRingBuffer(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(buffer.offer(ERROR, "m" + i, "app.js", 1, 0));
+        }
+        assertFalse(buffer.offer(ERROR, "overflow", "app.js", 1, 0));
+
+        List<String> drained = new ArrayList<>();
+        assertEquals(2, buffer.drain(entry -> drained.add(entry.message), 2));
+        assertTrue(buffer.offer(ERROR, "m4", "app.js", 1, 0));
+        buffer.drain(entry -> drained.add(entry.message), 100);
+
+        assertEquals(List.of("m0", "m1", "m2", "m3", "m4"), drained);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void ringBufferCapacityMustBePowerOfTwo() {
+        new LogRingBuffer(100);
+    }
+
+    @Test
+    public void concurrentProducersLoseNothingThatWasAccepted() throws Exception {
+        LogRingBuffer buffer = new LogRingBuffer(1024);
+        int producers = 4;
+        int perProducer = 50_000;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        long[] accepted = new long[producers];
+        for (int p = 0; p < producers; p++) {
+            final int id = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    if (buffer.offer(INFO, id + ":" + i, "app.js", i, 0)) {
+                        accepted[id]++;
+                    }
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        Set<String> seen = new HashSet<>();
+        int[] lastIndex = {-1, -1, -1, -1};
+        boolean[] ordered = {true};
+        start.countDown();
+        boolean running = true;
+        while (running) {
+            running = threads.stream().anyMatch(Thread::isAlive);
+            buffer.drain(entry -> {
+                seen.add(entry.message);
+                int producer = entry.message.charAt(0) - '0';
+                if (entry.line <= lastIndex[producer]) {
+                    ordered[0] = false;
+                }
+                lastIndex[producer] = entry.line;
+            }, 1024);
+        }
+        buffer.drain(entry -> seen.add(entry.message), Integer.MAX_VALUE);
+
+        long total = 0;
+        for (long count : accepted) {
+            total += count;
+        }
+        assertEquals(total, seen.size());
+        assertTrue("each producer's messages stay in order", ordered[0]);
+    }
+
+    @Test
+    public void limiterCapsEachLevelPerSecond() {
+        LogRateLimiter limiter = new LogRateLimiter();
+        limiter.setRule(ERROR, 1, 3);
+
+        int allowed = 0;
+        for (int i = 0; i < 10; i++) {
+            if (limiter.allow(ERROR, 1_000 + i)) {
+                allowed++;
+            }
+        }
+        assertEquals(3, allowed);
+        assertEquals(7, limiter.takeSuppressed(ERROR));
+        assertEquals(0, limiter.takeSuppressed(ERROR));
+
+        // Next window starts fresh; other levels are unaffected
+        assertTrue(limiter.allow(ERROR, 2_000));
+        for (int i = 0; i < 100; i++) {
+            assertTrue(limiter.allow(WARN, 1_000));
+        }
+    }
+
+    @Test
+    public void limiterSamplesAndCanDropLevels() {
+        LogRateLimiter limiter = new LogRateLimiter();
+        limiter.setRule(INFO, 10, LogRateLimiter.UNLIMITED);
+        limiter.setRule(3, 1, 0);
+
+        int allowed = 0;
+        for (int i = 0; i < 100; i++) {
+            if (limiter.allow(INFO, i)) {
+                allowed++;
+            }
+        }
+        assertEquals(10, allowed);
+        assertEquals(90, limiter.takeSuppressed(INFO));
+        assertFalse(limiter.allow(3, 0));
+    }
+
+    @Test
+    public void fileRotatesAndExportsOldestFirst() throws IOException {
+        File dir = new File(folder.getRoot(), "logs");
+        RotatingLogFile file = new RotatingLogFile(dir, "console", 100, 3);
+        for (int i = 0; i < 40; i++) {
+            file.appendLine(String.format("line %02d %s", i, "x".repeat(10)));
+        }
+        file.flush();
+
+        assertTrue(file.fileAt(0).exists());
+        assertTrue(file.fileAt(1).exists());
+        assertTrue(file.fileAt(2).exists());
+        assertFalse(file.fileAt(3).exists());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(file.fileAt(i).length() <= 100);
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        file.exportTo(out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("line 39 xxxxxxxxxx", lines[lines.length - 1]);
+        for (int i = 1; i < lines.length; i++) {
+            assertTrue(lines[i - 1].compareTo(lines[i]) < 0);
+        }
+        file.close();
+    }
+
+    @Test
+    public void fileAppendsAcrossReopenAndDeletesAll() throws IOException {
+        File dir = new File(folder.getRoot(), "logs");
+        RotatingLogFile file = new RotatingLogFile(dir, "console", 1024, 2);
+        file.appendLine("first");
+        file.close();
+
+        RotatingLogFile reopened = new RotatingLogFile(dir, "console", 1024, 2);
+        reopened.appendLine("second");
+        reopened.flush();
+        assertEquals(List.of("first", "second"), Files.readAllLines(reopened.fileAt(0).toPath()));
+
+        reopened.deleteAll();
+        assertFalse(reopened.fileAt(0).exists());
+    }
+}
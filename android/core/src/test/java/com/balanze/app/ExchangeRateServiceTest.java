@@ -0,0 +1,223 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Runs the service against a local HttpServer standing in for the rates API
+public class ExchangeRateServiceTest {
+
+    private static final long TTL_MS = 60_000;
+    private static final long RETRY_MS = 10_000;
+    private static final double DELTA = 1e-9;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private String endpoint;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile int status = 200;
+    private volatile String body = rates("\"EUR\":0.9,\"GBP\":0.75,\"JPY\":150");
+    private volatile String requestedPath;
+    private long now = 1_000_000;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/v4/latest/", this::serve);
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/v4/latest/";
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        requestedPath = exchange.getRequestURI().getPath();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String rates(String entries) {
+        return "{\"provider\":\"test\",\"base\":\"USD\",\"date\":\"2026-10-16\","
+            + "\"time_last_updated\":1792108800,\"rates\":{\"USD\":1," + entries + "}}";
+    }
+
+    private File snapshotFile() {
+        return new File(folder.getRoot(), "exchange_rates.bin");
+    }
+
+    private ExchangeRateService service() {
+        return new ExchangeRateService(snapshotFile(), endpoint, "USD", TTL_MS, RETRY_MS, () -> now);
+    }
+
+    @Test
+    public void triangulatesThroughTheBase() {
+        ExchangeRateService service = service();
+
+        assertEquals(0.9, service.rate("USD", "EUR"), DELTA);
+        assertEquals(1 / 0.9, service.rate("EUR", "USD"), DELTA);
+        assertEquals(0.75 / 0.9, service.rate("EUR", "GBP"), DELTA);
+        assertEquals(150 / 0.75, service.rate("gbp", "jpy"), DELTA);
+        assertEquals(1, service.rate("CHF", "CHF"), DELTA);
+        assertTrue(Double.isNaN(service.rate("CHF", "EUR")));
+        assertEquals("/v4/latest/USD", requestedPath);
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void convertsAColumnInOnePass() {
+        ExchangeRateService service = service();
+
+        double[] converted = service.convert(
+            new double[] { 100, 90, 75, 10, 5 },
+            new String[] { "USD", "EUR", "GBP", "XXX", "EUR" },
+            "EUR");
+
+        assertEquals(90, converted[0], DELTA);
+        assertEquals(90, converted[1], DELTA);
+        assertEquals(90, converted[2], DELTA);
+        assertTrue(Double.isNaN(converted[3]));
+        assertEquals(5, converted[4], DELTA);
+
+        double[] single = service.convert(new double[] { 1, 2, 3 }, new String[] { "JPY" }, "USD");
+        assertArrayEquals(new double[] { 1 / 150.0, 2 / 150.0, 3 / 150.0 }, single, DELTA);
+        assertEquals(1, requests.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMismatchedCurrencyColumn() {
+        service().convert(new double[] { 1, 2, 3 }, new String[] { "USD", "EUR" }, "GBP");
+    }
+
+    @Test
+    public void refreshesOnlyAfterTheTtl() {
+        ExchangeRateService service = service();
+        service.rate("USD", "EUR");
+
+        now += TTL_MS - 1;
+        body = rates("\"EUR\":0.95");
+        assertEquals(0.9, service.rate("USD", "EUR"), DELTA);
+        assertEquals(1, requests.get());
+
+        now += 1;
+        assertEquals(0.95, service.rate("USD", "EUR"), DELTA);
+        assertEquals(2, requests.get());
+        assertFalse(service.isStale());
+    }
+
+    @Test
+    public void servesTheLastSnapshotWhileOfflineAndBacksOff() {
+        ExchangeRateService service = service();
+        service.rate("USD", "EUR");
+
+        server.stop(0);
+        now += TTL_MS;
+        assertEquals(0.9, service.rate("USD", "EUR"), DELTA);
+        assertTrue(service.isStale());
+        assertNotNull(service.lastError());
+        assertEquals(2, service.fetchCount());
+
+        // No new attempt inside the retry window
+        now += RETRY_MS - 1;
+        assertEquals(0.9, service.rate("USD", "EUR"), DELTA);
+        assertEquals(2, service.fetchCount());
+
+        now += 1;
+        service.rate("USD", "EUR");
+        assertEquals(3, service.fetchCount());
+    }
+
+    @Test
+    public void snapshotSurvivesARestartWithoutNetwork() {
+        service().rate("USD", "EUR");
+        server.stop(0);
+
+        now += 10 * TTL_MS;
+        ExchangeRateService restarted = service();
+        assertEquals(0.75 / 0.9, restarted.rate("EUR", "GBP"), DELTA);
+        ExchangeRateService.Snapshot snapshot = restarted.current();
+        assertEquals("USD", snapshot.base);
+        assertEquals(1_000_000, snapshot.fetchedAt);
+        assertEquals(4, snapshot.rates.size());
+    }
+
+    @Test
+    public void badResponsesKeepTheOldTable() throws IOException {
+        ExchangeRateService service = service();
+        service.rate("USD", "EUR");
+
+        status = 500;
+        try {
+            service.refresh();
+            fail("expected the refresh to fail");
+        } catch (IOException expected) {
+            // old table stays
+        }
+        status = 200;
+        body = "{\"result\":\"error\",\"rates\":{}}";
+        try {
+            service.refresh();
+            fail("expected the refresh to fail");
+        } catch (IOException expected) {
+            // old table stays
+        }
+        assertEquals(0.9, service.current().rates.get("EUR"), DELTA);
+
+        body = rates("\"EUR\":0.8");
+        assertEquals(0.8, service.refresh().rates.get("EUR"), DELTA);
+        assertNull(service.lastError());
+    }
+
+    @Test
+    public void withoutAnySnapshotOnlySameCurrencyConverts() {
+        server.stop(0);
+        ExchangeRateService service = service();
+
+        assertNull(service.current());
+        double[] converted = service.convert(new double[] { 5, 7 }, new String[] { "EUR", "USD" }, "EUR");
+        assertEquals(5, converted[0], DELTA);
+        assertTrue(Double.isNaN(converted[1]));
+    }
+
+    @Test
+    public void corruptSnapshotIsDiscarded() throws IOException {
+        Files.write(snapshotFile().toPath(), new byte[] { 1, 2, 3 });
+        server.stop(0);
+
+        assertNull(service().current());
+        assertFalse(snapshotFile().exists());
+    }
+
+    @Test
+    public void parsesOnlyPositiveRates() throws IOException {
+        Map<String, Double> parsed = ExchangeRateService.parseRates(
+            "{\"base\":\"USD\",\"rates\":{\"eur\":0.9, \"IDR\": 1.6e4, \"BAD\":0, \"NEG\":-1}}");
+
+        assertEquals(2, parsed.size());
+        assertEquals(0.9, parsed.get("EUR"), DELTA);
+        assertEquals(16000, parsed.get("IDR"), DELTA);
+    }
+}
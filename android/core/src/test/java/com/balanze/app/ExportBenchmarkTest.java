@@ -0,0 +1,153 @@
+package com.balanze.app;
+
+import static org.junit.Assume.assumeTrue;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Compares streaming export against building the whole document in memory,
+// which is what exportUtils does in the WebView (all rows, then one string
+// or jsPDF document). The in-memory path is emulated on the JVM, so absolute
+// numbers differ from a device; the peak-heap ratio is what matters.
+//
+// Run with: ./gradlew :core:test -Pbenchmark=true --tests '*ExportBenchmarkTest'
+public class ExportBenchmarkTest {
+
+    private static final int[] SIZES = { 10_000, 100_000 };
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void csv() throws Exception {
+        assumeTrue(Boolean.getBoolean("balanze.benchmark"));
+        for (int size : SIZES) {
+            report("csv streaming", size, measure(() -> streamCsv(size)));
+            report("csv in-memory", size, measure(() -> inMemoryCsv(size)));
+        }
+    }
+
+    @Test
+    public void pdf() throws Exception {
+        assumeTrue(Boolean.getBoolean("balanze.benchmark"));
+        for (int size : SIZES) {
+            report("pdf streaming", size, measure(() -> streamPdf(size)));
+        }
+    }
+
+    private interface Run {
+        void run() throws IOException;
+    }
+
+    private static class Result {
+        long elapsedNanos;
+        long peakHeapBytes;
+    }
+
+    private Result measure(Run run) throws IOException {
+        // Warm up once so JIT compilation is not part of the measurement
+        run.run();
+        System.gc();
+
+        List<MemoryPoolMXBean> heapPools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                pool.resetPeakUsage();
+                heapPools.add(pool);
+            }
+        }
+        long start = System.nanoTime();
+        run.run();
+        Result result = new Result();
+        result.elapsedNanos = System.nanoTime() - start;
+        for (MemoryPoolMXBean pool : heapPools) {
+            result.peakHeapBytes += pool.getPeakUsage().getUsed();
+        }
+        return result;
+    }
+
+    private void streamCsv(int size) throws IOException {
+        try (OutputStream out = new FileOutputStream(folder.newFile());
+             TransactionExportWriter writer = new CsvExportWriter(out)) {
+            writeAll(writer, size);
+        }
+    }
+
+    private void streamPdf(int size) throws IOException {
+        try (OutputStream out = new FileOutputStream(folder.newFile());
+             TransactionExportWriter writer = new PdfExportWriter(out, 1)) {
+            writeAll(writer, size);
+        }
+    }
+
+    private static void writeAll(TransactionExportWriter writer, int size) throws IOException {
+        ExportSummary summary = new ExportSummary(Arrays.asList("Type: expense"), "USD", "now");
+        for (int i = 0; i < size; i++) {
+            ExportRow row = row(i);
+            writer.writeRow(row);
+            summary.add(row);
+        }
+        writer.finish(summary);
+    }
+
+    // Mirrors exportToCSV: every row is materialised, mapped to string arrays
+    // and joined into a single string before anything is written
+    private void inMemoryCsv(int size) throws IOException {
+        List<ExportRow> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            rows.add(row(i));
+        }
+        List<String[]> cells = new ArrayList<>(size);
+        for (ExportRow row : rows) {
+            cells.add(new String[] { row.date, row.description, row.category, row.account, row.displayType(), row.displayAmount(), row.tags });
+        }
+        StringBuilder csv = new StringBuilder();
+        csv.append(String.join(",", TransactionExportWriter.HEADERS));
+        for (String[] line : cells) {
+            csv.append('\n');
+            for (int i = 0; i < line.length; i++) {
+                if (i > 0) {
+                    csv.append(',');
+                }
+                csv.append('"').append(line[i].replace("\"", "\"\"")).append('"');
+            }
+        }
+        String content = csv.toString();
+        try (Writer out = new OutputStreamWriter(new FileOutputStream(folder.newFile()), StandardCharsets.UTF_8)) {
+            out.write(content);
+        }
+    }
+
+    private static ExportRow row(int i) {
+        return new ExportRow(
+            "1/" + (i % 28 + 1) + "/25",
+            "Transaction number " + i + " at \"Store\"",
+            i % 3 == 0 ? "Groceries" : "Utilities",
+            "Checking",
+            i % 5 == 0 ? "income" : "expense",
+            false,
+            (i % 1000) + 0.25,
+            i % 7 == 0 ? "recurring; monthly" : ""
+        );
+    }
+
+    private static void report(String label, int size, Result result) {
+        double seconds = result.elapsedNanos / 1e9;
+        System.out.println(String.format(Locale.US, "%-14s rows=%-7d time=%7.1f ms  rows/s=%10.0f  peakHeap=%6.1f MB",
+            label, size, seconds * 1000, size / seconds, result.peakHeapBytes / (1024.0 * 1024.0)));
+    }
+}
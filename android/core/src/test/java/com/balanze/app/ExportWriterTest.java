@@ -0,0 +1,81 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.Test;
+
+public class ExportWriterTest {
+
+    @Test
+    public void csvMatchesWebExportQuoting() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvExportWriter writer = new CsvExportWriter(out)) {
+            writer.writeRow(new ExportRow("1/2/25", "Say \"hi\", then", "Food", "Cash", "expense", false, 12.5, "a; b"));
+            writer.writeRow(new ExportRow("1/3/25", "Move", "Transfer", "Bank", "expense", true, 100, ""));
+            writer.finish(new ExportSummary(Collections.emptyList(), "USD", "now"));
+        }
+
+        String[] lines = out.toString(StandardCharsets.UTF_8.name()).split("\n");
+        assertEquals(3, lines.length);
+        assertEquals("\"Date\",\"Description\",\"Category\",\"Account\",\"Type\",\"Amount\",\"Tags\"", lines[0]);
+        assertEquals("\"1/2/25\",\"Say \"\"hi\"\", then\",\"Food\",\"Cash\",\"expense\",\"12.5\",\"a; b\"", lines[1]);
+        assertEquals("\"1/3/25\",\"Move\",\"Transfer\",\"Bank\",\"Transfer\",\"100\",\"\"", lines[2]);
+    }
+
+    @Test
+    public void csvAppendsSummaryOnlyWhenFiltered() throws Exception {
+        ExportSummary summary = new ExportSummary(Arrays.asList("Type: income"), "USD", "now");
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (CsvExportWriter writer = new CsvExportWriter(out)) {
+            ExportRow row = new ExportRow("d", "Salary", "Work", "Bank", "income", false, 1500, "");
+            writer.writeRow(row);
+            summary.add(row);
+            writer.finish(summary);
+        }
+
+        String csv = out.toString(StandardCharsets.UTF_8.name());
+        assertTrue(csv.contains("# Type: income\n"));
+        assertTrue(csv.contains("# Records: 1\n"));
+        assertTrue(csv.contains("# Total Income: $1,500.00\n"));
+        assertTrue(csv.contains("# Net Amount: $1,500.00\n"));
+    }
+
+    @Test
+    public void pdfSpansPagesWithValidXref() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ExportSummary summary = new ExportSummary(Arrays.asList("Account: Bank"), "EUR", "now");
+        try (PdfExportWriter writer = new PdfExportWriter(out, 1)) {
+            for (int i = 0; i < 200; i++) {
+                ExportRow row = new ExportRow("d" + i, "Row (" + i + ")", "Cat", "Bank", "expense", false, i, "");
+                writer.writeRow(row);
+                summary.add(row);
+            }
+            writer.finish(summary);
+        }
+
+        String pdf = out.toString(StandardCharsets.ISO_8859_1.name());
+        assertTrue(pdf.startsWith("%PDF-1.4"));
+        assertTrue(pdf.endsWith("%%EOF\n"));
+        assertTrue(pdf.contains("(Row \\(199\\)) Tj"));
+        assertTrue(pdf.contains("(Records: 200) Tj"));
+
+        int pages = pdf.split("/Type /Page /Parent").length - 1;
+        assertTrue("expected several pages, got " + pages, pages > 1);
+        assertTrue(pdf.contains("/Count " + pages + " >>"));
+
+        // Every xref entry must point at the object it names
+        int xref = pdf.lastIndexOf("\nxref\n") + 1;
+        long startxref = Long.parseLong(pdf.substring(pdf.indexOf("startxref\n") + 10, pdf.indexOf("\n%%EOF")).trim());
+        assertEquals(xref, startxref);
+        String[] entries = pdf.substring(xref).split("\n");
+        int count = Integer.parseInt(entries[1].split(" ")[1]);
+        for (int id = 1; id < count; id++) {
+            int offset = Integer.parseInt(entries[2 + id].substring(0, 10));
+            assertTrue("object " + id, pdf.startsWith(id + " 0 obj\n", offset));
+        }
+    }
+}
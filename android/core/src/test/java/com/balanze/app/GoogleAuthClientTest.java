@@ -0,0 +1,180 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+
+public class GoogleAuthClientTest {
+
+    private static final GoogleAuthClient.Account ACCOUNT =
+        new GoogleAuthClient.Account("42", "token", "ada@example.com", "Ada", null);
+
+    // Records every Play Services round-trip; callbacks complete synchronously
+    private static class FakeBackend implements GoogleAuthClient.Backend {
+        final List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        GoogleAuthClient.Account lastAccount;
+
+        @Override
+        public void silentSignIn(GoogleAuthClient.SilentCallback callback) {
+            calls.add("silentSignIn");
+            if (lastAccount != null) {
+                callback.onAccount(lastAccount);
+            } else {
+                callback.onFailure(4);
+            }
+        }
+
+        @Override
+        public void signOut(Runnable done) {
+            calls.add("signOut");
+            lastAccount = null;
+            done.run();
+        }
+
+        @Override
+        public void revokeAccess(Runnable done) {
+            calls.add("revokeAccess");
+            done.run();
+        }
+    }
+
+    private static class RecordingFlow implements GoogleAuthClient.Flow {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onAccount(GoogleAuthClient.Account account) {
+            events.add("account:" + account.email);
+        }
+
+        @Override
+        public void showPicker() {
+            events.add("picker");
+        }
+
+        @Override
+        public void onError(String message) {
+            events.add("error");
+        }
+    }
+
+    private final FakeBackend backend = new FakeBackend();
+    private final AtomicInteger created = new AtomicInteger();
+    private final GoogleAuthClient client = new GoogleAuthClient(() -> {
+        created.incrementAndGet();
+        return backend;
+    });
+
+    @Test
+    public void backendIsCreatedLazilyAndOnlyOnce() {
+        assertEquals(0, created.get());
+
+        client.warmUp();
+        client.signIn(GoogleAuthClient.PROMPT_SELECT_ACCOUNT, new RecordingFlow());
+        client.signIn(GoogleAuthClient.PROMPT_NONE, new RecordingFlow());
+        client.signOut(() -> { });
+
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void concurrentCallersShareOneBackend() throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                client.warmUp();
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void selectAccountSignsOutButSkipsRevoke() {
+        RecordingFlow flow = new RecordingFlow();
+        client.signIn(GoogleAuthClient.PROMPT_SELECT_ACCOUNT, flow);
+
+        assertEquals(Arrays.asList("signOut"), backend.calls);
+        assertEquals(Arrays.asList("picker"), flow.events);
+    }
+
+    @Test
+    public void unknownPromptBehavesLikeSelectAccount() {
+        RecordingFlow flow = new RecordingFlow();
+        client.signIn(null, flow);
+
+        assertEquals(Arrays.asList("signOut"), backend.calls);
+        assertEquals(Arrays.asList("picker"), flow.events);
+    }
+
+    @Test
+    public void consentKeepsTheFullReset() {
+        RecordingFlow flow = new RecordingFlow();
+        client.signIn(GoogleAuthClient.PROMPT_CONSENT, flow);
+
+        assertEquals(Arrays.asList("signOut", "revokeAccess"), backend.calls);
+        assertEquals(Arrays.asList("picker"), flow.events);
+    }
+
+    @Test
+    public void promptNoneReturnsTheLastAccountWithoutUi() {
+        backend.lastAccount = ACCOUNT;
+        RecordingFlow flow = new RecordingFlow();
+        client.signIn(GoogleAuthClient.PROMPT_NONE, flow);
+
+        assertEquals(Arrays.asList("silentSignIn"), backend.calls);
+        assertEquals(Arrays.asList("account:ada@example.com"), flow.events);
+    }
+
+    @Test
+    public void promptNoneFallsBackToThePicker() {
+        RecordingFlow flow = new RecordingFlow();
+        client.signIn(GoogleAuthClient.PROMPT_NONE, flow);
+
+        assertEquals(Arrays.asList("silentSignIn"), backend.calls);
+        assertEquals(Arrays.asList("picker"), flow.events);
+    }
+
+    @Test
+    public void unconfiguredClientReportsAnErrorAndRetriesLater() {
+        AtomicInteger attempts = new AtomicInteger();
+        GoogleAuthClient unconfigured = new GoogleAuthClient(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IllegalStateException("Play Services not ready");
+            }
+            return null;
+        });
+
+        try {
+            unconfigured.warmUp();
+            fail("expected the factory failure");
+        } catch (IllegalStateException expected) {
+            // A failed creation is not cached
+        }
+        RecordingFlow flow = new RecordingFlow();
+        unconfigured.signIn(GoogleAuthClient.PROMPT_SELECT_ACCOUNT, flow);
+        boolean[] signedOut = {false};
+        unconfigured.signOut(() -> signedOut[0] = true);
+
+        assertEquals(Arrays.asList("error"), flow.events);
+        assertTrue(signedOut[0]);
+        assertEquals(2, attempts.get());
+    }
+}
@@ -0,0 +1,290 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Runs the cache against a local HttpServer standing in for Supabase and the
+// exchange rate API
+public class HttpResponseCacheTest {
+
+    private static final long TTL_MS = 60_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private HttpServer server;
+    private String base;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final AtomicInteger notModified = new AtomicInteger();
+    private final List<String> seenAuthorization = Collections.synchronizedList(new ArrayList<>());
+    private volatile String etag = "\"v1\"";
+    private volatile String body = "[{\"id\":1,\"name\":\"Food\"}]";
+    private volatile String cacheControl;
+    private long now = 1_000_000;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/rest/v1/categories", this::serveWithEtag);
+        server.createContext("/rest/v1/transactions", this::serveWithEtag);
+        server.createContext("/v4/latest/", exchange -> {
+            requests.incrementAndGet();
+            String lastModified = "Wed, 14 Oct 2026 00:00:00 GMT";
+            if (lastModified.equals(exchange.getRequestHeaders().getFirst("If-Modified-Since"))) {
+                notModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            exchange.getResponseHeaders().add("Last-Modified", lastModified);
+            respond(exchange, 200, "{\"base\":\"USD\",\"rates\":{\"EUR\":0.92}}");
+        });
+        server.start();
+        base = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private void serveWithEtag(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        seenAuthorization.add(exchange.getRequestHeaders().getFirst("Authorization"));
+        if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+            notModified.incrementAndGet();
+            exchange.getResponseHeaders().add("ETag", etag);
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+            return;
+        }
+        exchange.getResponseHeaders().add("ETag", etag);
+        if (cacheControl != null) {
+            exchange.getResponseHeaders().add("Cache-Control", cacheControl);
+        }
+        respond(exchange, 200, body);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String text) throws IOException {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private HttpResponseCache newCache(long maxMemory, long maxDisk) {
+        return new HttpResponseCache(new File(folder.getRoot(), "http"), Arrays.asList(
+            new HttpResponseCache.Rule("categories", base + "/rest/v1/categories", TTL_MS),
+            new HttpResponseCache.Rule("exchange_rates", base + "/v4/latest/", TTL_MS)
+        ), maxMemory, maxDisk, () -> now);
+    }
+
+    private static Map<String, String> auth(String token) {
+        Map<String, String> headers = new HashMap<>();
+        headers.put("Authorization", "Bearer " + token);
+        return headers;
+    }
+
+    private static String text(HttpResponseCache.Response response) {
+        return new String(response.body, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void repeatedGetIsServedWithoutNetwork() throws IOException {
+        HttpResponseCache cache = newCache(1 << 20, 1 << 22);
+        String url = base + "/rest/v1/categories?select=*";
+
+        HttpResponseCache.Response first = cache.get(url, auth("a"));
+        HttpResponseCache.Response second = cache.get(url, auth("a"));
+
+        assertEquals(HttpResponseCache.SOURCE_MISS, first.source);
+        assertEquals(HttpResponseCache.SOURCE_HIT, second.source);
+        assertEquals(body, text(second));
+        assertEquals("application/json; charset=utf-8", second.headers.get("content-type"));
+        assertEquals(1, requests.get());
+        HttpResponseCache.Stats stats = cache.stats();
+        assertEquals(1, stats.hits);
+        assertEquals(1, stats.misses);
+    }
+
+    @Test
+    public void staleEntryIsRevalidatedWithEtag() throws IOException {
+        HttpResponseCache cache = newCache(1 << 20, 1 << 22);
+        String url = base + "/rest/v1/categories?select=*";
+        cache.get(url, auth("a"));
+
+        now += TTL_MS + 1;
+        HttpResponseCache.Response revalidated = cache.get(url, auth("a"));
+        assertEquals(HttpResponseCache.SOURCE_REVALIDATED, revalidated.source);
+        assertEquals(200, revalidated.status);
+        assertEquals(body, text(revalidated));
+        assertEquals(1, notModified.get());
+
+        // A 304 restarts the TTL
+        assertEquals(HttpResponseCache.SOURCE_HIT, cache.get(url, auth("a")).source);
+
+        now += TTL_MS + 1;
+        etag = "\"v2\"";
+        body = "[{\"id\":1,\"name\":\"Groceries\"}]";
+        HttpResponseCache.Response changed = cache.get(url, auth("a"));
+        assertEquals(HttpResponseCache.SOURCE_MISS, changed.source);
+        assertEquals(body, text(changed));
+    }
+
+    @Test
+    public void staleEntryIsRevalidatedWithLastModified() throws IOException {
+        HttpResponseCache cache = newCache(1 << 20, 1 << 22);
+        String url = base + "/v4/latest/USD";
+        cache.get(url, null);
+
+        now += TTL_MS + 1;
+        HttpResponseCache.Response response = cache.get(url, null);
+        assertEquals(HttpResponseCache.SOURCE_REVALIDATED, response.source);
+        assertTrue(text(response).contains("EUR"));
+        assertEquals(2, requests.get());
+        assertEquals(1, notModified.get());
+    }
+
+    @Test
+    public void onlyAllowlistedUrlsAreCached() throws IOException {
+        HttpResponseCache cache = newCache(1 << 20, 1 << 22);
+
+        assertNull(cache.get(base + "/rest/v1/transactions?select=*", auth("a")));
+        assertFalse(cache.isCacheable(base + "/rest/v1/categories_archive"));
+        assertTrue(cache.isCacheable(base + "/rest/v1/categories?id=eq.1"));
+        assertEquals(0, requests.get());
+    }
+
+    @Test
+    public void differentUsersDoNotShareEntries() throws IOException {
+        HttpResponseCache cache = newCache(1 << 20, 1 << 22);
+        String url = base + "/rest/v1/categories?select=*";
+
+        cache.get(url, auth("alice"));
+        assertEquals(HttpResponseCache.SOURCE_MISS, cache.get(url, auth("bob")).source);
+        assertEquals(HttpResponseCache.SOURCE_HIT, cache.get(url, auth("alice")).source);
+        assertEquals(Arrays.asList("Bearer alice", "Bearer bob"), seenAuthorization);
+    }
+
+    @Test
+    public void mutationInvalidatesTheEndpoint() throws IOException {
+        HttpResponseCache cache = newCache(1 << 20, 1 << 22);
+        String url = base + "/rest/v1/categories?select=*";
+        cache.get(url, auth("a"));
+
+        assertTrue(cache.invalidate(base + "/rest/v1/categories?id=eq.1"));
+        assertFalse(cache.invalidate(base + "/rest/v1/transactions"));
+        assertEquals(HttpResponseCache.SOURCE_MISS, cache.get(url, auth("a")).source);
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    public void entriesSurviveRestartAndServeStaleWhenOffline() throws IOException {
+        String url = base + "/rest/v1/categories?select=*";
+        newCache(1 << 20, 1 << 22).get(url, auth("a"));
+
+        HttpResponseCache restarted = newCache(1 << 20, 1 << 22);
+        assertEquals(HttpResponseCache.SOURCE_HIT, restarted.get(url, auth("a")).source);
+        assertEquals(1, restarted.stats().diskEntries);
+
+        server.stop(0);
+        now += TTL_MS + 1;
+        HttpResponseCache.Response stale = restarted.get(url, auth("a"));
+        assertEquals(HttpResponseCache.SOURCE_STALE, stale.source);
+        assertEquals(body, text(stale));
+        assertEquals(1, restarted.stats().networkErrors);
+    }
+
+    @Test
+    public void diskTierEvictsLeastRecentlyUsed() throws IOException {
+        body = "x".repeat(500);
+        String a = base + "/rest/v1/categories?id=eq.a";
+        String b = base + "/rest/v1/categories?id=eq.b";
+        String c = base + "/rest/v1/categories?id=eq.c";
+        String d = base + "/rest/v1/categories?id=eq.d";
+        HttpResponseCache probe = newCache(1 << 20, 1 << 22);
+        probe.get(a, null);
+        long entryBytes = probe.stats().diskBytes;
+        probe.clear();
+
+        // Memory holds nothing (entries exceed a quarter of it); disk fits three entries
+        HttpResponseCache cache = newCache(1024, entryBytes * 3 + entryBytes / 2);
+        cache.get(a, null);
+        cache.get(b, null);
+        cache.get(c, null);
+        assertEquals(HttpResponseCache.SOURCE_HIT, cache.get(a, null).source);
+        cache.get(d, null);
+
+        HttpResponseCache.Stats stats = cache.stats();
+        assertEquals(1, stats.evictions);
+        assertEquals(3, stats.diskEntries);
+        assertEquals(0, stats.memoryEntries);
+        assertEquals(HttpResponseCache.SOURCE_HIT, cache.get(a, null).source);
+        assertEquals(HttpResponseCache.SOURCE_MISS, cache.get(b, null).source);
+    }
+
+    @Test
+    public void memoryTierIsBoundedAndFallsBackToDisk() throws IOException {
+        body = "y".repeat(200);
+        HttpResponseCache cache = newCache(1200, 1 << 22);
+        for (int i = 0; i < 10; i++) {
+            cache.get(base + "/rest/v1/categories?id=eq." + i, null);
+        }
+
+        HttpResponseCache.Stats stats = cache.stats();
+        assertTrue(stats.memoryBytes <= 1200);
+        assertTrue(stats.memoryEntries < 10);
+        assertEquals(10, stats.diskEntries);
+        assertEquals(HttpResponseCache.SOURCE_HIT, cache.get(base + "/rest/v1/categories?id=eq.0", null).source);
+        assertEquals(10, requests.get());
+    }
+
+    @Test
+    public void trimMemoryKeepsEntriesOnDisk() throws IOException {
+        HttpResponseCache cache = newCache(1 << 20, 1 << 22);
+        for (int i = 0; i < 4; i++) {
+            cache.get(base + "/rest/v1/categories?id=eq." + i, null);
+        }
+        assertEquals(4, cache.stats().memoryEntries);
+
+        cache.trimMemory(0);
+        HttpResponseCache.Stats stats = cache.stats();
+        assertEquals(0, stats.memoryEntries);
+        assertEquals(0, stats.memoryBytes);
+        assertEquals(4, stats.diskEntries);
+        assertEquals(HttpResponseCache.SOURCE_HIT, cache.get(base + "/rest/v1/categories?id=eq.2", null).source);
+        assertEquals(4, requests.get());
+    }
+
+    @Test
+    public void noStoreResponsesAreNotCached() throws IOException {
+        cacheControl = "no-store";
+        HttpResponseCache cache = newCache(1 << 20, 1 << 22);
+        String url = base + "/rest/v1/categories?select=*";
+
+        cache.get(url, null);
+        assertEquals(HttpResponseCache.SOURCE_MISS, cache.get(url, null).source);
+        assertEquals(0, cache.stats().diskEntries);
+    }
+}
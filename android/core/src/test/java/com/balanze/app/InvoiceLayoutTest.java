@@ -0,0 +1,352 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.Test;
+
+// Lays invoices out with a fixed-width measurer (half an em per character)
+// and replays the pages onto a recorder, standing in for the PdfDocument
+// the app draws on
+public class InvoiceLayoutTest {
+
+    private static final InvoiceTemplate.Company COMPANY =
+        new InvoiceTemplate.Company("Balanze Ltd", "12 Main St\n\nDhaka", "billing@balanze.cash", null, null);
+    private static final InvoiceLayout.Measurer HALF_EM = (text, bold, size) -> text.length() * size / 2f;
+
+    private static final class Text {
+        final float x;
+        final float y;
+        final int align;
+        final boolean bold;
+        final int color;
+        final String value;
+
+        Text(float x, float y, int align, boolean bold, int color, String value) {
+            this.x = x;
+            this.y = y;
+            this.align = align;
+            this.bold = bold;
+            this.color = color;
+            this.value = value;
+        }
+    }
+
+    private static final class Recorder implements InvoiceDrawing.Target {
+        final List<Text> texts = new ArrayList<>();
+        final List<float[]> logos = new ArrayList<>();
+        int rects;
+
+        @Override
+        public void text(float x, float baseline, int align, boolean bold, float size, int color, String value) {
+            texts.add(new Text(x, baseline, align, bold, color, value));
+        }
+
+        @Override
+        public void rect(float x, float top, float width, float height, int color) {
+            rects++;
+        }
+
+        @Override
+        public void line(float x1, float y, float x2, float strokeWidth, int color) {
+        }
+
+        @Override
+        public void logo(float x, float top, float width, float height) {
+            logos.add(new float[] { x, top, width, height });
+        }
+
+        Text find(String value) {
+            for (Text text : texts) {
+                if (text.value.equals(value)) {
+                    return text;
+                }
+            }
+            return null;
+        }
+
+        int count(String value) {
+            int count = 0;
+            for (Text text : texts) {
+                if (text.value.equals(value)) {
+                    count++;
+                }
+            }
+            return count;
+        }
+    }
+
+    @Test
+    public void laysOutTheWebLayout() throws Exception {
+        JSONObject json = invoice("INV-001", 2);
+        json.put("notes", "Thanks (really)!");
+        List<Recorder> pages = layout(InvoiceTemplate.compile(COMPANY, null), InvoiceData.fromJson(json));
+
+        assertEquals(1, pages.size());
+        Recorder page = pages.get(0);
+        for (String expected : new String[] {
+            "INVOICE", "Balanze Ltd", "Dhaka", "Email: billing@balanze.cash", "INV-001", "January 5, 2026",
+            "Unpaid", "Acme", "Main Road, Dhaka, Bangladesh", "1.5", "7.5%", "$1,234.50",
+            "Outstanding: $2,469.00", "Thanks (really)!", "Page 1 of 1", "Generated on 10/16/2026"
+        }) {
+            assertNotNull(expected, page.find(expected));
+        }
+        assertNull("blank address lines are skipped", page.find(""));
+
+        Text total = page.find("$2,469.00");
+        assertEquals(InvoiceDrawing.ALIGN_RIGHT, total.align);
+        assertTrue(total.bold);
+        assertEquals(InvoiceDrawing.ALIGN_CENTER, page.find("Page 1 of 1").align);
+        assertEquals(InvoiceLayout.WHITE, page.find("Description").color);
+        // Due 2026-02-05, laid out on 2026-10-16
+        assertEquals(InvoiceLayout.RED, page.find("February 5, 2026").color);
+        assertTrue(page.logos.isEmpty());
+    }
+
+    @Test
+    public void longInvoicesRepeatTheTableHeaderOnEveryPage() throws Exception {
+        List<Recorder> pages = layout(InvoiceTemplate.compile(COMPANY, null), InvoiceData.fromJson(invoice("INV-002", 120)));
+
+        assertTrue("expected several pages, got " + pages.size(), pages.size() > 2);
+        int headers = 0;
+        for (int i = 0; i < pages.size(); i++) {
+            Recorder page = pages.get(i);
+            headers += page.count("Description");
+            assertNotNull(page.find("Page " + (i + 1) + " of " + pages.size()));
+            for (Text text : page.texts) {
+                assertTrue(text.value + " below the page", text.y <= InvoiceLayout.PAGE_HEIGHT);
+            }
+        }
+        // The totals may have moved to a page of their own
+        assertTrue(headers + " table headers on " + pages.size() + " pages",
+            headers == pages.size() || headers == pages.size() - 1);
+        int lastItemPage = -1;
+        for (int i = 0; i < pages.size(); i++) {
+            if (pages.get(i).find("Item 119") != null) {
+                lastItemPage = i;
+            }
+        }
+        assertTrue(lastItemPage >= pages.size() - 2);
+    }
+
+    @Test
+    public void descriptionsWrapWithTheMeasurer() throws Exception {
+        JSONObject json = invoice("INV-003", 1);
+        json.getJSONArray("items").getJSONObject(0)
+            .put("description", "Quarterly bookkeeping and reconciliation for all business accounts");
+        Recorder page = layout(InvoiceTemplate.compile(COMPANY, null), InvoiceData.fromJson(json)).get(0);
+
+        // 40 mm less padding is about 103 points: 22 characters at 9 pt
+        float width = (InvoiceLayout.COLUMN_WIDTHS[0] - 2 * InvoiceLayout.CELL_PADDING) / InvoiceLayout.POINT;
+        Text first = page.find("Quarterly bookkeeping");
+        assertNotNull(first);
+        assertTrue(HALF_EM.width(first.value, false, 9f) <= width);
+        Text second = page.find("and reconciliation for");
+        assertNotNull(second);
+        assertEquals(InvoiceLayout.BODY_LINE, second.y - first.y, 0.001f);
+
+        assertEquals(Collections.singletonList("ab"), InvoiceLayout.wrap(HALF_EM, "ab", false, 10f, 100f));
+        assertEquals(Arrays.asList("abcd", "ef"), InvoiceLayout.wrap(HALF_EM, "abcdef", false, 10f, 20f));
+        assertEquals(Arrays.asList("a", "", "b"), InvoiceLayout.wrap(HALF_EM, "a\n\nb", false, 10f, 20f));
+    }
+
+    @Test
+    public void placesTheLogoTopRightKeepingItsAspectRatio() throws Exception {
+        InvoiceTemplate template = InvoiceTemplate.compile(COMPANY, new InvoiceTemplate.Logo(120, 40));
+        Recorder page = layout(template, InvoiceData.fromJson(invoice("INV-004", 1))).get(0);
+
+        assertEquals(1, page.logos.size());
+        float[] box = page.logos.get(0);
+        assertEquals(3f, box[2] / box[3], 0.001f);
+        assertTrue(box[2] <= 50f && box[3] <= 16f);
+        assertEquals(InvoiceLayout.PAGE_WIDTH - InvoiceLayout.MARGIN, box[0] + box[2], 0.001f);
+
+        try {
+            new InvoiceTemplate.Logo(0, 40);
+            fail("Empty logo accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void anySymbolThePageShowsIsKept() throws Exception {
+        InvoiceTemplate template = InvoiceTemplate.compile(COMPANY, null);
+        JSONObject taka = invoice("INV-005", 1).put("currency", "BDT").put("currency_symbol", "৳");
+        taka.getJSONObject("client").put("name", "রহিম উদ্দিন");
+        Recorder page = layout(template, InvoiceData.fromJson(taka)).get(0);
+        assertNotNull(page.find("৳1,234.50"));
+        assertNotNull(page.find("রহিম উদ্দিন"));
+
+        JSONObject noSymbol = invoice("INV-006", 1).put("currency", "EUR").put("currency_symbol", "");
+        assertNotNull(layout(template, InvoiceData.fromJson(noSymbol)).get(0).find("EUR 1,234.50"));
+    }
+
+    @Test
+    public void paidAndPartialInvoicesShowTheirPaymentLine() throws Exception {
+        InvoiceTemplate template = InvoiceTemplate.compile(COMPANY, null);
+        JSONObject paid = invoice("INV-007", 1).put("payment_status", "paid").put("paid_amount", 1234.5);
+        Recorder page = layout(template, InvoiceData.fromJson(paid)).get(0);
+        assertEquals(InvoiceLayout.GREEN, page.find("PAID").color);
+        for (Text text : page.texts) {
+            assertFalse(text.value.startsWith("Outstanding"));
+        }
+
+        JSONObject partial = invoice("INV-008", 1).put("payment_status", "partial").put("paid_amount", 1000);
+        page = layout(template, InvoiceData.fromJson(partial)).get(0);
+        assertEquals(InvoiceLayout.YELLOW, page.find("Paid: $1,000.00 / $1,234.50").color);
+        assertNotNull(page.find("Outstanding: $234.50"));
+    }
+
+    @Test
+    public void rejectsInvoicesTheWebRendererRejects() throws Exception {
+        try {
+            InvoiceData.fromJson(invoice("", 1));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Invoice number is missing", e.getMessage());
+        }
+        try {
+            InvoiceData.fromJson(invoice("INV-009", 1).put("items", new JSONArray()));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("Invoice must have at least one item", e.getMessage());
+        }
+    }
+
+    @Test
+    public void formatsLikeTheWebHelpers() {
+        assertEquals("0.05", InvoiceLayout.groupedAmount(0.05));
+        assertEquals("1,234,567.89", InvoiceLayout.groupedAmount(-1234567.891));
+        assertEquals("999.00", InvoiceLayout.groupedAmount(999));
+        assertEquals("2", InvoiceLayout.number(2));
+        assertEquals("0.125", InvoiceLayout.number(0.125));
+        assertEquals("December 31, 2025", InvoiceLayout.formatDate("2025-12-31T10:00:00Z"));
+        assertEquals("soon", InvoiceLayout.formatDate("soon"));
+        assertEquals("-12.13", PdfObjectWriter.format(-12.125f));
+        assertEquals(String.format(Locale.US, "%.2f", 841.8898f), PdfObjectWriter.format(841.8898f));
+    }
+
+    @Test
+    public void batchKeepsGoingWhenOneInvoiceFails() throws Exception {
+        List<InvoiceData> invoices = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            invoices.add(InvoiceData.fromJson(invoice("INV-1" + i, 1 + i % 4)));
+        }
+        Map<Integer, ByteArrayOutputStream> files = new ConcurrentHashMap<>();
+        List<Integer> discarded = Collections.synchronizedList(new ArrayList<>());
+        List<Integer> progress = Collections.synchronizedList(new ArrayList<>());
+        InvoiceBatchRenderer.Sink sink = new InvoiceBatchRenderer.Sink() {
+            @Override
+            public OutputStream open(int index, InvoiceData invoice) throws IOException {
+                if (index == 7) {
+                    throw new IOException("disk full");
+                }
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                files.put(index, out);
+                return out;
+            }
+
+            @Override
+            public void discard(int index, InvoiceData invoice) {
+                discarded.add(index);
+            }
+        };
+        // Writes each page's text, one value per line
+        InvoiceLayout layout = new InvoiceLayout(InvoiceTemplate.compile(COMPANY, null), "2026-10-16", "today", HALF_EM);
+        InvoiceBatchRenderer.Renderer renderer = (invoice, out) -> {
+            List<Recorder> pages = replay(layout.layout(invoice));
+            for (Recorder page : pages) {
+                for (Text text : page.texts) {
+                    out.write((text.value + "\n").getBytes(StandardCharsets.UTF_8));
+                }
+            }
+            return pages.size();
+        };
+
+        List<InvoiceBatchRenderer.Result> results;
+        try (InvoiceBatchRenderer batch = new InvoiceBatchRenderer(3)) {
+            results = batch.render(renderer, invoices, sink, (result, completed, total) -> {
+                assertEquals(25, total);
+                progress.add(completed);
+            });
+        }
+
+        assertEquals(25, results.size());
+        assertEquals(Collections.singletonList(7), discarded);
+        assertEquals(25, progress.size());
+        assertTrue(progress.contains(25));
+        for (InvoiceBatchRenderer.Result result : results) {
+            assertEquals(invoices.get(result.index), result.invoice);
+            if (result.index == 7) {
+                assertFalse(result.ok());
+                assertEquals("disk full", result.error);
+            } else {
+                assertTrue(result.error, result.ok());
+                assertEquals(1, result.pages);
+                String text = files.get(result.index).toString(StandardCharsets.UTF_8.name());
+                assertTrue(text.contains("\n" + result.invoice.invoiceNumber + "\n"));
+            }
+        }
+    }
+
+    private static List<Recorder> layout(InvoiceTemplate template, InvoiceData invoice) {
+        return replay(new InvoiceLayout(template, "2026-10-16", "10/16/2026", HALF_EM).layout(invoice));
+    }
+
+    private static List<Recorder> replay(List<InvoiceDrawing> drawings) {
+        List<Recorder> pages = new ArrayList<>();
+        for (InvoiceDrawing drawing : drawings) {
+            Recorder page = new Recorder();
+            drawing.replay(page);
+            pages.add(page);
+        }
+        return pages;
+    }
+
+    private static JSONObject invoice(String number, int itemCount) throws Exception {
+        JSONArray items = new JSONArray();
+        for (int i = 0; i < itemCount; i++) {
+            items.put(new JSONObject()
+                .put("description", "Item " + i)
+                .put("quantity", 1.5)
+                .put("unit_price", 823)
+                .put("tax_rate", 7.5)
+                .put("discount_rate", 0)
+                .put("total", 1234.5));
+        }
+        return new JSONObject()
+            .put("id", "id-" + number)
+            .put("invoice_number", number)
+            .put("invoice_date", "2026-01-05")
+            .put("due_date", "2026-02-05")
+            .put("status", "sent")
+            .put("payment_status", "unpaid")
+            .put("currency", "USD")
+            .put("currency_symbol", "$")
+            .put("subtotal", 1234.5 * itemCount)
+            .put("tax_amount", 0)
+            .put("discount_amount", 0)
+            .put("total_amount", 1234.5 * itemCount)
+            .put("paid_amount", 0)
+            .put("client", new JSONObject()
+                .put("name", "Jane Doe")
+                .put("company_name", "Acme")
+                .put("address", "Main Road")
+                .put("city", "Dhaka")
+                .put("state", JSONObject.NULL)
+                .put("country", "Bangladesh"))
+            .put("items", items);
+    }
+}
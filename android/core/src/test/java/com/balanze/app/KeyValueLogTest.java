@@ -0,0 +1,318 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Map;
+import javax.crypto.Cipher;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class KeyValueLogTest {
+
+    // Header: magic, version, committed end
+    private static final int HEADER = 16;
+    private static final int OFFSET_END = 8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private KeyValueLog log;
+
+    // AES-GCM with a fixed key, standing in for the Keystore
+    private static final class TestCipher implements KeyValueLog.ValueCipher {
+        private final SecretKeySpec key;
+
+        TestCipher(int seed) {
+            byte[] bytes = new byte[16];
+            Arrays.fill(bytes, (byte) seed);
+            key = new SecretKeySpec(bytes, "AES");
+        }
+
+        @Override
+        public byte[] encrypt(byte[] plain) throws GeneralSecurityException {
+            byte[] iv = new byte[12];
+            new SecureRandom().nextBytes(iv);
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+            byte[] sealed = cipher.doFinal(plain);
+            byte[] out = new byte[iv.length + sealed.length];
+            System.arraycopy(iv, 0, out, 0, iv.length);
+            System.arraycopy(sealed, 0, out, iv.length, sealed.length);
+            return out;
+        }
+
+        @Override
+        public byte[] decrypt(byte[] sealed) throws GeneralSecurityException {
+            Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, sealed, 0, 12));
+            return cipher.doFinal(sealed, 12, sealed.length - 12);
+        }
+    }
+
+    @Before
+    public void open() throws IOException {
+        file = new File(folder.getRoot(), "kv/store.log");
+        log = new KeyValueLog(file, new TestCipher(1));
+    }
+
+    @After
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private void reopen(KeyValueLog.ValueCipher cipher) throws IOException {
+        log.close();
+        log = new KeyValueLog(file, cipher);
+    }
+
+    private long committedEnd() throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r")) {
+            raf.seek(OFFSET_END);
+            return raf.readLong();
+        }
+    }
+
+    private void writeCommittedEnd(long end) throws IOException {
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(OFFSET_END);
+            raf.writeLong(end);
+        }
+    }
+
+    @Test
+    public void typedValuesSurviveReopening() throws IOException {
+        log.apply(new KeyValueLog.Batch()
+            .putString("rememberedEmail", "ana@example.com")
+            .putLong("launches", 42)
+            .putDouble("ratio", 0.25)
+            .putBoolean("hasLaunchedBefore", true));
+        reopen(new TestCipher(1));
+
+        assertEquals(4, log.size());
+        assertEquals("ana@example.com", log.getString("rememberedEmail", null));
+        assertEquals(42, log.getLong("launches", -1));
+        assertEquals(0.25, log.getDouble("ratio", -1), 0);
+        assertTrue(log.getBoolean("hasLaunchedBefore", false));
+        // A value of another type reads as the fallback
+        assertEquals("none", log.getString("launches", "none"));
+        assertNull(log.get("missing"));
+    }
+
+    @Test
+    public void laterPutsRemovesAndClearsWinInOrder() throws IOException {
+        log.apply(new KeyValueLog.Batch().putString("a", "1").putString("b", "2"));
+        log.apply(new KeyValueLog.Batch().putString("a", "3").remove("b").putString("c", "4"));
+        assertEquals("3", log.getString("a", null));
+        assertNull(log.get("b"));
+
+        log.apply(new KeyValueLog.Batch().clear().putString("d", "5"));
+        reopen(new TestCipher(1));
+        Map<String, Object> values = log.snapshot();
+        assertEquals(1, values.size());
+        assertEquals("5", values.get("d"));
+    }
+
+    @Test
+    public void batchWithoutCommittedEndIsDroppedWhole() throws IOException {
+        log.apply(new KeyValueLog.Batch().putString("session", "old"));
+        long committed = committedEnd();
+        log.apply(new KeyValueLog.Batch().putString("session", "new").putString("rememberedEmail", "ana@example.com"));
+        log.close();
+        // Crash after the record was written but before the end moved past it
+        writeCommittedEnd(committed);
+
+        log = new KeyValueLog(file, new TestCipher(1));
+        assertEquals("old", log.getString("session", null));
+        assertNull(log.get("rememberedEmail"));
+
+        // The next batch overwrites the abandoned record
+        log.apply(new KeyValueLog.Batch().putString("session", "newer"));
+        reopen(new TestCipher(1));
+        assertEquals("newer", log.getString("session", null));
+        assertEquals(1, log.size());
+    }
+
+    @Test
+    public void tornRecordIsCutOffOnOpen() throws IOException {
+        log.apply(new KeyValueLog.Batch().putString("a", "first"));
+        long second = committedEnd();
+        log.apply(new KeyValueLog.Batch().putString("b", "second").putString("c", "third"));
+        log.close();
+        // The header made it to storage, part of the record did not
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(second + 8 + 6);
+            raf.write('#');
+        }
+
+        log = new KeyValueLog(file, new TestCipher(1));
+        assertEquals(1, log.size());
+        assertEquals("first", log.getString("a", null));
+        assertEquals(second, committedEnd());
+
+        log.apply(new KeyValueLog.Batch().putString("b", "again"));
+        reopen(new TestCipher(1));
+        assertEquals("again", log.getString("b", null));
+        assertNull(log.get("c"));
+    }
+
+    @Test
+    public void damagedCommittedEndKeepsRecordsThatCheckOut() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            log.apply(new KeyValueLog.Batch().putLong("k" + i, i));
+        }
+        long committed = committedEnd();
+        log.close();
+        writeCommittedEnd(Long.MAX_VALUE);
+
+        log = new KeyValueLog(file, new TestCipher(1));
+        assertEquals(10, log.size());
+        assertEquals(9, log.getLong("k9", -1));
+        assertEquals(committed, committedEnd());
+    }
+
+    @Test
+    public void compactionKeepsLiveValuesOnly() throws IOException {
+        for (int i = 0; i < 100; i++) {
+            log.apply(new KeyValueLog.Batch().putString("theme", "dark-" + i).putLong("counter", i));
+        }
+        log.apply(new KeyValueLog.Batch().putSecret("session", "token").putString("gone", "x"));
+        log.apply(new KeyValueLog.Batch().remove("gone"));
+        assertTrue(log.logBytes() > log.liveBytes() * 10);
+
+        log.compact();
+        assertEquals(log.liveBytes(), log.logBytes());
+        reopen(new TestCipher(1));
+        assertEquals(3, log.size());
+        assertEquals("dark-99", log.getString("theme", null));
+        assertEquals(99, log.getLong("counter", -1));
+        assertEquals("token", log.getString("session", null));
+        assertEquals(log.liveBytes(), log.logBytes());
+        assertFalse(new File(file.getPath() + ".compact").exists());
+    }
+
+    @Test
+    public void overwritingCompactsInsteadOfGrowing() throws IOException {
+        char[] filler = new char[1000];
+        Arrays.fill(filler, 'x');
+        String value = new String(filler);
+        for (int i = 0; i < 500; i++) {
+            log.apply(new KeyValueLog.Batch().putString("draft", value + i));
+        }
+        assertEquals(KeyValueLog.INITIAL_CAPACITY, file.length());
+        assertEquals(value + 499, log.getString("draft", null));
+    }
+
+    @Test
+    public void growsForLiveDataThatDoesNotFit() throws IOException {
+        char[] filler = new char[10_000];
+        Arrays.fill(filler, 'y');
+        for (int i = 0; i < 20; i++) {
+            log.apply(new KeyValueLog.Batch().putString("note-" + i, new String(filler)));
+        }
+        assertTrue(file.length() > KeyValueLog.INITIAL_CAPACITY);
+        reopen(new TestCipher(1));
+        assertEquals(20, log.size());
+        assertEquals(10_000, log.getString("note-19", "").length());
+    }
+
+    @Test
+    public void interruptedCompactionLeavesTheLogInPlace() throws IOException {
+        log.apply(new KeyValueLog.Batch().putString("a", "1"));
+        log.close();
+        File partial = new File(file.getPath() + ".compact");
+        try (RandomAccessFile raf = new RandomAccessFile(partial, "rw")) {
+            raf.write(new byte[100]);
+        }
+
+        log = new KeyValueLog(file, new TestCipher(1));
+        assertEquals("1", log.getString("a", null));
+        assertFalse(partial.exists());
+    }
+
+    @Test
+    public void secretsAreEncryptedAtRest() throws IOException {
+        log.apply(new KeyValueLog.Batch()
+            .putSecret("session", "refresh-token-abc123")
+            .putString("theme", "dark"));
+        assertTrue(log.isSecret("session"));
+        assertFalse(log.isSecret("theme"));
+        log.close();
+        String raw = new String(Files.readAllBytes(file.toPath()), StandardCharsets.ISO_8859_1);
+        assertFalse(raw.contains("refresh-token-abc123"));
+        assertTrue(raw.contains("dark"));
+
+        log = new KeyValueLog(file, new TestCipher(1));
+        assertEquals("refresh-token-abc123", log.getString("session", null));
+
+        // Another key (the Keystore entry was lost): the secret is gone, the rest stays
+        reopen(new TestCipher(2));
+        assertNull(log.get("session"));
+        assertEquals("dark", log.getString("theme", null));
+    }
+
+    @Test
+    public void publicSnapshotLeavesSecretsOut() throws IOException {
+        log.apply(new KeyValueLog.Batch()
+            .putSecret("sb-session", "refresh-token-abc123")
+            .putString("theme", "dark"));
+
+        Map<String, Object> values = log.publicSnapshot();
+        assertEquals(1, values.size());
+        assertEquals("dark", values.get("theme"));
+        assertEquals(Collections.singletonMap("sb-session", "refresh-token-abc123"), log.secrets());
+    }
+
+    @Test
+    public void onlyTheAppOriginInTheTopFrameReadsSecrets() throws IOException {
+        log.apply(new KeyValueLog.Batch()
+            .putSecret("sb-session", "refresh-token-abc123")
+            .putString("theme", "dark"));
+        SecretAccess access = new SecretAccess("https://localhost/");
+
+        assertEquals("https://localhost", access.appOrigin());
+        assertEquals("refresh-token-abc123",
+            access.secretsFor(log, "https://localhost", true).get("sb-session"));
+        assertEquals("refresh-token-abc123",
+            access.secretsFor(log, "HTTPS://LocalHost:443", true).get("sb-session"));
+
+        // A payment iframe, a page navigated to, or the app page framed by another one
+        assertTrue(access.secretsFor(log, "https://checkout.paddle.com", true).isEmpty());
+        assertTrue(access.secretsFor(log, "https://buy.paddle.com", false).isEmpty());
+        assertTrue(access.secretsFor(log, "https://localhost", false).isEmpty());
+        assertTrue(access.secretsFor(log, "http://localhost", true).isEmpty());
+        assertTrue(access.secretsFor(log, "https://localhost:8443", true).isEmpty());
+        assertTrue(access.secretsFor(log, "https://localhost.evil.example", true).isEmpty());
+        assertTrue(access.secretsFor(log, "null", true).isEmpty());
+        assertTrue(access.secretsFor(log, null, true).isEmpty());
+    }
+
+    @Test
+    public void unreadableFileStartsOver() throws IOException {
+        log.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(0);
+            raf.writeInt(0xdeadbeef);
+        }
+        log = new KeyValueLog(file, new TestCipher(1));
+        assertEquals(0, log.size());
+        assertEquals(0, log.logBytes());
+        log.apply(new KeyValueLog.Batch().putBoolean("ok", true));
+        assertTrue(log.getBoolean("ok", false));
+        assertEquals(HEADER + log.logBytes(), committedEnd());
+    }
+}
@@ -0,0 +1,364 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import org.junit.Test;
+
+// Scheduling rules and catch-up batching against an in-memory backend and a fake clock
+public class RecurringTransactionSchedulerTest {
+
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    private static final String USER = "user-1";
+
+    private static int day(String date) {
+        return RecurringTransactionScheduler.parseDay(date);
+    }
+
+    private static long noonUtc(String date) {
+        return day(date) * 86_400_000L + 12 * 3_600_000L;
+    }
+
+    private static RecurringTransactionScheduler.Template template(String id, String frequency, String start,
+                                                                   String next, String end, boolean paused,
+                                                                   int count) {
+        return new RecurringTransactionScheduler.Template(id, USER, "account-1", "expense", "Rent", "Housing",
+            Arrays.asList("home"), frequency, day(start), next != null ? day(next) : null,
+            end != null ? day(end) : null, paused, count);
+    }
+
+    private static final class Instance {
+        final String parentId;
+        final int day;
+        final String transactionId;
+
+        Instance(String parentId, int day, String transactionId) {
+            this.parentId = parentId;
+            this.day = day;
+            this.transactionId = transactionId;
+        }
+    }
+
+    private static class FakeBackend implements RecurringTransactionScheduler.Backend {
+        final Map<String, RecurringTransactionScheduler.Template> templates = new LinkedHashMap<>();
+        final List<Instance> instances = new ArrayList<>();
+        final List<Integer> insertBatchSizes = new ArrayList<>();
+        final List<String> closed = new ArrayList<>();
+        int failAdvanceAfter = Integer.MAX_VALUE;
+        int advances;
+
+        void add(RecurringTransactionScheduler.Template template) {
+            templates.put(template.id, template);
+        }
+
+        @Override
+        public List<RecurringTransactionScheduler.Template> recurringTemplates(String userId, int today) {
+            // Paused rows are returned too, so the scheduler's own check is exercised;
+            // next_occurrence_date=lte.<today> leaves out null (finished) rows
+            List<RecurringTransactionScheduler.Template> due = new ArrayList<>();
+            for (RecurringTransactionScheduler.Template template : templates.values()) {
+                if (template.userId.equals(userId) && template.nextDay != null && template.nextDay <= today) {
+                    due.add(template);
+                }
+            }
+            return due;
+        }
+
+        @Override
+        public Set<Integer> existingOccurrences(String parentId, int fromDay, int toDay) {
+            Set<Integer> days = new HashSet<>();
+            for (Instance instance : instances) {
+                if (instance.parentId.equals(parentId) && instance.day >= fromDay && instance.day <= toDay) {
+                    days.add(instance.day);
+                }
+            }
+            return days;
+        }
+
+        @Override
+        public void insertOccurrences(List<RecurringTransactionScheduler.Occurrence> occurrences) {
+            insertBatchSizes.add(occurrences.size());
+            for (RecurringTransactionScheduler.Occurrence occurrence : occurrences) {
+                // The unique key on (parent_recurring_id, date): existing rows are ignored
+                if (!existingOccurrences(occurrence.template.id, occurrence.day, occurrence.day).isEmpty()) {
+                    continue;
+                }
+                instances.add(new Instance(occurrence.template.id, occurrence.day, occurrence.transactionId));
+            }
+        }
+
+        @Override
+        public void advance(String parentId, Integer nextDay, int occurrenceCount) throws IOException {
+            if (advances++ >= failAdvanceAfter) {
+                throw new IOException("connection reset");
+            }
+            if (nextDay == null) {
+                closed.add(parentId);
+            }
+            RecurringTransactionScheduler.Template t = templates.get(parentId);
+            templates.put(parentId, new RecurringTransactionScheduler.Template(t.id, t.userId, t.accountId, t.type,
+                t.description, t.category, t.tags, t.frequency, t.startDay, nextDay, t.endDay, t.paused,
+                occurrenceCount));
+        }
+
+        List<Integer> days(String parentId) {
+            List<Integer> days = new ArrayList<>();
+            for (Instance instance : instances) {
+                if (instance.parentId.equals(parentId)) {
+                    days.add(instance.day);
+                }
+            }
+            Collections.sort(days);
+            return days;
+        }
+    }
+
+    @Test
+    public void nextOccurrenceFollowsTheWebRules() {
+        assertEquals(day("2026-03-01"), RecurringTransactionScheduler.nextOccurrence(day("2026-02-28"), "daily"));
+        assertEquals(day("2027-01-04"), RecurringTransactionScheduler.nextOccurrence(day("2026-12-28"), "weekly"));
+        assertEquals(day("2027-01-15"), RecurringTransactionScheduler.nextOccurrence(day("2026-12-15"), "monthly"));
+        // Month ends clamp, and the clamped day is what carries forward
+        assertEquals(day("2025-02-28"), RecurringTransactionScheduler.nextOccurrence(day("2025-01-31"), "monthly"));
+        assertEquals(day("2025-03-28"), RecurringTransactionScheduler.nextOccurrence(day("2025-02-28"), "monthly"));
+        assertEquals(day("2024-02-29"), RecurringTransactionScheduler.nextOccurrence(day("2024-01-31"), "monthly"));
+        assertEquals(day("2026-04-30"), RecurringTransactionScheduler.nextOccurrence(day("2026-03-31"), "monthly"));
+        assertEquals(day("2025-02-28"), RecurringTransactionScheduler.nextOccurrence(day("2024-02-29"), "yearly"));
+        assertEquals(day("2027-10-16"), RecurringTransactionScheduler.nextOccurrence(day("2026-10-16"), "yearly"));
+        try {
+            RecurringTransactionScheduler.nextOccurrence(day("2026-10-16"), "hourly");
+            fail("expected an invalid frequency to be rejected");
+        } catch (IllegalArgumentException expected) {
+            // as in forceNextOccurrence
+        }
+    }
+
+    @Test
+    public void datesRoundTrip() {
+        assertEquals(0, day("1970-01-01"));
+        assertEquals(-1, day("1969-12-31"));
+        assertEquals(day("2026-10-16"), day("2026-10-16T08:30:00.000Z"));
+        for (int d = day("1999-12-25"); d < day("2031-01-10"); d += 17) {
+            assertEquals(d, day(RecurringTransactionScheduler.formatDay(d)));
+        }
+        assertEquals("2024-02-29", RecurringTransactionScheduler.formatDay(day("2024-02-29")));
+    }
+
+    @Test
+    public void dueOccurrencesRespectNextDateEndDateAndPause() {
+        int today = day("2026-10-16");
+
+        RecurringTransactionScheduler.Template weekly = template("w", "weekly", "2026-09-01", "2026-09-25", null, false, 3);
+        assertEquals(Arrays.asList(day("2026-09-25"), day("2026-10-02"), day("2026-10-09"), day("2026-10-16")),
+            RecurringTransactionScheduler.dueOccurrences(weekly, today, 100));
+        assertEquals(2, RecurringTransactionScheduler.dueOccurrences(weekly, today, 2).size());
+
+        // A null next_occurrence_date is how the server cron closes a series
+        RecurringTransactionScheduler.Template finished = template("f", "monthly", "2026-01-31", null, "2026-06-30", false, 5);
+        assertTrue(RecurringTransactionScheduler.dueOccurrences(finished, today, 100).isEmpty());
+
+        RecurringTransactionScheduler.Template ended = template("e", "daily", "2026-10-01", "2026-10-10", "2026-10-12", false, 9);
+        assertEquals(Arrays.asList(day("2026-10-10"), day("2026-10-11"), day("2026-10-12")),
+            RecurringTransactionScheduler.dueOccurrences(ended, today, 100));
+
+        RecurringTransactionScheduler.Template paused = template("p", "daily", "2026-10-01", "2026-10-10", null, true, 9);
+        assertTrue(RecurringTransactionScheduler.dueOccurrences(paused, today, 100).isEmpty());
+
+        RecurringTransactionScheduler.Template future = template("n", "daily", "2026-10-01", "2026-10-17", null, false, 16);
+        assertTrue(RecurringTransactionScheduler.dueOccurrences(future, today, 100).isEmpty());
+    }
+
+    @Test
+    public void catchesUpInBatchesAndAdvancesTheParent() throws IOException {
+        FakeBackend backend = new FakeBackend();
+        backend.add(template("rent", "daily", "2026-10-01", "2026-10-06", null, false, 5));
+        RecurringTransactionScheduler scheduler = new RecurringTransactionScheduler(
+            backend, () -> noonUtc("2026-10-16"), UTC, 4, 500);
+
+        RecurringTransactionScheduler.Result result = scheduler.run(USER);
+
+        assertEquals(1, result.templates);
+        assertEquals(11, result.created);
+        assertFalse(result.more);
+        assertEquals(Arrays.asList(4, 4, 3), backend.insertBatchSizes);
+        assertEquals(3, backend.advances);
+        assertEquals(day("2026-10-06"), (int) backend.days("rent").get(0));
+        assertEquals(day("2026-10-16"), (int) backend.days("rent").get(10));
+        RecurringTransactionScheduler.Template parent = backend.templates.get("rent");
+        assertEquals(day("2026-10-17"), (int) parent.nextDay);
+        assertEquals(16, parent.occurrenceCount);
+
+        // Nothing is due again the same day
+        RecurringTransactionScheduler.Result again = scheduler.run(USER);
+        assertEquals(0, again.templates);
+        assertEquals(11, backend.instances.size());
+    }
+
+    @Test
+    public void pausedTemplatesAreLeftAloneAndEndedOnesClosed() throws IOException {
+        FakeBackend backend = new FakeBackend();
+        backend.add(template("paused", "daily", "2026-10-01", "2026-10-02", null, true, 1));
+        backend.add(template("ended", "weekly", "2026-01-01", "2026-10-08", "2026-10-01", false, 40));
+        RecurringTransactionScheduler scheduler = new RecurringTransactionScheduler(
+            backend, () -> noonUtc("2026-10-16"), UTC);
+
+        RecurringTransactionScheduler.Result result = scheduler.run(USER);
+
+        assertEquals(2, result.templates);
+        assertEquals(1, result.paused);
+        assertEquals(1, result.ended);
+        assertEquals(0, result.created);
+        assertTrue(backend.instances.isEmpty());
+        assertEquals(Arrays.asList("ended"), backend.closed);
+        assertNull(backend.templates.get("ended").nextDay);
+        assertEquals(40, backend.templates.get("ended").occurrenceCount);
+    }
+
+    @Test
+    public void catchUpReachingTheEndDateClosesTheSeries() throws IOException {
+        FakeBackend backend = new FakeBackend();
+        backend.add(template("trial", "daily", "2026-10-01", "2026-10-10", "2026-10-12", false, 9));
+        RecurringTransactionScheduler scheduler = new RecurringTransactionScheduler(
+            backend, () -> noonUtc("2026-10-16"), UTC);
+
+        RecurringTransactionScheduler.Result result = scheduler.run(USER);
+
+        assertEquals(3, result.created);
+        assertEquals(1, result.ended);
+        assertNull(backend.templates.get("trial").nextDay);
+        assertEquals(12, backend.templates.get("trial").occurrenceCount);
+        assertEquals(0, scheduler.run(USER).templates);
+    }
+
+    @Test
+    public void expiredParentWithNullNextDateIsNotWalkedAgain() throws IOException {
+        FakeBackend backend = new FakeBackend();
+        // Closed by the cron after its end date; the user deleted two of its instances since
+        backend.add(template("gym", "weekly", "2026-01-05", null, "2026-03-30", false, 13));
+        backend.instances.add(new Instance("gym", day("2026-01-12"), "F0000001"));
+        RecurringTransactionScheduler scheduler = new RecurringTransactionScheduler(
+            backend, () -> noonUtc("2026-10-16"), UTC);
+
+        RecurringTransactionScheduler.Result result = scheduler.run(USER);
+
+        assertEquals(0, result.templates);
+        assertEquals(0, result.created);
+        assertEquals(1, backend.instances.size());
+        assertEquals(0, backend.advances);
+        assertNull(backend.templates.get("gym").nextDay);
+        // Even handed over directly, a finished parent has nothing due
+        assertTrue(RecurringTransactionScheduler.dueOccurrences(
+            backend.templates.get("gym"), day("2026-10-16"), 100).isEmpty());
+    }
+
+    @Test
+    public void instanceCreatedConcurrentlyIsNotDuplicated() throws IOException {
+        FakeBackend backend = new FakeBackend() {
+            @Override
+            public void insertOccurrences(List<RecurringTransactionScheduler.Occurrence> occurrences) {
+                // The server cron inserted the October instance after the scheduler checked
+                instances.add(new Instance("rent", day("2026-10-01"), "F1234567"));
+                super.insertOccurrences(occurrences);
+            }
+        };
+        backend.add(template("rent", "monthly", "2026-07-01", "2026-09-01", null, false, 2));
+        RecurringTransactionScheduler scheduler = new RecurringTransactionScheduler(
+            backend, () -> noonUtc("2026-10-16"), UTC);
+
+        scheduler.run(USER);
+
+        assertEquals(Arrays.asList(day("2026-09-01"), day("2026-10-01")), backend.days("rent"));
+        assertEquals(day("2026-11-01"), (int) backend.templates.get("rent").nextDay);
+    }
+
+    @Test
+    public void interruptedRunIsRepairedWithoutDuplicates() throws IOException {
+        FakeBackend backend = new FakeBackend();
+        backend.add(template("gym", "weekly", "2026-06-01", "2026-08-01", null, false, 9));
+        backend.failAdvanceAfter = 1;
+        RecurringTransactionScheduler scheduler = new RecurringTransactionScheduler(
+            backend, () -> noonUtc("2026-10-16"), UTC, 3, 500);
+
+        try {
+            scheduler.run(USER);
+            fail("expected the second advance to fail");
+        } catch (IOException expected) {
+            // first batch advanced, second inserted but not advanced
+        }
+        assertEquals(6, backend.instances.size());
+        Map<Integer, String> firstIds = new LinkedHashMap<>();
+        for (Instance instance : backend.instances) {
+            firstIds.put(instance.day, instance.transactionId);
+        }
+
+        backend.failAdvanceAfter = Integer.MAX_VALUE;
+        RecurringTransactionScheduler.Result result = scheduler.run(USER);
+
+        // 2026-08-01 .. 2026-10-10 weekly is 11 dates; the 3 inserted-but-not-advanced ones are found
+        assertEquals(3, result.alreadyPresent);
+        assertEquals(5, result.created);
+        List<Integer> days = backend.days("gym");
+        assertEquals(11, days.size());
+        assertEquals(11, new HashSet<>(days).size());
+        RecurringTransactionScheduler.Template parent = backend.templates.get("gym");
+        assertEquals(20, parent.occurrenceCount);
+        assertEquals(day("2026-10-17"), (int) parent.nextDay);
+        for (Instance instance : backend.instances) {
+            if (firstIds.containsKey(instance.day)) {
+                assertEquals(firstIds.get(instance.day), instance.transactionId);
+            }
+        }
+    }
+
+    @Test
+    public void perRunCapLeavesTheRestForTheNextRun() throws IOException {
+        FakeBackend backend = new FakeBackend();
+        backend.add(template("a", "daily", "2026-01-01", "2026-10-01", null, false, 0));
+        backend.add(template("b", "daily", "2026-01-01", "2026-10-14", null, false, 0));
+        RecurringTransactionScheduler scheduler = new RecurringTransactionScheduler(
+            backend, () -> noonUtc("2026-10-16"), UTC, 50, 10);
+
+        RecurringTransactionScheduler.Result first = scheduler.run(USER);
+        assertEquals(10, first.created);
+        assertTrue(first.more);
+        assertEquals(day("2026-10-11"), (int) backend.templates.get("a").nextDay);
+
+        RecurringTransactionScheduler.Result second = scheduler.run(USER);
+        assertEquals(9, second.created);
+        assertFalse(second.more);
+        assertEquals(16, backend.days("a").size());
+        assertEquals(3, backend.days("b").size());
+    }
+
+    @Test
+    public void todayIsTheLocalCalendarDay() {
+        long lateEvening = day("2026-10-15") * 86_400_000L + 23 * 3_600_000L;
+        RecurringTransactionScheduler utc = new RecurringTransactionScheduler(new FakeBackend(), () -> lateEvening, UTC);
+        RecurringTransactionScheduler dhaka = new RecurringTransactionScheduler(
+            new FakeBackend(), () -> lateEvening, TimeZone.getTimeZone("Asia/Dhaka"));
+        RecurringTransactionScheduler newYork = new RecurringTransactionScheduler(
+            new FakeBackend(), () -> lateEvening + 3 * 3_600_000L, TimeZone.getTimeZone("America/New_York"));
+
+        assertEquals(day("2026-10-15"), utc.today());
+        assertEquals(day("2026-10-16"), dhaka.today());
+        assertEquals(day("2026-10-15"), newYork.today());
+    }
+
+    @Test
+    public void occurrenceIdsAreStablePerParentAndDate() {
+        String id = RecurringTransactionScheduler.occurrenceTransactionId("rent", day("2026-10-16"));
+        assertTrue(id.matches("F\\d{7}"));
+        assertEquals(id, RecurringTransactionScheduler.occurrenceTransactionId("rent", day("2026-10-16")));
+        assertNotEquals(id, RecurringTransactionScheduler.occurrenceTransactionId("rent", day("2026-10-17")));
+        assertNotEquals(id, RecurringTransactionScheduler.occurrenceTransactionId("gym", day("2026-10-16")));
+    }
+}
@@ -0,0 +1,327 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+// Runs the uploader against a local HttpServer implementing the parts of the
+// tus protocol Supabase Storage uses, with injectable connection drops
+public class ResumableUploaderTest {
+
+    private static final int CHUNK = 4096;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static final class Upload {
+        final long length;
+        final Map<String, String> metadata;
+        final ByteArrayOutputStream data = new ByteArrayOutputStream();
+
+        Upload(long length, Map<String, String> metadata) {
+            this.length = length;
+            this.metadata = metadata;
+        }
+    }
+
+    private HttpServer server;
+    private String endpoint;
+    private final Map<String, Upload> uploads = Collections.synchronizedMap(new HashMap<>());
+    private final AtomicInteger creates = new AtomicInteger();
+    private final AtomicInteger patches = new AtomicInteger();
+    private final AtomicInteger heads = new AtomicInteger();
+    private final List<String> authorization = Collections.synchronizedList(new ArrayList<>());
+    // Patch number (1-based) whose connection dies after keeping this many bytes
+    private volatile int dropPatch = -1;
+    private volatile int dropAfterBytes;
+    private volatile int failPatchesWithStatus;
+    private volatile int createStatus = 201;
+
+    private final List<Long> sleeps = new ArrayList<>();
+    private final List<Long> progress = new ArrayList<>();
+    private final List<String> created = new ArrayList<>();
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/storage/v1/upload/resumable", this::serve);
+        server.start();
+        endpoint = "http://127.0.0.1:" + server.getAddress().getPort() + "/storage/v1/upload/resumable";
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String id = path.substring(path.lastIndexOf('/') + 1);
+        String method = exchange.getRequestMethod();
+        String override = exchange.getRequestHeaders().getFirst("X-HTTP-Method-Override");
+        if (override != null) {
+            method = override;
+        }
+        byte[] body = readAll(exchange.getRequestBody());
+        assertEquals("1.0.0", exchange.getRequestHeaders().getFirst("Tus-Resumable"));
+        authorization.add(exchange.getRequestHeaders().getFirst("Authorization"));
+
+        if ("POST".equals(method) && path.endsWith("/resumable")) {
+            creates.incrementAndGet();
+            if (createStatus != 201) {
+                exchange.sendResponseHeaders(createStatus, -1);
+                exchange.close();
+                return;
+            }
+            String newId = "u" + creates.get();
+            uploads.put(newId, new Upload(
+                Long.parseLong(exchange.getRequestHeaders().getFirst("Upload-Length")),
+                decodeMetadata(exchange.getRequestHeaders().getFirst("Upload-Metadata"))));
+            // Relative, as tus servers commonly answer
+            exchange.getResponseHeaders().add("Location", "/storage/v1/upload/resumable/" + newId);
+            exchange.sendResponseHeaders(201, -1);
+            exchange.close();
+            return;
+        }
+
+        Upload upload = uploads.get(id);
+        if (upload == null) {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+            return;
+        }
+        if ("HEAD".equals(method)) {
+            heads.incrementAndGet();
+            exchange.getResponseHeaders().add("Upload-Offset", Integer.toString(upload.data.size()));
+            exchange.getResponseHeaders().add("Upload-Length", Long.toString(upload.length));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+        if ("PATCH".equals(method)) {
+            int number = patches.incrementAndGet();
+            assertEquals("application/offset+octet-stream", exchange.getRequestHeaders().getFirst("Content-Type"));
+            if (failPatchesWithStatus != 0) {
+                exchange.sendResponseHeaders(failPatchesWithStatus, -1);
+                exchange.close();
+                return;
+            }
+            long offset = Long.parseLong(exchange.getRequestHeaders().getFirst("Upload-Offset"));
+            if (offset != upload.data.size()) {
+                exchange.sendResponseHeaders(409, -1);
+                exchange.close();
+                return;
+            }
+            if (number == dropPatch) {
+                // Keep part of the chunk, then die without answering
+                upload.data.write(body, 0, dropAfterBytes);
+                exchange.close();
+                return;
+            }
+            upload.data.write(body, 0, body.length);
+            exchange.getResponseHeaders().add("Upload-Offset", Integer.toString(upload.data.size()));
+            exchange.sendResponseHeaders(204, -1);
+            exchange.close();
+            return;
+        }
+        exchange.sendResponseHeaders(405, -1);
+        exchange.close();
+    }
+
+    private static Map<String, String> decodeMetadata(String header) {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        for (String pair : header.split(",")) {
+            String[] parts = pair.trim().split(" ");
+            metadata.put(parts[0], new String(Base64.getDecoder().decode(parts[1]), StandardCharsets.UTF_8));
+        }
+        return metadata;
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            out.write(buffer, 0, read);
+        }
+        return out.toByteArray();
+    }
+
+    private File file(int size) throws IOException {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        File file = folder.newFile();
+        Files.write(file.toPath(), bytes);
+        return file;
+    }
+
+    private ResumableUploader uploader(int maxAttempts) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        headers.put("Authorization", "Bearer token-1");
+        headers.put("x-upsert", "false");
+        return new ResumableUploader(endpoint, headers, CHUNK, maxAttempts, sleeps::add);
+    }
+
+    private ResumableUploader.Listener listener() {
+        return new ResumableUploader.Listener() {
+            @Override
+            public void onCreated(String uploadUrl) {
+                created.add(uploadUrl);
+            }
+
+            @Override
+            public void onProgress(long sent, long total) {
+                progress.add(sent);
+            }
+        };
+    }
+
+    private static Map<String, String> metadata() {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        metadata.put("bucketName", "attachments");
+        metadata.put("objectName", "purchases/p-1/receipt ünï.jpg");
+        metadata.put("contentType", "image/jpeg");
+        metadata.put("cacheControl", "3600");
+        return metadata;
+    }
+
+    private byte[] stored(String id) {
+        return uploads.get(id).data.toByteArray();
+    }
+
+    @Test
+    public void uploadsInChunksWithMetadataAndProgress() throws IOException {
+        File file = file(10_000);
+
+        String url = uploader(3).upload(file, metadata(), null, listener());
+
+        assertEquals(endpoint + "/u1", url);
+        assertEquals(Collections.singletonList(url), created);
+        assertArrayEquals(Files.readAllBytes(file.toPath()), stored("u1"));
+        assertEquals(3, patches.get());
+        assertEquals(List.of(0L, 4096L, 8192L, 10_000L), progress);
+        assertEquals(metadata(), uploads.get("u1").metadata);
+        assertTrue(authorization.stream().allMatch("Bearer token-1"::equals));
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    public void continuesFromTheAcknowledgedOffsetAfterADroppedConnection() throws IOException {
+        File file = file(10_000);
+        dropPatch = 2;
+        dropAfterBytes = 1000;
+
+        uploader(3).upload(file, metadata(), null, listener());
+
+        assertArrayEquals(Files.readAllBytes(file.toPath()), stored("u1"));
+        assertEquals(1, heads.get());
+        assertEquals(List.of(1000L), sleeps);
+        // Only the part the server did not keep was sent again
+        assertEquals(List.of(0L, 4096L, 5096L, 9192L, 10_000L), progress);
+        assertEquals(1, creates.get());
+    }
+
+    @Test
+    public void resumesAnEarlierUploadInANewCall() throws IOException {
+        File file = file(10_000);
+        dropPatch = 2;
+        dropAfterBytes = 100;
+        try {
+            uploader(1).upload(file, metadata(), null, listener());
+            fail("expected the dropped chunk to fail the upload");
+        } catch (IOException expected) {
+            // the caller keeps created.get(0) for later
+        }
+        assertEquals(4196, stored("u1").length);
+
+        progress.clear();
+        String url = uploader(3).upload(file, metadata(), created.get(0), listener());
+
+        assertEquals(created.get(0), url);
+        assertEquals(1, creates.get());
+        assertArrayEquals(Files.readAllBytes(file.toPath()), stored("u1"));
+        assertEquals(4196L, (long) progress.get(0));
+    }
+
+    @Test
+    public void unknownResumeUrlStartsOver() throws IOException {
+        File file = file(5000);
+
+        String url = uploader(3).upload(file, metadata(), endpoint + "/expired", listener());
+
+        assertEquals(endpoint + "/u1", url);
+        assertEquals(1, created.size());
+        assertArrayEquals(Files.readAllBytes(file.toPath()), stored("u1"));
+    }
+
+    @Test
+    public void serverErrorsAreRetriedWithBackoffThenGiveUp() throws IOException {
+        File file = file(5000);
+        failPatchesWithStatus = 503;
+
+        try {
+            uploader(3).upload(file, metadata(), null, listener());
+            fail("expected the upload to give up");
+        } catch (ResumableUploader.UploadRejectedException e) {
+            fail("a 503 is not a rejection");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("503"));
+        }
+        assertEquals(3, patches.get());
+        assertEquals(List.of(1000L, 2000L), sleeps);
+    }
+
+    @Test
+    public void rejectedUploadIsNotRetried() throws IOException {
+        createStatus = 403;
+
+        try {
+            uploader(5).upload(file(100), metadata(), null, listener());
+            fail("expected a rejection");
+        } catch (ResumableUploader.UploadRejectedException e) {
+            assertEquals(403, e.status);
+        }
+        assertEquals(1, creates.get());
+        assertTrue(sleeps.isEmpty());
+    }
+
+    @Test
+    public void emptyFileOnlyCreatesTheUpload() throws IOException {
+        uploader(3).upload(folder.newFile(), metadata(), null, listener());
+
+        assertEquals(1, creates.get());
+        assertEquals(0, patches.get());
+        assertEquals(List.of(0L), progress);
+    }
+
+    @Test
+    public void metadataIsTusEncoded() {
+        Map<String, String> metadata = new LinkedHashMap<>();
+        metadata.put("bucketName", "attachments");
+        metadata.put("objectName", "a/b.png");
+        assertEquals("bucketName YXR0YWNobWVudHM=,objectName YS9iLnBuZw==",
+            ResumableUploader.encodeMetadata(metadata));
+    }
+}
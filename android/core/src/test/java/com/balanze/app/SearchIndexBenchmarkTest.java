@@ -0,0 +1,220 @@
+package com.balanze.app;
+
+import static org.junit.Assume.assumeTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Test;
+
+// Query latency of SearchIndex on a synthetic 200k-record corpus, next to
+// a linear scan that lower-cases and indexOf()s every field of every
+// record, which is what searchService's fallback does on each keystroke.
+// JVM numbers, so only the ratio carries over to a device.
+//
+// Run with: ./gradlew :core:test -Pbenchmark=true --tests '*SearchIndexBenchmarkTest'
+public class SearchIndexBenchmarkTest {
+
+    private static final int RECORDS = 200_000;
+    private static final int QUERIES_PER_KIND = 500;
+    private static final String[] FIELDS = { "description", "category", "notes", "amount" };
+
+    private static final String[] SYLLABLES = {
+        "ba", "lan", "ze", "mar", "ket", "co", "fee", "sto", "re", "pha", "rma", "gro", "ce", "ry",
+        "ta", "xi", "fu", "el", "ren", "tal", "gym", "book", "cin", "ema", "deli", "bar", "kit", "chen"
+    };
+    private static final String[] CATEGORIES = {
+        "Groceries", "Dining", "Transport", "Utilities", "Rent", "Healthcare", "Education", "Salary",
+        "Entertainment", "Shopping", "Travel", "Insurance", "Subscriptions", "Gifts", "Investments"
+    };
+    private static final String[] NOTE_WORDS = {
+        "monthly", "weekly", "refund", "split", "with", "team", "family", "card", "cash", "online",
+        "reimbursable", "business", "personal", "trip", "birthday", "repair", "deposit", "transfer"
+    };
+
+    private static final class Record {
+        final String id;
+        final Map<String, String> fields = new LinkedHashMap<>();
+        final long timestamp;
+
+        Record(String id, long timestamp) {
+            this.id = id;
+            this.timestamp = timestamp;
+        }
+    }
+
+    @Test
+    public void queryLatency() {
+        assumeTrue(Boolean.getBoolean("balanze.benchmark"));
+        Random random = new Random(42);
+        List<String> merchants = merchants(random, 2_000);
+        List<Record> records = new ArrayList<>(RECORDS);
+        for (int i = 0; i < RECORDS; i++) {
+            records.add(record(random, merchants, i));
+        }
+
+        SearchIndex index = new SearchIndex();
+        Map<String, Float> weights = new HashMap<>();
+        weights.put("description", 0.4f);
+        weights.put("category", 0.25f);
+        weights.put("notes", 0.15f);
+        weights.put("amount", 0.1f);
+        index.setFieldWeights("transactions", weights);
+
+        System.gc();
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        for (Record record : records) {
+            index.put("transactions", record.id, record.fields, record.timestamp);
+        }
+        long buildNanos = System.nanoTime() - start;
+        System.gc();
+        SearchIndex.Stats stats = index.stats();
+        System.out.println(String.format(Locale.US,
+            "build      records=%d terms=%d postings=%d time=%.0f ms heap=%.1f MB",
+            stats.documents, stats.terms, stats.postings, buildNanos / 1e6,
+            (usedHeap() - heapBefore) / (1024.0 * 1024.0)));
+
+        Map<String, List<String>> kinds = new LinkedHashMap<>();
+        kinds.put("prefix-1", queries(QUERIES_PER_KIND, () -> prefix(random, merchants, 1)));
+        kinds.put("prefix-3", queries(QUERIES_PER_KIND, () -> prefix(random, merchants, 3)));
+        kinds.put("word", queries(QUERIES_PER_KIND, () -> merchants.get(random.nextInt(merchants.size()))));
+        kinds.put("typo", queries(QUERIES_PER_KIND, () -> typo(random, merchants.get(random.nextInt(merchants.size())))));
+        kinds.put("amount", queries(QUERIES_PER_KIND, () -> String.valueOf(random.nextInt(500))));
+        kinds.put("two-words", queries(QUERIES_PER_KIND,
+            () -> CATEGORIES[random.nextInt(CATEGORIES.length)].toLowerCase(Locale.ROOT) + " "
+                + prefix(random, merchants, 2)));
+
+        for (Map.Entry<String, List<String>> kind : kinds.entrySet()) {
+            // Warm-up pass so JIT compilation is not measured
+            for (String query : kind.getValue()) {
+                index.search(query, null, SearchIndex.DEFAULT_LIMIT);
+            }
+            long[] nanos = new long[kind.getValue().size()];
+            for (int i = 0; i < nanos.length; i++) {
+                long queryStart = System.nanoTime();
+                index.search(kind.getValue().get(i), null, SearchIndex.DEFAULT_LIMIT);
+                nanos[i] = System.nanoTime() - queryStart;
+            }
+            report("index " + kind.getKey(), nanos);
+        }
+
+        // The linear scan is far slower, so a handful of queries is enough
+        List<String> scanQueries = kinds.get("word").subList(0, 20);
+        for (String query : scanQueries) {
+            linearScan(records, query);
+        }
+        long[] scanNanos = new long[scanQueries.size()];
+        for (int i = 0; i < scanNanos.length; i++) {
+            long queryStart = System.nanoTime();
+            linearScan(records, scanQueries.get(i));
+            scanNanos[i] = System.nanoTime() - queryStart;
+        }
+        report("scan word", scanNanos);
+
+        long[] updateNanos = new long[10_000];
+        for (int i = 0; i < updateNanos.length; i++) {
+            Record record = record(random, merchants, random.nextInt(RECORDS));
+            long updateStart = System.nanoTime();
+            index.put("transactions", record.id, record.fields, record.timestamp);
+            updateNanos[i] = System.nanoTime() - updateStart;
+        }
+        report("update", updateNanos);
+    }
+
+    private interface QuerySource {
+        String next();
+    }
+
+    private static List<String> queries(int count, QuerySource source) {
+        List<String> queries = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            queries.add(source.next());
+        }
+        return queries;
+    }
+
+    private static List<String> merchants(Random random, int count) {
+        List<String> merchants = new ArrayList<>(count);
+        while (merchants.size() < count) {
+            StringBuilder name = new StringBuilder();
+            int parts = 2 + random.nextInt(3);
+            for (int p = 0; p < parts; p++) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            merchants.add(name.toString());
+        }
+        return merchants;
+    }
+
+    private static Record record(Random random, List<String> merchants, int i) {
+        Record record = new Record("tx" + i, 1_700_000_000_000L + i * 60_000L);
+        record.fields.put("description", capitalize(merchants.get(random.nextInt(merchants.size())))
+            + " " + capitalize(merchants.get(random.nextInt(merchants.size()))));
+        record.fields.put("category", CATEGORIES[random.nextInt(CATEGORIES.length)]);
+        StringBuilder notes = new StringBuilder();
+        int words = random.nextInt(4);
+        for (int w = 0; w < words; w++) {
+            notes.append(NOTE_WORDS[random.nextInt(NOTE_WORDS.length)]).append(' ');
+        }
+        record.fields.put("notes", notes.toString().trim());
+        record.fields.put("amount", String.format(Locale.US, "%.2f", random.nextInt(50_000) / 100.0));
+        return record;
+    }
+
+    private static String prefix(Random random, List<String> merchants, int length) {
+        String merchant = merchants.get(random.nextInt(merchants.size()));
+        return merchant.substring(0, Math.min(length, merchant.length()));
+    }
+
+    private static String typo(Random random, String word) {
+        char[] chars = word.toCharArray();
+        int i = 1 + random.nextInt(chars.length - 2);
+        char swap = chars[i];
+        chars[i] = chars[i + 1];
+        chars[i + 1] = swap;
+        return new String(chars);
+    }
+
+    private static String capitalize(String word) {
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private static int linearScan(List<Record> records, String query) {
+        String needle = query.toLowerCase(Locale.ROOT);
+        int matches = 0;
+        for (Record record : records) {
+            for (String field : FIELDS) {
+                String value = record.fields.get(field);
+                if (value != null && value.toLowerCase(Locale.ROOT).contains(needle)) {
+                    matches++;
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void report(String label, long[] nanos) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        System.out.println(String.format(Locale.US, "%-16s n=%-5d p50=%8.3f ms  p95=%8.3f ms  p99=%8.3f ms  max=%8.3f ms",
+            label, sorted.length, percentile(sorted, 0.50), percentile(sorted, 0.95),
+            percentile(sorted, 0.99), sorted[sorted.length - 1] / 1e6));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        int index = (int) Math.min(sorted.length - 1, Math.round(p * (sorted.length - 1)));
+        return sorted[index] / 1e6;
+    }
+}
@@ -0,0 +1,197 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SearchIndexTest {
+
+    private SearchIndex index;
+
+    @Before
+    public void setUp() {
+        index = new SearchIndex();
+        Map<String, Float> weights = new HashMap<>();
+        weights.put("description", 0.4f);
+        weights.put("category", 0.25f);
+        weights.put("notes", 0.15f);
+        weights.put("amount", 0.1f);
+        index.setFieldWeights("transactions", weights);
+    }
+
+    @Test
+    public void tokenizesWordsAndAmounts() {
+        List<String> tokens = new ArrayList<>();
+        SearchIndex.tokenize("Café au lait, $1,250.50 (card)", tokens);
+
+        assertEquals(Arrays.asList("cafe", "au", "lait", "1250.5", "1250", "card"), tokens);
+    }
+
+    @Test
+    public void matchesExactPrefixAndFuzzyTerms() {
+        transaction("1", "Weekly groceries", "Food", "", 42.1, 1);
+
+        assertEquals(Arrays.asList("1"), ids(index.search("groceries", null, 10)));
+        assertEquals(Arrays.asList("1"), ids(index.search("groc", null, 10)));
+        assertEquals(Arrays.asList("1"), ids(index.search("grocereis", null, 10)));
+        assertTrue(index.search("xyz", null, 10).isEmpty());
+    }
+
+    @Test
+    public void matchesAmountsHoweverTheyAreTyped() {
+        transaction("1", "Rent", "Housing", "", 1250.5, 1);
+        transaction("2", "Coffee", "Food", "", 4.0, 2);
+
+        assertEquals(Arrays.asList("1"), ids(index.search("1,250.50", null, 10)));
+        assertEquals(Arrays.asList("1"), ids(index.search("1250", null, 10)));
+        assertEquals(Arrays.asList("1"), ids(index.search("125", null, 10)));
+        assertEquals(Arrays.asList("2"), ids(index.search("4.00", null, 10)));
+    }
+
+    @Test
+    public void everyTokenMustMatch() {
+        transaction("1", "Grocery store", "Food", "", 10, 1);
+        transaction("2", "Hardware store", "Home", "", 20, 2);
+
+        assertEquals(Arrays.asList("2"), ids(index.search("store hard", null, 10)));
+        assertTrue(index.search("grocery hardware", null, 10).isEmpty());
+    }
+
+    @Test
+    public void ranksByFieldWeightAndMatchQuality() {
+        transaction("notes", "Lunch", "Food", "coffee with team", 12, 3);
+        transaction("description", "Coffee beans", "Food", "", 12, 1);
+        transaction("prefix", "Coffeehouse visit", "Food", "", 12, 2);
+
+        assertEquals(Arrays.asList("description", "prefix", "notes"), ids(index.search("coffee", null, 10)));
+    }
+
+    @Test
+    public void tiesGoToTheNewestRecord() {
+        transaction("old", "Internet bill", "Utilities", "", 50, 100);
+        transaction("new", "Internet bill", "Utilities", "", 50, 200);
+
+        assertEquals(Arrays.asList("new", "old"), ids(index.search("internet", null, 10)));
+    }
+
+    @Test
+    public void keepsOnlyTheTopK() {
+        for (int i = 0; i < 100; i++) {
+            transaction("t" + i, "Taxi ride " + i, "Transport", "", i, i);
+        }
+
+        List<SearchIndex.Hit> hits = index.search("taxi", null, 5);
+
+        assertEquals(Arrays.asList("t99", "t98", "t97", "t96", "t95"), ids(hits));
+    }
+
+    @Test
+    public void usesSynonyms() {
+        Map<String, List<String>> synonyms = new HashMap<>();
+        synonyms.put("salary", Arrays.asList("payroll", "wage"));
+        index.setSynonyms(synonyms);
+        transaction("1", "Payroll March", "Income", "", 3000, 1);
+
+        List<SearchIndex.Hit> hits = index.search("salary", null, 10);
+
+        assertEquals(Arrays.asList("1"), ids(hits));
+        assertEquals(SearchIndex.SYNONYM_QUALITY * 0.4f, hits.get(0).score, 1e-6);
+    }
+
+    @Test
+    public void filtersByType() {
+        transaction("1", "Office chair", "Furniture", "", 120, 1);
+        Map<String, String> purchase = new LinkedHashMap<>();
+        purchase.put("item_name", "Office desk");
+        index.put("purchases", "p1", purchase, 2);
+
+        // Purchases have no configured weights, so the transaction description wins
+        assertEquals(Arrays.asList("1", "p1"), ids(index.search("office", null, 10)));
+        assertEquals(Arrays.asList("p1"), ids(index.search("office", Collections.singletonList("purchases"), 10)));
+        assertEquals("purchases", index.search("desk", null, 10).get(0).type);
+    }
+
+    @Test
+    public void updateReplacesOldTerms() {
+        transaction("1", "Gym membership", "Health", "", 30, 1);
+        transaction("1", "Yoga membership", "Health", "", 30, 1);
+
+        assertTrue(index.search("gym", null, 10).isEmpty());
+        assertEquals(Arrays.asList("1"), ids(index.search("yoga", null, 10)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void removeAndClear() {
+        transaction("1", "Parking", "Transport", "", 5, 1);
+        transaction("2", "Parking garage", "Transport", "", 8, 2);
+        Map<String, String> client = new LinkedHashMap<>();
+        client.put("name", "Parking Co");
+        index.put("clients", "c1", client, 3);
+
+        assertTrue(index.remove("transactions", "1"));
+        assertFalse(index.remove("transactions", "1"));
+        assertEquals(Arrays.asList("2", "c1"), ids(index.search("parking", null, 10)));
+
+        index.clear("transactions");
+        assertEquals(Arrays.asList("c1"), ids(index.search("parking", null, 10)));
+        assertEquals(2, index.stats().postings);
+
+        index.clear(null);
+        assertEquals(0, index.size());
+        assertEquals(0, index.stats().terms);
+    }
+
+    @Test
+    public void compactionKeepsResults() {
+        for (int i = 0; i < 3000; i++) {
+            transaction("t" + i, "Item " + i + (i % 2 == 0 ? " even" : " odd"), "Misc", "", i, i);
+        }
+        for (int i = 0; i < 3000; i += 2) {
+            index.remove("transactions", "t" + i);
+        }
+        for (int i = 1; i < 1600; i += 2) {
+            index.remove("transactions", "t" + i);
+        }
+
+        assertTrue(index.stats().deletedSlots < 1024);
+        assertTrue(index.search("even", null, 10).isEmpty());
+        assertEquals(Arrays.asList("t2999", "t2997"), ids(index.search("odd", null, 2)));
+        transaction("t1601", "Item updated", "Misc", "", 1, 5000);
+        assertEquals(Arrays.asList("t1601"), ids(index.search("updated", null, 10)));
+        assertEquals(700, index.size());
+    }
+
+    @Test
+    public void boundedDistanceStopsEarly() {
+        assertEquals(0, SearchIndex.boundedDistance("rent", "rent", 1));
+        assertEquals(1, SearchIndex.boundedDistance("rent", "rnet", 1));
+        assertEquals(1, SearchIndex.boundedDistance("rent", "rents", 1));
+        assertEquals(2, SearchIndex.boundedDistance("rent", "tax", 1));
+    }
+
+    private void transaction(String id, String description, String category, String notes, double amount, long timestamp) {
+        Map<String, String> fields = new LinkedHashMap<>();
+        fields.put("description", description);
+        fields.put("category", category);
+        fields.put("notes", notes);
+        fields.put("amount", String.valueOf(amount));
+        index.put("transactions", id, fields, timestamp);
+    }
+
+    private static List<String> ids(List<SearchIndex.Hit> hits) {
+        List<String> ids = new ArrayList<>();
+        for (SearchIndex.Hit hit : hits) {
+            ids.add(hit.id);
+        }
+        return ids;
+    }
+}
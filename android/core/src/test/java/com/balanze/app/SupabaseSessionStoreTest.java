@@ -0,0 +1,133 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class SupabaseSessionStoreTest {
+
+    private static final String KEY = "sb-project-auth-token";
+    private static final long MARGIN_MS = 60_000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private KeyValueLog log;
+    private long now = 1_700_000_000_000L;
+    private final List<String> refreshedWith = new ArrayList<>();
+
+    // Flips every byte; enough to stand in for the Keystore here
+    private static final class FlipCipher implements KeyValueLog.ValueCipher {
+        @Override
+        public byte[] encrypt(byte[] plain) {
+            return flip(plain);
+        }
+
+        @Override
+        public byte[] decrypt(byte[] sealed) {
+            return flip(sealed);
+        }
+
+        private static byte[] flip(byte[] bytes) {
+            byte[] out = new byte[bytes.length];
+            for (int i = 0; i < bytes.length; i++) {
+                out[i] = (byte) ~bytes[i];
+            }
+            return out;
+        }
+    }
+
+    @Before
+    public void open() throws IOException {
+        log = new KeyValueLog(new File(folder.getRoot(), "kv/store.log"), new FlipCipher());
+    }
+
+    @After
+    public void close() throws IOException {
+        log.close();
+    }
+
+    private static String session(String access, String refresh, long expiresAtSeconds) throws Exception {
+        return new JSONObject()
+            .put("access_token", access)
+            .put("refresh_token", refresh)
+            .put("expires_at", expiresAtSeconds)
+            .put("token_type", "bearer")
+            .put("user", new JSONObject().put("id", "user-1"))
+            .toString();
+    }
+
+    private SupabaseSessionStore store(SupabaseSessionStore.Transport transport) {
+        return new SupabaseSessionStore(log, KEY, transport, () -> now);
+    }
+
+    @Test
+    public void noStoredSessionIsNull() throws IOException {
+        assertNull(store(token -> {
+            throw new AssertionError("no refresh expected");
+        }).current(MARGIN_MS));
+    }
+
+    @Test
+    public void validSessionIsUsedAsStored() throws Exception {
+        log.apply(new KeyValueLog.Batch().putSecret(KEY, session("access-1", "refresh-1", now / 1000 + 3600)));
+
+        SupabaseSessionStore.Session current = store(token -> {
+            throw new AssertionError("no refresh expected");
+        }).current(MARGIN_MS);
+        assertEquals("user-1", current.userId);
+        assertEquals("access-1", current.accessToken);
+        assertEquals(now + 3_600_000, current.expiresAtMs);
+    }
+
+    @Test
+    public void expiringSessionIsRefreshedAndWrittenBack() throws Exception {
+        log.apply(new KeyValueLog.Batch().putSecret(KEY, session("access-1", "refresh-1", now / 1000 + 30)));
+        // This token endpoint only answers with expires_in
+        JSONObject refreshedSession = new JSONObject(session("access-2", "refresh-2", 0)).put("expires_in", 3600);
+        refreshedSession.remove("expires_at");
+        String response = refreshedSession.toString();
+
+        SupabaseSessionStore.Session current = store(token -> {
+            refreshedWith.add(token);
+            return response;
+        }).current(MARGIN_MS);
+
+        assertEquals(1, refreshedWith.size());
+        assertEquals("refresh-1", refreshedWith.get(0));
+        assertEquals("access-2", current.accessToken);
+        assertEquals("refresh-2", current.refreshToken);
+        assertEquals(now + 3_600_000, current.expiresAtMs);
+
+        // The rotated token replaces the old one, still sealed, with expires_at for supabase-js
+        assertTrue(log.isSecret(KEY));
+        JSONObject stored = new JSONObject(log.getString(KEY, null));
+        assertEquals("refresh-2", stored.getString("refresh_token"));
+        assertEquals(now / 1000 + 3600, stored.getLong("expires_at"));
+    }
+
+    @Test
+    public void refusedRefreshKeepsTheStoredSession() throws Exception {
+        String stored = session("access-1", "refresh-1", now / 1000 - 10);
+        log.apply(new KeyValueLog.Batch().putSecret(KEY, stored));
+
+        try {
+            store(token -> {
+                throw new SupabaseSessionStore.RefreshRejectedException("invalid_grant");
+            }).current(MARGIN_MS);
+            fail("expected the refusal to surface");
+        } catch (SupabaseSessionStore.RefreshRejectedException expected) {
+            // The page signs the user out itself on its next launch
+        }
+        assertEquals(stored, log.getString(KEY, null));
+    }
+}
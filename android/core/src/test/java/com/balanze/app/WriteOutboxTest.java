@@ -0,0 +1,312 @@
+package com.balanze.app;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class WriteOutboxTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File file;
+    private long now = 1_000_000;
+    private WriteOutbox outbox;
+
+    // Records every run it is handed; fails or refuses on request
+    private final List<List<WriteOutbox.Mutation>> runs = new ArrayList<>();
+    private final List<String> acknowledged = new ArrayList<>();
+    private final List<String> conflicts = new ArrayList<>();
+    private int failRuns;
+    private String refuseKey;
+
+    private final WriteOutbox.Sink sink = run -> {
+        if (failRuns > 0) {
+            failRuns--;
+            throw new IOException("offline");
+        }
+        runs.add(new ArrayList<>(run));
+        List<WriteOutbox.Outcome> outcomes = new ArrayList<>();
+        for (WriteOutbox.Mutation mutation : run) {
+            outcomes.add(mutation.key.equals(refuseKey)
+                ? WriteOutbox.Outcome.conflict("TRANSACTION_LIMIT_EXCEEDED") : WriteOutbox.Outcome.applied());
+        }
+        return outcomes;
+    };
+
+    private final WriteOutbox.Listener listener = new WriteOutbox.Listener() {
+        @Override
+        public void onAcknowledged(List<WriteOutbox.Mutation> mutations) {
+            for (WriteOutbox.Mutation mutation : mutations) {
+                acknowledged.add(mutation.op + ":" + mutation.key);
+            }
+        }
+
+        @Override
+        public void onConflict(WriteOutbox.Mutation mutation, String message) {
+            conflicts.add(mutation.key + ":" + message);
+        }
+    };
+
+    @Before
+    public void open() throws IOException {
+        file = new File(folder.getRoot(), "outbox/user.journal");
+        outbox = new WriteOutbox(file, () -> now);
+    }
+
+    @After
+    public void close() throws IOException {
+        outbox.close();
+    }
+
+    private WriteOutbox reopen() throws IOException {
+        outbox.close();
+        outbox = new WriteOutbox(file, () -> now);
+        return outbox;
+    }
+
+    private long transaction(String op, String key, String values) throws Exception {
+        return outbox.enqueue("transactions", op, "transaction_id", key, values);
+    }
+
+    private WriteOutbox.FlushResult flush() throws IOException {
+        return outbox.flush(sink, listener, WriteOutbox.DEFAULT_BATCH_SIZE, false);
+    }
+
+    private static List<String> keys(List<WriteOutbox.Mutation> mutations) {
+        List<String> keys = new ArrayList<>();
+        for (WriteOutbox.Mutation mutation : mutations) {
+            keys.add(mutation.op + ":" + mutation.key);
+        }
+        return keys;
+    }
+
+    @Test
+    public void flushesInEnqueueOrderGroupingRunsOfTheSameKind() throws Exception {
+        transaction(WriteOutbox.INSERT, "F1", "{\"amount\":10}");
+        transaction(WriteOutbox.INSERT, "F2", "{\"amount\":20}");
+        outbox.enqueue("purchases", WriteOutbox.UPDATE, "transaction_id", "F1", "{\"price\":10}");
+        transaction(WriteOutbox.INSERT, "F3", "{\"amount\":30}");
+
+        WriteOutbox.FlushResult result = flush();
+
+        assertEquals(4, result.acknowledged);
+        assertEquals(0, result.remaining);
+        assertEquals(3, runs.size());
+        assertEquals(List.of("insert:F1", "insert:F2"), keys(runs.get(0)));
+        assertEquals("purchases", runs.get(1).get(0).table);
+        assertEquals(List.of("insert:F3"), keys(runs.get(2)));
+        assertEquals(List.of("insert:F1", "insert:F2", "update:F1", "insert:F3"), acknowledged);
+    }
+
+    @Test
+    public void updatesFoldIntoTheUnsentWriteOfTheSameRow() throws Exception {
+        long first = transaction(WriteOutbox.INSERT, "F1", "{\"amount\":10,\"note\":\"a\"}");
+        transaction(WriteOutbox.UPDATE, "F2", "{\"amount\":5}");
+        long folded = transaction(WriteOutbox.UPDATE, "F1", "{\"note\":\"b\",\"category\":\"Food\"}");
+        long second = transaction(WriteOutbox.UPDATE, "F2", "{\"amount\":6}");
+
+        assertEquals(first, folded);
+        List<WriteOutbox.Mutation> pending = outbox.pending();
+        assertEquals(List.of("insert:F1", "update:F2"), keys(pending));
+        JSONObject values = new JSONObject(pending.get(0).payload);
+        assertEquals(10, values.getInt("amount"));
+        assertEquals("b", values.getString("note"));
+        assertEquals("Food", values.getString("category"));
+        assertEquals(pending.get(1).seq, second);
+        assertEquals(6, new JSONObject(pending.get(1).payload).getInt("amount"));
+    }
+
+    @Test
+    public void deleteCancelsAnUnsentInsertAndReplacesAnUnsentUpdate() throws Exception {
+        transaction(WriteOutbox.INSERT, "F1", "{\"amount\":10}");
+        transaction(WriteOutbox.UPDATE, "F2", "{\"amount\":5}");
+
+        assertEquals(-1, transaction(WriteOutbox.DELETE, "F1", null));
+        transaction(WriteOutbox.DELETE, "F2", null);
+
+        assertEquals(List.of("delete:F2"), keys(outbox.pending()));
+        // A write after the delete queues behind it rather than reviving the row
+        transaction(WriteOutbox.UPDATE, "F2", "{\"amount\":7}");
+        assertEquals(List.of("delete:F2", "update:F2"), keys(outbox.pending()));
+    }
+
+    @Test
+    public void pendingWritesSurviveARestart() throws Exception {
+        transaction(WriteOutbox.INSERT, "F1", "{\"amount\":10}");
+        transaction(WriteOutbox.INSERT, "F2", "{\"amount\":20}");
+        transaction(WriteOutbox.UPDATE, "F2", "{\"note\":\"x\"}");
+        transaction(WriteOutbox.DELETE, "F3", null);
+        outbox.flush(sink, listener, 1, false);
+
+        List<WriteOutbox.Mutation> before = outbox.pending();
+        reopen();
+
+        List<WriteOutbox.Mutation> after = outbox.pending();
+        assertEquals(keys(before), keys(after));
+        assertEquals(List.of("insert:F2", "delete:F3"), keys(after));
+        assertEquals(before.get(0).seq, after.get(0).seq);
+        assertEquals(before.get(0).payload, after.get(0).payload);
+        assertEquals(before.get(0).enqueuedAt, after.get(0).enqueuedAt);
+        // Sequence numbers keep growing, so order is kept across restarts
+        assertTrue(transaction(WriteOutbox.INSERT, "F4", "{}") > after.get(1).seq);
+    }
+
+    @Test
+    public void tornLastRecordIsDroppedOnReplay() throws Exception {
+        transaction(WriteOutbox.INSERT, "F1", "{\"amount\":10}");
+        long intact = file.length();
+        transaction(WriteOutbox.INSERT, "F2", "{\"amount\":20}");
+        outbox.close();
+        // Crash half way through writing the second record
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(intact + (file.length() - intact) / 2);
+        }
+
+        reopen();
+
+        assertEquals(List.of("insert:F1"), keys(outbox.pending()));
+        assertEquals(intact, file.length());
+        transaction(WriteOutbox.INSERT, "F3", "{}");
+        assertEquals(List.of("insert:F1", "insert:F3"), keys(reopen().pending()));
+    }
+
+    @Test
+    public void corruptRecordEndsReplay() throws Exception {
+        transaction(WriteOutbox.INSERT, "F1", "{\"amount\":10}");
+        long intact = file.length();
+        transaction(WriteOutbox.INSERT, "F2", "{\"amount\":20}");
+        transaction(WriteOutbox.INSERT, "F3", "{\"amount\":30}");
+        outbox.close();
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.seek(intact + 12);
+            raf.write(raf.read() ^ 0xff);
+        }
+
+        assertEquals(List.of("insert:F1"), keys(reopen().pending()));
+    }
+
+    @Test
+    public void failedFlushBacksOffExponentially() throws Exception {
+        transaction(WriteOutbox.INSERT, "F1", "{}");
+        failRuns = 2;
+
+        WriteOutbox.FlushResult first = flush();
+        assertEquals("offline", first.error);
+        assertEquals(now + WriteOutbox.backoff(1), first.retryAt);
+
+        // Still backing off: the sink is not even asked
+        now += WriteOutbox.backoff(1) - 1;
+        assertEquals(0, flush().acknowledged);
+        assertEquals(1, failRuns);
+
+        now += 1;
+        WriteOutbox.FlushResult second = flush();
+        assertEquals(now + WriteOutbox.backoff(2), second.retryAt);
+        assertEquals(2 * WriteOutbox.backoff(1), WriteOutbox.backoff(2));
+
+        // Forcing skips the wait, and success resets the backoff
+        WriteOutbox.FlushResult forced = outbox.flush(sink, listener, WriteOutbox.DEFAULT_BATCH_SIZE, true);
+        assertEquals(1, forced.acknowledged);
+        assertEquals(0, forced.retryAt);
+        assertEquals(10 * 60 * 1000L, WriteOutbox.backoff(30));
+    }
+
+    @Test
+    public void failureMidBatchKeepsTheRestInOrder() throws Exception {
+        transaction(WriteOutbox.INSERT, "F1", "{}");
+        outbox.enqueue("purchases", WriteOutbox.INSERT, "transaction_id", "F1", "{}");
+        transaction(WriteOutbox.UPDATE, "F2", "{}");
+        WriteOutbox.Sink failsSecondRun = new WriteOutbox.Sink() {
+            int calls;
+
+            @Override
+            public List<WriteOutbox.Outcome> apply(List<WriteOutbox.Mutation> run) throws IOException {
+                if (++calls == 2) {
+                    throw new IOException("connection reset");
+                }
+                return sink.apply(run);
+            }
+        };
+
+        WriteOutbox.FlushResult result = outbox.flush(failsSecondRun, listener, 10, false);
+
+        assertEquals(1, result.acknowledged);
+        assertEquals(2, result.remaining);
+        assertEquals("purchases", outbox.pending().get(0).table);
+        assertEquals(List.of("insert:F1", "update:F2"), keys(reopen().pending()));
+    }
+
+    @Test
+    public void refusedWritesAreReportedAndRetired() throws Exception {
+        transaction(WriteOutbox.INSERT, "F1", "{}");
+        transaction(WriteOutbox.INSERT, "F2", "{}");
+        refuseKey = "F1";
+
+        WriteOutbox.FlushResult result = flush();
+
+        assertEquals(1, result.acknowledged);
+        assertEquals(1, result.conflicts);
+        assertEquals(0, result.remaining);
+        assertEquals(List.of("F1:TRANSACTION_LIMIT_EXCEEDED"), conflicts);
+        assertEquals(List.of("insert:F2"), acknowledged);
+        assertTrue(reopen().pending().isEmpty());
+    }
+
+    @Test
+    public void writeDuringFlushQueuesBehindTheMutationInFlight() throws Exception {
+        transaction(WriteOutbox.INSERT, "F1", "{\"amount\":10}");
+        WriteOutbox.Sink editsWhileSending = run -> {
+            try {
+                transaction(WriteOutbox.UPDATE, "F1", "{\"amount\":11}");
+            } catch (Exception e) {
+                throw new IOException(e);
+            }
+            return sink.apply(run);
+        };
+
+        outbox.flush(editsWhileSending, listener, 10, false);
+
+        List<WriteOutbox.Mutation> pending = outbox.pending();
+        assertEquals(List.of("update:F1"), keys(pending));
+        assertEquals(11, new JSONObject(pending.get(0).payload).getInt("amount"));
+        assertEquals(10, new JSONObject(runs.get(0).get(0).payload).getInt("amount"));
+    }
+
+    @Test
+    public void journalIsCompactedOnceMostRecordsAreRetired() throws Exception {
+        for (int i = 0; i < 300; i++) {
+            transaction(WriteOutbox.INSERT, "F" + i, "{\"amount\":" + i + "}");
+        }
+        transaction(WriteOutbox.UPDATE, "keep", "{}");
+        long full = file.length();
+        refuseKey = "none";
+        outbox.flush(sink, listener, 300, false);
+
+        assertTrue(file.length() < full / 100);
+        assertEquals(Collections.singletonList("update:keep"), keys(reopen().pending()));
+    }
+
+    @Test
+    public void clearForgetsEverything() throws Exception {
+        transaction(WriteOutbox.INSERT, "F1", "{}");
+
+        outbox.clear();
+
+        assertEquals(0, outbox.size());
+        assertFalse(file.exists());
+        transaction(WriteOutbox.INSERT, "F2", "{}");
+        assertEquals(List.of("insert:F2"), keys(reopen().pending()));
+    }
+}
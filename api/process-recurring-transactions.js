@@ -244,12 +244,13 @@ async function processRecurringTransactions() {
           updated_at: new Date().toISOString(),
         };
 
-        // Insert the new transaction
+        // Insert the new transaction; an instance the app's catch-up run created for the same
+        // date in the meantime wins (unique key from add_recurring_instance_unique_key.sql)
         const { data: insertedTransaction, error: insertError } = await supabase
           .from('transactions')
-          .insert(newTransaction)
+          .upsert(newTransaction, { onConflict: 'parent_recurring_id,date', ignoreDuplicates: true })
           .select('id, transaction_id')
-          .single();
+          .maybeSingle();
 
         if (insertError) {
           errors.push({
@@ -258,6 +259,19 @@ async function processRecurringTransactions() {
           });
           continue;
         }
+
+        if (!insertedTransaction) {
+          // Already materialized: only move the parent on, as for an existing instance above
+          await supabase
+            .from('transactions')
+            .update({
+              next_occurrence_date: nextOccurrenceDate,
+              occurrence_count: (recurringTransaction.occurrence_count || 0) + 1,
+              updated_at: new Date().toISOString()
+            })
+            .eq('id', recurringTransaction.id);
+          continue;
+        }
         
         createdTransaction = insertedTransaction;
 
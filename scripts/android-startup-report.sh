@@ -0,0 +1,130 @@
+#!/bin/bash
+
+# APK size and cold-start comparison for the Android release build.
+# Compares the R8-shrunk release against the unshrunk build, and cold start
+# with and without the baseline profile, on the connected device.
+#
+# Prerequisites: web assets synced (npm run android:sync), one device or
+# emulator connected over adb (API 28+), ANDROID_HOME set.
+#
+# Output: android/build/reports/startup-report.md
+
+set -e
+
+ROOT="$(cd "$(dirname "$0")/.." && pwd)"
+ANDROID_DIR="$ROOT/android"
+REPORT_DIR="$ANDROID_DIR/build/reports"
+REPORT="$REPORT_DIR/startup-report.md"
+BENCHMARK_CLASS="com.balanze.baselineprofile.StartupBenchmark"
+
+cd "$ANDROID_DIR"
+mkdir -p "$REPORT_DIR"
+
+echo "📦 Step 1: Building release (R8) and nonMinifiedRelease APKs..."
+./gradlew --quiet :app:assembleRelease :app:assembleNonMinifiedRelease
+
+apk_size() {
+    local apk
+    apk=$(ls "$ANDROID_DIR"/app/build/outputs/apk/"$1"/*.apk 2>/dev/null | head -n 1)
+    if [ -z "$apk" ]; then
+        echo "❌ Error: no APK found for $1" >&2
+        exit 1
+    fi
+    wc -c < "$apk" | tr -d ' '
+}
+
+RELEASE_SIZE=$(apk_size release)
+UNSHRUNK_SIZE=$(apk_size nonMinifiedRelease)
+
+echo "⏱️  Step 2: Measuring cold start (this takes several minutes)..."
+for variant in NonMinifiedRelease BenchmarkRelease; do
+    ./gradlew --quiet ":baselineprofile:connected${variant}AndroidTest" \
+        -Pandroid.testInstrumentationRunnerArguments.class="$BENCHMARK_CLASS"
+done
+
+# Median time to initial display per variant/test, from the macrobenchmark JSON output
+RESULTS=$(node -e '
+const fs = require("fs");
+const path = require("path");
+const root = process.argv[1];
+const rows = [];
+const walk = dir => {
+  if (!fs.existsSync(dir)) return;
+  for (const entry of fs.readdirSync(dir, { withFileTypes: true })) {
+    const full = path.join(dir, entry.name);
+    if (entry.isDirectory()) walk(full);
+    else if (entry.name.endsWith("benchmarkData.json")) {
+      const variant = full.includes("nonMinifiedRelease") ? "no R8" : "R8";
+      for (const b of JSON.parse(fs.readFileSync(full, "utf8")).benchmarks) {
+        if (b.name.includes("startupPhases")) continue;
+        const m = b.metrics.timeToInitialDisplayMs;
+        const profile = b.name.includes("WithBaselineProfile") ? "baseline profile" : "no profile";
+        rows.push(`| ${variant} | ${profile} | ${m.median.toFixed(1)} | ${m.minimum.toFixed(1)} | ${m.maximum.toFixed(1)} |`);
+      }
+    }
+  }
+};
+walk(path.join(root, "baselineprofile/build/outputs/connected_android_test_additional_output"));
+console.log(rows.sort().join("\n"));
+' "$ANDROID_DIR")
+
+# Median duration of each app trace section (StartupTrace phases), R8 + profile build only
+PHASES=$(node -e '
+const fs = require("fs");
+const path = require("path");
+const rows = [];
+const walk = dir => {
+  if (!fs.existsSync(dir)) return;
+  for (const entry of fs.readdirSync(dir, { withFileTypes: true })) {
+    const full = path.join(dir, entry.name);
+    if (entry.isDirectory()) walk(full);
+    else if (entry.name.endsWith("benchmarkData.json") && !full.includes("nonMinifiedRelease")) {
+      for (const b of JSON.parse(fs.readFileSync(full, "utf8")).benchmarks) {
+        if (!b.name.includes("startupPhases")) continue;
+        for (const [name, m] of Object.entries(b.metrics)) {
+          rows.push(`| ${name.replace(/Ms$/, "")} | ${m.median.toFixed(1)} | ${m.maximum.toFixed(1)} |`);
+        }
+      }
+    }
+  }
+};
+walk(path.join(process.argv[1], "baselineprofile/build/outputs/connected_android_test_additional_output"));
+console.log(rows.join("\n"));
+' "$ANDROID_DIR")
+
+DEVICE=$(adb shell getprop ro.product.model | tr -d '\r')
+SDK=$(adb shell getprop ro.build.version.sdk | tr -d '\r')
+
+cat > "$REPORT" <<EOF
+# Android startup report
+
+Generated $(date -u +"%Y-%m-%d %H:%M UTC") on $DEVICE (API $SDK), commit $(git -C "$ROOT" rev-parse --short HEAD).
+
+## APK size
+
+| Build | Bytes |
+|---|---|
+| release (R8 + resource shrinking) | $RELEASE_SIZE |
+| nonMinifiedRelease (previous setup) | $UNSHRUNK_SIZE |
+
+Reduction: $(( (UNSHRUNK_SIZE - RELEASE_SIZE) * 100 / UNSHRUNK_SIZE ))%
+
+## Cold start, time to initial display (ms, ${BENCHMARK_CLASS##*.}, 10 iterations)
+
+| Code | Compilation | Median | Min | Max |
+|---|---|---|---|---|
+$RESULTS
+
+"no R8 / no profile" is how the app shipped before: unshrunk and JIT-only at launch.
+
+## Cold start by phase (ms, R8 + baseline profile)
+
+| Phase | Median | Max |
+|---|---|---|
+$PHASES
+
+Phases are the balanze:* trace sections from BalanzeApplication and MainActivity.onCreate;
+webviewWarmup and storeWarmup run on background threads in parallel with the others.
+EOF
+
+echo "✅ Report written to $REPORT"
@@ -1,5 +1,5 @@
 import React, { useEffect, useState, useRef, Suspense, lazy } from 'react';
-import { BrowserRouter as Router, Routes, Route, Navigate, useLocation } from 'react-router-dom';
+import { BrowserRouter as Router, Routes, Route, Navigate, useLocation, useNavigate } from 'react-router-dom';
 import { HelmetProvider } from 'react-helmet-async';
 import { supabase } from './lib/supabase';
 import { useAuthStore } from './store/authStore';
@@ -31,6 +31,13 @@ import { App as CapacitorApp } from '@capacitor/app';
 import { getRememberMePreference } from './utils/authStorage';
 import { Capacitor } from '@capacitor/core';
 import { useMobileDetection } from './hooks/useMobileDetection';
+import { useMemoryPressure } from './hooks/useMemoryPressure';
+import { nativeRecurring } from './lib/nativeRecurring';
+import { nativeOutbox } from './lib/nativeOutbox';
+import { nativeBulkTransfer } from './lib/nativeBulkTransfer';
+import { nativeDeepLinks, type NativeAuthLink } from './lib/nativeDeepLinks';
+import { showToast } from './lib/toast';
+import { rejectDuplicateAccount } from './utils/duplicateAccount';
 
 // Lazy load non-critical components for code splitting
 const About = lazy(() => import('./pages/About'));
@@ -113,6 +120,8 @@ function AppContent() {
   const initialized = useRef(false);
   const { isLoading: globalLoading, loadingMessage } = useLoadingContext();
   const { isMobile } = useMobileDetection();
+  const navigate = useNavigate();
+  useMemoryPressure();
   
   // Welcome modal state
   const [showWelcomeModal, setShowWelcomeModal] = useState(false);
@@ -219,6 +228,24 @@ function AppContent() {
         if (isRegistrationInProgress) {
           return;
         }
+
+        // Keep the background recurring job's session current, and catch up
+        // overdue occurrences as soon as a session is available
+        if (nativeRecurring.isAvailable()) {
+          nativeRecurring.handleAuthChange(event, session)
+            .then(() => {
+              if (event === 'SIGNED_IN' || event === 'INITIAL_SESSION') {
+                return nativeRecurring.runNow();
+              }
+            })
+            .catch(error => console.warn('[Recurring] Native catch-up failed', error));
+        }
+
+        // Writes queued while offline are sent with the current session
+        if (nativeOutbox.isAvailable()) {
+          nativeOutbox.handleAuthChange(event, session)
+            .catch(error => console.warn('[Outbox] Handing over the session failed', error));
+        }
         
         // Handle different auth events
         switch (event) {
@@ -359,8 +386,48 @@ function AppContent() {
       window.addEventListener('pagehide', handlePageUnload);
     }
     
+    // Runs that created instances (on launch or in the background) reload the list
+    const stopRecurringListener = nativeRecurring.isAvailable()
+      ? nativeRecurring.onMaterialized(() => {
+          useFinanceStore.getState().fetchTransactions();
+        })
+      : () => {};
+
+    // Connect the ArrayBuffer port now so the first bulk ledger query can use it
+    nativeBulkTransfer.install();
+
+    // Queued offline writes: reload once they land, report the ones the
+    // server refused, and send them as soon as the device is online again
+    const flushOutbox = () => {
+      nativeOutbox.flush().catch(error => console.warn('[Outbox] Flush failed', error));
+    };
+    const stopOutboxListeners = nativeOutbox.isAvailable()
+      ? (() => {
+          const stopAcknowledged = nativeOutbox.onAcknowledged(() => {
+            const { fetchTransactions, fetchAccounts, fetchPurchases } = useFinanceStore.getState();
+            fetchTransactions();
+            fetchAccounts();
+            fetchPurchases();
+          });
+          const stopConflict = nativeOutbox.onConflict(conflict => {
+            showToast.error(`An offline change could not be saved: ${conflict.message}`);
+            const { fetchTransactions, fetchPurchases } = useFinanceStore.getState();
+            fetchTransactions();
+            fetchPurchases();
+          });
+          window.addEventListener('online', flushOutbox);
+          return () => {
+            stopAcknowledged();
+            stopConflict();
+            window.removeEventListener('online', flushOutbox);
+          };
+        })()
+      : () => {};
+    
     return () => {
       authListener.subscription.unsubscribe();
+      stopRecurringListener();
+      stopOutboxListeners();
       if (!isAndroidApp()) {
         window.removeEventListener('beforeunload', handlePageUnload);
         window.removeEventListener('pagehide', handlePageUnload);
@@ -376,6 +443,72 @@ function AppContent() {
     console.error('[DEEPLINK] Platform:', platform);
     console.error('[DEEPLINK] ========================================');
     
+    if (platform === 'android' && nativeDeepLinks.isAvailable()) {
+      // MainActivity parses and checks auth links and hands them to this page as events, so
+      // the session is set and the route changed in place, without reloading the app
+      const handleNativeAuthLink = async (link: NativeAuthLink) => {
+        const receivedAt = performance.now();
+        const finish = (outcome: string, path: string) => {
+          nativeDeepLinks.reportAuthenticated(link.linkId, outcome, Math.round(performance.now() - receivedAt))
+            .then(latencyMs => console.log(`[DEEPLINK] ${link.kind} link ${outcome} after ${latencyMs} ms`))
+            .catch(() => {});
+          navigate(path, { replace: true });
+        };
+
+        if (!link.ok) {
+          console.error('[DEEPLINK] ❌ Rejected auth link:', link.reason);
+          finish('rejected', link.kind === 'reset-password' ? '/auth?error=reset_failed' : '/auth?error=callback_failed');
+          return;
+        }
+        if (link.flow === 'error') {
+          console.error('[DEEPLINK] ❌ OAuth error from deep link:', link.errorDescription || link.error);
+          finish('oauth_failed', '/auth?error=oauth_failed');
+          return;
+        }
+
+        try {
+          const { data, error } = link.flow === 'session'
+            ? await supabase.auth.setSession({ access_token: link.accessToken, refresh_token: link.refreshToken })
+            : link.flow === 'code'
+              ? await supabase.auth.exchangeCodeForSession(link.code)
+              : await supabase.auth.verifyOtp({ token_hash: link.tokenHash, type: link.type });
+          if (error) {
+            console.error('[DEEPLINK] ❌ Error setting session:', error);
+            finish('session_failed', link.kind === 'reset-password' ? '/auth?error=reset_failed' : '/auth?error=session_failed');
+            return;
+          }
+          if (!data.user) {
+            console.error('[DEEPLINK] ❌ No user data after setting session');
+            finish('no_user', '/auth?error=no_user');
+            return;
+          }
+          // The same check AuthCallback runs: a provider login must not open a second
+          // account for an email that is already registered
+          const rejection = await rejectDuplicateAccount(data.user);
+          if (rejection) {
+            console.error('[DEEPLINK] ❌ Login rejected:', rejection.message);
+            showToast.error(rejection.message);
+            finish(rejection.duplicate ? 'duplicate_account' : 'verification_failed', '/auth?error=callback_failed');
+            return;
+          }
+          // ResetPassword reads the session that was just set
+          if (link.kind === 'reset-password') {
+            finish('authenticated', '/auth/reset-password');
+            return;
+          }
+          await useAuthStore.getState().setUserAndProfile(data.user, null);
+          finish('authenticated', '/dashboard');
+        } catch (error) {
+          console.error('[DEEPLINK] ❌ Error handling deep link:', error);
+          finish('callback_failed', '/auth?error=callback_failed');
+        }
+      };
+
+      return nativeDeepLinks.subscribe(link => {
+        handleNativeAuthLink(link);
+      });
+    }
+
     if (platform === 'android') {
       console.error('[DEEPLINK] ✅ Android platform detected - setting up deep link handlers');
       
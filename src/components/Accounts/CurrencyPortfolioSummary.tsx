@@ -2,7 +2,7 @@ import React, { useMemo, useState } from 'react';
 import { TrendingUp, TrendingDown, DollarSign, Globe, ArrowUpRight, ArrowDownRight, Info } from 'lucide-react';
 import { StatCard } from '../Dashboard/StatCard';
 import { formatCurrency } from '../../utils/currency';
-import { getExchangeRate } from '../../utils/exchangeRate';
+import { getExchangeRates } from '../../utils/exchangeRate';
 import { isLendBorrowTransaction } from '../../utils/transactionUtils';
 
 interface CurrencyPortfolioSummaryProps {
@@ -144,20 +144,7 @@ export const CurrencyPortfolioSummary: React.FC<CurrencyPortfolioSummaryProps> =
   // Load exchange rates
   React.useEffect(() => {
     const loadExchangeRates = async () => {
-      const rates: Record<string, number> = {};
-      for (const currency of allCurrencies) {
-        if (currency !== baseCurrency) {
-          try {
-            const rate = await getExchangeRate(currency, baseCurrency);
-            rates[currency] = rate;
-          } catch (error) {
-            rates[currency] = 1;
-          }
-        } else {
-          rates[currency] = 1;
-        }
-      }
-      setExchangeRates(rates);
+      setExchangeRates(await getExchangeRates(allCurrencies, baseCurrency));
     };
 
     if (allCurrencies.length > 0) {
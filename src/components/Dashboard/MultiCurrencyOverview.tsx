@@ -2,7 +2,7 @@ import React, { useState, useMemo, useEffect } from 'react';
 import { TrendingUp, TrendingDown, DollarSign, ArrowUpRight, ArrowDownRight, Info, RefreshCw } from 'lucide-react';
 import { useTranslation } from 'react-i18next';
 import { formatCurrency } from '../../utils/currency';
-import { getExchangeRate, calculateConvertedAmount } from '../../utils/exchangeRate';
+import { getExchangeRates, calculateConvertedAmount } from '../../utils/exchangeRate';
 import { CustomDropdown } from '../Purchases/CustomDropdown';
 import { isLendBorrowTransaction } from '../../utils/transactionUtils';
 
@@ -73,23 +73,8 @@ export const MultiCurrencyOverview: React.FC<MultiCurrencyOverviewProps> = ({
   useEffect(() => {
     const fetchRates = async () => {
       setLoading(true);
-      const rates: Record<string, number> = {};
-      
-      for (const currency of allCurrencies) {
-        if (currency !== baseCurrency) {
-          try {
-            const rate = await getExchangeRate(currency, baseCurrency);
-            rates[currency] = rate;
-          } catch (error) {
-
-            rates[currency] = 1; // Fallback
-          }
-        } else {
-          rates[currency] = 1;
-        }
-      }
-      
-      setExchangeRates(rates);
+      // One lookup for every currency instead of one per pair
+      setExchangeRates(await getExchangeRates(allCurrencies, baseCurrency));
       setLoading(false);
     };
 
@@ -10,6 +10,7 @@ import { format, isPast, parseISO } from 'date-fns';
 import { getCurrencySymbol } from '../../utils/currency';
 import { generateInvoicePDF } from '../../utils/invoiceUtils';
 import { sendInvoiceEmail } from '../../utils/invoiceEmailService';
+import { nativeInvoices } from '../../lib/nativeInvoices';
 import { toast } from 'sonner';
 
 export const InvoiceList: React.FC = () => {
@@ -146,6 +147,16 @@ export const InvoiceList: React.FC = () => {
       return;
     }
 
+    // Android renders natively and hands the file to the share sheet
+    if (nativeInvoices.isAvailable()) {
+      try {
+        await nativeInvoices.share(invoice);
+        return;
+      } catch (error) {
+        console.warn('Native invoice PDF failed, using jsPDF:', error);
+      }
+    }
+
     try {
       const result = await generateInvoicePDF({
         invoice
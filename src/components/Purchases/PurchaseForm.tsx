@@ -20,6 +20,7 @@ import { getDefaultAccountId } from '../../utils/defaultAccount';
 import { generateTransactionId } from '../../utils/transactionId';
 import { useMobileDetection } from '../../hooks/useMobileDetection';
 import { AmountAdjustmentModal } from '../common/AmountAdjustmentModal';
+import { uploadStagedAttachments } from '../../utils/attachmentUploads';
 
 
 interface PurchaseFormProps {
@@ -435,39 +436,7 @@ export const PurchaseForm: React.FC<PurchaseFormProps> = ({ record, onClose, isO
           await updatePurchase(editingPurchase.id, updateData);
 
           // Handle attachments for editing
-          if (purchaseAttachments.length > 0) {
-            for (const att of purchaseAttachments) {
-              if (!att.id.startsWith('temp_')) continue;
-              
-              if (att.file && (att.file_path.startsWith('blob:') || att.id.startsWith('temp_'))) {
-                const { data: uploadData, error: uploadError } = await supabase.storage
-                  .from('attachments')
-                  .upload(`purchases/${editingPurchase.id}/${att.file_name}`, att.file, { upsert: true });
-                
-                if (uploadError) {
-                  continue;
-                }
-                
-                if (!uploadError && uploadData && uploadData.path) {
-                  const { publicUrl } = supabase.storage.from('attachments').getPublicUrl(uploadData.path).data;
-                  const attachmentData = {
-                    purchase_id: editingPurchase.id,
-                    user_id: user?.id || '',
-                    file_name: att.file_name,
-                    file_path: publicUrl,
-                    file_size: att.file_size,
-                    file_type: att.file_type,
-                    mime_type: att.mime_type,
-                    created_at: new Date().toISOString(),
-                  };
-                  const { error: insertError } = await supabase.from('purchase_attachments').insert(attachmentData);
-                  if (insertError) {
-                    // Handle error silently
-                  }
-                }
-              }
-            }
-          }
+          await uploadStagedAttachments(editingPurchase, purchaseAttachments);
 
           // If changing from planned to purchased, create a transaction
           if (editingPurchase.status === 'planned' && formData.status === 'purchased' && !excludeFromCalculation) {
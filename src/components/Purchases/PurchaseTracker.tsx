@@ -33,6 +33,7 @@ import { PurchaseDetailsSection } from '../Transactions/PurchaseDetailsSection';
 import { useAuthStore } from '../../store/authStore';
 import { supabase } from '../../lib/supabase';
 import { PurchaseAttachment } from '../../types';
+import { uploadStagedAttachments } from '../../utils/attachmentUploads';
 // DatePicker loaded dynamically to reduce initial bundle size
 // import DatePicker from 'react-datepicker';
 // import 'react-datepicker/dist/react-datepicker.css';
@@ -962,48 +963,7 @@ export const PurchaseTracker: React.FC = () => {
         await updatePurchase(editingPurchase.id, updateData);
 
         // Handle attachments for editing
-        if (purchaseAttachments.length > 0) {
-          for (const att of purchaseAttachments) {
-            // Skip if attachment already exists (has a real ID, not temp_)
-            if (!att.id.startsWith('temp_')) continue;
-            
-            // Checking attachment for upload - removed for production
-            
-            // Checking attachment for upload (exclude flow) - removed for production
-            
-            if (att.file && (att.file_path.startsWith('blob:') || att.id.startsWith('temp_'))) {
-              // Uploading attachment - removed for production
-              const { data: uploadData, error: uploadError } = await supabase.storage
-                .from('attachments')
-                .upload(`purchases/${editingPurchase.id}/${att.file_name}`, att.file, { upsert: true });
-              
-              if (uploadError) {
-
-                continue;
-              }
-              
-              if (!uploadError && uploadData && uploadData.path) {
-                const { publicUrl } = supabase.storage.from('attachments').getPublicUrl(uploadData.path).data;
-                const attachmentData = {
-                  purchase_id: editingPurchase.id,
-                  user_id: user?.id || '',
-                  file_name: att.file_name,
-                  file_path: publicUrl,
-                  file_size: att.file_size,
-                  file_type: att.file_type,
-                  mime_type: att.mime_type,
-                  created_at: new Date().toISOString(),
-                };
-                const { error: insertError } = await supabase.from('purchase_attachments').insert(attachmentData);
-                if (insertError) {
-
-                } else {
-                  // Attachment uploaded successfully - removed for production
-                }
-              }
-            }
-          }
-        }
+        await uploadStagedAttachments(editingPurchase, purchaseAttachments);
 
         // If changing from planned to purchased, create a transaction and link it to the existing purchase
         if (editingPurchase.status === 'planned' && formData.status === 'purchased') {
@@ -1094,40 +1054,8 @@ export const PurchaseTracker: React.FC = () => {
             }
             
             // Upload attachments if any
-            if (newPurchase && purchaseAttachments.length > 0) {
-              for (const att of purchaseAttachments) {
-                if (att.file && (att.file_path.startsWith('blob:') || att.id.startsWith('temp_'))) {
-                  // Uploading attachment - removed for production
-                  const { data: uploadData, error: uploadError } = await supabase.storage
-                    .from('attachments')
-                    .upload(`purchases/${newPurchase.id}/${att.file_name}`, att.file, { upsert: true });
-                  
-                  if (uploadError) {
-
-                    continue;
-                  }
-                  
-                  if (!uploadError && uploadData && uploadData.path) {
-                    const { publicUrl } = supabase.storage.from('attachments').getPublicUrl(uploadData.path).data;
-                    const attachmentData = {
-                      purchase_id: newPurchase.id,
-                      user_id: user?.id || '',
-                      file_name: att.file_name,
-                      file_path: publicUrl,
-                      file_size: att.file_size,
-                      file_type: att.file_type,
-                      mime_type: att.mime_type,
-                      created_at: new Date().toISOString(),
-                    };
-                    const { error: insertError } = await supabase.from('purchase_attachments').insert(attachmentData);
-                    if (insertError) {
-
-                    } else {
-                      // Attachment uploaded successfully - removed for production
-                    }
-                  }
-                }
-              }
+            if (newPurchase) {
+              await uploadStagedAttachments(newPurchase, purchaseAttachments);
             }
             
             await fetchPurchases();
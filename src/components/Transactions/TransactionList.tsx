@@ -1074,6 +1074,31 @@ const TransactionListComponent: React.FC<{
     return () => document.removeEventListener('mousedown', handleClickOutside);
   }, [showSuggestions]);
 
+  // On Android the text search is answered by the native index, off the UI thread.
+  // Null until the first answer arrives (or when unavailable), in which case the JS search runs.
+  const [nativeSearchIds, setNativeSearchIds] = useState<Set<string> | null>(null);
+  useEffect(() => {
+    if (!filters.search || !filters.search.trim()) {
+      setNativeSearchIds(null);
+      return;
+    }
+    let cancelled = false;
+    searchService.searchNative(transactions, filters.search, 'transactions', SEARCH_CONFIGS.transactions, { limit: 5000 })
+      .then(items => {
+        if (!cancelled) {
+          setNativeSearchIds(items ? new Set(items.map(t => t.id)) : null);
+        }
+      })
+      .catch(() => {
+        if (!cancelled) {
+          setNativeSearchIds(null);
+        }
+      });
+    return () => {
+      cancelled = true;
+    };
+  }, [transactions, filters.search]);
+
   // Enhanced filtering with fuzzy search
   const filteredTransactions = useMemo(() => {
     // If a record is selected via deep link, prioritize showing only that record
@@ -1135,7 +1160,9 @@ const TransactionListComponent: React.FC<{
       });
 
     // Apply fuzzy search if search term exists
-    if (filters.search && filters.search.trim()) {
+    if (filters.search && filters.search.trim() && nativeSearchIds) {
+      filtered = filtered.filter(t => nativeSearchIds.has(t.id)).slice(0, 1000);
+    } else if (filters.search && filters.search.trim()) {
       const searchResults = searchService.search(
         filtered,
         filters.search,
@@ -1150,7 +1177,7 @@ const TransactionListComponent: React.FC<{
     
     // Apply sorting
     return sortData(filtered);
-  }, [transactions, filters, sortConfig, accounts, allAccountsForLookup, hasSelection, isFromSearch, selectedRecord]);
+  }, [transactions, filters, sortConfig, accounts, allAccountsForLookup, hasSelection, isFromSearch, selectedRecord, nativeSearchIds]);
 
   // Pagination logic
   const paginationInfo = useMemo(() => {
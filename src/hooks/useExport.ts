@@ -2,6 +2,7 @@ import { useState, useCallback } from 'react';
 import { toast } from 'sonner';
 import { exportTransactions, ExportOptions, ExportResult } from '../utils/exportUtils';
 import { FilterState, SortConfig } from '../types/export';
+import { useAuthStore } from '../store/authStore';
 
 interface UseExportOptions {
   transactions: any[];
@@ -21,6 +22,7 @@ interface UseExportReturn {
 
 export const useExport = (options: UseExportOptions): UseExportReturn => {
   const { transactions, accounts, filters, sortConfig } = options;
+  const userId = useAuthStore(state => state.user?.id);
   
   const [isExporting, setIsExporting] = useState(false);
   const [exportFormat, setExportFormat] = useState<string | null>(null);
@@ -45,6 +47,7 @@ export const useExport = (options: UseExportOptions): UseExportReturn => {
 
     try {
       const exportOptions: ExportOptions = {
+        userId,
         transactions,
         accounts,
         format,
@@ -81,7 +84,7 @@ export const useExport = (options: UseExportOptions): UseExportReturn => {
       setIsExporting(false);
       setExportFormat(null);
     }
-  }, [isExporting, transactions, accounts, filters, sortConfig]);
+  }, [isExporting, userId, transactions, accounts, filters, sortConfig]);
 
   const exportToCSV = useCallback(() => handleExport('csv'), [handleExport]);
   const exportToPDF = useCallback(() => handleExport('pdf'), [handleExport]);
@@ -0,0 +1,53 @@
+import { useEffect, useRef } from 'react';
+import { useLocation, useNavigate } from 'react-router-dom';
+import { favoriteQuotesService } from '../lib/favoriteQuotesService';
+import { nativeMemoryPressure, MemoryPressureEvent } from '../lib/nativeMemoryPressure';
+import { userPreferencesManager } from '../lib/userPreferences';
+
+/**
+ * Reacts to Android memory pressure: saves the current route natively on
+ * every event (so it survives the WebView renderer being killed), drops
+ * reloadable caches from the 'low' tier on, and after the app was restarted
+ * for a dead renderer (or a killed process) reopens the route the user was on.
+ */
+export const useMemoryPressure = () => {
+  const location = useLocation();
+  const navigate = useNavigate();
+  const pathRef = useRef('');
+  pathRef.current = location.pathname + location.search + location.hash;
+
+  useEffect(() => {
+    if (!nativeMemoryPressure.isAvailable()) return;
+
+    nativeMemoryPressure.takeState()
+      .then(({ state, recoveredFrom }) => {
+        if (recoveredFrom && state && state.path !== pathRef.current) {
+          console.warn(`[MemoryPressure] Restoring ${state.path} after ${recoveredFrom}`);
+          navigate(state.path, { replace: true });
+        }
+      })
+      .catch(error => console.warn('[MemoryPressure] Could not restore state', error));
+
+    const saveState = () =>
+      nativeMemoryPressure.saveState({ path: pathRef.current, savedAt: Date.now() })
+        .catch(error => console.warn('[MemoryPressure] Could not save state', error));
+
+    const stopPressure = nativeMemoryPressure.onPressure((event: MemoryPressureEvent) => {
+      saveState();
+      if (event.tier === 'low' || event.tier === 'critical') {
+        favoriteQuotesService.clearCache();
+        userPreferencesManager.clearCache();
+      }
+    });
+    // The renderer can also go while hidden before any trim event arrives
+    const onVisibilityChange = () => {
+      if (document.visibilityState === 'hidden') saveState();
+    };
+    document.addEventListener('visibilitychange', onVisibilityChange);
+
+    return () => {
+      stopPressure();
+      document.removeEventListener('visibilitychange', onVisibilityChange);
+    };
+  }, [navigate]);
+};
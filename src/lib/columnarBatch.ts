@@ -0,0 +1,172 @@
+// Reader for the columnar batches written by ColumnarEncoder.java (the
+// layout is documented there). Opening a batch only walks the column
+// headers: numbers and booleans are typed-array views over the buffer and
+// strings are decoded from UTF-8 the first time a cell is read, so a screen
+// that shows 50 of 50,000 rows only pays for those 50.
+
+const MAGIC = 0x31435a42; // "BZC1"
+const TYPE_FLOAT64 = 1;
+const TYPE_BOOL = 2;
+const TYPE_STRING = 3;
+const TYPE_DICTIONARY = 4;
+const TYPE_JSON = 5;
+const FLAG_HAS_NULLS = 1;
+
+const utf8 = new TextDecoder();
+
+const align = (offset: number, alignment: number) => Math.ceil(offset / alignment) * alignment;
+
+export interface ColumnReader {
+  readonly name: string;
+  get(row: number): unknown;
+}
+
+class Column implements ColumnReader {
+  private readonly presence: Uint8Array | null;
+  private readonly read: (row: number) => unknown;
+
+  constructor(
+    readonly name: string,
+    buffer: ArrayBuffer,
+    type: number,
+    flags: number,
+    start: number,
+    rowCount: number
+  ) {
+    let offset = start;
+    this.presence = null;
+    if (flags & FLAG_HAS_NULLS) {
+      this.presence = new Uint8Array(buffer, offset, (rowCount + 7) >> 3);
+      offset = align(offset + this.presence.length, 8);
+    }
+
+    switch (type) {
+      case TYPE_FLOAT64: {
+        const values = new Float64Array(buffer, offset, rowCount);
+        this.read = row => values[row];
+        break;
+      }
+      case TYPE_BOOL: {
+        const values = new Uint8Array(buffer, offset, rowCount);
+        this.read = row => values[row] === 1;
+        break;
+      }
+      case TYPE_DICTIONARY: {
+        const entryCount = new Uint32Array(buffer, offset, 1)[0];
+        const entries = new StringCells(buffer, offset + 4, entryCount);
+        const indices = new Uint16Array(buffer, align(entries.end, 2), rowCount);
+        this.read = row => entries.get(indices[row]);
+        break;
+      }
+      case TYPE_STRING: {
+        const cells = new StringCells(buffer, offset, rowCount);
+        this.read = row => cells.get(row);
+        break;
+      }
+      case TYPE_JSON: {
+        const cells = new StringCells(buffer, offset, rowCount);
+        this.read = row => JSON.parse(cells.get(row));
+        break;
+      }
+      default:
+        throw new Error(`Unknown column type ${type} for '${name}'`);
+    }
+  }
+
+  get(row: number): unknown {
+    if (this.presence && (this.presence[row >> 3] & (1 << (row & 7))) === 0) {
+      return null;
+    }
+    return this.read(row);
+  }
+}
+
+// u32 offsets[count + 1] followed by the UTF-8 bytes; decoded strings are cached
+class StringCells {
+  private readonly offsets: Uint32Array;
+  private readonly bytes: Uint8Array;
+  private readonly cache: Array<string | undefined>;
+  readonly end: number;
+
+  constructor(buffer: ArrayBuffer, offset: number, count: number) {
+    this.offsets = new Uint32Array(buffer, offset, count + 1);
+    const bytesStart = offset + (count + 1) * 4;
+    this.bytes = new Uint8Array(buffer, bytesStart, this.offsets[count]);
+    this.cache = new Array(count);
+    this.end = bytesStart + this.offsets[count];
+  }
+
+  get(index: number): string {
+    let value = this.cache[index];
+    if (value === undefined) {
+      value = utf8.decode(this.bytes.subarray(this.offsets[index], this.offsets[index + 1]));
+      this.cache[index] = value;
+    }
+    return value;
+  }
+}
+
+export class ColumnarBatch {
+  readonly tag: number;
+  readonly rowCount: number;
+  private readonly columns = new Map<string, Column>();
+
+  constructor(buffer: ArrayBuffer) {
+    const header = new DataView(buffer);
+    if (buffer.byteLength < 16 || header.getUint32(0, true) !== MAGIC) {
+      throw new Error('Not a columnar batch');
+    }
+    this.tag = header.getUint32(4, true);
+    this.rowCount = header.getUint32(8, true);
+    const columnCount = header.getUint32(12, true);
+
+    let offset = 16;
+    for (let i = 0; i < columnCount; i++) {
+      const type = header.getUint8(offset);
+      const flags = header.getUint8(offset + 1);
+      const nameLength = header.getUint16(offset + 2, true);
+      const name = utf8.decode(new Uint8Array(buffer, offset + 4, nameLength));
+      offset = align(offset + 4 + nameLength, 4);
+      const length = header.getUint32(offset, true);
+      const start = align(offset + 4, 8);
+      this.columns.set(name, new Column(name, buffer, type, flags, start, this.rowCount));
+      offset = start + length;
+    }
+  }
+
+  get columnNames(): string[] {
+    return Array.from(this.columns.keys());
+  }
+
+  column(name: string): ColumnReader | undefined {
+    return this.columns.get(name);
+  }
+
+  get(row: number, name: string): unknown {
+    const column = this.columns.get(name);
+    return column ? column.get(row) : undefined;
+  }
+
+  /**
+   * One row as a plain object. Fields that were null or missing come back as null.
+   */
+  row<T = Record<string, unknown>>(row: number): T {
+    const result: Record<string, unknown> = {};
+    this.columns.forEach((column, name) => {
+      result[name] = column.get(row);
+    });
+    return result as T;
+  }
+
+  /**
+   * Every row as plain objects, for code that needs arrays; prefer row()/get()
+   * for large batches
+   */
+  toObjects<T = Record<string, unknown>>(): T[] {
+    const rows = new Array<T>(this.rowCount);
+    for (let i = 0; i < this.rowCount; i++) {
+      rows[i] = this.row<T>(i);
+    }
+    return rows;
+  }
+}
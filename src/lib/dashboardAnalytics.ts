@@ -3,6 +3,8 @@
  * Minimal PII collection with focus on UX insights
  */
 
+import { nativeAnalytics } from './nativeAnalytics';
+
 interface AnalyticsEvent {
   event: string;
   properties: Record<string, any>;
@@ -16,16 +18,27 @@ interface DashboardAnalytics {
   getSessionId: () => string;
 }
 
+const CLIENT_INFO = {
+  dashboard_version: '1.0.0'
+};
+
 class DashboardAnalyticsImpl implements DashboardAnalytics {
   private events: AnalyticsEvent[] = [];
   private sessionId: string;
   private flushTimer: NodeJS.Timeout | null = null;
   private readonly FLUSH_INTERVAL = 30000; // 30 seconds
   private readonly MAX_EVENTS = 50;
+  // On Android events go to the native buffer, which batches, uploads and
+  // keeps them across restarts; nothing is held in this array
+  private readonly useNative = nativeAnalytics.isAvailable();
 
   constructor() {
     this.sessionId = this.generateSessionId();
-    this.startAutoFlush();
+    if (this.useNative) {
+      nativeAnalytics.configure(CLIENT_INFO);
+    } else {
+      this.startAutoFlush();
+    }
   }
 
   private generateSessionId(): string {
@@ -58,6 +71,11 @@ class DashboardAnalyticsImpl implements DashboardAnalytics {
       sessionId: this.sessionId
     };
 
+    if (this.useNative) {
+      nativeAnalytics.track(analyticsEvent);
+      return;
+    }
+
     this.events.push(analyticsEvent);
 
     // Auto-flush if we have too many events
@@ -99,6 +117,10 @@ class DashboardAnalyticsImpl implements DashboardAnalytics {
   }
 
   async flush(): Promise<void> {
+    if (this.useNative) {
+      await nativeAnalytics.flush().catch(() => undefined);
+      return;
+    }
     if (this.events.length === 0) return;
 
     const eventsToSend = [...this.events];
@@ -114,7 +136,7 @@ class DashboardAnalyticsImpl implements DashboardAnalytics {
         body: JSON.stringify({
           events: eventsToSend,
           client_info: {
-            dashboard_version: '1.0.0',
+            ...CLIENT_INFO,
             timestamp: Date.now()
           }
         })
@@ -1,4 +1,5 @@
 import { Capacitor } from '@capacitor/core';
+import { nativeEventBus } from './nativeEventBus';
 
 export interface GoogleSignInResult {
   success: boolean;
@@ -9,14 +10,34 @@ export interface GoogleSignInResult {
   id: string;
 }
 
+// How much of the previous sign-in is reset before the account picker:
+// 'none' tries a silent sign-in with the last account first (fastest),
+// 'select_account' always shows the chooser (default),
+// 'consent' also revokes access so the consent screen shows again (slowest)
+export type GoogleSignInPrompt = 'none' | 'select_account' | 'consent';
+
+export interface GoogleSignInOptions {
+  prompt?: GoogleSignInPrompt;
+}
+
 export interface GoogleSignInPlugin {
-  signIn(): Promise<GoogleSignInResult>;
+  signIn(options?: GoogleSignInOptions): Promise<GoogleSignInResult>;
   signOut(): Promise<{ success: boolean }>;
 }
 
+// MainActivity delivers sign-in results on the native event bus
+if (Capacitor.getPlatform() === 'android') {
+  nativeEventBus.on<{ callbackId: string; result: any }>('googleSignIn', ({ callbackId, result }) => {
+    const callback = (window as any).GoogleSignInCallback;
+    if (typeof callback === 'function') {
+      callback(callbackId, result);
+    }
+  });
+}
+
 // Use the JavaScript interface directly (injected by MainActivity)
 // This is more reliable than waiting for Capacitor plugin registration
-const callNativeSignIn = (): Promise<GoogleSignInResult> => {
+const callNativeSignIn = (prompt: GoogleSignInPrompt): Promise<GoogleSignInResult> => {
   return new Promise((resolve, reject) => {
     const callbackId = 'cb' + Date.now() + '_' + Math.random().toString(36).substr(2, 9);
     
@@ -58,7 +79,11 @@ const callNativeSignIn = (): Promise<GoogleSignInResult> => {
     if (nativeInterface && typeof nativeInterface.signIn === 'function') {
       console.error('[GoogleSignIn] ✅ Calling native interface directly');
       try {
-        nativeInterface.signIn(callbackId);
+        if (typeof nativeInterface.signInWithPrompt === 'function') {
+          nativeInterface.signInWithPrompt(callbackId, prompt);
+        } else {
+          nativeInterface.signIn(callbackId);
+        }
         console.error('[GoogleSignIn] ✅ Native signIn() called successfully');
       } catch (callError: any) {
         console.error('[GoogleSignIn] ❌ Error calling native signIn():', callError);
@@ -124,8 +149,9 @@ export const googleSignIn = {
   /**
    * Sign in with Google using native Android SDK
    * Returns null if not on Android or plugin not available
+   * Pass { prompt: 'none' } to reuse the last account without showing UI when possible
    */
-  async signIn(): Promise<GoogleSignInResult | null> {
+  async signIn(options: GoogleSignInOptions = {}): Promise<GoogleSignInResult | null> {
     if (Capacitor.getPlatform() !== 'android') {
       console.error('[GoogleSignIn] Not on Android platform');
       return null;
@@ -153,7 +179,7 @@ export const googleSignIn = {
     console.error('[GoogleSignIn] - signIn method type:', typeof nativeInterface.signIn);
     
     try {
-      const result = await callNativeSignIn();
+      const result = await callNativeSignIn(options.prompt ?? 'select_account');
       console.error('[GoogleSignIn] ✅ signIn() completed, result:', !!result);
       if (result) {
         console.error('[GoogleSignIn] - Email:', result.email);
@@ -176,9 +202,11 @@ export const googleSignIn = {
       return;
     }
 
-    // Sign out is handled by the native interface if needed
-    // For now, we'll just clear any cached state
-    console.error('[GoogleSignIn] Sign out called');
+    // Clears the signed-in Google account so the next 'none' sign-in goes through the picker
+    const nativeInterface = (window as any).GoogleSignInNative;
+    if (nativeInterface && typeof nativeInterface.signOut === 'function') {
+      nativeInterface.signOut();
+    }
   },
 
   /**
@@ -0,0 +1,224 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+import type { Account, Purchase, Transaction } from '../types';
+import { isLendBorrowTransaction } from '../utils/transactionUtils';
+
+export interface NativeDashboardStats {
+  byCurrency: Array<{ currency: string; balance: number; monthlyIncome: number; monthlyExpenses: number }>;
+  accountsCount: number;
+  transactionsCount: number;
+}
+
+export interface NativePurchaseAnalytics {
+  byCurrency: Array<{
+    currency: string;
+    total_spent: number;
+    monthly_spent: number;
+    planned_count: number;
+    purchased_count: number;
+    cancelled_count: number;
+    top_category?: string;
+    category_breakdown: Array<{ category: string; total_spent: number; item_count: number; percentage: number }>;
+  }>;
+  total_currencies: number;
+}
+
+export interface NativeCategoryTotals {
+  byCurrency: Record<string, Array<{ category: string; total: number; count: number; percentage: number }>>;
+}
+
+interface MonthQuery {
+  year: number;
+  // Zero-based, like Date.getMonth()
+  month: number;
+}
+
+export interface AggregatesPlugin {
+  setAccounts(options: { accounts: Array<{ id: string; currency: string; isActive: boolean; balance: number }> }): Promise<void>;
+  upsertTransactions(options: { rows: any[] }): Promise<{ count: number }>;
+  removeTransactions(options: { ids: string[] }): Promise<{ count: number }>;
+  upsertPurchases(options: { rows: any[] }): Promise<{ count: number }>;
+  removePurchases(options: { ids: string[] }): Promise<{ count: number }>;
+  clear(): Promise<void>;
+  getDashboardStats(options: MonthQuery): Promise<NativeDashboardStats>;
+  getPurchaseAnalytics(options: MonthQuery): Promise<NativePurchaseAnalytics>;
+  getCategoryTotals(options: MonthQuery & { type: 'income' | 'expense' }): Promise<NativeCategoryTotals>;
+}
+
+const Aggregates = registerPlugin<AggregatesPlugin>('Aggregates');
+
+// Rows per bridge call while loading the initial data
+const BATCH_SIZE = 5000;
+
+// The store data a snapshot was computed from; it is only used while these are current
+interface Snapshot {
+  accounts: Account[];
+  transactions: Transaction[];
+  purchases: Purchase[];
+  monthKey: number;
+  dashboard: NativeDashboardStats;
+  purchaseAnalytics: NativePurchaseAnalytics;
+}
+
+interface SyncState {
+  accounts: Account[];
+  transactions: Transaction[];
+  purchases: Purchase[];
+}
+
+// Day number of the local calendar date, which is what the store's
+// getMonth()/getFullYear() comparisons see
+function epochDay(date: string): number {
+  const d = new Date(date);
+  if (isNaN(d.getTime())) return 0;
+  return Math.floor(Date.UTC(d.getFullYear(), d.getMonth(), d.getDate()) / 86400000);
+}
+
+function currentMonth(): MonthQuery {
+  const now = new Date();
+  return { year: now.getFullYear(), month: now.getMonth() };
+}
+
+// Rows already sent, by id, so unchanged objects are skipped on the next sync
+let sentTransactions = new Map<string, Transaction>();
+let sentPurchases = new Map<string, Purchase>();
+let sentAccounts: Account[] | null = null;
+let snapshot: Snapshot | null = null;
+let queue: Promise<void> = Promise.resolve();
+
+async function pushChanges<T extends { id: string }>(
+  items: T[],
+  sent: Map<string, T>,
+  toRow: (item: T) => any,
+  upsert: (rows: any[]) => Promise<unknown>,
+  remove: (ids: string[]) => Promise<unknown>
+): Promise<Map<string, T>> {
+  const next = new Map<string, T>();
+  const changed: any[] = [];
+  for (const item of items) {
+    next.set(item.id, item);
+    // The store replaces objects on every edit, so identity tells what changed
+    if (sent.get(item.id) !== item) {
+      changed.push(toRow(item));
+    }
+  }
+  const removed: string[] = [];
+  for (const id of sent.keys()) {
+    if (!next.has(id)) removed.push(id);
+  }
+  if (removed.length > 0) {
+    await remove(removed);
+  }
+  for (let i = 0; i < changed.length; i += BATCH_SIZE) {
+    await upsert(changed.slice(i, i + BATCH_SIZE));
+  }
+  return next;
+}
+
+export const nativeAggregates = {
+  isAvailable(): boolean {
+    return Capacitor.getPlatform() === 'android' && Capacitor.isPluginAvailable('Aggregates');
+  },
+
+  /**
+   * Send the rows that changed since the last sync, then refresh the
+   * current-month snapshot. Calls are queued, so the native side always
+   * sees changes in order.
+   */
+  sync(state: SyncState): Promise<void> {
+    queue = queue.then(async () => {
+      if (state.accounts !== sentAccounts) {
+        await Aggregates.setAccounts({
+          accounts: state.accounts.map(a => ({
+            id: a.id,
+            currency: a.currency,
+            isActive: a.isActive,
+            balance: a.calculated_balance || 0
+          }))
+        });
+        sentAccounts = state.accounts;
+      }
+      sentTransactions = await pushChanges(
+        state.transactions,
+        sentTransactions,
+        t => ({
+          id: t.id,
+          accountId: t.account_id,
+          category: t.category,
+          epochDay: epochDay(t.date),
+          amount: t.amount,
+          type: t.type,
+          transfer: !!t.tags?.some(tag => tag.includes('transfer') || tag.includes('dps_transfer')),
+          lendBorrow: isLendBorrowTransaction(t)
+        }),
+        rows => Aggregates.upsertTransactions({ rows }),
+        ids => Aggregates.removeTransactions({ ids })
+      );
+      sentPurchases = await pushChanges(
+        state.purchases,
+        sentPurchases,
+        p => ({
+          id: p.id,
+          currency: p.currency || 'USD',
+          category: p.category,
+          epochDay: epochDay(p.purchase_date),
+          price: p.price,
+          status: p.status
+        }),
+        rows => Aggregates.upsertPurchases({ rows }),
+        ids => Aggregates.removePurchases({ ids })
+      );
+
+      const month = currentMonth();
+      const [dashboard, purchaseAnalytics] = await Promise.all([
+        Aggregates.getDashboardStats(month),
+        Aggregates.getPurchaseAnalytics(month)
+      ]);
+      snapshot = {
+        accounts: state.accounts,
+        transactions: state.transactions,
+        purchases: state.purchases,
+        monthKey: month.year * 12 + month.month,
+        dashboard,
+        purchaseAnalytics
+      };
+    }).catch(error => {
+      // Resend everything next time rather than trust a half-applied sync
+      console.warn('[Aggregates] Native sync failed', error);
+      sentTransactions = new Map();
+      sentPurchases = new Map();
+      sentAccounts = null;
+      snapshot = null;
+      return Aggregates.clear().catch(() => undefined);
+    });
+    return queue;
+  },
+
+  /**
+   * Native dashboard stats if they were computed from exactly these arrays
+   * in the current month, otherwise null
+   */
+  dashboardStatsFor(accounts: Account[], transactions: Transaction[]): NativeDashboardStats | null {
+    const { year, month } = currentMonth();
+    if (!snapshot || snapshot.accounts !== accounts || snapshot.transactions !== transactions ||
+        snapshot.monthKey !== year * 12 + month) {
+      return null;
+    }
+    return snapshot.dashboard;
+  },
+
+  /**
+   * Native purchase analytics if they were computed from exactly this array
+   * in the current month, otherwise null
+   */
+  purchaseAnalyticsFor(purchases: Purchase[]): NativePurchaseAnalytics | null {
+    const { year, month } = currentMonth();
+    if (!snapshot || snapshot.purchases !== purchases || snapshot.monthKey !== year * 12 + month) {
+      return null;
+    }
+    return snapshot.purchaseAnalytics;
+  },
+
+  getCategoryTotals(type: 'income' | 'expense', year: number, month: number): Promise<NativeCategoryTotals> {
+    return Aggregates.getCategoryTotals({ year, month, type });
+  }
+};
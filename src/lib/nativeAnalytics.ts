@@ -0,0 +1,74 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+
+export interface AnalyticsFlushResult {
+  sent: number;
+  // Events in batches the collector refused for good (4xx)
+  rejected: number;
+  remaining: number;
+  error?: string;
+}
+
+export interface AnalyticsStatus {
+  pending: number;
+  pendingBytes: number;
+  // Oldest events overwritten because the on-device buffer was full
+  dropped: number;
+  configured: boolean;
+}
+
+export interface AnalyticsPlugin {
+  configure(options: {
+    endpoint: string;
+    headers?: Record<string, string>;
+    clientInfo?: object;
+  }): Promise<{ pending: number }>;
+  // Fire and forget: no promise, no reply over the bridge
+  track(options: { event?: object; events?: object[] }): void;
+  flush(): Promise<AnalyticsFlushResult>;
+  getStatus(): Promise<AnalyticsStatus>;
+  clear(): Promise<void>;
+}
+
+const Analytics = registerPlugin<AnalyticsPlugin>('Analytics');
+
+// Where the web build posts relative '/api/track'
+const DEFAULT_ENDPOINT = import.meta.env.VITE_ANALYTICS_ENDPOINT || 'https://balanze.cash/api/track';
+
+export const nativeAnalytics = {
+  isAvailable(): boolean {
+    return Capacitor.getPlatform() === 'android' && Capacitor.isPluginAvailable('Analytics');
+  },
+
+  /**
+   * Point the native uploader at the collector. Events tracked before this
+   * (or while offline) are kept on the device and sent afterwards.
+   */
+  configure(clientInfo?: object, endpoint: string = DEFAULT_ENDPOINT) {
+    return Analytics.configure({ endpoint, clientInfo })
+      .catch(error => console.warn('[Analytics] Native configure failed', error));
+  },
+
+  /**
+   * Appends the event to the on-device buffer; batching, compression,
+   * upload and retries happen natively, and survive the app being killed
+   */
+  track(event: object) {
+    Analytics.track({ event });
+  },
+
+  trackAll(events: object[]) {
+    if (events.length > 0) Analytics.track({ events });
+  },
+
+  flush(): Promise<AnalyticsFlushResult> {
+    return Analytics.flush();
+  },
+
+  getStatus(): Promise<AnalyticsStatus> {
+    return Analytics.getStatus();
+  },
+
+  clear(): Promise<void> {
+    return Analytics.clear();
+  }
+};
@@ -0,0 +1,123 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+import { nativeEventBus } from './nativeEventBus';
+import { supabase, supabaseAnonKey, supabaseUrl } from './supabase';
+
+export interface NativeAttachmentResult {
+  uploadId: string;
+  // Object path in the bucket; for a resumed upload, the path it was started with
+  path: string;
+  size: number;
+  mimeType: string;
+  originalSize?: number;
+  // True when the image was downscaled or recompressed before upload
+  compressed: boolean;
+  width?: number;
+  height?: number;
+}
+
+export interface NativeAttachmentProgress {
+  uploadId: string;
+  phase: 'preparing' | 'uploading';
+  sent: number;
+  total: number;
+}
+
+export interface AttachmentsPlugin {
+  upload(options: {
+    data?: string;
+    mimeType: string;
+    bucket: string;
+    path: string;
+    accessToken: string;
+    supabaseUrl: string;
+    anonKey: string;
+    uploadId?: string;
+    upsert?: boolean;
+    maxDimension?: number;
+    targetBytes?: number;
+    quality?: number;
+  }): Promise<NativeAttachmentResult>;
+  discard(options: { uploadId: string }): Promise<void>;
+}
+
+const Attachments = registerPlugin<AttachmentsPlugin>('Attachments');
+
+// Native decoding only helps for photos; other types are uploaded as they are
+const DOWNSCALED_TYPES = ['image/jpeg', 'image/png'];
+
+function readAsBase64(file: File): Promise<string> {
+  return new Promise((resolve, reject) => {
+    const reader = new FileReader();
+    reader.onload = () => {
+      const url = reader.result as string;
+      resolve(url.substring(url.indexOf(',') + 1));
+    };
+    reader.onerror = () => reject(reader.error);
+    reader.readAsDataURL(file);
+  });
+}
+
+// Same file for the same purchase maps to the same id, so picking it again
+// after a failed upload resumes instead of starting over
+function uploadIdFor(scope: string, file: File): string {
+  const key = `${scope}|${file.name}|${file.size}|${file.lastModified}`;
+  let hash = 0x811c9dc5;
+  for (let i = 0; i < key.length; i++) {
+    hash = Math.imul(hash ^ key.charCodeAt(i), 0x01000193);
+  }
+  return `att_${(hash >>> 0).toString(36)}_${file.size.toString(36)}`;
+}
+
+export const nativeAttachments = {
+  isAvailable(): boolean {
+    return Capacitor.getPlatform() === 'android' && Capacitor.isPluginAvailable('Attachments');
+  },
+
+  canDownscale(file: File): boolean {
+    return DOWNSCALED_TYPES.includes(file.type);
+  },
+
+  /**
+   * Downscale (photos only) and upload a file to Supabase Storage with
+   * resumable chunks. A failed upload can be retried with the same file and
+   * scope and continues where it stopped.
+   */
+  async upload(
+    bucket: string,
+    path: string,
+    file: File,
+    scope: string,
+    onProgress?: (event: NativeAttachmentProgress) => void
+  ): Promise<NativeAttachmentResult> {
+    const { data: { session } } = await supabase.auth.getSession();
+    if (!session) {
+      throw new Error('Not authenticated');
+    }
+    const uploadId = uploadIdFor(scope, file);
+    const unsubscribe = onProgress
+      ? nativeEventBus.on<NativeAttachmentProgress>('attachmentProgress', event => {
+          if (event.uploadId === uploadId) {
+            onProgress(event);
+          }
+        })
+      : null;
+    try {
+      return await Attachments.upload({
+        data: await readAsBase64(file),
+        mimeType: file.type || 'application/octet-stream',
+        bucket,
+        path,
+        accessToken: session.access_token,
+        supabaseUrl,
+        anonKey: supabaseAnonKey,
+        uploadId
+      });
+    } finally {
+      unsubscribe?.();
+    }
+  },
+
+  discard(scope: string, file: File): Promise<void> {
+    return Attachments.discard({ uploadId: uploadIdFor(scope, file) });
+  }
+};
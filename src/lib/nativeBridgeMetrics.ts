@@ -0,0 +1,57 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+
+export interface BridgeLatencySummary {
+  mean: number;
+  p50: number;
+  p90: number;
+  p99: number;
+  max: number;
+}
+
+export interface BridgeMethodStats {
+  // Plugin or JavaScript interface name, e.g. Ledger or GoogleSignInNative
+  target: string;
+  method: string;
+  calls: number;
+  // Approximate JSON size of the request, in characters
+  payloadBytes: BridgeLatencySummary;
+  // Waiting for the plugin's worker thread
+  queueMs: BridgeLatencySummary;
+  executionMs: BridgeLatencySummary;
+}
+
+export interface BridgeMetricsPlugin {
+  getSnapshot(): Promise<{ methods: BridgeMethodStats[] }>;
+  reset(): Promise<void>;
+  dump(): Promise<void>;
+}
+
+const BridgeMetrics = registerPlugin<BridgeMetricsPlugin>('BridgeMetrics');
+
+export const nativeBridgeMetrics = {
+  isAvailable(): boolean {
+    return Capacitor.getPlatform() === 'android' && Capacitor.isPluginAvailable('BridgeMetrics');
+  },
+
+  /**
+   * Per-method bridge statistics since launch (or the last reset),
+   * slowest p99 execution first
+   */
+  async getSnapshot(): Promise<BridgeMethodStats[]> {
+    if (!this.isAvailable()) return [];
+    return (await BridgeMetrics.getSnapshot()).methods;
+  },
+
+  async reset(): Promise<void> {
+    if (!this.isAvailable()) return;
+    await BridgeMetrics.reset();
+  },
+
+  /**
+   * Write the statistics table to logcat (tag BridgeMetrics)
+   */
+  async dump(): Promise<void> {
+    if (!this.isAvailable()) return;
+    await BridgeMetrics.dump();
+  }
+};
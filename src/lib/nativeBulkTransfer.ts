@@ -0,0 +1,99 @@
+// Receiving end of BulkTransferChannel.java: columnar batches arrive as
+// ArrayBuffers on their own MessagePort, tagged with the transferId the
+// request was made with. The port is handed over after we call
+// BalanzeBulkTransfer.ready(), which only exists when the WebView can post
+// ArrayBuffers.
+import { ColumnarBatch } from './columnarBatch';
+
+const HANDSHAKE_MESSAGE = 'balanze-bulk-transfer';
+// A batch that has not arrived by then is not coming (e.g. the page was reloaded)
+const TRANSFER_TIMEOUT_MS = 60000;
+
+interface PendingTransfer {
+  resolve: (batch: ColumnarBatch) => void;
+  reject: (error: Error) => void;
+  timer: ReturnType<typeof setTimeout>;
+}
+
+const pending = new Map<number, PendingTransfer>();
+let installed = false;
+let connected = false;
+let nextTransferId = 1;
+
+const receive = (buffer: ArrayBuffer) => {
+  let batch: ColumnarBatch;
+  try {
+    batch = new ColumnarBatch(buffer);
+  } catch (error) {
+    console.error('[BulkTransfer] Dropped an unreadable batch:', error);
+    return;
+  }
+  const transfer = pending.get(batch.tag);
+  if (transfer) {
+    pending.delete(batch.tag);
+    clearTimeout(transfer.timer);
+    transfer.resolve(batch);
+  } else {
+    console.warn(`[BulkTransfer] Dropped batch ${batch.tag}, nobody is waiting for it`);
+  }
+};
+
+const install = () => {
+  if (installed) {
+    return;
+  }
+  const native = (window as any).BalanzeBulkTransfer;
+  if (!native || typeof native.ready !== 'function') {
+    return;
+  }
+  installed = true;
+  window.addEventListener('message', (event: MessageEvent) => {
+    const port = event.ports && event.ports[0];
+    if (event.data !== HANDSHAKE_MESSAGE || !port) {
+      return;
+    }
+    port.onmessage = (message: MessageEvent) => {
+      if (message.data instanceof ArrayBuffer) {
+        receive(message.data);
+      }
+    };
+    connected = true;
+  });
+  native.ready();
+};
+
+export const nativeBulkTransfer = {
+  /**
+   * Call early (e.g. at startup) so the port is connected by the first bulk query
+   */
+  install,
+
+  isConnected(): boolean {
+    install();
+    return connected;
+  },
+
+  /**
+   * Reserve a transferId and wait for its batch. Call before making the native
+   * request: the batch can arrive before the plugin call resolves.
+   */
+  expect(): { transferId: number; batch: Promise<ColumnarBatch>; cancel: () => void } {
+    const transferId = nextTransferId;
+    nextTransferId = nextTransferId >= 0x7fffffff ? 1 : nextTransferId + 1;
+    const batch = new Promise<ColumnarBatch>((resolve, reject) => {
+      const timer = setTimeout(() => {
+        pending.delete(transferId);
+        reject(new Error(`Bulk transfer ${transferId} timed out`));
+      }, TRANSFER_TIMEOUT_MS);
+      pending.set(transferId, { resolve, reject, timer });
+    });
+    const cancel = () => {
+      const transfer = pending.get(transferId);
+      if (transfer) {
+        pending.delete(transferId);
+        clearTimeout(transfer.timer);
+      }
+    };
+    return { transferId, batch, cancel };
+  }
+};
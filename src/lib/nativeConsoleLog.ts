@@ -0,0 +1,48 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+
+export interface ConsoleLogExportResult {
+  filename: string;
+  path: string;
+  uri: string;
+  bytes: number;
+}
+
+export interface ConsoleLogStatus {
+  fileLogging: boolean;
+  // 'verbose' in debug builds, 'production' (sampled and rate limited) in release
+  policy: string;
+}
+
+export interface ConsoleLogPlugin {
+  setFileLogging(options: { enabled: boolean }): Promise<{ enabled: boolean }>;
+  getStatus(): Promise<ConsoleLogStatus>;
+  exportLogs(): Promise<ConsoleLogExportResult>;
+}
+
+const ConsoleLog = registerPlugin<ConsoleLogPlugin>('ConsoleLog');
+
+export const nativeConsoleLog = {
+  isAvailable(): boolean {
+    return Capacitor.getPlatform() === 'android' && Capacitor.isPluginAvailable('ConsoleLog');
+  },
+
+  /**
+   * Keep console output in a rotating on-device file (persists across restarts).
+   * Turning it off deletes the stored logs.
+   */
+  setFileLogging(enabled: boolean): Promise<{ enabled: boolean }> {
+    return ConsoleLog.setFileLogging({ enabled });
+  },
+
+  getStatus(): Promise<ConsoleLogStatus> {
+    return ConsoleLog.getStatus();
+  },
+
+  /**
+   * Collect the stored console logs into one file for a bug report.
+   * The returned uri is a content:// uri that can be handed to a share sheet.
+   */
+  exportLogs(): Promise<ConsoleLogExportResult> {
+    return ConsoleLog.exportLogs();
+  }
+};
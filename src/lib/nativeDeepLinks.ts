@@ -0,0 +1,80 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+import type { EmailOtpType } from '@supabase/supabase-js';
+import { nativeEventBus } from './nativeEventBus';
+
+// Auth links (https://balanze.cash/auth/callback, /auth/reset-password) that
+// open the Android app, parsed and checked natively and handed to the page
+// that is already loaded, instead of a location.href navigation that reloads
+// the whole app. The link that started the app is kept natively until the
+// page subscribes.
+
+interface AuthLinkBase {
+  linkId: number;
+  kind: 'callback' | 'reset-password';
+  // The link started the app rather than reaching it while it ran
+  coldStart: boolean;
+}
+
+export type NativeAuthLink = AuthLinkBase & (
+  | { ok: false; reason: string }
+  | {
+      ok: true;
+      flow: 'session';
+      accessToken: string;
+      refreshToken: string;
+      expiresIn?: number;
+      tokenType?: string;
+      type?: EmailOtpType;
+    }
+  | { ok: true; flow: 'code'; code: string }
+  | { ok: true; flow: 'tokenHash'; tokenHash: string; type: EmailOtpType }
+  | { ok: true; flow: 'error'; error: string; errorCode?: string; errorDescription?: string }
+);
+
+export interface DeepLinksPlugin {
+  getPending(): Promise<{ link: NativeAuthLink | null }>;
+  reportAuthenticated(options: { linkId: number; outcome: string; pageMs?: number }): Promise<{ latencyMs: number }>;
+}
+
+const DeepLinks = registerPlugin<DeepLinksPlugin>('DeepLinks');
+
+export const nativeDeepLinks = {
+  isAvailable(): boolean {
+    return Capacitor.getPlatform() === 'android' && Capacitor.isPluginAvailable('DeepLinks');
+  },
+
+  /**
+   * Call handler once for every auth link: the one that started the app, if
+   * any, and each one that arrives until the returned function is called.
+   */
+  subscribe(handler: (link: NativeAuthLink) => void): () => void {
+    const seen = new Set<number>();
+    const deliver = (link: NativeAuthLink) => {
+      if (!seen.has(link.linkId)) {
+        seen.add(link.linkId);
+        handler(link);
+      }
+    };
+    // Listen first: a link that arrives while getPending() is in flight comes as an event
+    const unsubscribe = nativeEventBus.on<NativeAuthLink>('authDeepLink', deliver);
+    DeepLinks.getPending()
+      .then(({ link }) => {
+        if (link) {
+          deliver(link);
+        }
+      })
+      .catch(error => console.error('[DEEPLINK] getPending failed:', error));
+    return unsubscribe;
+  },
+
+  /**
+   * Closes the link's timing (logged natively under DeepLinkRouter). outcome
+   * is 'authenticated' once the session is set, otherwise what went wrong.
+   * Resolves to the milliseconds from the link reaching the app, -1 when it
+   * was already reported.
+   */
+  async reportAuthenticated(linkId: number, outcome: string, pageMs?: number): Promise<number> {
+    const { latencyMs } = await DeepLinks.reportAuthenticated({ linkId, outcome, pageMs });
+    return latencyMs;
+  }
+};
@@ -0,0 +1,71 @@
+// Receiving end of the Android NativeEventBus.
+// Native code batches events per frame and posts them as one JSON array over
+// a MessagePort; the port is handed over after we call BalanzeEventBus.ready().
+
+interface NativeEvent {
+  seq: number;
+  channel: string;
+  data: any;
+}
+
+type Listener = (data: any) => void;
+
+const HANDSHAKE_MESSAGE = 'balanze-event-bus';
+const listeners = new Map<string, Set<Listener>>();
+let installed = false;
+
+const dispatch = (batch: NativeEvent[]) => {
+  for (const event of batch) {
+    const channelListeners = listeners.get(event.channel);
+    if (!channelListeners) {
+      continue;
+    }
+    channelListeners.forEach(listener => {
+      try {
+        listener(event.data);
+      } catch (error) {
+        console.error(`[NativeEventBus] Listener for '${event.channel}' failed:`, error);
+      }
+    });
+  }
+};
+
+const install = () => {
+  if (installed) {
+    return;
+  }
+  const native = (window as any).BalanzeEventBus;
+  if (!native || typeof native.ready !== 'function') {
+    return;
+  }
+  installed = true;
+  window.addEventListener('message', (event: MessageEvent) => {
+    const port = event.ports && event.ports[0];
+    if (event.data !== HANDSHAKE_MESSAGE || !port) {
+      return;
+    }
+    port.onmessage = (message: MessageEvent) => {
+      dispatch(JSON.parse(message.data));
+    };
+  });
+  native.ready();
+};
+
+export const nativeEventBus = {
+  /**
+   * Subscribe to a native channel. Returns a function that unsubscribes.
+   * Does nothing outside the Android app.
+   */
+  on<T = any>(channel: string, listener: (data: T) => void): () => void {
+    install();
+    let channelListeners = listeners.get(channel);
+    if (!channelListeners) {
+      channelListeners = new Set();
+      listeners.set(channel, channelListeners);
+    }
+    channelListeners.add(listener);
+    return () => {
+      channelListeners!.delete(listener);
+    };
+  }
+};
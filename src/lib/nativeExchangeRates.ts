@@ -0,0 +1,45 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+
+interface SnapshotInfo {
+  // Epoch millis of the rate table in use, 0 when there is none yet
+  fetchedAt: number;
+  // True when the table is past its TTL and could not be refreshed
+  stale: boolean;
+}
+
+export interface ExchangeRatesPlugin {
+  getRates(options: { to: string; currencies?: string[] }): Promise<SnapshotInfo & { rates: Record<string, number> }>;
+  convert(options: { amounts: number[]; from: string | string[]; to: string }): Promise<SnapshotInfo & { values: Array<number | null> }>;
+  refresh(): Promise<SnapshotInfo & { currencies: number }>;
+}
+
+const ExchangeRates = registerPlugin<ExchangeRatesPlugin>('ExchangeRates');
+
+export const nativeExchangeRates = {
+  isAvailable(): boolean {
+    return Capacitor.getPlatform() === 'android' && Capacitor.isPluginAvailable('ExchangeRates');
+  },
+
+  /**
+   * Multipliers from each currency into `to`. Currencies without a rate are
+   * left out; the last downloaded table is used while offline.
+   */
+  getRates(to: string, currencies?: string[]): Promise<SnapshotInfo & { rates: Record<string, number> }> {
+    return ExchangeRates.getRates({ to, currencies });
+  },
+
+  /**
+   * Convert a whole column in one call. `from` is one currency per amount,
+   * or a single currency for all of them; values without a rate are null.
+   */
+  convert(amounts: number[], from: string | string[], to: string): Promise<SnapshotInfo & { values: Array<number | null> }> {
+    return ExchangeRates.convert({ amounts, from, to });
+  },
+
+  /**
+   * Download a new table now, ignoring the TTL. Rejects when offline.
+   */
+  refresh(): Promise<SnapshotInfo & { currencies: number }> {
+    return ExchangeRates.refresh();
+  }
+};
@@ -0,0 +1,87 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+import { nativeEventBus } from './nativeEventBus';
+
+export interface NativeExportFilters {
+  type?: 'all' | 'income' | 'expense';
+  account?: string;
+  currency?: string;
+  from?: string;
+  to?: string;
+  search?: string;
+  modifiedSince?: string;
+  // Leave out transfer legs, as the transaction list does
+  excludeTransfers?: boolean;
+}
+
+export interface NativeExportOptions {
+  userId: string;
+  format: 'csv' | 'pdf';
+  exportId?: string;
+  filename?: string;
+  filters?: NativeExportFilters;
+  sort?: { key: string; direction: 'asc' | 'desc' };
+  // Human readable filter descriptions, as produced by generateFilterSummary
+  filterLabels?: string[];
+}
+
+export interface NativeExportResult {
+  exportId: string;
+  filename: string;
+  path: string;
+  uri: string;
+  rowCount: number;
+}
+
+export interface NativeExportProgress {
+  exportId: string;
+  rows: number;
+  done: boolean;
+}
+
+export interface ExportPlugin {
+  exportTransactions(options: NativeExportOptions): Promise<NativeExportResult>;
+  share(options: { uri: string; mimeType: string; title?: string }): Promise<void>;
+}
+
+const Export = registerPlugin<ExportPlugin>('Export');
+
+export const nativeExport = {
+  /**
+   * Native export reads from the local ledger, so it needs both plugins
+   */
+  isAvailable(): boolean {
+    return Capacitor.getPlatform() === 'android'
+      && Capacitor.isPluginAvailable('Export')
+      && Capacitor.isPluginAvailable('Ledger');
+  },
+
+  /**
+   * Stream the user's transactions to a file without loading them into the WebView.
+   * The returned uri is a content:// uri that can be handed to a share sheet.
+   */
+  async exportTransactions(
+    options: NativeExportOptions,
+    onProgress?: (event: NativeExportProgress) => void
+  ): Promise<NativeExportResult> {
+    const exportId = options.exportId ?? `${Date.now()}`;
+    const unsubscribe = onProgress
+      ? nativeEventBus.on<NativeExportProgress>('exportProgress', event => {
+          if (event.exportId === exportId) {
+            onProgress(event);
+          }
+        })
+      : null;
+    try {
+      return await Export.exportTransactions({ ...options, exportId });
+    } finally {
+      unsubscribe?.();
+    }
+  },
+
+  /**
+   * Offer an exported file (a content:// uri from this plugin) through the share sheet
+   */
+  share(uri: string, mimeType: string, title?: string): Promise<void> {
+    return Export.share({ uri, mimeType, title });
+  }
+};
@@ -0,0 +1,46 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+
+export interface HttpCacheStats {
+  // Served from cache without touching the network
+  hits: number;
+  // Stale entry confirmed unchanged by a 304
+  revalidations: number;
+  // Stale entry served because the network request failed
+  staleServed: number;
+  misses: number;
+  networkErrors: number;
+  evictions: number;
+  invalidations: number;
+  memoryEntries: number;
+  memoryBytes: number;
+  diskEntries: number;
+  diskBytes: number;
+}
+
+export interface HttpCachePlugin {
+  getStats(): Promise<HttpCacheStats>;
+  clear(): Promise<void>;
+}
+
+const HttpCache = registerPlugin<HttpCachePlugin>('HttpCache');
+
+export const nativeHttpCache = {
+  isAvailable(): boolean {
+    return Capacitor.getPlatform() === 'android' && Capacitor.isPluginAvailable('HttpCache');
+  },
+
+  /**
+   * Counters for the native cache in front of category lists and exchange rates.
+   * Responses served by it also carry an X-Balanze-Cache header (hit/revalidated/stale/miss).
+   */
+  getStats(): Promise<HttpCacheStats> {
+    return HttpCache.getStats();
+  },
+
+  /**
+   * Drop every cached response, e.g. on sign-out.
+   */
+  clear(): Promise<void> {
+    return HttpCache.clear();
+  }
+};
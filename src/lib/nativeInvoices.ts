@@ -0,0 +1,174 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+import { nativeEventBus } from './nativeEventBus';
+import { nativeExport } from './nativeExport';
+import { getCurrencySymbol } from '../utils/currency';
+import type { Invoice } from '../types/client';
+
+// Invoice PDFs rendered natively, many at once and in the same layout as
+// generateInvoicePDF, instead of one jsPDF document at a time in the
+// WebView. Pages are drawn with the system fonts, so Bengali text and "৳"
+// print as they show on screen. Files are written to app cache; the result
+// has content:// uris that can be handed to a share sheet.
+
+export interface NativeInvoiceCompany {
+  name?: string;
+  // Line breaks start new lines
+  address?: string;
+  email?: string;
+  phone?: string;
+  website?: string;
+}
+
+export interface NativeInvoiceBatchOptions {
+  batchId?: string;
+  company?: NativeInvoiceCompany;
+  // Base64 image or data: URL; decoded once per company, not per invoice
+  logo?: string;
+  // With client and items loaded, as generateInvoicePDF expects
+  invoices: Invoice[];
+}
+
+export interface NativeInvoiceFile {
+  // Position in options.invoices
+  index: number;
+  invoiceId: string;
+  invoiceNumber: string;
+  filename: string;
+  path: string;
+  uri: string;
+  bytes: number;
+  pages: number;
+}
+
+export interface NativeInvoiceFailure {
+  index: number;
+  invoiceId: string | null;
+  invoiceNumber: string | null;
+  error: string;
+}
+
+export interface NativeInvoiceBatchResult {
+  batchId: string;
+  files: NativeInvoiceFile[];
+  failures: NativeInvoiceFailure[];
+}
+
+// One per invoice, in the order they finish
+export interface NativeInvoiceProgress {
+  batchId: string;
+  index: number;
+  invoiceId: string | null;
+  invoiceNumber: string | null;
+  ok: boolean;
+  error?: string;
+  completed: number;
+  total: number;
+  done: boolean;
+}
+
+export interface InvoicesPlugin {
+  renderBatch(options: NativeInvoiceBatchOptions & {
+    today: string;
+    generatedOn: string;
+  }): Promise<NativeInvoiceBatchResult>;
+  clearBatch(options: { batchId: string }): Promise<void>;
+}
+
+const Invoices = registerPlugin<InvoicesPlugin>('Invoices');
+
+// The last shared file is kept until the next share: the receiving app
+// reads it after share() resolves
+let sharedBatchId: string | null = null;
+
+const firstFile = (result: NativeInvoiceBatchResult): NativeInvoiceFile => {
+  const file = result.files[0];
+  if (!file) {
+    throw new Error(result.failures[0]?.error || 'Invoice PDF was not written');
+  }
+  return file;
+};
+
+const isoDate = (date: Date): string => {
+  const pad = (value: number) => String(value).padStart(2, '0');
+  return `${date.getFullYear()}-${pad(date.getMonth() + 1)}-${pad(date.getDate())}`;
+};
+
+export const nativeInvoices = {
+  isAvailable(): boolean {
+    return Capacitor.getPlatform() === 'android' && Capacitor.isPluginAvailable('Invoices');
+  },
+
+  /**
+   * Render one PDF per invoice. Invoices that fail (missing number, no items,
+   * a write error) are listed in failures; the others are still written.
+   */
+  async renderBatch(
+    options: NativeInvoiceBatchOptions,
+    onProgress?: (event: NativeInvoiceProgress) => void
+  ): Promise<NativeInvoiceBatchResult> {
+    const batchId = options.batchId ?? `${Date.now()}`;
+    const unsubscribe = onProgress
+      ? nativeEventBus.on<NativeInvoiceProgress>('invoiceProgress', event => {
+          if (event.batchId === batchId) {
+            onProgress(event);
+          }
+        })
+      : null;
+    const now = new Date();
+    try {
+      return await Invoices.renderBatch({
+        ...options,
+        batchId,
+        // The native side prints the symbol the page shows
+        invoices: options.invoices.map(invoice => ({
+          ...invoice,
+          currency_symbol: getCurrencySymbol(invoice.currency)
+        })),
+        today: isoDate(now),
+        generatedOn: now.toLocaleDateString()
+      });
+    } finally {
+      unsubscribe?.();
+    }
+  },
+
+  /**
+   * Delete a batch's files once they have been shared or saved
+   */
+  clearBatch(batchId: string): Promise<void> {
+    return Invoices.clearBatch({ batchId });
+  },
+
+  /**
+   * One invoice as a PDF Blob, e.g. for an email attachment. Its file is
+   * deleted once read.
+   */
+  async renderBlob(invoice: Invoice, company?: NativeInvoiceCompany): Promise<Blob> {
+    const result = await this.renderBatch({ company, invoices: [invoice] });
+    try {
+      const file = firstFile(result);
+      const response = await fetch(Capacitor.convertFileSrc(file.path));
+      if (!response.ok) {
+        throw new Error(`Reading ${file.filename} failed (${response.status})`);
+      }
+      return await response.blob();
+    } finally {
+      this.clearBatch(result.batchId).catch(error => console.warn('[INVOICE] clearBatch failed:', error));
+    }
+  },
+
+  /**
+   * Render one invoice and offer it through the share sheet (save to
+   * Files, mail, chat apps)
+   */
+  async share(invoice: Invoice, company?: NativeInvoiceCompany): Promise<NativeInvoiceFile> {
+    const result = await this.renderBatch({ company, invoices: [invoice] });
+    const file = firstFile(result);
+    if (sharedBatchId) {
+      this.clearBatch(sharedBatchId).catch(error => console.warn('[INVOICE] clearBatch failed:', error));
+    }
+    sharedBatchId = result.batchId;
+    await nativeExport.share(file.uri, 'application/pdf', file.filename);
+    return file;
+  }
+};
@@ -0,0 +1,281 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+
+// Small persistent values (remembered email, first launch, the auth session)
+// kept in the app's native key-value store instead of localStorage.
+// Plain values are read once, synchronously, when this module loads; after
+// that reads are plain Map lookups and never cross the bridge. Secrets are
+// never in that snapshot: every frame of every origin can call the JS
+// interface it comes from. They arrive once, asynchronously, from the
+// BalanzeSecrets listener, which only the app's own top frame can reach.
+// Writes update the Maps first and are persisted natively in the background,
+// one atomic batch per call.
+
+export type KeyValue = string | number | boolean;
+
+export interface KeyValueChanges {
+  // Applied in this order: clear, remove, set, secrets
+  clear?: boolean;
+  remove?: string[];
+  set?: Record<string, KeyValue>;
+  // Encrypted at rest with a key kept in the Android Keystore
+  secrets?: Record<string, string>;
+}
+
+export interface KeyValueStatus {
+  keys: number;
+  // Bytes of log in use, including overwritten values, and what compaction would leave
+  logBytes: number;
+  liveBytes: number;
+}
+
+export interface KeyValuePlugin {
+  write(changes: KeyValueChanges): Promise<{ keys: number }>;
+  getAll(): Promise<{ values: Record<string, KeyValue> }>;
+  getStatus(): Promise<KeyValueStatus>;
+  compact(): Promise<KeyValueStatus>;
+}
+
+// The synchronous subset of Storage that authStorage and supabase-js use
+export interface SyncStorage {
+  getItem(key: string): string | null;
+  setItem(key: string, value: string): void;
+  removeItem(key: string): void;
+}
+
+// The same for secrets, which are only readable once they have arrived
+export interface AsyncStorage {
+  getItem(key: string): Promise<string | null>;
+  setItem(key: string, value: string): Promise<void>;
+  removeItem(key: string): Promise<void>;
+}
+
+const KeyValue = registerPlugin<KeyValuePlugin>('KeyValue');
+
+// null outside the Android app, or when the native store could not be opened
+const loadSnapshot = (): Map<string, KeyValue> | null => {
+  if (typeof window === 'undefined' || Capacitor.getPlatform() !== 'android') {
+    return null;
+  }
+  const native = (window as any).BalanzeKeyValue;
+  if (!native || typeof native.snapshot !== 'function') {
+    return null;
+  }
+  try {
+    const json: string | null = native.snapshot();
+    return json ? new Map(Object.entries(JSON.parse(json) as Record<string, KeyValue>)) : null;
+  } catch (error) {
+    console.warn('[KeyValue] Could not read the native store, using localStorage', error);
+    return null;
+  }
+};
+
+const snapshot = loadSnapshot();
+
+// Secrets written or removed here while the read is in flight; its (older) answer must not overwrite them
+const secrets = new Map<string, string>();
+const touchedSecrets = new Set<string>();
+let secretsCleared = false;
+let secretsLoad: Promise<void> | null = null;
+
+// Resolves once secrets has what the native store holds (nothing, when the
+// listener is missing or the store failed)
+const loadSecrets = (): Promise<void> => {
+  if (secretsLoad) {
+    return secretsLoad;
+  }
+  secretsLoad = new Promise(resolve => {
+    const listener = (window as any).BalanzeSecrets;
+    if (!snapshot || !listener || typeof listener.postMessage !== 'function') {
+      resolve();
+      return;
+    }
+    listener.onmessage = (event: MessageEvent) => {
+      try {
+        const values = JSON.parse(event.data) as Record<string, string>;
+        if (!secretsCleared) {
+          Object.entries(values)
+            .filter(([key]) => !touchedSecrets.has(key))
+            .forEach(([key, value]) => secrets.set(key, value));
+        }
+      } catch (error) {
+        console.warn('[KeyValue] Could not read secrets', error);
+      }
+      resolve();
+    };
+    listener.postMessage('read');
+  });
+  return secretsLoad;
+};
+
+const apply = (changes: KeyValueChanges) => {
+  if (!snapshot) {
+    return;
+  }
+  if (changes.clear) {
+    snapshot.clear();
+    secrets.clear();
+    secretsCleared = true;
+  }
+  changes.remove?.forEach(key => {
+    snapshot.delete(key);
+    secrets.delete(key);
+    touchedSecrets.add(key);
+  });
+  Object.entries(changes.set ?? {}).forEach(([key, value]) => {
+    snapshot.set(key, value);
+    secrets.delete(key);
+    touchedSecrets.add(key);
+  });
+  Object.entries(changes.secrets ?? {}).forEach(([key, value]) => {
+    snapshot.delete(key);
+    secrets.set(key, value);
+    touchedSecrets.add(key);
+  });
+  KeyValue.write(changes).catch(error => console.warn('[KeyValue] Write failed', error));
+};
+
+const legacyStorage = (): Storage | null => {
+  try {
+    return typeof window !== 'undefined' ? window.localStorage : null;
+  } catch {
+    return null;
+  }
+};
+
+export const nativeKeyValue = {
+  isAvailable(): boolean {
+    return snapshot !== null;
+  },
+
+  has(key: string): boolean {
+    return snapshot?.has(key) ?? false;
+  },
+
+  getString(key: string): string | null {
+    const value = snapshot?.get(key);
+    return typeof value === 'string' ? value : null;
+  },
+
+  getNumber(key: string): number | null {
+    const value = snapshot?.get(key);
+    return typeof value === 'number' ? value : null;
+  },
+
+  getBoolean(key: string): boolean | null {
+    const value = snapshot?.get(key);
+    return typeof value === 'boolean' ? value : null;
+  },
+
+  set(key: string, value: KeyValue) {
+    apply({ set: { [key]: value } });
+  },
+
+  /**
+   * Secrets are not in the startup snapshot; the first read waits for them
+   */
+  async getSecret(key: string): Promise<string | null> {
+    await loadSecrets();
+    return secrets.get(key) ?? null;
+  },
+
+  setSecret(key: string, value: string) {
+    apply({ secrets: { [key]: value } });
+  },
+
+  remove(key: string) {
+    apply({ remove: [key] });
+  },
+
+  /**
+   * Several changes that are persisted together: after a crash either all
+   * of them are there or none is
+   */
+  batch(changes: KeyValueChanges) {
+    apply(changes);
+  },
+
+  clear() {
+    apply({ clear: true });
+  },
+
+  getStatus(): Promise<KeyValueStatus> {
+    return KeyValue.getStatus();
+  },
+
+  compact(): Promise<KeyValueStatus> {
+    return KeyValue.compact();
+  },
+
+  /**
+   * A localStorage-shaped view of the store; plain localStorage outside the
+   * app. A key the native store does not have yet is moved over from
+   * localStorage the first time it is read, so nothing is lost on update.
+   */
+  storage(): SyncStorage {
+    if (!snapshot) {
+      return {
+        getItem: key => legacyStorage()?.getItem(key) ?? null,
+        setItem: (key, value) => legacyStorage()?.setItem(key, value),
+        removeItem: key => legacyStorage()?.removeItem(key)
+      };
+    }
+    return {
+      getItem(key) {
+        if (snapshot.has(key)) {
+          return String(snapshot.get(key));
+        }
+        const legacy = legacyStorage();
+        const value = legacy?.getItem(key) ?? null;
+        if (value !== null) {
+          apply({ set: { [key]: value } });
+          legacy?.removeItem(key);
+        }
+        return value;
+      },
+      setItem(key, value) {
+        apply({ set: { [key]: value } });
+      },
+      removeItem(key) {
+        apply({ remove: [key] });
+        // Or a stale copy would be migrated back on the next read
+        legacyStorage()?.removeItem(key);
+      }
+    };
+  },
+
+  /**
+   * storage() for values encrypted at rest (the auth session). Reads wait
+   * for the secrets to arrive; supabase-js takes async storage as is.
+   */
+  secretStorage(): AsyncStorage {
+    if (!snapshot) {
+      return {
+        getItem: async key => legacyStorage()?.getItem(key) ?? null,
+        setItem: async (key, value) => legacyStorage()?.setItem(key, value),
+        removeItem: async key => legacyStorage()?.removeItem(key)
+      };
+    }
+    return {
+      async getItem(key) {
+        await loadSecrets();
+        if (secrets.has(key)) {
+          return secrets.get(key) ?? null;
+        }
+        const legacy = legacyStorage();
+        const value = legacy?.getItem(key) ?? null;
+        if (value !== null) {
+          apply({ secrets: { [key]: value } });
+          legacy?.removeItem(key);
+        }
+        return value;
+      },
+      async setItem(key, value) {
+        apply({ secrets: { [key]: value } });
+      },
+      async removeItem(key) {
+        apply({ remove: [key] });
+        legacyStorage()?.removeItem(key);
+      }
+    };
+  }
+};
@@ -0,0 +1,262 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+import type { ColumnarBatch } from './columnarBatch';
+import { nativeBulkTransfer } from './nativeBulkTransfer';
+import { nativeEventBus } from './nativeEventBus';
+import { supabase, supabaseAnonKey, supabaseUrl } from './supabase';
+
+export type LedgerTableName =
+  | 'categories'
+  | 'accounts'
+  | 'transactions'
+  | 'purchases'
+  | 'donation_saving_records';
+
+export interface LedgerCursor {
+  date: string | null;
+  id: string;
+}
+
+export interface LedgerQueryOptions {
+  table: LedgerTableName;
+  userId: string;
+  accountId?: string;
+  category?: string;
+  from?: string;
+  to?: string;
+  limit?: number;
+  cursor?: LedgerCursor | null;
+}
+
+export interface LedgerPage<T> {
+  rows: T[];
+  nextCursor: LedgerCursor | null;
+}
+
+export type LedgerBulkQueryOptions = Omit<LedgerQueryOptions, 'limit' | 'cursor'> & {
+  // Only these fields become columns; all fields when omitted
+  fields?: string[];
+};
+
+export interface LedgerTransferBenchmark {
+  rows: number;
+  binary: { ms: number; bytes: number; heapDeltaBytes: number | null };
+  json: { ms: number; heapDeltaBytes: number | null };
+}
+
+export interface LedgerChangeEvent {
+  table: LedgerTableName;
+  ids: string[];
+  highWaterMark: string | null;
+}
+
+export interface LedgerPlugin {
+  upsert(options: { table: LedgerTableName; rows: unknown[] }): Promise<{ count: number }>;
+  remove(options: { table: LedgerTableName; ids: string[] }): Promise<{ count: number }>;
+  query<T = any>(options: LedgerQueryOptions): Promise<LedgerPage<T>>;
+  queryBulk(options: LedgerBulkQueryOptions & { transferId: number }): Promise<{
+    transferId: number;
+    rows: number;
+    bytes: number;
+  }>;
+  count(options: { table: LedgerTableName; userId: string }): Promise<{ count: number }>;
+  clear(options: { userId: string }): Promise<void>;
+  sync(options: {
+    userId: string;
+    accessToken: string;
+    supabaseUrl: string;
+    anonKey: string;
+    tables?: LedgerTableName[];
+  }): Promise<{ merged: Partial<Record<LedgerTableName, number>> }>;
+}
+
+const Ledger = registerPlugin<LedgerPlugin>('Ledger');
+
+const LEDGER_TABLES: LedgerTableName[] = [
+  'categories',
+  'accounts',
+  'transactions',
+  'purchases',
+  'donation_saving_records'
+];
+
+// Syncs already running, by user and tables; a fetch that starts while one
+// is in flight waits for it instead of syncing and pruning a second time
+const syncsInFlight = new Map<string, Promise<{ merged: Partial<Record<LedgerTableName, number>> }>>();
+
+// Delta sync never sees deleted rows. Right after a sync the ledger holds every
+// server row, so it only has more rows than the server when some were deleted
+// there; only then are the ids compared.
+async function dropDeletedRows(table: LedgerTableName, userId: string) {
+  const { count, error } = await supabase
+    .from(table)
+    .select('id', { count: 'exact', head: true })
+    .eq('user_id', userId);
+  if (error) throw error;
+  const { count: localCount } = await Ledger.count({ table, userId });
+  if (count === null || localCount <= count) return;
+
+  const serverIds = new Set<string>();
+  const pageSize = 1000;
+  for (let from = 0; ; from += pageSize) {
+    const { data, error: pageError } = await supabase
+      .from(table)
+      .select('id')
+      .eq('user_id', userId)
+      .order('id')
+      .range(from, from + pageSize - 1);
+    if (pageError) throw pageError;
+    (data || []).forEach(row => serverIds.add(row.id));
+    if (!data || data.length < pageSize) break;
+  }
+  const localRows = await nativeLedger.queryAll<{ id: string }>({ table, userId, fields: ['id'] });
+  const deleted = localRows.map(row => row.id).filter(id => !serverIds.has(id));
+  if (deleted.length > 0) {
+    await Ledger.remove({ table, ids: deleted });
+  }
+}
+
+export const nativeLedger = {
+  /**
+   * The local SQLite ledger only exists in the Android app
+   */
+  isAvailable(): boolean {
+    return Capacitor.getPlatform() === 'android' && Capacitor.isPluginAvailable('Ledger');
+  },
+
+  upsert(table: LedgerTableName, rows: unknown[]) {
+    return Ledger.upsert({ table, rows });
+  },
+
+  remove(table: LedgerTableName, ids: string[]) {
+    return Ledger.remove({ table, ids });
+  },
+
+  /**
+   * Fetch one page, newest first. Pass the returned nextCursor to get the next page.
+   */
+  query<T = any>(options: LedgerQueryOptions): Promise<LedgerPage<T>> {
+    return Ledger.query<T>(options);
+  },
+
+  /**
+   * Every matching row as one columnar batch over the bulk transfer channel,
+   * newest first. Resolves to null when the channel is not available (older
+   * WebView, page not connected yet); use queryAll() to fall back to paging.
+   */
+  async queryColumns(options: LedgerBulkQueryOptions): Promise<ColumnarBatch | null> {
+    if (!nativeBulkTransfer.isConnected()) return null;
+    const transfer = nativeBulkTransfer.expect();
+    try {
+      await Ledger.queryBulk({ ...options, transferId: transfer.transferId });
+    } catch (error) {
+      transfer.cancel();
+      if ((error as { code?: string }).code === 'UNAVAILABLE') return null;
+      throw error;
+    }
+    return transfer.batch;
+  },
+
+  /**
+   * Every matching row as plain objects: decoded from a columnar batch when
+   * possible, otherwise fetched page by page as JSON
+   */
+  async queryAll<T = any>(options: LedgerBulkQueryOptions): Promise<T[]> {
+    const batch = await this.queryColumns(options);
+    if (batch) return batch.toObjects<T>();
+
+    const { fields, ...query } = options;
+    const rows: T[] = [];
+    let cursor: LedgerCursor | null = null;
+    do {
+      const page: LedgerPage<T> = await Ledger.query<T>({ ...query, limit: 1000, cursor });
+      rows.push(...page.rows);
+      cursor = page.nextCursor;
+    } while (cursor);
+    return rows;
+  },
+
+  /**
+   * Times the same rows crossing the bridge both ways, end to end (native
+   * read + encode + transfer + decode of every cell). Heap deltas use the
+   * non-standard performance.memory and are null where it is missing.
+   * Development builds run it once per session after the transaction list
+   * is loaded (useFinanceStore); production code should not call it.
+   */
+  async benchmarkTransfer(table: LedgerTableName, userId: string): Promise<LedgerTransferBenchmark> {
+    const heap = () => (performance as any).memory?.usedJSHeapSize as number | undefined;
+    const delta = (before?: number) => {
+      const after = heap();
+      return before !== undefined && after !== undefined ? after - before : null;
+    };
+
+    let heapBefore = heap();
+    let startedAt = performance.now();
+    const transfer = nativeBulkTransfer.expect();
+    let bytes = 0;
+    try {
+      bytes = (await Ledger.queryBulk({ table, userId, transferId: transfer.transferId })).bytes;
+    } catch (error) {
+      transfer.cancel();
+      throw error;
+    }
+    const batch = await transfer.batch;
+    const names = batch.columnNames;
+    for (let row = 0; row < batch.rowCount; row++) {
+      for (const name of names) batch.get(row, name);
+    }
+    const binary = { ms: performance.now() - startedAt, bytes, heapDeltaBytes: delta(heapBefore) };
+
+    heapBefore = heap();
+    startedAt = performance.now();
+    let cursor: LedgerCursor | null = null;
+    do {
+      const page: LedgerPage<unknown> = await Ledger.query({ table, userId, limit: 1000, cursor });
+      cursor = page.nextCursor;
+    } while (cursor);
+    const json = { ms: performance.now() - startedAt, heapDeltaBytes: delta(heapBefore) };
+
+    return { rows: batch.rowCount, binary, json };
+  },
+
+  count(table: LedgerTableName, userId: string) {
+    return Ledger.count({ table, userId });
+  },
+
+  clear(userId: string) {
+    return Ledger.clear({ userId });
+  },
+
+  /**
+   * Pull only the rows changed since the last sync into the local ledger,
+   * then drop the rows deleted on the server since. Progress arrives as
+   * 'ledgerChange' events carrying the changed ids. Calls made while the
+   * same sync is running share it.
+   */
+  sync(userId: string, tables?: LedgerTableName[]) {
+    const key = `${userId}:${(tables || LEDGER_TABLES).join(',')}`;
+    const running = syncsInFlight.get(key);
+    if (running) return running;
+
+    const run = (async () => {
+      const { data } = await supabase.auth.getSession();
+      const accessToken = data.session?.access_token;
+      if (!accessToken) {
+        throw new Error('Not authenticated');
+      }
+      const result = await Ledger.sync({ userId, accessToken, supabaseUrl, anonKey: supabaseAnonKey, tables });
+      for (const table of tables || LEDGER_TABLES) {
+        await dropDeletedRows(table, userId);
+      }
+      return result;
+    })().finally(() => syncsInFlight.delete(key));
+    syncsInFlight.set(key, run);
+    return run;
+  },
+
+  /**
+   * Returns a function that removes the listener
+   */
+  onChange(listener: (event: LedgerChangeEvent) => void) {
+    return nativeEventBus.on<LedgerChangeEvent>('ledgerChange', listener);
+  }
+};
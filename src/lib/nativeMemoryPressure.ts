@@ -0,0 +1,59 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+import { nativeEventBus } from './nativeEventBus';
+
+export type MemoryPressureTier = 'none' | 'moderate' | 'low' | 'critical';
+
+export interface MemoryPressureEvent {
+  // Android trim level, e.g. 'ui-hidden', 'running-low', 'complete'
+  level: string;
+  tier: MemoryPressureTier;
+  visible: boolean;
+}
+
+export interface SavedPageState {
+  // Route to reopen, e.g. '/transactions?account=…'
+  path: string;
+  savedAt: number;
+  [key: string]: unknown;
+}
+
+export interface MemoryPressurePlugin {
+  saveState(options: { state: SavedPageState }): Promise<void>;
+  takeState(): Promise<{
+    state: SavedPageState | null;
+    recoveredFrom: 'renderer-killed' | 'renderer-crash' | 'activity-restored' | null;
+  }>;
+}
+
+const MemoryPressure = registerPlugin<MemoryPressurePlugin>('MemoryPressure');
+
+export const nativeMemoryPressure = {
+  isAvailable(): boolean {
+    return Capacitor.getPlatform() === 'android' && Capacitor.isPluginAvailable('MemoryPressure');
+  },
+
+  /**
+   * Android is short on memory. Each tier is reported once until the app is
+   * shown again; drop what can be reloaded and save what cannot.
+   * Returns a function that removes the listener.
+   */
+  onPressure(listener: (event: MemoryPressureEvent) => void) {
+    return nativeEventBus.on<MemoryPressureEvent>('memoryPressure', listener);
+  },
+
+  /**
+   * Keep a small state document outside the WebView, so it survives the
+   * renderer being killed. Replaces the previous one.
+   */
+  saveState(state: SavedPageState) {
+    return MemoryPressure.saveState({ state });
+  },
+
+  /**
+   * The saved state, once; recoveredFrom is set when the app was restarted
+   * because the WebView renderer or the whole process was killed
+   */
+  takeState() {
+    return MemoryPressure.takeState();
+  }
+};
@@ -0,0 +1,117 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+import type { AuthChangeEvent, Session } from '@supabase/supabase-js';
+import { nativeEventBus } from './nativeEventBus';
+import { supabaseAnonKey, supabaseUrl } from './supabase';
+
+export type OutboxOp = 'insert' | 'update' | 'delete';
+
+export interface OutboxMutation {
+  seq: number;
+  table: string;
+  op: OutboxOp;
+  keyColumn: string;
+  key: string;
+  values: Record<string, unknown>;
+  enqueuedAt: number;
+}
+
+export interface OutboxAcknowledged {
+  mutations: Array<Pick<OutboxMutation, 'seq' | 'table' | 'op' | 'key'>>;
+  remaining: number;
+}
+
+export interface OutboxConflict extends OutboxMutation {
+  // Why the server refused the write, e.g. a plan limit error
+  message: string;
+}
+
+export interface OutboxFlushResult {
+  acknowledged: number;
+  conflicts: number;
+  remaining: number;
+  // Set when the flush failed and another attempt is scheduled
+  retryAt?: number;
+  error?: string;
+}
+
+export interface OutboxPlugin {
+  configure(options: {
+    userId: string;
+    accessToken: string;
+    supabaseUrl: string;
+    anonKey: string;
+  }): Promise<{ pending: number }>;
+  clear(): Promise<void>;
+  enqueue(options: {
+    table: string;
+    op: OutboxOp;
+    keyColumn: string;
+    key: string;
+    values?: object;
+  }): Promise<{ seq: number; pending: number }>;
+  pending(): Promise<{ mutations: OutboxMutation[] }>;
+  flush(): Promise<OutboxFlushResult>;
+}
+
+const Outbox = registerPlugin<OutboxPlugin>('Outbox');
+
+export const nativeOutbox = {
+  isAvailable(): boolean {
+    return Capacitor.getPlatform() === 'android' && Capacitor.isPluginAvailable('Outbox');
+  },
+
+  /**
+   * True for failures where the request never got an answer, which are the
+   * ones worth queueing instead of reporting
+   */
+  isNetworkError(error: unknown): boolean {
+    if (typeof navigator !== 'undefined' && navigator.onLine === false) return true;
+    const message = String((error as { message?: string } | null)?.message ?? error ?? '');
+    return /Failed to fetch|NetworkError|Network request failed|Load failed|ERR_INTERNET_DISCONNECTED/i.test(message);
+  },
+
+  /**
+   * Hand every new token to the outbox so queued writes can be sent; on
+   * sign-out flushing stops and the writes wait for the next sign-in.
+   */
+  async handleAuthChange(event: AuthChangeEvent, session: Session | null): Promise<void> {
+    if (!this.isAvailable()) return;
+    if (event === 'SIGNED_OUT' || !session) {
+      await Outbox.clear();
+      return;
+    }
+    await Outbox.configure({
+      userId: session.user.id,
+      accessToken: session.access_token,
+      supabaseUrl,
+      anonKey: supabaseAnonKey
+    });
+  },
+
+  /**
+   * Queue a write for when Supabase is reachable again. Rows are addressed
+   * by keyColumn (transaction_id for transactions) so resending is harmless.
+   */
+  enqueue(table: string, op: OutboxOp, keyColumn: string, key: string, values?: object) {
+    return Outbox.enqueue({ table, op, keyColumn, key, values });
+  },
+
+  async pending(): Promise<OutboxMutation[]> {
+    return (await Outbox.pending()).mutations;
+  },
+
+  /**
+   * Send queued writes now, e.g. when the device is back online
+   */
+  flush(): Promise<OutboxFlushResult> {
+    return Outbox.flush();
+  },
+
+  onAcknowledged(listener: (event: OutboxAcknowledged) => void) {
+    return nativeEventBus.on<OutboxAcknowledged>('outboxAcknowledged', listener);
+  },
+
+  onConflict(listener: (event: OutboxConflict) => void) {
+    return nativeEventBus.on<OutboxConflict>('outboxConflict', listener);
+  }
+};
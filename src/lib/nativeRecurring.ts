@@ -0,0 +1,77 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+import type { AuthChangeEvent, Session } from '@supabase/supabase-js';
+import { nativeEventBus } from './nativeEventBus';
+import { supabaseAnonKey, supabaseSessionKey, supabaseUrl } from './supabase';
+
+export interface RecurringRunResult {
+  // False when the native side had no usable session
+  ran: boolean;
+  templates?: number;
+  created?: number;
+  // Due dates that already had an instance (an earlier run was interrupted)
+  alreadyPresent?: number;
+  paused?: number;
+  // Series closed because their next date passed the end date
+  ended?: number;
+  // True when the per-run cap left overdue occurrences for the next run
+  more?: boolean;
+}
+
+export interface RecurringTransactionsPlugin {
+  configure(options: {
+    userId: string;
+    accessToken: string;
+    expiresAt: number;
+    supabaseUrl: string;
+    anonKey: string;
+    // Where supabase-js stores the session, for runs while the app is closed
+    sessionKey: string;
+  }): Promise<void>;
+  clear(): Promise<void>;
+  runNow(): Promise<RecurringRunResult>;
+}
+
+const RecurringTransactions = registerPlugin<RecurringTransactionsPlugin>('RecurringTransactions');
+
+export const nativeRecurring = {
+  isAvailable(): boolean {
+    return Capacitor.getPlatform() === 'android' && Capacitor.isPluginAvailable('RecurringTransactions');
+  },
+
+  /**
+   * Keep the native session current: hand over every new token and forget it
+   * on sign-out, which also stops the background job. Safe to call for every
+   * auth event.
+   */
+  async handleAuthChange(event: AuthChangeEvent, session: Session | null): Promise<void> {
+    if (!this.isAvailable()) return;
+    if (event === 'SIGNED_OUT' || !session) {
+      await RecurringTransactions.clear();
+      return;
+    }
+    if (!session.expires_at) return;
+    await RecurringTransactions.configure({
+      userId: session.user.id,
+      accessToken: session.access_token,
+      expiresAt: session.expires_at,
+      supabaseUrl,
+      anonKey: supabaseAnonKey,
+      sessionKey: supabaseSessionKey
+    });
+  },
+
+  /**
+   * Materialize overdue occurrences now rather than at the next background run
+   */
+  runNow(): Promise<RecurringRunResult> {
+    return RecurringTransactions.runNow();
+  },
+
+  /**
+   * Fires when a run (background or not) created instances while the app is
+   * open. Returns a function that removes the listener.
+   */
+  onMaterialized(listener: (result: RecurringRunResult) => void) {
+    return nativeEventBus.on<RecurringRunResult>('recurringMaterialized', listener);
+  }
+};
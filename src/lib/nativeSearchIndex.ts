@@ -0,0 +1,74 @@
+import { Capacitor, registerPlugin } from '@capacitor/core';
+
+export interface SearchIndexRecord {
+  id: string;
+  // Text per field; amounts can be passed as strings ("1250.50")
+  fields: Record<string, string | null | undefined>;
+  // Epoch millis, newer records win ties
+  timestamp?: number;
+}
+
+export interface SearchIndexHit {
+  type: string;
+  id: string;
+  score: number;
+}
+
+export interface SearchIndexStats {
+  documents: number;
+  terms: number;
+  postings: number;
+  deletedSlots: number;
+}
+
+export interface SearchIndexPlugin {
+  put(options: { type: string; records: SearchIndexRecord[]; weights?: Record<string, number> }): Promise<{ count: number }>;
+  remove(options: { type: string; ids: string[] }): Promise<{ count: number }>;
+  clear(options?: { type?: string }): Promise<void>;
+  setSynonyms(options: { synonyms: Record<string, string[]> }): Promise<void>;
+  search(options: { query: string; types?: string[]; limit?: number }): Promise<{ hits: SearchIndexHit[]; tookMs: number }>;
+  getStats(): Promise<SearchIndexStats>;
+}
+
+const SearchIndex = registerPlugin<SearchIndexPlugin>('SearchIndex');
+
+export const nativeSearchIndex = {
+  isAvailable(): boolean {
+    return Capacitor.getPlatform() === 'android' && Capacitor.isPluginAvailable('SearchIndex');
+  },
+
+  /**
+   * Insert or replace records of one type. weights (field -> weight) only
+   * needs to be sent once per type.
+   */
+  put(type: string, records: SearchIndexRecord[], weights?: Record<string, number>): Promise<{ count: number }> {
+    return SearchIndex.put({ type, records, weights });
+  },
+
+  remove(type: string, ids: string[]): Promise<{ count: number }> {
+    return SearchIndex.remove({ type, ids });
+  },
+
+  /**
+   * Drop one type, or the whole index when no type is given.
+   */
+  clear(type?: string): Promise<void> {
+    return SearchIndex.clear({ type });
+  },
+
+  setSynonyms(synonyms: Record<string, string[]>): Promise<void> {
+    return SearchIndex.setSynonyms({ synonyms });
+  },
+
+  /**
+   * Top matches across the indexed types; every word of the query has to
+   * match, as a whole word, a prefix or with a small typo.
+   */
+  search(query: string, types?: string[], limit?: number): Promise<{ hits: SearchIndexHit[]; tookMs: number }> {
+    return SearchIndex.search({ query, types, limit });
+  },
+
+  getStats(): Promise<SearchIndexStats> {
+    return SearchIndex.getStats();
+  }
+};
@@ -166,14 +166,15 @@ export const Auth: React.FC = () => {
     previousTabRef.current = activeTab;
     
     if ((isInitialMount || isSwitchingToLogin) && activeTab === 'login' && !emailLoadedRef.current) {
-      const savedEmail = getRememberedEmail();
-      // Only load if email field is empty (use ref to get current value without adding to deps)
-      if (savedEmail && !emailRefForLoading.current.trim()) {
-        setEmail(savedEmail);
-        // Also set rememberMe to true if email was saved
-        setRememberMe(true);
-        emailLoadedRef.current = true;
-      }
+      getRememberedEmail().then(savedEmail => {
+        // Only load if email field is empty (use ref to get current value without adding to deps)
+        if (savedEmail && !emailRefForLoading.current.trim()) {
+          setEmail(savedEmail);
+          // Also set rememberMe to true if email was saved
+          setRememberMe(true);
+          emailLoadedRef.current = true;
+        }
+      });
     }
     // Reset the ref when switching away from login tab
     if (activeTab !== 'login') {
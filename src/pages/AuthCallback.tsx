@@ -2,6 +2,7 @@ import React, { useEffect, useState } from 'react';
 import { useNavigate } from 'react-router-dom';
 import { supabase } from '../lib/supabase';
 import { useAuthStore } from '../store/authStore';
+import { rejectDuplicateAccount } from '../utils/duplicateAccount';
 
 const AuthCallback: React.FC = () => {
   const navigate = useNavigate();
@@ -136,52 +137,10 @@ const AuthCallback: React.FC = () => {
           const user = data.session.user;
           
           // CRITICAL: Check for duplicate emails before allowing OAuth login
-          try {
-            const { data: emailCheck, error: emailCheckError } = await supabase.rpc('check_email_exists', {
-              email_to_check: user.email || ''
-            });
-            
-            if (emailCheckError) {
-
-              setError('Authentication verification failed. Please try again.');
-              // Sign out the OAuth user
-              await supabase.auth.signOut();
-              setTimeout(() => navigate('/auth'), 3000);
-              return;
-            }
-            
-            // If email exists, check if it's a different user
-            if (emailCheck === true) {
-              // Get the existing user with this email
-              const { data: existingUsers, error: fetchError } = await supabase
-                .rpc('get_user_by_email', { email_to_check: user.email || '' });
-              
-              if (fetchError) {
-
-                setError('Authentication verification failed. Please try again.');
-                await supabase.auth.signOut();
-                setTimeout(() => navigate('/auth'), 3000);
-                return;
-              }
-              
-              // If the existing user has a different ID, this is a duplicate
-              if (existingUsers && existingUsers !== user.id) {
-
-                setError('This email is already registered with a different account. Please sign in using your original login method (email/password).');
-                
-                // Sign out the OAuth user
-                await supabase.auth.signOut();
-                setTimeout(() => navigate('/auth'), 5000);
-                return;
-              }
-            }
-            
-            // OAuth email check passed, proceeding with login
-          } catch (emailVerificationError) {
-
-            setError('Authentication verification failed. Please try again.');
-            await supabase.auth.signOut();
-            setTimeout(() => navigate('/auth'), 3000);
+          const rejection = await rejectDuplicateAccount(user);
+          if (rejection) {
+            setError(rejection.message);
+            setTimeout(() => navigate('/auth'), rejection.duplicate ? 5000 : 3000);
             return;
           }
           
@@ -8,6 +8,7 @@ import { saveRememberedEmail, clearRememberedEmail, saveRememberMePreference } f
 import { Browser } from '@capacitor/browser';
 import { Capacitor } from '@capacitor/core';
 import { googleSignIn } from '../lib/googleSignIn';
+import { nativeLedger } from '../lib/nativeLedger';
 
 export type AppUser = {
     id: string;
@@ -238,6 +239,9 @@ export const useAuthStore = create<AuthStore>()((set, get) => ({
       if (user?.id) {
         userPreferencesManager.clearCache(user.id);
         favoriteQuotesService.clearCache(user.id);
+        if (nativeLedger.isAvailable()) {
+          nativeLedger.clear(user.id).catch(error => console.warn('[LEDGER] Clearing on sign-out failed:', error));
+        }
       }
       await supabase.auth.signOut();
       set({ user: null, profile: null });
@@ -247,6 +251,9 @@ export const useAuthStore = create<AuthStore>()((set, get) => ({
       if (user?.id) {
         userPreferencesManager.clearCache(user.id);
         favoriteQuotesService.clearCache(user.id);
+        if (nativeLedger.isAvailable()) {
+          nativeLedger.clear(user.id).catch(error => console.warn('[LEDGER] Clearing on sign-out failed:', error));
+        }
       }
       await supabase.auth.signOut();
       set({ user: null, profile: null });
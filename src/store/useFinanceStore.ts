@@ -30,10 +30,88 @@ import { generateTransactionId } from '../utils/transactionId';
 import { useAchievementStore } from './achievementStore';
 import { userActivityService } from '../lib/userActivityService';
 import { isLendBorrowTransaction } from '../utils/transactionUtils';
+import { nativeAggregates } from '../lib/nativeAggregates';
+import { nativeAttachments } from '../lib/nativeAttachments';
+import { nativeOutbox, OutboxMutation } from '../lib/nativeOutbox';
+import { nativeLedger } from '../lib/nativeLedger';
 
 // Extend the Account type to make calculated_balance optional for input
 type AccountInput = Omit<Account, 'calculated_balance'>;
 
+// Android keeps transactions and purchases in the native SQLite ledger: each
+// fetch pulls only the rows changed since the last one (the sync also drops
+// rows deleted on the server) and reads the list back from the ledger. Without
+// a limit every row is read, as one columnar batch where the bulk channel is
+// connected. A failed sync (offline) still serves what the ledger holds.
+// Resolves to null when the ledger is unavailable or cannot be read, so the
+// caller queries Supabase as before.
+async function readThroughLedger<T>(table: 'transactions' | 'purchases', userId: string, limit?: number): Promise<T[] | null> {
+  if (!nativeLedger.isAvailable()) return null;
+  try {
+    await nativeLedger.sync(userId, [table]);
+  } catch (error) {
+    console.warn(`[LEDGER] Sync of ${table} failed, reading the local ledger:`, error);
+  }
+  try {
+    if (limit === undefined) {
+      const rows = await nativeLedger.queryAll<T>({ table, userId });
+      benchmarkLedgerTransferOnce(table, userId);
+      return rows;
+    }
+    const { rows } = await nativeLedger.query<T>({ table, userId, limit });
+    return rows;
+  } catch (error) {
+    console.warn(`[LEDGER] Reading ${table} from Supabase instead:`, error);
+    return null;
+  }
+}
+
+// Writes still waiting in the native outbox are neither on the server nor in
+// the ledger; lay them over the fetched rows, in the order they were made, so
+// offline changes survive a refresh. Rows are matched on the mutation's key
+// column, as the outbox addresses them.
+async function withPendingWrites<T extends object>(table: 'transactions' | 'purchases', rows: T[], dateField: string): Promise<T[]> {
+  if (!nativeOutbox.isAvailable()) return rows;
+  let mutations: OutboxMutation[];
+  try {
+    mutations = (await nativeOutbox.pending()).filter(mutation => mutation.table === table);
+  } catch (error) {
+    console.warn(`[OUTBOX] Could not read queued ${table} writes:`, error);
+    return rows;
+  }
+  if (mutations.length === 0) return rows;
+
+  let merged = rows;
+  let inserted = false;
+  for (const mutation of mutations) {
+    const matches = (row: T) => String((row as Record<string, unknown>)[mutation.keyColumn]) === mutation.key;
+    if (mutation.op === 'delete') {
+      merged = merged.filter(row => !matches(row));
+    } else if (merged.some(matches)) {
+      merged = merged.map(row => (matches(row) ? { ...row, ...mutation.values } : row));
+    } else if (mutation.op === 'insert') {
+      merged = [...merged, { ...mutation.values, [mutation.keyColumn]: mutation.key } as T];
+      inserted = true;
+    }
+  }
+  if (inserted) {
+    const dateOf = (row: T) => String((row as Record<string, unknown>)[dateField] ?? '');
+    merged = [...merged].sort((a, b) => dateOf(b).localeCompare(dateOf(a)));
+  }
+  return merged;
+}
+
+// Development builds time the columnar transfer against JSON paging once per
+// session, on the same rows the list was just read from
+let ledgerTransferBenchmarked = false;
+function benchmarkLedgerTransferOnce(table: 'transactions' | 'purchases', userId: string) {
+  if (!import.meta.env.DEV || ledgerTransferBenchmarked) return;
+  ledgerTransferBenchmarked = true;
+  nativeLedger.benchmarkTransfer(table, userId)
+    .then(result => console.info(`[LEDGER] ${table} transfer of ${result.rows} rows:`, result))
+    .catch(error => console.warn('[LEDGER] Transfer benchmark failed:', error));
+}
+
 interface FinanceStore {
   accounts: Account[];
   transactions: Transaction[];
@@ -46,6 +124,8 @@ interface FinanceStore {
   loading: boolean;
   error: string | null;
   globalSearchTerm: string;
+  // Bumped when a new native aggregate snapshot is ready, so stats consumers re-render
+  aggregatesVersion: number;
   showTransactionForm: boolean;
   showAccountForm: boolean;
   showTransferModal: boolean;
@@ -113,7 +193,8 @@ interface FinanceStore {
   bulkUpdatePurchases: (ids: string[], updates: Partial<Purchase>) => Promise<void>;
   
   // Purchase Attachments
-  uploadPurchaseAttachment: (purchaseId: string, file: File) => Promise<void>;
+  // onProgress gets 0-100 while the file uploads
+  uploadPurchaseAttachment: (purchaseId: string, file: File, purchase?: any, onProgress?: (percent: number) => void) => Promise<void>;
   fetchPurchaseAttachments: (purchaseId: string) => Promise<PurchaseAttachment[]>;
   deletePurchaseAttachment: (attachmentId: string) => Promise<void>;
   
@@ -255,6 +336,7 @@ export const useFinanceStore = create<FinanceStore>((set, get) => ({
   loading: false,
   error: null,
   globalSearchTerm: '',
+  aggregatesVersion: 0,
   showTransactionForm: false,
   showAccountForm: false,
   showTransferModal: false,
@@ -784,6 +866,12 @@ export const useFinanceStore = create<FinanceStore>((set, get) => ({
     }
 
     try {
+      // Read locally, so the 1000-row cap of the network query below does not apply
+      const ledgerRows = await readThroughLedger<Transaction>('transactions', user.id);
+      if (ledgerRows) {
+        return set({ transactions: await withPendingWrites('transactions', ledgerRows, 'date'), loading: false });
+      }
+
       // Optimized query with limit and specific date range for better performance
       const { data, error } = await supabase
         .from('transactions')
@@ -796,7 +884,7 @@ export const useFinanceStore = create<FinanceStore>((set, get) => ({
         return set({ loading: false, error: error.message });
       }
 
-      set({ transactions: data || [], loading: false });
+      set({ transactions: await withPendingWrites('transactions', data || [], 'date'), loading: false });
     } catch (error: any) {
       set({ loading: false, error: error.message });
     }
@@ -817,6 +905,23 @@ export const useFinanceStore = create<FinanceStore>((set, get) => ({
       
       const { transaction_id, ...transactionData } = transaction;
       const finalTransactionId = transaction_id || generateTransactionId();
+
+      // An expense in a purchase category with purchase details also gets a purchase record
+      const isPurchaseCategory = get().purchaseCategories.some(cat => cat.category_name === transactionData.category);
+      const purchaseData = transactionData.type === 'expense' && purchaseDetails && isPurchaseCategory
+        ? {
+            transaction_id: finalTransactionId, // Use the FF format transaction ID
+            item_name: transactionData.description || 'Purchase',
+            category: transactionData.category,
+            price: transactionData.amount,
+            purchase_date: transactionData.date,
+            status: 'purchased' as const,
+            priority: purchaseDetails.priority || 'medium',
+            notes: purchaseDetails.notes || '',
+            user_id: user.id,
+            currency: get().accounts.find(a => a.id === transactionData.account_id)?.currency || 'USD'
+          }
+        : null;
       
       // Creating transaction with generated ID
       
@@ -826,6 +931,39 @@ export const useFinanceStore = create<FinanceStore>((set, get) => ({
         user_id: user.id,
       }).select('id,transaction_id').single();
       
+      if (error && nativeOutbox.isAvailable() && nativeOutbox.isNetworkError(error)) {
+        // Offline: queue the row natively and show it right away. The id is
+        // generated here so later edits can reach the row before it is sent.
+        const id = crypto.randomUUID();
+        const row = {
+          ...transactionData,
+          id,
+          transaction_id: finalTransactionId,
+          user_id: user.id,
+          created_at: getLocalISOString()
+        };
+        await nativeOutbox.enqueue('transactions', 'insert', 'transaction_id', finalTransactionId, row);
+        // The purchase is queued behind its transaction and addressed the same way,
+        // so a later offline edit or delete of the transaction reaches it too
+        const purchase = purchaseData
+          ? { ...purchaseData, id: crypto.randomUUID(), created_at: row.created_at, updated_at: row.created_at }
+          : null;
+        if (purchase) {
+          await nativeOutbox.enqueue('purchases', 'insert', 'transaction_id', finalTransactionId, purchase);
+        }
+        set(state => ({
+          transactions: [row as Transaction, ...state.transactions],
+          purchases: purchase ? [purchase as Purchase, ...state.purchases] : state.purchases,
+          loading: false
+        }));
+        if (purchase && purchaseDetails?.attachments.length) {
+          showToast.info('Saved offline. Attachments need a connection; add them again once it has synced.');
+        } else {
+          showToast.info('Saved offline. It will sync when you are back online.');
+        }
+        return { id, transaction_id: finalTransactionId };
+      }
+
       if (error) {
         set({ loading: false, error: error.message });
         // Re-throw plan limit errors so UI can handle toast + redirect
@@ -839,29 +977,9 @@ export const useFinanceStore = create<FinanceStore>((set, get) => ({
       }
     
     // If this is an expense transaction with purchase details, create a purchase record
-    if (transactionData.type === 'expense' && data?.id && purchaseDetails) {
-      const purchaseCategories = get().purchaseCategories;
-      // Checking if transaction category matches purchase categories
-      const isPurchaseCategory = purchaseCategories.some(cat => cat.category_name === transactionData.category);
-      
-      if (isPurchaseCategory) {
+    if (data?.id && purchaseDetails) {
+      if (purchaseData) {
         // Creating purchase record for transaction
-        const account = get().accounts.find(a => a.id === transactionData.account_id);
-        const purchaseData = {
-          transaction_id: finalTransactionId, // Use the FF format transaction ID
-          item_name: transactionData.description || 'Purchase',
-          category: transactionData.category,
-          price: transactionData.amount,
-          purchase_date: transactionData.date,
-          status: 'purchased' as const,
-          priority: purchaseDetails?.priority || 'medium',
-          notes: purchaseDetails?.notes || '',
-          user_id: user.id,
-          currency: account?.currency || 'USD'
-        };
-        
-        // Purchase data prepared for insertion
-        
         const { data: purchaseResult, error: purchaseError } = await supabase.from('purchases').insert(purchaseData).select('id').single();
         if (purchaseError) {
           console.error('Error creating purchase record:', purchaseError);
@@ -995,6 +1113,40 @@ export const useFinanceStore = create<FinanceStore>((set, get) => ({
           .single()
       ]);
       
+      if (
+        updateResult.error &&
+        originalTransaction.transaction_id &&
+        nativeOutbox.isAvailable() &&
+        nativeOutbox.isNetworkError(updateResult.error)
+      ) {
+        // Offline: keep the edit and let the native outbox send it later
+        const linkedTransactionId = originalTransaction.transaction_id;
+        await nativeOutbox.enqueue('transactions', 'update', 'transaction_id', linkedTransactionId, transaction);
+
+        // The linked purchase follows, as it would online; only changed fields are sent
+        const purchaseChanges: Partial<Purchase> = {};
+        if (transaction.description !== undefined) purchaseChanges.item_name = transaction.description || 'Purchase';
+        if (transaction.amount !== undefined) purchaseChanges.price = transaction.amount;
+        if (transaction.category !== undefined) purchaseChanges.category = transaction.category;
+        if (purchaseDetails) {
+          purchaseChanges.priority = purchaseDetails.priority;
+          purchaseChanges.notes = purchaseDetails.notes;
+        }
+        const hasLinkedPurchase = get().purchases.some(p => p.transaction_id === linkedTransactionId);
+        if (hasLinkedPurchase && Object.keys(purchaseChanges).length > 0) {
+          await nativeOutbox.enqueue('purchases', 'update', 'transaction_id', linkedTransactionId, purchaseChanges);
+        }
+
+        set(state => ({
+          transactions: state.transactions.map(t => (t.id === id ? { ...t, ...transaction } : t)),
+          purchases: hasLinkedPurchase
+            ? state.purchases.map(p => (p.transaction_id === linkedTransactionId ? { ...p, ...purchaseChanges } : p))
+            : state.purchases,
+          error: null
+        }));
+        return;
+      }
+
       if (currentTransactionResult.error || updateResult.error) {
         // ROLLBACK: Revert to original state if database update fails
         set({ 
@@ -1151,6 +1303,14 @@ export const useFinanceStore = create<FinanceStore>((set, get) => ({
     }
     
     const { error } = await supabase.from('transactions').delete().eq('id', id);
+    const queuedTransactionId = get().transactions.find(t => t.id === id)?.transaction_id;
+    if (error && queuedTransactionId && nativeOutbox.isAvailable() && nativeOutbox.isNetworkError(error)) {
+      // Offline: queue the delete (linked purchases first) and drop the row now
+      await nativeOutbox.enqueue('purchases', 'delete', 'transaction_id', String(queuedTransactionId));
+      await nativeOutbox.enqueue('transactions', 'delete', 'transaction_id', queuedTransactionId);
+      set(state => ({ transactions: state.transactions.filter(t => t.id !== id), loading: false }));
+      return;
+    }
     if (error) return set({ loading: false, error: error.message });
     
     // Refresh both transactions and accounts to get updated balances
@@ -1610,6 +1770,14 @@ export const useFinanceStore = create<FinanceStore>((set, get) => ({
   
   getDashboardStats: () => {
     const { accounts, transactions } = get();
+    const native = nativeAggregates.dashboardStatsFor(accounts, transactions);
+    if (native) {
+      return {
+        byCurrency: native.byCurrency as any[],
+        accountsCount: native.accountsCount,
+        transactionsCount: native.transactionsCount
+      };
+    }
     const activeAccounts = accounts.filter(a => a.isActive);
     const activeAccountIds = activeAccounts.map(a => a.id);
     const activeTransactions = transactions.filter(t => activeAccountIds.includes(t.account_id));
@@ -2097,6 +2265,11 @@ export const useFinanceStore = create<FinanceStore>((set, get) => ({
     }
 
     try {
+      const ledgerRows = await readThroughLedger<Purchase>('purchases', user.id, 500);
+      if (ledgerRows) {
+        return set({ purchases: await withPendingWrites('purchases', ledgerRows, 'purchase_date'), loading: false });
+      }
+
       // Optimized query with limit for better performance
       const { data, error } = await supabase
         .from('purchases')
@@ -2111,7 +2284,7 @@ export const useFinanceStore = create<FinanceStore>((set, get) => ({
         return set({ loading: false, error: errorMessage });
       }
 
-      set({ purchases: data || [], loading: false });
+      set({ purchases: await withPendingWrites('purchases', data || [], 'purchase_date'), loading: false });
     } catch (error: any) {
       console.error('Error fetching purchases:', error);
       set({ loading: false, error: error.message || 'An unknown error occurred.' });
@@ -2132,6 +2305,17 @@ export const useFinanceStore = create<FinanceStore>((set, get) => ({
         user_id: user.id,
       });
 
+      if (error && nativeOutbox.isAvailable() && nativeOutbox.isNetworkError(error)) {
+        // Offline: queue it natively and show it right away. A planned purchase
+        // has no transaction_id, so it is addressed by an id generated here.
+        const now = getLocalISOString();
+        const row = { ...purchase, id: crypto.randomUUID(), user_id: user.id, created_at: now, updated_at: now };
+        await nativeOutbox.enqueue('purchases', 'insert', 'id', row.id, row);
+        set(state => ({ purchases: [row as Purchase, ...state.purchases], loading: false }));
+        showToast.info('Saved offline. It will sync when you are back online.');
+        return;
+      }
+
       if (error) {
         console.log('❌ Database error:', error);
         // Re-throw plan-related errors so they can be handled by the UI
@@ -2510,6 +2694,10 @@ export const useFinanceStore = create<FinanceStore>((set, get) => ({
 
   getMultiCurrencyPurchaseAnalytics: () => {
     const { purchases } = get();
+    const native = nativeAggregates.purchaseAnalyticsFor(purchases);
+    if (native) {
+      return native as MultiCurrencyPurchaseAnalytics;
+    }
     const now = new Date();
     const currentMonth = now.getMonth();
     const currentYear = now.getFullYear();
@@ -2683,16 +2871,18 @@ export const useFinanceStore = create<FinanceStore>((set, get) => ({
   },
 
   // Purchase Attachments
-  uploadPurchaseAttachment: async (purchaseId: string, file: File, purchase?: any) => {
+  uploadPurchaseAttachment: async (purchaseId: string, file: File, purchase?: any, onProgress?: (percent: number) => void) => {
     set({ loading: true, error: null });
     
     const { user } = useAuthStore.getState();
     if (!user) return set({ loading: false, error: 'Not authenticated' });
     
     try {
-      // Validate file size (5MB max)
-      if (file.size > 5 * 1024 * 1024) {
-        throw new Error('File size must be less than 5MB');
+      // Photos are downscaled natively before upload, so larger originals are fine there
+      const nativeUpload = nativeAttachments.isAvailable();
+      const maxSize = nativeUpload && nativeAttachments.canDownscale(file) ? 20 : 5;
+      if (file.size > maxSize * 1024 * 1024) {
+        throw new Error(`File size must be less than ${maxSize}MB`);
       }
       
       // Validate file type
@@ -2718,11 +2908,23 @@ export const useFinanceStore = create<FinanceStore>((set, get) => ({
       }
       
       // Upload file to Supabase Storage
-      const { data: uploadData, error: uploadError } = await supabase.storage
-        .from('attachments')
-        .upload(storagePath, file);
-        
-      if (uploadError) throw uploadError;
+      let fileSize = file.size;
+      let mimeType = file.type;
+      if (nativeUpload) {
+        // Resumable: retrying the same file continues the earlier upload
+        const uploaded = await nativeAttachments.upload('attachments', storagePath, file, purchaseId,
+          onProgress && (event => onProgress(event.phase === 'uploading' && event.total > 0 ? (event.sent / event.total) * 100 : 0)));
+        storagePath = uploaded.path;
+        fileSize = uploaded.size;
+        mimeType = uploaded.mimeType;
+      } else {
+        const { error: uploadError } = await supabase.storage
+          .from('attachments')
+          .upload(storagePath, file);
+
+        if (uploadError) throw uploadError;
+        onProgress?.(100);
+      }
       
       // Get public URL
       const { data: urlData } = supabase.storage
@@ -2744,9 +2946,9 @@ export const useFinanceStore = create<FinanceStore>((set, get) => ({
         user_id: user.id,
         file_name: file.name,
         file_path: shortUrl, // Store the short URL instead of storage path
-        file_size: file.size,
+        file_size: fileSize,
         file_type: fileExtension,
-        mime_type: file.type
+        mime_type: mimeType
       });
       
       if (dbError) throw dbError;
@@ -3843,4 +4045,20 @@ export const useFinanceStore = create<FinanceStore>((set, get) => ({
       portfolio_allocation: portfolioAllocation
     };
   },
-}));
\ No newline at end of file
+}));
+
+// On Android the dashboard and purchase stats come from the native aggregation
+// engine: row changes are streamed to it as the store updates, and the getters
+// above use its snapshot while it matches the current arrays
+if (nativeAggregates.isAvailable()) {
+  useFinanceStore.subscribe((state, previous) => {
+    if (state.accounts === previous.accounts &&
+        state.transactions === previous.transactions &&
+        state.purchases === previous.purchases) {
+      return;
+    }
+    nativeAggregates.sync(state).then(() => {
+      useFinanceStore.setState(current => ({ aggregatesVersion: current.aggregatesVersion + 1 }));
+    });
+  });
+}
@@ -6,6 +6,7 @@ export interface FilterState {
   dateRange: { start: string; end: string };
   showModifiedOnly: boolean;
   recentlyModifiedDays: number;
+  showRecurringOnly?: boolean;
 }
 
 export interface SortConfig {
@@ -14,6 +15,8 @@ export interface SortConfig {
 }
 
 export interface ExportOptions {
+  // Lets Android stream the export from the local ledger
+  userId?: string;
   transactions: any[];
   accounts: any[];
   format: 'csv' | 'pdf' | 'html';
@@ -0,0 +1,37 @@
+/**
+ * Uploads the attachments staged in PurchaseDetailsSection once their
+ * purchase is saved, with a progress toast per file
+ */
+
+import { toast } from 'sonner';
+import { useFinanceStore } from '../store/useFinanceStore';
+import { Purchase, PurchaseAttachment } from '../types';
+
+type SavedPurchase = Pick<Purchase, 'id' | 'item_name' | 'category' | 'purchase_date'>;
+
+/**
+ * Uploads every staged attachment (temp_ id with its File) of a saved purchase
+ * @param purchase - The purchase the attachments belong to
+ * @param attachments - The attachment list from the form
+ */
+export const uploadStagedAttachments = async (
+  purchase: SavedPurchase,
+  attachments: PurchaseAttachment[]
+): Promise<void> => {
+  const { uploadPurchaseAttachment } = useFinanceStore.getState();
+  for (const att of attachments) {
+    if (!att.id.startsWith('temp_') || !att.file) continue;
+
+    const file = att.file;
+    const toastId = toast.loading(`Uploading ${file.name}...`);
+    await uploadPurchaseAttachment(purchase.id, file, purchase, percent => {
+      toast.loading(`Uploading ${file.name}... ${Math.round(percent)}%`, { id: toastId });
+    });
+    toast.dismiss(toastId);
+
+    const { error } = useFinanceStore.getState();
+    if (error) {
+      toast.error(`Could not upload "${file.name}": ${error}`);
+    }
+  }
+};
@@ -1,8 +1,14 @@
 /**
  * Authentication storage utilities
  * Handles storing and retrieving remembered email (never passwords)
+ * In the Android app both live in the native key-value store, the email encrypted
  */
 
+import { nativeKeyValue } from '../lib/nativeKeyValue';
+
+const storage = nativeKeyValue.storage();
+const secretStorage = nativeKeyValue.secretStorage();
+
 const REMEMBERED_EMAIL_KEY = 'rememberedEmail';
 const REMEMBER_ME_PREFERENCE_KEY = 'rememberMePreference';
 
@@ -14,7 +20,7 @@ export const saveRememberedEmail = (email: string): void => {
   if (typeof window === 'undefined') return;
   
   if (email && email.trim()) {
-    localStorage.setItem(REMEMBERED_EMAIL_KEY, email.trim());
+    secretStorage.setItem(REMEMBERED_EMAIL_KEY, email.trim());
   }
 };
 
@@ -22,10 +28,10 @@ export const saveRememberedEmail = (email: string): void => {
  * Retrieves the saved email address
  * @returns The saved email or null if not found
  */
-export const getRememberedEmail = (): string | null => {
+export const getRememberedEmail = async (): Promise<string | null> => {
   if (typeof window === 'undefined') return null;
   
-  const email = localStorage.getItem(REMEMBERED_EMAIL_KEY);
+  const email = await secretStorage.getItem(REMEMBERED_EMAIL_KEY);
   return email ? email.trim() : null;
 };
 
@@ -35,7 +41,7 @@ export const getRememberedEmail = (): string | null => {
 export const clearRememberedEmail = (): void => {
   if (typeof window === 'undefined') return;
   
-  localStorage.removeItem(REMEMBERED_EMAIL_KEY);
+  secretStorage.removeItem(REMEMBERED_EMAIL_KEY);
 };
 
 /**
@@ -46,9 +52,9 @@ export const saveRememberMePreference = (shouldRemember: boolean): void => {
   if (typeof window === 'undefined') return;
   
   if (shouldRemember) {
-    localStorage.setItem(REMEMBER_ME_PREFERENCE_KEY, 'true');
+    storage.setItem(REMEMBER_ME_PREFERENCE_KEY, 'true');
   } else {
-    localStorage.setItem(REMEMBER_ME_PREFERENCE_KEY, 'false');
+    storage.setItem(REMEMBER_ME_PREFERENCE_KEY, 'false');
   }
 };
 
@@ -59,7 +65,7 @@ export const saveRememberMePreference = (shouldRemember: boolean): void => {
 export const getRememberMePreference = (): boolean | null => {
   if (typeof window === 'undefined') return null;
   
-  const preference = localStorage.getItem(REMEMBER_ME_PREFERENCE_KEY);
+  const preference = storage.getItem(REMEMBER_ME_PREFERENCE_KEY);
   if (preference === null) return null;
   return preference === 'true';
 };
@@ -70,6 +76,6 @@ export const getRememberMePreference = (): boolean | null => {
 export const clearRememberMePreference = (): void => {
   if (typeof window === 'undefined') return;
   
-  localStorage.removeItem(REMEMBER_ME_PREFERENCE_KEY);
+  storage.removeItem(REMEMBER_ME_PREFERENCE_KEY);
 };
 
@@ -0,0 +1,60 @@
+/**
+ * Duplicate-account check for OAuth and emailed-link sign-ins
+ * A provider sign-in can create a second account for an email that is
+ * already registered with another login method. Run this once the session
+ * is set; a rejected session is signed out again.
+ */
+
+import { User } from '@supabase/supabase-js';
+import { supabase } from '../lib/supabase';
+
+export interface AccountRejection {
+  message: string;
+  // True when the email belongs to a different account, false when the check itself failed
+  duplicate: boolean;
+}
+
+const VERIFICATION_FAILED = 'Authentication verification failed. Please try again.';
+const DUPLICATE_ACCOUNT =
+  'This email is already registered with a different account. Please sign in using your original login method (email/password).';
+
+const reject = async (message: string, duplicate: boolean): Promise<AccountRejection> => {
+  try {
+    await supabase.auth.signOut();
+  } catch (error) {
+    console.error('[AUTH] Sign-out after a rejected login failed:', error);
+  }
+  return { message, duplicate };
+};
+
+/**
+ * Checks that the signed-in user is the account registered for their email
+ * @param user - The user of the session that was just set
+ * @returns null when the login may proceed, otherwise why it was rejected
+ */
+export const rejectDuplicateAccount = async (user: User): Promise<AccountRejection | null> => {
+  try {
+    const { data: emailCheck, error: emailCheckError } = await supabase.rpc('check_email_exists', {
+      email_to_check: user.email || ''
+    });
+    if (emailCheckError) {
+      return reject(VERIFICATION_FAILED, false);
+    }
+
+    // If email exists, check if it's a different user
+    if (emailCheck === true) {
+      const { data: existingUser, error: fetchError } = await supabase
+        .rpc('get_user_by_email', { email_to_check: user.email || '' });
+      if (fetchError) {
+        return reject(VERIFICATION_FAILED, false);
+      }
+      if (existingUser && existingUser !== user.id) {
+        return reject(DUPLICATE_ACCOUNT, true);
+      }
+    }
+    return null;
+  } catch (error) {
+    console.error('[AUTH] Duplicate account check failed:', error);
+    return reject(VERIFICATION_FAILED, false);
+  }
+};
@@ -1,6 +1,8 @@
 // Exchange Rate Utilities
 // This file handles exchange rate calculations and API integrations
 
+import { nativeExchangeRates } from '../lib/nativeExchangeRates';
+
 export interface ExchangeRate {
   from: string;
   to: string;
@@ -60,18 +62,63 @@ export async function getExchangeRate(fromCurrency: string, toCurrency: string):
 
   }
 
-  // Fallback to common rates
-  const key = `${fromCurrency}-${toCurrency}`;
-  const fallbackRate = COMMON_RATES[key];
-  
-  if (fallbackRate) {
+  return fallbackRate(fromCurrency, toCurrency);
+}
 
-    return fallbackRate;
+// Fallback to common rates; if no rate found, 1 (same currency treatment)
+function fallbackRate(fromCurrency: string, toCurrency: string): number {
+  if (fromCurrency === toCurrency) {
+    return 1;
   }
+  return COMMON_RATES[`${fromCurrency}-${toCurrency}`] || 1;
+}
 
-  // If no rate found, return 1 (same currency treatment)
+/**
+ * Get exchange rates from several currencies into one, in a single lookup
+ * @param currencies - Source currency codes
+ * @param toCurrency - Target currency code
+ * @returns Promise<Record<string, number>> - Rate per source currency
+ */
+export async function getExchangeRates(currencies: string[], toCurrency: string): Promise<Record<string, number>> {
+  const rates: Record<string, number> = {};
+  let nativeRates: Record<string, number> = {};
+  if (nativeExchangeRates.isAvailable()) {
+    try {
+      nativeRates = (await nativeExchangeRates.getRates(toCurrency, currencies)).rates;
+    } catch (error) {
+      nativeRates = {};
+    }
+  }
+  for (const currency of currencies) {
+    rates[currency] = nativeRates[currency] ?? fallbackRate(currency, toCurrency);
+  }
+  return rates;
+}
 
-  return 1;
+/**
+ * Convert a column of amounts into one currency
+ * @param amounts - Original amounts
+ * @param fromCurrencies - Currency per amount, or one currency for all
+ * @param toCurrency - Target currency
+ * @returns Promise<number[]> - Converted amounts, in the same order
+ */
+export async function convertAmounts(
+  amounts: number[],
+  fromCurrencies: string | string[],
+  toCurrency: string
+): Promise<number[]> {
+  const currencyAt = (i: number) => (typeof fromCurrencies === 'string' ? fromCurrencies : fromCurrencies[i]);
+  if (nativeExchangeRates.isAvailable() && amounts.length > 0) {
+    try {
+      const { values } = await nativeExchangeRates.convert(amounts, fromCurrencies, toCurrency);
+      return values.map((value, i) => value ?? amounts[i] * fallbackRate(currencyAt(i), toCurrency));
+    } catch (error) {
+      // Fall through to the JS rates
+    }
+  }
+  const currencies = Array.from(new Set(amounts.map((_, i) => currencyAt(i))));
+  const rates = await getExchangeRates(currencies, toCurrency);
+  return amounts.map((amount, i) => amount * rates[currencyAt(i)]);
 }
 
 /**
@@ -81,6 +128,13 @@ export async function getExchangeRate(fromCurrency: string, toCurrency: string):
  */
 async function fetchRealTimeRate(fromCurrency: string, toCurrency: string): Promise<number | null> {
   try {
+    // On Android the native rate service keeps a persisted table, so this
+    // also works offline once it has been downloaded
+    if (nativeExchangeRates.isAvailable()) {
+      const { rates } = await nativeExchangeRates.getRates(toCurrency, [fromCurrency]);
+      return rates[fromCurrency] ?? null;
+    }
+
     // Example using a free API (you'll need to sign up for an API key)
     // const API_KEY = process.env.REACT_APP_EXCHANGE_RATE_API_KEY;
     // const response = await fetch(`https://api.exchangerate-api.com/v4/latest/${fromCurrency}`);
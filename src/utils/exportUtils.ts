@@ -3,6 +3,8 @@
 // import autoTable from 'jspdf-autotable';
 import { FilterState, SortConfig, ExportOptions, ExportResult, FilterSummary } from '../types/export';
 import { formatTransactionDescription } from './transactionDescriptionFormatter';
+import { nativeExport, NativeExportFilters, NativeExportResult } from '../lib/nativeExport';
+import { nativeLedger } from '../lib/nativeLedger';
 
 /**
  * Generate a smart filename based on active filters
@@ -440,11 +442,87 @@ export const exportToHTML = async (options: ExportOptions): Promise<ExportResult
   }
 };
 
+/**
+ * The list filters the native exporter applies itself; null when they
+ * include one it cannot reproduce (fuzzy search, recurring-only)
+ */
+const toNativeFilters = (filters?: FilterState): NativeExportFilters | null => {
+  if (!filters) return { excludeTransfers: true };
+  if ((filters.search && filters.search.trim()) || filters.showRecurringOnly) return null;
+
+  const nativeFilters: NativeExportFilters = { type: filters.type, excludeTransfers: true };
+  if (filters.account !== 'all') nativeFilters.account = filters.account;
+  if (filters.currency) nativeFilters.currency = filters.currency;
+  if (filters.dateRange.start && filters.dateRange.end) {
+    nativeFilters.from = filters.dateRange.start;
+    nativeFilters.to = filters.dateRange.end;
+  }
+  if (filters.showModifiedOnly) {
+    const cutoff = new Date();
+    cutoff.setDate(cutoff.getDate() - filters.recentlyModifiedDays);
+    nativeFilters.modifiedSince = cutoff.toISOString();
+  }
+  return nativeFilters;
+};
+
+/**
+ * On Android, CSV and PDF exports are streamed natively from the local
+ * ledger and offered through the share sheet. Resolves to null, so the JS
+ * exporters run instead, when that is not possible: no native plugin, an
+ * empty ledger, filters it cannot apply, or a native failure. Once the file
+ * is written it never resolves to null; a share sheet that fails to open is
+ * reported as a share error rather than exported a second time.
+ */
+const exportNatively = async (options: ExportOptions): Promise<ExportResult | null> => {
+  const { userId, format, transactions, accounts, filters, sortConfig, filename } = options;
+  if (!userId || format === 'html' || !nativeExport.isAvailable()) return null;
+  const nativeFilters = toNativeFilters(filters);
+  if (!nativeFilters) return null;
+
+  let result: NativeExportResult;
+  try {
+    // Catch up on changes since the last fetch, dropping rows deleted on the
+    // server; the export reads account names from the ledger too
+    await nativeLedger.sync(userId, ['accounts', 'transactions']);
+    const { count } = await nativeLedger.count('transactions', userId);
+    if (count === 0) return null;
+
+    result = await nativeExport.exportTransactions({
+      userId,
+      format,
+      filename: filename || generateExportFilename(format, filters, transactions.length),
+      filters: nativeFilters,
+      sort: sortConfig,
+      filterLabels: filters && hasActiveFilters(filters)
+        ? generateFilterSummary(transactions, filters, accounts).activeFilters
+        : undefined
+    });
+  } catch (error) {
+    console.warn('[EXPORT] Native export failed, exporting in the page instead:', error);
+    return null;
+  }
+
+  try {
+    await nativeExport.share(result.uri, format === 'pdf' ? 'application/pdf' : 'text/csv', result.filename);
+    return { success: true, filename: result.filename };
+  } catch (error) {
+    console.error('[EXPORT] Share sheet failed for the exported file:', error);
+    return {
+      success: false,
+      filename: result.filename,
+      error: `${result.filename} was exported but could not be shared: ${error instanceof Error ? error.message : 'Unknown error occurred'}`
+    };
+  }
+};
+
 /**
  * Main export function that handles all formats
  */
 export const exportTransactions = async (options: ExportOptions): Promise<ExportResult> => {
   const { format } = options;
+
+  const nativeResult = await exportNatively(options);
+  if (nativeResult) return nativeResult;
   
   switch (format) {
     case 'csv':
@@ -3,6 +3,11 @@
  * Tracks whether this is the user's first time launching the app
  */
 
+import { nativeKeyValue } from '../lib/nativeKeyValue';
+
+// Native key-value store in the Android app, localStorage elsewhere
+const storage = nativeKeyValue.storage();
+
 const FIRST_LAUNCH_KEY = 'hasLaunchedBefore';
 
 /**
@@ -12,7 +17,7 @@ const FIRST_LAUNCH_KEY = 'hasLaunchedBefore';
 export const isFirstLaunch = (): boolean => {
   if (typeof window === 'undefined') return false;
   
-  const hasLaunched = localStorage.getItem(FIRST_LAUNCH_KEY);
+  const hasLaunched = storage.getItem(FIRST_LAUNCH_KEY);
   return hasLaunched === null;
 };
 
@@ -23,7 +28,7 @@ export const isFirstLaunch = (): boolean => {
 export const markAsLaunched = (): void => {
   if (typeof window === 'undefined') return;
   
-  localStorage.setItem(FIRST_LAUNCH_KEY, 'true');
+  storage.setItem(FIRST_LAUNCH_KEY, 'true');
 };
 
 /**
@@ -32,6 +37,6 @@ export const markAsLaunched = (): void => {
 export const resetFirstLaunch = (): void => {
   if (typeof window === 'undefined') return;
   
-  localStorage.removeItem(FIRST_LAUNCH_KEY);
+  storage.removeItem(FIRST_LAUNCH_KEY);
 };
 
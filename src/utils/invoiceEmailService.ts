@@ -4,7 +4,8 @@
  */
 
 import { Invoice } from '../types/client';
-import { generateInvoicePDFBlob } from './invoiceUtils';
+import { generateInvoicePDFBlob, InvoicePDFOptions } from './invoiceUtils';
+import { nativeInvoices } from '../lib/nativeInvoices';
 
 export interface SendInvoiceEmailOptions {
   invoice: Invoice;
@@ -72,7 +73,7 @@ export const sendInvoiceEmail = async (
     // Generate PDF blob with timeout
     let pdfResult;
     try {
-      const pdfPromise = generateInvoicePDFBlob({
+      const pdfPromise = generatePDFBlob({
         invoice,
         companyName,
         companyAddress,
@@ -228,6 +229,29 @@ export const sendInvoiceEmail = async (
   }
 };
 
+/**
+ * Rendered natively on Android, with jsPDF as the fallback
+ */
+const generatePDFBlob = async (
+  options: InvoicePDFOptions
+): Promise<{ success: boolean; blob?: Blob; error?: string }> => {
+  if (nativeInvoices.isAvailable()) {
+    try {
+      const blob = await nativeInvoices.renderBlob(options.invoice, {
+        name: options.companyName,
+        address: options.companyAddress,
+        email: options.companyEmail,
+        phone: options.companyPhone,
+        website: options.companyWebsite
+      });
+      return { success: true, blob };
+    } catch (error) {
+      console.warn('Native invoice PDF failed, using jsPDF:', error);
+    }
+  }
+  return generateInvoicePDFBlob(options);
+};
+
 /**
  * Convert blob to base64 string
  */
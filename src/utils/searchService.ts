@@ -8,6 +8,7 @@ try {
 }
 
 import { trackSearch, trackSearchClick, trackSuggestionClick, trackZeroResults } from './searchAnalytics';
+import { nativeSearchIndex, SearchIndexRecord } from '../lib/nativeSearchIndex';
 
 // Search configuration types
 export interface SearchConfig {
@@ -200,6 +201,31 @@ export function highlightMatches(text: string, matches: any[]): string {
   return result || text;
 }
 
+// What the native index currently holds for one data type
+interface NativeIndexState {
+  source: any[] | null;
+  signatures: Map<string, string>;
+  byId: Map<string, any>;
+  pending: Promise<void>;
+}
+
+// Records per bridge call when (re)building the native index
+const NATIVE_INDEX_BATCH = 2000;
+// Amounts are searchable even when the config doesn't list them
+const NATIVE_AMOUNT_WEIGHT = 0.1;
+
+// Reads 'client.name' style keys; arrays (tags) are joined
+function fieldText(item: any, path: string): string | null {
+  let value = item;
+  for (const part of path.split('.')) {
+    if (value == null) return null;
+    value = value[part];
+  }
+  if (value == null) return null;
+  if (Array.isArray(value)) return value.join(' ');
+  return String(value);
+}
+
 /**
  * Unified Search Service
  */
@@ -207,6 +233,8 @@ export class UnifiedSearchService {
   private fuseInstances: Map<string, any> = new Map();
   private searchCache: Map<string, any> = new Map();
   private readonly CACHE_LIMIT = 50;
+  private nativeIndexes: Map<string, NativeIndexState> = new Map();
+  private nativeSynonyms: Promise<void> | null = null;
 
   /**
    * Create or get Fuse instance for data type
@@ -378,6 +406,120 @@ export class UnifiedSearchService {
     return limitedResults;
   }
 
+  /**
+   * Same query as search(), answered off the UI thread by the native index
+   * on Android. Pass the full collection: the index is kept in sync with it
+   * by id, so only added, changed and removed records cross the bridge.
+   * Resolves to the matching items best-first, or null when the native
+   * index is unavailable and callers should use search() instead.
+   */
+  async searchNative<T extends { id: string }>(
+    data: T[],
+    query: string,
+    dataType: string,
+    config: SearchConfig,
+    options: SearchOptions = {}
+  ): Promise<T[] | null> {
+    if (!nativeSearchIndex.isAvailable()) {
+      return null;
+    }
+    if (!query.trim()) {
+      return [];
+    }
+
+    if (!this.nativeSynonyms) {
+      this.nativeSynonyms = nativeSearchIndex.setSynonyms(SYNONYMS);
+    }
+    await this.nativeSynonyms;
+    const state = await this.syncNativeIndex(data, dataType, config);
+
+    const { hits, tookMs } = await nativeSearchIndex.search(query, [dataType], options.limit ?? 1000);
+    const items: T[] = [];
+    for (const hit of hits) {
+      const item = state.byId.get(hit.id);
+      if (item) {
+        items.push(item);
+      }
+    }
+
+    trackSearch(query, this.getCurrentPage(), items.length, tookMs, options.filters);
+    if (items.length === 0) {
+      trackZeroResults(query, this.getCurrentPage(), tookMs);
+    }
+    return items;
+  }
+
+  /**
+   * Bring the native index for dataType in line with data
+   */
+  private syncNativeIndex(data: any[], dataType: string, config: SearchConfig): Promise<NativeIndexState> {
+    let state = this.nativeIndexes.get(dataType);
+    if (!state) {
+      state = { source: null, signatures: new Map(), byId: new Map(), pending: Promise.resolve() };
+      this.nativeIndexes.set(dataType, state);
+    }
+    if (state.source === data) {
+      return state.pending.then(() => state!);
+    }
+
+    const current = state;
+    const firstSync = current.source === null;
+    current.source = data;
+    const weights: Record<string, number> = {};
+    for (const key of config.keys) {
+      weights[key.name] = key.weight;
+    }
+    if (!('amount' in weights)) {
+      weights.amount = NATIVE_AMOUNT_WEIGHT;
+    }
+
+    const changed: SearchIndexRecord[] = [];
+    const signatures = new Map<string, string>();
+    const byId = new Map<string, any>();
+    for (const item of data) {
+      if (!item || item.id == null) continue;
+      const id = String(item.id);
+      const fields: Record<string, string | null> = {};
+      for (const name of Object.keys(weights)) {
+        fields[name] = fieldText(item, name);
+      }
+      const signature = JSON.stringify(fields);
+      signatures.set(id, signature);
+      byId.set(id, item);
+      if (current.signatures.get(id) !== signature) {
+        const date = item.date || item.created_at || item.updated_at;
+        changed.push({ id, fields, timestamp: date ? new Date(date).getTime() || 0 : 0 });
+      }
+    }
+    const removed: string[] = [];
+    for (const id of current.signatures.keys()) {
+      if (!signatures.has(id)) {
+        removed.push(id);
+      }
+    }
+    current.signatures = signatures;
+    current.byId = byId;
+
+    current.pending = current.pending.then(async () => {
+      if (firstSync) {
+        // The native index outlives page reloads; drop whatever an earlier page left
+        await nativeSearchIndex.clear(dataType);
+      } else if (removed.length > 0) {
+        await nativeSearchIndex.remove(dataType, removed);
+      }
+      for (let i = 0; i < changed.length; i += NATIVE_INDEX_BATCH) {
+        const batchWeights = i === 0 ? weights : undefined;
+        await nativeSearchIndex.put(dataType, changed.slice(i, i + NATIVE_INDEX_BATCH), batchWeights);
+      }
+    }).catch(error => {
+      // Start over on the next call rather than searching a half-synced index
+      console.warn('[Search] Native index sync failed', error);
+      this.nativeIndexes.delete(dataType);
+      throw error;
+    });
+    return current.pending.then(() => current);
+  }
+
   /**
    * Clear search cache
    */